@@ -44,6 +44,7 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -152,20 +153,7 @@ public class StaticAssetStorageServiceImpl implements StaticAssetStorageService
         FileOutputStream tos = null;
         FileWorkArea workArea = null;
         try {
-            if (!baseLocalFile.getParentFile().exists()) {
-                boolean directoriesCreated = false;
-                if (!baseLocalFile.getParentFile().exists()) {
-                    directoriesCreated = baseLocalFile.getParentFile().mkdirs();
-                    if (!directoriesCreated) {
-                        // There is a chance that another VM created the directories.   If not, we may not have 
-                        // proper permissions and this is an error we need to report.
-                        if (!baseLocalFile.getParentFile().exists()) {
-                            throw new RuntimeException("Unable to create middle directories for file: " +
-                                    baseLocalFile.getAbsolutePath());
-                        }
-                    }
-                }
-            }
+            createParentDirectories(baseLocalFile);
             
             workArea = broadleafFileService.initializeWorkArea();
             File tmpFile = new File(FilenameUtils.concat(workArea.getFilePathLocation(), baseLocalFile.getName()));
@@ -178,18 +166,7 @@ public class StaticAssetStorageServiceImpl implements StaticAssetStorageService
             is.close();
             tos.close();
 
-            // Adding protection against this file already existing / being written by another thread.
-            // Adding locks would be useless here since another VM could be executing the code. 
-            if (!baseLocalFile.exists()) {
-                try {
-                    FileUtils.moveFile(tmpFile, baseLocalFile);
-                } catch (FileExistsException e) {
-                    // No problem
-                    if (LOG.isDebugEnabled()) {
-                        LOG.debug("File exists error moving file " + tmpFile.getAbsolutePath(), e);
-                    }
-                }
-            }
+            moveWorkAreaFile(tmpFile, baseLocalFile);
         } finally {
             IOUtils.closeQuietly(is);
             IOUtils.closeQuietly(tos);
@@ -198,7 +175,72 @@ public class StaticAssetStorageServiceImpl implements StaticAssetStorageService
                 broadleafFileService.closeWorkArea(workArea);
             }
         }
-    }    
+    }
+
+    /**
+     * Converts the original asset and writes the result straight into the work area file that is then moved to
+     * the cache location, rather than staging the converted asset in memory first.
+     */
+    protected void createLocalFileFromConversion(InputStream original, Operation[] operations, String mimeType,
+            File cacheFile) throws Exception {
+        OutputStream tos = null;
+        FileWorkArea workArea = null;
+        try {
+            createParentDirectories(cacheFile);
+
+            workArea = broadleafFileService.initializeWorkArea();
+            File tmpFile = new File(FilenameUtils.concat(workArea.getFilePathLocation(), cacheFile.getName()));
+
+            tos = new BufferedOutputStream(new FileOutputStream(tmpFile));
+
+            artifactService.convert(original, operations, mimeType, tos);
+
+            // close the input/output streams before trying to move files around
+            original.close();
+            tos.close();
+
+            moveWorkAreaFile(tmpFile, cacheFile);
+        } finally {
+            IOUtils.closeQuietly(original);
+            IOUtils.closeQuietly(tos);
+
+            if (workArea != null) {
+                broadleafFileService.closeWorkArea(workArea);
+            }
+        }
+    }
+
+    protected void createParentDirectories(File baseLocalFile) {
+        if (!baseLocalFile.getParentFile().exists()) {
+            boolean directoriesCreated = false;
+            if (!baseLocalFile.getParentFile().exists()) {
+                directoriesCreated = baseLocalFile.getParentFile().mkdirs();
+                if (!directoriesCreated) {
+                    // There is a chance that another VM created the directories.   If not, we may not have 
+                    // proper permissions and this is an error we need to report.
+                    if (!baseLocalFile.getParentFile().exists()) {
+                        throw new RuntimeException("Unable to create middle directories for file: " +
+                                baseLocalFile.getAbsolutePath());
+                    }
+                }
+            }
+        }
+    }
+
+    protected void moveWorkAreaFile(File tmpFile, File baseLocalFile) throws IOException {
+        // Adding protection against this file already existing / being written by another thread.
+        // Adding locks would be useless here since another VM could be executing the code. 
+        if (!baseLocalFile.exists()) {
+            try {
+                FileUtils.moveFile(tmpFile, baseLocalFile);
+            } catch (FileExistsException e) {
+                // No problem
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("File exists error moving file " + tmpFile.getAbsolutePath(), e);
+                }
+            }
+        }
+    }
 
     @Transactional("blTransactionManagerAssetStorageInfo")
     @Override
@@ -241,9 +283,7 @@ public class StaticAssetStorageServiceImpl implements StaticAssetStorageService
             original.mark(0);                                    
             
             Operation[] operations = artifactService.buildOperations(convertedParameters, original, staticAsset.getMimeType());
-            InputStream converted = artifactService.convert(original, operations, staticAsset.getMimeType());
-            
-            createLocalFileFromInputStream(converted, cacheFile);
+            createLocalFileFromConversion(original, operations, staticAsset.getMimeType(), cacheFile);
             if ("image/gif".equals(mimeType)) {
                 mimeType = "image/png";
             }
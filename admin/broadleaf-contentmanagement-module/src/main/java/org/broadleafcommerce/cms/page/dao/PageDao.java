@@ -76,6 +76,16 @@ public interface PageDao {
      */
     public List<PageTemplate> readAllPageTemplates();
 
+    /**
+     * Returns the full url of every page of the site of the current request, including pages that are offline or
+     * outside of their active dates. Pages are restricted to the site the same way as for {@link #findPageByURI(String)},
+     * so callers on other threads have to set up a {@link org.broadleafcommerce.common.web.BroadleafRequestContext}
+     * for the site first.
+     * 
+     * @return the urls of all pages of the current site
+     */
+    public List<String> readAllPageUris();
+
     public List<Page> findPageByURI(String uri);
     
     public List<Page> findPageByURI(Locale fullLocale, Locale languageOnlyLocale, String uri);
@@ -165,6 +165,16 @@ public class PageDaoImpl implements PageDao {
         }
     }
     
+    @Override
+    public List<String> readAllPageUris() {
+        CriteriaBuilder builder = em.getCriteriaBuilder();
+        CriteriaQuery<String> criteria = builder.createQuery(String.class);
+        Root<PageImpl> page = criteria.from(PageImpl.class);
+        criteria.select(page.get("fullUrl").as(String.class));
+
+        return em.createQuery(criteria).getResultList();
+    }
+
     @Override
     public List<Page> readOnlineAndIncludedPages(int limit, int offset, String sortBy) {
         CriteriaBuilder builder = em.getCriteriaBuilder();
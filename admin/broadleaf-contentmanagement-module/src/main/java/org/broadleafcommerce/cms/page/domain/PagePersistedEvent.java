@@ -0,0 +1,49 @@
+/*
+ * #%L
+ * BroadleafCommerce CMS Module
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.cms.page.domain;
+
+import org.broadleafcommerce.common.event.BroadleafApplicationEvent;
+
+/**
+ * An event for whenever a {@link Page} has been persisted, updated or removed
+ * 
+ * @see {@link PagePersistedEntityListener}
+ */
+public class PagePersistedEvent extends BroadleafApplicationEvent {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * @param page the page that was changed
+     */
+    public PagePersistedEvent(Page page) {
+        super(page);
+    }
+
+    /**
+     * Gets the changed page set by the {@link PagePersistedEntityListener}
+     * 
+     * @return
+     */
+    public Page getPage() {
+        return (Page) source;
+    }
+
+}
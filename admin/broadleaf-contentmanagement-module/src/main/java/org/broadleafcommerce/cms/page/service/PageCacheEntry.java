@@ -0,0 +1,109 @@
+/*
+ * #%L
+ * BroadleafCommerce CMS Module
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.cms.page.service;
+
+import org.broadleafcommerce.common.page.dto.PageDTO;
+import org.broadleafcommerce.common.web.BroadleafRequestContext;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An entry of the in-memory page cache of {@link PageServiceImpl}. Besides the pages for a url it holds the page each
+ * locale evaluated to, as long as that result does not depend on the request, and what is needed to reload the pages
+ * in the background.
+ */
+public class PageCacheEntry {
+
+    protected static final String NO_LOCALE = "";
+
+    protected final List<PageDTO> pages;
+    protected final String uri;
+    protected final boolean secure;
+    protected final BroadleafRequestContext context;
+    protected final long loaded = System.currentTimeMillis();
+    protected final AtomicInteger hits = new AtomicInteger();
+    protected final AtomicBoolean refreshing = new AtomicBoolean(false);
+    protected final ConcurrentMap<String, PageDTO> evaluatedPages = new ConcurrentHashMap<String, PageDTO>();
+
+    /**
+     * @param pages the pages for the url, sorted by priority
+     * @param uri
+     * @param secure
+     * @param context a lightweight clone of the context the pages were read in
+     */
+    public PageCacheEntry(List<PageDTO> pages, String uri, boolean secure, BroadleafRequestContext context) {
+        this.pages = pages;
+        this.uri = uri;
+        this.secure = secure;
+        this.context = context;
+    }
+
+    public List<PageDTO> getPages() {
+        return pages;
+    }
+
+    public String getUri() {
+        return uri;
+    }
+
+    public boolean isSecure() {
+        return secure;
+    }
+
+    public BroadleafRequestContext getContext() {
+        return context;
+    }
+
+    public long getLoaded() {
+        return loaded;
+    }
+
+    public int hit() {
+        return hits.incrementAndGet();
+    }
+
+    public int getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return true if the caller is the one to refresh this entry
+     */
+    public boolean startRefresh() {
+        return refreshing.compareAndSet(false, true);
+    }
+
+    public void refreshFailed() {
+        refreshing.set(false);
+    }
+
+    public PageDTO getEvaluatedPage(String localeCode) {
+        return evaluatedPages.get(localeCode == null ? NO_LOCALE : localeCode);
+    }
+
+    public void putEvaluatedPage(String localeCode, PageDTO page) {
+        evaluatedPages.put(localeCode == null ? NO_LOCALE : localeCode, page);
+    }
+
+}
@@ -24,15 +24,21 @@ import net.sf.ehcache.CacheManager;
 import net.sf.ehcache.Element;
 
 import org.apache.commons.beanutils.BeanComparator;
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.broadleafcommerce.cms.file.service.StaticAssetService;
 import org.broadleafcommerce.cms.page.dao.PageDao;
 import org.broadleafcommerce.cms.page.domain.Page;
 import org.broadleafcommerce.cms.page.domain.PageField;
+import org.broadleafcommerce.cms.page.domain.PagePersistedEvent;
 import org.broadleafcommerce.cms.page.domain.PageTemplate;
 import org.broadleafcommerce.common.cache.CacheStatType;
 import org.broadleafcommerce.common.cache.StatisticsService;
+import org.broadleafcommerce.common.cache.TemplateElementCacheService;
+import org.broadleafcommerce.common.classloader.release.ThreadLocalManager;
+import org.broadleafcommerce.common.event.BroadleafApplicationListener;
 import org.broadleafcommerce.common.extensibility.jpa.SiteDiscriminator;
 import org.broadleafcommerce.common.extension.ExtensionResultHolder;
 import org.broadleafcommerce.common.locale.domain.Locale;
@@ -43,23 +49,38 @@ import org.broadleafcommerce.common.page.dto.PageDTO;
 import org.broadleafcommerce.common.rule.RuleProcessor;
 import org.broadleafcommerce.common.sandbox.domain.SandBox;
 import org.broadleafcommerce.common.template.TemplateOverrideExtensionManager;
+import org.broadleafcommerce.common.util.TransactionUtils;
 import org.broadleafcommerce.common.web.BroadleafRequestContext;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.google.common.cache.CacheBuilder;
+
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
 
 /**
  * Created by bpolster.
  */
 @Service("blPageService")
-public class PageServiceImpl implements PageService {
+public class PageServiceImpl implements PageService, BroadleafApplicationListener<PagePersistedEvent> {
 
     protected static final Log LOG = LogFactory.getLog(PageServiceImpl.class);
     
@@ -90,10 +111,52 @@ public class PageServiceImpl implements PageService {
     @Resource(name = "blPageServiceExtensionManager")
     protected PageServiceExtensionManager extensionManager;
 
+    @Resource(name = "blTemplateElementCacheService")
+    protected TemplateElementCacheService templateElementCacheService;
+
+    @Resource(name = "blTransactionManager")
+    protected PlatformTransactionManager transactionManager;
+
+    /**
+     * Whether urls are checked against a filter of all page urls before they are looked up. Pages saved on another node
+     * are only added to the filter of this node when it is rebuilt, so this is off by default.
+     */
+    @Value("${page.uri.filter.enabled:false}")
+    protected boolean uriFilterEnabled = false;
+
+    @Value("${page.uri.filter.falsePositiveRate:0.01}")
+    protected double uriFilterFalsePositiveRate = 0.01;
+
+    /**
+     * The number of seconds after which the filter of page urls is rebuilt, which picks up pages added by other nodes
+     */
+    @Value("${page.uri.filter.rebuildInterval:300}")
+    protected int uriFilterRebuildInterval = 300;
+
+    /**
+     * The maximum number of urls held in memory in front of the page cache, 0 to disable it
+     */
+    @Value("${page.near.cache.maxSize:500}")
+    protected int nearCacheMaxSize = 500;
+
+    @Value("${page.near.cache.ttl:300}")
+    protected int nearCacheTtl = 300;
+
+    /**
+     * The number of hits after which an entry is refreshed in the background before it expires
+     */
+    @Value("${page.near.cache.refresh.minHits:20}")
+    protected int nearCacheRefreshMinHits = 20;
+
     protected Cache pageCache;
     protected Cache pageMapCache;
     protected final PageDTO NULL_PAGE = new NullPageDTO();
 
+    protected final ConcurrentMap<String, PageUriFilter> uriFilters = new ConcurrentHashMap<String, PageUriFilter>();
+    protected final Set<String> rebuildingUriFilters = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    protected volatile com.google.common.cache.Cache<String, PageCacheEntry> nearCache;
+    protected volatile ExecutorService refreshExecutor;
+
     /**
      * Returns the page with the passed in id.
      *
@@ -138,6 +201,7 @@ public class PageServiceImpl implements PageService {
     @Override
     public PageDTO findPageByURI(Locale locale, String uri, Map<String,Object> ruleDTOs, boolean secure) {
         List<PageDTO> returnList = null;
+        PageCacheEntry cacheEntry = null;
         if (uri != null) {
             Locale languageOnlyLocale = findLanguageOnlyLocale(locale);
             BroadleafRequestContext context = BroadleafRequestContext.getBroadleafRequestContext();
@@ -148,7 +212,19 @@ public class PageServiceImpl implements PageService {
             String key = buildKey(sandBox, site, languageOnlyLocale, uri);
             key = key + "-" + secure;
             if (context.isProductionSandBox()) {
-                returnList = getPageListFromCache(key);
+                if (!mightHavePage(uri, site)) {
+                    return NULL_PAGE;
+                }
+                cacheEntry = getNearCacheEntry(key);
+                if (cacheEntry != null) {
+                    PageDTO evaluated = cacheEntry.getEvaluatedPage(locale == null ? null : locale.getLocaleCode());
+                    if (evaluated != null) {
+                        return evaluated;
+                    }
+                    returnList = cacheEntry.getPages();
+                } else {
+                    returnList = getPageListFromCache(key);
+                }
             }
             if (returnList == null) {
                 //TODO does this pull the right sandbox in multitenant?
@@ -159,9 +235,14 @@ public class PageServiceImpl implements PageService {
                     addPageListToCache(returnList, key, uri, sandBox, site);
                 }
             }
+            if (context.isProductionSandBox() && cacheEntry == null && nearCacheMaxSize > 0) {
+                cacheEntry = new PageCacheEntry(returnList, uri, secure, context.createLightWeightClone());
+                getNearCache().put(key, cacheEntry);
+            }
         }
         
         PageDTO dto = evaluatePageRules(returnList, locale, ruleDTOs);
+        boolean evaluationCacheable = cacheEntry != null && isEvaluationCacheable(returnList);
         
         if (dto.getId() != null) {
             Page page = findPageById(dto.getId());
@@ -176,12 +257,201 @@ public class PageServiceImpl implements PageService {
         }
         
         if (dto != null) {
-            dto = pageServiceUtility.hydrateForeignLookups(dto);
+            PageDTO hydrated = pageServiceUtility.hydrateForeignLookups(dto);
+            // Entities looked up for foreign fields are not shared between requests
+            evaluationCacheable &= hydrated == dto;
+            dto = hydrated;
+        }
+
+        if (evaluationCacheable) {
+            cacheEntry.putEvaluatedPage(locale == null ? null : locale.getLocaleCode(), dto);
         }
         
         return dto;
     }
 
+    /**
+     * Whether the page the given pages evaluate to only depends on the locale, which is the case when none of them
+     * has rules and no extension handler can override the page
+     */
+    protected boolean isEvaluationCacheable(List<PageDTO> pageDTOList) {
+        if (!extensionManager.getHandlers().isEmpty()) {
+            return false;
+        }
+        for (PageDTO page : pageDTOList) {
+            if (StringUtils.isNotBlank(page.getRuleExpression()) || CollectionUtils.isNotEmpty(page.getItemCriteriaDTOList())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks the url against the filter of all page urls of the site. The filter is built, and rebuilt once it is
+     * stale, in the background. Until the first build of the filter of a site completes, every url might have a page.
+     * 
+     * @return false if there certainly is no page with the given url
+     */
+    protected boolean mightHavePage(String uri, Long site) {
+        if (!uriFilterEnabled) {
+            return true;
+        }
+        String filterKey = String.valueOf(site);
+        PageUriFilter filter = uriFilters.get(filterKey);
+        if (filter == null || filter.isStale(uriFilterRebuildInterval * 1000L)) {
+            scheduleUriFilterBuild(filterKey);
+        }
+        return filter == null || filter.mightContain(uri);
+    }
+
+    /**
+     * Builds the filter of the site of the current request on the refresh thread, unless it is already being built.
+     * The build runs with a copy of the request context, so that the page urls are read for the same site (and
+     * catalog) as the pages themselves.
+     */
+    protected void scheduleUriFilterBuild(final String filterKey) {
+        if (!rebuildingUriFilters.add(filterKey)) {
+            return;
+        }
+        final BroadleafRequestContext context = BroadleafRequestContext.getBroadleafRequestContext().createLightWeightClone();
+        try {
+            getRefreshExecutor().execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    BroadleafRequestContext.setBroadleafRequestContext(context);
+                    TransactionStatus status = TransactionUtils.createTransaction(TransactionDefinition.PROPAGATION_REQUIRED,
+                            transactionManager, true);
+                    boolean isError = false;
+                    try {
+                        uriFilters.put(filterKey, new PageUriFilter(pageDao.readAllPageUris(), uriFilterFalsePositiveRate));
+                    } catch (RuntimeException e) {
+                        isError = true;
+                        LOG.error("Unable to build the page url filter", e);
+                    } finally {
+                        TransactionUtils.finalizeTransaction(status, transactionManager, isError);
+                        rebuildingUriFilters.remove(filterKey);
+                        ThreadLocalManager.remove();
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            rebuildingUriFilters.remove(filterKey);
+            throw e;
+        }
+    }
+
+    /**
+     * Looks up the in-memory cache entry for the given key. Entries that have been used often enough are reloaded in
+     * the background shortly before they expire, so that popular pages never fall through to the database.
+     */
+    protected PageCacheEntry getNearCacheEntry(final String key) {
+        if (nearCacheMaxSize <= 0) {
+            return null;
+        }
+        final PageCacheEntry entry = getNearCache().getIfPresent(key);
+        if (entry == null) {
+            return null;
+        }
+        int hits = entry.hit();
+        long age = System.currentTimeMillis() - entry.getLoaded();
+        if (age > nearCacheTtl * 750L && hits >= nearCacheRefreshMinHits && entry.startRefresh()) {
+            getRefreshExecutor().execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    refreshNearCacheEntry(key, entry);
+                }
+            });
+        }
+        return entry;
+    }
+
+    protected void refreshNearCacheEntry(String key, PageCacheEntry entry) {
+        BroadleafRequestContext.setBroadleafRequestContext(entry.getContext());
+        TransactionStatus status = TransactionUtils.createTransaction(TransactionDefinition.PROPAGATION_REQUIRED,
+                transactionManager, true);
+        boolean isError = false;
+        try {
+            List<PageDTO> pages = buildPageDTOList(pageDao.findPageByURI(entry.getUri()), entry.isSecure());
+            Collections.sort(pages, new BeanComparator("priority"));
+            getPageCache().put(new Element(key, pages));
+            getNearCache().put(key, new PageCacheEntry(pages, entry.getUri(), entry.isSecure(), entry.getContext()));
+        } catch (RuntimeException e) {
+            isError = true;
+            entry.refreshFailed();
+            LOG.error("Unable to refresh the cached pages for " + entry.getUri(), e);
+        } finally {
+            TransactionUtils.finalizeTransaction(status, transactionManager, isError);
+            ThreadLocalManager.remove();
+        }
+    }
+
+    @Override
+    public void onApplicationEvent(PagePersistedEvent event) {
+        String uri = event.getPage().getFullUrl();
+        if (uri == null) {
+            return;
+        }
+        for (PageUriFilter filter : uriFilters.values()) {
+            filter.add(uri);
+        }
+        if (nearCache != null) {
+            String prefix = uri + "-";
+            for (String key : nearCache.asMap().keySet()) {
+                if (key.startsWith(prefix)) {
+                    nearCache.invalidate(key);
+                }
+            }
+        }
+        removePageFromCache(getPageMapCacheKey(uri, null, null));
+    }
+
+    @Override
+    public boolean isAsynchronous() {
+        return false;
+    }
+
+    protected com.google.common.cache.Cache<String, PageCacheEntry> getNearCache() {
+        if (nearCache == null) {
+            synchronized (this) {
+                if (nearCache == null) {
+                    nearCache = CacheBuilder.newBuilder()
+                            .maximumSize(nearCacheMaxSize)
+                            .expireAfterWrite(nearCacheTtl, TimeUnit.SECONDS)
+                            .build();
+                }
+            }
+        }
+        return nearCache;
+    }
+
+    protected ExecutorService getRefreshExecutor() {
+        if (refreshExecutor == null) {
+            synchronized (this) {
+                if (refreshExecutor == null) {
+                    refreshExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread thread = new Thread(r, "blPageCacheRefresh");
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+                }
+            }
+        }
+        return refreshExecutor;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (refreshExecutor != null) {
+            refreshExecutor.shutdownNow();
+        }
+    }
+
     @Override
     public List<Page> readAllPages() {
         return pageDao.readAllPages();
@@ -199,7 +469,25 @@ public class PageServiceImpl implements PageService {
         if (e != null && e.getObjectValue() != null) {
             List<String> keys = (List<String>) e.getObjectValue();
             for (String k : keys) {
+                invalidatePageTemplateCache(getPageCache().get(k));
                 getPageCache().remove(k);
+                if (nearCache != null) {
+                    nearCache.invalidate(k);
+                }
+            }
+        }
+    }
+
+    /**
+     * Evicts the cached template fragments that were rendered from any of the pages in the given page cache element
+     * 
+     * @param pageCacheElement
+     */
+    @SuppressWarnings("unchecked")
+    protected void invalidatePageTemplateCache(Element pageCacheElement) {
+        if (pageCacheElement != null && pageCacheElement.getObjectValue() != null) {
+            for (PageDTO dto : (List<PageDTO>) pageCacheElement.getObjectValue()) {
+                templateElementCacheService.invalidateDependency(TemplateElementCacheService.PAGE, dto.getId());
             }
         }
     }
@@ -0,0 +1,134 @@
+/*
+ * #%L
+ * BroadleafCommerce CMS Module
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.cms.page.service;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A Bloom filter over the urls of all pages of a site. A url the filter does not contain certainly has no page, so
+ * requests for it can be answered without a page lookup. A url it does contain may still have no page, with a
+ * probability close to the false positive rate the filter was sized for.
+ * 
+ * Urls can be added concurrently with lookups. Urls cannot be removed; a filter is rebuilt instead once it is too old
+ * or holds more urls than it was sized for.
+ */
+public class PageUriFilter {
+
+    protected static final int MIN_EXPECTED_URIS = 1000;
+
+    protected final AtomicLongArray bits;
+    protected final int numBits;
+    protected final int numHashes;
+    protected final int expectedUris;
+    protected final AtomicInteger size = new AtomicInteger();
+    protected final long created = System.currentTimeMillis();
+
+    /**
+     * @param uris the urls of all pages
+     * @param falsePositiveRate the rate of false positives the filter is sized for, given it holds at most twice as
+     * many urls as it is built with
+     */
+    public PageUriFilter(Collection<String> uris, double falsePositiveRate) {
+        expectedUris = Math.max(MIN_EXPECTED_URIS, uris.size() * 2);
+        double optimalBits = -expectedUris * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+        numBits = (int) Math.min(Integer.MAX_VALUE - 64, Math.ceil(optimalBits));
+        numHashes = Math.max(1, (int) Math.round((double) numBits / expectedUris * Math.log(2)));
+        bits = new AtomicLongArray((numBits + 63) / 64);
+        for (String uri : uris) {
+            add(uri);
+        }
+    }
+
+    public void add(String uri) {
+        if (uri == null) {
+            return;
+        }
+        long hash = hash(uri);
+        int hash1 = (int) hash;
+        int hash2 = (int) (hash >>> 32);
+        for (int i = 1; i <= numHashes; i++) {
+            int bit = ((hash1 + i * hash2) & Integer.MAX_VALUE) % numBits;
+            setBit(bit);
+        }
+        size.incrementAndGet();
+    }
+
+    /**
+     * @param uri
+     * @return false if there certainly is no page with the given url
+     */
+    public boolean mightContain(String uri) {
+        long hash = hash(uri);
+        int hash1 = (int) hash;
+        int hash2 = (int) (hash >>> 32);
+        for (int i = 1; i <= numHashes; i++) {
+            int bit = ((hash1 + i * hash2) & Integer.MAX_VALUE) % numBits;
+            if ((bits.get(bit >>> 6) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param maxAge the maximum age in milliseconds
+     * @return whether the filter is older than the given age or holds more urls than it was sized for
+     */
+    public boolean isStale(long maxAge) {
+        return System.currentTimeMillis() - created > maxAge || size.get() > expectedUris;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    protected void setBit(int bit) {
+        int index = bit >>> 6;
+        long mask = 1L << bit;
+        long current;
+        do {
+            current = bits.get(index);
+            if ((current & mask) != 0) {
+                return;
+            }
+        } while (!bits.compareAndSet(index, current, current | mask));
+    }
+
+    /**
+     * 64 bit FNV-1a hash of the characters of the url, finished with the MurmurHash3 mixing step so that both halves
+     * can serve as independent hashes
+     */
+    protected long hash(String uri) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < uri.length(); i++) {
+            hash ^= uri.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * #%L
+ * BroadleafCommerce CMS Module
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.cms.structure.service;
+
+import org.broadleafcommerce.common.structure.dto.StructuredContentDTO;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * All active content items of one {@link org.broadleafcommerce.cms.structure.domain.StructuredContentType} for a
+ * sandbox, site and locale, indexed by content name. Name lookups for a type are answered from this index so that a
+ * template listing many named items of the same type only needs the content of that type to be loaded once.
+ */
+public class StructuredContentIndex implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    protected final List<StructuredContentDTO> content;
+    protected final Map<String, List<StructuredContentDTO>> contentByName = new HashMap<String, List<StructuredContentDTO>>();
+
+    public StructuredContentIndex(List<StructuredContentDTO> content) {
+        this.content = Collections.unmodifiableList(new ArrayList<StructuredContentDTO>(content));
+        for (StructuredContentDTO dto : content) {
+            List<StructuredContentDTO> named = contentByName.get(dto.getContentName());
+            if (named == null) {
+                named = new ArrayList<StructuredContentDTO>();
+                contentByName.put(dto.getContentName(), named);
+            }
+            named.add(dto);
+        }
+    }
+
+    /**
+     * @return all content items of the type ordered by priority, as an unmodifiable list
+     */
+    public List<StructuredContentDTO> getContent() {
+        return content;
+    }
+
+    /**
+     * @param contentName
+     * @return a new list of the content items of the type with the given name, ordered by priority
+     */
+    public List<StructuredContentDTO> getContent(String contentName) {
+        List<StructuredContentDTO> named = contentByName.get(contentName);
+        if (named == null) {
+            return new ArrayList<StructuredContentDTO>();
+        }
+        return new ArrayList<StructuredContentDTO>(named);
+    }
+
+}
@@ -0,0 +1,77 @@
+/*
+ * #%L
+ * BroadleafCommerce CMS Module
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.cms.structure.service;
+
+import java.io.Serializable;
+
+/**
+ * A single request for content as made by one content tag, used to resolve several tags at once through
+ * {@link StructuredContentService#lookupStructuredContentItems(java.util.List, org.broadleafcommerce.common.locale.domain.Locale, java.util.Map, boolean)}.
+ * Either the content type or the content name may be null, but not both.
+ */
+public class StructuredContentLookup implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    protected String contentType;
+    protected String contentName;
+    protected int count;
+
+    public StructuredContentLookup(String contentType, String contentName, int count) {
+        this.contentType = contentType;
+        this.contentName = contentName;
+        this.count = count;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getContentName() {
+        return contentName;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return a key that is equal for lookups that return the same content
+     */
+    public String getKey() {
+        return contentType + "|" + contentName + "|" + count;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof StructuredContentLookup && getKey().equals(((StructuredContentLookup) obj).getKey());
+    }
+
+    @Override
+    public int hashCode() {
+        return getKey().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return getKey();
+    }
+
+}
@@ -185,6 +185,33 @@ public interface StructuredContentService {
      */
     List<StructuredContentDTO> lookupStructuredContentItemsByName(StructuredContentType contentType, String contentName, Locale locale, Integer count, Map<String,Object> ruleDTOs, boolean secure);
 
+    /**
+     * Returns the index of all active content items of the given type for the current sandbox and site, which is
+     * cached in production.
+     *
+     * @param contentType - the type of content to index
+     * @param locale - the current locale
+     * @param secure - set to true if the request is being served over https
+     * @return the content of the type, indexed by name
+     */
+    StructuredContentIndex lookupStructuredContentIndex(StructuredContentType contentType, Locale locale, boolean secure);
+
+    /**
+     * Resolves several content lookups in one pass, as done for all of the content tags of a template. The rules of
+     * every distinct content item are evaluated only once against the shared ruleDTOs, no matter how many of the
+     * lookups return it.
+     * <br>
+     * A lookup whose content type does not exist is resolved by its content name only, the same way the content
+     * tags fall back.
+     *
+     * @param lookups - the content to look up
+     * @param locale - the current locale
+     * @param ruleDTOs - a Map of objects that will be used in MVEL processing.
+     * @param secure - set to true if the request is being served over https
+     * @return the matching items for each of the lookups, in the order of the lookups
+     */
+    List<List<StructuredContentDTO>> lookupStructuredContentItems(List<StructuredContentLookup> lookups, Locale locale, Map<String,Object> ruleDTOs, boolean secure);
+
     Locale findLanguageOnlyLocale(Locale locale);
 
     List<StructuredContentDTO> buildStructuredContentDTOList(List<StructuredContent> structuredContentList, boolean secure);
@@ -37,6 +37,7 @@ import org.broadleafcommerce.cms.structure.domain.StructuredContentRule;
 import org.broadleafcommerce.cms.structure.domain.StructuredContentType;
 import org.broadleafcommerce.common.cache.CacheStatType;
 import org.broadleafcommerce.common.cache.StatisticsService;
+import org.broadleafcommerce.common.cache.TemplateElementCacheService;
 import org.broadleafcommerce.common.extensibility.jpa.SiteDiscriminator;
 import org.broadleafcommerce.common.extension.ExtensionResultHolder;
 import org.broadleafcommerce.common.file.service.StaticAssetPathService;
@@ -53,12 +54,14 @@ import org.broadleafcommerce.common.util.FormatUtil;
 import org.broadleafcommerce.common.web.BroadleafRequestContext;
 import org.hibernate.Criteria;
 import org.hibernate.criterion.Projections;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -75,6 +78,7 @@ public class StructuredContentServiceImpl implements StructuredContentService {
 
     protected static String AND = " && ";
     protected static final String FOREIGN_LOOKUP = "BLC_FOREIGN_LOOKUP";
+    protected static final String INDEX_KEY_SUFFIX = "-index";
 
     @Resource(name="blStructuredContentDao")
     protected StructuredContentDao structuredContentDao;
@@ -100,6 +104,15 @@ public class StructuredContentServiceImpl implements StructuredContentService {
     @Resource(name="blStatisticsService")
     protected StatisticsService statisticsService;
 
+    @Resource(name = "blTemplateElementCacheService")
+    protected TemplateElementCacheService templateElementCacheService;
+
+    /**
+     * Whether lookups of content by type and name are answered from an index of all content of the type
+     */
+    @Value("${structured.content.index.enabled:true}")
+    protected boolean contentIndexEnabled = true;
+
     protected Cache structuredContentCache;
 
     @Override
@@ -168,9 +181,19 @@ public class StructuredContentServiceImpl implements StructuredContentService {
 
     @Override
     public List<StructuredContentDTO> evaluateAndPriortizeContent(List<StructuredContentDTO> structuredContentList, int count, Map<String, Object> ruleDTOs) {
+        return evaluateAndPriortizeContent(structuredContentList, count, ruleDTOs, null);
+    }
+
+    /**
+     * @param ruleResults the outcome of the content rules by content id, shared between evaluations against the same
+     * ruleDTOs. Can be null.
+     * @see #evaluateAndPriortizeContent(List, int, Map)
+     */
+    protected List<StructuredContentDTO> evaluateAndPriortizeContent(List<StructuredContentDTO> structuredContentList, int count,
+            Map<String, Object> ruleDTOs, Map<Long, Boolean> ruleResults) {
         // some optimization for single item lists which don't require prioritization
         if (structuredContentList.size() == 1) {
-            if (processContentRules(structuredContentList.get(0), ruleDTOs)) {
+            if (processContentRules(structuredContentList.get(0), ruleDTOs, ruleResults)) {
                 return structuredContentList;
             } else {
                 return new ArrayList<StructuredContentDTO>();
@@ -206,12 +229,12 @@ public class StructuredContentServiceImpl implements StructuredContentService {
                 } else if (returnList.size() > count) {
                     return returnList.subList(0, count);
                 } else {
-                    if (processContentRules(sc, ruleDTOs)) {
+                    if (processContentRules(sc, ruleDTOs, ruleResults)) {
                         tmpList.add(sc);
                     }
                 }
             } else {
-                if (processContentRules(sc, ruleDTOs)) {
+                if (processContentRules(sc, ruleDTOs, ruleResults)) {
                     tmpList.add(sc);
                 }
             }
@@ -234,6 +257,70 @@ public class StructuredContentServiceImpl implements StructuredContentService {
     @Override
     public List<StructuredContentDTO> lookupStructuredContentItemsByType(StructuredContentType contentType, Locale locale,
                                                              Integer count, Map<String, Object> ruleDTOs, boolean secure) {
+        return evaluateAndPriortizeContent(findStructuredContentItemsByType(contentType, locale, secure), count, ruleDTOs);
+    }
+
+    @Override
+    public List<StructuredContentDTO> lookupStructuredContentItemsByName(StructuredContentType contentType,
+                                                            String contentName, org.broadleafcommerce.common.locale.domain.Locale locale,
+                                                            Integer count, Map<String, Object> ruleDTOs, boolean secure) {
+        return evaluateAndPriortizeContent(findStructuredContentItemsByName(contentType, contentName, locale, secure), count, ruleDTOs);
+    }
+
+    @Override
+    public List<List<StructuredContentDTO>> lookupStructuredContentItems(List<StructuredContentLookup> lookups, Locale locale,
+            Map<String, Object> ruleDTOs, boolean secure) {
+        Map<String, StructuredContentType> contentTypes = new HashMap<String, StructuredContentType>();
+        Map<Long, Boolean> ruleResults = new HashMap<Long, Boolean>();
+        List<List<StructuredContentDTO>> results = new ArrayList<List<StructuredContentDTO>>(lookups.size());
+        for (StructuredContentLookup lookup : lookups) {
+            StructuredContentType contentType = null;
+            if (lookup.getContentType() != null) {
+                if (!contentTypes.containsKey(lookup.getContentType())) {
+                    contentTypes.put(lookup.getContentType(), findStructuredContentTypeByName(lookup.getContentType()));
+                }
+                contentType = contentTypes.get(lookup.getContentType());
+            }
+
+            List<StructuredContentDTO> contentDTOList;
+            if (contentType == null) {
+                contentDTOList = findStructuredContentItemsByName(lookup.getContentName(), locale, secure);
+            } else if (StringUtils.isEmpty(lookup.getContentName())) {
+                contentDTOList = findStructuredContentItemsByType(contentType, locale, secure);
+            } else {
+                contentDTOList = findStructuredContentItemsByName(contentType, lookup.getContentName(), locale, secure);
+            }
+            results.add(evaluateAndPriortizeContent(contentDTOList, lookup.getCount(), ruleDTOs, ruleResults));
+        }
+        return results;
+    }
+
+    @Override
+    public StructuredContentIndex lookupStructuredContentIndex(StructuredContentType contentType, Locale locale, boolean secure) {
+        StructuredContentIndex index = null;
+        Locale languageOnlyLocale = findLanguageOnlyLocale(locale);
+        BroadleafRequestContext context = BroadleafRequestContext.getBroadleafRequestContext();
+        Long site = context.getSite() == null?null:context.getSite().getId();
+        String cacheKey = buildTypeKey(context.getSandBox(), site, languageOnlyLocale, contentType.getName());
+        cacheKey = cacheKey + "-" + secure + INDEX_KEY_SUFFIX;
+        if (context.isProductionSandBox()) {
+            Element indexElement = getStructuredContentCache().get(cacheKey);
+            if (indexElement != null) {
+                statisticsService.addCacheStat(CacheStatType.STRUCTURED_CONTENT_CACHE_HIT_RATE.toString(), true);
+                return (StructuredContentIndex) indexElement.getObjectValue();
+            }
+        }
+        index = new StructuredContentIndex(findStructuredContentItemsByType(contentType, locale, secure));
+        if (context.isProductionSandBox()) {
+            getStructuredContentCache().put(new Element(cacheKey, index));
+        }
+        return index;
+    }
+
+    /**
+     * Returns the active content of the given type, ordered by priority, without evaluating any rules
+     */
+    protected List<StructuredContentDTO> findStructuredContentItemsByType(StructuredContentType contentType, Locale locale, boolean secure) {
         List<StructuredContentDTO> contentDTOList = null;
         Locale languageOnlyLocale = findLanguageOnlyLocale(locale);
         BroadleafRequestContext context = BroadleafRequestContext.getBroadleafRequestContext();
@@ -251,17 +338,21 @@ public class StructuredContentServiceImpl implements StructuredContentService {
                 addStructuredContentListToCache(cacheKey, contentDTOList);
             }
         }
-
-        return evaluateAndPriortizeContent(contentDTOList, count, ruleDTOs);
+        return contentDTOList;
     }
 
-    @Override
-    public List<StructuredContentDTO> lookupStructuredContentItemsByName(StructuredContentType contentType,
-                                                            String contentName, org.broadleafcommerce.common.locale.domain.Locale locale,
-                                                            Integer count, Map<String, Object> ruleDTOs, boolean secure) {
+    /**
+     * Returns the active content of the given type and name, ordered by priority, without evaluating any rules. In
+     * production this is answered from the {@link StructuredContentIndex} of the type when the index is enabled.
+     */
+    protected List<StructuredContentDTO> findStructuredContentItemsByName(StructuredContentType contentType, String contentName,
+            Locale locale, boolean secure) {
+        BroadleafRequestContext context = BroadleafRequestContext.getBroadleafRequestContext();
+        if (contentIndexEnabled && context.isProductionSandBox()) {
+            return lookupStructuredContentIndex(contentType, locale, secure).getContent(contentName);
+        }
         List<StructuredContentDTO> contentDTOList = null;
         Locale languageOnlyLocale = findLanguageOnlyLocale(locale);
-        BroadleafRequestContext context = BroadleafRequestContext.getBroadleafRequestContext();
         Long site = context.getSite() == null?null:context.getSite().getId();
         String cacheKey = buildNameKey(context.getSandBox(), site, languageOnlyLocale, contentType.getName(), contentName);
         cacheKey = cacheKey+"-"+secure;
@@ -276,8 +367,30 @@ public class StructuredContentServiceImpl implements StructuredContentService {
                 addStructuredContentListToCache(cacheKey, contentDTOList);
             }
         }
+        return contentDTOList;
+    }
 
-        return evaluateAndPriortizeContent(contentDTOList, count, ruleDTOs);
+    /**
+     * Returns the active content of any type with the given name, ordered by priority, without evaluating any rules
+     */
+    protected List<StructuredContentDTO> findStructuredContentItemsByName(String contentName, Locale locale, boolean secure) {
+        List<StructuredContentDTO> contentDTOList = null;
+        Locale languageOnlyLocale = findLanguageOnlyLocale(locale);
+        BroadleafRequestContext context = BroadleafRequestContext.getBroadleafRequestContext();
+        Long site = context.getSite() == null?null:context.getSite().getId();
+        String cacheKey = buildNameKey(context.getSandBox(), site, languageOnlyLocale, "any", contentName);
+        cacheKey = cacheKey+"-"+secure;
+        if (context.isProductionSandBox()) {
+            contentDTOList = getStructuredContentListFromCache(cacheKey);
+        }
+        if (contentDTOList == null) {
+            List<StructuredContent> productionContentList = structuredContentDao.findActiveStructuredContentByName(contentName, locale, languageOnlyLocale);
+            contentDTOList = buildStructuredContentDTOList(productionContentList, secure);
+            if (context.isProductionSandBox()) {
+                addStructuredContentListToCache(cacheKey, contentDTOList);
+            }
+        }
+        return contentDTOList;
     }
     
     @Override
@@ -309,24 +422,7 @@ public class StructuredContentServiceImpl implements StructuredContentService {
     public List<StructuredContentDTO> lookupStructuredContentItemsByName(String contentName,
                                                              org.broadleafcommerce.common.locale.domain.Locale locale,
                                                              Integer count, Map<String, Object> ruleDTOs, boolean secure) {
-        List<StructuredContentDTO> contentDTOList = null;
-        Locale languageOnlyLocale = findLanguageOnlyLocale(locale);
-        BroadleafRequestContext context = BroadleafRequestContext.getBroadleafRequestContext();
-        Long site = context.getSite() == null?null:context.getSite().getId();
-        String cacheKey = buildNameKey(context.getSandBox(), site, languageOnlyLocale, "any", contentName);
-        cacheKey = cacheKey+"-"+secure;
-        if (context.isProductionSandBox()) {
-            contentDTOList = getStructuredContentListFromCache(cacheKey);
-        }
-        if (contentDTOList == null) {
-            List<StructuredContent> productionContentList = structuredContentDao.findActiveStructuredContentByName(contentName, locale, languageOnlyLocale);
-            contentDTOList = buildStructuredContentDTOList(productionContentList, secure);
-            if (context.isProductionSandBox()) {
-                addStructuredContentListToCache(cacheKey, contentDTOList);
-            }
-        }
-
-        return evaluateAndPriortizeContent(contentDTOList, count, ruleDTOs);
+        return evaluateAndPriortizeContent(findStructuredContentItemsByName(contentName, locale, secure), count, ruleDTOs);
     }
 
     public List<RuleProcessor<StructuredContentDTO>> getContentRuleProcessors() {
@@ -346,6 +442,23 @@ public class StructuredContentServiceImpl implements StructuredContentService {
         // Remove secure and non-secure instances of the page.
         // Typically the page will be in one or the other if at all.
         removeItemFromCache(buildNameKey(sandBox, sc), buildTypeKey(sandBox, sc));
+        invalidateStructuredContentTemplateCache(sc);
+    }
+
+    /**
+     * Evicts the cached template fragments that were rendered from the given content item or that list content of
+     * its type.
+     * 
+     * @param sc
+     */
+    protected void invalidateStructuredContentTemplateCache(StructuredContent sc) {
+        if (sc != null) {
+            templateElementCacheService.invalidateDependency(TemplateElementCacheService.STRUCTURED_CONTENT, sc.getId());
+            if (sc.getStructuredContentType() != null) {
+                templateElementCacheService.invalidateDependency(TemplateElementCacheService.STRUCTURED_CONTENT_TYPE,
+                        sc.getStructuredContentType().getName());
+            }
+        }
     }
 
     @Override
@@ -385,6 +498,8 @@ public class StructuredContentServiceImpl implements StructuredContentService {
         if (!StringUtils.isEmpty(typeKey)) {
             getStructuredContentCache().remove(typeKey+"-"+true);
             getStructuredContentCache().remove(typeKey+"-"+false);
+            getStructuredContentCache().remove(typeKey+"-"+true+INDEX_KEY_SUFFIX);
+            getStructuredContentCache().remove(typeKey+"-"+false+INDEX_KEY_SUFFIX);
         }
     }
 
@@ -545,6 +660,24 @@ public class StructuredContentServiceImpl implements StructuredContentService {
         
     }
 
+    /**
+     * Same as {@link #processContentRules(StructuredContentDTO, Map)}, but reuses the outcome for content that was
+     * already checked against the same ruleDTOs
+     * 
+     * @param ruleResults the outcome of the content rules by content id. Can be null.
+     */
+    protected boolean processContentRules(StructuredContentDTO sc, Map<String, Object> ruleDTOs, Map<Long, Boolean> ruleResults) {
+        if (ruleResults == null || sc.getId() == null) {
+            return processContentRules(sc, ruleDTOs);
+        }
+        Boolean result = ruleResults.get(sc.getId());
+        if (result == null) {
+            result = processContentRules(sc, ruleDTOs);
+            ruleResults.put(sc.getId(), result);
+        }
+        return result;
+    }
+
     protected boolean processContentRules(StructuredContentDTO sc, Map<String, Object> ruleDTOs) {
         if (contentRuleProcessors != null) {
             for (RuleProcessor<StructuredContentDTO> processor : contentRuleProcessors) {
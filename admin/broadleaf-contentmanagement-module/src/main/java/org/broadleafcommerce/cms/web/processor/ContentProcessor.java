@@ -26,6 +26,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.broadleafcommerce.cms.file.service.StaticAssetService;
 import org.broadleafcommerce.cms.structure.domain.StructuredContentType;
+import org.broadleafcommerce.cms.structure.service.StructuredContentLookup;
 import org.broadleafcommerce.cms.structure.service.StructuredContentService;
 import org.broadleafcommerce.cms.web.deeplink.ContentDeepLinkServiceImpl;
 import org.broadleafcommerce.common.RequestDTO;
@@ -37,9 +38,12 @@ import org.broadleafcommerce.common.time.SystemTime;
 import org.broadleafcommerce.common.web.BroadleafRequestContext;
 import org.broadleafcommerce.common.web.deeplink.DeepLink;
 import org.broadleafcommerce.common.web.dialect.AbstractModelVariableModifierProcessor;
+import org.springframework.beans.factory.annotation.Value;
 import org.thymeleaf.Arguments;
 import org.thymeleaf.context.IWebContext;
 import org.thymeleaf.dom.Element;
+import org.thymeleaf.dom.NestableNode;
+import org.thymeleaf.dom.Node;
 import org.thymeleaf.standard.expression.Assignation;
 import org.thymeleaf.standard.expression.AssignationSequence;
 import org.thymeleaf.standard.expression.AssignationUtils;
@@ -53,8 +57,10 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TimeZone;
 
 import javax.annotation.Resource;
@@ -103,6 +109,8 @@ public class ContentProcessor extends AbstractModelVariableModifierProcessor {
     protected final Log LOG = LogFactory.getLog(getClass());
     public static final String REQUEST_DTO = "blRequestDTO";
     public static final String BLC_RULE_MAP_PARAM = "blRuleMap";
+    protected static final String CONTENT_BATCH_ATTRIBUTE = "blContentProcessorBatch";
+    protected static final String SHARED_MVEL_PARAMETERS_ATTRIBUTE = "blContentProcessorMvelParameters";
     
     @Resource(name = "blStructuredContentService")
     protected StructuredContentService structuredContentService;
@@ -115,6 +123,12 @@ public class ContentProcessor extends AbstractModelVariableModifierProcessor {
     
     @Resource(name = "blContentDeepLinkService")
     protected ContentDeepLinkServiceImpl contentDeepLinkService;
+
+    /**
+     * Whether the content tags of a template are resolved together, sharing their rule variables
+     */
+    @Value("${content.processor.batch.enabled:true}")
+    protected boolean batchLookupsEnabled = true;
     
     /**
      * Sets the name of this processor to be used in Thymeleaf template
@@ -157,13 +171,7 @@ public class ContentProcessor extends AbstractModelVariableModifierProcessor {
             throw new IllegalArgumentException("The content processor must have a non-empty attribute value for 'contentType' or 'contentName'");
         }
 
-        Integer maxResults = null;
-        if (maxResultsStr != null) {
-            maxResults = Ints.tryParse(maxResultsStr);
-        }
-        if (maxResults == null) {
-            maxResults = Integer.MAX_VALUE;
-        }
+        Integer maxResults = parseMaxResults(maxResultsStr);
         
         String contentListVar = getAttributeValue(element, "contentListVar", "contentList");
         String contentItemVar = getAttributeValue(element, "contentItemVar", "contentItem");
@@ -176,7 +184,12 @@ public class ContentProcessor extends AbstractModelVariableModifierProcessor {
         HttpServletRequest request = context.getHttpServletRequest();   
         BroadleafRequestContext blcContext = BroadleafRequestContext.getBroadleafRequestContext();
         
-        Map<String, Object> mvelParameters = buildMvelParameters(request, arguments, element);
+        Map<String, Object> mvelParameters;
+        if (isBatchable(element)) {
+            mvelParameters = getSharedMvelParameters(request, arguments, element);
+        } else {
+            mvelParameters = buildMvelParameters(request, arguments, element);
+        }
         SandBox currentSandbox = blcContext.getSandBox();
 
         List<StructuredContentDTO> contentItems;
@@ -281,7 +294,10 @@ public class ContentProcessor extends AbstractModelVariableModifierProcessor {
             StructuredContentType structuredContentType,
             Locale locale, Arguments arguments, Element element) {
         List<StructuredContentDTO> contentItems;
-        if (structuredContentType == null) {
+        if (isBatchable(element)) {
+            contentItems = getBatchedContentItems(element.getAttributeValue("contentType"), contentName, maxResults, request,
+                    mvelParameters, locale, arguments, element);
+        } else if (structuredContentType == null) {
             contentItems = structuredContentService.lookupStructuredContentItemsByName(contentName, locale, maxResults, mvelParameters, isSecure(request));
         } else {
             if (contentName == null || "".equals(contentName)) {
@@ -297,6 +313,103 @@ public class ContentProcessor extends AbstractModelVariableModifierProcessor {
         return contentItems;
     }
     
+    /**
+     * Returns the content for a tag from the content resolved for all of the content tags of the template. The first
+     * tag of a template that is processed resolves the content of every batchable content tag in the template at once,
+     * evaluating the rules of each content item only once, and the following tags then pick their content from the
+     * request.
+     * 
+     * @param contentType the name of the content type, can be null
+     * @param contentName the name of the content, can be null
+     * @return a new list of the matching content
+     */
+    @SuppressWarnings("unchecked")
+    protected List<StructuredContentDTO> getBatchedContentItems(String contentType, String contentName, Integer maxResults,
+            HttpServletRequest request, Map<String, Object> mvelParameters, Locale locale, Arguments arguments, Element element) {
+        Map<String, List<StructuredContentDTO>> resolved = (Map<String, List<StructuredContentDTO>>) request.getAttribute(CONTENT_BATCH_ATTRIBUTE);
+        if (resolved == null) {
+            resolved = new HashMap<String, List<StructuredContentDTO>>();
+            request.setAttribute(CONTENT_BATCH_ATTRIBUTE, resolved);
+        }
+
+        StructuredContentLookup lookup = new StructuredContentLookup(StringUtils.trimToNull(contentType),
+                StringUtils.trimToNull(contentName), maxResults);
+        if (!resolved.containsKey(lookup.getKey())) {
+            Set<StructuredContentLookup> lookups = new LinkedHashSet<StructuredContentLookup>();
+            lookups.add(lookup);
+            if (arguments.getDocument() != null) {
+                collectContentLookups(arguments.getDocument(), element.getNormalizedName(), resolved, lookups);
+            }
+            List<StructuredContentLookup> lookupList = new ArrayList<StructuredContentLookup>(lookups);
+            List<List<StructuredContentDTO>> results = structuredContentService.lookupStructuredContentItems(lookupList, locale,
+                    mvelParameters, isSecure(request));
+            for (int i = 0; i < lookupList.size(); i++) {
+                resolved.put(lookupList.get(i).getKey(), results.get(i));
+            }
+        }
+
+        // Tags may sort the list they receive, so they each get their own copy
+        return new ArrayList<StructuredContentDTO>(resolved.get(lookup.getKey()));
+    }
+
+    /**
+     * Walks the template for the content tags that have not been resolved yet in this request
+     */
+    protected void collectContentLookups(NestableNode node, String elementName, Map<String, List<StructuredContentDTO>> resolved,
+            Set<StructuredContentLookup> lookups) {
+        for (Node child : node.getChildren()) {
+            if (child instanceof Element) {
+                Element childElement = (Element) child;
+                if (elementName.equals(childElement.getNormalizedName()) && isBatchable(childElement)) {
+                    String contentType = StringUtils.trimToNull(childElement.getAttributeValue("contentType"));
+                    String contentName = StringUtils.trimToNull(childElement.getAttributeValue("contentName"));
+                    if (contentType != null || contentName != null) {
+                        StructuredContentLookup lookup = new StructuredContentLookup(contentType, contentName,
+                                parseMaxResults(childElement.getAttributeValue("maxResults")));
+                        if (!resolved.containsKey(lookup.getKey())) {
+                            lookups.add(lookup);
+                        }
+                    }
+                }
+            }
+            if (child instanceof NestableNode) {
+                collectContentLookups((NestableNode) child, elementName, resolved, lookups);
+            }
+        }
+    }
+
+    /**
+     * Tags that target a product or category evaluate their rules against their own variables, so they are resolved
+     * one at a time. All other tags of a request share the same rule variables and can be resolved together.
+     */
+    protected boolean isBatchable(Element element) {
+        return batchLookupsEnabled && !element.hasAttribute("product") && !element.hasAttribute("category");
+    }
+
+    /**
+     * Builds the MVEL parameters for tags that do not target a product or category once per request
+     */
+    @SuppressWarnings("unchecked")
+    protected Map<String, Object> getSharedMvelParameters(HttpServletRequest request, Arguments arguments, Element element) {
+        Map<String, Object> mvelParameters = (Map<String, Object>) request.getAttribute(SHARED_MVEL_PARAMETERS_ATTRIBUTE);
+        if (mvelParameters == null) {
+            mvelParameters = buildMvelParameters(request, arguments, element);
+            request.setAttribute(SHARED_MVEL_PARAMETERS_ATTRIBUTE, mvelParameters);
+        }
+        return mvelParameters;
+    }
+
+    protected Integer parseMaxResults(String maxResultsStr) {
+        Integer maxResults = null;
+        if (maxResultsStr != null) {
+            maxResults = Ints.tryParse(maxResultsStr);
+        }
+        if (maxResults == null) {
+            maxResults = Integer.MAX_VALUE;
+        }
+        return maxResults;
+    }
+
     /**
      * MVEL is used to process the content targeting rules.
      *
@@ -0,0 +1,64 @@
+/*
+ * #%L
+ * BroadleafCommerce CMS Module
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.cms.page.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class PageUriFilterTest extends TestCase {
+
+    public void testContainsAllUris() {
+        List<String> uris = new ArrayList<String>();
+        for (int i = 0; i < 5000; i++) {
+            uris.add("/page/" + i);
+        }
+        PageUriFilter filter = new PageUriFilter(uris, 0.01);
+        for (String uri : uris) {
+            assertTrue(filter.mightContain(uri));
+        }
+    }
+
+    public void testFalsePositiveRate() {
+        List<String> uris = new ArrayList<String>();
+        for (int i = 0; i < 5000; i++) {
+            uris.add("/page/" + i);
+        }
+        PageUriFilter filter = new PageUriFilter(uris, 0.01);
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (filter.mightContain("/missing/" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 200);
+    }
+
+    public void testAddedUri() {
+        PageUriFilter filter = new PageUriFilter(Arrays.asList("/about"), 0.01);
+        assertFalse(filter.mightContain("/contact"));
+        filter.add("/contact");
+        assertTrue(filter.mightContain("/contact"));
+        assertFalse(filter.isStale(60000));
+    }
+
+}
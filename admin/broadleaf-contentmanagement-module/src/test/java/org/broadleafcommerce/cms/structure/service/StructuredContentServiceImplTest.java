@@ -0,0 +1,299 @@
+/*
+ * #%L
+ * BroadleafCommerce CMS Module
+ * %%
+ * Copyright (C) 2009 - 2013 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.cms.structure.service;
+
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Element;
+
+import org.broadleafcommerce.cms.structure.dao.StructuredContentDao;
+import org.broadleafcommerce.cms.structure.domain.StructuredContent;
+import org.broadleafcommerce.cms.structure.domain.StructuredContentImpl;
+import org.broadleafcommerce.cms.structure.domain.StructuredContentRule;
+import org.broadleafcommerce.cms.structure.domain.StructuredContentRuleImpl;
+import org.broadleafcommerce.cms.structure.domain.StructuredContentType;
+import org.broadleafcommerce.cms.structure.domain.StructuredContentTypeImpl;
+import org.broadleafcommerce.common.cache.StatisticsService;
+import org.broadleafcommerce.common.cache.TemplateElementCacheService;
+import org.broadleafcommerce.common.locale.domain.Locale;
+import org.broadleafcommerce.common.rule.RuleProcessor;
+import org.broadleafcommerce.common.sandbox.domain.SandBox;
+import org.broadleafcommerce.common.sandbox.domain.SandBoxImpl;
+import org.broadleafcommerce.common.sandbox.domain.SandBoxType;
+import org.broadleafcommerce.common.structure.dto.StructuredContentDTO;
+import org.broadleafcommerce.common.web.BroadleafRequestContext;
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+public class StructuredContentServiceImplTest extends TestCase {
+
+    protected StructuredContentServiceImpl service;
+    protected StructuredContentDao structuredContentDao;
+    protected StructuredContentType bannerType;
+    protected StructuredContentType messageType;
+    protected List<StructuredContent> allContent = new ArrayList<StructuredContent>();
+    protected Map<Long, Integer> ruleEvaluations = new HashMap<Long, Integer>();
+    protected int typeQueries;
+    protected int nameQueries;
+
+    @Override
+    protected void setUp() throws Exception {
+        BroadleafRequestContext.setBroadleafRequestContext(new BroadleafRequestContext());
+
+        bannerType = buildType(1L, "Banner");
+        messageType = buildType(2L, "Message");
+        // content is ordered by priority, as the dao returns it
+        allContent.add(buildContent(1L, bannerType, "home", 1, null));
+        allContent.add(buildContent(2L, bannerType, "home", 2, "vip"));
+        allContent.add(buildContent(3L, bannerType, "sale", 3, null));
+        allContent.add(buildContent(4L, bannerType, "home", 4, "guest"));
+        allContent.add(buildContent(5L, messageType, "home", 5, null));
+
+        structuredContentDao = EasyMock.createNiceMock(StructuredContentDao.class);
+        EasyMock.expect(structuredContentDao.findActiveStructuredContentByType((StructuredContentType) EasyMock.anyObject(),
+                (Locale) EasyMock.anyObject(), (Locale) EasyMock.anyObject())).andAnswer(new IAnswer<List<StructuredContent>>() {
+            @Override
+            public List<StructuredContent> answer() throws Throwable {
+                typeQueries++;
+                return findContent((StructuredContentType) EasyMock.getCurrentArguments()[0], null);
+            }
+        }).anyTimes();
+        EasyMock.expect(structuredContentDao.findActiveStructuredContentByNameAndType((StructuredContentType) EasyMock.anyObject(),
+                (String) EasyMock.anyObject(), (Locale) EasyMock.anyObject(), (Locale) EasyMock.anyObject()))
+                .andAnswer(new IAnswer<List<StructuredContent>>() {
+            @Override
+            public List<StructuredContent> answer() throws Throwable {
+                nameQueries++;
+                return findContent((StructuredContentType) EasyMock.getCurrentArguments()[0],
+                        (String) EasyMock.getCurrentArguments()[1]);
+            }
+        }).anyTimes();
+        EasyMock.expect(structuredContentDao.findStructuredContentTypeByName("Banner")).andReturn(bannerType).anyTimes();
+        EasyMock.expect(structuredContentDao.findStructuredContentTypeByName("Message")).andReturn(messageType).anyTimes();
+        EasyMock.replay(structuredContentDao);
+
+        service = new StructuredContentServiceImpl() {
+            @Override
+            public StructuredContentDTO buildStructuredContentDTO(StructuredContent sc, boolean secure) {
+                StructuredContentDTO dto = new StructuredContentDTO();
+                dto.setId(sc.getId());
+                dto.setContentName(sc.getContentName());
+                dto.setContentType(sc.getStructuredContentType().getName());
+                dto.setPriority(sc.getPriority());
+                dto.setRuleExpression(buildRuleExpression(sc));
+                return dto;
+            }
+        };
+        service.structuredContentDao = structuredContentDao;
+        service.extensionManager = new StructuredContentServiceExtensionManager();
+        service.statisticsService = EasyMock.createNiceMock(StatisticsService.class);
+        service.templateElementCacheService = EasyMock.createNiceMock(TemplateElementCacheService.class);
+        Cache cache = new Cache("testStructuredContentElements", 100, false, false, 0, 0);
+        CacheManager.create().addCache(cache);
+        service.structuredContentCache = cache;
+        service.setContentRuleProcessors(Arrays.<RuleProcessor<StructuredContentDTO>>asList(new SegmentRuleProcessor()));
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        CacheManager.create().removeCache("testStructuredContentElements");
+        BroadleafRequestContext.setBroadleafRequestContext(null);
+    }
+
+    /**
+     * The index holds all content of the type in priority order and groups it by name
+     */
+    public void testIndexGroupsContentByName() {
+        StructuredContentIndex index = service.lookupStructuredContentIndex(bannerType, null, false);
+
+        assertEquals(Arrays.asList(1L, 2L, 3L, 4L), ids(index.getContent()));
+        assertEquals(Arrays.asList(1L, 2L, 4L), ids(index.getContent("home")));
+        assertEquals(Arrays.asList(3L), ids(index.getContent("sale")));
+        assertTrue(index.getContent("footer").isEmpty());
+
+        // callers may sort or trim what they get back without changing the index
+        index.getContent("home").clear();
+        assertEquals(3, index.getContent("home").size());
+    }
+
+    /**
+     * Lookups by name of the same type are answered from one query for the type, and the rules still apply
+     */
+    public void testLookupByNameUsesIndex() {
+        Map<String, Object> vip = Collections.<String, Object>singletonMap("segment", "vip");
+        Map<String, Object> guest = Collections.<String, Object>singletonMap("segment", "guest");
+
+        assertEquals(Arrays.asList(1L, 2L), ids(service.lookupStructuredContentItemsByName(bannerType, "home", null, 10, vip, false)));
+        assertEquals(Arrays.asList(1L, 4L), ids(service.lookupStructuredContentItemsByName(bannerType, "home", null, 10, guest, false)));
+        assertEquals(Arrays.asList(3L), ids(service.lookupStructuredContentItemsByName(bannerType, "sale", null, 10, vip, false)));
+        assertEquals(Arrays.asList(1L), ids(service.lookupStructuredContentItemsByName(bannerType, "home", null, 1, vip, false)));
+
+        assertEquals(1, typeQueries);
+        assertEquals(0, nameQueries);
+    }
+
+    /**
+     * Lookups by name return the same content with and without the index
+     */
+    public void testLookupByNameWithoutIndex() {
+        Map<String, Object> vip = Collections.<String, Object>singletonMap("segment", "vip");
+        List<StructuredContentDTO> indexed = service.lookupStructuredContentItemsByName(bannerType, "home", null, 10, vip, false);
+
+        service.contentIndexEnabled = false;
+        List<StructuredContentDTO> queried = service.lookupStructuredContentItemsByName(bannerType, "home", null, 10, vip, false);
+
+        assertEquals(ids(queried), ids(indexed));
+        assertEquals(1, nameQueries);
+    }
+
+    /**
+     * A batch of lookups returns the same content as looking up each tag on its own, and evaluates the rules of each
+     * content item once
+     */
+    public void testBatchedLookupMatchesSingleLookups() {
+        Map<String, Object> vip = Collections.<String, Object>singletonMap("segment", "vip");
+        List<StructuredContentLookup> lookups = Arrays.asList(
+                new StructuredContentLookup("Banner", "home", 10),
+                new StructuredContentLookup("Banner", "home", 1),
+                new StructuredContentLookup("Banner", "sale", 10),
+                new StructuredContentLookup("Banner", null, 10),
+                new StructuredContentLookup("Message", "home", 10));
+
+        List<List<Long>> single = new ArrayList<List<Long>>();
+        single.add(ids(service.lookupStructuredContentItemsByName(bannerType, "home", null, 10, vip, false)));
+        single.add(ids(service.lookupStructuredContentItemsByName(bannerType, "home", null, 1, vip, false)));
+        single.add(ids(service.lookupStructuredContentItemsByName(bannerType, "sale", null, 10, vip, false)));
+        single.add(ids(service.lookupStructuredContentItemsByType(bannerType, null, 10, vip, false)));
+        single.add(ids(service.lookupStructuredContentItemsByName(messageType, "home", null, 10, vip, false)));
+
+        ruleEvaluations.clear();
+        List<List<StructuredContentDTO>> batched = service.lookupStructuredContentItems(lookups, null, vip, false);
+
+        assertEquals(lookups.size(), batched.size());
+        for (int i = 0; i < lookups.size(); i++) {
+            assertEquals(lookups.get(i).toString(), single.get(i), ids(batched.get(i)));
+        }
+        for (Map.Entry<Long, Integer> evaluations : ruleEvaluations.entrySet()) {
+            assertEquals("Rules of content " + evaluations.getKey() + " should be evaluated once", Integer.valueOf(1),
+                    evaluations.getValue());
+        }
+    }
+
+    /**
+     * Publishing a content item evicts the index of its type, so the next lookup sees the change
+     */
+    public void testRemovingContentFromCacheEvictsIndex() {
+        Map<String, Object> vip = Collections.<String, Object>singletonMap("segment", "vip");
+        assertEquals(Arrays.asList(3L), ids(service.lookupStructuredContentItemsByName(bannerType, "sale", null, 10, vip, false)));
+        String indexKey = service.buildTypeKey(null, null, null, "Banner") + "-false" + StructuredContentServiceImpl.INDEX_KEY_SUFFIX;
+        assertNotNull(service.getStructuredContentCache().get(indexKey));
+
+        StructuredContent published = buildContent(6L, bannerType, "sale", 6, null);
+        allContent.add(published);
+        // still answered from the cached index
+        assertEquals(Arrays.asList(3L), ids(service.lookupStructuredContentItemsByName(bannerType, "sale", null, 10, vip, false)));
+
+        service.removeStructuredContentFromCache(null, published);
+
+        assertNull(service.getStructuredContentCache().get(indexKey));
+        assertEquals(Arrays.asList(3L, 6L), ids(service.lookupStructuredContentItemsByName(bannerType, "sale", null, 10, vip, false)));
+        assertEquals(2, typeQueries);
+    }
+
+    /**
+     * The index is only cached for production, other sandboxes query the type every time
+     */
+    public void testIndexIsNotCachedOutsideProduction() {
+        service.getStructuredContentCache().put(new Element("unrelated", "value"));
+        SandBox sandBox = new SandBoxImpl();
+        sandBox.setId(10L);
+        sandBox.setSandBoxType(SandBoxType.USER);
+        BroadleafRequestContext.getBroadleafRequestContext().setSandBox(sandBox);
+
+        service.lookupStructuredContentIndex(bannerType, null, false);
+        service.lookupStructuredContentIndex(bannerType, null, false);
+
+        assertEquals(2, typeQueries);
+        assertEquals(1, service.getStructuredContentCache().getSize());
+    }
+
+    protected List<StructuredContent> findContent(StructuredContentType type, String name) {
+        List<StructuredContent> content = new ArrayList<StructuredContent>();
+        for (StructuredContent sc : allContent) {
+            if (sc.getStructuredContentType() == type && (name == null || name.equals(sc.getContentName()))) {
+                content.add(sc);
+            }
+        }
+        return content;
+    }
+
+    protected StructuredContentType buildType(Long id, String name) {
+        StructuredContentType type = new StructuredContentTypeImpl();
+        type.setId(id);
+        type.setName(name);
+        return type;
+    }
+
+    protected StructuredContent buildContent(Long id, StructuredContentType type, String name, int priority, String segment) {
+        StructuredContent sc = new StructuredContentImpl();
+        sc.setId(id);
+        sc.setStructuredContentType(type);
+        sc.setContentName(name);
+        sc.setPriority(priority);
+        if (segment != null) {
+            StructuredContentRule rule = new StructuredContentRuleImpl();
+            rule.setMatchRule(segment);
+            sc.getStructuredContentMatchRules().put("CUSTOMER", rule);
+        }
+        return sc;
+    }
+
+    protected List<Long> ids(List<StructuredContentDTO> content) {
+        List<Long> ids = new ArrayList<Long>();
+        for (StructuredContentDTO dto : content) {
+            ids.add(dto.getId());
+        }
+        return ids;
+    }
+
+    /**
+     * Matches content without a rule, and content whose rule is the "segment" rule variable
+     */
+    protected class SegmentRuleProcessor implements RuleProcessor<StructuredContentDTO> {
+
+        @Override
+        public boolean checkForMatch(StructuredContentDTO sc, Map<String, Object> valueMap) {
+            Integer evaluations = ruleEvaluations.get(sc.getId());
+            ruleEvaluations.put(sc.getId(), evaluations == null ? 1 : evaluations + 1);
+            return sc.getRuleExpression() == null || sc.getRuleExpression().equals(valueMap.get("segment"));
+        }
+
+    }
+
+}
@@ -21,6 +21,7 @@
 package org.broadleafcommerce.openadmin.dto;
 
 import org.broadleafcommerce.openadmin.server.service.persistence.module.criteria.FilterMapping;
+import org.broadleafcommerce.openadmin.server.service.persistence.module.criteria.KeysetPosition;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -44,6 +45,11 @@ public class CriteriaTransferObject {
     private List<FilterMapping> additionalFilterMappings = new ArrayList<FilterMapping>();
     private List<FilterMapping> nonCountAdditionalFilterMappings = new ArrayList<FilterMapping>();
 
+    private Boolean keysetPaging;
+    private KeysetPosition keysetPosition;
+    private KeysetPosition nextKeysetPosition;
+    private boolean totalCountRequired = true;
+
     /**
      * The index of records in the database for which a fetch will start.
      *
@@ -80,6 +86,80 @@ public class CriteriaTransferObject {
         this.maxResults = maxResults;
     }
 
+    /**
+     * Whether the fetch should seek to the start of its page using the position recorded by the fetch of the previous
+     * page, rather than skipping over the preceding records.
+     *
+     * @return whether to use keyset paging, or null to use the configured default
+     */
+    public Boolean getKeysetPaging() {
+        return keysetPaging;
+    }
+
+    /**
+     * Whether the fetch should seek to the start of its page using the position recorded by the fetch of the previous
+     * page, rather than skipping over the preceding records.
+     *
+     * @param keysetPaging whether to use keyset paging, or null to use the configured default
+     */
+    public void setKeysetPaging(Boolean keysetPaging) {
+        this.keysetPaging = keysetPaging;
+    }
+
+    /**
+     * The position the fetch should seek to when it uses keyset paging. When this is set, the positions recorded for
+     * the list grid are neither used nor updated; the position after the fetched page is returned through
+     * {@link #getNextKeysetPosition()} instead, so that callers reading many pages can keep track of it themselves.
+     *
+     * @return the position to seek to, or null to use the position recorded by the fetch of the previous page
+     */
+    public KeysetPosition getKeysetPosition() {
+        return keysetPosition;
+    }
+
+    /**
+     * @param keysetPosition the position to seek to, or null to use the position recorded by the fetch of the
+     * previous page
+     * @see #getKeysetPosition()
+     */
+    public void setKeysetPosition(KeysetPosition keysetPosition) {
+        this.keysetPosition = keysetPosition;
+    }
+
+    /**
+     * Set by a fetch that was given a {@link #getKeysetPosition()}.
+     *
+     * @return the position after the last record of the fetched page, or null if the page was the last one or the
+     * following page can't be read by seeking
+     */
+    public KeysetPosition getNextKeysetPosition() {
+        return nextKeysetPosition;
+    }
+
+    public void setNextKeysetPosition(KeysetPosition nextKeysetPosition) {
+        this.nextKeysetPosition = nextKeysetPosition;
+    }
+
+    /**
+     * Whether the total number of records has to be counted. When it doesn't, the total of the result only covers the
+     * records up to and including the fetched page.
+     *
+     * @return whether to count the total number of records
+     */
+    public boolean isTotalCountRequired() {
+        return totalCountRequired;
+    }
+
+    /**
+     * Whether the total number of records has to be counted. When it doesn't, the total of the result only covers the
+     * records up to and including the fetched page.
+     *
+     * @param totalCountRequired whether to count the total number of records
+     */
+    public void setTotalCountRequired(boolean totalCountRequired) {
+        this.totalCountRequired = totalCountRequired;
+    }
+
     /**
      * Add a {@link FilterAndSortCriteria} instance. Contains information about which records are retrieved
      * and in what direction they're sorted.
@@ -35,6 +35,8 @@ public class DynamicResultSet implements Serializable {
     private Integer pageSize;
     private Integer startIndex;
     private Integer totalRecords;
+    private Boolean totalRecordsCapped = false;
+    private Boolean deferred = false;
     private Integer batchId;
 
     public DynamicResultSet() {
@@ -72,6 +74,29 @@ public class DynamicResultSet implements Serializable {
         this.totalRecords = totalRecords;
     }
 
+    /**
+     * @return whether counting stopped at {@link #getTotalRecords()}, in which case there are more records than that
+     */
+    public Boolean getTotalRecordsCapped() {
+        return totalRecordsCapped;
+    }
+
+    public void setTotalRecordsCapped(Boolean totalRecordsCapped) {
+        this.totalRecordsCapped = totalRecordsCapped;
+    }
+
+    /**
+     * @return whether the records were not fetched, in which case the list grid built from this result set fetches
+     * them once it is shown
+     */
+    public Boolean getDeferred() {
+        return deferred;
+    }
+
+    public void setDeferred(Boolean deferred) {
+        this.deferred = deferred;
+    }
+
     public Entity[] getRecords() {
         return records;
     }
@@ -252,6 +252,23 @@ public interface AdminEntityService {
             Entity containingEntity, List<SectionCrumb> sectionCrumb)
             throws ServiceException;
 
+    /**
+     * Returns all records for all subcollections of the specified request and its primary key. When 
+     * <b>deferHiddenTabs</b> is set, only the collections on the tab the entity form opens on are fetched; the others 
+     * are returned as empty {@link DynamicResultSet#getDeferred() deferred} results, whose list grids fetch their 
+     * records when their tab is first shown.
+     * 
+     * @param ppr
+     * @param containingEntity
+     * @param sectionCrumb
+     * @param deferHiddenTabs
+     * @return the DynamicResultSet for every collection for the specified containingClass
+     * @throws ServiceException
+     */
+    public Map<String, DynamicResultSet> getRecordsForAllSubCollections(PersistencePackageRequest ppr, 
+            Entity containingEntity, List<SectionCrumb> sectionCrumb, boolean deferHiddenTabs)
+            throws ServiceException;
+
     /**
      * Adds an item into the specified collection
      * 
@@ -24,14 +24,18 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.broadleafcommerce.common.admin.domain.AdminMainEntity;
+import org.broadleafcommerce.common.classloader.release.ThreadLocalManager;
 import org.broadleafcommerce.common.dao.GenericEntityDao;
 import org.broadleafcommerce.common.exception.ServiceException;
 import org.broadleafcommerce.common.persistence.EntityConfiguration;
 import org.broadleafcommerce.common.presentation.client.AddMethodType;
 import org.broadleafcommerce.common.presentation.client.SupportedFieldType;
+import org.broadleafcommerce.common.presentation.client.VisibilityEnum;
 import org.broadleafcommerce.common.util.BLCSystemProperty;
+import org.broadleafcommerce.common.util.TransactionUtils;
 import org.broadleafcommerce.common.util.dao.DynamicDaoHelper;
 import org.broadleafcommerce.common.util.dao.DynamicDaoHelperImpl;
+import org.broadleafcommerce.common.web.BroadleafRequestContext;
 import org.broadleafcommerce.openadmin.dto.AdornedTargetCollectionMetadata;
 import org.broadleafcommerce.openadmin.dto.AdornedTargetList;
 import org.broadleafcommerce.openadmin.dto.BasicCollectionMetadata;
@@ -56,17 +60,35 @@ import org.broadleafcommerce.openadmin.server.service.persistence.module.BasicPe
 import org.broadleafcommerce.openadmin.web.form.entity.DynamicEntityFormInfo;
 import org.broadleafcommerce.openadmin.web.form.entity.EntityForm;
 import org.broadleafcommerce.openadmin.web.form.entity.Field;
+import org.hibernate.Session;
 import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
 import java.util.Map.Entry;
-
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
@@ -96,6 +118,21 @@ public class AdminEntityServiceImpl implements AdminEntityService {
 
     protected DynamicDaoHelper dynamicDaoHelper = new DynamicDaoHelperImpl();
 
+    @Resource(name = "blTransactionManager")
+    protected PlatformTransactionManager transactionManager;
+
+    /**
+     * The number of threads the collections of an entity form are fetched with. With 1 they are fetched one after
+     * another on the request thread.
+     */
+    @Value("${admin.collection.fetch.threads:1}")
+    protected int collectionFetchThreads = 1;
+
+    @Value("${admin.collection.fetch.timeout:30}")
+    protected int collectionFetchTimeout = 30;
+
+    protected volatile ExecutorService collectionFetchExecutor;
+
     @Override
     public PersistenceResponse getClassMetadata(PersistencePackageRequest request)
             throws ServiceException {
@@ -353,21 +390,185 @@ public class AdminEntityServiceImpl implements AdminEntityService {
     @Override
     public Map<String, DynamicResultSet> getRecordsForAllSubCollections(PersistencePackageRequest ppr, Entity containingEntity, List<SectionCrumb> sectionCrumb)
             throws ServiceException {
+        return getRecordsForAllSubCollections(ppr, containingEntity, sectionCrumb, false);
+    }
+
+    @Override
+    public Map<String, DynamicResultSet> getRecordsForAllSubCollections(PersistencePackageRequest ppr, Entity containingEntity,
+            List<SectionCrumb> sectionCrumb, boolean deferHiddenTabs) throws ServiceException {
         Map<String, DynamicResultSet> map = new HashMap<String, DynamicResultSet>();
 
         PersistenceResponse response = getClassMetadata(ppr);
         ClassMetadata cmd = response.getDynamicResultSet().getClassMetaData();
+        String type = containingEntity.getType()[0];
+        String initialTab = deferHiddenTabs ? getInitialTab(cmd, type) : null;
+        List<Property> collections = new ArrayList<Property>();
         for (Property p : cmd.getProperties()) {
-            if (ArrayUtils.contains(p.getMetadata().getAvailableToTypes(), containingEntity.getType()[0]) 
+            if (ArrayUtils.contains(p.getMetadata().getAvailableToTypes(), type) 
                     && p.getMetadata() instanceof CollectionMetadata) {
+                if (initialTab != null && !initialTab.equals(getTabName(p.getMetadata()))) {
+                    // The list grid fetches its records itself once its tab is shown
+                    DynamicResultSet deferred = new DynamicResultSet(new Entity[0], 0);
+                    deferred.setDeferred(true);
+                    map.put(p.getName(), deferred);
+                } else {
+                    collections.add(p);
+                }
+            }
+        }
+
+        long start = System.currentTimeMillis();
+        if (collectionFetchThreads > 1 && collections.size() > 1) {
+            map.putAll(getRecordsForCollectionsInParallel(cmd, containingEntity, collections, sectionCrumb));
+        } else {
+            for (Property p : collections) {
+                long collectionStart = System.currentTimeMillis();
                 PersistenceResponse response2 = getRecordsForCollection(cmd, containingEntity, p, null, null, null, sectionCrumb);
                 map.put(p.getName(), response2.getDynamicResultSet());
+                logCollectionFetchTime(p, collectionStart);
             }
         }
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(String.format("Fetched %d of %d collections of %s in %dms", collections.size(), map.size(), type,
+                    System.currentTimeMillis() - start));
+        }
 
         return map;
     }
 
+    /**
+     * Fetches the records of each of the given collections on a separate thread. Every fetch runs in its own read-only
+     * transaction, and therefore with its own persistence context.
+     */
+    protected Map<String, DynamicResultSet> getRecordsForCollectionsInParallel(final ClassMetadata cmd,
+            final Entity containingEntity, List<Property> collections, final List<SectionCrumb> sectionCrumb)
+            throws ServiceException {
+        final BroadleafRequestContext context = BroadleafRequestContext.getBroadleafRequestContext() == null ? null
+                : BroadleafRequestContext.getBroadleafRequestContext().createLightWeightClone();
+        final SecurityContext securityContext = SecurityContextHolder.getContext();
+
+        Map<String, Future<DynamicResultSet>> futures = new LinkedHashMap<String, Future<DynamicResultSet>>();
+        for (final Property p : collections) {
+            futures.put(p.getName(), getCollectionFetchExecutor().submit(new Callable<DynamicResultSet>() {
+
+                @Override
+                public DynamicResultSet call() throws Exception {
+                    BroadleafRequestContext.setBroadleafRequestContext(context);
+                    SecurityContextHolder.setContext(securityContext);
+                    TransactionStatus status = TransactionUtils.createTransaction(TransactionDefinition.PROPAGATION_REQUIRED,
+                            transactionManager, true);
+                    boolean isError = false;
+                    try {
+                        em.unwrap(Session.class).setDefaultReadOnly(true);
+                        long collectionStart = System.currentTimeMillis();
+                        DynamicResultSet drs = getRecordsForCollection(cmd, containingEntity, p, null, null, null, sectionCrumb)
+                                .getDynamicResultSet();
+                        logCollectionFetchTime(p, collectionStart);
+                        return drs;
+                    } catch (Exception e) {
+                        isError = true;
+                        throw e;
+                    } finally {
+                        TransactionUtils.finalizeTransaction(status, transactionManager, isError);
+                        SecurityContextHolder.clearContext();
+                        ThreadLocalManager.remove();
+                    }
+                }
+            }));
+        }
+
+        Map<String, DynamicResultSet> map = new HashMap<String, DynamicResultSet>();
+        long deadline = System.currentTimeMillis() + collectionFetchTimeout * 1000L;
+        try {
+            for (Entry<String, Future<DynamicResultSet>> entry : futures.entrySet()) {
+                long remaining = Math.max(0, deadline - System.currentTimeMillis());
+                map.put(entry.getKey(), entry.getValue().get(remaining, TimeUnit.MILLISECONDS));
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ServiceException) {
+                throw (ServiceException) e.getCause();
+            }
+            throw new ServiceException("Unable to fetch the collections of " + cmd.getCeilingType(), e.getCause());
+        } catch (TimeoutException e) {
+            throw new ServiceException("Timed out fetching the collections of " + cmd.getCeilingType(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceException("Interrupted while fetching the collections of " + cmd.getCeilingType(), e);
+        } finally {
+            for (Future<DynamicResultSet> future : futures.values()) {
+                future.cancel(true);
+            }
+        }
+        return map;
+    }
+
+    protected void logCollectionFetchTime(Property collection, long start) {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(String.format("Fetched collection %s in %dms", collection.getName(),
+                    System.currentTimeMillis() - start));
+        }
+    }
+
+    /**
+     * Determines the tab an entity form for the given type opens on, which is the tab with the lowest order that holds
+     * a visible field or a collection
+     */
+    protected String getInitialTab(ClassMetadata cmd, String type) {
+        String initialTab = null;
+        int initialTabOrder = Integer.MAX_VALUE;
+        for (Property p : cmd.getProperties()) {
+            FieldMetadata md = p.getMetadata();
+            if (!ArrayUtils.contains(md.getAvailableToTypes(), type) || Boolean.TRUE.equals(md.getExcluded())) {
+                continue;
+            }
+            if (md instanceof BasicFieldMetadata) {
+                VisibilityEnum visibility = ((BasicFieldMetadata) md).getVisibility();
+                if (VisibilityEnum.HIDDEN_ALL == visibility || VisibilityEnum.FORM_HIDDEN == visibility) {
+                    continue;
+                }
+            } else if (!(md instanceof CollectionMetadata)) {
+                continue;
+            }
+            int tabOrder = md.getTabOrder() == null ? EntityForm.DEFAULT_TAB_ORDER : md.getTabOrder();
+            if (initialTab == null || tabOrder < initialTabOrder) {
+                initialTab = getTabName(md);
+                initialTabOrder = tabOrder;
+            }
+        }
+        return initialTab;
+    }
+
+    protected String getTabName(FieldMetadata md) {
+        return md.getTab() == null ? EntityForm.DEFAULT_TAB_NAME : md.getTab();
+    }
+
+    protected ExecutorService getCollectionFetchExecutor() {
+        if (collectionFetchExecutor == null) {
+            synchronized (this) {
+                if (collectionFetchExecutor == null) {
+                    final AtomicInteger threadCount = new AtomicInteger();
+                    collectionFetchExecutor = Executors.newFixedThreadPool(collectionFetchThreads, new ThreadFactory() {
+
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread thread = new Thread(r, "blCollectionFetch-" + threadCount.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+                }
+            }
+        }
+        return collectionFetchExecutor;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (collectionFetchExecutor != null) {
+            collectionFetchExecutor.shutdownNow();
+        }
+    }
+
     @Override
     public PersistenceResponse addSubCollectionEntity(EntityForm entityForm, ClassMetadata mainMetadata, Property field,
             Entity parentEntity, List<SectionCrumb> sectionCrumbs)
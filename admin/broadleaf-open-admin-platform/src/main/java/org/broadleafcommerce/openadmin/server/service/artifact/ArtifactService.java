@@ -22,6 +22,7 @@ package org.broadleafcommerce.openadmin.server.service.artifact;
 import org.broadleafcommerce.openadmin.server.service.artifact.image.Operation;
 
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Map;
 
 /**
@@ -35,6 +36,12 @@ public interface ArtifactService {
 
     InputStream convert(InputStream artifactStream, Operation[] operations, String mimeType) throws Exception;
 
+    /**
+     * Convert the artifact and write the result to the given output stream, which is flushed but not closed.
+     * Processors implementing {@link StreamingArtifactProcessor} write straight to the stream.
+     */
+    void convert(InputStream artifactStream, Operation[] operations, String mimeType, OutputStream output) throws Exception;
+
     ArtifactProcessor[] getArtifactProcessors();
 
     void setArtifactProcessors(ArtifactProcessor[] artifactProcessors);
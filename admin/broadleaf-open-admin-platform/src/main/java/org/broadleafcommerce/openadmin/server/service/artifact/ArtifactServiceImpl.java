@@ -20,9 +20,11 @@
 package org.broadleafcommerce.openadmin.server.service.artifact;
 
 import org.broadleafcommerce.openadmin.server.service.artifact.image.Operation;
+import org.apache.commons.io.IOUtils;
 import org.springframework.stereotype.Service;
 
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Map;
 
 /**
@@ -48,6 +50,24 @@ public class ArtifactServiceImpl implements ArtifactService {
         return artifactStream;
     }
 
+    @Override
+    public void convert(InputStream artifactStream, Operation[] operations, String mimeType, OutputStream output) throws Exception {
+        for (ArtifactProcessor artifactProcessor : artifactProcessors) {
+            if (artifactProcessor.isSupported(artifactStream, mimeType)) {
+                if (artifactProcessor instanceof StreamingArtifactProcessor) {
+                    ((StreamingArtifactProcessor) artifactProcessor).convert(artifactStream, operations, mimeType, output);
+                } else {
+                    IOUtils.copy(artifactProcessor.convert(artifactStream, operations, mimeType), output);
+                    output.flush();
+                }
+                return;
+            }
+        }
+
+        IOUtils.copy(artifactStream, output);
+        output.flush();
+    }
+
     public Operation[] buildOperations(Map<String, String> parameterMap, InputStream artifactStream, String mimeType) {
         for (ArtifactProcessor artifactProcessor : artifactProcessors) {
             if (artifactProcessor.isSupported(artifactStream, mimeType)) {
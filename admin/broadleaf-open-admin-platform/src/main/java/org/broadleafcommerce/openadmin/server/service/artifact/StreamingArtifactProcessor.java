@@ -0,0 +1,39 @@
+/*
+ * #%L
+ * BroadleafCommerce Open Admin Platform
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.openadmin.server.service.artifact;
+
+import org.broadleafcommerce.openadmin.server.service.artifact.image.Operation;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * An {@link ArtifactProcessor} that is able to write the converted artifact directly to a destination stream
+ * (usually the cache file) instead of staging the whole result in memory first.
+ */
+public interface StreamingArtifactProcessor extends ArtifactProcessor {
+
+    /**
+     * Convert the artifact and write the result to the given stream. The output stream is flushed, but not closed.
+     * If there are no operations, the artifact is copied as-is.
+     */
+    public void convert(InputStream artifactStream, Operation[] operations, String mimeType, OutputStream output) throws Exception;
+
+}
@@ -19,22 +19,27 @@
  */
 package org.broadleafcommerce.openadmin.server.service.artifact.image;
 
-import org.broadleafcommerce.openadmin.server.service.artifact.ArtifactProcessor;
+import org.apache.commons.io.IOUtils;
+import org.broadleafcommerce.openadmin.server.service.artifact.StreamingArtifactProcessor;
 import org.broadleafcommerce.openadmin.server.service.artifact.image.effects.chain.EffectsManager;
+import org.broadleafcommerce.openadmin.server.service.artifact.image.effects.chain.UnmarshalledParameter;
+import org.broadleafcommerce.openadmin.server.service.artifact.image.effects.chain.filter.FilterTypeEnum;
 import org.springframework.stereotype.Service;
 
 import java.awt.image.BufferedImage;
 import java.awt.image.ColorConvertOp;
-import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Map;
 
 import javax.annotation.Resource;
 import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
 import javax.imageio.ImageReader;
 import javax.imageio.ImageWriteParam;
 import javax.imageio.ImageWriter;
@@ -49,13 +54,19 @@ import javax.imageio.stream.MemoryCacheImageOutputStream;
  * To change this template use File | Settings | File Templates.
  */
 @Service("blImageArtifactProcessor")
-public class ImageArtifactProcessor implements ArtifactProcessor {
+public class ImageArtifactProcessor implements StreamingArtifactProcessor {
 
     @Resource(name="blImageEffectsManager")
     protected EffectsManager effectsManager;
 
     protected String[] supportedUploadTypes = {"gif", "jpg", "jpeg", "png", "bmp", "wbmp"};
     protected float compressionQuality = 0.9F;
+    protected int subsampleHeadroom = 2;
+    protected String[] subsampleSafeOperations = {
+            FilterTypeEnum.ALTERHSB.toString().toLowerCase(),
+            FilterTypeEnum.ALTERRGB.toString().toLowerCase(),
+            FilterTypeEnum.AUTOLEVELSRGB.toString().toLowerCase()
+    };
 
     @Override
     public boolean isSupported(InputStream artifactStream, String filename) {
@@ -91,52 +102,155 @@ public class ImageArtifactProcessor implements ArtifactProcessor {
     @Override
     public InputStream convert(InputStream artifactStream, Operation[] operations, String mimeType) throws Exception {
         if (operations != null && operations.length > 0) {
-            ImageInputStream iis = ImageIO.createImageInputStream(artifactStream);
-            Iterator<ImageReader> iter = ImageIO.getImageReaders(iis);
-            ImageReader reader = iter.next();
-            String formatName = reader.getFormatName();
-            artifactStream.reset();
-            BufferedImage image = ImageIO.read(ImageIO.createImageInputStream(artifactStream));
-
-            //before
-            if (formatName.toLowerCase().equals("jpeg") || formatName.toLowerCase().equals("jpg")) {
-                image = stripAlpha(image);
-            }
+            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+            convert(artifactStream, operations, mimeType, byteArrayOutputStream);
 
-            for (Operation operation : operations){
-                image = effectsManager.renderEffect(operation.getName(), operation.getFactor(), operation.getParameters(), image);
-            }
+            return new ByteArrayInputStream(byteArrayOutputStream.toByteArray());
+        } else {
+            return artifactStream;
+        }
+    }
 
-            //and after - some applications have a problem reading jpeg images with an alpha channel associated
-            if (formatName.toLowerCase().equals("jpeg") || formatName.toLowerCase().equals("jpg")) {
-                image = stripAlpha(image);
-            }
+    @Override
+    public void convert(InputStream artifactStream, Operation[] operations, String mimeType, OutputStream output) throws Exception {
+        if (operations == null || operations.length == 0) {
+            IOUtils.copy(artifactStream, output);
+            output.flush();
+            return;
+        }
 
-            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-            BufferedOutputStream bos = new BufferedOutputStream(byteArrayOutputStream);
-            if (formatName.toLowerCase().equals("gif")) {
-                formatName = "png";
-            }
-            Iterator<ImageWriter> writerIter = ImageIO.getImageWritersByFormatName(formatName);
-            ImageWriter writer = writerIter.next();
-            ImageWriteParam iwp = writer.getDefaultWriteParam();
+        ImageInputStream iis = ImageIO.createImageInputStream(artifactStream);
+        Iterator<ImageReader> iter = ImageIO.getImageReaders(iis);
+        ImageReader reader = iter.next();
+        String formatName = reader.getFormatName();
+        BufferedImage image;
+        try {
+            reader.setInput(iis, true, true);
+            ImageReadParam readParam = reader.getDefaultReadParam();
 
-            if (formatName.toLowerCase().equals("jpeg") || formatName.toLowerCase().equals("jpg")) {
-                iwp.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
-                iwp.setCompressionQuality(compressionQuality);
+            // when the image is only going to be reduced, there is no need to decode every source pixel
+            int subsampling = getSourceSubsampling(reader.getWidth(0), reader.getHeight(0), operations);
+            if (subsampling > 1) {
+                readParam.setSourceSubsampling(subsampling, subsampling, 0, 0);
             }
+            image = reader.read(0, readParam);
+        } finally {
+            reader.dispose();
+            iis.close();
+        }
+
+        //before
+        if (formatName.toLowerCase().equals("jpeg") || formatName.toLowerCase().equals("jpg")) {
+            image = stripAlpha(image);
+        }
 
-            MemoryCacheImageOutputStream output = new MemoryCacheImageOutputStream(bos);
-            writer.setOutput(output);
+        for (Operation operation : operations){
+            image = effectsManager.renderEffect(operation.getName(), operation.getFactor(), operation.getParameters(), image);
+        }
+
+        //and after - some applications have a problem reading jpeg images with an alpha channel associated
+        if (formatName.toLowerCase().equals("jpeg") || formatName.toLowerCase().equals("jpg")) {
+            image = stripAlpha(image);
+        }
+
+        if (formatName.toLowerCase().equals("gif")) {
+            formatName = "png";
+        }
+        Iterator<ImageWriter> writerIter = ImageIO.getImageWritersByFormatName(formatName);
+        ImageWriter writer = writerIter.next();
+        ImageWriteParam iwp = writer.getDefaultWriteParam();
+
+        if (formatName.toLowerCase().equals("jpeg") || formatName.toLowerCase().equals("jpg")) {
+            iwp.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            iwp.setCompressionQuality(compressionQuality);
+        }
+
+        MemoryCacheImageOutputStream imageOutput = new MemoryCacheImageOutputStream(output);
+        try {
+            writer.setOutput(imageOutput);
 
             IIOImage iomage = new IIOImage(image, null,null);
             writer.write(null, iomage, iwp);
-            bos.flush();
+        } finally {
+            writer.dispose();
+            // closing the image stream flushes it to the underlying stream, which is left open
+            imageOutput.close();
+        }
+        output.flush();
+    }
 
-            return new ByteArrayInputStream(byteArrayOutputStream.toByteArray());
-        } else {
-            return artifactStream;
+    /**
+     * Determine how many source pixels can be skipped in each direction while decoding. Subsampling is only used
+     * when a resize operation will reduce the image and every operation that runs before it is unaffected by the
+     * image dimensions. The decoded image is kept at least {@link #subsampleHeadroom} times larger than the resized
+     * result so the resize filter still has enough detail to work with.
+     *
+     * @return the subsampling factor, where 1 means the whole image is decoded
+     */
+    protected int getSourceSubsampling(int sourceWidth, int sourceHeight, Operation[] operations) {
+        if (subsampleHeadroom < 1) {
+            return 1;
+        }
+        String resizeName = FilterTypeEnum.RESIZE.toString().toLowerCase();
+        for (Operation operation : operations) {
+            if (resizeName.equals(operation.getName())) {
+                try {
+                    return getResizeSubsampling(sourceWidth, sourceHeight, operation);
+                } catch (Exception e) {
+                    // the resize filter will report the problem with its parameters
+                    return 1;
+                }
+            }
+            if (!Arrays.asList(subsampleSafeOperations).contains(operation.getName())) {
+                return 1;
+            }
+        }
+        return 1;
+    }
+
+    protected int getResizeSubsampling(int sourceWidth, int sourceHeight, Operation resize) throws Exception {
+        int targetWidth = 0;
+        int targetHeight = 0;
+        boolean maintainAspectRatio = false;
+        boolean reduceOnly = false;
+        for (UnmarshalledParameter parameter : resize.getParameters()) {
+            if (parameter.getValue() == null) {
+                continue;
+            }
+            Object value = effectsManager.getConversionManager().convertParameter(parameter.getValue(),
+                    parameter.getType(), resize.getFactor(), parameter.isApplyFactor()).getParameterInstance();
+            if ("target-width".equals(parameter.getName())) {
+                targetWidth = (Integer) value;
+            } else if ("target-height".equals(parameter.getName())) {
+                targetHeight = (Integer) value;
+            } else if ("maintain-aspect-ratio".equals(parameter.getName())) {
+                maintainAspectRatio = (Boolean) value;
+            } else if ("reduce-only".equals(parameter.getName())) {
+                reduceOnly = (Boolean) value;
+            }
+        }
+        if (targetWidth <= 0 || targetHeight <= 0) {
+            return 1;
         }
+        if (reduceOnly) {
+            targetWidth = Math.min(targetWidth, sourceWidth);
+            targetHeight = Math.min(targetHeight, sourceHeight);
+        }
+
+        // Mirror the dimensions the resize filter will produce
+        long destWidth = targetWidth;
+        long destHeight = targetHeight;
+        if (maintainAspectRatio) {
+            if (Math.abs(sourceWidth - targetWidth) < Math.abs(sourceHeight - targetHeight)) {
+                destWidth = ((long) sourceWidth * targetHeight) / sourceHeight;
+            } else {
+                destHeight = ((long) sourceHeight * targetWidth) / sourceWidth;
+            }
+        }
+
+        long subsampling = Math.min(sourceWidth / Math.max(1L, destWidth * subsampleHeadroom),
+                sourceHeight / Math.max(1L, destHeight * subsampleHeadroom));
+        return (int) Math.max(1L, subsampling);
     }
 
     protected BufferedImage stripAlpha(BufferedImage image){
@@ -163,4 +277,24 @@ public class ImageArtifactProcessor implements ArtifactProcessor {
     public void setCompressionQuality(float compressionQuality) {
         this.compressionQuality = compressionQuality;
     }
+
+    public int getSubsampleHeadroom() {
+        return subsampleHeadroom;
+    }
+
+    /**
+     * @param subsampleHeadroom how many times larger than the resized result the decoded image must stay,
+     * or 0 to always decode the full source image
+     */
+    public void setSubsampleHeadroom(int subsampleHeadroom) {
+        this.subsampleHeadroom = subsampleHeadroom;
+    }
+
+    public String[] getSubsampleSafeOperations() {
+        return subsampleSafeOperations;
+    }
+
+    public void setSubsampleSafeOperations(String[] subsampleSafeOperations) {
+        this.subsampleSafeOperations = subsampleSafeOperations;
+    }
 }
@@ -31,9 +31,12 @@ import org.broadleafcommerce.openadmin.server.service.artifact.image.effects.cha
 import org.broadleafcommerce.openadmin.server.service.artifact.image.effects.chain.filter.GaussianBlur;
 import org.broadleafcommerce.openadmin.server.service.artifact.image.effects.chain.filter.Resize;
 import org.broadleafcommerce.openadmin.server.service.artifact.image.effects.chain.filter.Rotate;
+import org.broadleafcommerce.openadmin.server.service.artifact.image.effects.chain.filter.RowBands;
 import org.broadleafcommerce.openadmin.server.service.artifact.image.effects.chain.filter.UnsharpMask;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
 import java.awt.*;
 import java.awt.image.BufferedImage;
@@ -44,6 +47,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 @Service("blImageEffectsManager")
 public class EffectsManager {
@@ -51,6 +55,7 @@ public class EffectsManager {
     @Resource(name="blImageConversionManager")
     protected ConversionManager conversionManager;
     protected Map<String, OperationBuilder> filters = new HashMap<String, OperationBuilder>();
+    protected ForkJoinPool filterPool;
 
     public EffectsManager() {
         filters.put(FilterTypeEnum.ALTERHSB.toString().toLowerCase(), new AlterHSB());
@@ -63,6 +68,26 @@ public class EffectsManager {
         filters.put(FilterTypeEnum.UNSHARPMASK.toString().toLowerCase(), new UnsharpMask());
     }
 
+    /**
+     * Creates the pool the pixel filters split their work across (see {@link RowBands}). The pool is shut down with
+     * the application context so that its worker threads do not outlive a redeploy.
+     */
+    @PostConstruct
+    public void init() {
+        filterPool = new ForkJoinPool();
+        RowBands.setPool(filterPool);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (filterPool != null) {
+            if (RowBands.getPool() == filterPool) {
+                RowBands.setPool(null);
+            }
+            filterPool.shutdownNow();
+        }
+    }
+
     public Operation[] buildOperations(Map<String, String> parameterMap, InputStream artifactStream, String mimeType) {
         List<Operation> operations = new ArrayList<Operation>();
         for (OperationBuilder builder : filters.values()) {
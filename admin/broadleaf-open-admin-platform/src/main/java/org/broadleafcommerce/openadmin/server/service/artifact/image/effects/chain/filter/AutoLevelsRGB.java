@@ -30,7 +30,6 @@ import java.awt.image.IndexColorModel;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Arrays;
 import java.util.Map;
 
 /**
@@ -124,137 +123,47 @@ public class AutoLevelsRGB extends BaseFilter {
             }
         }
         
-        int[] originalPixels = ImageConverter.getPixels(src);
-        int imageWidth = dst.getWidth();
+        final int[] originalPixels = ImageConverter.getPixels(src);
+        final int imageWidth = dst.getWidth();
         int imageHeight = dst.getHeight();
         
         /*
-         * Sort all the red pixels from low to high and establish
-         * the clipping regions. We also note the delta from the 
-         * lowest and highest leftover pixels to black and white,
-         * respectively.
+         * Build a histogram for each channel and establish the clipping regions from it. This yields the same
+         * clipping values as sorting every channel value, without the sorts. We also note the delta from the
+         * lowest and highest leftover pixels to black and white, respectively.
          */
-        int[] redPixels = new int[originalPixels.length];
+        int[] redHistogram = new int[256];
+        int[] greenHistogram = new int[256];
+        int[] blueHistogram = new int[256];
         for (int j=0;j<originalPixels.length;j++){
-            redPixels[j] = (originalPixels[j] >> 16) & 0xff;
+            redHistogram[(originalPixels[j] >> 16) & 0xff]++;
+            greenHistogram[(originalPixels[j] >> 8) & 0xff]++;
+            blueHistogram[(originalPixels[j] >> 0) & 0xff]++;
         }
-        Arrays.sort(redPixels);
-        int redStart = redPixels[(int) (redPixels.length * BOTTOMCLIP )];
-        int redEnd = redPixels[redPixels.length-(int) (redPixels.length * TOPCLIP)];
-        int redEndDelta = 255 - redEnd;
-        int redStartDelta = redStart;
+        int bottomRank = (int) (originalPixels.length * BOTTOMCLIP);
+        int topRank = Math.min(originalPixels.length - 1, originalPixels.length - (int) (originalPixels.length * TOPCLIP));
         
-        int[] greenPixels = new int[originalPixels.length];
-        for (int j=0;j<originalPixels.length;j++){
-            greenPixels[j] = (originalPixels[j] >> 8) & 0xff;
-        }
-        Arrays.sort(greenPixels);
-        int greenStart = greenPixels[(int) (greenPixels.length * BOTTOMCLIP )];
-        int greenEnd = greenPixels[greenPixels.length-(int) (greenPixels.length * TOPCLIP)];
-        int greenEndDelta = 255 - greenEnd;
-        int greenStartDelta = greenStart;
-        
-        int[] bluePixels = new int[originalPixels.length];
-        for (int j=0;j<originalPixels.length;j++){
-            bluePixels[j] = (originalPixels[j] >> 0) & 0xff;
-        }
-        Arrays.sort(bluePixels);
-        int blueStart = bluePixels[(int) (bluePixels.length * BOTTOMCLIP )];
-        int blueEnd = bluePixels[bluePixels.length-(int) (bluePixels.length * TOPCLIP)];
-        int blueEndDelta = 255 - blueEnd;
-        int blueStartDelta = blueStart;
+        /*
+         * Every channel value maps to a single leveled value, so compute the mapping once per channel
+         * and apply the lookup tables to the pixels
+         */
+        final int[] redLevels = buildLevels(valueAtRank(redHistogram, bottomRank), valueAtRank(redHistogram, topRank));
+        final int[] greenLevels = buildLevels(valueAtRank(greenHistogram, bottomRank), valueAtRank(greenHistogram, topRank));
+        final int[] blueLevels = buildLevels(valueAtRank(blueHistogram, bottomRank), valueAtRank(blueHistogram, topRank));
         
-        int r=0;
-        int g=0;
-        int b=0;
-        int index=0;
-        for (int y=0;y<imageHeight;y++){
-            for (int x=0;x<imageWidth;x++){
-                r = (originalPixels[index] >> 16) & 0xff;
-                g = (originalPixels[index] >> 8) & 0xff;
-                b = (originalPixels[index] >> 0) & 0xff;
-                
-                if (r > redStart && r < redEnd) {
-                    if (redEndDelta > 0) {
-                        if (redEnd - r == 0) {
-                            r = 255;
-                        } else {
-                            /*
-                             * If there was a white shift, distribute all the pixels proportionally up
-                             */
-                            r = redEnd + redEndDelta - (((redEnd - r) * (redEnd + redEndDelta)) / redEnd);
-                        }
-                    }
-                    if (redStartDelta > 0) {
-                        if (r - redStartDelta == 0) {
-                            r = 0;
-                        } else {
-                            /*
-                             * If there was a black shift, distribute all the pixels proportionally down
-                             */
-                            r = redEnd - (((redEnd -(redStart - redStartDelta)) * (redEnd - r))/(redEnd - redStart));
-                        }
-                    }
-                } else if (r <= redStart) {
-                    r = 0;
-                } else {
-                    r = 255;
-                }
-                
-                if (g > greenStart && g < greenEnd) {
-                    if (greenEndDelta > 0){
-                        if (greenEnd - g == 0) {
-                            g = 255;
-                        } else {
-                            g = greenEnd + greenEndDelta - (((greenEnd - g) * (greenEnd + greenEndDelta)) / greenEnd);
-                        }
-                    }
-                    if (greenStartDelta > 0){
-                        if (g - greenStartDelta == 0) {
-                            g = 0;
-                        } else {
-                            g = greenEnd - (((greenEnd -(greenStart - greenStartDelta)) * (greenEnd - g))/(greenEnd - greenStart));
-                        }
-                    }
-                } else if (g <= greenStart) {
-                    g = 0;
-                } else {
-                    g = 255;
-                }
-                
-                if (b > blueStart && b < blueEnd) {
-                    if (blueEndDelta > 0){
-                        if (blueEnd - b == 0) {
-                            b = 255;
-                        } else {
-                            b = blueEnd + blueEndDelta - (((blueEnd - b) * (blueEnd + blueEndDelta)) / blueEnd);
-                        }
-                    }
-                    if (blueStartDelta > 0){
-                        if (b - blueStartDelta == 0) {
-                            b = 0;
-                        } else {
-                            b = blueEnd - (((blueEnd -(blueStart - blueStartDelta)) * (blueEnd - b))/(blueEnd - blueStart));
-                        }
-                    }
-                } else if (b <= blueStart) {
-                    b = 0;
-                } else {
-                    b = 255;
-                }
-
-                // fix overflows
-                if (r > 255) r = 255;
-                if (r < 0) r = 0;
-                if (g > 255) g = 255;
-                if (g < 0) g = 0;
-                if (b > 255) b = 255;
-                if (b < 0) b = 0;
+        RowBands.process(imageWidth, imageHeight, new RowBands.BandProcessor() {
+            @Override
+            public void process(int startRow, int endRow) {
+                int end = endRow * imageWidth;
+                for (int index = startRow * imageWidth; index < end; index++) {
+                    int r = redLevels[(originalPixels[index] >> 16) & 0xff];
+                    int g = greenLevels[(originalPixels[index] >> 8) & 0xff];
+                    int b = blueLevels[(originalPixels[index] >> 0) & 0xff];
 
-                originalPixels[index] = (originalPixels[index] & 0xff000000)  | (r << 16) | (g << 8) | (b << 0);
-                index++;
+                    originalPixels[index] = (originalPixels[index] & 0xff000000)  | (r << 16) | (g << 8) | (b << 0);
+                }
             }
-        }
+        });
         
         dst = ImageConverter.getImage(originalPixels, imageWidth, imageHeight);
          
@@ -274,4 +183,60 @@ public class AutoLevelsRGB extends BaseFilter {
         return origDst;
     }
 
+    /**
+     * @return the channel value found at the given position if all the channel values were sorted low to high
+     */
+    protected int valueAtRank(int[] histogram, int rank) {
+        int count = 0;
+        for (int value = 0; value < histogram.length; value++) {
+            count += histogram[value];
+            if (count > rank) {
+                return value;
+            }
+        }
+        return histogram.length - 1;
+    }
+
+    protected int[] buildLevels(int start, int end) {
+        int endDelta = 255 - end;
+        int startDelta = start;
+        int[] levels = new int[256];
+        for (int value = 0; value < levels.length; value++) {
+            int v = value;
+            if (v > start && v < end) {
+                if (endDelta > 0) {
+                    if (end - v == 0) {
+                        v = 255;
+                    } else {
+                        /*
+                         * If there was a white shift, distribute all the pixels proportionally up
+                         */
+                        v = end + endDelta - (((end - v) * (end + endDelta)) / end);
+                    }
+                }
+                if (startDelta > 0) {
+                    if (v - startDelta == 0) {
+                        v = 0;
+                    } else {
+                        /*
+                         * If there was a black shift, distribute all the pixels proportionally down
+                         */
+                        v = end - (((end -(start - startDelta)) * (end - v))/(end - start));
+                    }
+                }
+            } else if (v <= start) {
+                v = 0;
+            } else {
+                v = 255;
+            }
+
+            // fix overflows
+            if (v > 255) v = 255;
+            if (v < 0) v = 0;
+
+            levels[value] = v;
+        }
+        return levels;
+    }
+
 }
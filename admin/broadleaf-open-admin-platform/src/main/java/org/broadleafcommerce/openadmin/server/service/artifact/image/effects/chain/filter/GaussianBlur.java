@@ -197,8 +197,9 @@ public class GaussianBlur extends BaseFilter {
         BufferedImage nextSource = src;
 
         for (int i = 0; i < numOfPasses; i++) {
-            tempImage = gaussianOp1.filter(nextSource, tempImage);
-            dst = gaussianOp2.filter(tempImage, dst);
+            // the horizontal pass reads only its own rows, while the vertical pass needs half a kernel of rows around each band
+            filterBands(gaussianOp1, nextSource, tempImage, 0);
+            filterBands(gaussianOp2, tempImage, dst, matrix.length / 2);
 
             nextSource = dst;
         }
@@ -218,4 +219,28 @@ public class GaussianBlur extends BaseFilter {
 
         return origDst;
     }
+
+    /**
+     * Runs the convolution over horizontal bands of the source in parallel. Each band is convolved together with
+     * <code>halo</code> rows above and below it so that the rows written to the target match a single pass over the
+     * whole image.
+     */
+    protected void filterBands(final ConvolveOp op, final BufferedImage source, final BufferedImage target, final int halo) {
+        final int width = source.getWidth();
+        final int height = source.getHeight();
+        if (height <= RowBands.getBandRows(width)) {
+            op.filter(source, target);
+            return;
+        }
+        RowBands.process(width, height, new RowBands.BandProcessor() {
+            @Override
+            public void process(int startRow, int endRow) {
+                int top = Math.max(0, startRow - halo);
+                int bottom = Math.min(height, endRow + halo);
+                BufferedImage band = op.filter(source.getSubimage(0, top, width, bottom - top), null);
+                target.getRaster().setRect(0, startRow,
+                        band.getRaster().createChild(0, startRow - top, width, endRow - startRow, 0, 0, null));
+            }
+        });
+    }
 }
@@ -0,0 +1,108 @@
+/*
+ * #%L
+ * BroadleafCommerce Open Admin Platform
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.openadmin.server.service.artifact.image.effects.chain.filter;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Splits an image into horizontal bands of rows and processes the bands on a shared {@link ForkJoinPool}.
+ * Filters use this for their per-pixel loops so that large source images are worked on by every available core
+ * rather than a single request thread. Images smaller than a single band are processed on the calling thread.
+ * <p>
+ * The pool is owned by {@link org.broadleafcommerce.openadmin.server.service.artifact.image.effects.chain.EffectsManager},
+ * which creates it on startup and shuts it down with the application context. Until a pool is set, and after it
+ * has been shut down, every image is processed on the calling thread.
+ */
+public class RowBands {
+
+    /**
+     * Roughly the number of pixels handled by a single task before the work is no longer split
+     */
+    public static final int BAND_PIXELS = 64 * 1024;
+
+    protected static volatile ForkJoinPool pool;
+
+    public interface BandProcessor {
+
+        /**
+         * Process the rows from startRow (inclusive) to endRow (exclusive). Implementations must only write to
+         * the rows in their own band.
+         */
+        void process(int startRow, int endRow);
+
+    }
+
+    public static ForkJoinPool getPool() {
+        return pool;
+    }
+
+    public static void setPool(ForkJoinPool pool) {
+        RowBands.pool = pool;
+    }
+
+    public static int getBandRows(int width) {
+        return Math.max(1, BAND_PIXELS / Math.max(1, width));
+    }
+
+    public static void process(int width, int height, BandProcessor processor) {
+        int bandRows = getBandRows(width);
+        ForkJoinPool current = pool;
+        if (current == null || current.isShutdown() || height <= bandRows || current.getParallelism() < 2) {
+            processor.process(0, height);
+        } else {
+            try {
+                current.invoke(new BandTask(processor, 0, height, bandRows));
+            } catch (RejectedExecutionException e) {
+                // the pool was shut down after the check above
+                processor.process(0, height);
+            }
+        }
+    }
+
+    protected static class BandTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        protected final BandProcessor processor;
+        protected final int startRow;
+        protected final int endRow;
+        protected final int bandRows;
+
+        public BandTask(BandProcessor processor, int startRow, int endRow, int bandRows) {
+            this.processor = processor;
+            this.startRow = startRow;
+            this.endRow = endRow;
+            this.bandRows = bandRows;
+        }
+
+        @Override
+        protected void compute() {
+            if (endRow - startRow <= bandRows) {
+                processor.process(startRow, endRow);
+            } else {
+                int middle = (startRow + endRow) >>> 1;
+                invokeAll(new BandTask(processor, startRow, middle, bandRows),
+                        new BandTask(processor, middle, endRow, bandRows));
+            }
+        }
+    }
+}
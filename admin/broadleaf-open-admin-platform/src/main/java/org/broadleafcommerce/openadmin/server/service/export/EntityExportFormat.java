@@ -0,0 +1,51 @@
+/*
+ * #%L
+ * BroadleafCommerce Open Admin Platform
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.openadmin.server.service.export;
+
+/**
+ * The file formats an {@link EntityExportService} can write the records of an admin section in
+ */
+public enum EntityExportFormat {
+    /**
+     * Comma separated values with a header row of the field labels
+     */
+    CSV("text/csv", "csv"),
+    /**
+     * One JSON object per line, keyed by field name
+     */
+    JSON_LINES("application/x-ndjson", "jsonl");
+
+    private final String contentType;
+    private final String extension;
+
+    private EntityExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+}
@@ -0,0 +1,155 @@
+/*
+ * #%L
+ * BroadleafCommerce Open Admin Platform
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.openadmin.server.service.export;
+
+import java.io.File;
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The progress of an export started through {@link EntityExportService#startExport}. The exported count is updated by
+ * the exporting thread as each chunk is written, so a job can be polled while it runs.
+ */
+public class EntityExportJob implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public enum Status {
+        RUNNING,
+        COMPLETE,
+        FAILED
+    }
+
+    protected final String id;
+    protected final String ceilingEntityClassname;
+    protected final EntityExportFormat format;
+    protected final Long adminUserId;
+    protected final long created = System.currentTimeMillis();
+    protected final AtomicLong exportedCount = new AtomicLong();
+    protected volatile long totalCount = -1;
+    protected volatile Status status = Status.RUNNING;
+    protected volatile String errorMessage;
+    protected volatile long completed;
+    protected transient volatile File file;
+
+    public EntityExportJob(String id, String ceilingEntityClassname, EntityExportFormat format) {
+        this(id, ceilingEntityClassname, format, null);
+    }
+
+    public EntityExportJob(String id, String ceilingEntityClassname, EntityExportFormat format, Long adminUserId) {
+        this.id = id;
+        this.ceilingEntityClassname = ceilingEntityClassname;
+        this.format = format;
+        this.adminUserId = adminUserId;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getCeilingEntityClassname() {
+        return ceilingEntityClassname;
+    }
+
+    public EntityExportFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * @return the id of the admin user that started the export
+     */
+    public Long getAdminUserId() {
+        return adminUserId;
+    }
+
+    public long getCreated() {
+        return created;
+    }
+
+    public long getExportedCount() {
+        return exportedCount.get();
+    }
+
+    public void addExportedCount(int count) {
+        exportedCount.addAndGet(count);
+    }
+
+    /**
+     * @return the number of records the export is expected to write, or -1 while it is not known yet
+     */
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public void setTotalCount(long totalCount) {
+        this.totalCount = totalCount;
+    }
+
+    /**
+     * @return the percentage of the expected records written so far, or -1 while the total is not known yet
+     */
+    public int getPercentComplete() {
+        if (status == Status.COMPLETE) {
+            return 100;
+        }
+        long total = totalCount;
+        if (total < 0) {
+            return -1;
+        }
+        return total == 0 ? 100 : (int) Math.min(99, exportedCount.get() * 100 / total);
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public long getCompleted() {
+        return completed;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public void setFile(File file) {
+        this.file = file;
+    }
+
+    public String getFileName() {
+        String simpleName = ceilingEntityClassname.substring(ceilingEntityClassname.lastIndexOf('.') + 1);
+        return simpleName + "-" + id + "." + format.getExtension();
+    }
+
+    public void complete() {
+        completed = System.currentTimeMillis();
+        status = Status.COMPLETE;
+    }
+
+    public void fail(String errorMessage) {
+        this.errorMessage = errorMessage;
+        completed = System.currentTimeMillis();
+        status = Status.FAILED;
+    }
+
+}
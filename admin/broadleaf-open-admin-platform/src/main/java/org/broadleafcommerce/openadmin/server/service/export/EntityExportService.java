@@ -0,0 +1,59 @@
+/*
+ * #%L
+ * BroadleafCommerce Open Admin Platform
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.openadmin.server.service.export;
+
+import org.broadleafcommerce.common.exception.ServiceException;
+import org.broadleafcommerce.openadmin.server.domain.PersistencePackageRequest;
+
+/**
+ * Exports all records of an admin section that match the filters of a list grid. Records are read in fixed size
+ * chunks through the regular admin fetch pipeline, so the same metadata, security and filtering apply as for the list
+ * grid, and each chunk is written out and released before the next one is read.
+ */
+public interface EntityExportService {
+
+    /**
+     * Starts exporting the records matched by the given request on a background thread
+     * 
+     * @param request the request describing the section and the filter and sort criteria of its list grid. Paging
+     * information on the request is ignored.
+     * @param format
+     * @param adminUserId the id of the admin user starting the export, recorded as the owner of the job
+     * @return the job that can be polled with {@link #getJob(String)} for its progress
+     */
+    public EntityExportJob startExport(PersistencePackageRequest request, EntityExportFormat format, Long adminUserId);
+
+    /**
+     * @param jobId
+     * @return the job with the given id, or null if there is no such job or it has expired
+     */
+    public EntityExportJob getJob(String jobId);
+
+    /**
+     * Exports the records matched by the given request on the calling thread
+     * 
+     * @param request the request describing the section and the filter and sort criteria of its list grid
+     * @param writer the writer to write the records to
+     * @param job the job to report progress to, may be null
+     * @throws ServiceException
+     */
+    public void export(PersistencePackageRequest request, EntityExportWriter writer, EntityExportJob job) throws ServiceException;
+
+}
@@ -0,0 +1,375 @@
+/*
+ * #%L
+ * BroadleafCommerce Open Admin Platform
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.openadmin.server.service.export;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.broadleafcommerce.common.exception.ServiceException;
+import org.broadleafcommerce.common.presentation.client.SupportedFieldType;
+import org.broadleafcommerce.common.presentation.client.VisibilityEnum;
+import org.broadleafcommerce.common.util.TransactionUtils;
+import org.broadleafcommerce.common.web.BroadleafRequestContext;
+import org.broadleafcommerce.openadmin.dto.BasicFieldMetadata;
+import org.broadleafcommerce.openadmin.dto.ClassMetadata;
+import org.broadleafcommerce.openadmin.dto.CriteriaTransferObject;
+import org.broadleafcommerce.openadmin.dto.DynamicResultSet;
+import org.broadleafcommerce.openadmin.dto.Entity;
+import org.broadleafcommerce.openadmin.dto.FieldMetadata;
+import org.broadleafcommerce.openadmin.dto.PersistencePackage;
+import org.broadleafcommerce.openadmin.dto.Property;
+import org.broadleafcommerce.openadmin.server.domain.PersistencePackageRequest;
+import org.broadleafcommerce.openadmin.server.factory.PersistencePackageFactory;
+import org.broadleafcommerce.openadmin.server.service.AdminEntityService;
+import org.broadleafcommerce.openadmin.server.service.DynamicEntityService;
+import org.broadleafcommerce.openadmin.server.service.persistence.module.criteria.KeysetPosition;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+/**
+ * Default {@link EntityExportService}. Every chunk is fetched in its own read-only transaction with a read-only
+ * Hibernate session, and the persistence context is cleared once the chunk is written, so the memory an export uses
+ * does not grow with the number of records. Chunks after the first seek to their start using keyset paging and skip
+ * the count query. The export keeps track of the keyset position itself, so it does not depend on the positions the
+ * list grid records in the shared FetchPagingService, which can be evicted at any time.
+ */
+@Service("blEntityExportService")
+public class EntityExportServiceImpl implements EntityExportService {
+
+    private static final Log LOG = LogFactory.getLog(EntityExportServiceImpl.class);
+
+    @Resource(name = "blAdminEntityService")
+    protected AdminEntityService adminEntityService;
+
+    @Resource(name = "blDynamicEntityRemoteService")
+    protected DynamicEntityService dynamicEntityService;
+
+    @Resource(name = "blPersistencePackageFactory")
+    protected PersistencePackageFactory persistencePackageFactory;
+
+    @Resource(name = "blTransactionManager")
+    protected PlatformTransactionManager transactionManager;
+
+    @PersistenceContext(unitName = "blPU")
+    protected EntityManager em;
+
+    @Value("${admin.export.chunk.size:500}")
+    protected int chunkSize = 500;
+
+    @Value("${admin.export.threads:2}")
+    protected int threads = 2;
+
+    /**
+     * The number of seconds a finished export and its file are kept around for download
+     */
+    @Value("${admin.export.job.ttl:3600}")
+    protected int jobTtl = 3600;
+
+    protected final ConcurrentMap<String, EntityExportJob> jobs = new ConcurrentHashMap<String, EntityExportJob>();
+
+    protected volatile ExecutorService exportExecutor;
+
+    @Override
+    public EntityExportJob startExport(final PersistencePackageRequest request, EntityExportFormat format,
+            Long adminUserId) {
+        purgeExpiredJobs();
+        final EntityExportJob job = new EntityExportJob(UUID.randomUUID().toString(),
+                request.getCeilingEntityClassname(), format, adminUserId);
+        jobs.put(job.getId(), job);
+
+        final BroadleafRequestContext context = BroadleafRequestContext.getBroadleafRequestContext() == null ? null
+                : BroadleafRequestContext.getBroadleafRequestContext().createLightWeightClone();
+        final SecurityContext securityContext = SecurityContextHolder.getContext();
+        getExportExecutor().execute(new Runnable() {
+
+            @Override
+            public void run() {
+                BroadleafRequestContext.setBroadleafRequestContext(context);
+                SecurityContextHolder.setContext(securityContext);
+                try {
+                    runExport(request, job);
+                } finally {
+                    SecurityContextHolder.clearContext();
+                    BroadleafRequestContext.setBroadleafRequestContext(null);
+                }
+            }
+        });
+        return job;
+    }
+
+    protected void runExport(PersistencePackageRequest request, EntityExportJob job) {
+        Writer writer = null;
+        try {
+            File file = File.createTempFile("blExport-", "." + job.getFormat().getExtension());
+            job.setFile(file);
+            writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+            export(request, createWriter(job.getFormat(), writer), job);
+            writer.close();
+            writer = null;
+            job.complete();
+        } catch (Exception e) {
+            LOG.error("Unable to export " + job.getCeilingEntityClassname(), e);
+            job.fail(e.getMessage());
+        } finally {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    // the export has already failed
+                }
+            }
+        }
+    }
+
+    protected EntityExportWriter createWriter(EntityExportFormat format, Writer writer) throws IOException {
+        switch (format) {
+            case JSON_LINES:
+                return new JsonLinesEntityExportWriter(writer);
+            default:
+                return new CsvEntityExportWriter(writer);
+        }
+    }
+
+    @Override
+    public EntityExportJob getJob(String jobId) {
+        purgeExpiredJobs();
+        return jobs.get(jobId);
+    }
+
+    @Override
+    public void export(PersistencePackageRequest request, EntityExportWriter writer, EntityExportJob job)
+            throws ServiceException {
+        ClassMetadata cmd = getClassMetadata(request);
+        List<Property> columns = getExportColumns(cmd);
+        String[] names = new String[columns.size()];
+        String[] labels = new String[columns.size()];
+        for (int i = 0; i < columns.size(); i++) {
+            names[i] = columns.get(i).getName();
+            String label = columns.get(i).getMetadata().getFriendlyName();
+            labels[i] = label == null ? names[i] : label;
+        }
+
+        try {
+            writer.writeHeader(names, labels);
+            String[] values = new String[names.length];
+            int offset = 0;
+            KeysetPosition position = new KeysetPosition();
+            Entity[] records;
+            do {
+                CriteriaTransferObject cto = buildChunkCriteria(request, offset, position);
+                DynamicResultSet drs = fetchChunk(request, cto);
+                records = drs.getRecords();
+                if (offset == 0 && job != null && drs.getTotalRecords() != null) {
+                    job.setTotalCount(drs.getTotalRecords());
+                }
+                for (Entity record : records) {
+                    for (int i = 0; i < names.length; i++) {
+                        values[i] = getExportValue(record.findProperty(names[i]));
+                    }
+                    writer.writeRecord(values);
+                }
+                writer.flush();
+                offset += records.length;
+                if (job != null) {
+                    job.addExportedCount(records.length);
+                }
+                if (position != null) {
+                    position = cto.getNextKeysetPosition();
+                    if (position == null && records.length == chunkSize && LOG.isDebugEnabled()) {
+                        LOG.debug("The export of " + request.getCeilingEntityClassname() + " can't seek past record "
+                                + offset + ", the remaining chunks are read with an offset");
+                    }
+                }
+            } while (records.length == chunkSize);
+        } catch (IOException e) {
+            throw new ServiceException("Unable to write the export of " + request.getCeilingEntityClassname(), e);
+        }
+    }
+
+    protected ClassMetadata getClassMetadata(PersistencePackageRequest request) throws ServiceException {
+        return adminEntityService.getClassMetadata(request).getDynamicResultSet().getClassMetaData();
+    }
+
+    /**
+     * Builds the criteria of a single chunk. Only the first chunk counts the records.
+     * 
+     * @param request
+     * @param offset the number of records exported so far
+     * @param position the position after the last exported record, or null if the chunk has to be read with an offset
+     * @return the criteria
+     */
+    protected CriteriaTransferObject buildChunkCriteria(PersistencePackageRequest request, int offset,
+            KeysetPosition position) {
+        CriteriaTransferObject cto = new CriteriaTransferObject();
+        if (request.getFilterAndSortCriteria() != null) {
+            cto.addAll(Arrays.asList(request.getFilterAndSortCriteria()));
+        }
+        cto.setFirstResult(offset);
+        cto.setMaxResults(chunkSize);
+        cto.setKeysetPaging(position != null);
+        cto.setKeysetPosition(position);
+        cto.setTotalCountRequired(offset == 0);
+        return cto;
+    }
+
+    /**
+     * Fetches a single chunk in a read-only transaction. The persistence context is cleared afterwards, as nothing
+     * read for the chunk is needed once its records have been converted.
+     */
+    protected DynamicResultSet fetchChunk(PersistencePackageRequest request, CriteriaTransferObject cto)
+            throws ServiceException {
+        PersistencePackage pkg = persistencePackageFactory.create(request);
+        TransactionStatus status = TransactionUtils.createTransaction(TransactionDefinition.PROPAGATION_REQUIRED,
+                transactionManager, true);
+        boolean isError = false;
+        try {
+            Session session = em.unwrap(Session.class);
+            session.setDefaultReadOnly(true);
+            session.setFlushMode(FlushMode.MANUAL);
+            return dynamicEntityService.fetch(pkg, cto).getDynamicResultSet();
+        } catch (ServiceException e) {
+            isError = true;
+            throw e;
+        } catch (RuntimeException e) {
+            isError = true;
+            throw e;
+        } finally {
+            em.clear();
+            TransactionUtils.finalizeTransaction(status, transactionManager, isError);
+        }
+    }
+
+    /**
+     * The fields that are exported are the simple fields of the entity that an admin user is allowed to see
+     */
+    protected List<Property> getExportColumns(ClassMetadata cmd) {
+        List<Property> columns = new ArrayList<Property>();
+        for (Property property : cmd.getProperties()) {
+            FieldMetadata md = property.getMetadata();
+            if (!(md instanceof BasicFieldMetadata) || Boolean.TRUE.equals(md.getExcluded())) {
+                continue;
+            }
+            BasicFieldMetadata fmd = (BasicFieldMetadata) md;
+            if (VisibilityEnum.HIDDEN_ALL == fmd.getVisibility() || SupportedFieldType.PASSWORD == fmd.getFieldType()
+                    || SupportedFieldType.PASSWORD_CONFIRM == fmd.getFieldType()
+                    || SupportedFieldType.HIDDEN == fmd.getFieldType()) {
+                continue;
+            }
+            columns.add(property);
+        }
+        Collections.sort(columns, new Comparator<Property>() {
+
+            @Override
+            public int compare(Property o1, Property o2) {
+                Integer order1 = o1.getMetadata().getOrder();
+                Integer order2 = o2.getMetadata().getOrder();
+                int result = Integer.valueOf(order1 == null ? Integer.MAX_VALUE : order1)
+                        .compareTo(order2 == null ? Integer.MAX_VALUE : order2);
+                return result != 0 ? result : o1.getName().compareTo(o2.getName());
+            }
+        });
+        return columns;
+    }
+
+    protected String getExportValue(Property property) {
+        if (property == null) {
+            return null;
+        }
+        return property.getDisplayValue() != null ? property.getDisplayValue() : property.getValue();
+    }
+
+    protected void purgeExpiredJobs() {
+        long expiry = System.currentTimeMillis() - jobTtl * 1000L;
+        Iterator<EntityExportJob> iterator = jobs.values().iterator();
+        while (iterator.hasNext()) {
+            EntityExportJob job = iterator.next();
+            if (job.getStatus() != EntityExportJob.Status.RUNNING && job.getCompleted() < expiry) {
+                iterator.remove();
+                if (job.getFile() != null && !job.getFile().delete()) {
+                    LOG.warn("Unable to delete the expired export file " + job.getFile().getAbsolutePath());
+                }
+            }
+        }
+    }
+
+    protected ExecutorService getExportExecutor() {
+        if (exportExecutor == null) {
+            synchronized (this) {
+                if (exportExecutor == null) {
+                    final AtomicInteger threadCount = new AtomicInteger();
+                    exportExecutor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread thread = new Thread(r, "blEntityExport-" + threadCount.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+                }
+            }
+        }
+        return exportExecutor;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (exportExecutor != null) {
+            exportExecutor.shutdownNow();
+        }
+        for (EntityExportJob job : jobs.values()) {
+            if (job.getFile() != null) {
+                job.getFile().delete();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,54 @@
+/*
+ * #%L
+ * BroadleafCommerce Open Admin Platform
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.openadmin.server.service.export;
+
+import java.io.IOException;
+
+/**
+ * Writes the records of an entity export one at a time, so that an export never holds more than a single record.
+ */
+public interface EntityExportWriter {
+
+    /**
+     * Called once before any record is written
+     * 
+     * @param names the property names of the exported fields
+     * @param labels the labels of the exported fields, in the same order as the names
+     * @throws IOException
+     */
+    public void writeHeader(String[] names, String[] labels) throws IOException;
+
+    /**
+     * Writes a single record
+     * 
+     * @param values the values of the exported fields, in the same order as the names passed to
+     * {@link #writeHeader(String[], String[])}. A value may be null.
+     * @throws IOException
+     */
+    public void writeRecord(String[] values) throws IOException;
+
+    /**
+     * Flushes any buffered output. The underlying writer is not closed.
+     * 
+     * @throws IOException
+     */
+    public void flush() throws IOException;
+
+}
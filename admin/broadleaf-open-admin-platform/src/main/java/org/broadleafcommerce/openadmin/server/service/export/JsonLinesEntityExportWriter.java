@@ -0,0 +1,66 @@
+/*
+ * #%L
+ * BroadleafCommerce Open Admin Platform
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.openadmin.server.service.export;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes one JSON object per line, keyed by the property names of the exported fields. Null values are omitted.
+ */
+public class JsonLinesEntityExportWriter implements EntityExportWriter {
+
+    protected static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    protected final JsonGenerator generator;
+    protected String[] names;
+
+    public JsonLinesEntityExportWriter(Writer writer) throws IOException {
+        generator = JSON_FACTORY.createGenerator(writer);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(new SerializedString("\n"));
+    }
+
+    @Override
+    public void writeHeader(String[] names, String[] labels) throws IOException {
+        this.names = names;
+    }
+
+    @Override
+    public void writeRecord(String[] values) throws IOException {
+        generator.writeStartObject();
+        for (int i = 0; i < names.length; i++) {
+            if (values[i] != null) {
+                generator.writeStringField(names[i], values[i]);
+            }
+        }
+        generator.writeEndObject();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        generator.flush();
+    }
+
+}
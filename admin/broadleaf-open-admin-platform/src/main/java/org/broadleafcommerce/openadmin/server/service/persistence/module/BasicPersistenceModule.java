@@ -67,6 +67,7 @@ import org.broadleafcommerce.openadmin.server.service.persistence.module.criteri
 import org.broadleafcommerce.openadmin.server.service.persistence.module.criteria.CriteriaTranslator;
 import org.broadleafcommerce.openadmin.server.service.persistence.module.criteria.FieldPath;
 import org.broadleafcommerce.openadmin.server.service.persistence.module.criteria.FilterMapping;
+import org.broadleafcommerce.openadmin.server.service.persistence.module.criteria.KeysetPosition;
 import org.broadleafcommerce.openadmin.server.service.persistence.module.criteria.RestrictionFactory;
 import org.broadleafcommerce.openadmin.server.service.persistence.module.criteria.converter.FilterValueConverter;
 import org.broadleafcommerce.openadmin.server.service.persistence.module.criteria.predicate.EqPredicateProvider;
@@ -119,6 +120,7 @@ import java.util.StringTokenizer;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
+import javax.persistence.TypedQuery;
 
 /**
  * @author jfischer
@@ -157,6 +159,9 @@ public class BasicPersistenceModule implements PersistenceModule, RecordHelper,
     @Resource(name = "blBasicPersistenceModuleExtensionManager")
     protected BasicPersistenceModuleExtensionManager extensionManager;
 
+    @Resource(name = "blFetchPagingService")
+    protected FetchPagingService fetchPagingService;
+
     @PostConstruct
     public void init() {
         Collections.sort(fieldPersistenceProviders, new Comparator<FieldPersistenceProvider>() {
@@ -754,6 +759,7 @@ public class BasicPersistenceModule implements PersistenceModule, RecordHelper,
                 }
 
                 instance = persistenceManager.getDynamicEntityDao().merge(instance);
+                clearFetchState(persistencePackage);
                 if (includeRealEntity) {
                     entityResult.setEntityBackingObject(instance);
                 }
@@ -1000,6 +1006,7 @@ public class BasicPersistenceModule implements PersistenceModule, RecordHelper,
                 }
 
                 instance = persistenceManager.getDynamicEntityDao().merge(instance);
+                clearFetchState(persistencePackage);
                 if (includeRealEntityObject) {
                     entityResult.setEntityBackingObject(instance);
                 }
@@ -1082,11 +1089,23 @@ public class BasicPersistenceModule implements PersistenceModule, RecordHelper,
                     persistenceManager.getDynamicEntityDao().remove(instance);
                     break;
             }
+            clearFetchState(persistencePackage);
         } catch (Exception e) {
             throw new ServiceException("Problem removing entity : " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Drops the cached counts and keyset positions of the entity once its records changed, since an update can move a
+     * record across a filter or to another position in the sort order just like an add or remove changes the count
+     */
+    protected void clearFetchState(PersistencePackage persistencePackage) {
+        fetchPagingService.clearFetchState(persistencePackage.getCeilingEntityFullyQualifiedClassname());
+        if (StringUtils.isNotEmpty(persistencePackage.getFetchTypeFullyQualifiedClassname())) {
+            fetchPagingService.clearFetchState(persistencePackage.getFetchTypeFullyQualifiedClassname());
+        }
+    }
+
     public Map<String, FieldMetadata> getMergedProperties(PersistencePackage persistencePackage,
             CriteriaTransferObject cto) throws ServiceException {
         PersistencePerspective persistencePerspective = persistencePackage.getPersistencePerspective();
@@ -1123,6 +1142,7 @@ public class BasicPersistenceModule implements PersistenceModule, RecordHelper,
     public DynamicResultSet fetch(PersistencePackage persistencePackage, CriteriaTransferObject cto) throws ServiceException {
         Entity[] payload;
         int totalRecords;
+        boolean totalRecordsCapped = false;
         PersistencePerspective persistencePerspective = persistencePackage.getPersistencePerspective();
         String ceilingEntityFullyQualifiedClassname = persistencePackage.getCeilingEntityFullyQualifiedClassname();
         ForeignKey foreignKey = (ForeignKey) persistencePerspective.getPersistencePerspectiveItems().get(PersistencePerspectiveItemType.FOREIGNKEY);
@@ -1145,20 +1165,142 @@ public class BasicPersistenceModule implements PersistenceModule, RecordHelper,
                 standardFilterMappings.addAll(cto.getNonCountAdditionalFilterMappings());
             }
 
-            List<Serializable> records = getPersistentRecords(persistencePackage.getFetchTypeFullyQualifiedClassname(), standardFilterMappings, cto.getFirstResult(), cto.getMaxResults());
+            String fetchType = persistencePackage.getFetchTypeFullyQualifiedClassname();
+            List<Serializable> records;
+            boolean keysetPaging = cto.getKeysetPaging() == null ? fetchPagingService.isKeysetPagingEnabled() : cto.getKeysetPaging();
+            if (keysetPaging && cto.getMaxResults() != null) {
+                records = getKeysetPersistentRecords(fetchType, standardFilterMappings, cto);
+            } else {
+                records = getPersistentRecords(fetchType, standardFilterMappings, cto.getFirstResult(), cto.getMaxResults());
+            }
 
             List<FilterMapping> countFilterMappings = new ArrayList<FilterMapping>(filterMappings);
             if (CollectionUtils.isNotEmpty(cto.getAdditionalFilterMappings())) {
                 countFilterMappings.addAll(cto.getAdditionalFilterMappings());
             }
-            totalRecords = getTotalRecords(persistencePackage.getFetchTypeFullyQualifiedClassname(), countFilterMappings);
+            int firstResult = cto.getFirstResult() == null ? 0 : cto.getFirstResult();
+            if (CollectionUtils.isEmpty(cto.getNonCountAdditionalFilterMappings()) && cto.getMaxResults() != null
+                    && records.size() < cto.getMaxResults() && (firstResult == 0 || !records.isEmpty())) {
+                // A partial page is the last one, so the records read so far are all of them
+                totalRecords = firstResult + records.size();
+            } else if (!cto.isTotalCountRequired()) {
+                totalRecords = firstResult + records.size();
+                totalRecordsCapped = true;
+            } else {
+                switch (fetchPagingService.getCountStrategy()) {
+                    case CACHED:
+                        String countSignature = fetchPagingService.getFetchSignature(fetchType, countFilterMappings);
+                        Integer cachedCount = fetchPagingService.getCachedCount(countSignature);
+                        if (cachedCount == null) {
+                            cachedCount = getTotalRecords(fetchType, countFilterMappings);
+                            fetchPagingService.putCachedCount(countSignature, cachedCount);
+                        }
+                        totalRecords = cachedCount;
+                        break;
+                    case ESTIMATED:
+                        // Count at least a page past this one, so that a paginator scrolling beyond the cap always
+                        // learns of a larger total before it runs out of records to fetch
+                        int lookahead = cto.getMaxResults() == null ? 0 : cto.getMaxResults();
+                        int maxCount = Math.max(fetchPagingService.getEstimatedCountCap(), firstResult + records.size() + lookahead);
+                        int count = getTotalRecords(fetchType, countFilterMappings, maxCount);
+                        totalRecordsCapped = count > maxCount;
+                        totalRecords = Math.min(count, maxCount);
+                        break;
+                    default:
+                        totalRecords = getTotalRecords(fetchType, countFilterMappings);
+                }
+            }
 
             payload = getRecords(mergedProperties, records, null, null);
         } catch (Exception e) {
             throw new ServiceException("Unable to fetch results for " + ceilingEntityFullyQualifiedClassname, e);
         }
 
-        return new DynamicResultSet(null, payload, totalRecords);
+        DynamicResultSet results = new DynamicResultSet(null, payload, totalRecords);
+        results.setTotalRecordsCapped(totalRecordsCapped);
+        return results;
+    }
+
+    /**
+     * Reads a page like {@link #getPersistentRecords(String, List, Integer, Integer)}, but seeks to the start of the
+     * page when a previous fetch recorded where it starts. The position at which the following page starts is
+     * recorded in turn, so that scrolling through a list never has the database skip over the preceding records.
+     */
+    protected List<Serializable> getKeysetPersistentRecords(String ceilingEntity, List<FilterMapping> filterMappings,
+            Integer firstResult, Integer maxResults) {
+        CriteriaTransferObject cto = new CriteriaTransferObject();
+        cto.setFirstResult(firstResult);
+        cto.setMaxResults(maxResults);
+        return getKeysetPersistentRecords(ceilingEntity, filterMappings, cto);
+    }
+
+    /**
+     * Reads a page with keyset paging. When the criteria carry their own
+     * {@link CriteriaTransferObject#getKeysetPosition()} it is used instead of the recorded positions, and the position
+     * after the page is handed back through {@link CriteriaTransferObject#setNextKeysetPosition(KeysetPosition)}
+     * rather than recorded.
+     */
+    protected List<Serializable> getKeysetPersistentRecords(String ceilingEntity, List<FilterMapping> filterMappings,
+            CriteriaTransferObject cto) {
+        Integer firstResult = cto.getFirstResult();
+        Integer maxResults = cto.getMaxResults();
+        boolean isOwnPosition = cto.getKeysetPosition() != null;
+        String fetchSignature = isOwnPosition ? null : fetchPagingService.getFetchSignature(ceilingEntity, filterMappings);
+        int offset = firstResult == null ? 0 : firstResult;
+        KeysetPosition position = cto.getKeysetPosition();
+        if (!isOwnPosition && offset > 0) {
+            position = fetchPagingService.getKeysetPosition(fetchSignature, offset);
+        }
+        if (position == null) {
+            position = new KeysetPosition();
+        }
+        cto.setNextKeysetPosition(null);
+
+        List<Serializable> records;
+        try {
+            records = criteriaTranslator.translateQuery(persistenceManager.getDynamicEntityDao(), ceilingEntity,
+                    filterMappings, firstResult, maxResults, position).getResultList();
+        } catch (CriteriaConversionException e) {
+            return getPersistentRecords(ceilingEntity, filterMappings, firstResult, maxResults);
+        }
+
+        if (!records.isEmpty() && records.size() == maxResults) {
+            KeysetPosition nextPosition = getKeysetPosition(records.get(records.size() - 1), filterMappings);
+            if (isOwnPosition) {
+                cto.setNextKeysetPosition(nextPosition);
+            } else if (nextPosition != null) {
+                fetchPagingService.putKeysetPosition(fetchSignature, offset + records.size(), nextPosition);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * @return the position after the given record, or null if its id or sort value can't be used to seek
+     */
+    protected KeysetPosition getKeysetPosition(Serializable record, List<FilterMapping> filterMappings) {
+        Map<String, Object> idMetadata = persistenceManager.getDynamicEntityDao().getIdMetadata(record.getClass());
+        if (idMetadata == null || !(idMetadata.get("name") instanceof String)) {
+            return null;
+        }
+        try {
+            Object id = getFieldManager().getFieldValue(record, (String) idMetadata.get("name"));
+            Object sortValue = null;
+            for (FilterMapping filterMapping : filterMappings) {
+                if (filterMapping.getSortDirection() != null && filterMapping.getFullPropertyName() != null) {
+                    sortValue = getFieldManager().getFieldValue(record, filterMapping.getFullPropertyName());
+                    break;
+                }
+            }
+            if (!(id instanceof Comparable) || !(id instanceof Serializable)
+                    || (sortValue != null && !(sortValue instanceof Comparable))) {
+                return null;
+            }
+            return new KeysetPosition(sortValue, (Serializable) id);
+        } catch (Exception e) {
+            LOG.debug("Unable to determine the keyset position after a record of " + record.getClass().getName(), e);
+            return null;
+        }
     }
 
     @Override
@@ -1172,6 +1314,25 @@ public class BasicPersistenceModule implements PersistenceModule, RecordHelper,
         }
     }
 
+    /**
+     * Counts the records, but stops counting after maxCount records. A single id is read at offset maxCount first, so
+     * the full count only runs when there are at most maxCount records to count.
+     * 
+     * @return the number of records, or maxCount + 1 if there are more than maxCount records
+     */
+    public Integer getTotalRecords(String ceilingEntity, List<FilterMapping> filterMappings, int maxCount) {
+        try {
+            TypedQuery<Serializable> query = criteriaTranslator.translateIdQuery(persistenceManager.getDynamicEntityDao(),
+                    ceilingEntity, filterMappings, maxCount, 1);
+            if (query != null && !query.getResultList().isEmpty()) {
+                return maxCount + 1;
+            }
+        } catch (CriteriaConversionException e) {
+            // The exact count handles the special cases
+        }
+        return getTotalRecords(ceilingEntity, filterMappings);
+    }
+
     @Override
     public Serializable getMaxValue(String ceilingEntity, List<FilterMapping> filterMappings, String maxField) {
         return criteriaTranslator.translateMaxQuery(persistenceManager.getDynamicEntityDao(),
@@ -0,0 +1,69 @@
+/*
+ * #%L
+ * BroadleafCommerce Open Admin Platform
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.openadmin.server.service.persistence.module;
+
+import org.broadleafcommerce.openadmin.server.service.persistence.module.criteria.FilterMapping;
+import org.broadleafcommerce.openadmin.server.service.persistence.module.criteria.KeysetPosition;
+import org.broadleafcommerce.openadmin.server.service.type.CountStrategyType;
+
+import java.util.List;
+
+/**
+ * Keeps the state that lets {@link BasicPersistenceModule} page through large entity lists cheaply across requests:
+ * the keyset positions at which pages start and the record counts of recent fetches. Fetches are identified by a
+ * signature of the ceiling entity, the filters and sorts, and the admin user, site, catalog and sandbox of the request.
+ */
+public interface FetchPagingService {
+
+    /**
+     * @return whether sorted fetches should seek to the start of a page instead of skipping the preceding records
+     */
+    boolean isKeysetPagingEnabled();
+
+    CountStrategyType getCountStrategy();
+
+    /**
+     * @return the number of records after which the {@link CountStrategyType#ESTIMATED} strategy stops counting
+     */
+    int getEstimatedCountCap();
+
+    String getFetchSignature(String ceilingEntity, List<FilterMapping> filterMappings);
+
+    /**
+     * @return the position at which the page starting at the given offset was last found to start, or null
+     */
+    KeysetPosition getKeysetPosition(String fetchSignature, int firstResult);
+
+    void putKeysetPosition(String fetchSignature, int firstResult, KeysetPosition position);
+
+    /**
+     * @return the cached count for the fetch, or null if it isn't cached or has expired
+     */
+    Integer getCachedCount(String fetchSignature);
+
+    void putCachedCount(String fetchSignature, int count);
+
+    /**
+     * Removes the cached counts and positions of all fetches of the ceiling entity, typically after one of its
+     * records was added or removed
+     */
+    void clearFetchState(String ceilingEntity);
+
+}
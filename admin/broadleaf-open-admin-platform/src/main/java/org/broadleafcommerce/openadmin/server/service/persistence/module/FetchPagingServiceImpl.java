@@ -0,0 +1,189 @@
+/*
+ * #%L
+ * BroadleafCommerce Open Admin Platform
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.openadmin.server.service.persistence.module;
+
+import org.broadleafcommerce.common.util.EfficientLRUMap;
+import org.broadleafcommerce.common.web.BroadleafRequestContext;
+import org.broadleafcommerce.openadmin.server.service.persistence.module.criteria.FilterMapping;
+import org.broadleafcommerce.openadmin.server.service.persistence.module.criteria.KeysetPosition;
+import org.broadleafcommerce.openadmin.server.service.type.CountStrategyType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * Holds the paging state in bounded LRU maps. Both the counts and the keyset positions expire after
+ * admin.fetch.count.cache.ttl seconds so that neither drifts too far from the data.
+ */
+@Service("blFetchPagingService")
+public class FetchPagingServiceImpl implements FetchPagingService {
+
+    @Value("${admin.fetch.keyset.enabled:false}")
+    protected boolean keysetPagingEnabled;
+
+    @Value("${admin.fetch.count.strategy:EXACT}")
+    protected String countStrategy;
+
+    @Value("${admin.fetch.count.cache.ttl:60}")
+    protected int countCacheTtl;
+
+    @Value("${admin.fetch.count.estimate.cap:10000}")
+    protected int estimatedCountCap;
+
+    protected CountStrategyType countStrategyType;
+
+    protected Map<String, TimedValue<Integer>> counts = new EfficientLRUMap<String, TimedValue<Integer>>(1000);
+    protected Map<String, TimedValue<KeysetPosition>> keysetPositions = new EfficientLRUMap<String, TimedValue<KeysetPosition>>(5000);
+
+    /**
+     * Resolves the configured count strategy once, so that a misconfigured strategy fails the startup instead of
+     * every fetch
+     */
+    @PostConstruct
+    public void init() {
+        try {
+            countStrategyType = CountStrategyType.valueOf(countStrategy.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown admin.fetch.count.strategy '" + countStrategy + "', expected one of "
+                    + Arrays.toString(CountStrategyType.values()), e);
+        }
+    }
+
+    @Override
+    public boolean isKeysetPagingEnabled() {
+        return keysetPagingEnabled;
+    }
+
+    @Override
+    public CountStrategyType getCountStrategy() {
+        return countStrategyType;
+    }
+
+    @Override
+    public int getEstimatedCountCap() {
+        return estimatedCountCap;
+    }
+
+    @Override
+    public String getFetchSignature(String ceilingEntity, List<FilterMapping> filterMappings) {
+        StringBuilder sb = new StringBuilder(ceilingEntity).append('|');
+        BroadleafRequestContext brc = BroadleafRequestContext.getBroadleafRequestContext();
+        if (brc != null) {
+            sb.append("user=").append(brc.getAdminUserId());
+            sb.append("|sandbox=").append(brc.getSandBoxId());
+            sb.append("|site=").append(brc.getNonPersistentSite() == null ? null : brc.getNonPersistentSite().getId());
+            sb.append("|catalog=").append(brc.getCurrentCatalog() == null ? null : brc.getCurrentCatalog().getId());
+        }
+
+        List<String> mappings = new ArrayList<String>();
+        for (FilterMapping filterMapping : filterMappings) {
+            StringBuilder mapping = new StringBuilder();
+            mapping.append(filterMapping.getFullPropertyName());
+            if (filterMapping.getFieldPath() != null) {
+                mapping.append("|path=").append(filterMapping.getFieldPath().getAssociationPath())
+                        .append(filterMapping.getFieldPath().getTargetProperty());
+            }
+            if (filterMapping.getRestriction() != null && filterMapping.getRestriction().getPredicateProvider() != null) {
+                mapping.append("|restriction=").append(filterMapping.getRestriction().getPredicateProvider().getClass().getName());
+            }
+            mapping.append("|values=").append(filterMapping.getFilterValues());
+            mapping.append("|direct=").append(filterMapping.getDirectFilterValues());
+            mapping.append("|sort=").append(filterMapping.getSortDirection());
+            mapping.append("|nullsLast=").append(filterMapping.getNullsLast());
+            mapping.append("|inherited=").append(filterMapping.getInheritedFromClass());
+            mappings.add(mapping.toString());
+        }
+        // The order of the mappings is not significant and is changed in place while translating the query
+        Collections.sort(mappings);
+        for (String mapping : mappings) {
+            sb.append('#').append(mapping);
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public KeysetPosition getKeysetPosition(String fetchSignature, int firstResult) {
+        return getUnexpired(keysetPositions, fetchSignature + "@" + firstResult);
+    }
+
+    @Override
+    public void putKeysetPosition(String fetchSignature, int firstResult, KeysetPosition position) {
+        keysetPositions.put(fetchSignature + "@" + firstResult, new TimedValue<KeysetPosition>(position, getExpiration()));
+    }
+
+    @Override
+    public Integer getCachedCount(String fetchSignature) {
+        return getUnexpired(counts, fetchSignature);
+    }
+
+    @Override
+    public void putCachedCount(String fetchSignature, int count) {
+        counts.put(fetchSignature, new TimedValue<Integer>(count, getExpiration()));
+    }
+
+    @Override
+    public void clearFetchState(String ceilingEntity) {
+        removeByPrefix(counts, ceilingEntity + "|");
+        removeByPrefix(keysetPositions, ceilingEntity + "|");
+    }
+
+    protected <T> T getUnexpired(Map<String, TimedValue<T>> map, String key) {
+        TimedValue<T> timedValue = map.get(key);
+        if (timedValue == null) {
+            return null;
+        }
+        if (timedValue.expiration < System.currentTimeMillis()) {
+            map.remove(key);
+            return null;
+        }
+        return timedValue.value;
+    }
+
+    protected void removeByPrefix(Map<String, ?> map, String prefix) {
+        for (String key : new ArrayList<String>(map.keySet())) {
+            if (key.startsWith(prefix)) {
+                map.remove(key);
+            }
+        }
+    }
+
+    protected long getExpiration() {
+        return System.currentTimeMillis() + countCacheTtl * 1000L;
+    }
+
+    protected static class TimedValue<T> {
+
+        protected final T value;
+        protected final long expiration;
+
+        public TimedValue(T value, long expiration) {
+            this.value = value;
+            this.expiration = expiration;
+        }
+    }
+
+}
@@ -32,7 +32,23 @@ public interface CriteriaTranslator {
 
     TypedQuery<Serializable> translateQuery(DynamicEntityDao dynamicEntityDao, String ceilingEntity, List<FilterMapping> filterMappings, Integer firstResult, Integer maxResults);
 
+    /**
+     * Translates the query like {@link #translateQuery(DynamicEntityDao, String, List, Integer, Integer)}, but with a
+     * keyset compatible ordering (nulls last and the id as a tie breaker) whenever the fetch is sorted by at most one
+     * property of the ceiling entity. If the position is not the start, the records after the position are sought
+     * instead of skipping firstResult records. Fetches that don't qualify ignore the position and use the offset.
+     */
+    TypedQuery<Serializable> translateQuery(DynamicEntityDao dynamicEntityDao, String ceilingEntity, List<FilterMapping> filterMappings, Integer firstResult, Integer maxResults, KeysetPosition keysetPosition);
+
     TypedQuery<Serializable> translateCountQuery(DynamicEntityDao dynamicEntityDao, String ceilingEntity, List<FilterMapping> filterMappings);
 
+    /**
+     * Translates an unsorted query for just the ids of the matching records. Reading a single id at firstResult is a
+     * cheap probe of whether there are more than firstResult records.
+     * 
+     * @return the query, or null if the entity does not have a single column id
+     */
+    TypedQuery<Serializable> translateIdQuery(DynamicEntityDao dynamicEntityDao, String ceilingEntity, List<FilterMapping> filterMappings, Integer firstResult, Integer maxResults);
+
     TypedQuery<Serializable> translateMaxQuery(DynamicEntityDao dynamicEntityDao, String ceilingEntity, List<FilterMapping> filterMappings, String maxField);
 }
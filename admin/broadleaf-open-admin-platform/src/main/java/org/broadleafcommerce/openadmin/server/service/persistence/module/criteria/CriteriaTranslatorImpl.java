@@ -29,6 +29,8 @@ import org.broadleafcommerce.openadmin.server.dao.DynamicEntityDao;
 import org.broadleafcommerce.openadmin.server.security.remote.SecurityVerifier;
 import org.broadleafcommerce.openadmin.server.security.service.RowLevelSecurityService;
 import org.broadleafcommerce.openadmin.server.service.persistence.module.EmptyFilterValues;
+import org.broadleafcommerce.openadmin.server.service.persistence.module.FieldManager;
+import org.hibernate.metadata.ClassMetadata;
 import org.hibernate.type.SingleColumnType;
 import org.springframework.stereotype.Service;
 
@@ -82,6 +84,16 @@ public class CriteriaTranslatorImpl implements CriteriaTranslator {
         return constructQuery(dynamicEntityDao, ceilingEntity, filterMappings, false, false, firstResult, maxResults, null);
     }
 
+    @Override
+    public TypedQuery<Serializable> translateQuery(DynamicEntityDao dynamicEntityDao, String ceilingEntity, List<FilterMapping> filterMappings, Integer firstResult, Integer maxResults, KeysetPosition keysetPosition) {
+        return constructQuery(dynamicEntityDao, ceilingEntity, filterMappings, false, false, false, firstResult, maxResults, null, keysetPosition);
+    }
+
+    @Override
+    public TypedQuery<Serializable> translateIdQuery(DynamicEntityDao dynamicEntityDao, String ceilingEntity, List<FilterMapping> filterMappings, Integer firstResult, Integer maxResults) {
+        return constructQuery(dynamicEntityDao, ceilingEntity, filterMappings, false, false, true, firstResult, maxResults, null, null);
+    }
+
     /**
      * Determines the appropriate entity in this current class tree to use as the ceiling entity for the query. Because
      * we filter with AND instead of OR, we throw an exception if an attempt to utilize properties from mutually exclusive
@@ -165,8 +177,12 @@ public class CriteriaTranslatorImpl implements CriteriaTranslator {
         return null;
     }
 
-    @SuppressWarnings("unchecked")
     protected TypedQuery<Serializable> constructQuery(DynamicEntityDao dynamicEntityDao, String ceilingEntity, List<FilterMapping> filterMappings, boolean isCount, boolean isMax, Integer firstResult, Integer maxResults, String maxField) {
+        return constructQuery(dynamicEntityDao, ceilingEntity, filterMappings, isCount, isMax, false, firstResult, maxResults, maxField, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    protected TypedQuery<Serializable> constructQuery(DynamicEntityDao dynamicEntityDao, String ceilingEntity, List<FilterMapping> filterMappings, boolean isCount, boolean isMax, boolean isIdOnly, Integer firstResult, Integer maxResults, String maxField, KeysetPosition keysetPosition) {
 
         CriteriaBuilder criteriaBuilder = dynamicEntityDao.getStandardEntityManager().getCriteriaBuilder();
 
@@ -185,11 +201,17 @@ public class CriteriaTranslatorImpl implements CriteriaTranslator {
         Class<Serializable> ceilingClass = determineRoot(dynamicEntityDao, ceilingMarker, filterMappings);
         CriteriaQuery<Serializable> criteria = criteriaBuilder.createQuery(ceilingMarker);
         Root<Serializable> original = criteria.from(ceilingClass);
+        String idFieldName = getSingleColumnIdFieldName(dynamicEntityDao, ceilingClass);
 
         if (isCount) {
             criteria.select(criteriaBuilder.count(original));
         } else if (isMax) {
             criteria.select(criteriaBuilder.max((Path<Number>) ((Object) original.get(maxField))));
+        } else if (isIdOnly) {
+            if (idFieldName == null) {
+                return null;
+            }
+            criteria.select(original.<Serializable>get(idFieldName));
         } else {
             criteria.select(original);
         }
@@ -198,32 +220,162 @@ public class CriteriaTranslatorImpl implements CriteriaTranslator {
         List<Order> sorts = new ArrayList<Order>();
         addRestrictions(ceilingEntity, filterMappings, criteriaBuilder, original, restrictions, sorts, criteria);
 
+        boolean isSeek = false;
+        if (!isCount && !isMax && !isIdOnly && keysetPosition != null && idFieldName != null
+                && isKeysetEligible(filterMappings, sorts)) {
+            FilterMapping sortMapping = getSortMapping(filterMappings);
+            Path sortPath = sortMapping == null ? null : original.get(sortMapping.getFullPropertyName());
+            boolean ascending = sortMapping == null || SortDirection.ASCENDING == sortMapping.getSortDirection();
+            boolean nullsLast = sortMapping == null || sortMapping.getNullsLast() == null || sortMapping.getNullsLast();
+            boolean nullable = sortMapping != null && (isNullableProperty(dynamicEntityDao, ceilingClass,
+                    sortMapping.getFullPropertyName()) || (!keysetPosition.isStart() && keysetPosition.getLastSortValue() == null));
+
+            sorts = buildKeysetSorts(criteriaBuilder, sortPath, original.get(idFieldName), ascending, nullable, nullsLast);
+            if (!keysetPosition.isStart()) {
+                restrictions.add(buildKeysetRestriction(criteriaBuilder, sortPath, original.get(idFieldName), ascending,
+                        nullable, nullsLast, keysetPosition));
+                isSeek = true;
+            }
+        }
+
         criteria.where(restrictions.toArray(new Predicate[restrictions.size()]));
-        if (!isCount && !isMax) {
+        if (!isCount && !isMax && !isIdOnly) {
             criteria.orderBy(sorts.toArray(new Order[sorts.size()]));
             //If someone provides a firstResult value, then there is generally pagination going on.
             //In order to produce consistent results, especially with certain databases such as PostgreSQL, 
             //there has to be an "order by" clause.  We'll add one here if we can.
-            if (firstResult != null && sorts.isEmpty()) {
-                Map<String, Object> idMetaData = dynamicEntityDao.getIdMetadata(ceilingClass);
-                if (idMetaData != null) {
-                    Object idFldName = idMetaData.get("name");
-                    Object type = idMetaData.get("type");
-                    if ((idFldName instanceof String) && (type instanceof SingleColumnType)) {
-                        criteria.orderBy(criteriaBuilder.asc(original.get((String) idFldName)));
-                    }
-                }
+            if (firstResult != null && sorts.isEmpty() && idFieldName != null) {
+                criteria.orderBy(criteriaBuilder.asc(original.get(idFieldName)));
             }
         }
         TypedQuery<Serializable> response = dynamicEntityDao.getStandardEntityManager().createQuery(criteria);
 
         if (!isCount && !isMax) {
-            addPaging(response, firstResult, maxResults);
+            // A seek already starts after the previous page, so there's nothing to skip
+            addPaging(response, isSeek ? null : firstResult, maxResults);
         }
 
         return response;
     }
 
+    protected String getSingleColumnIdFieldName(DynamicEntityDao dynamicEntityDao, Class<?> ceilingClass) {
+        Map<String, Object> idMetaData = dynamicEntityDao.getIdMetadata(ceilingClass);
+        if (idMetaData != null) {
+            Object idFldName = idMetaData.get("name");
+            Object type = idMetaData.get("type");
+            if ((idFldName instanceof String) && (type instanceof SingleColumnType)) {
+                return (String) idFldName;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Keyset paging is possible when the fetch is unsorted or sorted by a single property directly on the ceiling
+     * entity, and no row level security or event handler added sorts of its own.
+     */
+    protected boolean isKeysetEligible(List<FilterMapping> filterMappings, List<Order> sorts) {
+        int sortMappings = 0;
+        for (FilterMapping filterMapping : filterMappings) {
+            if (filterMapping.getSortDirection() != null) {
+                sortMappings++;
+                String propertyName = filterMapping.getFullPropertyName();
+                if (filterMapping.getFieldPath() != null || StringUtils.isEmpty(propertyName) || propertyName.contains(".")
+                        || propertyName.contains(FieldManager.MAPFIELDSEPARATOR)) {
+                    return false;
+                }
+            }
+        }
+        return sortMappings <= 1 && sorts.size() == sortMappings;
+    }
+
+    protected FilterMapping getSortMapping(List<FilterMapping> filterMappings) {
+        for (FilterMapping filterMapping : filterMappings) {
+            if (filterMapping.getSortDirection() != null) {
+                return filterMapping;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return whether the property of the ceiling entity may hold nulls, which is assumed when Hibernate can't tell
+     */
+    protected boolean isNullableProperty(DynamicEntityDao dynamicEntityDao, Class<?> ceilingClass, String propertyName) {
+        ClassMetadata metadata = dynamicEntityDao.getSessionFactory().getClassMetadata(ceilingClass);
+        if (metadata == null) {
+            return true;
+        }
+        if (propertyName.equals(metadata.getIdentifierPropertyName())) {
+            return false;
+        }
+        String[] propertyNames = metadata.getPropertyNames();
+        boolean[] nullability = metadata.getPropertyNullability();
+        for (int i = 0; i < propertyNames.length; i++) {
+            if (propertyName.equals(propertyNames[i])) {
+                return nullability[i];
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Orders by the raw sort column and then the id in the same direction, which an index on both columns can serve
+     * directly. Only a nullable sort column is preceded by an explicit null ordering, since the databases disagree on
+     * where they put the nulls and {@link #buildKeysetRestriction} has to match the ordering exactly.
+     */
+    protected List<Order> buildKeysetSorts(CriteriaBuilder criteriaBuilder, Path sortPath, Path idPath, boolean ascending,
+            boolean nullable, boolean nullsLast) {
+        List<Order> sorts = new ArrayList<Order>();
+        if (sortPath != null) {
+            if (nullable) {
+                Expression<Integer> nullRank = criteriaBuilder.<Integer>selectCase()
+                        .when(criteriaBuilder.isNull(sortPath), 1)
+                        .otherwise(0);
+                sorts.add(nullsLast ? criteriaBuilder.asc(nullRank) : criteriaBuilder.desc(nullRank));
+            }
+            sorts.add(ascending ? criteriaBuilder.asc(sortPath) : criteriaBuilder.desc(sortPath));
+        }
+        sorts.add(ascending ? criteriaBuilder.asc(idPath) : criteriaBuilder.desc(idPath));
+        return sorts;
+    }
+
+    /**
+     * Restricts the fetch to the records that follow the position in the ordering built by {@link #buildKeysetSorts}.
+     * JPA has no row value comparison, so the seek is expressed as a range on the sort column that is narrowed by the
+     * id only among equal sort values, e.g. <code>value &gt;= :last AND (value &gt; :last OR id &gt; :lastId)</code>,
+     * which leaves the database an index range scan.
+     */
+    @SuppressWarnings("unchecked")
+    protected Predicate buildKeysetRestriction(CriteriaBuilder criteriaBuilder, Path sortPath, Path idPath, boolean ascending,
+            boolean nullable, boolean nullsLast, KeysetPosition keysetPosition) {
+        Comparable lastId = (Comparable) keysetPosition.getLastId();
+        Predicate afterId = ascending ? criteriaBuilder.greaterThan(idPath, lastId) : criteriaBuilder.lessThan(idPath, lastId);
+        if (sortPath == null) {
+            return afterId;
+        }
+
+        Object lastSortValue = keysetPosition.getLastSortValue();
+        if (lastSortValue == null) {
+            Predicate afterInNulls = criteriaBuilder.and(criteriaBuilder.isNull(sortPath), afterId);
+            return nullsLast ? afterInNulls : criteriaBuilder.or(criteriaBuilder.isNotNull(sortPath), afterInNulls);
+        }
+
+        Comparable value = (Comparable) lastSortValue;
+        Predicate seek;
+        if (ascending) {
+            seek = criteriaBuilder.and(criteriaBuilder.greaterThanOrEqualTo(sortPath, value),
+                    criteriaBuilder.or(criteriaBuilder.greaterThan(sortPath, value), afterId));
+        } else {
+            seek = criteriaBuilder.and(criteriaBuilder.lessThanOrEqualTo(sortPath, value),
+                    criteriaBuilder.or(criteriaBuilder.lessThan(sortPath, value), afterId));
+        }
+        if (nullable && nullsLast) {
+            return criteriaBuilder.or(seek, criteriaBuilder.isNull(sortPath));
+        }
+        return seek;
+    }
+
     protected void addPaging(Query response, Integer firstResult, Integer maxResults) {
         if (firstResult != null) {
             response.setFirstResult(firstResult);
@@ -0,0 +1,73 @@
+/*
+ * #%L
+ * BroadleafCommerce Open Admin Platform
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.openadmin.server.service.persistence.module.criteria;
+
+import java.io.Serializable;
+
+/**
+ * The position after which a page of a sorted fetch starts when it is read with keyset (seek) paging instead of an
+ * offset. The position is the sort value and id of the last record of the previous page, which lets the database
+ * seek directly to the next page through an index instead of reading and discarding all of the preceding rows.
+ * 
+ * A position without a last id only requests the keyset compatible ordering, so that pages read with an offset line
+ * up with the pages read by seeking.
+ * 
+ * @see CriteriaTranslator#translateQuery(org.broadleafcommerce.openadmin.server.dao.DynamicEntityDao, String, java.util.List, Integer, Integer, KeysetPosition)
+ */
+public class KeysetPosition implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    protected Object lastSortValue;
+    protected Serializable lastId;
+
+    public KeysetPosition() {
+        //do nothing
+    }
+
+    public KeysetPosition(Object lastSortValue, Serializable lastId) {
+        this.lastSortValue = lastSortValue;
+        this.lastId = lastId;
+    }
+
+    /**
+     * @return whether this position is the start of the results, in which case no records are skipped by seeking
+     */
+    public boolean isStart() {
+        return lastId == null;
+    }
+
+    public Object getLastSortValue() {
+        return lastSortValue;
+    }
+
+    public void setLastSortValue(Object lastSortValue) {
+        this.lastSortValue = lastSortValue;
+    }
+
+    public Serializable getLastId() {
+        return lastId;
+    }
+
+    public void setLastId(Serializable lastId) {
+        this.lastId = lastId;
+    }
+
+}
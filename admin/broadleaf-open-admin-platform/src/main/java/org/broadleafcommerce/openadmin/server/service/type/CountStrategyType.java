@@ -0,0 +1,38 @@
+/*
+ * #%L
+ * BroadleafCommerce Open Admin Platform
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.openadmin.server.service.type;
+
+/**
+ * How the total number of records is determined when fetching a page of records for the admin
+ */
+public enum CountStrategyType {
+    /**
+     * Runs a count query for every fetch
+     */
+    EXACT,
+    /**
+     * Runs a count query and reuses its result for identical fetches until it expires
+     */
+    CACHED,
+    /**
+     * Counts at most a configured number of records, beyond which the total is reported as being more than that number
+     */
+    ESTIMATED
+}
@@ -21,6 +21,7 @@ package org.broadleafcommerce.openadmin.web.controller.entity;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.MapUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -49,7 +50,11 @@ import org.broadleafcommerce.openadmin.dto.Property;
 import org.broadleafcommerce.openadmin.dto.SectionCrumb;
 import org.broadleafcommerce.openadmin.server.domain.PersistencePackageRequest;
 import org.broadleafcommerce.openadmin.server.security.domain.AdminSection;
+import org.broadleafcommerce.openadmin.server.security.domain.AdminUser;
 import org.broadleafcommerce.openadmin.server.security.remote.EntityOperationType;
+import org.broadleafcommerce.openadmin.server.service.export.EntityExportFormat;
+import org.broadleafcommerce.openadmin.server.service.export.EntityExportJob;
+import org.broadleafcommerce.openadmin.server.service.export.EntityExportService;
 import org.broadleafcommerce.openadmin.server.service.persistence.PersistenceResponse;
 import org.broadleafcommerce.openadmin.server.service.persistence.module.BasicPersistenceModule;
 import org.broadleafcommerce.openadmin.web.controller.AdminAbstractController;
@@ -84,6 +89,8 @@ import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.io.FileInputStream;
+import java.io.InputStream;
 import java.net.URLDecoder;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -110,9 +117,15 @@ public class AdminBasicEntityController extends AdminAbstractController {
     @Resource(name="blSandBoxHelper")
     protected SandBoxHelper sandBoxHelper;
 
+    @Resource(name = "blEntityExportService")
+    protected EntityExportService entityExportService;
+
     @Value("${admin.form.validation.errors.hideTopLevelErrors}")
     protected boolean hideTopLevelErrors = false;
 
+    @Value("${admin.form.collections.deferHiddenTabs:false}")
+    protected boolean deferHiddenTabCollections = false;
+
     // ******************************************
     // REQUEST-MAPPING BOUND CONTROLLER METHODS *
     // ******************************************
@@ -212,6 +225,129 @@ public class AdminBasicEntityController extends AdminAbstractController {
         return canCreate;
     }
 
+    /**
+     * Starts exporting every record of the current section that matches the given list grid criteria. The export runs
+     * in the background; its progress can be polled with {@link #viewExportStatus} and the finished file downloaded
+     * with {@link #downloadExport}.
+     * 
+     * @param request
+     * @param response
+     * @param pathVars
+     * @param exportFormat the name of an {@link EntityExportFormat}
+     * @param requestParams a Map of property name -> list critiera values
+     * @return the JSON status of the started export
+     * @throws Exception
+     */
+    @RequestMapping(value = "/export", method = RequestMethod.POST, produces = "application/json")
+    public @ResponseBody String startExport(HttpServletRequest request, HttpServletResponse response,
+            @PathVariable Map<String, String> pathVars,
+            @RequestParam(value = "exportFormat", defaultValue = "CSV") String exportFormat,
+            @RequestParam MultiValueMap<String, String> requestParams) throws Exception {
+        EntityExportFormat format;
+        try {
+            format = EntityExportFormat.valueOf(exportFormat);
+        } catch (IllegalArgumentException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            return new JsonResponse(response)
+                    .with("errorMessage", "Unknown export format " + exportFormat)
+                    .done();
+        }
+        String sectionKey = getSectionKey(pathVars);
+        String sectionClassName = getClassNameForSection(sectionKey);
+        List<SectionCrumb> crumbs = getSectionCrumbs(request, null, null);
+        requestParams.remove("exportFormat");
+        requestParams.remove("sectionCrumbs");
+        requestParams.remove("csrfToken");
+        PersistencePackageRequest ppr = getSectionPersistencePackageRequest(sectionClassName, requestParams, crumbs, pathVars);
+
+        EntityExportJob job = entityExportService.startExport(ppr, format, getCurrentAdminUserId());
+        return getExportStatus(response, job);
+    }
+
+    /**
+     * Returns the progress of an export started with {@link #startExport}
+     * 
+     * @param request
+     * @param response
+     * @param pathVars
+     * @param jobId
+     * @return the JSON status of the export
+     * @throws Exception
+     */
+    @RequestMapping(value = "/export/{jobId}", method = RequestMethod.GET, produces = "application/json")
+    public @ResponseBody String viewExportStatus(HttpServletRequest request, HttpServletResponse response,
+            @PathVariable Map<String, String> pathVars,
+            @PathVariable(value = "jobId") String jobId) throws Exception {
+        EntityExportJob job = getSectionExportJob(pathVars, jobId);
+        if (job == null) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return null;
+        }
+        return getExportStatus(response, job);
+    }
+
+    /**
+     * Writes the file of a completed export to the response
+     * 
+     * @param request
+     * @param response
+     * @param pathVars
+     * @param jobId
+     * @throws Exception
+     */
+    @RequestMapping(value = "/export/{jobId}/download", method = RequestMethod.GET)
+    public void downloadExport(HttpServletRequest request, HttpServletResponse response,
+            @PathVariable Map<String, String> pathVars,
+            @PathVariable(value = "jobId") String jobId) throws Exception {
+        EntityExportJob job = getSectionExportJob(pathVars, jobId);
+        if (job == null || job.getStatus() != EntityExportJob.Status.COMPLETE || job.getFile() == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        response.setContentType(job.getFormat().getContentType() + ";charset=UTF-8");
+        response.setHeader("Content-Disposition", "attachment; filename=\"" + job.getFileName() + "\"");
+        response.setContentLength((int) job.getFile().length());
+        InputStream is = new FileInputStream(job.getFile());
+        try {
+            IOUtils.copy(is, response.getOutputStream());
+        } finally {
+            IOUtils.closeQuietly(is);
+        }
+        response.flushBuffer();
+    }
+
+    /**
+     * @return the export job with the given id, provided it exports the current section and was started by the
+     * current admin user
+     */
+    protected EntityExportJob getSectionExportJob(Map<String, String> pathVars, String jobId) {
+        EntityExportJob job = entityExportService.getJob(jobId);
+        if (job == null || job.getAdminUserId() == null || !job.getAdminUserId().equals(getCurrentAdminUserId())) {
+            return null;
+        }
+        String sectionClassName = getClassNameForSection(getSectionKey(pathVars));
+        if (!job.getCeilingEntityClassname().equals(sectionClassName)) {
+            return null;
+        }
+        return job;
+    }
+
+    protected Long getCurrentAdminUserId() {
+        AdminUser adminUser = adminRemoteSecurityService.getPersistentAdminUser();
+        return adminUser == null ? null : adminUser.getId();
+    }
+
+    protected String getExportStatus(HttpServletResponse response, EntityExportJob job) {
+        return new JsonResponse(response)
+                .with("jobId", job.getId())
+                .with("status", job.getStatus().name())
+                .with("exportedCount", job.getExportedCount())
+                .with("totalCount", job.getTotalCount())
+                .with("percentComplete", job.getPercentComplete())
+                .with("errorMessage", job.getErrorMessage())
+                .done();
+    }
+
     /**
      * Renders the modal form that is used to add a new parent level entity. Note that this form cannot render any
      * subcollections as operations on those collections require the parent level entity to first be saved and have 
@@ -354,7 +490,8 @@ public class AdminBasicEntityController extends AdminAbstractController {
         ClassMetadata cmd = service.getClassMetadata(ppr).getDynamicResultSet().getClassMetaData();
         Entity entity = service.getRecord(ppr, id, cmd, false).getDynamicResultSet().getRecords()[0];
         
-        Map<String, DynamicResultSet> subRecordsMap = service.getRecordsForAllSubCollections(ppr, entity, crumbs);
+        Map<String, DynamicResultSet> subRecordsMap = service.getRecordsForAllSubCollections(ppr, entity, crumbs,
+                deferHiddenTabCollections);
 
         EntityForm entityForm = formService.createEntityForm(cmd, entity, subRecordsMap, crumbs);
         
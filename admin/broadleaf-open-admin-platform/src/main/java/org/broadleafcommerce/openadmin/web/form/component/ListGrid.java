@@ -58,6 +58,8 @@ public class ListGrid {
     // These actions will start greyed out and unable to be clicked until a specific row has been selected
     protected List<ListGridAction> rowActions = new ArrayList<ListGridAction>();
     protected int totalRecords;
+    protected boolean totalRecordsCapped;
+    protected boolean deferred;
     protected int startIndex;
     protected int pageSize;
     protected Boolean canFilterAndSort;
@@ -330,6 +332,28 @@ public class ListGrid {
     public void setTotalRecords(int totalRecords) {
         this.totalRecords = totalRecords;
     }
+
+    /**
+     * @return whether there are more records than {@link #getTotalRecords()}, which is then only a lower bound
+     */
+    public boolean getTotalRecordsCapped() {
+        return totalRecordsCapped;
+    }
+
+    public void setTotalRecordsCapped(boolean totalRecordsCapped) {
+        this.totalRecordsCapped = totalRecordsCapped;
+    }
+
+    /**
+     * @return whether the records of this list grid have not been fetched yet and are loaded once it is shown
+     */
+    public boolean getDeferred() {
+        return deferred;
+    }
+
+    public void setDeferred(boolean deferred) {
+        this.deferred = deferred;
+    }
     
     public int getPageSize() {
         return pageSize;
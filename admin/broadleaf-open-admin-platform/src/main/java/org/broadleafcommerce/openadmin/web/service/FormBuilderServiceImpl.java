@@ -411,6 +411,8 @@ public class FormBuilderServiceImpl implements FormBuilderService {
         listGrid.setIdProperty(idProperty);
         listGrid.setStartIndex(drs.getStartIndex());
         listGrid.setTotalRecords(drs.getTotalRecords());
+        listGrid.setTotalRecordsCapped(Boolean.TRUE.equals(drs.getTotalRecordsCapped()));
+        listGrid.setDeferred(Boolean.TRUE.equals(drs.getDeferred()));
         listGrid.setPageSize(drs.getPageSize());
         
         String sectionIdentifier = extractSectionIdentifierFromCrumb(sectionCrumbs);
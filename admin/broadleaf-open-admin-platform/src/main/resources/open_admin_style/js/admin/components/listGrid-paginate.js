@@ -66,6 +66,33 @@
             return $tbody.data('totalrecords');
         },
         
+        isTotalRecordsEstimated : function($tbody) {
+            return $tbody.data('totalrecordsestimated') === true;
+        },
+        
+        // An estimated total is only a lower bound that grows as records past it are fetched, so extend the padding
+        // below the loaded records to the larger total reported with each fetch until an exact total arrives
+        updateTotalRecords : function($tbody, $newTbody) {
+            if (!this.isTotalRecordsEstimated($tbody)) {
+                return;
+            }
+            
+            var totalRecords = this.getTotalRecords($tbody);
+            var newTotalRecords = $newTbody.data('totalrecords');
+            if (newTotalRecords > totalRecords) {
+                var $lastRow = $tbody.find('tr:last');
+                if ($lastRow.hasClass('blank-padding')) {
+                    var lastRange = this.getRange($lastRow.data('range'));
+                    $lastRow.replaceWith(this.createPadding($tbody, lastRange.lo, newTotalRecords - 1));
+                } else {
+                    $lastRow.after(this.createPadding($tbody, totalRecords, newTotalRecords - 1));
+                }
+                $tbody.data('totalrecords', newTotalRecords);
+                $tbody.closest('.listgrid-body-wrapper').mCustomScrollbar('update');
+            }
+            $tbody.data('totalrecordsestimated', $newTbody.data('totalrecordsestimated') === true);
+        },
+        
         getRange : function(rangeDescription) {
             var range = rangeDescription.split('-');
             rangeObj = {lo : parseInt(range[0]), hi : parseInt(range[1])};
@@ -400,6 +427,7 @@
                 BLC.ajax({ url: url, type: 'GET' }, function(data) {
                     var $newTbody = data.find('tbody');
                     BLCAdmin.listGrid.paginate.injectRecords($tbody, $newTbody);
+                    BLCAdmin.listGrid.paginate.updateTotalRecords($tbody, $newTbody);
                     BLCAdmin.listGrid.paginate.releaseLock();
                     
                     // now that I've loaded records, see if I need to do it again
@@ -459,6 +487,7 @@
             $footer.find('.low-index').text(topIndex);
             $footer.find('.high-index').text(botIndex);
             $footer.find('.total-records').text(totalRecords);
+            $footer.find('.total-records-capped').toggleClass('hidden', !this.isTotalRecordsEstimated($tbody));
         },
         
         updateGridSize : function($tbody) {
@@ -223,6 +223,38 @@
         
         getListGridCount : function($container) {
             return $container.find('.listgrid-container').length;
+        },
+        
+        /**
+         * Fetches the records of the deferred list grids in the given container that are on the tab being shown. The
+         * grids on other tabs are left alone until their tab is shown for the first time.
+         */
+        loadDeferredInShownTab : function($container) {
+            $container.find('.listgrid-container').each(function(index, element) {
+                var $listGridContainer = $(element);
+                var $tab = $listGridContainer.closest('ul.tabs-content > li');
+                if ($listGridContainer.find('.listgrid-header-wrapper table').data('deferred') === true
+                        && ($tab.length == 0 || $tab.hasClass('active'))) {
+                    BLCAdmin.listGrid.loadDeferred($listGridContainer);
+                }
+            });
+        },
+        
+        /**
+         * Fetches the records of a list grid whose records were not loaded with the rest of the page
+         */
+        loadDeferred : function($listGridContainer) {
+            var $table = $listGridContainer.find('.listgrid-header-wrapper table');
+            $table.removeAttr('data-deferred').data('deferred', false);
+            
+            BLCAdmin.listGrid.showLoadingSpinner($listGridContainer.find('tbody'));
+            BLC.ajax({
+                url: $table.data('path'),
+                type: "GET"
+            }, function(data) {
+                BLCAdmin.listGrid.hideLoadingSpinner($listGridContainer.find('tbody'));
+                BLCAdmin.listGrid.replaceRelatedListGrid($(data));
+            });
         }
     };
     
@@ -230,6 +262,12 @@
         $container.find('.listgrid-container').each(function(index, element) {
             BLCAdmin.listGrid.initialize($(element));
         });
+        BLCAdmin.listGrid.loadDeferredInShownTab($container);
+    });
+    
+    // Update handlers run with the active tab every time a tab is shown
+    BLCAdmin.addUpdateHandler(function($container) {
+        BLCAdmin.listGrid.loadDeferredInShownTab($container);
     });
     
     
@@ -0,0 +1,287 @@
+/*
+ * #%L
+ * BroadleafCommerce Open Admin Platform
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.openadmin.spec
+
+import org.broadleafcommerce.openadmin.server.dao.DynamicEntityDao
+import org.broadleafcommerce.openadmin.server.service.persistence.PersistenceManager
+import org.broadleafcommerce.openadmin.server.service.persistence.module.BasicPersistenceModule
+import org.broadleafcommerce.openadmin.server.service.persistence.module.FetchPagingServiceImpl
+import org.broadleafcommerce.openadmin.server.service.persistence.module.criteria.CriteriaTranslator
+import org.broadleafcommerce.openadmin.server.service.persistence.module.criteria.CriteriaTranslatorImpl
+import org.broadleafcommerce.openadmin.server.service.persistence.module.criteria.KeysetPosition
+import org.broadleafcommerce.openadmin.server.service.type.CountStrategyType
+import org.hibernate.SessionFactory
+import org.hibernate.metadata.ClassMetadata
+
+import spock.lang.Specification
+
+import javax.persistence.TypedQuery
+import javax.persistence.criteria.CriteriaBuilder
+import javax.persistence.criteria.Expression
+import javax.persistence.criteria.Order
+import javax.persistence.criteria.Path
+import javax.persistence.criteria.Predicate
+
+
+class KeysetPagingSpec extends Specification {
+
+    CriteriaTranslatorImpl translator
+    CriteriaBuilder cb
+    Path sortPath
+    Path idPath
+
+    def setup() {
+        translator = new CriteriaTranslatorImpl()
+        cb = Mock()
+        sortPath = Mock()
+        idPath = Mock()
+    }
+
+    def "a non-nullable sort column is ordered by the raw column and the id"() {
+        given:
+        Order bySort = Mock()
+        Order byId = Mock()
+
+        when:
+        List<Order> sorts = translator.buildKeysetSorts(cb, sortPath, idPath, true, false, true)
+
+        then:
+        0 * cb.selectCase()
+        1 * cb.asc(sortPath) >> bySort
+        1 * cb.asc(idPath) >> byId
+        sorts == [bySort, byId]
+    }
+
+    def "a descending sort orders the id descending as well"() {
+        given:
+        Order bySort = Mock()
+        Order byId = Mock()
+
+        when:
+        List<Order> sorts = translator.buildKeysetSorts(cb, sortPath, idPath, false, false, true)
+
+        then:
+        1 * cb.desc(sortPath) >> bySort
+        1 * cb.desc(idPath) >> byId
+        sorts == [bySort, byId]
+    }
+
+    def "only a nullable sort column orders its nulls explicitly"() {
+        given:
+        CriteriaBuilder.Case nullRankCase = Mock()
+        Expression nullRank = Mock()
+        Order byNullRank = Mock()
+        Order bySort = Mock()
+        Order byId = Mock()
+
+        when:
+        List<Order> sorts = translator.buildKeysetSorts(cb, sortPath, idPath, true, true, true)
+
+        then:
+        1 * cb.selectCase() >> nullRankCase
+        1 * nullRankCase.when(_, 1) >> nullRankCase
+        1 * nullRankCase.otherwise(0) >> nullRank
+        1 * cb.asc(nullRank) >> byNullRank
+        1 * cb.asc(sortPath) >> bySort
+        1 * cb.asc(idPath) >> byId
+        sorts == [byNullRank, bySort, byId]
+    }
+
+    def "the seek is a range on the sort column that the id narrows among equal values"() {
+        given:
+        Predicate afterId = Mock()
+        Predicate atLeast = Mock()
+        Predicate after = Mock()
+        Predicate afterOrTied = Mock()
+        Predicate seek = Mock()
+
+        when:
+        Predicate restriction = translator.buildKeysetRestriction(cb, sortPath, idPath, true, false, true,
+                new KeysetPosition('b', 5L))
+
+        then:
+        1 * cb.greaterThan(idPath, 5L) >> afterId
+        1 * cb.greaterThanOrEqualTo(sortPath, 'b') >> atLeast
+        1 * cb.greaterThan(sortPath, 'b') >> after
+        1 * cb.or(after, afterId) >> afterOrTied
+        1 * cb.and(atLeast, afterOrTied) >> seek
+        0 * cb.isNull(_)
+        restriction.is(seek)
+    }
+
+    def "a descending seek reads the lower values and ids"() {
+        given:
+        Predicate afterId = Mock()
+        Predicate atMost = Mock()
+        Predicate after = Mock()
+        Predicate afterOrTied = Mock()
+        Predicate seek = Mock()
+
+        when:
+        Predicate restriction = translator.buildKeysetRestriction(cb, sortPath, idPath, false, false, true,
+                new KeysetPosition('b', 5L))
+
+        then:
+        1 * cb.lessThan(idPath, 5L) >> afterId
+        1 * cb.lessThanOrEqualTo(sortPath, 'b') >> atMost
+        1 * cb.lessThan(sortPath, 'b') >> after
+        1 * cb.or(after, afterId) >> afterOrTied
+        1 * cb.and(atMost, afterOrTied) >> seek
+        restriction.is(seek)
+    }
+
+    def "a nullable sort column with the nulls last still reaches the nulls"() {
+        given:
+        Predicate seek = Mock()
+        Predicate isNull = Mock()
+        Predicate seekOrNull = Mock()
+
+        when:
+        Predicate restriction = translator.buildKeysetRestriction(cb, sortPath, idPath, true, true, true,
+                new KeysetPosition('b', 5L))
+
+        then:
+        1 * cb.and(_, _) >> seek
+        1 * cb.isNull(sortPath) >> isNull
+        1 * cb.or(seek, isNull) >> seekOrNull
+        restriction.is(seekOrNull)
+    }
+
+    def "a position among the trailing nulls seeks by the id alone"() {
+        given:
+        Predicate afterId = Mock()
+        Predicate isNull = Mock()
+        Predicate afterInNulls = Mock()
+
+        when:
+        Predicate restriction = translator.buildKeysetRestriction(cb, sortPath, idPath, true, true, true,
+                new KeysetPosition(null, 5L))
+
+        then:
+        1 * cb.greaterThan(idPath, 5L) >> afterId
+        1 * cb.isNull(sortPath) >> isNull
+        1 * cb.and(isNull, afterId) >> afterInNulls
+        restriction.is(afterInNulls)
+    }
+
+    def "the nullability of the sort property comes from the Hibernate metadata"() {
+        given:
+        DynamicEntityDao dynamicEntityDao = Mock()
+        SessionFactory sessionFactory = Mock()
+        ClassMetadata metadata = Mock()
+        dynamicEntityDao.getSessionFactory() >> sessionFactory
+        sessionFactory.getClassMetadata(_ as Class) >> metadata
+        metadata.getIdentifierPropertyName() >> 'id'
+        metadata.getPropertyNames() >> (['name', 'description'] as String[])
+        metadata.getPropertyNullability() >> ([false, true] as boolean[])
+
+        expect:
+        !translator.isNullableProperty(dynamicEntityDao, Object, 'id')
+        !translator.isNullableProperty(dynamicEntityDao, Object, 'name')
+        translator.isNullableProperty(dynamicEntityDao, Object, 'description')
+        translator.isNullableProperty(dynamicEntityDao, Object, 'unknown')
+    }
+
+    def "an unknown count strategy fails the startup"() {
+        given:
+        FetchPagingServiceImpl fetchPagingService = new FetchPagingServiceImpl()
+        fetchPagingService.countStrategy = 'approximate'
+
+        when:
+        fetchPagingService.init()
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    def "the count strategy is resolved once regardless of case"() {
+        given:
+        FetchPagingServiceImpl fetchPagingService = new FetchPagingServiceImpl()
+        fetchPagingService.countStrategy = ' estimated '
+
+        when:
+        fetchPagingService.init()
+
+        then:
+        fetchPagingService.getCountStrategy() == CountStrategyType.ESTIMATED
+    }
+
+    def "clearing the fetch state of an entity drops only its counts and positions"() {
+        given:
+        FetchPagingServiceImpl fetchPagingService = new FetchPagingServiceImpl()
+        fetchPagingService.countCacheTtl = 60
+        String product = fetchPagingService.getFetchSignature('com.example.Product', [])
+        String productOption = fetchPagingService.getFetchSignature('com.example.ProductOption', [])
+        fetchPagingService.putCachedCount(product, 10)
+        fetchPagingService.putCachedCount(productOption, 20)
+        fetchPagingService.putKeysetPosition(product, 50, new KeysetPosition('b', 5L))
+        fetchPagingService.putKeysetPosition(productOption, 50, new KeysetPosition('c', 6L))
+
+        when:
+        fetchPagingService.clearFetchState('com.example.Product')
+
+        then:
+        fetchPagingService.getCachedCount(product) == null
+        fetchPagingService.getKeysetPosition(product, 50) == null
+        fetchPagingService.getCachedCount(productOption) == 20
+        fetchPagingService.getKeysetPosition(productOption, 50).lastId == 6L
+    }
+
+    def "an estimated count past the cap stops at a single probed id"() {
+        given:
+        CriteriaTranslator criteriaTranslator = Mock()
+        PersistenceManager persistenceManager = Mock()
+        TypedQuery probe = Mock()
+        BasicPersistenceModule module = new BasicPersistenceModule()
+        module.criteriaTranslator = criteriaTranslator
+        module.persistenceManager = persistenceManager
+
+        when:
+        int count = module.getTotalRecords('com.example.Product', [], 1000)
+
+        then:
+        1 * criteriaTranslator.translateIdQuery(_, 'com.example.Product', [], 1000, 1) >> probe
+        1 * probe.getResultList() >> [1001L]
+        0 * criteriaTranslator.translateCountQuery(*_)
+        count == 1001
+    }
+
+    def "an estimated count within the cap is exact"() {
+        given:
+        CriteriaTranslator criteriaTranslator = Mock()
+        PersistenceManager persistenceManager = Mock()
+        TypedQuery probe = Mock()
+        TypedQuery countQuery = Mock()
+        BasicPersistenceModule module = new BasicPersistenceModule()
+        module.criteriaTranslator = criteriaTranslator
+        module.persistenceManager = persistenceManager
+
+        when:
+        int count = module.getTotalRecords('com.example.Product', [], 1000)
+
+        then:
+        1 * criteriaTranslator.translateIdQuery(_, 'com.example.Product', [], 1000, 1) >> probe
+        1 * probe.getResultList() >> []
+        1 * criteriaTranslator.translateCountQuery(_, 'com.example.Product', []) >> countQuery
+        1 * countQuery.getSingleResult() >> 42L
+        count == 42
+    }
+
+}
@@ -0,0 +1,131 @@
+/*
+ * #%L
+ * BroadleafCommerce Open Admin Platform
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.openadmin.server.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.broadleafcommerce.common.exception.ServiceException;
+import org.broadleafcommerce.common.presentation.client.VisibilityEnum;
+import org.broadleafcommerce.openadmin.dto.BasicCollectionMetadata;
+import org.broadleafcommerce.openadmin.dto.BasicFieldMetadata;
+import org.broadleafcommerce.openadmin.dto.ClassMetadata;
+import org.broadleafcommerce.openadmin.dto.DynamicResultSet;
+import org.broadleafcommerce.openadmin.dto.Entity;
+import org.broadleafcommerce.openadmin.dto.FieldMetadata;
+import org.broadleafcommerce.openadmin.dto.FilterAndSortCriteria;
+import org.broadleafcommerce.openadmin.dto.Property;
+import org.broadleafcommerce.openadmin.dto.SectionCrumb;
+import org.broadleafcommerce.openadmin.server.domain.PersistencePackageRequest;
+import org.broadleafcommerce.openadmin.server.service.persistence.PersistenceResponse;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class AdminEntityServiceImplTest {
+
+    protected static final String TYPE = "org.broadleafcommerce.core.catalog.domain.ProductImpl";
+
+    protected ClassMetadata cmd;
+    protected Entity entity;
+    protected List<String> fetched;
+    protected AdminEntityServiceImpl service;
+
+    @Before
+    public void setUp() {
+        cmd = new ClassMetadata();
+        cmd.setProperties(new Property[] {
+            buildProperty("id", buildField(VisibilityEnum.HIDDEN_ALL), "Advanced", 1),
+            buildProperty("name", buildField(VisibilityEnum.VISIBLE_ALL), "General", 100),
+            buildProperty("productOptions", new BasicCollectionMetadata(), "General", 100),
+            buildProperty("allSkus", new BasicCollectionMetadata(), "Inventory", 200),
+            buildProperty("crossSaleProducts", new BasicCollectionMetadata(), "Marketing", 300)
+        });
+        entity = new Entity();
+        entity.setType(new String[] { TYPE });
+
+        fetched = new ArrayList<String>();
+        service = new AdminEntityServiceImpl() {
+
+            @Override
+            public PersistenceResponse getClassMetadata(PersistencePackageRequest request) {
+                return new PersistenceResponse().withDynamicResultSet(new DynamicResultSet(cmd));
+            }
+
+            @Override
+            public PersistenceResponse getRecordsForCollection(ClassMetadata containingClassMetadata, Entity containingEntity,
+                    Property collectionProperty, FilterAndSortCriteria[] fascs, Integer startIndex, Integer maxIndex,
+                    String idValueOverride, List<SectionCrumb> sectionCrumbs) {
+                fetched.add(collectionProperty.getName());
+                return new PersistenceResponse().withDynamicResultSet(new DynamicResultSet(new Entity[0], 0));
+            }
+        };
+    }
+
+    protected BasicFieldMetadata buildField(VisibilityEnum visibility) {
+        BasicFieldMetadata md = new BasicFieldMetadata();
+        md.setVisibility(visibility);
+        return md;
+    }
+
+    protected Property buildProperty(String name, FieldMetadata md, String tab, int tabOrder) {
+        md.setAvailableToTypes(new String[] { TYPE });
+        md.setTab(tab);
+        md.setTabOrder(tabOrder);
+        Property property = new Property();
+        property.setName(name);
+        property.setMetadata(md);
+        return property;
+    }
+
+    @Test
+    public void testInitialTabSkipsHiddenFields() {
+        assertEquals("General", service.getInitialTab(cmd, TYPE));
+    }
+
+    @Test
+    public void testHiddenTabsAreDeferred() throws ServiceException {
+        Map<String, DynamicResultSet> records = service.getRecordsForAllSubCollections(new PersistencePackageRequest(),
+                entity, new ArrayList<SectionCrumb>(), true);
+
+        assertEquals(3, records.size());
+        assertEquals("Only the collections on the initial tab should be fetched", 1, fetched.size());
+        assertEquals("productOptions", fetched.get(0));
+        assertFalse(records.get("productOptions").getDeferred());
+        assertTrue(records.get("allSkus").getDeferred());
+        assertTrue(records.get("crossSaleProducts").getDeferred());
+    }
+
+    @Test
+    public void testAllCollectionsAreFetchedWhenNotDeferring() throws ServiceException {
+        Map<String, DynamicResultSet> records = service.getRecordsForAllSubCollections(new PersistencePackageRequest(),
+                entity, new ArrayList<SectionCrumb>());
+
+        assertEquals(3, fetched.size());
+        for (DynamicResultSet drs : records.values()) {
+            assertFalse(drs.getDeferred());
+        }
+    }
+
+}
@@ -0,0 +1,203 @@
+/*
+ * #%L
+ * BroadleafCommerce Open Admin Platform
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.openadmin.server.service.artifact.image.effects.chain.filter;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.ConvolveOp;
+import java.awt.image.Kernel;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Compares the banded pixel filters against the single-threaded whole-image loops they replaced. The reference
+ * implementations below are the loops of the filters before they were split into {@link RowBands}.
+ */
+public class RowBandsFilterTest {
+
+    protected static final int WIDTH = 640;
+    protected static final int HEIGHT = 360;
+
+    protected static ForkJoinPool pool;
+
+    @BeforeClass
+    public static void setUpPool() {
+        pool = new ForkJoinPool(4);
+        RowBands.setPool(pool);
+    }
+
+    @AfterClass
+    public static void shutdownPool() {
+        RowBands.setPool(null);
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void testImageSpansSeveralBands() {
+        assertTrue(HEIGHT > 2 * RowBands.getBandRows(WIDTH));
+    }
+
+    @Test
+    public void testAlterHSBMatchesWholeImageLoop() {
+        BufferedImage source = createImage();
+        int[] expected = ImageConverter.getPixels(source);
+        for (int index = 0; index < expected.length; index++) {
+            int pixel = expected[index];
+            float[] hsb = Color.RGBtoHSB((pixel >> 16) & 0xff, (pixel >> 8) & 0xff, pixel & 0xff, null);
+            float h = Math.max(0, Math.min(360, hsb[0] * 1.1f));
+            float s = Math.max(0, Math.min(1, hsb[1] * 0.8f));
+            float br = Math.max(0, Math.min(1, hsb[2] * 1.2f));
+            Color rgb = new Color(Color.HSBtoRGB(h, s, br));
+            expected[index] = (pixel & 0xff000000) | (rgb.getRed() << 16) | (rgb.getGreen() << 8) | rgb.getBlue();
+        }
+
+        BufferedImage result = new AlterHSB(1.1f, 0.8f, 1.2f, null).filter(source, null);
+
+        assertArrayEquals(expected, ImageConverter.getPixels(result));
+    }
+
+    @Test
+    public void testAlterRGBMatchesWholeImageLoop() {
+        BufferedImage source = createImage();
+        int[] expected = ImageConverter.getPixels(source);
+        for (int index = 0; index < expected.length; index++) {
+            int pixel = expected[index];
+            int r = clamp(((pixel >> 16) & 0xff) + 30);
+            int g = clamp(((pixel >> 8) & 0xff) - 45);
+            int b = clamp((pixel & 0xff) + 70);
+            expected[index] = (pixel & 0xff000000) | (r << 16) | (g << 8) | b;
+        }
+
+        BufferedImage result = new AlterRGB(30, -45, 70, null).filter(source, null);
+
+        assertArrayEquals(expected, ImageConverter.getPixels(result));
+    }
+
+    @Test
+    public void testAutoLevelsRGBMatchesSortedLevels() {
+        BufferedImage source = createImage();
+        int[] expected = ImageConverter.getPixels(source);
+        int[] red = levels(expected, 16);
+        int[] green = levels(expected, 8);
+        int[] blue = levels(expected, 0);
+        for (int index = 0; index < expected.length; index++) {
+            int pixel = expected[index];
+            int r = clamp(level((pixel >> 16) & 0xff, red[0], red[1]));
+            int g = clamp(level((pixel >> 8) & 0xff, green[0], green[1]));
+            int b = clamp(level(pixel & 0xff, blue[0], blue[1]));
+            expected[index] = (pixel & 0xff000000) | (r << 16) | (g << 8) | b;
+        }
+
+        BufferedImage result = new AutoLevelsRGB(null).filter(source, null);
+
+        assertArrayEquals(expected, ImageConverter.getPixels(result));
+    }
+
+    @Test
+    public void testGaussianBlurMatchesWholeImageConvolution() {
+        for (int kernelSize : new int[] { 4, 7 }) {
+            BufferedImage source = createImage();
+            float[] matrix = GaussianBlur.GAUSSIAN_BLUR_KERNELS[kernelSize - 1];
+            ConvolveOp horizontal = new ConvolveOp(new Kernel(matrix.length, 1, matrix), ConvolveOp.EDGE_NO_OP, null);
+            ConvolveOp vertical = new ConvolveOp(new Kernel(1, matrix.length, matrix), ConvolveOp.EDGE_NO_OP, null);
+            BufferedImage temp = new BufferedImage(WIDTH, HEIGHT, source.getType());
+            BufferedImage expected = new BufferedImage(WIDTH, HEIGHT, source.getType());
+            BufferedImage next = source;
+            for (int i = 0; i < 2; i++) {
+                temp = horizontal.filter(next, temp);
+                expected = vertical.filter(temp, expected);
+                next = expected;
+            }
+
+            BufferedImage result = new GaussianBlur(kernelSize, 2, null).filter(source, null);
+
+            assertArrayEquals("kernel size " + kernelSize, ImageConverter.getPixels(expected), ImageConverter.getPixels(result));
+        }
+    }
+
+    /**
+     * A gradient with noise that keeps clear of pure black and white, so that the auto levels have something to
+     * stretch
+     */
+    protected BufferedImage createImage() {
+        Random random = new Random(42);
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int r = 40 + (x * 120 / WIDTH) + random.nextInt(30);
+                int g = 60 + (y * 100 / HEIGHT) + random.nextInt(30);
+                int b = 30 + ((x + y) * 140 / (WIDTH + HEIGHT)) + random.nextInt(30);
+                image.setRGB(x, y, (r << 16) | (g << 8) | b);
+            }
+        }
+        return image;
+    }
+
+    /**
+     * The clipped start and end of a channel, found by sorting every value of the channel
+     */
+    protected int[] levels(int[] pixels, int shift) {
+        int[] values = new int[pixels.length];
+        for (int j = 0; j < pixels.length; j++) {
+            values[j] = (pixels[j] >> shift) & 0xff;
+        }
+        Arrays.sort(values);
+        return new int[] { values[(int) (values.length * 0.01D)], values[values.length - (int) (values.length * 0.01D)] };
+    }
+
+    protected int level(int value, int start, int end) {
+        int endDelta = 255 - end;
+        int startDelta = start;
+        if (value > start && value < end) {
+            if (endDelta > 0) {
+                if (end - value == 0) {
+                    value = 255;
+                } else {
+                    value = end + endDelta - (((end - value) * (end + endDelta)) / end);
+                }
+            }
+            if (startDelta > 0) {
+                if (value - startDelta == 0) {
+                    value = 0;
+                } else {
+                    value = end - (((end - (start - startDelta)) * (end - value)) / (end - start));
+                }
+            }
+        } else if (value <= start) {
+            value = 0;
+        } else {
+            value = 255;
+        }
+        return value;
+    }
+
+    protected int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+
+}
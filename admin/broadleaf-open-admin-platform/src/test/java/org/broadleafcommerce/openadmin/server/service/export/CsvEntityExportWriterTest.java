@@ -0,0 +1,51 @@
+/*
+ * #%L
+ * BroadleafCommerce Open Admin Platform
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.openadmin.server.service.export;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+public class CsvEntityExportWriterTest {
+
+    @Test
+    public void testHeaderUsesLabels() throws IOException {
+        StringWriter out = new StringWriter();
+        CsvEntityExportWriter writer = new CsvEntityExportWriter(out);
+        writer.writeHeader(new String[] { "id", "name" }, new String[] { "ID", "Name" });
+        writer.flush();
+        assertEquals("ID,Name\r\n", out.toString());
+    }
+
+    @Test
+    public void testValuesAreQuotedOnlyWhenNeeded() throws IOException {
+        StringWriter out = new StringWriter();
+        CsvEntityExportWriter writer = new CsvEntityExportWriter(out);
+        writer.writeHeader(new String[] { "a", "b", "c", "d" }, new String[] { "a", "b", "c", "d" });
+        writer.writeRecord(new String[] { "plain", "with, comma", "say \"hi\"", null });
+        writer.writeRecord(new String[] { "two\nlines", "", "x", "y" });
+        writer.flush();
+        assertEquals("a,b,c,d\r\nplain,\"with, comma\",\"say \"\"hi\"\"\",\r\n\"two\nlines\",,x,y\r\n", out.toString());
+    }
+
+}
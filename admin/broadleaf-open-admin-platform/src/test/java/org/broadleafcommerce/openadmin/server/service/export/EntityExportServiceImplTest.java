@@ -0,0 +1,138 @@
+/*
+ * #%L
+ * BroadleafCommerce Open Admin Platform
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.openadmin.server.service.export;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.broadleafcommerce.openadmin.dto.BasicFieldMetadata;
+import org.broadleafcommerce.openadmin.dto.ClassMetadata;
+import org.broadleafcommerce.openadmin.dto.CriteriaTransferObject;
+import org.broadleafcommerce.openadmin.dto.DynamicResultSet;
+import org.broadleafcommerce.openadmin.dto.Entity;
+import org.broadleafcommerce.openadmin.dto.Property;
+import org.broadleafcommerce.openadmin.server.domain.PersistencePackageRequest;
+import org.broadleafcommerce.openadmin.server.service.persistence.module.criteria.KeysetPosition;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+public class EntityExportServiceImplTest {
+
+    /**
+     * Serves a fixed number of records in chunks and hands out a keyset position after every full chunk, unless told
+     * not to after a given chunk
+     */
+    protected static class ChunkedExportService extends EntityExportServiceImpl {
+
+        protected final int recordCount;
+        protected final int lastSeekableChunk;
+        protected final List<CriteriaTransferObject> fetched = new ArrayList<CriteriaTransferObject>();
+        protected final List<KeysetPosition> handedOut = new ArrayList<KeysetPosition>();
+
+        public ChunkedExportService(int recordCount, int lastSeekableChunk) {
+            this.recordCount = recordCount;
+            this.lastSeekableChunk = lastSeekableChunk;
+            this.chunkSize = 2;
+        }
+
+        @Override
+        protected ClassMetadata getClassMetadata(PersistencePackageRequest request) {
+            BasicFieldMetadata metadata = new BasicFieldMetadata();
+            metadata.setName("name");
+            metadata.setFriendlyName("Name");
+            Property property = new Property();
+            property.setName("name");
+            property.setMetadata(metadata);
+            ClassMetadata cmd = new ClassMetadata();
+            cmd.setProperties(new Property[] { property });
+            return cmd;
+        }
+
+        @Override
+        protected DynamicResultSet fetchChunk(PersistencePackageRequest request, CriteriaTransferObject cto) {
+            fetched.add(cto);
+            int first = cto.getFirstResult();
+            int size = Math.max(0, Math.min(cto.getMaxResults(), recordCount - first));
+            Entity[] records = new Entity[size];
+            for (int i = 0; i < size; i++) {
+                Property property = new Property();
+                property.setName("name");
+                property.setValue("record" + (first + i));
+                records[i] = new Entity();
+                records[i].setProperties(new Property[] { property });
+            }
+            if (Boolean.TRUE.equals(cto.getKeysetPaging()) && size == cto.getMaxResults()
+                    && fetched.size() <= lastSeekableChunk) {
+                KeysetPosition next = new KeysetPosition(null, Long.valueOf(first + size - 1));
+                handedOut.add(next);
+                cto.setNextKeysetPosition(next);
+            }
+            return new DynamicResultSet(records, cto.isTotalCountRequired() ? recordCount : null);
+        }
+    }
+
+    @Test
+    public void testChunksSeekFromThePositionOfThePreviousChunk() throws Exception {
+        ChunkedExportService service = new ChunkedExportService(5, Integer.MAX_VALUE);
+        StringWriter out = new StringWriter();
+        EntityExportJob job = new EntityExportJob("1", "com.example.Entity", EntityExportFormat.CSV);
+
+        service.export(new PersistencePackageRequest(), new CsvEntityExportWriter(out), job);
+
+        assertEquals("Name\r\nrecord0\r\nrecord1\r\nrecord2\r\nrecord3\r\nrecord4\r\n", out.toString());
+        assertEquals(3, service.fetched.size());
+        assertTrue(service.fetched.get(0).getKeysetPosition().isStart());
+        assertSame(service.handedOut.get(0), service.fetched.get(1).getKeysetPosition());
+        assertSame(service.handedOut.get(1), service.fetched.get(2).getKeysetPosition());
+        for (CriteriaTransferObject cto : service.fetched) {
+            assertTrue(cto.getKeysetPaging());
+        }
+        assertTrue(service.fetched.get(0).isTotalCountRequired());
+        assertFalse(service.fetched.get(1).isTotalCountRequired());
+        assertEquals(5L, job.getTotalCount());
+        assertEquals(5L, job.getExportedCount());
+    }
+
+    @Test
+    public void testChunksFallBackToOffsetsOnceAPositionIsUnavailable() throws Exception {
+        ChunkedExportService service = new ChunkedExportService(7, 1);
+        StringWriter out = new StringWriter();
+
+        service.export(new PersistencePackageRequest(), new CsvEntityExportWriter(out), null);
+
+        assertEquals("Name\r\nrecord0\r\nrecord1\r\nrecord2\r\nrecord3\r\nrecord4\r\nrecord5\r\nrecord6\r\n", out.toString());
+        assertEquals(4, service.fetched.size());
+        assertTrue(service.fetched.get(1).getKeysetPaging());
+        assertSame(service.handedOut.get(0), service.fetched.get(1).getKeysetPosition());
+        for (CriteriaTransferObject cto : service.fetched.subList(2, 4)) {
+            assertFalse(cto.getKeysetPaging());
+            assertNull(cto.getKeysetPosition());
+        }
+        assertEquals(Integer.valueOf(4), service.fetched.get(2).getFirstResult());
+        assertEquals(Integer.valueOf(6), service.fetched.get(3).getFirstResult());
+    }
+
+}
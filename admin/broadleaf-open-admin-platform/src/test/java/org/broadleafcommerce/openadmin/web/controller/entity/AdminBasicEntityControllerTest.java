@@ -0,0 +1,179 @@
+/*
+ * #%L
+ * BroadleafCommerce Open Admin Platform
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.openadmin.web.controller.entity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.broadleafcommerce.openadmin.server.service.export.EntityExportFormat;
+import org.broadleafcommerce.openadmin.server.service.export.EntityExportJob;
+import org.broadleafcommerce.openadmin.server.service.export.EntityExportServiceImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+
+public class AdminBasicEntityControllerTest {
+
+    protected static final String SECTION_CLASS = "org.broadleafcommerce.core.catalog.domain.Product";
+    protected static final Long OWNER_ID = 1L;
+    protected static final Long OTHER_ADMIN_ID = 2L;
+
+    /**
+     * Records the status, body and headers written by the controller
+     */
+    protected static class RecordingResponse implements InvocationHandler {
+
+        protected int status = HttpServletResponse.SC_OK;
+        protected final StringWriter writer = new StringWriter();
+        protected final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        protected final Map<String, String> headers = new HashMap<String, String>();
+
+        public HttpServletResponse proxy() {
+            return (HttpServletResponse) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] { HttpServletResponse.class }, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if ("setStatus".equals(name) || "sendError".equals(name)) {
+                status = (Integer) args[0];
+            } else if ("setHeader".equals(name)) {
+                headers.put((String) args[0], (String) args[1]);
+            } else if ("getWriter".equals(name)) {
+                return new PrintWriter(writer);
+            } else if ("getOutputStream".equals(name)) {
+                return new ServletOutputStream() {
+
+                    @Override
+                    public void write(int b) {
+                        out.write(b);
+                    }
+                };
+            }
+            return null;
+        }
+    }
+
+    protected Map<String, EntityExportJob> exportJobs;
+    protected Long currentAdminUserId;
+    protected AdminBasicEntityController controller;
+    protected Map<String, String> pathVars;
+    protected File exportFile;
+
+    @Before
+    public void setUp() throws Exception {
+        exportJobs = new HashMap<String, EntityExportJob>();
+        controller = new AdminBasicEntityController() {
+
+            @Override
+            protected Long getCurrentAdminUserId() {
+                return currentAdminUserId;
+            }
+
+            @Override
+            protected String getClassNameForSection(String sectionKey) {
+                return SECTION_CLASS;
+            }
+        };
+        controller.entityExportService = new EntityExportServiceImpl() {
+
+            @Override
+            public EntityExportJob getJob(String jobId) {
+                return exportJobs.get(jobId);
+            }
+        };
+        pathVars = new HashMap<String, String>();
+        pathVars.put("sectionKey", "product");
+
+        exportFile = File.createTempFile("blExportTest-", ".csv");
+        FileOutputStream fos = new FileOutputStream(exportFile);
+        fos.write("Name\nShirt\n".getBytes("UTF-8"));
+        fos.close();
+        EntityExportJob job = new EntityExportJob("job", SECTION_CLASS, EntityExportFormat.CSV, OWNER_ID);
+        job.setFile(exportFile);
+        job.complete();
+        exportJobs.put(job.getId(), job);
+    }
+
+    @After
+    public void tearDown() {
+        exportFile.delete();
+    }
+
+    @Test
+    public void testOwnerCanPollAndDownloadExport() throws Exception {
+        currentAdminUserId = OWNER_ID;
+
+        RecordingResponse status = new RecordingResponse();
+        controller.viewExportStatus(null, status.proxy(), pathVars, "job");
+        assertEquals(HttpServletResponse.SC_OK, status.status);
+        assertTrue(status.writer.toString().contains("\"status\":\"COMPLETE\""));
+
+        RecordingResponse download = new RecordingResponse();
+        controller.downloadExport(null, download.proxy(), pathVars, "job");
+        assertEquals(HttpServletResponse.SC_OK, download.status);
+        assertEquals("Name\nShirt\n", download.out.toString("UTF-8"));
+    }
+
+    @Test
+    public void testOtherAdminCannotPollOrDownloadExport() throws Exception {
+        currentAdminUserId = OTHER_ADMIN_ID;
+
+        RecordingResponse status = new RecordingResponse();
+        assertNull(controller.viewExportStatus(null, status.proxy(), pathVars, "job"));
+        assertEquals(HttpServletResponse.SC_NOT_FOUND, status.status);
+        assertEquals("", status.writer.toString());
+
+        RecordingResponse download = new RecordingResponse();
+        controller.downloadExport(null, download.proxy(), pathVars, "job");
+        assertEquals(HttpServletResponse.SC_NOT_FOUND, download.status);
+        assertEquals(0, download.out.size());
+    }
+
+    @Test
+    public void testExportWithoutOwnerIsNotServed() throws Exception {
+        EntityExportJob job = new EntityExportJob("anonymous", SECTION_CLASS, EntityExportFormat.CSV);
+        job.setFile(exportFile);
+        job.complete();
+        exportJobs.put(job.getId(), job);
+        currentAdminUserId = null;
+
+        RecordingResponse download = new RecordingResponse();
+        controller.downloadExport(null, download.proxy(), pathVars, "anonymous");
+        assertEquals(HttpServletResponse.SC_NOT_FOUND, download.status);
+    }
+
+}
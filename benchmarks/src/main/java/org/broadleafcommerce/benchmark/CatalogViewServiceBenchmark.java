@@ -0,0 +1,340 @@
+/*
+ * #%L
+ * BroadleafCommerce Benchmarks
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.benchmark;
+
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+
+import org.broadleafcommerce.common.money.Money;
+import org.broadleafcommerce.core.catalog.domain.Product;
+import org.broadleafcommerce.core.catalog.domain.ProductAttribute;
+import org.broadleafcommerce.core.catalog.domain.ProductAttributeImpl;
+import org.broadleafcommerce.core.catalog.domain.ProductImpl;
+import org.broadleafcommerce.core.catalog.domain.ProductOption;
+import org.broadleafcommerce.core.catalog.domain.ProductOptionImpl;
+import org.broadleafcommerce.core.catalog.domain.ProductOptionValue;
+import org.broadleafcommerce.core.catalog.domain.ProductOptionValueImpl;
+import org.broadleafcommerce.core.catalog.domain.ProductOptionXref;
+import org.broadleafcommerce.core.catalog.domain.ProductOptionXrefImpl;
+import org.broadleafcommerce.core.catalog.domain.Sku;
+import org.broadleafcommerce.core.catalog.domain.SkuImpl;
+import org.broadleafcommerce.core.catalog.service.CatalogService;
+import org.broadleafcommerce.core.catalog.service.CatalogViewServiceImpl;
+import org.broadleafcommerce.core.catalog.service.dynamic.DefaultDynamicSkuPricingServiceImpl;
+import org.broadleafcommerce.core.catalog.service.dynamic.SkuPricingConsiderationContext;
+import org.broadleafcommerce.core.catalog.service.type.ProductOptionType;
+import org.broadleafcommerce.core.catalog.service.view.ProductOptionValueView;
+import org.broadleafcommerce.core.catalog.service.view.ProductOptionView;
+import org.broadleafcommerce.core.catalog.service.view.ProductView;
+import org.broadleafcommerce.core.catalog.service.view.SkuView;
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading what a product page and a category page render, once from the catalog entities and once from the product
+ * views of {@link CatalogViewServiceImpl}. The entities are built in memory and priced through the default dynamic
+ * pricing service, as the storefront's pricing filter sets it up. Their dynamic prices are cleared before every
+ * render, since every request works on its own copies of the entities. The views are served from the cache, except
+ * for {@link #productPageBuildingView(Blackhole)}, which shows what a cache miss costs. Translations are not enabled, so
+ * the names and descriptions are read as they are on the entities.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CatalogViewServiceBenchmark {
+
+    protected static final String CACHE_NAME = "benchmarkCatalogViewElements";
+
+    protected static final int PRODUCTS_PER_CATEGORY_PAGE = 24;
+
+    protected static final int OPTION_COUNT = 2;
+
+    protected static final int VALUES_PER_OPTION = 4;
+
+    protected CacheManager cacheManager;
+    protected CatalogViewServiceImpl viewService;
+    protected Map<Long, Product> productsById = new HashMap<Long, Product>();
+    protected List<Product> categoryProducts = new ArrayList<Product>();
+    protected Product product;
+
+    @Setup
+    public void setUp() {
+        cacheManager = CacheManager.create();
+        Cache cache = new Cache(CACHE_NAME, 1000, false, false, 0, 0);
+        cacheManager.addCache(cache);
+
+        for (long productId = 1; productId <= PRODUCTS_PER_CATEGORY_PAGE; productId++) {
+            Product categoryProduct = createProduct(productId);
+            productsById.put(productId, categoryProduct);
+            categoryProducts.add(categoryProduct);
+        }
+        product = productsById.get(1L);
+
+        CatalogService catalogService = EasyMock.createNiceMock(CatalogService.class);
+        EasyMock.expect(catalogService.findProductById(EasyMock.anyLong())).andAnswer(new IAnswer<Product>() {
+            @Override
+            public Product answer() {
+                return productsById.get(EasyMock.getCurrentArguments()[0]);
+            }
+        }).anyTimes();
+        EasyMock.replay(catalogService);
+        viewService = new BenchmarkCatalogViewService(catalogService, cache);
+
+        SkuPricingConsiderationContext.setSkuPricingConsiderationContext(new HashMap());
+        SkuPricingConsiderationContext.setSkuPricingService(new DefaultDynamicSkuPricingServiceImpl());
+    }
+
+    @TearDown
+    public void tearDown() {
+        SkuPricingConsiderationContext.setSkuPricingConsiderationContext(null);
+        SkuPricingConsiderationContext.setSkuPricingService(null);
+        cacheManager.removeCache(CACHE_NAME);
+    }
+
+    @Benchmark
+    public void productPageFromEntities(Blackhole blackhole) {
+        clearDynamicPrices(product);
+        renderProductPage(product, blackhole);
+    }
+
+    @Benchmark
+    public void productPageFromCachedView(Blackhole blackhole) {
+        renderProductPage(viewService.getProductView(product.getId()), blackhole);
+    }
+
+    @Benchmark
+    public void productPageBuildingView(Blackhole blackhole) {
+        clearDynamicPrices(product);
+        renderProductPage(new ProductView(product), blackhole);
+    }
+
+    @Benchmark
+    public void categoryPageFromEntities(Blackhole blackhole) {
+        for (Product categoryProduct : categoryProducts) {
+            clearDynamicPrices(categoryProduct);
+            renderProductTile(categoryProduct, blackhole);
+        }
+    }
+
+    @Benchmark
+    public void categoryPageFromCachedViews(Blackhole blackhole) {
+        for (Product categoryProduct : categoryProducts) {
+            renderProductTile(viewService.getProductView(categoryProduct.getId()), blackhole);
+        }
+    }
+
+    /**
+     * What the product page of the demo site reads from a product
+     */
+    protected void renderProductPage(Product product, Blackhole blackhole) {
+        renderProductTile(product, blackhole);
+        blackhole.consume(product.getDefaultSku().getDescription());
+        blackhole.consume(product.getDefaultSku().getLongDescription());
+        blackhole.consume(product.getManufacturer());
+        blackhole.consume(product.getModel());
+        for (Sku sku : product.getAdditionalSkus()) {
+            blackhole.consume(sku.getName());
+            blackhole.consume(sku.getPrice());
+            blackhole.consume(sku.isOnSale());
+            blackhole.consume(sku.isActive());
+            blackhole.consume(sku.getProductOptionValuesCollection());
+        }
+        for (ProductOption option : product.getProductOptions()) {
+            blackhole.consume(option.getLabel());
+            blackhole.consume(option.getAttributeName());
+            for (ProductOptionValue value : option.getAllowedValues()) {
+                blackhole.consume(value.getAttributeValue());
+                blackhole.consume(value.getPriceAdjustment());
+            }
+        }
+        for (Map.Entry<String, ProductAttribute> attribute : product.getProductAttributes().entrySet()) {
+            blackhole.consume(attribute.getValue().getValue());
+        }
+    }
+
+    protected void renderProductPage(ProductView product, Blackhole blackhole) {
+        renderProductTile(product, blackhole);
+        blackhole.consume(product.getDescription());
+        blackhole.consume(product.getLongDescription());
+        blackhole.consume(product.getManufacturer());
+        blackhole.consume(product.getModel());
+        for (SkuView sku : product.getSkus()) {
+            blackhole.consume(sku.getName());
+            blackhole.consume(sku.getPrice());
+            blackhole.consume(sku.isOnSale());
+            blackhole.consume(sku.isActive());
+            blackhole.consume(sku.getProductOptionValueIds());
+        }
+        for (ProductOptionView option : product.getProductOptions()) {
+            blackhole.consume(option.getLabel());
+            blackhole.consume(option.getAttributeName());
+            for (ProductOptionValueView value : option.getAllowedValues()) {
+                blackhole.consume(value.getAttributeValue());
+                blackhole.consume(value.getPriceAdjustment());
+            }
+        }
+        for (Map.Entry<String, String> attribute : product.getAttributes().entrySet()) {
+            blackhole.consume(attribute.getValue());
+        }
+    }
+
+    /**
+     * What a product tile of a category page of the demo site reads from a product
+     */
+    protected void renderProductTile(Product product, Blackhole blackhole) {
+        Sku sku = product.getDefaultSku();
+        blackhole.consume(product.getUrl());
+        blackhole.consume(sku.getName());
+        blackhole.consume(product.isActive());
+        blackhole.consume(sku.getRetailPrice());
+        blackhole.consume(sku.getSalePrice());
+        blackhole.consume(sku.isOnSale());
+        blackhole.consume(product.getPromoMessage());
+    }
+
+    protected void renderProductTile(ProductView product, Blackhole blackhole) {
+        blackhole.consume(product.getUrl());
+        blackhole.consume(product.getName());
+        blackhole.consume(product.isActive());
+        blackhole.consume(product.getRetailPrice());
+        blackhole.consume(product.getSalePrice());
+        blackhole.consume(product.isOnSale());
+        blackhole.consume(product.getPromoMessage());
+    }
+
+    protected void clearDynamicPrices(Product product) {
+        product.getDefaultSku().clearDynamicPrices();
+        for (Sku sku : product.getAdditionalSkus()) {
+            sku.clearDynamicPrices();
+        }
+    }
+
+    /**
+     * A product with a sale price, two options of four values each and a sku for every combination of them
+     */
+    protected Product createProduct(long productId) {
+        ProductImpl product = new ProductImpl();
+        product.setId(productId);
+        product.setUrl("/hot-sauces/hot-sauce-" + productId);
+        product.setManufacturer("Manufacturer " + productId % 8);
+        product.setModel("HS-" + productId);
+        product.setPromoMessage("Buy two, get one free");
+
+        Sku defaultSku = new SkuImpl();
+        defaultSku.setId(productId * 100);
+        defaultSku.setName("Hot Sauce " + productId);
+        defaultSku.setDescription("A hot sauce with a heat range of " + (productId % 5 + 1) + " out of 5");
+        defaultSku.setLongDescription("Made from the hottest peppers of the season");
+        defaultSku.setRetailPrice(new Money(4.99D + productId % 10));
+        defaultSku.setSalePrice(new Money(3.99D + productId % 10));
+        defaultSku.setDefaultProduct(product);
+        product.setDefaultSku(defaultSku);
+
+        List<ProductOptionXref> optionXrefs = new ArrayList<ProductOptionXref>();
+        List<List<ProductOptionValue>> optionValues = new ArrayList<List<ProductOptionValue>>();
+        for (int optionIndex = 0; optionIndex < OPTION_COUNT; optionIndex++) {
+            ProductOption option = new ProductOptionImpl();
+            option.setId(productId * 10 + optionIndex);
+            option.setType(optionIndex == 0 ? ProductOptionType.COLOR : ProductOptionType.SIZE);
+            option.setAttributeName("option" + optionIndex);
+            option.setLabel("Option " + optionIndex);
+            List<ProductOptionValue> values = new ArrayList<ProductOptionValue>();
+            for (int valueIndex = 0; valueIndex < VALUES_PER_OPTION; valueIndex++) {
+                ProductOptionValue value = new ProductOptionValueImpl();
+                value.setId(option.getId() * 10 + valueIndex);
+                value.setAttributeValue("Value " + valueIndex);
+                value.setDisplayOrder((long) valueIndex);
+                value.setPriceAdjustment(new Money(valueIndex * 0.5D));
+                value.setProductOption(option);
+                values.add(value);
+            }
+            option.setAllowedValues(values);
+            optionValues.add(values);
+            ProductOptionXref xref = new ProductOptionXrefImpl();
+            xref.setProduct(product);
+            xref.setProductOption(option);
+            optionXrefs.add(xref);
+        }
+        product.setProductOptionXrefs(optionXrefs);
+
+        List<Sku> additionalSkus = new ArrayList<Sku>();
+        for (ProductOptionValue first : optionValues.get(0)) {
+            for (ProductOptionValue second : optionValues.get(1)) {
+                Sku sku = new SkuImpl();
+                sku.setId(productId * 100 + additionalSkus.size() + 1);
+                sku.setProduct(product);
+                Set<ProductOptionValue> values = new HashSet<ProductOptionValue>();
+                values.add(first);
+                values.add(second);
+                sku.setProductOptionValuesCollection(values);
+                additionalSkus.add(sku);
+            }
+        }
+        product.setAdditionalSkus(additionalSkus);
+
+        Map<String, ProductAttribute> attributes = new HashMap<String, ProductAttribute>();
+        for (String name : new String[] { "heatRange", "origin", "bottleSize" }) {
+            ProductAttribute attribute = new ProductAttributeImpl();
+            attribute.setName(name);
+            attribute.setValue(name + " of " + productId);
+            attribute.setProduct(product);
+            attributes.put(name, attribute);
+        }
+        product.setProductAttributes(attributes);
+        return product;
+    }
+
+    /**
+     * The view service of the framework with its cache enabled
+     */
+    protected static class BenchmarkCatalogViewService extends CatalogViewServiceImpl {
+
+        public BenchmarkCatalogViewService(CatalogService catalogService, Cache viewCache) {
+            this.catalogService = catalogService;
+            this.viewCache = viewCache;
+            this.enabled = true;
+        }
+
+    }
+
+}
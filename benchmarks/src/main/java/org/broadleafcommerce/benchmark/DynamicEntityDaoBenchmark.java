@@ -0,0 +1,111 @@
+/*
+ * #%L
+ * BroadleafCommerce Benchmarks
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.benchmark;
+
+import org.broadleafcommerce.common.web.BroadleafRequestContext;
+import org.broadleafcommerce.openadmin.dto.FieldMetadata;
+import org.broadleafcommerce.openadmin.server.dao.DynamicEntityDao;
+import org.broadleafcommerce.openadmin.server.service.persistence.PersistenceManagerFactory;
+import org.broadleafcommerce.openadmin.server.service.persistence.TargetModeType;
+import org.broadleafcommerce.test.BaseTest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Admin metadata merging through {@link DynamicEntityDao#getMergedProperties(Class)} for the polymorphic tree of an
+ * entity, against the in-memory HSQLDB application context of the integration tests ({@link BaseTest#getContext()}).
+ * <p>
+ * With metadataCache=true the DAO runs with the default configuration, where merged properties are cached for the
+ * life of the JVM. With metadataCache=false the DAO runs with cache.entity.dao.metadata.ttl=0, which is what every
+ * request of an admin with metadata caching turned off pays. JMH forks a JVM per parameter combination, so the
+ * property override of one combination does not leak into the other.
+ * <p>
+ * The benchmark thread holds an open entity manager for the whole trial, the same way the OpenEntityManagerInView
+ * filter does for an admin request.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DynamicEntityDaoBenchmark {
+
+    @Param({ "true", "false" })
+    public boolean metadataCache;
+
+    @Param({ "org.broadleafcommerce.core.catalog.domain.Product", "org.broadleafcommerce.core.order.domain.Order" })
+    public String ceilingEntity;
+
+    protected DynamicEntityDao dynamicEntityDao;
+    protected Class<?> ceilingClass;
+    protected EntityManagerFactory entityManagerFactory;
+
+    @Setup
+    public void setUp() throws Exception {
+        if (!metadataCache) {
+            File overrides = File.createTempFile("bl-benchmark", ".properties");
+            overrides.deleteOnExit();
+            Files.write(overrides.toPath(), "cache.entity.dao.metadata.ttl=0\n".getBytes(Charset.forName("UTF-8")));
+            System.setProperty("property-override", overrides.getAbsolutePath());
+        }
+        entityManagerFactory = BaseTest.getContext().getBean("entityManagerFactory", EntityManagerFactory.class);
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        TransactionSynchronizationManager.bindResource(entityManagerFactory, new EntityManagerHolder(entityManager));
+        BroadleafRequestContext.setBroadleafRequestContext(new BroadleafRequestContext());
+
+        dynamicEntityDao = PersistenceManagerFactory.getPersistenceManager(TargetModeType.SANDBOX).getDynamicEntityDao();
+        ceilingClass = Class.forName(ceilingEntity);
+    }
+
+    @TearDown
+    public void tearDown() {
+        BroadleafRequestContext.setBroadleafRequestContext(null);
+        EntityManagerHolder holder = (EntityManagerHolder) TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+        holder.getEntityManager().close();
+    }
+
+    @Benchmark
+    public Map<String, FieldMetadata> getMergedProperties() {
+        return dynamicEntityDao.getMergedProperties(ceilingClass);
+    }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * #%L
+ * BroadleafCommerce Benchmarks
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.benchmark;
+
+import org.broadleafcommerce.openadmin.server.service.artifact.image.ImageArtifactProcessor;
+import org.broadleafcommerce.openadmin.server.service.artifact.image.Operation;
+import org.broadleafcommerce.openadmin.server.service.artifact.image.effects.chain.EffectsManager;
+import org.broadleafcommerce.openadmin.server.service.artifact.image.effects.chain.conversion.ConversionManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Conversion of a large product photo into a PDP thumbnail through {@link ImageArtifactProcessor}. With
+ * subsampleHeadroom=0 the whole source image is decoded before it is resized, which is what the processor did before
+ * decode-time subsampling; with the default of 2 the decoder skips the source pixels the resize would throw away.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ImageArtifactProcessorBenchmark {
+
+    protected static final int SOURCE_SIZE = 2400;
+
+    @Param({ "0", "2" })
+    public int subsampleHeadroom;
+
+    protected ImageArtifactProcessor processor;
+    protected EffectsManager effectsManager;
+    protected Operation[] operations;
+    protected byte[] source;
+
+    @Setup
+    public void setUp() throws Exception {
+        effectsManager = new EffectsManager();
+        effectsManager.setConversionManager(new ConversionManager());
+        effectsManager.init();
+
+        processor = new BenchmarkImageArtifactProcessor(effectsManager);
+        processor.setSubsampleHeadroom(subsampleHeadroom);
+
+        Map<String, String> parameterMap = new HashMap<String, String>();
+        parameterMap.put("resize-width-amount", "300");
+        parameterMap.put("resize-height-amount", "300");
+        parameterMap.put("resize-high-quality", "false");
+        parameterMap.put("resize-maintain-aspect-ratio", "true");
+        parameterMap.put("resize-reduce-only", "true");
+        operations = processor.buildOperations(parameterMap, null, "image/jpeg");
+
+        // a gradient with noise, so that the encoded photo is about as large as a real one
+        Random random = new Random(42);
+        BufferedImage image = new BufferedImage(SOURCE_SIZE, SOURCE_SIZE, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < SOURCE_SIZE; y++) {
+            for (int x = 0; x < SOURCE_SIZE; x++) {
+                int r = (x * 255 / SOURCE_SIZE + random.nextInt(16)) & 0xff;
+                int g = (y * 255 / SOURCE_SIZE + random.nextInt(16)) & 0xff;
+                int b = ((x + y) * 255 / (2 * SOURCE_SIZE) + random.nextInt(16)) & 0xff;
+                image.setRGB(x, y, (r << 16) | (g << 8) | b);
+            }
+        }
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", encoded);
+        source = encoded.toByteArray();
+    }
+
+    @TearDown
+    public void tearDown() {
+        effectsManager.shutdown();
+    }
+
+    @Benchmark
+    public byte[] convertToThumbnail() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        processor.convert(new ByteArrayInputStream(source), operations, "image/jpeg", output);
+        return output.toByteArray();
+    }
+
+    protected static class BenchmarkImageArtifactProcessor extends ImageArtifactProcessor {
+
+        public BenchmarkImageArtifactProcessor(EffectsManager effectsManager) {
+            this.effectsManager = effectsManager;
+        }
+
+    }
+
+}
@@ -0,0 +1,91 @@
+/*
+ * #%L
+ * BroadleafCommerce Benchmarks
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.benchmark;
+
+import org.broadleafcommerce.common.rule.MvelHelper;
+import org.broadleafcommerce.core.offer.domain.Offer;
+import org.broadleafcommerce.core.offer.service.OfferDataItemProvider;
+import org.broadleafcommerce.core.offer.service.OfferServiceImpl;
+import org.broadleafcommerce.core.offer.service.processor.ItemOfferProcessorImpl;
+import org.broadleafcommerce.core.order.domain.Order;
+import org.broadleafcommerce.core.pricing.service.exception.PricingException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Offer application through {@link OfferServiceImpl#applyAndSaveOffersToOrder(List, Order)}, which qualifies the items
+ * and applies the item offers with the {@link ItemOfferProcessorImpl}. The order and offers are the in-memory fixtures
+ * of the {@link OfferDataItemProvider} used by the OfferServiceTest, with the DAOs mocked the same way.
+ * <p>
+ * Applying offers adds adjustments to the order, so every order is only used once. Rather than paying the JMH
+ * bookkeeping of a per invocation setup, a batch of fresh orders is built before each iteration and a single invocation
+ * applies the offers to the whole batch. The score is the time of the whole batch; JMH does not divide single shot
+ * scores by the operations per invocation, so divide by {@link #ORDERS_PER_ITERATION} for the time per order.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 20)
+@Measurement(iterations = 20)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ItemOfferProcessorBenchmark {
+
+    protected static final int ORDERS_PER_ITERATION = 500;
+
+    protected OfferDataItemProvider dataProvider = new OfferDataItemProvider();
+    protected OfferServiceImpl offerService;
+    protected List<Offer> offers;
+    protected Order[] orders = new Order[ORDERS_PER_ITERATION];
+
+    @Setup(Level.Trial)
+    public void setUp() throws PricingException {
+        MvelHelper.setTestMode(true);
+        offers = OfferServiceFixtures.createItemOffers(dataProvider);
+        offerService = OfferServiceFixtures.createOfferService(offers);
+    }
+
+    @Setup(Level.Iteration)
+    public void createOrders() {
+        for (int i = 0; i < orders.length; i++) {
+            orders[i] = dataProvider.createBasicPromotableOrder().getOrder();
+        }
+    }
+
+    @Benchmark
+    public void applyItemOffers(Blackhole blackhole) throws PricingException {
+        for (Order order : orders) {
+            blackhole.consume(offerService.applyAndSaveOffersToOrder(offers, order));
+        }
+    }
+
+}
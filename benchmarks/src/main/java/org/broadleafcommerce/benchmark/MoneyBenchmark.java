@@ -0,0 +1,125 @@
+/*
+ * #%L
+ * BroadleafCommerce Benchmarks
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.benchmark;
+
+import org.broadleafcommerce.common.money.Money;
+import org.broadleafcommerce.common.money.MoneyAccumulator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@link Money} arithmetic performed by the pricing and offer code for every item of a cart: extending prices by
+ * quantity, summing them into a subtotal and prorating a percent off discount. The <code>Accumulated</code> variants
+ * perform the same summations through a {@link MoneyAccumulator}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MoneyBenchmark {
+
+    /**
+     * The number of items in the cart
+     */
+    @Param({ "10", "100" })
+    public int itemCount;
+
+    protected Money[] prices;
+    protected int[] quantities;
+    protected BigDecimal discountRate = new BigDecimal("0.15");
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        prices = new Money[itemCount];
+        quantities = new int[itemCount];
+        for (int i = 0; i < itemCount; i++) {
+            prices[i] = new Money(BigDecimal.valueOf(random.nextInt(100000), 2));
+            quantities[i] = 1 + random.nextInt(5);
+        }
+    }
+
+    @Benchmark
+    public Money subtotal() {
+        Money subtotal = Money.ZERO;
+        for (int i = 0; i < itemCount; i++) {
+            subtotal = subtotal.add(prices[i].multiply(quantities[i]));
+        }
+        return subtotal;
+    }
+
+    @Benchmark
+    public Money subtotalAccumulated() {
+        MoneyAccumulator subtotal = new MoneyAccumulator(Money.ZERO);
+        for (int i = 0; i < itemCount; i++) {
+            subtotal.add(prices[i], quantities[i]);
+        }
+        return subtotal.toMoney();
+    }
+
+    @Benchmark
+    public Money subtotalWithAdjustments() {
+        Money subtotal = Money.ZERO;
+        for (int i = 0; i < itemCount; i++) {
+            Money total = prices[i].multiply(quantities[i]);
+            Money adjustment = total.multiply(discountRate);
+            subtotal = subtotal.add(total.subtract(adjustment));
+        }
+        return subtotal;
+    }
+
+    @Benchmark
+    public Money subtotalWithAdjustmentsAccumulated() {
+        MoneyAccumulator subtotal = new MoneyAccumulator(Money.ZERO);
+        for (int i = 0; i < itemCount; i++) {
+            Money total = prices[i].multiply(quantities[i]);
+            subtotal.add(total).subtract(total.multiply(discountRate));
+        }
+        return subtotal.toMoney();
+    }
+
+    @Benchmark
+    public Money proratedDiscount() {
+        Money subtotal = subtotal();
+        Money discount = subtotal.multiply(discountRate);
+        Money applied = Money.ZERO;
+        for (int i = 0; i < itemCount; i++) {
+            Money total = prices[i].multiply(quantities[i]);
+            applied = applied.add(discount.multiply(total.getAmount()).divide(subtotal.getAmount()));
+        }
+        return applied;
+    }
+
+}
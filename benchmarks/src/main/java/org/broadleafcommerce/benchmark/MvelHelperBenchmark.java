@@ -0,0 +1,89 @@
+/*
+ * #%L
+ * BroadleafCommerce Benchmarks
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.benchmark;
+
+import org.broadleafcommerce.common.rule.MvelHelper;
+import org.broadleafcommerce.core.offer.service.OfferDataItemProvider;
+import org.broadleafcommerce.core.order.domain.Order;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluation of offer rules through {@link MvelHelper#evaluateRule(String, Map, Map)} against the order built by the
+ * {@link OfferDataItemProvider}, both with a warm expression cache (the usual case) and with a cold one (the cost of a
+ * rule that fell out of the cache).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MvelHelperBenchmark {
+
+    protected static final String ORDER_RULE = "order.subTotal.getAmount()>20";
+
+    protected static final String ITEM_RULE = "([MVEL.eval(\"toUpperCase()\",\"test1\"), MVEL.eval(\"toUpperCase()\",\"test2\")] "
+            + "contains MVEL.eval(\"toUpperCase()\", discreteOrderItem.category.name))";
+
+    protected Map<String, Object> orderParameters;
+    protected Map<String, Object> itemParameters;
+    protected Map<String, Serializable> expressionCache;
+
+    @Setup
+    public void setUp() {
+        MvelHelper.setTestMode(true);
+        Order order = new OfferDataItemProvider().createBasicOrder();
+        orderParameters = new HashMap<String, Object>();
+        orderParameters.put("order", order);
+        itemParameters = new HashMap<String, Object>();
+        itemParameters.put("discreteOrderItem", order.getOrderItems().get(0));
+        expressionCache = new HashMap<String, Serializable>();
+    }
+
+    @Benchmark
+    public boolean orderRule() {
+        return MvelHelper.evaluateRule(ORDER_RULE, orderParameters, expressionCache);
+    }
+
+    @Benchmark
+    public boolean itemRule() {
+        return MvelHelper.evaluateRule(ITEM_RULE, itemParameters, expressionCache);
+    }
+
+    @Benchmark
+    public boolean itemRuleUncached() {
+        return MvelHelper.evaluateRule(ITEM_RULE, itemParameters, new HashMap<String, Serializable>());
+    }
+
+}
@@ -0,0 +1,124 @@
+/*
+ * #%L
+ * BroadleafCommerce Benchmarks
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.benchmark;
+
+import org.broadleafcommerce.core.offer.dao.CustomerOfferDao;
+import org.broadleafcommerce.core.offer.dao.OfferCodeDao;
+import org.broadleafcommerce.core.offer.dao.OfferDao;
+import org.broadleafcommerce.core.offer.domain.CustomerOffer;
+import org.broadleafcommerce.core.offer.domain.Offer;
+import org.broadleafcommerce.core.offer.domain.OfferImpl;
+import org.broadleafcommerce.core.offer.service.OfferDataItemProvider;
+import org.broadleafcommerce.core.offer.service.OfferServiceImpl;
+import org.broadleafcommerce.core.offer.service.OfferServiceUtilitiesImpl;
+import org.broadleafcommerce.core.offer.service.discount.domain.PromotableItemFactoryImpl;
+import org.broadleafcommerce.core.offer.service.processor.FulfillmentGroupOfferProcessorImpl;
+import org.broadleafcommerce.core.offer.service.processor.ItemOfferProcessorImpl;
+import org.broadleafcommerce.core.offer.service.processor.OfferTimeZoneProcessor;
+import org.broadleafcommerce.core.offer.service.processor.OrderOfferProcessorImpl;
+import org.broadleafcommerce.core.offer.service.type.OfferDiscountType;
+import org.broadleafcommerce.core.order.dao.OrderItemDao;
+import org.broadleafcommerce.core.order.domain.Order;
+import org.broadleafcommerce.core.order.service.OrderService;
+import org.broadleafcommerce.core.pricing.service.exception.PricingException;
+import org.broadleafcommerce.profile.core.domain.Customer;
+import org.easymock.EasyMock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Builds an {@link OfferServiceImpl} and its offer processors over mocked DAOs, the same way the OfferServiceTest does,
+ * so that the offer and pricing benchmarks run against the in-memory fixtures of the {@link OfferDataItemProvider}.
+ */
+public class OfferServiceFixtures {
+
+    /**
+     * @param automaticOffers the offers returned as automatically delivered when the service builds the offer list
+     * of an order
+     * @return an offer service that does not touch the database
+     */
+    public static OfferServiceImpl createOfferService(List<Offer> automaticOffers) throws PricingException {
+        OfferDao offerDaoMock = EasyMock.createMock(OfferDao.class);
+        OrderItemDao orderItemDaoMock = EasyMock.createMock(OrderItemDao.class);
+        OrderService orderServiceMock = EasyMock.createMock(OrderService.class);
+        CustomerOfferDao customerOfferDaoMock = EasyMock.createMock(CustomerOfferDao.class);
+        OfferTimeZoneProcessor offerTimeZoneProcessorMock = EasyMock.createMock(OfferTimeZoneProcessor.class);
+
+        EasyMock.expect(offerDaoMock.createOrderItemPriceDetailAdjustment()).andAnswer(OfferDataItemProvider.getCreateOrderItemPriceDetailAdjustmentAnswer()).anyTimes();
+        EasyMock.expect(offerDaoMock.readOffersByAutomaticDeliveryType()).andReturn(automaticOffers).anyTimes();
+        EasyMock.expect(orderItemDaoMock.createOrderItemPriceDetail()).andAnswer(OfferDataItemProvider.getCreateOrderItemPriceDetailAnswer()).anyTimes();
+        EasyMock.expect(orderItemDaoMock.createOrderItemQualifier()).andAnswer(OfferDataItemProvider.getCreateOrderItemQualifierAnswer()).anyTimes();
+        EasyMock.expect(orderServiceMock.getAutomaticallyMergeLikeItems()).andReturn(true).anyTimes();
+        EasyMock.expect(orderServiceMock.save(EasyMock.isA(Order.class), EasyMock.isA(Boolean.class))).andAnswer(OfferDataItemProvider.getSaveOrderAnswer()).anyTimes();
+        EasyMock.expect(customerOfferDaoMock.readCustomerOffersByCustomer(EasyMock.isA(Customer.class))).andReturn(new ArrayList<CustomerOffer>()).anyTimes();
+        EasyMock.expect(offerTimeZoneProcessorMock.getTimeZone(EasyMock.isA(OfferImpl.class))).andReturn(TimeZone.getTimeZone("CST")).anyTimes();
+        EasyMock.replay(offerDaoMock, orderItemDaoMock, orderServiceMock, customerOfferDaoMock, offerTimeZoneProcessorMock);
+
+        OfferServiceUtilitiesImpl offerServiceUtilities = new OfferServiceUtilitiesImpl();
+        offerServiceUtilities.setOfferDao(offerDaoMock);
+        offerServiceUtilities.setPromotableItemFactory(new PromotableItemFactoryImpl());
+
+        OrderOfferProcessorImpl orderProcessor = new OrderOfferProcessorImpl();
+        orderProcessor.setOfferDao(offerDaoMock);
+        orderProcessor.setOrderItemDao(orderItemDaoMock);
+        orderProcessor.setPromotableItemFactory(new PromotableItemFactoryImpl());
+        orderProcessor.setOfferTimeZoneProcessor(offerTimeZoneProcessorMock);
+        orderProcessor.setOfferServiceUtilities(offerServiceUtilities);
+
+        ItemOfferProcessorImpl itemProcessor = new ItemOfferProcessorImpl();
+        itemProcessor.setOfferDao(offerDaoMock);
+        itemProcessor.setOrderItemDao(orderItemDaoMock);
+        itemProcessor.setOfferTimeZoneProcessor(offerTimeZoneProcessorMock);
+        itemProcessor.setPromotableItemFactory(new PromotableItemFactoryImpl());
+        itemProcessor.setOfferServiceUtilities(offerServiceUtilities);
+
+        FulfillmentGroupOfferProcessorImpl fgProcessor = new FulfillmentGroupOfferProcessorImpl();
+        fgProcessor.setOfferDao(offerDaoMock);
+        fgProcessor.setOrderItemDao(orderItemDaoMock);
+        fgProcessor.setOfferTimeZoneProcessor(offerTimeZoneProcessorMock);
+        fgProcessor.setPromotableItemFactory(new PromotableItemFactoryImpl());
+        fgProcessor.setOfferServiceUtilities(offerServiceUtilities);
+
+        OfferServiceImpl offerService = new OfferServiceImpl();
+        offerService.setCustomerOfferDao(customerOfferDaoMock);
+        offerService.setOfferCodeDao(EasyMock.createMock(OfferCodeDao.class));
+        offerService.setOfferDao(offerDaoMock);
+        offerService.setOrderService(orderServiceMock);
+        offerService.setOrderOfferProcessor(orderProcessor);
+        offerService.setItemOfferProcessor(itemProcessor);
+        offerService.setFulfillmentGroupOfferProcessor(fgProcessor);
+        offerService.setPromotableItemFactory(new PromotableItemFactoryImpl());
+        return offerService;
+    }
+
+    /**
+     * The percent off item offer with order and item criteria used throughout the benchmarks
+     */
+    public static List<Offer> createItemOffers(OfferDataItemProvider dataProvider) {
+        return dataProvider.createItemBasedOfferWithItemCriteria(
+                "order.subTotal.getAmount()>20",
+                OfferDiscountType.PERCENT_OFF,
+                "([MVEL.eval(\"toUpperCase()\",\"test1\"), MVEL.eval(\"toUpperCase()\",\"test2\")] contains MVEL.eval(\"toUpperCase()\", discreteOrderItem.category.name))",
+                "([MVEL.eval(\"toUpperCase()\",\"test1\"), MVEL.eval(\"toUpperCase()\",\"test2\")] contains MVEL.eval(\"toUpperCase()\", discreteOrderItem.category.name))");
+    }
+
+}
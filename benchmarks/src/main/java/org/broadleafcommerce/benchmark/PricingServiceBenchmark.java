@@ -0,0 +1,139 @@
+/*
+ * #%L
+ * BroadleafCommerce Benchmarks
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.benchmark;
+
+import org.broadleafcommerce.common.rule.MvelHelper;
+import org.broadleafcommerce.core.offer.domain.Offer;
+import org.broadleafcommerce.core.offer.service.OfferDataItemProvider;
+import org.broadleafcommerce.core.order.domain.FulfillmentGroup;
+import org.broadleafcommerce.core.order.domain.FulfillmentGroupFeeImpl;
+import org.broadleafcommerce.core.order.domain.Order;
+import org.broadleafcommerce.core.order.service.FulfillmentGroupService;
+import org.broadleafcommerce.core.order.service.OrderService;
+import org.broadleafcommerce.core.pricing.service.FulfillmentPricingService;
+import org.broadleafcommerce.core.pricing.service.PricingService;
+import org.broadleafcommerce.core.pricing.service.PricingServiceImpl;
+import org.broadleafcommerce.core.pricing.service.TaxService;
+import org.broadleafcommerce.core.pricing.service.exception.PricingException;
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.xml.XmlBeanDefinitionReader;
+import org.springframework.context.support.GenericApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pricing of an in-memory order through {@link PricingServiceImpl#executePricing(Order)}, which runs every activity of
+ * the framework pricing workflow. The workflow is the one defined by the framework, wired in a small Spring context
+ * (bl-benchmark-pricing-applicationContext.xml) in which the services that reach the database are replaced by the
+ * mocked offer service of {@link OfferServiceFixtures} and by pass-through fulfillment pricing and tax services, so the
+ * score covers the offer, proration and total calculations of the workflow and none of the I/O.
+ * <p>
+ * Like the {@link ItemOfferProcessorBenchmark}, a batch of fresh orders is built before each iteration since pricing
+ * adds adjustments to the order, and the score is the time of the whole batch.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 20)
+@Measurement(iterations = 20)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PricingServiceBenchmark {
+
+    protected static final int ORDERS_PER_ITERATION = 500;
+
+    protected OfferDataItemProvider dataProvider = new OfferDataItemProvider();
+    protected GenericApplicationContext context;
+    protected PricingService pricingService;
+    protected Order[] orders = new Order[ORDERS_PER_ITERATION];
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        MvelHelper.setTestMode(true);
+        List<Offer> offers = OfferServiceFixtures.createItemOffers(dataProvider);
+
+        FulfillmentGroupService fulfillmentGroupServiceMock = EasyMock.createMock(FulfillmentGroupService.class);
+        FulfillmentPricingService fulfillmentPricingServiceMock = EasyMock.createMock(FulfillmentPricingService.class);
+        TaxService taxServiceMock = EasyMock.createMock(TaxService.class);
+        EasyMock.expect(fulfillmentGroupServiceMock.createFulfillmentGroupFee()).andReturn(new FulfillmentGroupFeeImpl()).anyTimes();
+        EasyMock.expect(fulfillmentGroupServiceMock.save(EasyMock.isA(FulfillmentGroup.class))).andAnswer(this.<FulfillmentGroup>firstArgument()).anyTimes();
+        EasyMock.expect(fulfillmentPricingServiceMock.calculateCostForFulfillmentGroup(EasyMock.isA(FulfillmentGroup.class))).andAnswer(this.<FulfillmentGroup>firstArgument()).anyTimes();
+        EasyMock.expect(taxServiceMock.calculateTaxForOrder(EasyMock.isA(Order.class))).andAnswer(this.<Order>firstArgument()).anyTimes();
+        OrderService orderServiceMock = EasyMock.createMock(OrderService.class);
+        EasyMock.replay(fulfillmentGroupServiceMock, fulfillmentPricingServiceMock, taxServiceMock, orderServiceMock);
+
+        context = new GenericApplicationContext();
+        ConfigurableListableBeanFactory beanFactory = context.getBeanFactory();
+        beanFactory.registerSingleton("blOfferService", OfferServiceFixtures.createOfferService(offers));
+        beanFactory.registerSingleton("blOrderService", orderServiceMock);
+        beanFactory.registerSingleton("blFulfillmentGroupService", fulfillmentGroupServiceMock);
+        beanFactory.registerSingleton("blFulfillmentPricingService", fulfillmentPricingServiceMock);
+        beanFactory.registerSingleton("blTaxService", taxServiceMock);
+        new XmlBeanDefinitionReader(context).loadBeanDefinitions("classpath:bl-benchmark-pricing-applicationContext.xml");
+        context.refresh();
+
+        pricingService = context.getBean("blPricingService", PricingService.class);
+    }
+
+    @Setup(Level.Iteration)
+    public void createOrders() {
+        for (int i = 0; i < orders.length; i++) {
+            orders[i] = dataProvider.createBasicOrder();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void executePricing(Blackhole blackhole) throws PricingException {
+        for (Order order : orders) {
+            blackhole.consume(pricingService.executePricing(order));
+        }
+    }
+
+    protected <T> IAnswer<T> firstArgument() {
+        return new IAnswer<T>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public T answer() throws Throwable {
+                return (T) EasyMock.getCurrentArguments()[0];
+            }
+        };
+    }
+
+}
@@ -0,0 +1,145 @@
+/*
+ * #%L
+ * BroadleafCommerce Benchmarks
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.benchmark;
+
+import org.broadleafcommerce.common.money.Money;
+import org.broadleafcommerce.core.catalog.service.ProductOptionMatrix;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sku resolution for a product with a full cartesian set of option value skus, comparing the
+ * {@link ProductOptionMatrix} lookups against the linear scan over every sku that add to cart used to perform.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProductOptionMatrixBenchmark {
+
+    @Param({ "3", "5" })
+    public int optionCount;
+
+    @Param({ "4" })
+    public int valuesPerOption;
+
+    protected ProductOptionMatrix matrix;
+    protected Long[][] skuOptionValueIds;
+    protected Map<Long, String[]> optionValueAttributes;
+    protected Map<String, String> lastSkuAttributes;
+    protected List<Long> firstOptionSelection;
+
+    @Setup
+    public void setUp() {
+        int skuCount = (int) Math.pow(valuesPerOption, optionCount);
+        Long[] skuIds = new Long[skuCount];
+        Money[] prices = new Money[skuCount];
+        boolean[] available = new boolean[skuCount];
+        Date[] activeStartDates = new Date[skuCount];
+        Date[] activeEndDates = new Date[skuCount];
+        Date activeStartDate = new Date(System.currentTimeMillis() - 86400000L);
+        skuOptionValueIds = new Long[skuCount][];
+        optionValueAttributes = new HashMap<Long, String[]>();
+
+        for (int option = 0; option < optionCount; option++) {
+            for (int value = 0; value < valuesPerOption; value++) {
+                optionValueAttributes.put(getOptionValueId(option, value),
+                        new String[] { "option" + option, "value" + value });
+            }
+        }
+        for (int i = 0; i < skuCount; i++) {
+            skuIds[i] = Long.valueOf(i + 1);
+            prices[i] = new Money(10 + i % 7);
+            available[i] = i % 5 != 0;
+            activeStartDates[i] = activeStartDate;
+            skuOptionValueIds[i] = new Long[optionCount];
+            int remainder = i;
+            for (int option = 0; option < optionCount; option++) {
+                skuOptionValueIds[i][option] = getOptionValueId(option, remainder % valuesPerOption);
+                remainder /= valuesPerOption;
+            }
+        }
+        matrix = new ProductOptionMatrix(1L, skuIds, prices, available, activeStartDates, activeEndDates, skuOptionValueIds,
+                optionValueAttributes);
+
+        lastSkuAttributes = new HashMap<String, String>();
+        for (Long valueId : skuOptionValueIds[skuCount - 1]) {
+            String[] attribute = optionValueAttributes.get(valueId);
+            lastSkuAttributes.put(attribute[0], attribute[1]);
+        }
+        firstOptionSelection = new ArrayList<Long>(Arrays.asList(getOptionValueId(0, 1)));
+    }
+
+    protected Long getOptionValueId(int option, int value) {
+        return Long.valueOf(option * 100 + value);
+    }
+
+    @Benchmark
+    public Long findSkuByAttributes() {
+        return matrix.findSkuIdByAttributes(lastSkuAttributes);
+    }
+
+    /**
+     * The per-sku comparison of the option value attributes that add to cart validation did before the matrix
+     */
+    @Benchmark
+    public Long findSkuByAttributesLinearScan() {
+        for (int i = 0; i < skuOptionValueIds.length; i++) {
+            boolean matches = true;
+            for (Long valueId : skuOptionValueIds[i]) {
+                String[] attribute = optionValueAttributes.get(valueId);
+                if (!attribute[1].equals(lastSkuAttributes.get(attribute[0]))) {
+                    matches = false;
+                    break;
+                }
+            }
+            if (matches) {
+                return Long.valueOf(i + 1);
+            }
+        }
+        return null;
+    }
+
+    @Benchmark
+    public Set<Long> availableOptionValues() {
+        return matrix.getAvailableOptionValueIds(firstOptionSelection);
+    }
+
+}
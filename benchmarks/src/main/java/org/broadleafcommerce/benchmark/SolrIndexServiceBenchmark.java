@@ -0,0 +1,206 @@
+/*
+ * #%L
+ * BroadleafCommerce Benchmarks
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.benchmark;
+
+import org.apache.solr.common.SolrInputDocument;
+import org.broadleafcommerce.common.locale.domain.Locale;
+import org.broadleafcommerce.common.locale.domain.LocaleImpl;
+import org.broadleafcommerce.common.money.Money;
+import org.broadleafcommerce.common.sandbox.SandBoxHelper;
+import org.broadleafcommerce.core.catalog.domain.Product;
+import org.broadleafcommerce.core.catalog.domain.ProductAttribute;
+import org.broadleafcommerce.core.catalog.domain.ProductAttributeImpl;
+import org.broadleafcommerce.core.catalog.domain.ProductImpl;
+import org.broadleafcommerce.core.catalog.domain.Sku;
+import org.broadleafcommerce.core.catalog.domain.SkuImpl;
+import org.broadleafcommerce.core.search.dao.CatalogStructure;
+import org.broadleafcommerce.core.search.domain.Field;
+import org.broadleafcommerce.core.search.domain.FieldEntity;
+import org.broadleafcommerce.core.search.domain.FieldImpl;
+import org.broadleafcommerce.core.search.domain.solr.FieldType;
+import org.broadleafcommerce.core.search.service.solr.SolrHelperServiceImpl;
+import org.broadleafcommerce.core.search.service.solr.SolrIndexCachedOperation;
+import org.broadleafcommerce.core.search.service.solr.SolrIndexServiceImpl;
+import org.broadleafcommerce.core.search.service.solr.SolrSearchServiceExtensionManager;
+import org.easymock.EasyMock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the Solr documents of a page of products through
+ * {@link SolrIndexServiceImpl#buildDocument(Product, List, List)}, the per product work of a reindex. The products and
+ * their catalog structure are built in memory; as during a reindex, the {@link CatalogStructure} of the page is bound
+ * to the thread through the {@link SolrIndexCachedOperation} beforehand, so neither the database nor a Solr server is
+ * reached.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SolrIndexServiceBenchmark {
+
+    protected static final int PRODUCTS_PER_PAGE = 100;
+
+    protected static final int CATEGORY_COUNT = 20;
+
+    protected SolrIndexServiceImpl indexService;
+    protected List<Product> products = new ArrayList<Product>();
+    protected List<Field> fields = new ArrayList<Field>();
+    protected List<Locale> locales;
+
+    @Setup
+    public void setUp() {
+        SolrSearchServiceExtensionManager extensionManager = new SolrSearchServiceExtensionManager();
+        SandBoxHelper sandBoxHelperMock = EasyMock.createNiceMock(SandBoxHelper.class);
+        EasyMock.replay(sandBoxHelperMock);
+        indexService = new BenchmarkSolrIndexService(new BenchmarkSolrHelperService(extensionManager), extensionManager,
+                sandBoxHelperMock);
+
+        LocaleImpl locale = new LocaleImpl();
+        locale.setLocaleCode("en_US");
+        locale.setDefaultFlag(true);
+        locales = Collections.<Locale>singletonList(locale);
+
+        fields.add(createField("name", "name", true, null, FieldType.TEXT));
+        fields.add(createField("description", "description", true, null, FieldType.TEXT));
+        fields.add(createField("manufacturer", "mfg", true, FieldType.STRING, FieldType.TEXT));
+        fields.add(createField("model", "model", true, null, FieldType.STRING));
+        fields.add(createField("defaultSku.price", "price", false, FieldType.PRICE));
+        fields.add(createField("productAttributes(heatRange).value", "heatRange", false, FieldType.INT));
+
+        CatalogStructure cache = new CatalogStructure();
+        for (long categoryId = 1; categoryId <= CATEGORY_COUNT; categoryId++) {
+            // Every category but the root has a parent, which makes the hierarchy a few levels deep
+            HashSet<Long> parentIds = new HashSet<Long>();
+            if (categoryId > 1) {
+                parentIds.add(categoryId / 2);
+            }
+            cache.getParentCategoriesByCategory().put(categoryId, parentIds);
+        }
+        for (long productId = 1; productId <= PRODUCTS_PER_PAGE; productId++) {
+            products.add(createProduct(productId));
+            HashSet<Long> categoryIds = new HashSet<Long>();
+            categoryIds.add(productId % CATEGORY_COUNT + 1);
+            categoryIds.add((productId * 7) % CATEGORY_COUNT + 1);
+            cache.getParentCategoriesByProduct().put(productId, categoryIds);
+            for (Long categoryId : categoryIds) {
+                cache.getDisplayOrdersByCategoryProduct().put(categoryId + "-" + productId, new BigDecimal(productId));
+            }
+        }
+        SolrIndexCachedOperation.setCache(cache);
+    }
+
+    @TearDown
+    public void tearDown() {
+        SolrIndexCachedOperation.clearCache();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PRODUCTS_PER_PAGE)
+    public void buildDocuments(Blackhole blackhole) {
+        for (Product product : products) {
+            blackhole.consume(indexService.buildDocument(product, fields, locales));
+        }
+    }
+
+    protected Field createField(String propertyName, String abbreviation, boolean searchable, FieldType facetType,
+            FieldType... searchableTypes) {
+        FieldImpl field = new FieldImpl();
+        field.setEntityType(FieldEntity.PRODUCT);
+        field.setPropertyName(propertyName);
+        field.setAbbreviation(abbreviation);
+        field.setSearchable(searchable);
+        field.setFacetFieldType(facetType);
+        field.setSearchableFieldTypes(new ArrayList<FieldType>(Arrays.asList(searchableTypes)));
+        return field;
+    }
+
+    protected Product createProduct(long productId) {
+        Product product = new ProductImpl();
+        product.setId(productId);
+        Sku sku = new SkuImpl();
+        sku.setId(productId);
+        sku.setName("Hot Sauce " + productId);
+        sku.setDescription("A hot sauce with a heat range of " + (productId % 5 + 1) + " out of 5");
+        sku.setRetailPrice(new Money(4.99D + productId % 10));
+        product.setDefaultSku(sku);
+        product.setManufacturer("Manufacturer " + productId % 8);
+        product.setModel("HS-" + productId);
+
+        ProductAttribute heatRange = new ProductAttributeImpl();
+        heatRange.setName("heatRange");
+        heatRange.setValue(String.valueOf(productId % 5 + 1));
+        heatRange.setProduct(product);
+        Map<String, ProductAttribute> attributes = new HashMap<String, ProductAttribute>();
+        attributes.put("heatRange", heatRange);
+        product.setProductAttributes(attributes);
+        return product;
+    }
+
+    /**
+     * The helper service of the framework with the collaborators it is usually injected with
+     */
+    protected static class BenchmarkSolrHelperService extends SolrHelperServiceImpl {
+
+        public BenchmarkSolrHelperService(SolrSearchServiceExtensionManager extensionManager) {
+            this.extensionManager = extensionManager;
+        }
+
+    }
+
+    /**
+     * The index service of the framework with the collaborators that {@link SolrIndexServiceImpl#buildDocument(Product,
+     * List, List)} uses when the catalog structure is already cached on the thread
+     */
+    protected static class BenchmarkSolrIndexService extends SolrIndexServiceImpl {
+
+        public BenchmarkSolrIndexService(SolrHelperServiceImpl shs, SolrSearchServiceExtensionManager extensionManager,
+                SandBoxHelper sandBoxHelper) {
+            this.shs = shs;
+            this.extensionManager = extensionManager;
+            this.sandBoxHelper = sandBoxHelper;
+        }
+
+    }
+
+}
@@ -0,0 +1,230 @@
+/*
+ * #%L
+ * BroadleafCommerce Benchmarks
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.benchmark;
+
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.SolrServer;
+import org.broadleafcommerce.common.locale.domain.LocaleImpl;
+import org.broadleafcommerce.common.web.BroadleafRequestContext;
+import org.broadleafcommerce.core.search.dao.FieldDao;
+import org.broadleafcommerce.core.search.dao.SearchFacetDao;
+import org.broadleafcommerce.core.search.domain.Field;
+import org.broadleafcommerce.core.search.domain.FieldEntity;
+import org.broadleafcommerce.core.search.domain.FieldImpl;
+import org.broadleafcommerce.core.search.domain.RequiredFacet;
+import org.broadleafcommerce.core.search.domain.RequiredFacetImpl;
+import org.broadleafcommerce.core.search.domain.SearchCriteria;
+import org.broadleafcommerce.core.search.domain.SearchFacet;
+import org.broadleafcommerce.core.search.domain.SearchFacetDTO;
+import org.broadleafcommerce.core.search.domain.SearchFacetImpl;
+import org.broadleafcommerce.core.search.domain.SearchFacetRange;
+import org.broadleafcommerce.core.search.domain.SearchFacetRangeImpl;
+import org.broadleafcommerce.core.search.domain.solr.FieldType;
+import org.broadleafcommerce.core.search.service.solr.SolrHelperServiceImpl;
+import org.broadleafcommerce.core.search.service.solr.SolrSearchSchema;
+import org.broadleafcommerce.core.search.service.solr.SolrSearchServiceExtensionManager;
+import org.broadleafcommerce.core.search.service.solr.SolrSearchServiceImpl;
+import org.easymock.EasyMock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Setting up a product search before Solr is queried, as done by
+ * {@link SolrSearchServiceImpl#findSearchResults(String, List, SearchCriteria, String, String...)}: building the facet
+ * DTOs, the qf parameter, the sort clause and the facet filters and queries, with the {@link SolrSearchSchema} cache
+ * enabled and disabled. The DAOs hand out the same in memory fields and facets on every call, so the runs without the
+ * schema cache do not include the two database queries they make per search and only show the cost of rebuilding
+ * everything from the entities.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SolrSearchServiceBenchmark {
+
+    @Param({ "true", "false" })
+    public boolean searchSchemaCacheEnabled;
+
+    protected BenchmarkSolrSearchService searchService;
+    protected SearchCriteria searchCriteria;
+
+    @Setup
+    public void setUp() {
+        List<Field> fields = new ArrayList<Field>();
+        fields.add(createField("name", "name", true, null, FieldType.TEXT));
+        fields.add(createField("description", "description", true, null, FieldType.TEXT));
+        Field manufacturer = createField("manufacturer", "mfg", true, FieldType.STRING, FieldType.TEXT);
+        fields.add(manufacturer);
+        fields.add(createField("model", "model", true, null, FieldType.STRING));
+        Field price = createField("defaultSku.price", "price", false, FieldType.PRICE);
+        fields.add(price);
+        Field heatRange = createField("productAttributes(heatRange).value", "heatRange", false, FieldType.INT);
+        fields.add(heatRange);
+
+        List<SearchFacet> searchFacets = new ArrayList<SearchFacet>();
+        SearchFacet manufacturerFacet = createSearchFacet(1L, "Manufacturer", manufacturer);
+        searchFacets.add(manufacturerFacet);
+        SearchFacet priceFacet = createSearchFacet(2L, "Price", price);
+        BigDecimal[] bounds = { BigDecimal.ZERO, new BigDecimal(5), new BigDecimal(10), new BigDecimal(15), null };
+        for (int i = 0; i < bounds.length - 1; i++) {
+            SearchFacetRange range = new SearchFacetRangeImpl();
+            range.setId((long) i + 1);
+            range.setMinValue(bounds[i]);
+            range.setMaxValue(bounds[i + 1]);
+            range.setSearchFacet(priceFacet);
+            priceFacet.getSearchFacetRanges().add(range);
+        }
+        searchFacets.add(priceFacet);
+        // Only shown once a manufacturer is picked
+        SearchFacet heatRangeFacet = createSearchFacet(3L, "Heat Range", heatRange);
+        RequiredFacet requiredFacet = new RequiredFacetImpl();
+        requiredFacet.setId(1L);
+        requiredFacet.setSearchFacet(heatRangeFacet);
+        requiredFacet.setRequiredFacet(manufacturerFacet);
+        heatRangeFacet.getRequiredFacets().add(requiredFacet);
+        searchFacets.add(heatRangeFacet);
+
+        FieldDao fieldDaoMock = EasyMock.createNiceMock(FieldDao.class);
+        EasyMock.expect(fieldDaoMock.readAllProductFields()).andReturn(fields).anyTimes();
+        SearchFacetDao searchFacetDaoMock = EasyMock.createNiceMock(SearchFacetDao.class);
+        EasyMock.expect(searchFacetDaoMock.readAllSearchFacets(FieldEntity.PRODUCT)).andReturn(searchFacets).anyTimes();
+        EasyMock.replay(fieldDaoMock, searchFacetDaoMock);
+
+        SolrSearchServiceExtensionManager extensionManager = new SolrSearchServiceExtensionManager();
+        searchService = new BenchmarkSolrSearchService(new BenchmarkSolrHelperService(extensionManager), extensionManager,
+                fieldDaoMock, searchFacetDaoMock, searchSchemaCacheEnabled);
+
+        Map<String, String[]> filterCriteria = new HashMap<String, String[]>();
+        filterCriteria.put("mfg", new String[] { "Manufacturer 1" });
+        searchCriteria = new SearchCriteria();
+        searchCriteria.setPage(1);
+        searchCriteria.setPageSize(15);
+        searchCriteria.setSortQuery("price desc");
+        searchCriteria.setFilterCriteria(filterCriteria);
+
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addParameter("q", "hot sauce");
+        request.addParameter("mfg", "Manufacturer 1");
+        LocaleImpl locale = new LocaleImpl();
+        locale.setLocaleCode("en_US");
+        locale.setDefaultFlag(true);
+        BroadleafRequestContext context = new BroadleafRequestContext();
+        context.setRequest(request);
+        context.setLocale(locale);
+        BroadleafRequestContext.setBroadleafRequestContext(context);
+    }
+
+    @TearDown
+    public void tearDown() {
+        BroadleafRequestContext.setBroadleafRequestContext(null);
+    }
+
+    @Benchmark
+    public SolrQuery setUpSearch() {
+        return searchService.setUpSearch("hot sauce", searchCriteria);
+    }
+
+    protected Field createField(String propertyName, String abbreviation, boolean searchable, FieldType facetType,
+            FieldType... searchableTypes) {
+        FieldImpl field = new FieldImpl();
+        field.setEntityType(FieldEntity.PRODUCT);
+        field.setPropertyName(propertyName);
+        field.setAbbreviation(abbreviation);
+        field.setSearchable(searchable);
+        field.setFacetFieldType(facetType);
+        field.setSearchableFieldTypes(new ArrayList<FieldType>(Arrays.asList(searchableTypes)));
+        return field;
+    }
+
+    protected SearchFacet createSearchFacet(Long id, String label, Field field) {
+        SearchFacet searchFacet = new SearchFacetImpl();
+        searchFacet.setId(id);
+        searchFacet.setLabel(label);
+        searchFacet.setField(field);
+        searchFacet.setShowOnSearch(true);
+        return searchFacet;
+    }
+
+    /**
+     * The helper service of the framework with the collaborators it is usually injected with
+     */
+    protected static class BenchmarkSolrHelperService extends SolrHelperServiceImpl {
+
+        public BenchmarkSolrHelperService(SolrSearchServiceExtensionManager extensionManager) {
+            this.extensionManager = extensionManager;
+        }
+
+    }
+
+    /**
+     * The search service of the framework with the collaborators used to set up a search, which it runs up to the
+     * point where the query would be sent to Solr
+     */
+    protected static class BenchmarkSolrSearchService extends SolrSearchServiceImpl {
+
+        public BenchmarkSolrSearchService(SolrHelperServiceImpl shs, SolrSearchServiceExtensionManager extensionManager,
+                FieldDao fieldDao, SearchFacetDao searchFacetDao, boolean searchSchemaCacheEnabled) {
+            super((SolrServer) null);
+            this.shs = shs;
+            this.extensionManager = extensionManager;
+            this.fieldDao = fieldDao;
+            this.searchFacetDao = searchFacetDao;
+            this.searchSchemaCacheEnabled = searchSchemaCacheEnabled;
+        }
+
+        public SolrQuery setUpSearch(String query, SearchCriteria searchCriteria) {
+            List<SearchFacetDTO> facets = getSearchFacets();
+            Map<String, SearchFacetDTO> namedFacetMap = getNamedFacetMap(facets, searchCriteria);
+            SolrQuery solrQuery = new SolrQuery()
+                    .setQuery(query)
+                    .setRows(searchCriteria.getPageSize())
+                    .setStart((searchCriteria.getPage() - 1) * searchCriteria.getPageSize());
+            solrQuery.set("defType", "edismax");
+            solrQuery.set("qf", buildQueryFieldsString());
+            attachSortClause(solrQuery, searchCriteria, null);
+            attachActiveFacetFilters(solrQuery, namedFacetMap, searchCriteria);
+            attachFacets(solrQuery, namedFacetMap);
+            return solrQuery;
+        }
+
+    }
+
+}
@@ -0,0 +1,144 @@
+/*
+ * #%L
+ * BroadleafCommerce Benchmarks
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.benchmark;
+
+import org.broadleafcommerce.cms.url.dao.URLHandlerDao;
+import org.broadleafcommerce.cms.url.domain.URLHandler;
+import org.broadleafcommerce.cms.url.domain.URLHandlerImpl;
+import org.broadleafcommerce.cms.url.service.URLHandlerServiceImpl;
+import org.broadleafcommerce.cms.url.type.URLRedirectType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * URL handler resolution through {@link URLHandlerServiceImpl#findURLHandlerByURI(String)}, which runs for every
+ * storefront request that is not a static resource. The handlers are served from memory so that only the matching is
+ * measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class URLHandlerServiceBenchmark {
+
+    @Param({ "50", "500" })
+    public int handlerCount;
+
+    protected URLHandlerServiceImpl urlHandlerService;
+    protected String lastHandlerUri;
+
+    @Setup
+    public void setUp() {
+        final List<URLHandler> handlers = new ArrayList<URLHandler>(handlerCount);
+        for (int i = 0; i < handlerCount; i++) {
+            URLHandlerImpl handler = new URLHandlerImpl();
+            handler.setId(Long.valueOf(i));
+            if (i % 2 == 0) {
+                handler.setIncomingURL("/legacy/category-" + i);
+                handler.setNewURL("/category-" + i);
+                handler.setUrlRedirectType(URLRedirectType.REDIRECT_PERM);
+            } else {
+                handler.setIncomingURL("^/old-products-" + i + "/(.*)$");
+                handler.setNewURL("/products/$1");
+                handler.setUrlRedirectType(URLRedirectType.FORWARD);
+            }
+            handlers.add(handler);
+        }
+        lastHandlerUri = handlerCount % 2 == 0 ? "/old-products-" + (handlerCount - 1) + "/sauce"
+                : "/legacy/category-" + (handlerCount - 1);
+
+        final URLHandlerDao urlHandlerDao = new InMemoryURLHandlerDao(handlers);
+        urlHandlerService = new URLHandlerServiceImpl() {{
+            this.urlHandlerDao = urlHandlerDao;
+        }};
+    }
+
+    /**
+     * The common case: a catalog url that no handler matches
+     */
+    @Benchmark
+    public URLHandler noMatch() {
+        return urlHandlerService.findURLHandlerByURI("/hot-sauces/sudden-death-sauce");
+    }
+
+    /**
+     * A url matched by the last configured handler
+     */
+    @Benchmark
+    public URLHandler lastHandlerMatch() {
+        return urlHandlerService.findURLHandlerByURI(lastHandlerUri);
+    }
+
+    protected static class InMemoryURLHandlerDao implements URLHandlerDao {
+
+        protected final List<URLHandler> handlers;
+
+        public InMemoryURLHandlerDao(List<URLHandler> handlers) {
+            this.handlers = handlers;
+        }
+
+        @Override
+        public URLHandler findURLHandlerByURI(String uri) {
+            for (URLHandler handler : handlers) {
+                if (handler.getIncomingURL().equals(uri)) {
+                    return handler;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public List<URLHandler> findAllURLHandlers() {
+            return handlers;
+        }
+
+        @Override
+        public URLHandler saveURLHandler(URLHandler handler) {
+            handlers.add(handler);
+            return handler;
+        }
+
+        @Override
+        public URLHandler findURLHandlerById(Long id) {
+            for (URLHandler handler : handlers) {
+                if (handler.getId().equals(id)) {
+                    return handler;
+                }
+            }
+            return null;
+        }
+    }
+
+}
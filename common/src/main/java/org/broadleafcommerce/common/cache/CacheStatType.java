@@ -31,5 +31,7 @@ public enum CacheStatType {
     SKU_URL_MISSING_CACHE_HIT_RATE,
     TRANSLATION_CACHE_HIT_RATE,
     RESOURCE_BUNDLING_CACHE_HIT_RATE,
-    GENERATED_RESOURCE_CACHE_HIT_RATE
+    GENERATED_RESOURCE_CACHE_HIT_RATE,
+    TEMPLATE_ELEMENT_CACHE_HIT_RATE,
+    RULE_RESULT_MEMO_HIT_RATE
 }
@@ -0,0 +1,69 @@
+/*
+ * #%L
+ * BroadleafCommerce Common Libraries
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.common.cache;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The value stored in the template element cache for a single rendered fragment. In addition to the rendered output,
+ * this holds the dependency tags (entity ids) the fragment was rendered from, which allows targeted invalidation,
+ * and the time it took to render, which is used to report the render time saved by cache hits.
+ * 
+ * @see TemplateElementCacheService
+ */
+public class CachedTemplateElement implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    protected String templateName;
+    protected String content;
+    protected Set<String> dependencyTags;
+    protected long renderTime;
+
+    public CachedTemplateElement(String templateName, String content, Set<String> dependencyTags, long renderTime) {
+        this.templateName = templateName;
+        this.content = content;
+        this.dependencyTags = dependencyTags == null ? new HashSet<String>() : new HashSet<String>(dependencyTags);
+        this.renderTime = renderTime;
+    }
+
+    public String getTemplateName() {
+        return templateName;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public Set<String> getDependencyTags() {
+        return Collections.unmodifiableSet(dependencyTags);
+    }
+
+    /**
+     * @return the time, in milliseconds, that was spent rendering this fragment when it was cached
+     */
+    public long getRenderTime() {
+        return renderTime;
+    }
+
+}
@@ -0,0 +1,56 @@
+/*
+ * #%L
+ * BroadleafCommerce Common Libraries
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.common.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Extends {@link CacheStat} with the cumulative render time saved by hits for a single fragment template.
+ * 
+ * @see TemplateElementCacheService#getTemplateCacheStats()
+ */
+public class TemplateCacheStat extends CacheStat {
+
+    protected AtomicLong renderTimeSaved = new AtomicLong(0L);
+    protected AtomicLong invalidationCount = new AtomicLong(0L);
+
+    /**
+     * @return the total render time, in milliseconds, that was avoided by serving this template from cache
+     */
+    public Long getRenderTimeSaved() {
+        return renderTimeSaved.longValue();
+    }
+
+    public void addRenderTimeSaved(long renderTime) {
+        renderTimeSaved.addAndGet(renderTime);
+    }
+
+    /**
+     * @return the number of cached elements for this template that were removed by dependency invalidation
+     */
+    public Long getInvalidationCount() {
+        return invalidationCount.longValue();
+    }
+
+    public void incrementInvalidation() {
+        invalidationCount.incrementAndGet();
+    }
+
+}
@@ -0,0 +1,133 @@
+/*
+ * #%L
+ * BroadleafCommerce Common Libraries
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.common.cache;
+
+import net.sf.ehcache.Cache;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Manages the cache of rendered Thymeleaf fragments used by the {@code blc:cache} processor. Every cached fragment can
+ * be tagged with the entities it was rendered from (for example a product, category, structured content item or
+ * sandbox), so that saving one of those entities evicts exactly the fragments that depend on it. This allows
+ * fragments to be cached with long timeouts without serving stale content.
+ * 
+ * <p>
+ * Dependency tags are plain strings of the form {@code type:id} and should be built with
+ * {@link #buildDependencyTag(String, Object)}.
+ * 
+ * @see CachedTemplateElement
+ */
+public interface TemplateElementCacheService {
+
+    public static final String PRODUCT = "product";
+    public static final String CATEGORY = "category";
+    public static final String SKU = "sku";
+    public static final String STRUCTURED_CONTENT = "structuredContent";
+    public static final String STRUCTURED_CONTENT_TYPE = "structuredContentType";
+    public static final String PAGE = "page";
+    public static final String SANDBOX = "sandbox";
+
+    /**
+     * @return the underlying cache holding the rendered fragments
+     */
+    public Cache getCache();
+
+    /**
+     * Looks up the raw cache element for the given key. Expiration is left to the caller, since the
+     * {@code cacheTimeout} can vary per usage of a fragment.
+     * 
+     * @param cacheKey
+     * @return the cache element or null if the key is not cached
+     */
+    public net.sf.ehcache.Element getCacheElement(String cacheKey);
+
+    /**
+     * Caches the given rendered fragment and indexes it under each of its dependency tags. When the fragment replaces
+     * one that was cached under the same key, the key is removed from the tags of the replaced fragment.
+     * 
+     * @param cacheKey
+     * @param element
+     */
+    public void putCachedElement(String cacheKey, CachedTemplateElement element);
+
+    /**
+     * Records a cache hit for the given template, crediting it with the render time of the cached element
+     * 
+     * @param templateName
+     * @param element the element served from cache
+     */
+    public void recordHit(String templateName, CachedTemplateElement element);
+
+    /**
+     * Records a cache miss for the given template
+     * 
+     * @param templateName
+     */
+    public void recordMiss(String templateName);
+
+    /**
+     * Builds the dependency tag for the given entity type and id
+     * 
+     * @param type one of the type constants on this interface or a custom type
+     * @param id the id of the entity
+     * @return the tag
+     */
+    public String buildDependencyTag(String type, Object id);
+
+    /**
+     * Evicts every cached fragment that was tagged with the given entity
+     * 
+     * @param type
+     * @param id
+     */
+    public void invalidateDependency(String type, Object id);
+
+    /**
+     * Evicts every cached fragment that was tagged with the given entity once the current transaction has committed,
+     * so that a fragment rendered while the transaction is still open cannot cache the old state again. Without an
+     * active transaction, the fragments are evicted right away.
+     * 
+     * @param type
+     * @param id
+     */
+    public void invalidateDependencyAfterCommit(String type, Object id);
+
+    /**
+     * Evicts every cached fragment that was tagged with any of the given tags
+     * 
+     * @param dependencyTags
+     */
+    public void invalidateDependencies(Collection<String> dependencyTags);
+
+    /**
+     * @param dependencyTag
+     * @return the cache keys currently indexed under the given tag
+     */
+    public Set<String> getCacheKeysForDependency(String dependencyTag);
+
+    /**
+     * @return the hit ratio and render time saved statistics, keyed by template name
+     */
+    public Map<String, TemplateCacheStat> getTemplateCacheStats();
+
+}
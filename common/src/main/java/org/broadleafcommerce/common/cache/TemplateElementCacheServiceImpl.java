@@ -0,0 +1,270 @@
+/*
+ * #%L
+ * BroadleafCommerce Common Libraries
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.common.cache;
+
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheException;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Element;
+import net.sf.ehcache.event.CacheEventListenerAdapter;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Resource;
+
+/**
+ * Default implementation of {@link TemplateElementCacheService} backed by the "blTemplateElements" Ehcache region.
+ * The dependency tag index is held in memory and is kept in sync with the cache through a cache event listener, so
+ * entries that are evicted or expire by Ehcache do not leak in the index.
+ */
+@Service("blTemplateElementCacheService")
+public class TemplateElementCacheServiceImpl implements TemplateElementCacheService {
+
+    private static final Log LOG = LogFactory.getLog(TemplateElementCacheServiceImpl.class);
+
+    @Resource(name = "blStatisticsService")
+    protected StatisticsService statisticsService;
+
+    protected Cache cache;
+
+    protected ConcurrentMap<String, Set<String>> dependencyIndex = new ConcurrentHashMap<String, Set<String>>();
+
+    protected final Object indexLock = new Object();
+
+    protected ConcurrentMap<String, TemplateCacheStat> templateCacheStats = new ConcurrentHashMap<String, TemplateCacheStat>();
+
+    @Override
+    public Cache getCache() {
+        if (cache == null) {
+            synchronized (this) {
+                if (cache == null) {
+                    Cache templateCache = CacheManager.getInstance().getCache("blTemplateElements");
+                    templateCache.getCacheEventNotificationService().registerListener(new DependencyIndexListener());
+                    cache = templateCache;
+                }
+            }
+        }
+        return cache;
+    }
+
+    public void setCache(Cache cache) {
+        cache.getCacheEventNotificationService().registerListener(new DependencyIndexListener());
+        this.cache = cache;
+    }
+
+    @Override
+    public Element getCacheElement(String cacheKey) {
+        return getCache().get(cacheKey);
+    }
+
+    @Override
+    public void putCachedElement(String cacheKey, CachedTemplateElement element) {
+        synchronized (indexLock) {
+            Element replaced = getCache().getQuiet(cacheKey);
+            getCache().put(new Element(cacheKey, element));
+            for (String tag : element.getDependencyTags()) {
+                Set<String> keys = dependencyIndex.get(tag);
+                if (keys == null) {
+                    keys = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+                    dependencyIndex.put(tag, keys);
+                }
+                keys.add(cacheKey);
+            }
+            if (replaced != null && replaced.getObjectValue() instanceof CachedTemplateElement) {
+                for (String tag : ((CachedTemplateElement) replaced.getObjectValue()).getDependencyTags()) {
+                    if (!element.getDependencyTags().contains(tag)) {
+                        removeIndexedKey(tag, cacheKey);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void recordHit(String templateName, CachedTemplateElement element) {
+        TemplateCacheStat stat = getTemplateCacheStat(templateName);
+        stat.incrementRequest();
+        stat.incrementHit();
+        if (element != null) {
+            stat.addRenderTimeSaved(element.getRenderTime());
+        }
+        statisticsService.addCacheStat(CacheStatType.TEMPLATE_ELEMENT_CACHE_HIT_RATE.toString(), true);
+    }
+
+    @Override
+    public void recordMiss(String templateName) {
+        getTemplateCacheStat(templateName).incrementRequest();
+        statisticsService.addCacheStat(CacheStatType.TEMPLATE_ELEMENT_CACHE_HIT_RATE.toString(), false);
+    }
+
+    protected TemplateCacheStat getTemplateCacheStat(String templateName) {
+        String key = templateName == null ? "" : templateName;
+        TemplateCacheStat stat = templateCacheStats.get(key);
+        if (stat == null) {
+            TemplateCacheStat newStat = new TemplateCacheStat();
+            stat = templateCacheStats.putIfAbsent(key, newStat);
+            if (stat == null) {
+                stat = newStat;
+            }
+        }
+        return stat;
+    }
+
+    @Override
+    public String buildDependencyTag(String type, Object id) {
+        return type + ":" + id;
+    }
+
+    @Override
+    public void invalidateDependency(String type, Object id) {
+        if (type != null && id != null) {
+            invalidateDependencies(Collections.singleton(buildDependencyTag(type, id)));
+        }
+    }
+
+    @Override
+    public void invalidateDependencies(Collection<String> dependencyTags) {
+        if (dependencyTags == null) {
+            return;
+        }
+        for (String tag : dependencyTags) {
+            Set<String> keys;
+            // a fragment is cached and indexed under the same lock, so it is either evicted here or indexed afterwards
+            synchronized (indexLock) {
+                keys = dependencyIndex.remove(tag);
+                if (keys == null) {
+                    continue;
+                }
+                for (String key : keys) {
+                    Element element = getCache().getQuiet(key);
+                    if (element != null && element.getObjectValue() instanceof CachedTemplateElement) {
+                        getTemplateCacheStat(((CachedTemplateElement) element.getObjectValue()).getTemplateName())
+                                .incrementInvalidation();
+                    }
+                    getCache().remove(key);
+                }
+            }
+            if (LOG.isTraceEnabled()) {
+                LOG.trace("Invalidated " + keys.size() + " template cache elements for dependency " + tag);
+            }
+        }
+    }
+
+    @Override
+    public void invalidateDependencyAfterCommit(final String type, final Object id) {
+        if (type == null || id == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    invalidateDependency(type, id);
+                }
+            });
+        } else {
+            invalidateDependency(type, id);
+        }
+    }
+
+    @Override
+    public Set<String> getCacheKeysForDependency(String dependencyTag) {
+        Set<String> keys = dependencyIndex.get(dependencyTag);
+        return keys == null ? Collections.<String>emptySet() : new HashSet<String>(keys);
+    }
+
+    @Override
+    public Map<String, TemplateCacheStat> getTemplateCacheStats() {
+        return Collections.<String, TemplateCacheStat>unmodifiableMap(templateCacheStats);
+    }
+
+    protected void removeFromDependencyIndex(Element element) {
+        if (element == null || !(element.getObjectValue() instanceof CachedTemplateElement)) {
+            return;
+        }
+        String key = String.valueOf(element.getObjectKey());
+        // pruning an emptied tag is only safe while no put can be adding a key to the same set
+        synchronized (indexLock) {
+            Element current = getCache().getQuiet(key);
+            if (current != null && current.getObjectValue() != element.getObjectValue()) {
+                // the key was cached again, which already moved it to the tags of the new fragment
+                return;
+            }
+            for (String tag : ((CachedTemplateElement) element.getObjectValue()).getDependencyTags()) {
+                removeIndexedKey(tag, key);
+            }
+        }
+    }
+
+    /**
+     * Removes the cache key from the keys indexed under the tag, and the tag itself once it has no keys left. Callers
+     * must hold the index lock.
+     */
+    protected void removeIndexedKey(String tag, String cacheKey) {
+        Set<String> keys = dependencyIndex.get(tag);
+        if (keys != null) {
+            keys.remove(cacheKey);
+            if (keys.isEmpty()) {
+                dependencyIndex.remove(tag, keys);
+            }
+        }
+    }
+
+    /**
+     * Removes cache keys from the dependency index as Ehcache expires, evicts or removes the underlying elements
+     */
+    protected class DependencyIndexListener extends CacheEventListenerAdapter {
+
+        @Override
+        public void notifyElementRemoved(Ehcache cache, Element element) throws CacheException {
+            removeFromDependencyIndex(element);
+        }
+
+        @Override
+        public void notifyElementExpired(Ehcache cache, Element element) {
+            removeFromDependencyIndex(element);
+        }
+
+        @Override
+        public void notifyElementEvicted(Ehcache cache, Element element) {
+            removeFromDependencyIndex(element);
+        }
+
+        @Override
+        public void notifyRemoveAll(Ehcache cache) {
+            dependencyIndex.clear();
+        }
+
+    }
+
+}
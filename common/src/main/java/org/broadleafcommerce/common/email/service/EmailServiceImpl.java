@@ -27,6 +27,7 @@ import javax.annotation.Resource;
 
 import org.broadleafcommerce.common.email.dao.EmailReportingDao;
 import org.broadleafcommerce.common.email.domain.EmailTarget;
+import org.broadleafcommerce.common.email.service.dispatch.EmailDispatcher;
 import org.broadleafcommerce.common.email.service.exception.EmailException;
 import org.broadleafcommerce.common.email.service.info.EmailInfo;
 import org.broadleafcommerce.common.email.service.info.NullEmailInfo;
@@ -57,6 +58,9 @@ public class EmailServiceImpl implements EmailService {
 
     @Resource(name = "blEmailReportingDao")
     protected EmailReportingDao emailReportingDao;
+
+    @Resource(name = "blEmailDispatcher")
+    protected EmailDispatcher emailDispatcher;
     
     @Resource(name = "messageSource")
     BroadleafMergeResourceBundleMessageSource messageSource;
@@ -113,6 +117,8 @@ public class EmailServiceImpl implements EmailService {
                 throw new EmailException("The property sendEmailReliableAsync on EmailInfo is true, but the EmailService does not have an instance of JMSEmailServiceProducer set.");
             }
             emailServiceProducer.send(props);
+        } else if (emailDispatcher != null && emailDispatcher.isEnabled()) {
+            emailDispatcher.dispatch(props, messageCreator);
         } else {
             messageCreator.sendMessage(props);
         }
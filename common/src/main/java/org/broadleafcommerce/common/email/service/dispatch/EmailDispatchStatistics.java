@@ -0,0 +1,126 @@
+/*
+ * #%L
+ * BroadleafCommerce Common Libraries
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.common.email.service.dispatch;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the emails handled by an {@link EmailDispatcher} and the time they spend in each stage: waiting in the queue,
+ * being rendered and being sent to the mail server.
+ */
+public class EmailDispatchStatistics {
+
+    protected final AtomicLong queued = new AtomicLong();
+    protected final AtomicLong sentOnCallerThread = new AtomicLong();
+    protected final AtomicLong sent = new AtomicLong();
+    protected final AtomicLong failed = new AtomicLong();
+    protected final AtomicLong sessions = new AtomicLong();
+    protected final Stage queueStage = new Stage();
+    protected final Stage renderStage = new Stage();
+    protected final Stage sendStage = new Stage();
+
+    public long getQueued() {
+        return queued.get();
+    }
+
+    /**
+     * @return the number of emails that were sent on the calling thread because the queue was full
+     */
+    public long getSentOnCallerThread() {
+        return sentOnCallerThread.get();
+    }
+
+    public long getSent() {
+        return sent.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * @return the number of mail server sessions the sent emails were batched into
+     */
+    public long getSessions() {
+        return sessions.get();
+    }
+
+    public Stage getQueueStage() {
+        return queueStage;
+    }
+
+    public Stage getRenderStage() {
+        return renderStage;
+    }
+
+    /**
+     * @return the time spent sending, measured per email as the duration of its session divided by the emails in it
+     */
+    public Stage getSendStage() {
+        return sendStage;
+    }
+
+    @Override
+    public String toString() {
+        return "queued=" + getQueued() + ", sentOnCallerThread=" + getSentOnCallerThread() + ", sent=" + getSent()
+                + ", failed=" + getFailed() + ", sessions=" + getSessions() + ", queue=[" + queueStage + "], render=["
+                + renderStage + "], send=[" + sendStage + "]";
+    }
+
+    /**
+     * The number of emails that passed a stage and the average and maximum time they spent in it
+     */
+    public static class Stage {
+
+        protected final AtomicLong count = new AtomicLong();
+        protected final AtomicLong totalNanos = new AtomicLong();
+        protected final AtomicLong maxNanos = new AtomicLong();
+
+        public void record(long nanos) {
+            count.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            long max = maxNanos.get();
+            while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+                max = maxNanos.get();
+            }
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public long getAverageMillis() {
+            long count = getCount();
+            return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalNanos.get() / count);
+        }
+
+        public long getMaxMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(maxNanos.get());
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + getCount() + ", avg=" + getAverageMillis() + "ms, max=" + getMaxMillis() + "ms";
+        }
+
+    }
+
+}
@@ -0,0 +1,56 @@
+/*
+ * #%L
+ * BroadleafCommerce Common Libraries
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.common.email.service.dispatch;
+
+import org.broadleafcommerce.common.email.service.message.MessageCreator;
+import org.springframework.mail.MailException;
+
+import java.util.Map;
+
+/**
+ * Sends emails on background threads, so that the thread that asks for an email to be sent, like the one completing a
+ * checkout, does not wait for the mail server. Emails are still rendered on the calling thread, where the entities and
+ * the request context they are rendered from are available.
+ * 
+ * @see EmailDispatcherImpl
+ */
+public interface EmailDispatcher {
+
+    /**
+     * @return whether emails should be handed to this dispatcher instead of being sent on the calling thread
+     */
+    boolean isEnabled();
+
+    /**
+     * Renders an email with the given message creator and queues it to be sent through the creator's mail sender. When
+     * the dispatcher is disabled or the queue is full, the email is sent on the calling thread instead.
+     * 
+     * @param props the email properties, as passed to {@link MessageCreator#sendMessage(Map)}
+     * @param messageCreator
+     * @throws MailException when the email cannot be rendered, or cannot be sent on the calling thread
+     */
+    void dispatch(Map<String, Object> props, MessageCreator messageCreator) throws MailException;
+
+    /**
+     * @return the latency and throughput of the dispatch stages so far
+     */
+    EmailDispatchStatistics getStatistics();
+
+}
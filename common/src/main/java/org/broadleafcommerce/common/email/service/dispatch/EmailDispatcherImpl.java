@@ -0,0 +1,435 @@
+/*
+ * #%L
+ * BroadleafCommerce Common Libraries
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.common.email.service.dispatch;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.broadleafcommerce.common.email.service.message.MessageCreator;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailPreparationException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.mail.internet.MimeMessage;
+
+/**
+ * Renders emails on the calling thread, while the entities and the request context they are rendered from are still
+ * available, and queues the rendered messages in a bounded in-memory queue that is worked off by a small pool of daemon
+ * threads. Each worker takes up to <code>email.dispatch.batch.size</code> queued messages at a time and sends all of
+ * the messages for the same mail sender through a single {@link JavaMailSender#send(MimeMessage[])} call, which the
+ * Spring mail senders handle within one connection to the mail server.
+ * 
+ * When the queue is full, emails are sent on the calling thread, which slows producers down to the rate the mail
+ * server accepts emails.
+ * 
+ * When <code>email.dispatch.journal.dir</code> is set, every message is written to that directory as a rendered MIME
+ * message before it is queued, and removed once it has been sent. Messages that were still queued when the JVM stopped
+ * or died, and messages that could not be sent, are sent again on startup. A message whose send succeeded just before
+ * the JVM died may be sent twice. Only messages whose mail sender is a Spring bean can be journaled, since the bean
+ * name is kept to send them through the same mail sender again.
+ */
+@Service("blEmailDispatcher")
+public class EmailDispatcherImpl implements EmailDispatcher, ApplicationContextAware {
+
+    private static final Log LOG = LogFactory.getLog(EmailDispatcherImpl.class);
+
+    protected static final String JOURNAL_SUFFIX = ".eml";
+
+    @Value("${email.dispatch.async.enabled:false}")
+    protected boolean enabled = false;
+
+    @Value("${email.dispatch.threads:1}")
+    protected int threads = 1;
+
+    @Value("${email.dispatch.queue.capacity:1000}")
+    protected int queueCapacity = 1000;
+
+    /**
+     * The number of milliseconds to wait for room in a full queue before sending on the calling thread
+     */
+    @Value("${email.dispatch.queue.offerTimeout:100}")
+    protected long offerTimeout = 100;
+
+    /**
+     * The maximum number of emails sent within one mail server session
+     */
+    @Value("${email.dispatch.batch.size:20}")
+    protected int batchSize = 20;
+
+    @Value("${email.dispatch.journal.dir:}")
+    protected String journalDirectory;
+
+    protected ApplicationContext applicationContext;
+
+    protected final EmailDispatchStatistics statistics = new EmailDispatchStatistics();
+    protected BlockingQueue<QueuedEmail> queue;
+    protected ExecutorService workers;
+    protected volatile boolean running;
+
+    @Override
+    public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
+        this.applicationContext = applicationContext;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<QueuedEmail>(queueCapacity);
+        running = true;
+        workers = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+
+            protected int count = 0;
+
+            @Override
+            public synchronized Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "blEmailDispatcher-" + count++);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        for (int i = 0; i < threads; i++) {
+            workers.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    work();
+                }
+            });
+        }
+        replayJournal();
+    }
+
+    /**
+     * Stops taking new emails and gives the workers a few seconds to send what is still queued. Anything left stays in
+     * the journal, when there is one.
+     */
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (workers != null) {
+            workers.shutdown();
+            try {
+                if (!workers.awaitTermination(10, TimeUnit.SECONDS)) {
+                    workers.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (queue != null && !queue.isEmpty()) {
+            List<QueuedEmail> remaining = new ArrayList<QueuedEmail>();
+            queue.drainTo(remaining);
+            LOG.warn(remaining.size() + " queued emails were not sent before shutdown");
+            for (QueuedEmail email : remaining) {
+                if (email.journalFile == null) {
+                    writeJournal(email);
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled && running;
+    }
+
+    @Override
+    public void dispatch(Map<String, Object> props, MessageCreator messageCreator) throws MailException {
+        if (queue == null || !running) {
+            statistics.sentOnCallerThread.incrementAndGet();
+            messageCreator.sendMessage(props);
+            return;
+        }
+
+        JavaMailSender mailSender = messageCreator.getMailSender();
+        long start = System.nanoTime();
+        MimeMessage message = mailSender.createMimeMessage();
+        try {
+            messageCreator.buildMimeMessagePreparator(props).prepare(message);
+        } catch (MailException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new MailPreparationException(e);
+        } finally {
+            statistics.renderStage.record(System.nanoTime() - start);
+        }
+
+        QueuedEmail email = new QueuedEmail(mailSender, message);
+        // journal the message before it is queued, so that it survives the JVM until it has been sent
+        writeJournal(email);
+        boolean queued = false;
+        try {
+            queued = queue.offer(email, offerTimeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (queued) {
+            statistics.queued.incrementAndGet();
+        } else {
+            statistics.sentOnCallerThread.incrementAndGet();
+            try {
+                mailSender.send(message);
+            } finally {
+                // the caller is told about a failure, so the message is not retried on startup
+                deleteJournal(email);
+            }
+        }
+    }
+
+    @Override
+    public EmailDispatchStatistics getStatistics() {
+        return statistics;
+    }
+
+    protected void work() {
+        while (running || !queue.isEmpty()) {
+            try {
+                QueuedEmail email = queue.poll(1, TimeUnit.SECONDS);
+                if (email == null) {
+                    continue;
+                }
+                List<QueuedEmail> batch = new ArrayList<QueuedEmail>(batchSize);
+                batch.add(email);
+                queue.drainTo(batch, batchSize - 1);
+                sendBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                LOG.error("Unable to send queued emails", e);
+            }
+        }
+    }
+
+    /**
+     * Sends the messages of each mail sender in a single session
+     */
+    protected void sendBatch(List<QueuedEmail> batch) {
+        Map<JavaMailSender, List<QueuedEmail>> emailsBySender = new IdentityHashMap<JavaMailSender, List<QueuedEmail>>();
+        for (QueuedEmail email : batch) {
+            List<QueuedEmail> emails = emailsBySender.get(email.mailSender);
+            if (emails == null) {
+                emails = new ArrayList<QueuedEmail>();
+                emailsBySender.put(email.mailSender, emails);
+            }
+            emails.add(email);
+        }
+        for (Map.Entry<JavaMailSender, List<QueuedEmail>> entry : emailsBySender.entrySet()) {
+            send(entry.getKey(), entry.getValue());
+        }
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Sent " + batch.size() + " queued emails. " + statistics);
+        }
+    }
+
+    protected void send(JavaMailSender mailSender, List<QueuedEmail> emails) {
+        long start = System.nanoTime();
+        MimeMessage[] messages = new MimeMessage[emails.size()];
+        for (int i = 0; i < messages.length; i++) {
+            statistics.queueStage.record(start - emails.get(i).queuedAt);
+            messages[i] = emails.get(i).message;
+        }
+
+        Map<Object, Exception> failures = new HashMap<Object, Exception>();
+        try {
+            mailSender.send(messages);
+        } catch (MailSendException e) {
+            failures.putAll(e.getFailedMessages());
+            if (failures.isEmpty()) {
+                for (MimeMessage message : messages) {
+                    failures.put(message, e);
+                }
+            }
+        } catch (MailException e) {
+            for (MimeMessage message : messages) {
+                failures.put(message, e);
+            }
+        }
+        long perMessage = (System.nanoTime() - start) / messages.length;
+        statistics.sessions.incrementAndGet();
+
+        for (QueuedEmail email : emails) {
+            statistics.sendStage.record(perMessage);
+            Exception failure = failures.get(email.message);
+            if (failure == null) {
+                statistics.sent.incrementAndGet();
+                deleteJournal(email);
+            } else {
+                statistics.failed.incrementAndGet();
+                if (email.journalFile == null) {
+                    writeJournal(email);
+                }
+                LOG.error("Unable to send a queued email" + (email.journalFile == null ? "" : ", it is kept in "
+                        + email.journalFile + " to be retried on startup"), failure);
+            }
+        }
+    }
+
+    /**
+     * Writes the rendered message to the journal, under the bean name of its mail sender, so that it can be sent again
+     * on startup. Does nothing when there is no journal or the mail sender is not a bean.
+     */
+    protected void writeJournal(QueuedEmail email) {
+        if (StringUtils.isBlank(journalDirectory)) {
+            return;
+        }
+        String mailSenderName = getMailSenderName(email.mailSender);
+        if (mailSenderName == null) {
+            LOG.warn("Unable to journal an email sent through a mail sender that is not a bean, it will not be retried");
+            return;
+        }
+        File file = new File(journalDirectory, UUID.randomUUID().toString() + "." + mailSenderName + JOURNAL_SUFFIX);
+        OutputStream out = null;
+        try {
+            FileUtils.forceMkdir(file.getParentFile());
+            out = new BufferedOutputStream(new FileOutputStream(file));
+            email.message.writeTo(out);
+            out.close();
+            email.journalFile = file;
+        } catch (Exception e) {
+            LOG.warn("Unable to journal an email, it will not be retried", e);
+            IOUtils.closeQuietly(out);
+            FileUtils.deleteQuietly(file);
+        }
+    }
+
+    protected void deleteJournal(QueuedEmail email) {
+        if (email.journalFile != null && !email.journalFile.delete() && email.journalFile.exists()) {
+            LOG.warn("Unable to remove " + email.journalFile + " from the email journal, the email will be sent again on startup");
+        }
+    }
+
+    /**
+     * @return the name of the bean that is the given mail sender, or null if it is not a bean
+     */
+    protected String getMailSenderName(JavaMailSender mailSender) {
+        if (applicationContext == null) {
+            return null;
+        }
+        for (Map.Entry<String, JavaMailSender> entry : applicationContext.getBeansOfType(JavaMailSender.class).entrySet()) {
+            if (entry.getValue() == mailSender) {
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Queues the messages that are still in the journal, oldest first, to be sent through the mail sender they were
+     * rendered for. They were rendered before they were journaled, so they keep the site and locale they were sent for.
+     */
+    protected void replayJournal() {
+        if (StringUtils.isBlank(journalDirectory)) {
+            return;
+        }
+        File[] files = new File(journalDirectory).listFiles(new FilenameFilter() {
+
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.endsWith(JOURNAL_SUFFIX);
+            }
+        });
+        if (files == null || files.length == 0) {
+            return;
+        }
+        Arrays.sort(files, new Comparator<File>() {
+
+            @Override
+            public int compare(File o1, File o2) {
+                return Long.valueOf(o1.lastModified()).compareTo(o2.lastModified());
+            }
+        });
+        LOG.info("Sending " + files.length + " emails from the email journal in " + journalDirectory);
+        for (File file : files) {
+            // the file name is <uuid>.<mail sender bean name>.eml
+            String name = file.getName();
+            String mailSenderName = name.substring(name.indexOf('.') + 1, name.length() - JOURNAL_SUFFIX.length());
+            InputStream in = null;
+            try {
+                JavaMailSender mailSender = applicationContext.getBean(mailSenderName, JavaMailSender.class);
+                in = new BufferedInputStream(new FileInputStream(file));
+                QueuedEmail email = new QueuedEmail(mailSender, mailSender.createMimeMessage(in));
+                email.journalFile = file;
+                queue.put(email);
+                statistics.queued.incrementAndGet();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                LOG.error("Unable to read " + file + " from the email journal", e);
+            } finally {
+                IOUtils.closeQuietly(in);
+            }
+        }
+    }
+
+    /**
+     * A rendered email waiting in the queue, along with the mail sender it was rendered for
+     */
+    protected static class QueuedEmail {
+
+        protected final JavaMailSender mailSender;
+        protected final MimeMessage message;
+        protected final long queuedAt = System.nanoTime();
+        protected File journalFile;
+
+        public QueuedEmail(JavaMailSender mailSender, MimeMessage message) {
+            this.mailSender = mailSender;
+            this.message = message;
+        }
+
+    }
+
+}
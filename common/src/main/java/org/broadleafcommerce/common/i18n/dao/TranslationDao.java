@@ -118,7 +118,10 @@ public interface TranslationDao {
      * @param entityType
      * @param stage param drives whether to look for entries at a template level or standard site level (multitenant concepts). Can be IGNORE. Any multitenant behavior is ignored in the absence of the multitenant module.
      * @return
+     * @deprecated no longer used to decide whether translations are cached, see
+     * {@link #readAllTranslationEntries(TranslatedEntity, ResultType, int)}
      */
+    @Deprecated
     Long countTranslationEntries(TranslatedEntity entityType, ResultType stage);
 
     /**
@@ -127,7 +130,10 @@ public interface TranslationDao {
      * @param entityType
      * @param stage param drives whether to look for entries at a template level or standard site level (multitenant concepts). Can be IGNORE. Any multitenant behavior is ignored in the absence of the multitenant module.
      * @return
+     * @deprecated in favor of {@link #readAllTranslationEntries(TranslatedEntity, ResultType, int)}, which does not
+     * load more translations than can be cached
      */
+    @Deprecated
     List<Translation> readAllTranslationEntries(TranslatedEntity entityType, ResultType stage);
 
     /**
@@ -137,9 +143,46 @@ public interface TranslationDao {
      * @param entityType
      * @param stage param drives whether to look for entries at a template level or standard site level (multitenant concepts). Can be IGNORE. Any multitenant behavior is ignored in the absence of the multitenant module.
      * @return
+     * @deprecated in favor of {@link #readConvertedTranslationEntries(TranslatedEntity, ResultType, int)}, which does
+     * not load more translations than can be cached
      */
+    @Deprecated
     List<StandardCacheItem> readConvertedTranslationEntries(TranslatedEntity entityType, ResultType stage);
 
+    /**
+     * Read all the available translations for the given params, unless there are at least maxResults of them.
+     * This is used in place of a count query to decide whether all of the translations for an entity type should be cached.
+     *
+     * @param entityType
+     * @param stage param drives whether to look for entries at a template level or standard site level (multitenant concepts). Can be IGNORE. Any multitenant behavior is ignored in the absence of the multitenant module.
+     * @param maxResults
+     * @return the translations, or null if there are maxResults or more
+     */
+    List<Translation> readAllTranslationEntries(TranslatedEntity entityType, ResultType stage, int maxResults);
+
+    /**
+     * Read all translation entries (see {@link #readAllTranslationEntries(TranslatedEntity, ResultType, int)}),
+     * and convert those results into a list of {@link org.broadleafcommerce.common.extension.StandardCacheItem} instances.
+     *
+     * @param entityType
+     * @param stage param drives whether to look for entries at a template level or standard site level (multitenant concepts). Can be IGNORE. Any multitenant behavior is ignored in the absence of the multitenant module.
+     * @param maxResults
+     * @return the converted translations, or null if there are maxResults or more
+     */
+    List<StandardCacheItem> readConvertedTranslationEntries(TranslatedEntity entityType, ResultType stage, int maxResults);
+
+    /**
+     * Read the translations of every field of the given entities whose locale starts with the given locale code,
+     * in a single query.
+     *
+     * @param entityType
+     * @param entityIds
+     * @param localeCode
+     * @param stage param drives whether to look for entries at a template level or standard site level (multitenant concepts). Can be IGNORE. Any multitenant behavior is ignored in the absence of the multitenant module.
+     * @return
+     */
+    List<Translation> readTranslations(TranslatedEntity entityType, List<String> entityIds, String localeCode, ResultType stage);
+
     /**
      * Read a specific translation for the given params.
      *
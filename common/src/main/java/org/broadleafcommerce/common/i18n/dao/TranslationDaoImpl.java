@@ -173,6 +173,7 @@ public class TranslationDaoImpl implements TranslationDao {
     }
 
     @Override
+    @Deprecated
     public Long countTranslationEntries(TranslatedEntity entityType, ResultType stage) {
         CriteriaBuilder builder = em.getCriteriaBuilder();
         CriteriaQuery<Long> criteria = builder.createQuery(Long.class);
@@ -198,7 +199,22 @@ public class TranslationDaoImpl implements TranslationDao {
     }
 
     @Override
+    @Deprecated
     public List<Translation> readAllTranslationEntries(TranslatedEntity entityType, ResultType stage) {
+        return readAllTranslationEntries(entityType, stage, Integer.MAX_VALUE);
+    }
+
+    @Override
+    @Deprecated
+    public List<StandardCacheItem> readConvertedTranslationEntries(TranslatedEntity entityType, ResultType stage) {
+        return readConvertedTranslationEntries(entityType, stage, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Translation> readAllTranslationEntries(TranslatedEntity entityType, ResultType stage, int maxResults) {
+        if (maxResults <= 0) {
+            return null;
+        }
         CriteriaBuilder builder = em.getCriteriaBuilder();
         CriteriaQuery<Translation> criteria = builder.createQuery(Translation.class);
         Root<TranslationImpl> root = criteria.from(TranslationImpl.class);
@@ -214,7 +230,9 @@ public class TranslationDaoImpl implements TranslationDao {
 
             TypedQuery<Translation> query = em.createQuery(criteria);
             query.setHint(QueryHints.HINT_CACHEABLE, true);
-            return query.getResultList();
+            query.setMaxResults(maxResults);
+            List<Translation> results = query.getResultList();
+            return results.size() >= maxResults ? null : results;
         } finally {
             if (extensionManager != null) {
                 extensionManager.getProxy().breakdown(TranslationImpl.class, stage);
@@ -223,8 +241,11 @@ public class TranslationDaoImpl implements TranslationDao {
     }
 
     @Override
-    public List<StandardCacheItem> readConvertedTranslationEntries(TranslatedEntity entityType, ResultType stage) {
-        List<Translation> results = readAllTranslationEntries(entityType, stage);
+    public List<StandardCacheItem> readConvertedTranslationEntries(TranslatedEntity entityType, ResultType stage, int maxResults) {
+        List<Translation> results = readAllTranslationEntries(entityType, stage, maxResults);
+        if (results == null) {
+            return null;
+        }
         if (extensionManager == null) {
             throw new IllegalStateException("extensionManager cannot be null");
         }
@@ -233,6 +254,35 @@ public class TranslationDaoImpl implements TranslationDao {
         return response.getResult();
     }
 
+    @Override
+    public List<Translation> readTranslations(TranslatedEntity entityType, List<String> entityIds, String localeCode, ResultType stage) {
+        if (entityIds == null || entityIds.isEmpty()) {
+            return new ArrayList<Translation>();
+        }
+        CriteriaBuilder builder = em.getCriteriaBuilder();
+        CriteriaQuery<Translation> criteria = builder.createQuery(Translation.class);
+        Root<TranslationImpl> root = criteria.from(TranslationImpl.class);
+        criteria.select(root);
+        List<Predicate> restrictions = new ArrayList<Predicate>();
+        restrictions.add(builder.equal(root.get("entityType"), entityType.getFriendlyType()));
+        restrictions.add(root.get("entityId").in(entityIds));
+        restrictions.add(builder.like(root.get("localeCode").as(String.class), localeCode + "%"));
+        try {
+            if (extensionManager != null) {
+                extensionManager.getProxy().setup(TranslationImpl.class, stage);
+                extensionManager.getProxy().refineRetrieve(TranslationImpl.class, stage, builder, criteria, root, restrictions);
+            }
+            criteria.where(restrictions.toArray(new Predicate[restrictions.size()]));
+
+            TypedQuery<Translation> query = em.createQuery(criteria);
+            return query.getResultList();
+        } finally {
+            if (extensionManager != null) {
+                extensionManager.getProxy().breakdown(TranslationImpl.class, stage);
+            }
+        }
+    }
+
     @Override
     public Translation readTranslation(TranslatedEntity entityType, String entityId, String fieldName, String localeCode, String localeCountryCode, ResultType stage) {
         CriteriaBuilder builder = em.getCriteriaBuilder();
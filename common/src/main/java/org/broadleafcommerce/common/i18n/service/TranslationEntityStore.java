@@ -0,0 +1,177 @@
+/*
+ * #%L
+ * BroadleafCommerce Common Libraries
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.common.i18n.service;
+
+import java.util.List;
+
+/**
+ * A bounded store of the translations for a single entity type and language, keyed by the numeric entity id. It
+ * is used by {@link TranslationServiceImpl} for entity types with too many translations to cache in full.
+ * 
+ * <p>
+ * The translations of an entity are kept as one flat array of (interned field name, locale code, translated value)
+ * triples. An entity without translations is stored with an empty array so that it is not looked up again. Once
+ * the current generation of entries reaches half of the bound, it becomes the previous generation and the entries
+ * that were not read since are dropped with the generation before it.
+ */
+public class TranslationEntityStore {
+
+    protected static final String[] NO_TRANSLATIONS = new String[0];
+
+    protected final int maxEntities;
+    protected LongMap current;
+    protected LongMap previous;
+
+    public TranslationEntityStore(int maxEntities) {
+        this.maxEntities = Math.max(2, maxEntities);
+        this.current = new LongMap();
+        this.previous = new LongMap();
+    }
+
+    /**
+     * @return the stored translations of the entity, an empty array when the entity has no translations,
+     * or null if the entity has not been loaded
+     */
+    public synchronized String[] get(long entityId) {
+        String[] translations = current.get(entityId);
+        if (translations == null) {
+            translations = previous.get(entityId);
+            if (translations != null) {
+                put(entityId, translations);
+            }
+        }
+        return translations;
+    }
+
+    public synchronized void put(long entityId, String[] translations) {
+        if (current.size() >= maxEntities / 2) {
+            previous = current;
+            current = new LongMap();
+        }
+        current.put(entityId, translations == null || translations.length == 0 ? NO_TRANSLATIONS : translations);
+    }
+
+    public synchronized int size() {
+        return current.size() + previous.size();
+    }
+
+    public synchronized void clear() {
+        current = new LongMap();
+        previous = new LongMap();
+    }
+
+    /**
+     * Builds the stored form of an entity's translations from (field name, locale code, translated value) triples
+     */
+    public static String[] toStoredTranslations(List<String> triples) {
+        if (triples == null || triples.isEmpty()) {
+            return NO_TRANSLATIONS;
+        }
+        String[] translations = triples.toArray(new String[triples.size()]);
+        for (int i = 0; i < translations.length; i += 3) {
+            translations[i] = translations[i].intern();
+            if (translations[i + 1] != null) {
+                translations[i + 1] = translations[i + 1].intern();
+            }
+        }
+        return translations;
+    }
+
+    /**
+     * Finds the translated value for the field, preferring the translation whose locale exactly matches
+     * localeCountryCode and otherwise using the first translation of the field.
+     */
+    public static String findTranslatedValue(String[] translations, String fieldName, String localeCountryCode) {
+        String value = null;
+        boolean found = false;
+        for (int i = 0; i < translations.length; i += 3) {
+            if (translations[i].equals(fieldName)) {
+                if (translations[i + 1] != null && translations[i + 1].equals(localeCountryCode)) {
+                    return translations[i + 2];
+                }
+                if (!found) {
+                    value = translations[i + 2];
+                    found = true;
+                }
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Open addressing map of primitive long keys to translation arrays. Entries are never removed individually.
+     */
+    protected static class LongMap {
+
+        protected long[] keys = new long[16];
+        protected String[][] values = new String[16][];
+        protected int size;
+
+        public String[] get(long key) {
+            int mask = keys.length - 1;
+            for (int i = hash(key) & mask; values[i] != null; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return values[i];
+                }
+            }
+            return null;
+        }
+
+        public void put(long key, String[] value) {
+            if ((size + 1) * 4 > keys.length * 3) {
+                resize();
+            }
+            int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            while (values[i] != null) {
+                if (keys[i] == key) {
+                    values[i] = value;
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = value;
+            size++;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        protected void resize() {
+            long[] oldKeys = keys;
+            String[][] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new String[oldValues.length * 2][];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != null) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        protected static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
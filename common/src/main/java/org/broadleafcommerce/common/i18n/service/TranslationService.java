@@ -107,7 +107,17 @@ public interface TranslationService {
      * @return the translated value of the property for the given entity
      */
     public String getTranslatedValue(Object entity, String property, Locale locale);
-    
+
+    /**
+     * Loads the translations of the given entities for the language of the locale in bulk, so that subsequent calls to
+     * {@link #getTranslatedValue(Object, String, Locale)} for these entities do not each need their own query. This only
+     * has an effect for entity types with too many translations to be cached in full.
+     *
+     * @param entities the translatable entities that are about to be rendered
+     * @param locale
+     */
+    public void prefetchTranslations(List<?> entities, Locale locale);
+
     /**
      * Remove a translation instance from the translation specific cache (different than level-2 hibernate cache)
      *
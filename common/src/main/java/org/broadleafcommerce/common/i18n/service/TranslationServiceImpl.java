@@ -47,11 +47,16 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.annotation.Resource;
 
@@ -61,6 +66,11 @@ public class TranslationServiceImpl implements TranslationService {
 
     protected static final Log LOG = LogFactory.getLog(TranslationServiceImpl.class);
     private static final Translation DELETED_TRANSLATION = new TranslationImpl();
+
+    /**
+     * Cached in place of the full translation map for entity types that have too many translations to cache in full
+     */
+    protected static final String LARGE_ENTITY_TYPE = "LARGE_ENTITY_TYPE";
     
     @Resource(name = "blTranslationDao")
     protected TranslationDao dao;
@@ -79,6 +89,14 @@ public class TranslationServiceImpl implements TranslationService {
     @Value("${translation.thresholdForFullCache:1000}")
     protected int thresholdForFullCache;
 
+    @Value("${translation.store.maxEntities:20000}")
+    protected int maxStoreEntities;
+
+    @Value("${translation.store.batchSize:500}")
+    protected int storeBatchSize;
+
+    protected ConcurrentHashMap<String, TranslationEntityStore> entityStores = new ConcurrentHashMap<String, TranslationEntityStore>();
+
     @Value("${returnBlankTranslationForNotDefaultLocale:false}")
     protected boolean returnBlankTranslationForNotDefaultLocale;
 
@@ -174,14 +192,7 @@ public class TranslationServiceImpl implements TranslationService {
         if (StringUtils.isNotBlank(locale.getCountry())) {
             localeCountryCode += "_" + locale.getCountry();
         }
-        boolean isValidForCache = false;
-        if (extensionManager != null) {
-            ExtensionResultHolder<Boolean> response = new ExtensionResultHolder<Boolean>();
-            response.setResult(false);
-            extensionManager.getProxy().isValidState(response);
-            isValidForCache = response.getResult();
-        }
-        if (!BroadleafRequestContext.getBroadleafRequestContext().isProductionSandBox() || !isValidForCache) {
+        if (!BroadleafRequestContext.getBroadleafRequestContext().isProductionSandBox() || !isValidForCache()) {
             Translation translation = dao.readTranslation(entityType, entityId, property, localeCode, localeCountryCode,
                     ResultType.IGNORE);
             if (translation != null) {
@@ -194,6 +205,55 @@ public class TranslationServiceImpl implements TranslationService {
         return getOverrideTranslatedValue(property, entityType, entityId, localeCode, localeCountryCode);
     }
 
+    @Override
+    public void prefetchTranslations(List<?> entities, Locale locale) {
+        if (CollectionUtils.isEmpty(entities) || !BroadleafRequestContext.getBroadleafRequestContext().isProductionSandBox()
+                || !isValidForCache()) {
+            return;
+        }
+        String localeCode = locale.getLanguage();
+
+        Map<TranslatedEntity, List<String>> entityIdsByType = new LinkedHashMap<TranslatedEntity, List<String>>();
+        for (Object entity : entities) {
+            if (entity == null) {
+                continue;
+            }
+            TranslatedEntity entityType = getEntityType(entity);
+            if (!entityIdsByType.containsKey(entityType)) {
+                entityIdsByType.put(entityType, new ArrayList<String>());
+            }
+            entityIdsByType.get(entityType).add(dao.getEntityId(entityType, entity));
+        }
+
+        for (Entry<TranslatedEntity, List<String>> entry : entityIdsByType.entrySet()) {
+            TranslatedEntity entityType = entry.getKey();
+            String cacheKey = getCacheKey(ResultType.STANDARD, entityType);
+            // Small entity types are cached in full and don't need to be prefetched
+            if (LARGE_ENTITY_TYPE.equals(getStandardCacheElement(entityType, cacheKey).getObjectValue())) {
+                prefetchIntoStore(entityType, cacheKey, entry.getValue(), localeCode, ResultType.IGNORE);
+            } else {
+                String templateCacheKey = getCacheKey(ResultType.TEMPLATE, entityType);
+                if (!cacheKey.equals(templateCacheKey)
+                        && LARGE_ENTITY_TYPE.equals(getTemplateCacheElement(entityType, templateCacheKey).getObjectValue())) {
+                    prefetchIntoStore(entityType, templateCacheKey, entry.getValue(), localeCode, ResultType.TEMPLATE);
+                }
+            }
+        }
+    }
+
+    protected void prefetchIntoStore(TranslatedEntity entityType, String cacheKey, List<String> entityIds,
+            String localeCode, ResultType stage) {
+        TranslationEntityStore store = getEntityStore(entityType, cacheKey, localeCode);
+        Set<String> missingIds = new LinkedHashSet<String>();
+        for (String entityId : entityIds) {
+            Long id = parseEntityId(entityId);
+            if (id != null && store.get(id) == null) {
+                missingIds.add(entityId);
+            }
+        }
+        loadIntoStore(store, entityType, new ArrayList<String>(missingIds), localeCode, stage);
+    }
+
     @Override
     public void removeTranslationFromCache(Translation translation) {
         if (BroadleafRequestContext.getBroadleafRequestContext().isProductionSandBox()) {
@@ -205,6 +265,7 @@ public class TranslationServiceImpl implements TranslationService {
             }
             String key = getCacheKey(resultType, translation.getEntityType());
             getCache().remove(key);
+            clearEntityStores(translation.getEntityType(), null);
         }
     }
 
@@ -213,36 +274,13 @@ public class TranslationServiceImpl implements TranslationService {
         String specificPropertyKey = property + "_" + localeCountryCode;
         String generalPropertyKey = property + "_" + localeCode;
         String cacheKey = getCacheKey(ResultType.STANDARD, entityType);
-        Element cacheResult = getCache().get(cacheKey);
-        Element result = null;
+        Element result = getStandardCacheElement(entityType, cacheKey);
         String response = null;
-        if (cacheResult == null) {
-            statisticsService.addCacheStat(CacheStatType.TRANSLATION_CACHE_HIT_RATE.toString(), false);
-            if (dao.countTranslationEntries(entityType, ResultType.STANDARD_CACHE) < getThresholdForFullCache()) {
-                Map<String, Map<String, StandardCacheItem>> propertyTranslationMap = new HashMap<String, Map<String, StandardCacheItem>>();
-                List<StandardCacheItem> convertedList = dao.readConvertedTranslationEntries(entityType, ResultType.STANDARD_CACHE);
-                if (!CollectionUtils.isEmpty(convertedList)) {
-                    for (StandardCacheItem standardCache : convertedList) {
-                        Translation translation = (Translation) standardCache.getCacheItem();
-                        String key = translation.getFieldName() + "_" + translation.getLocaleCode();
-                        if (!propertyTranslationMap.containsKey(key)) {
-                            propertyTranslationMap.put(key, new HashMap<String, StandardCacheItem>());
-                        }
-                        propertyTranslationMap.get(key).put(translation.getEntityId(), standardCache);
-                    }
-                }
-                Element newElement = new Element(cacheKey, propertyTranslationMap);
-                getCache().put(newElement);
-                result = newElement;
-            } else {
-                Translation translation = dao.readTranslation(entityType, entityId, property, localeCode, localeCountryCode, ResultType.IGNORE);
-                if (translation != null) {
-                    response = translation.getTranslatedValue();
-                }
-            }
-        } else {
-            result = cacheResult;
-            statisticsService.addCacheStat(CacheStatType.TRANSLATION_CACHE_HIT_RATE.toString(), true);
+
+        if (LARGE_ENTITY_TYPE.equals(result.getObjectValue())) {
+            response = getStoredTranslatedValue(property, entityType, cacheKey, entityId, localeCode, localeCountryCode,
+                    ResultType.IGNORE);
+            return replaceEmptyWithNullResponse(response);
         }
 
         if (result != null) {
@@ -297,6 +335,181 @@ public class TranslationServiceImpl implements TranslationService {
         return replaceEmptyWithNullResponse(response);
     }
 
+    /**
+     * Returns the cached translations of the entity type, or a {@link #LARGE_ENTITY_TYPE} marker when the entity type
+     * has at least {@link #getThresholdForFullCache()} translations.
+     */
+    protected Element getStandardCacheElement(TranslatedEntity entityType, String cacheKey) {
+        Element cacheResult = getCache().get(cacheKey);
+        if (cacheResult != null) {
+            statisticsService.addCacheStat(CacheStatType.TRANSLATION_CACHE_HIT_RATE.toString(), true);
+            return cacheResult;
+        }
+        statisticsService.addCacheStat(CacheStatType.TRANSLATION_CACHE_HIT_RATE.toString(), false);
+
+        Element newElement;
+        List<StandardCacheItem> convertedList = dao.readConvertedTranslationEntries(entityType,
+                ResultType.STANDARD_CACHE, getThresholdForFullCache());
+        if (convertedList == null) {
+            // Start the entity stores over whenever the marker is cached again so they are refreshed as often as the cache
+            clearEntityStores(entityType, cacheKey);
+            newElement = new Element(cacheKey, LARGE_ENTITY_TYPE);
+        } else {
+            Map<String, Map<String, StandardCacheItem>> propertyTranslationMap = new HashMap<String, Map<String, StandardCacheItem>>();
+            for (StandardCacheItem standardCache : convertedList) {
+                Translation translation = (Translation) standardCache.getCacheItem();
+                String key = translation.getFieldName() + "_" + translation.getLocaleCode();
+                if (!propertyTranslationMap.containsKey(key)) {
+                    propertyTranslationMap.put(key, new HashMap<String, StandardCacheItem>());
+                }
+                propertyTranslationMap.get(key).put(translation.getEntityId(), standardCache);
+            }
+            newElement = new Element(cacheKey, propertyTranslationMap);
+        }
+        getCache().put(newElement);
+        return newElement;
+    }
+
+    /**
+     * Returns the cached template translations of the entity type, or a {@link #LARGE_ENTITY_TYPE} marker when the
+     * entity type has at least {@link #getThresholdForFullCache()} template translations.
+     */
+    protected Element getTemplateCacheElement(TranslatedEntity entityType, String cacheKey) {
+        Element cacheResult = getCache().get(cacheKey);
+        if (cacheResult != null) {
+            statisticsService.addCacheStat(CacheStatType.TRANSLATION_CACHE_HIT_RATE.toString(), true);
+            return cacheResult;
+        }
+        statisticsService.addCacheStat(CacheStatType.TRANSLATION_CACHE_HIT_RATE.toString(), false);
+
+        Element newElement;
+        List<Translation> translationList = dao.readAllTranslationEntries(entityType, ResultType.TEMPLATE_CACHE,
+                getThresholdForFullCache());
+        if (translationList == null) {
+            clearEntityStores(entityType, cacheKey);
+            newElement = new Element(cacheKey, LARGE_ENTITY_TYPE);
+        } else {
+            Map<String, Map<String, Translation>> propertyTranslationMap = new HashMap<String, Map<String, Translation>>();
+            for (Translation translation : translationList) {
+                String key = translation.getFieldName() + "_" + translation.getLocaleCode();
+                if (!propertyTranslationMap.containsKey(key)) {
+                    propertyTranslationMap.put(key, new HashMap<String, Translation>());
+                }
+                propertyTranslationMap.get(key).put(translation.getEntityId(), translation);
+            }
+            newElement = new Element(cacheKey, propertyTranslationMap);
+        }
+        getCache().put(newElement);
+        return newElement;
+    }
+
+    /**
+     * Looks up a translation of a large entity type from its {@link TranslationEntityStore}, loading all of the
+     * entity's translations for the language in one query if it hasn't been stored yet.
+     * 
+     * @param cacheKey the standard or template cache key of the entity type, which selects the store
+     * @param stage the stage the translations are read with
+     */
+    protected String getStoredTranslatedValue(String property, TranslatedEntity entityType, String cacheKey,
+            String entityId, String localeCode, String localeCountryCode, ResultType stage) {
+        Long id = parseEntityId(entityId);
+        if (id != null) {
+            TranslationEntityStore store = getEntityStore(entityType, cacheKey, localeCode);
+            String[] translations = store.get(id);
+            if (translations == null) {
+                translations = loadIntoStore(store, entityType, Collections.singletonList(entityId), localeCode, stage)
+                        .get(entityId);
+            }
+            return TranslationEntityStore.findTranslatedValue(translations, property, localeCountryCode);
+        }
+
+        Translation translation = dao.readTranslation(entityType, entityId, property, localeCode, localeCountryCode, stage);
+        if (translation != null) {
+            return translation.getTranslatedValue();
+        }
+        return null;
+    }
+
+    /**
+     * Reads the translations of the given entities in batches and adds them to the store
+     * 
+     * @return the stored translations by entity id
+     */
+    protected Map<String, String[]> loadIntoStore(TranslationEntityStore store, TranslatedEntity entityType,
+            List<String> entityIds, String localeCode, ResultType stage) {
+        Map<String, String[]> loaded = new HashMap<String, String[]>();
+        int batchSize = Math.max(1, storeBatchSize);
+        for (int start = 0; start < entityIds.size(); start += batchSize) {
+            List<String> batch = entityIds.subList(start, Math.min(entityIds.size(), start + batchSize));
+            Map<String, List<String>> triplesByEntity = new HashMap<String, List<String>>();
+            for (Translation translation : dao.readTranslations(entityType, batch, localeCode, stage)) {
+                List<String> triples = triplesByEntity.get(translation.getEntityId());
+                if (triples == null) {
+                    triples = new ArrayList<String>();
+                    triplesByEntity.put(translation.getEntityId(), triples);
+                }
+                triples.add(translation.getFieldName());
+                triples.add(translation.getLocaleCode());
+                triples.add(translation.getTranslatedValue());
+            }
+            for (String entityId : batch) {
+                String[] translations = TranslationEntityStore.toStoredTranslations(triplesByEntity.get(entityId));
+                store.put(Long.parseLong(entityId), translations);
+                loaded.put(entityId, translations);
+            }
+        }
+        return loaded;
+    }
+
+    protected TranslationEntityStore getEntityStore(TranslatedEntity entityType, String cacheKey, String localeCode) {
+        String storeKey = getEntityStoreKey(entityType, cacheKey) + localeCode;
+        TranslationEntityStore store = entityStores.get(storeKey);
+        if (store == null) {
+            store = new TranslationEntityStore(maxStoreEntities);
+            TranslationEntityStore existing = entityStores.putIfAbsent(storeKey, store);
+            if (existing != null) {
+                store = existing;
+            }
+        }
+        return store;
+    }
+
+    /**
+     * Removes the stores of the entity type for the given cache key, or for every cache key when it is null
+     */
+    protected void clearEntityStores(TranslatedEntity entityType, String cacheKey) {
+        String prefix = cacheKey == null ? entityType.getFriendlyType() + "|" : getEntityStoreKey(entityType, cacheKey);
+        for (String storeKey : entityStores.keySet()) {
+            // Past the prefix, the key of a store of this cache key only holds the locale
+            if (storeKey.startsWith(prefix) && (cacheKey == null || storeKey.indexOf('|', prefix.length()) < 0)) {
+                entityStores.remove(storeKey);
+            }
+        }
+    }
+
+    protected String getEntityStoreKey(TranslatedEntity entityType, String cacheKey) {
+        return entityType.getFriendlyType() + "|" + cacheKey + "|";
+    }
+
+    protected Long parseEntityId(String entityId) {
+        try {
+            return Long.valueOf(entityId);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    protected boolean isValidForCache() {
+        boolean isValidForCache = false;
+        if (extensionManager != null) {
+            ExtensionResultHolder<Boolean> response = new ExtensionResultHolder<Boolean>();
+            response.setResult(false);
+            extensionManager.getProxy().isValidState(response);
+            isValidForCache = response.getResult();
+        }
+        return isValidForCache;
+    }
+
     protected String replaceEmptyWithNullResponse(String response) {
         if (!StringUtils.isEmpty(response)) {
             return response;
@@ -310,45 +523,18 @@ public class TranslationServiceImpl implements TranslationService {
         if (standardCacheKey.equals(cacheKey)) {
             return null;
         }
-        Element cacheResult = getCache().get(cacheKey);
-        if (cacheResult == null) {
-            statisticsService.addCacheStat(CacheStatType.TRANSLATION_CACHE_HIT_RATE.toString(), false);
-            if (dao.countTranslationEntries(entityType, ResultType.TEMPLATE_CACHE) < getThresholdForFullCache()) {
-                Map<String, Map<String, Translation>> propertyTranslationMap = new HashMap<String, Map<String, Translation>>();
-                List<Translation> translationList = dao.readAllTranslationEntries(entityType, ResultType.TEMPLATE_CACHE);
-                if (!CollectionUtils.isEmpty(translationList)) {
-                    for (Translation translation : translationList) {
-                        String key = translation.getFieldName() + "_" + translation.getLocaleCode();
-                        if (!propertyTranslationMap.containsKey(key)) {
-                            propertyTranslationMap.put(key, new HashMap<String, Translation>());
-                        }
-                        propertyTranslationMap.get(key).put(translation.getEntityId(), translation);
-                    }
-                }
-                getCache().put(new Element(cacheKey, propertyTranslationMap));
-                Translation translation = findBestTemplateTranslation(specificPropertyKey, generalPropertyKey, propertyTranslationMap, entityId);
-                if (translation != null) {
-                    return translation.getTranslatedValue();
-                } else {
-                    return null;
-                }
-            } else {
-                Translation translation = dao.readTranslation(entityType, entityId, property, localeCode, localeCountryCode, ResultType.TEMPLATE);
-                if (translation != null) {
-                    return translation.getTranslatedValue();
-                } else {
-                    return null;
-                }
-            }
+        Element cacheResult = getTemplateCacheElement(entityType, cacheKey);
+        if (LARGE_ENTITY_TYPE.equals(cacheResult.getObjectValue())) {
+            return getStoredTranslatedValue(property, entityType, cacheKey, entityId, localeCode, localeCountryCode,
+                    ResultType.TEMPLATE);
+        }
+
+        Map<String, Map<String, Translation>> propertyTranslationMap = (Map<String, Map<String, Translation>>) cacheResult.getObjectValue();
+        Translation bestTranslation = findBestTemplateTranslation(specificPropertyKey, generalPropertyKey, propertyTranslationMap, entityId);
+        if (bestTranslation != null) {
+            return bestTranslation.getTranslatedValue();
         } else {
-            statisticsService.addCacheStat(CacheStatType.TRANSLATION_CACHE_HIT_RATE.toString(), true);
-            Map<String, Map<String, Translation>> propertyTranslationMap = (Map<String, Map<String, Translation>>) cacheResult.getObjectValue();
-            Translation bestTranslation = findBestTemplateTranslation(specificPropertyKey, generalPropertyKey, propertyTranslationMap, entityId);
-            if (bestTranslation != null) {
-                return bestTranslation.getTranslatedValue();
-            } else {
-                return null;
-            }
+            return null;
         }
     }
 
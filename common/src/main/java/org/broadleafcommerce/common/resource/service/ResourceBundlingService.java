@@ -37,7 +37,7 @@ public interface ResourceBundlingService {
      * Returns a file name representing a versioned copy of the bundle.
      * 
      * <p>
-     * First computes the bundle version by checking examining the files in the bundle.
+     * First computes the bundle version by hashing the contents of the files in the bundle.
      *
      * <p>
      * If the bundle does not exist, this method will make a call to create it.  
@@ -75,4 +75,20 @@ public interface ResourceBundlingService {
      */
     boolean checkForRegisteredBundleFile(String versionedBundleName);
 
+    /**
+     * Returns the gzip compressed copy of the passed in versioned bundle, or null if one was not saved
+     * 
+     * @param versionedBundleResourceName
+     * @return
+     */
+    Resource resolvePrecompressedBundleResource(String versionedBundleResourceName);
+
+    /**
+     * Returns true if the passed in file name is a bundle that was already minified when it was built
+     * 
+     * @param bundleFilename
+     * @return
+     */
+    boolean checkForMinifiedBundleFile(String bundleFilename);
+
 }
@@ -25,6 +25,7 @@ import org.apache.commons.io.IOUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.broadleafcommerce.common.cache.StatisticsService;
+import org.broadleafcommerce.common.classloader.release.ThreadLocalManager;
 import org.broadleafcommerce.common.file.domain.FileWorkArea;
 import org.broadleafcommerce.common.file.service.BroadleafFileService;
 import org.broadleafcommerce.common.resource.GeneratedResource;
@@ -32,11 +33,14 @@ import org.broadleafcommerce.common.web.BroadleafRequestContext;
 import org.broadleafcommerce.common.web.resource.BroadleafDefaultResourceResolverChain;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StreamUtils;
 import org.springframework.util.StringUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 import org.springframework.web.servlet.resource.ResourceHttpRequestHandler;
 import org.springframework.web.servlet.resource.ResourceResolverChain;
 
@@ -50,14 +54,29 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
 
+import javax.annotation.PreDestroy;
 import javax.servlet.http.HttpServletRequest;
 
 /**
@@ -69,6 +88,8 @@ import javax.servlet.http.HttpServletRequest;
 public class ResourceBundlingServiceImpl implements ResourceBundlingService {
     protected static final Log LOG = LogFactory.getLog(ResourceBundlingServiceImpl.class);
 
+    public static final String GZIP_EXTENSION = ".gz";
+
     // Map of known unversioned bundle names ==> additional files that should be included
     // Configured via XML
     // ex: "global.js" ==> ["classpath:/file1.js", "/js/file2.js"]
@@ -88,9 +109,34 @@ public class ResourceBundlingServiceImpl implements ResourceBundlingService {
     @javax.annotation.Resource(name="blStatisticsService")
     protected StatisticsService statisticsService;
 
+    // Map of bundle names, including their mapping prefix ==> files that make up the bundle
+    // Configured via XML. These bundles are built in parallel when the first bundle is requested.
+    // ex: "/js/lib.js" ==> ["plugins.js", "libs/jquery.MetaData.js"]
+    protected Map<String, List<String>> bundleDefinitions = new LinkedHashMap<String, List<String>>();
+
+    @javax.annotation.Resource(name = "blResourceMinificationService")
+    protected ResourceMinificationService minifyService;
+
+    @Value("${bundle.precompress.enabled:true}")
+    protected boolean precompressEnabled;
+
+    @Value("${bundle.prebuild.threads:4}")
+    protected int prebuildThreads;
+
     private KeyLockManager keyLockManager = KeyLockManagers.newLock();
 
     private ConcurrentHashMap<String, Resource> createdBundles = new ConcurrentHashMap<String, Resource>();
+
+    // bundle name and resolved file paths ==> content versioned bundle name
+    private ConcurrentHashMap<String, String> versionedBundleNames = new ConcurrentHashMap<String, String>();
+
+    private ConcurrentHashMap<String, Resource> precompressedBundles = new ConcurrentHashMap<String, Resource>();
+
+    private Set<String> minifiedBundleFilenames = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private AtomicBoolean bundleDefinitionsBuilt = new AtomicBoolean(false);
+
+    private ExecutorService prebuildExecutor;
     
     @Override
     public String resolveBundleResourceName(String requestedBundleName, String mappingPrefix, List<String> files) {
@@ -123,10 +169,13 @@ public class ResourceBundlingServiceImpl implements ResourceBundlingService {
                 }
             }
 
-            int version = Math.abs(combinedPathString.toString().hashCode());
-            String versionedBundleName = mappingPrefix + addVersion(requestedBundleName, "-" + String.valueOf(version));
-        
-            createBundleIfNeeded(versionedBundleName, filePaths, resolverChain, locations);
+            String bundleKey = mappingPrefix + requestedBundleName + ":" + combinedPathString.toString();
+            String versionedBundleName = versionedBundleNames.get(bundleKey);
+            if (versionedBundleName == null) {
+                buildBundleDefinitions();
+                versionedBundleName = createBundleIfNeeded(bundleKey, mappingPrefix + requestedBundleName, filePaths,
+                        resolverChain, locations);
+            }
 
             return versionedBundleName;
         } else {
@@ -142,6 +191,16 @@ public class ResourceBundlingServiceImpl implements ResourceBundlingService {
         return createdBundles.get(lookupBundlePath(versionedBundleResourceName));
     }
 
+    @Override
+    public Resource resolvePrecompressedBundleResource(String versionedBundleResourceName) {
+        return precompressedBundles.get(lookupBundlePath(versionedBundleResourceName));
+    }
+
+    @Override
+    public boolean checkForMinifiedBundleFile(String bundleFilename) {
+        return bundleFilename != null && minifiedBundleFilenames.contains(bundleFilename);
+    }
+
     @Override
     public boolean checkForRegisteredBundleFile(String versionedBundleName) {
         versionedBundleName = lookupBundlePath(versionedBundleName);
@@ -166,28 +225,192 @@ public class ResourceBundlingServiceImpl implements ResourceBundlingService {
         return requestPath;
     }
 
-    protected void createBundleIfNeeded(final String versionedBundleName, final List<String> filePaths,
+    /**
+     * Starts building all of the bundles configured in {@link #bundleDefinitions} in the background the first time any
+     * bundle is requested, rather than one at a time as each blc:bundle tag is first rendered. The calling thread does
+     * not wait for them; a bundle it needs that is still being built is waited for through the bundle lock.
+     * 
+     * Each build gets its own lightweight copy of the request context and a detached copy of the request, since the
+     * calling request may have completed, and its request object been recycled, before the build runs.
+     */
+    protected void buildBundleDefinitions() {
+        if (bundleDefinitions.isEmpty() || !bundleDefinitionsBuilt.compareAndSet(false, true)) {
+            return;
+        }
+        BroadleafRequestContext brc = BroadleafRequestContext.getBroadleafRequestContext();
+        final HttpServletRequest request = brc == null ? null : brc.getRequest();
+        for (final Entry<String, List<String>> definition : bundleDefinitions.entrySet()) {
+            final BroadleafRequestContext context = brc == null ? new BroadleafRequestContext() : brc.createLightWeightClone();
+            final HttpServletRequest detachedRequest = request == null ? null : DetachedRequest.copyOf(request);
+            getPrebuildExecutor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        if (detachedRequest != null) {
+                            context.setRequest(detachedRequest);
+                            RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(detachedRequest));
+                        }
+                        BroadleafRequestContext.setBroadleafRequestContext(context);
+                        buildBundleDefinition(definition.getKey(), definition.getValue());
+                    } catch (RuntimeException e) {
+                        LOG.warn("Unable to build the bundle " + definition.getKey(), e);
+                    } finally {
+                        RequestContextHolder.resetRequestAttributes();
+                        ThreadLocalManager.remove();
+                    }
+                }
+            });
+        }
+    }
+
+    protected ExecutorService getPrebuildExecutor() {
+        synchronized (bundleDefinitionsBuilt) {
+            if (prebuildExecutor == null) {
+                prebuildExecutor = Executors.newFixedThreadPool(Math.max(1, prebuildThreads), new ThreadFactory() {
+
+                    protected int count = 0;
+
+                    @Override
+                    public synchronized Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "blResourceBundleBuilder-" + count++);
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+            }
+            return prebuildExecutor;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        synchronized (bundleDefinitionsBuilt) {
+            if (prebuildExecutor != null) {
+                prebuildExecutor.shutdownNow();
+            }
+        }
+    }
+
+    protected void buildBundleDefinition(String bundlePath, List<String> definitionFiles) {
+        int separator = bundlePath.lastIndexOf('/');
+        String mappingPrefix = bundlePath.substring(0, separator + 1);
+        String bundleName = bundlePath.substring(separator + 1);
+
+        // Mirror the file list the ResourceBundleProcessor builds so the rendered tag finds this bundle
+        List<String> files = new ArrayList<String>(definitionFiles);
+        List<String> additionalFiles = getAdditionalBundleFiles(bundleName);
+        if (additionalFiles != null) {
+            files.addAll(additionalFiles);
+        }
+        resolveBundleResourceName(bundleName, mappingPrefix, files);
+    }
+
+    /**
+     * Creates the bundle unless a bundle with the same contents was already built, either by this server or by a 
+     * previous deployment or another server sharing the file service. The bundle is versioned by a hash of its 
+     * contents, minified once and also saved gzip compressed so that it can be served without further processing.
+     *
+     * @return the content versioned bundle name
+     */
+    protected String createBundleIfNeeded(final String bundleKey, final String bundleName, final List<String> filePaths,
             final ResourceResolverChain resolverChain, final List<Resource> locations) {
-        if (!createdBundles.containsKey(versionedBundleName)) {
-            keyLockManager.executeLocked(versionedBundleName, new LockCallback() {
+        String versionedBundleName = versionedBundleNames.get(bundleKey);
+        if (versionedBundleName == null) {
+            keyLockManager.executeLocked(bundleKey, new LockCallback() {
 
                 @Override
                 public void doInLock() {
-                    Resource bundleResource = createdBundles.get(versionedBundleName);
+                    if (versionedBundleNames.containsKey(bundleKey)) {
+                        return;
+                    }
+                    byte[] bytes = getBytes(createBundle(bundleName, filePaths, resolverChain, locations));
+                    boolean minify = minifyService.getEnabled();
+                    String versionedBundleName = addVersion(bundleName, "-" + getContentVersion(bytes, minify));
+
+                    Resource bundleResource = readBundle(versionedBundleName);
                     if (bundleResource == null || !bundleResource.exists()) {
-                        bundleResource = createBundle(versionedBundleName, filePaths, resolverChain, locations);
-                        if (bundleResource != null) {
-                            saveBundle(bundleResource);
+                        if (minify) {
+                            bytes = minifyService.minify(versionedBundleName, bytes);
                         }
-                        Resource savedResource = readBundle(versionedBundleName);
-                        createdBundles.put(versionedBundleName, savedResource);
+                        saveBundle(new GeneratedResource(bytes, versionedBundleName));
+                        bundleResource = readBundle(versionedBundleName);
+                    } else {
+                        bytes = null;
                     }
+
+                    if (precompressEnabled && bundleResource != null) {
+                        Resource precompressedResource = readBundle(versionedBundleName + GZIP_EXTENSION);
+                        if (precompressedResource == null || !precompressedResource.exists()) {
+                            if (bytes == null) {
+                                bytes = getBytes(bundleResource);
+                            }
+                            saveBundle(new GeneratedResource(gzip(bytes), versionedBundleName + GZIP_EXTENSION));
+                            precompressedResource = readBundle(versionedBundleName + GZIP_EXTENSION);
+                        }
+                        if (precompressedResource != null) {
+                            precompressedBundles.put(versionedBundleName, precompressedResource);
+                        }
+                    }
+
+                    if (minify) {
+                        minifiedBundleFilenames.add(StringUtils.getFilename(versionedBundleName));
+                    }
+                    createdBundles.put(versionedBundleName, bundleResource);
+                    versionedBundleNames.put(bundleKey, versionedBundleName);
                 }
             });
+            versionedBundleName = versionedBundleNames.get(bundleKey);
+        }
+        return versionedBundleName;
+    }
+
+    /**
+     * @return a hash of the bundle contents, which also reflects whether the saved bundle is minified
+     */
+    protected String getContentVersion(byte[] bytes, boolean minified) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            digest.update(bytes);
+            if (minified) {
+                digest.update((byte) 1);
+            }
+            return new BigInteger(1, digest.digest()).toString(16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    protected byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(bytes.length / 4 + 64);
+        GZIPOutputStream gzip = null;
+        try {
+            gzip = new GZIPOutputStream(baos);
+            gzip.write(bytes);
+            gzip.finish();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            IOUtils.closeQuietly(gzip);
+        }
+        return baos.toByteArray();
+    }
+
+    protected byte[] getBytes(Resource resource) {
+        if (resource instanceof GeneratedResource) {
+            return ((GeneratedResource) resource).getBytes();
+        }
+        InputStream is = null;
+        try {
+            is = resource.getInputStream();
+            return StreamUtils.copyToByteArray(is);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            IOUtils.closeQuietly(is);
         }
     }
     
-    protected Resource createBundle(String versionedBundleName, List<String> filePaths,
+    protected Resource createBundle(String bundleName, List<String> filePaths,
             ResourceResolverChain resolverChain, List<Resource> locations) {
 
         HttpServletRequest req = BroadleafRequestContext.getBroadleafRequestContext().getRequest();
@@ -218,7 +441,7 @@ public class ResourceBundlingServiceImpl implements ResourceBundlingService {
                     
                     // If we're creating a JavaScript bundle, we'll put a semicolon between each
                     // file to ensure it won't fail to compile.
-                    if (versionedBundleName.endsWith(".js")) {
+                    if (bundleName.endsWith(".js")) {
                         baos.write(";".getBytes());
                     }
                     baos.write(System.getProperty("line.separator").getBytes());
@@ -232,7 +455,7 @@ public class ResourceBundlingServiceImpl implements ResourceBundlingService {
         }
         
         // Create our GenerateResource that holds our combined bundle
-        GeneratedResource r = new GeneratedResource(bytes, versionedBundleName);
+        GeneratedResource r = new GeneratedResource(bytes, bundleName);
         return r;
     }
     
@@ -306,6 +529,14 @@ public class ResourceBundlingServiceImpl implements ResourceBundlingService {
         this.additionalBundleFiles = additionalBundleFiles;
     }
 
+    public Map<String, List<String>> getBundleDefinitions() {
+        return bundleDefinitions;
+    }
+
+    public void setBundleDefinitions(Map<String, List<String>> bundleDefinitions) {
+        this.bundleDefinitions = bundleDefinitions;
+    }
+
     /**
      * Copied from Spring 4.1 AbstractVersionStrategy
      * @param requestPath
@@ -355,4 +586,101 @@ public class ResourceBundlingServiceImpl implements ResourceBundlingService {
             return "bundles/" + name;
         }
     }
+
+    /**
+     * A copy of the parts of a request that the resource resolvers use: the path information, server, headers and
+     * attributes. Everything else answers as an empty request would, and there is no session.
+     */
+    protected static class DetachedRequest implements InvocationHandler {
+
+        protected final Map<String, Object> values = new HashMap<String, Object>();
+        protected final Map<String, List<String>> headers = new HashMap<String, List<String>>();
+        protected final Map<String, Object> attributes = new ConcurrentHashMap<String, Object>();
+
+        public static HttpServletRequest copyOf(HttpServletRequest request) {
+            DetachedRequest copy = new DetachedRequest();
+            for (String name : new String[] { "getContextPath", "getServletPath", "getPathInfo", "getRequestURI",
+                    "getRequestURL", "getQueryString", "getScheme", "getServerName", "getServerPort", "isSecure",
+                    "getMethod", "getLocale", "getCharacterEncoding" }) {
+                try {
+                    copy.values.put(name, HttpServletRequest.class.getMethod(name).invoke(request));
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            for (Enumeration<?> names = request.getHeaderNames(); names != null && names.hasMoreElements();) {
+                String name = ((String) names.nextElement()).toLowerCase();
+                List<String> values = new ArrayList<String>();
+                Enumeration<?> headerValues = request.getHeaders(name);
+                while (headerValues != null && headerValues.hasMoreElements()) {
+                    values.add((String) headerValues.nextElement());
+                }
+                copy.headers.put(name, values);
+            }
+            for (Enumeration<?> names = request.getAttributeNames(); names.hasMoreElements();) {
+                String name = (String) names.nextElement();
+                Object value = request.getAttribute(name);
+                if (value != null) {
+                    copy.attributes.put(name, value);
+                }
+            }
+            return (HttpServletRequest) Proxy.newProxyInstance(HttpServletRequest.class.getClassLoader(),
+                    new Class<?>[] { HttpServletRequest.class }, copy);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (values.containsKey(name) && (args == null || args.length == 0)) {
+                return values.get(name);
+            } else if ("getHeader".equals(name)) {
+                List<String> header = headers.get(((String) args[0]).toLowerCase());
+                return header == null || header.isEmpty() ? null : header.get(0);
+            } else if ("getHeaders".equals(name)) {
+                List<String> header = headers.get(((String) args[0]).toLowerCase());
+                return Collections.enumeration(header == null ? Collections.<String>emptyList() : header);
+            } else if ("getHeaderNames".equals(name)) {
+                return Collections.enumeration(headers.keySet());
+            } else if ("getAttribute".equals(name)) {
+                return attributes.get(args[0]);
+            } else if ("getAttributeNames".equals(name)) {
+                return Collections.enumeration(attributes.keySet());
+            } else if ("setAttribute".equals(name)) {
+                if (args[1] == null) {
+                    attributes.remove(args[0]);
+                } else {
+                    attributes.put((String) args[0], args[1]);
+                }
+                return null;
+            } else if ("removeAttribute".equals(name)) {
+                attributes.remove(args[0]);
+                return null;
+            } else if ("hashCode".equals(name)) {
+                return System.identityHashCode(proxy);
+            } else if ("equals".equals(name)) {
+                return proxy == args[0];
+            } else if ("toString".equals(name)) {
+                return "DetachedRequest " + values.get("getRequestURI");
+            }
+            Class<?> returnType = method.getReturnType();
+            if ("getDateHeader".equals(name)) {
+                return -1L;
+            } else if ("getIntHeader".equals(name)) {
+                return -1;
+            } else if (returnType == Map.class) {
+                return Collections.emptyMap();
+            } else if (returnType == Enumeration.class) {
+                return Collections.enumeration(Collections.emptyList());
+            } else if (returnType == boolean.class) {
+                return false;
+            } else if (returnType == int.class) {
+                return 0;
+            } else if (returnType == long.class) {
+                return 0L;
+            }
+            return null;
+        }
+
+    }
+
 }
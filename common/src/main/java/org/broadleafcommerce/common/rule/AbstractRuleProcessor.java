@@ -30,6 +30,8 @@ import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Map;
 
+import javax.annotation.Resource;
+
 
 public abstract class AbstractRuleProcessor<T> implements RuleProcessor<T> {
     
@@ -40,6 +42,9 @@ public abstract class AbstractRuleProcessor<T> implements RuleProcessor<T> {
     protected ParserContext parserContext;
     protected Map<String, String> contextClassNames = new HashMap<String, String> ();
 
+    @Resource(name = "blRuleResultMemoService")
+    protected RuleResultMemoService ruleResultMemoService;
+
     /**
      * Having a parser context that imports the classes speeds MVEL by up to 60%.
      */
@@ -64,6 +69,11 @@ public abstract class AbstractRuleProcessor<T> implements RuleProcessor<T> {
         Serializable exp = (Serializable) expressionCache.get(expression);
         vars.put("MVEL", MVEL.class);
 
+        Boolean memoized = ruleResultMemoService == null ? null : ruleResultMemoService.getResult(expression, vars);
+        if (memoized != null) {
+            return memoized;
+        }
+
         if (exp == null) {
             try {
                 exp = MVEL.compileExpression(expression, getParserContext());
@@ -74,13 +84,17 @@ public abstract class AbstractRuleProcessor<T> implements RuleProcessor<T> {
             expressionCache.put(expression, exp);
         }
 
+        Boolean result = false;
         try {
-            return (Boolean) MVEL.executeExpression(exp, vars);
+            result = (Boolean) MVEL.executeExpression(exp, vars);
         } catch (Exception e) {
             LOG.error(e);
         }
 
-        return false;
+        if (ruleResultMemoService != null && result != null) {
+            ruleResultMemoService.putResult(expression, vars, result);
+        }
+        return result;
     }
 
     /**
@@ -0,0 +1,61 @@
+/*
+ * #%L
+ * BroadleafCommerce Common Libraries
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.common.rule;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Remembers the outcome of MVEL rule expressions for the duration of a request, so that rules like
+ * <code>customer.registered</code> or <code>request.secure</code> that are checked by several rule processors are only
+ * evaluated once per request.
+ * 
+ * A result is remembered per expression and per instance of each variable the expression refers to. Only expressions
+ * that refer to nothing but request-stable variables (see {@link #getStableVariables()}) are remembered, since the
+ * state of other variables, like an order being priced, can change within a request without the instance changing.
+ * 
+ * Lookups are reported to the {@link org.broadleafcommerce.common.cache.StatisticsService} as
+ * {@link org.broadleafcommerce.common.cache.CacheStatType#RULE_RESULT_MEMO_HIT_RATE}.
+ */
+public interface RuleResultMemoService {
+
+    /**
+     * @param expression the MVEL expression
+     * @param vars the variables the expression is evaluated against
+     * @return the outcome of an earlier evaluation of the expression in this request against the same variables, or
+     * null if there is none or the expression cannot be remembered
+     */
+    Boolean getResult(String expression, Map<String, Object> vars);
+
+    /**
+     * Remembers the outcome of the expression for the rest of the request, if the expression can be remembered
+     * 
+     * @param expression the MVEL expression
+     * @param vars the variables the expression was evaluated against
+     * @param result the outcome
+     */
+    void putResult(String expression, Map<String, Object> vars, boolean result);
+
+    /**
+     * @return the names of the rule variables whose state does not change within a request
+     */
+    Set<String> getStableVariables();
+
+}
@@ -0,0 +1,287 @@
+/*
+ * #%L
+ * BroadleafCommerce Common Libraries
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.common.rule;
+
+import org.apache.commons.lang3.StringUtils;
+import org.broadleafcommerce.common.TimeDTO;
+import org.broadleafcommerce.common.cache.CacheStatType;
+import org.broadleafcommerce.common.cache.StatisticsService;
+import org.broadleafcommerce.common.util.EfficientLRUMap;
+import org.broadleafcommerce.common.web.BroadleafRequestContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.annotation.Resource;
+
+/**
+ * Keeps the remembered rule outcomes in the {@link BroadleafRequestContext}, so they are discarded together with the
+ * context at the end of the request.
+ */
+@Service("blRuleResultMemoService")
+public class RuleResultMemoServiceImpl implements RuleResultMemoService {
+
+    protected static final String MEMO_ATTRIBUTE = "blRuleResultMemo";
+
+    /**
+     * Quoted strings, which are skipped when looking for the variables of an expression
+     */
+    protected static final Pattern QUOTED = Pattern.compile("'(?:[^'\\\\]|\\\\.)*'|\"(?:[^\"\\\\]|\\\\.)*\"");
+
+    /**
+     * Identifiers that are not preceded by a dot, i.e. the roots of property chains
+     */
+    protected static final Pattern ROOT_IDENTIFIER = Pattern.compile("(?<![\\w.$])([A-Za-z_$][\\w$]*)");
+
+    @Resource(name = "blStatisticsService")
+    protected StatisticsService statisticsService;
+
+    @Value("${rule.result.memo.enabled:true}")
+    protected boolean enabled = true;
+
+    /**
+     * The maximum number of outcomes remembered per request. Once it is reached, further outcomes are not remembered.
+     */
+    @Value("${rule.result.memo.maxEntries:1000}")
+    protected int maxEntries = 1000;
+
+    protected Set<String> stableVariables = new HashSet<String>(Arrays.asList("time", "request", "customer"));
+
+    @SuppressWarnings("unchecked")
+    protected Map<String, Set<String>> identifierCache = new EfficientLRUMap<String, Set<String>>(1000);
+
+    @Override
+    public Boolean getResult(String expression, Map<String, Object> vars) {
+        MemoKey key = buildKey(expression, vars);
+        if (key == null || !isInRequest()) {
+            return null;
+        }
+        Map<MemoKey, Boolean> memo = getMemo(false);
+        Boolean result = memo == null ? null : memo.get(key);
+        statisticsService.addCacheStat(CacheStatType.RULE_RESULT_MEMO_HIT_RATE.toString(), result != null);
+        return result;
+    }
+
+    @Override
+    public void putResult(String expression, Map<String, Object> vars, boolean result) {
+        MemoKey key = buildKey(expression, vars);
+        if (key != null && isInRequest()) {
+            Map<MemoKey, Boolean> memo = getMemo(true);
+            if (memo.size() < maxEntries || memo.containsKey(key)) {
+                memo.put(key, result);
+            }
+        }
+    }
+
+    /**
+     * Builds the key for the expression from the instances of the variables it refers to
+     * 
+     * @return null if the expression refers to a variable that is not request-stable
+     */
+    protected MemoKey buildKey(String expression, Map<String, Object> vars) {
+        if (!enabled || StringUtils.isBlank(expression) || vars == null) {
+            return null;
+        }
+        Set<String> identifiers = getRootIdentifiers(expression);
+        Object[] values = new Object[identifiers.size()];
+        int i = 0;
+        for (String identifier : identifiers) {
+            if (vars.containsKey(identifier)) {
+                Object value = vars.get(identifier);
+                if (!stableVariables.contains(identifier) && !(value instanceof Class)) {
+                    return null;
+                }
+                values[i] = getKeyValue(value);
+            }
+            i++;
+        }
+        return new MemoKey(expression, values);
+    }
+
+    /**
+     * Variables are keyed by their instance, except for {@link TimeDTO}s. Callers build a new one for every
+     * evaluation, so they are keyed by the minute they represent and the calendar fields seen by the rules, which
+     * depend on the time zone of the calendar.
+     */
+    protected Object getKeyValue(Object value) {
+        if (value instanceof TimeDTO) {
+            TimeDTO time = (TimeDTO) value;
+            Date date = time.getDate();
+            return new ValueKey(Arrays.asList(date == null ? null : date.getTime() / 60000L,
+                    time.getMinute().getType(), time.getHour().getType(), time.getDayOfWeek().getType(),
+                    time.getDayOfMonth().getType(), time.getMonth().getType()));
+        }
+        return value;
+    }
+
+    /**
+     * Returns the names an expression starts its property chains with, in order of appearance. Not all of them are
+     * necessarily variables, they may also be keywords or imports.
+     */
+    protected Set<String> getRootIdentifiers(String expression) {
+        Set<String> identifiers = identifierCache.get(expression);
+        if (identifiers == null) {
+            identifiers = new LinkedHashSet<String>();
+            Matcher matcher = ROOT_IDENTIFIER.matcher(QUOTED.matcher(expression).replaceAll("''"));
+            while (matcher.find()) {
+                identifiers.add(matcher.group(1));
+            }
+            identifiers = Collections.unmodifiableSet(identifiers);
+            identifierCache.put(expression, identifiers);
+        }
+        return identifiers;
+    }
+
+    protected boolean isInRequest() {
+        BroadleafRequestContext context = BroadleafRequestContext.getBroadleafRequestContext();
+        return context != null && context.getRequest() != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    protected Map<MemoKey, Boolean> getMemo(boolean create) {
+        BroadleafRequestContext context = BroadleafRequestContext.getBroadleafRequestContext();
+        if (context == null) {
+            return null;
+        }
+        Map<MemoKey, Boolean> memo = (Map<MemoKey, Boolean>) context.getAdditionalProperties().get(MEMO_ATTRIBUTE);
+        if (memo == null && create) {
+            memo = new HashMap<MemoKey, Boolean>();
+            context.getAdditionalProperties().put(MEMO_ATTRIBUTE, memo);
+        }
+        return memo;
+    }
+
+    @Override
+    public Set<String> getStableVariables() {
+        return stableVariables;
+    }
+
+    public void setStableVariables(Set<String> stableVariables) {
+        this.stableVariables = stableVariables;
+    }
+
+    /**
+     * The names of the rule variables whose state does not change within a request
+     */
+    @Value("${rule.result.memo.stableVariables:time,request,customer}")
+    public void setStableVariableNames(String[] stableVariableNames) {
+        Set<String> stableVariables = new HashSet<String>();
+        for (String name : stableVariableNames) {
+            if (StringUtils.isNotBlank(name)) {
+                stableVariables.add(name.trim());
+            }
+        }
+        this.stableVariables = stableVariables;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * The part of a {@link MemoKey} for a variable that is compared by value rather than by instance
+     */
+    protected static class ValueKey {
+
+        protected final Object value;
+
+        public ValueKey(Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof ValueKey && value.equals(((ValueKey) obj).value);
+        }
+
+        @Override
+        public int hashCode() {
+            return value.hashCode();
+        }
+
+    }
+
+    /**
+     * Identifies an expression together with the instances of the variables it refers to
+     */
+    protected static class MemoKey {
+
+        protected final String expression;
+        protected final Object[] values;
+        protected final int hash;
+
+        public MemoKey(String expression, Object[] values) {
+            this.expression = expression;
+            this.values = values;
+            int hash = expression.hashCode();
+            for (Object value : values) {
+                hash = 31 * hash + (value instanceof ValueKey ? value.hashCode() : System.identityHashCode(value));
+            }
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof MemoKey)) {
+                return false;
+            }
+            MemoKey other = (MemoKey) obj;
+            if (hash != other.hash || !expression.equals(other.expression) || values.length != other.values.length) {
+                return false;
+            }
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != other.values[i]
+                        && !(values[i] instanceof ValueKey && values[i].equals(other.values[i]))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+    }
+
+}
@@ -19,7 +19,9 @@
  */
 package org.broadleafcommerce.common.web.controller;
 
+import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.broadleafcommerce.common.i18n.service.TranslationConsiderationContext;
 import org.broadleafcommerce.common.web.BroadleafRequestContext;
 import org.broadleafcommerce.common.web.deeplink.DeepLink;
 import org.broadleafcommerce.common.web.deeplink.DeepLinkService;
@@ -101,6 +103,21 @@ public abstract class BroadleafAbstractController {
         }
     }
     
+    /**
+     * Loads the translations of the given entities in bulk ahead of rendering them, so that each translated field
+     * doesn't have to be looked up on its own while the page is rendered
+     * 
+     * @param entities
+     */
+    protected void prefetchTranslations(List<?> entities) {
+        BroadleafRequestContext brc = BroadleafRequestContext.getBroadleafRequestContext();
+        if (CollectionUtils.isEmpty(entities) || brc == null || brc.getJavaLocale() == null
+                || !TranslationConsiderationContext.hasTranslation()) {
+            return;
+        }
+        TranslationConsiderationContext.getTranslationService().prefetchTranslations(entities, brc.getJavaLocale());
+    }
+
     /**
      * Typically, controller methods are set to return a String that points to the necessary template path.
      * 
@@ -19,12 +19,17 @@
  */
 package org.broadleafcommerce.common.web.resource;
 
+import org.broadleafcommerce.common.resource.service.ResourceBundlingService;
 import org.springframework.core.Ordered;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerMapping;
 import org.springframework.web.servlet.resource.ResourceHttpRequestHandler;
 import org.springframework.web.servlet.resource.ResourceResolver;
 import org.springframework.web.servlet.resource.ResourceTransformer;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Collections;
 import java.util.Comparator;
 
@@ -38,6 +43,8 @@ import javax.servlet.http.HttpServletResponse;
  * Provides a PostConstruct method that sorts the {@link ResourceResolver}, {@link ResourceTransformer}, 
  * or location ({@link Resource}) collections based on the {@link Ordered} interface.
  * 
+ * Also serves the precompressed copies of resource bundles to clients that accept gzip.
+ * 
  *  
  * @author bpolster
  *
@@ -47,6 +54,9 @@ public class BroadleafResourceHttpRequestHandler extends ResourceHttpRequestHand
     @Resource(name = "blBroadleafContextUtil")
     protected BroadleafContextUtil blcContextUtil;
 
+    @Resource(name = "blResourceBundlingService")
+    protected ResourceBundlingService bundlingService;
+
     @PostConstruct
     protected void sortCollections() {
         OrderedComparator oc = new OrderedComparator();
@@ -70,12 +80,66 @@ public class BroadleafResourceHttpRequestHandler extends ResourceHttpRequestHand
         
         try {
             blcContextUtil.establishThinRequestContext();
-            super.handleRequest(request, response);
+            if (!handlePrecompressedBundle(request, response)) {
+                super.handleRequest(request, response);
+            }
         } finally {
             blcContextUtil.clearThinRequestContext();
         }
     }
 
+    /**
+     * Serves the gzip compressed copy that was saved when a bundle was built to clients that accept gzip, so
+     * the bundle does not have to be transformed or compressed again for each request.
+     * 
+     * @return true if the response was handled
+     */
+    protected boolean handlePrecompressedBundle(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        String path = (String) request.getAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE);
+        if (bundlingService == null || path == null) {
+            return false;
+        }
+        org.springframework.core.io.Resource precompressed = bundlingService.resolvePrecompressedBundleResource(path);
+        if (precompressed == null || !precompressed.exists()) {
+            return false;
+        }
+
+        // The uncompressed bundle is served from the same URL
+        response.addHeader("Vary", "Accept-Encoding");
+        if (!acceptsGzip(request)) {
+            return false;
+        }
+
+        checkAndPrepare(request, response, true);
+        if (new ServletWebRequest(request, response).checkNotModified(precompressed.lastModified())) {
+            return true;
+        }
+
+        String contentType = getServletContext().getMimeType(path);
+        if (contentType == null) {
+            contentType = path.endsWith(".css") ? "text/css" : "application/javascript";
+        }
+        response.setContentType(contentType);
+        response.setHeader("Content-Encoding", "gzip");
+        response.setContentLength((int) precompressed.contentLength());
+
+        if (!"HEAD".equals(request.getMethod())) {
+            InputStream in = precompressed.getInputStream();
+            try {
+                StreamUtils.copy(in, response.getOutputStream());
+            } finally {
+                in.close();
+            }
+        }
+        return true;
+    }
+
+    protected boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader("Accept-Encoding");
+        return acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+    }
+
     /**
      * Items that implement Ordered will sort by the value of {@link Ordered#getOrder()}.
      * 
@@ -19,6 +19,7 @@
  */
 package org.broadleafcommerce.common.web.resource.transformer;
 
+import org.broadleafcommerce.common.resource.service.ResourceBundlingService;
 import org.broadleafcommerce.common.resource.service.ResourceMinificationService;
 import org.broadleafcommerce.common.web.resource.resolver.BroadleafResourceTransformerOrder;
 import org.springframework.core.Ordered;
@@ -47,6 +48,9 @@ public class MinifyResourceTransformer implements ResourceTransformer, Ordered {
     @javax.annotation.Resource(name = "blResourceMinificationService")
     protected ResourceMinificationService minifyService;
 
+    @javax.annotation.Resource(name = "blResourceBundlingService")
+    protected ResourceBundlingService bundlingService;
+
     private int order = BroadleafResourceTransformerOrder.BLC_MINIFY_RESOURCE_TRANSFORMER;
 
     @Override
@@ -55,6 +59,11 @@ public class MinifyResourceTransformer implements ResourceTransformer, Ordered {
 
         Resource transformed = transformerChain.transform(request, resource);
 
+        // Bundles are minified once when they are built
+        if (bundlingService.checkForMinifiedBundleFile(transformed.getFilename())) {
+            return transformed;
+        }
+
         return minifyService.minify(transformed);
     }
 
@@ -27,12 +27,17 @@ import net.sf.ehcache.Element;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.broadleafcommerce.common.cache.CachedTemplateElement;
+import org.broadleafcommerce.common.cache.TemplateElementCacheService;
+import org.broadleafcommerce.common.util.ApplicationContextHolder;
+import org.springframework.context.ApplicationContext;
 import org.thymeleaf.Arguments;
 import org.thymeleaf.dom.Node;
 
 import java.io.IOException;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.util.Set;
 
 /**
  * Wrapper for Thymeleaf's {@link AbstractGeneralTemplateWriter} that provides content caching
@@ -45,6 +50,7 @@ public class CacheAwareGeneralTemplateWriter extends AbstractGeneralTemplateWrit
     protected static final Log LOG = LogFactory.getLog(CacheAwareGeneralTemplateWriter.class);
 
     protected Cache cache;
+    protected TemplateElementCacheService templateElementCacheService;
     protected AbstractGeneralTemplateWriter delegateWriter;
 
     public CacheAwareGeneralTemplateWriter(AbstractGeneralTemplateWriter delegateWriter) {
@@ -86,8 +92,13 @@ public class CacheAwareGeneralTemplateWriter extends AbstractGeneralTemplateWrit
 
                 valueToWrite = w2.toString();
 
-                Element element = new Element(cacheKey, valueToWrite);
-                getCache().put(element);
+                TemplateElementCacheService cacheService = getTemplateElementCacheService();
+                if (cacheService != null) {
+                    cacheService.putCachedElement(cacheKey, buildCachedTemplateElement(e, valueToWrite));
+                } else {
+                    Element element = new Element(cacheKey, valueToWrite);
+                    getCache().put(element);
+                }
             }
             
             writer.write(valueToWrite);
@@ -96,6 +107,34 @@ public class CacheAwareGeneralTemplateWriter extends AbstractGeneralTemplateWrit
         }
     }
 
+    /**
+     * Builds the cached representation of the rendered element from the dependency tags and render start time placed
+     * on the element by the cache processor. The render time is measured from the point the cache miss was detected
+     * until the element finished writing, so it is an upper bound of the cost of rendering the fragment.
+     */
+    @SuppressWarnings("unchecked")
+    protected CachedTemplateElement buildCachedTemplateElement(org.thymeleaf.dom.Element e, String valueToWrite) {
+        String templateName = (String) e.getNodeProperty("blCacheTemplateName");
+        Set<String> dependencyTags = (Set<String>) e.getNodeProperty("blCacheDependencyTags");
+        Long renderStartTime = (Long) e.getNodeProperty("blCacheRenderStartTime");
+        long renderTime = renderStartTime == null ? 0L : System.currentTimeMillis() - renderStartTime;
+        return new CachedTemplateElement(templateName, valueToWrite, dependencyTags, renderTime);
+    }
+
+    protected TemplateElementCacheService getTemplateElementCacheService() {
+        if (templateElementCacheService == null) {
+            ApplicationContext context = ApplicationContextHolder.getApplicationContext();
+            if (context != null && context.containsBean("blTemplateElementCacheService")) {
+                templateElementCacheService = (TemplateElementCacheService) context.getBean("blTemplateElementCacheService");
+            }
+        }
+        return templateElementCacheService;
+    }
+
+    public void setTemplateElementCacheService(TemplateElementCacheService templateElementCacheService) {
+        this.templateElementCacheService = templateElementCacheService;
+    }
+
     @Override
     protected boolean shouldWriteXmlDeclaration() {
         return delegateWriter.shouldWriteXmlDeclaration();
@@ -0,0 +1,150 @@
+/*
+ * #%L
+ * BroadleafCommerce Common Libraries
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.common.cache;
+
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import junit.framework.TestCase;
+
+public class TemplateElementCacheServiceTest extends TestCase {
+
+    protected CacheManager cacheManager;
+    protected TemplateElementCacheServiceImpl cacheService;
+
+    @Override
+    protected void setUp() throws Exception {
+        cacheManager = CacheManager.create();
+        Cache cache = new Cache("testTemplateElements", 100, false, false, 0, 0);
+        cacheManager.addCache(cache);
+        cacheService = new TemplateElementCacheServiceImpl();
+        cacheService.statisticsService = new StatisticsServiceImpl();
+        cacheService.setCache(cache);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        cacheManager.removeCache("testTemplateElements");
+    }
+
+    public void testInvalidateDependency() {
+        String product1 = cacheService.buildDependencyTag(TemplateElementCacheService.PRODUCT, 1L);
+        String product2 = cacheService.buildDependencyTag(TemplateElementCacheService.PRODUCT, 2L);
+        String category = cacheService.buildDependencyTag(TemplateElementCacheService.CATEGORY, 10L);
+
+        cacheService.putCachedElement("pdp1", new CachedTemplateElement("pdp", "<div>1</div>",
+                new HashSet<String>(Arrays.asList(product1, category)), 5L));
+        cacheService.putCachedElement("pdp2", new CachedTemplateElement("pdp", "<div>2</div>",
+                new HashSet<String>(Arrays.asList(product2, category)), 5L));
+
+        cacheService.invalidateDependency(TemplateElementCacheService.PRODUCT, 1L);
+        assertNull("The element rendered from product 1 should be evicted", cacheService.getCacheElement("pdp1"));
+        assertNotNull("The element rendered from product 2 should remain", cacheService.getCacheElement("pdp2"));
+        assertFalse("The evicted key should be removed from the category index",
+                cacheService.getCacheKeysForDependency(category).contains("pdp1"));
+
+        cacheService.invalidateDependency(TemplateElementCacheService.CATEGORY, 10L);
+        assertNull("The element rendered from category 10 should be evicted", cacheService.getCacheElement("pdp2"));
+        assertTrue(cacheService.getCacheKeysForDependency(product2).isEmpty());
+        assertEquals(Long.valueOf(2), cacheService.getTemplateCacheStats().get("pdp").getInvalidationCount());
+    }
+
+    public void testStats() {
+        CachedTemplateElement element = new CachedTemplateElement("category", "<ul/>", null, 40L);
+        cacheService.recordMiss("category");
+        cacheService.recordHit("category", element);
+        cacheService.recordHit("category", element);
+
+        TemplateCacheStat stat = cacheService.getTemplateCacheStats().get("category");
+        assertEquals(Long.valueOf(3), stat.getRequestCount());
+        assertEquals(Long.valueOf(2), stat.getCacheHitCount());
+        assertEquals(Long.valueOf(80), stat.getRenderTimeSaved());
+    }
+
+    public void testReplaceCleansDependencyIndex() {
+        String product1 = cacheService.buildDependencyTag(TemplateElementCacheService.PRODUCT, 1L);
+        String product2 = cacheService.buildDependencyTag(TemplateElementCacheService.PRODUCT, 2L);
+
+        cacheService.putCachedElement("pdp", new CachedTemplateElement("pdp", "<div>1</div>",
+                new HashSet<String>(Arrays.asList(product1)), 5L));
+        cacheService.putCachedElement("pdp", new CachedTemplateElement("pdp", "<div>2</div>",
+                new HashSet<String>(Arrays.asList(product2)), 5L));
+
+        assertFalse("The replaced element's tags should no longer index the key",
+                cacheService.dependencyIndex.containsKey(product1));
+        assertTrue(cacheService.getCacheKeysForDependency(product2).contains("pdp"));
+
+        cacheService.invalidateDependency(TemplateElementCacheService.PRODUCT, 1L);
+        assertNotNull("Invalidating the old dependency should not evict the new element",
+                cacheService.getCacheElement("pdp"));
+    }
+
+    public void testEvictionPrunesEmptyDependencyTags() {
+        Cache cache = new Cache("testSmallTemplateElements", 1, false, false, 0, 0);
+        cacheManager.addCache(cache);
+        try {
+            cacheService.setCache(cache);
+            String product1 = cacheService.buildDependencyTag(TemplateElementCacheService.PRODUCT, 1L);
+            String product2 = cacheService.buildDependencyTag(TemplateElementCacheService.PRODUCT, 2L);
+            String category = cacheService.buildDependencyTag(TemplateElementCacheService.CATEGORY, 10L);
+
+            cacheService.putCachedElement("pdp1", new CachedTemplateElement("pdp", "<div>1</div>",
+                    new HashSet<String>(Arrays.asList(product1, category)), 5L));
+            cacheService.putCachedElement("pdp2", new CachedTemplateElement("pdp", "<div>2</div>",
+                    new HashSet<String>(Arrays.asList(product2, category)), 5L));
+
+            assertNull("The first element should be evicted to make room", cacheService.getCacheElement("pdp1"));
+            assertFalse("A tag without cached elements should be dropped from the index",
+                    cacheService.dependencyIndex.containsKey(product1));
+            assertEquals(new HashSet<String>(Arrays.asList("pdp2")), cacheService.getCacheKeysForDependency(category));
+
+            cache.remove("pdp2");
+            assertTrue("Removing the last element should leave an empty index", cacheService.dependencyIndex.isEmpty());
+        } finally {
+            cacheManager.removeCache("testSmallTemplateElements");
+        }
+    }
+
+    public void testInvalidateAfterCommit() {
+        String product1 = cacheService.buildDependencyTag(TemplateElementCacheService.PRODUCT, 1L);
+        cacheService.putCachedElement("pdp1", new CachedTemplateElement("pdp", "<div>1</div>",
+                new HashSet<String>(Arrays.asList(product1)), 5L));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cacheService.invalidateDependencyAfterCommit(TemplateElementCacheService.PRODUCT, 1L);
+            assertNotNull("The element should stay cached until the transaction commits",
+                    cacheService.getCacheElement("pdp1"));
+
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCommit();
+            }
+            assertNull(cacheService.getCacheElement("pdp1"));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * #%L
+ * BroadleafCommerce Common Libraries
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.common.email.service;
+
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.mail.internet.MimeMessage;
+
+/**
+ * Stand-in for a mail server that keeps every email it is asked to send in memory instead of sending it, or rejects
+ * them all when it is set to fail.
+ */
+public class InMemoryMailSender extends JavaMailSenderImpl {
+
+    protected final List<MimeMessage> sentMessages = new ArrayList<MimeMessage>();
+    protected final AtomicInteger sessions = new AtomicInteger();
+    protected volatile boolean failing = false;
+
+    @Override
+    protected void doSend(MimeMessage[] mimeMessages, Object[] originalMessages) throws MailException {
+        sessions.incrementAndGet();
+        if (failing) {
+            throw new MailSendException("The mail server is down");
+        }
+        synchronized (sentMessages) {
+            sentMessages.addAll(Arrays.asList(mimeMessages));
+            sentMessages.notifyAll();
+        }
+    }
+
+    /**
+     * @return a copy of the emails sent so far, in the order they were sent
+     */
+    public List<MimeMessage> getSentMessages() {
+        synchronized (sentMessages) {
+            return new ArrayList<MimeMessage>(sentMessages);
+        }
+    }
+
+    /**
+     * Waits until at least the given number of emails has been sent
+     * 
+     * @param count the number of emails to wait for
+     * @param timeout the maximum number of milliseconds to wait
+     * @return whether that many emails were sent in time
+     */
+    public boolean awaitSentMessages(int count, long timeout) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeout;
+        synchronized (sentMessages) {
+            while (sentMessages.size() < count) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                sentMessages.wait(remaining);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * @return the number of times a connection to the mail server would have been opened
+     */
+    public int getSessions() {
+        return sessions.get();
+    }
+
+    public void setFailing(boolean failing) {
+        this.failing = failing;
+    }
+
+    public void clear() {
+        synchronized (sentMessages) {
+            sentMessages.clear();
+        }
+        sessions.set(0);
+    }
+
+}
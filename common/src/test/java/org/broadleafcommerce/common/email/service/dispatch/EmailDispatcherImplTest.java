@@ -0,0 +1,195 @@
+/*
+ * #%L
+ * BroadleafCommerce Common Libraries
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.common.email.service.dispatch;
+
+import org.apache.commons.io.FileUtils;
+import org.broadleafcommerce.common.email.domain.EmailTargetImpl;
+import org.broadleafcommerce.common.email.service.InMemoryMailSender;
+import org.broadleafcommerce.common.email.service.info.EmailInfo;
+import org.broadleafcommerce.common.email.service.message.EmailPropertyType;
+import org.broadleafcommerce.common.email.service.message.MessageCreator;
+import org.springframework.context.support.GenericApplicationContext;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+
+import javax.mail.internet.MimeMessage;
+
+import junit.framework.TestCase;
+
+public class EmailDispatcherImplTest extends TestCase {
+
+    protected InMemoryMailSender mailSender;
+    protected GenericApplicationContext applicationContext;
+    protected RecordingMessageCreator messageCreator;
+    protected File journalDirectory;
+
+    @Override
+    protected void setUp() throws Exception {
+        mailSender = new InMemoryMailSender();
+        applicationContext = new GenericApplicationContext();
+        applicationContext.getBeanFactory().registerSingleton("blMailSender", mailSender);
+        applicationContext.refresh();
+        messageCreator = new RecordingMessageCreator(mailSender);
+        journalDirectory = new File(System.getProperty("java.io.tmpdir"), "email-journal-" + System.nanoTime());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        applicationContext.close();
+        FileUtils.deleteQuietly(journalDirectory);
+    }
+
+    /**
+     * Builds a dispatcher whose queue is worked off by the test thread through {@link #drain(EmailDispatcherImpl)}
+     */
+    protected EmailDispatcherImpl buildDispatcher() {
+        EmailDispatcherImpl dispatcher = new EmailDispatcherImpl();
+        dispatcher.enabled = true;
+        dispatcher.journalDirectory = journalDirectory.getAbsolutePath();
+        dispatcher.setApplicationContext(applicationContext);
+        dispatcher.queue = new ArrayBlockingQueue<EmailDispatcherImpl.QueuedEmail>(10);
+        dispatcher.running = true;
+        return dispatcher;
+    }
+
+    protected void drain(EmailDispatcherImpl dispatcher) {
+        dispatcher.running = false;
+        dispatcher.work();
+        dispatcher.running = true;
+    }
+
+    protected Map<String, Object> buildProps(String subject) {
+        EmailInfo info = new EmailInfo();
+        info.setFromAddress("store@example.com");
+        info.setSubject(subject);
+        EmailTargetImpl target = new EmailTargetImpl();
+        target.setEmailAddress("customer@example.com");
+        Map<String, Object> props = new HashMap<String, Object>();
+        props.put(EmailPropertyType.INFO.getType(), info);
+        props.put(EmailPropertyType.USER.getType(), target);
+        return props;
+    }
+
+    public void testRendersOnCallingThread() throws Exception {
+        EmailDispatcherImpl dispatcher = buildDispatcher();
+        dispatcher.dispatch(buildProps("Order confirmation"), messageCreator);
+        assertSame("The email should be rendered on the calling thread", Thread.currentThread(), messageCreator.renderThread);
+        assertTrue("The email should only be queued", mailSender.getSentMessages().isEmpty());
+        assertEquals("The queued email should be journaled", 1, journalDirectory.listFiles().length);
+
+        drain(dispatcher);
+        assertEquals(1, mailSender.getSentMessages().size());
+        assertEquals("Order confirmation", mailSender.getSentMessages().get(0).getSubject());
+        assertEquals("The sent email should be removed from the journal", 0, journalDirectory.listFiles().length);
+    }
+
+    public void testSendsBatchInOneSession() throws Exception {
+        EmailDispatcherImpl dispatcher = buildDispatcher();
+        for (int i = 0; i < 5; i++) {
+            dispatcher.dispatch(buildProps("Email " + i), messageCreator);
+        }
+        drain(dispatcher);
+        assertEquals(5, mailSender.getSentMessages().size());
+        assertEquals("The queued emails should be sent within one session", 1, mailSender.getSessions());
+        assertEquals(5, dispatcher.getStatistics().getSent());
+    }
+
+    public void testSendsOnCallingThreadWhenDisabled() throws Exception {
+        EmailDispatcherImpl dispatcher = new EmailDispatcherImpl();
+        dispatcher.init();
+        assertFalse(dispatcher.isEnabled());
+
+        dispatcher.dispatch(buildProps("Password reset"), messageCreator);
+        assertEquals(1, mailSender.getSentMessages().size());
+        assertEquals(1, dispatcher.getStatistics().getSentOnCallerThread());
+    }
+
+    public void testJournalsFailedEmailsAndSendsThemOnStartup() throws Exception {
+        EmailDispatcherImpl dispatcher = buildDispatcher();
+        mailSender.setFailing(true);
+        dispatcher.dispatch(buildProps("Shipping notice"), messageCreator);
+        drain(dispatcher);
+        assertEquals(1, dispatcher.getStatistics().getFailed());
+        assertEquals("The failed email should be journaled", 1, journalDirectory.listFiles().length);
+
+        mailSender.setFailing(false);
+        messageCreator.renderThread = null;
+        EmailDispatcherImpl restarted = buildDispatcher();
+        restarted.replayJournal();
+        drain(restarted);
+        assertNull("Journaled emails should not be rendered again", messageCreator.renderThread);
+        assertEquals(1, mailSender.getSentMessages().size());
+        assertEquals("Shipping notice", mailSender.getSentMessages().get(0).getSubject());
+        assertEquals("customer@example.com", mailSender.getSentMessages().get(0).getAllRecipients()[0].toString());
+        assertEquals("The sent email should be removed from the journal", 0, journalDirectory.listFiles().length);
+    }
+
+    public void testSendsEmailsQueuedBeforeARestart() throws Exception {
+        EmailDispatcherImpl dispatcher = buildDispatcher();
+        for (int i = 0; i < 3; i++) {
+            dispatcher.dispatch(buildProps("Email " + i), messageCreator);
+        }
+        // the JVM dies, so the dispatcher is neither drained nor shut down
+        assertEquals(3, journalDirectory.listFiles().length);
+
+        EmailDispatcherImpl restarted = buildDispatcher();
+        restarted.replayJournal();
+        drain(restarted);
+        Set<String> subjects = new HashSet<String>();
+        for (MimeMessage message : mailSender.getSentMessages()) {
+            subjects.add(message.getSubject());
+        }
+        assertEquals(new HashSet<String>(Arrays.asList("Email 0", "Email 1", "Email 2")), subjects);
+        assertEquals(3, mailSender.getSentMessages().size());
+        assertEquals("The sent emails should be removed from the journal", 0, journalDirectory.listFiles().length);
+    }
+
+    public void testJournalsEmailsQueuedAtShutdown() throws Exception {
+        EmailDispatcherImpl dispatcher = buildDispatcher();
+        dispatcher.dispatch(buildProps("Back in stock"), messageCreator);
+        dispatcher.shutdown();
+        assertFalse(dispatcher.isEnabled());
+        assertTrue(mailSender.getSentMessages().isEmpty());
+        assertEquals(1, journalDirectory.listFiles().length);
+    }
+
+    protected static class RecordingMessageCreator extends MessageCreator {
+
+        protected volatile Thread renderThread;
+
+        public RecordingMessageCreator(InMemoryMailSender mailSender) {
+            super(mailSender);
+        }
+
+        @Override
+        public String buildMessageBody(EmailInfo info, Map<String, Object> props) {
+            renderThread = Thread.currentThread();
+            return "<p>" + info.getSubject() + "</p>";
+        }
+
+    }
+
+}
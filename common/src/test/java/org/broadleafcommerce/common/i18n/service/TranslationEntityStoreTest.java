@@ -0,0 +1,77 @@
+/*
+ * #%L
+ * BroadleafCommerce Common Libraries
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.common.i18n.service;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+public class TranslationEntityStoreTest extends TestCase {
+
+    public void testFindTranslatedValue() {
+        String[] translations = TranslationEntityStore.toStoredTranslations(Arrays.asList(
+                "name", "es", "Camisa",
+                "name", "es_MX", "Playera",
+                "description", "es", "Una camisa"));
+
+        assertEquals("The exact locale should be preferred", "Playera",
+                TranslationEntityStore.findTranslatedValue(translations, "name", "es_MX"));
+        assertEquals("The first translation should be used without an exact match", "Camisa",
+                TranslationEntityStore.findTranslatedValue(translations, "name", "es_ES"));
+        assertEquals("Una camisa", TranslationEntityStore.findTranslatedValue(translations, "description", "es_MX"));
+        assertNull(TranslationEntityStore.findTranslatedValue(translations, "longDescription", "es_MX"));
+        assertSame("Field names should be interned", "name", translations[3]);
+    }
+
+    public void testEntityWithoutTranslations() {
+        TranslationEntityStore store = new TranslationEntityStore(10);
+        assertNull("An entity that was never loaded should not be found", store.get(1L));
+
+        store.put(1L, TranslationEntityStore.toStoredTranslations(null));
+        assertNotNull("An entity without translations should still be found", store.get(1L));
+        assertEquals(0, store.get(1L).length);
+    }
+
+    public void testBound() {
+        TranslationEntityStore store = new TranslationEntityStore(100);
+        for (long id = 0; id < 1000; id++) {
+            store.put(id, new String[] { "name", "es", "value" + id });
+            // Keep reading the first entity so that it survives generation changes
+            assertNotNull(store.get(0L));
+        }
+
+        assertTrue("The store should not hold more than its bound", store.size() <= 100);
+        assertEquals("value999", store.get(999L)[2]);
+        assertEquals("value0", store.get(0L)[2]);
+        assertNull("Old entities that were not read should be dropped", store.get(1L));
+    }
+
+    public void testClear() {
+        TranslationEntityStore store = new TranslationEntityStore(100);
+        store.put(-5L, new String[] { "name", "es", "value" });
+        store.put(Long.MAX_VALUE, new String[] { "name", "es", "value" });
+        assertEquals(2, store.size());
+
+        store.clear();
+        assertEquals(0, store.size());
+        assertNull(store.get(-5L));
+    }
+
+}
@@ -0,0 +1,159 @@
+/*
+ * #%L
+ * BroadleafCommerce Common Libraries
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.common.i18n.service;
+
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+
+import org.broadleafcommerce.common.cache.StatisticsService;
+import org.broadleafcommerce.common.extension.ResultType;
+import org.broadleafcommerce.common.i18n.dao.TranslationDao;
+import org.broadleafcommerce.common.i18n.domain.TranslatedEntity;
+import org.broadleafcommerce.common.i18n.domain.Translation;
+import org.broadleafcommerce.common.i18n.domain.TranslationImpl;
+import org.broadleafcommerce.common.web.BroadleafRequestContext;
+import org.easymock.EasyMock;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import junit.framework.TestCase;
+
+public class TranslationServiceImplTest extends TestCase {
+
+    protected static final Locale SPANISH = new Locale("es", "MX");
+
+    protected TranslationDao dao;
+    protected TranslationServiceImpl translationService;
+
+    @Override
+    public void setUp() {
+        CacheManager.create().addCache(new Cache("testTranslationElements", 100, false, false, 0, 0));
+        dao = EasyMock.createMock(TranslationDao.class);
+        for (String entityId : new String[] { "1", "2", "3" }) {
+            EasyMock.expect(dao.getEntityId(TranslatedEntity.PRODUCT, entityId)).andReturn(entityId).anyTimes();
+        }
+        StatisticsService statisticsService = EasyMock.createNiceMock(StatisticsService.class);
+        EasyMock.replay(statisticsService);
+
+        // The translated entities of the catalog are not on the classpath, their ids stand in for them
+        translationService = new TranslationServiceImpl() {
+
+            @Override
+            protected TranslatedEntity getEntityType(Object entity) {
+                return TranslatedEntity.PRODUCT;
+            }
+
+            @Override
+            protected boolean isValidForCache() {
+                return true;
+            }
+        };
+        translationService.dao = dao;
+        translationService.statisticsService = statisticsService;
+        translationService.cache = CacheManager.getInstance().getCache("testTranslationElements");
+        translationService.thresholdForFullCache = 2;
+        translationService.maxStoreEntities = 100;
+        translationService.storeBatchSize = 2;
+        BroadleafRequestContext.setBroadleafRequestContext(new BroadleafRequestContext());
+    }
+
+    @Override
+    public void tearDown() {
+        BroadleafRequestContext.setBroadleafRequestContext(null);
+        CacheManager.getInstance().removeCache("testTranslationElements");
+    }
+
+    public void testLargeEntityTypeIsReadFromTheStore() {
+        EasyMock.expect(dao.readConvertedTranslationEntries(TranslatedEntity.PRODUCT, ResultType.STANDARD_CACHE, 2))
+                .andReturn(null);
+        EasyMock.expect(dao.readTranslations(TranslatedEntity.PRODUCT, Arrays.asList("1"), "es", ResultType.IGNORE))
+                .andReturn(Arrays.asList(createTranslation("1", "name", "es", "Camisa"),
+                        createTranslation("1", "name", "es_MX", "Playera")));
+        EasyMock.replay(dao);
+
+        assertEquals("Playera", translationService.getTranslatedValue("1", "name", SPANISH));
+        assertEquals(TranslationServiceImpl.LARGE_ENTITY_TYPE,
+                translationService.getCache().get(TranslatedEntity.PRODUCT.getFriendlyType()).getObjectValue());
+        // Read from the store without another query
+        assertEquals("Camisa", translationService.getTranslatedValue("1", "name", new Locale("es", "ES")));
+        assertNull(translationService.getTranslatedValue("1", "description", SPANISH));
+        EasyMock.verify(dao);
+    }
+
+    public void testPrefetchLoadsEveryEntityOnce() {
+        EasyMock.expect(dao.readConvertedTranslationEntries(TranslatedEntity.PRODUCT, ResultType.STANDARD_CACHE, 2))
+                .andReturn(null);
+        EasyMock.expect(dao.readTranslations(TranslatedEntity.PRODUCT, Arrays.asList("1", "2"), "es", ResultType.IGNORE))
+                .andReturn(Arrays.asList(createTranslation("1", "name", "es", "Camisa")));
+        EasyMock.expect(dao.readTranslations(TranslatedEntity.PRODUCT, Arrays.asList("3"), "es", ResultType.IGNORE))
+                .andReturn(Collections.<Translation>emptyList());
+        EasyMock.replay(dao);
+
+        // The duplicate is only read once, and in the same batch as the entity that follows it
+        List<String> entities = Arrays.asList("1", "1", "2", "3");
+        translationService.prefetchTranslations(entities, SPANISH);
+        translationService.prefetchTranslations(entities, SPANISH);
+
+        assertEquals("Camisa", translationService.getTranslatedValue("1", "name", SPANISH));
+        assertNull("Entities without translations are stored too",
+                translationService.getTranslatedValue("2", "name", SPANISH));
+        assertNull(translationService.getTranslatedValue("3", "name", SPANISH));
+        EasyMock.verify(dao);
+    }
+
+    public void testClearEntityStores() {
+        EasyMock.replay(dao);
+        String cacheKey = TranslatedEntity.PRODUCT.getFriendlyType();
+        String templateCacheKey = cacheKey + "|template";
+        TranslationEntityStore store = translationService.getEntityStore(TranslatedEntity.PRODUCT, cacheKey, "es");
+        translationService.getEntityStore(TranslatedEntity.PRODUCT, cacheKey, "fr");
+        TranslationEntityStore templateStore = translationService.getEntityStore(TranslatedEntity.PRODUCT,
+                templateCacheKey, "es");
+        TranslationEntityStore categoryStore = translationService.getEntityStore(TranslatedEntity.CATEGORY,
+                TranslatedEntity.CATEGORY.getFriendlyType(), "es");
+        assertSame(store, translationService.getEntityStore(TranslatedEntity.PRODUCT, cacheKey, "es"));
+
+        translationService.clearEntityStores(TranslatedEntity.PRODUCT, cacheKey);
+        assertEquals(2, translationService.entityStores.size());
+        assertNotSame(store, translationService.getEntityStore(TranslatedEntity.PRODUCT, cacheKey, "es"));
+        assertSame("The stores of other cache keys should be kept", templateStore,
+                translationService.getEntityStore(TranslatedEntity.PRODUCT, templateCacheKey, "es"));
+
+        translationService.clearEntityStores(TranslatedEntity.PRODUCT, null);
+        assertEquals(1, translationService.entityStores.size());
+        assertSame(categoryStore, translationService.getEntityStore(TranslatedEntity.CATEGORY,
+                TranslatedEntity.CATEGORY.getFriendlyType(), "es"));
+    }
+
+    protected Translation createTranslation(String entityId, String fieldName, String localeCode,
+            String translatedValue) {
+        Translation translation = new TranslationImpl();
+        translation.setEntityType(TranslatedEntity.PRODUCT);
+        translation.setEntityId(entityId);
+        translation.setFieldName(fieldName);
+        translation.setLocaleCode(localeCode);
+        translation.setTranslatedValue(translatedValue);
+        return translation;
+    }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * #%L
+ * BroadleafCommerce Common Libraries
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.common.money;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class MoneyAccumulatorTest extends TestCase {
+
+    protected Currency usd = Currency.getInstance("USD");
+    protected Currency jpy = Currency.getInstance("JPY");
+
+    public void testMatchesMoneyArithmetic() {
+        Random random = new Random(42);
+        for (Currency currency : new Currency[] { usd, jpy }) {
+            Money expected = new Money(currency);
+            MoneyAccumulator accumulator = new MoneyAccumulator(currency);
+            for (int i = 0; i < 1000; i++) {
+                Money term = new Money(BigDecimal.valueOf(random.nextInt(200000) - 50000, 2), currency);
+                int quantity = random.nextInt(5) + 1;
+                switch (i % 3) {
+                    case 0:
+                        expected = expected.add(term);
+                        accumulator.add(term);
+                        break;
+                    case 1:
+                        expected = expected.subtract(term);
+                        accumulator.subtract(term);
+                        break;
+                    default:
+                        expected = expected.add(term.multiply(quantity));
+                        accumulator.add(term, quantity);
+                }
+            }
+            assertEquals("The total should equal the chained Money result for " + currency, expected, accumulator.toMoney());
+            assertEquals("The scale should equal the chained Money result for " + currency,
+                    expected.getAmount().scale(), accumulator.toMoney().getAmount().scale());
+        }
+    }
+
+    public void testTermWithDifferentScale() {
+        Money start = new Money(new BigDecimal("10.01"), usd);
+        Money term = new Money(new BigDecimal("0.005"), usd, 3);
+
+        MoneyAccumulator accumulator = new MoneyAccumulator(start);
+        accumulator.add(term).add(term).add(new Money(new BigDecimal("1.25"), usd));
+
+        Money expected = start.add(term).add(term).add(new Money(new BigDecimal("1.25"), usd));
+        assertEquals(expected, accumulator.toMoney());
+        assertEquals(expected.getAmount().scale(), accumulator.toMoney().getAmount().scale());
+    }
+
+    public void testOverflowFallsBackToBigDecimal() {
+        Money large = new Money(BigDecimal.valueOf(Long.MAX_VALUE - 10, 2), usd);
+        Money term = new Money(new BigDecimal("1.00"), usd);
+
+        MoneyAccumulator accumulator = new MoneyAccumulator(large);
+        accumulator.add(term).add(term, 3).subtract(term);
+
+        assertEquals(large.add(term).add(term.multiply(3)).subtract(term), accumulator.toMoney());
+
+        accumulator = new MoneyAccumulator(new Money(BigDecimal.valueOf(Long.MIN_VALUE + 10, 2), usd));
+        accumulator.subtract(term);
+        assertEquals(new Money(BigDecimal.valueOf(Long.MIN_VALUE + 10, 2), usd).subtract(term), accumulator.toMoney());
+    }
+
+    public void testDifferentCurrencies() {
+        Money yen = new Money(BigDecimal.valueOf(100), jpy);
+        MoneyAccumulator accumulator = new MoneyAccumulator(new Money(BigDecimal.ONE, usd));
+        try {
+            accumulator.add(yen);
+            fail("Adding a different currency without a conversion service should fail like Money does");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+
+        Currency other = Money.ZERO.getCurrency().equals(jpy) ? usd : jpy;
+        Money term = new Money(BigDecimal.TEN, other);
+        accumulator = new MoneyAccumulator(Money.ZERO);
+        assertEquals("Money.ZERO should take on the currency of the first term", Money.ZERO.add(term),
+                accumulator.add(term).toMoney());
+        assertEquals(other, accumulator.getCurrency());
+    }
+
+    public void testIsZero() {
+        MoneyAccumulator accumulator = new MoneyAccumulator(usd);
+        assertTrue(accumulator.isZero());
+        Money term = new Money(new BigDecimal("2.50"), usd);
+        accumulator.add(term);
+        assertFalse(accumulator.isZero());
+        accumulator.subtract(term);
+        assertTrue(accumulator.isZero());
+    }
+
+}
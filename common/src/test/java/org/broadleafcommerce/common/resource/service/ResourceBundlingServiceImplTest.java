@@ -0,0 +1,361 @@
+/*
+ * #%L
+ * BroadleafCommerce Common Libraries
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.common.resource.service;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.broadleafcommerce.common.file.domain.FileWorkArea;
+import org.broadleafcommerce.common.file.service.BroadleafFileService;
+import org.broadleafcommerce.common.resource.GeneratedResource;
+import org.broadleafcommerce.common.web.BroadleafRequestContext;
+import org.broadleafcommerce.common.web.resource.BroadleafResourceHttpRequestHandler;
+import org.broadleafcommerce.common.web.resource.transformer.MinifyResourceTransformer;
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.springframework.core.io.Resource;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.resource.ResourceHttpRequestHandler;
+import org.springframework.web.servlet.resource.ResourceResolver;
+import org.springframework.web.servlet.resource.ResourceResolverChain;
+import org.springframework.web.servlet.resource.ResourceTransformerChain;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import junit.framework.TestCase;
+
+public class ResourceBundlingServiceImplTest extends TestCase {
+
+    protected static final List<String> BUNDLE_FILES = Arrays.asList("a.js", "b.js");
+
+    protected File fileStore;
+    protected List<String> savedFiles;
+    protected int minifyCount;
+    protected BroadleafFileService fileService;
+    protected ResourceMinificationService minifyService;
+    protected Map<String, String> files;
+
+    @Override
+    public void setUp() throws Exception {
+        fileStore = File.createTempFile("bundles", "");
+        fileStore.delete();
+        fileStore.mkdirs();
+        savedFiles = new ArrayList<String>();
+        minifyCount = 0;
+        fileService = createFileService();
+        minifyService = createMinifyService();
+        files = new HashMap<String, String>();
+        files.put("/js/a.js", "var a = 1;");
+        files.put("/js/b.js", "var b = 2;");
+
+        BroadleafRequestContext brc = new BroadleafRequestContext();
+        brc.setRequest(replayedRequest());
+        BroadleafRequestContext.setBroadleafRequestContext(brc);
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        BroadleafRequestContext.setBroadleafRequestContext(null);
+        FileUtils.deleteDirectory(fileStore);
+    }
+
+    public void testBundleIsVersionedByContentAndReused() {
+        ResourceBundlingServiceImpl bundlingService = createBundlingService();
+        String bundleName = bundlingService.resolveBundleResourceName("lib.js", "/js/", BUNDLE_FILES);
+
+        String separator = System.getProperty("line.separator");
+        byte[] contents = ("var a = 1;;" + separator + "var b = 2;;" + separator).getBytes();
+        assertEquals("/js/lib-" + bundlingService.getContentVersion(contents, true) + ".js", bundleName);
+        assertEquals(Arrays.asList("bundles" + bundleName, "bundles" + bundleName + ".gz"), savedFiles);
+        assertEquals(1, minifyCount);
+        assertTrue(bundlingService.checkForRegisteredBundleFile(bundleName));
+        assertEquals(bundleName, bundlingService.resolveBundleResourceName("lib.js", "/js/", BUNDLE_FILES));
+        assertEquals(1, minifyCount);
+
+        // After a redeploy, or on another node, a bundle with the same contents is found under the same name
+        ResourceBundlingServiceImpl redeployedService = createBundlingService();
+        assertEquals(bundleName, redeployedService.resolveBundleResourceName("lib.js", "/js/", BUNDLE_FILES));
+        assertEquals(2, savedFiles.size());
+        assertEquals(1, minifyCount);
+        assertTrue(redeployedService.checkForMinifiedBundleFile(bundleName.substring("/js/".length())));
+        assertNotNull(redeployedService.resolvePrecompressedBundleResource(bundleName));
+
+        files.put("/js/b.js", "var b = 3;");
+        ResourceBundlingServiceImpl changedService = createBundlingService();
+        String changedBundleName = changedService.resolveBundleResourceName("lib.js", "/js/", BUNDLE_FILES);
+        assertFalse(bundleName.equals(changedBundleName));
+        assertEquals(4, savedFiles.size());
+        assertEquals(2, minifyCount);
+    }
+
+    public void testPrecompressedBundleIsServedToClientsThatAcceptGzip() throws Exception {
+        ResourceBundlingServiceImpl bundlingService = createBundlingService();
+        String bundleName = bundlingService.resolveBundleResourceName("lib.js", "/js/", BUNDLE_FILES);
+        byte[] bundle = IOUtils.toByteArray(bundlingService.resolveBundleResource(bundleName).getInputStream());
+
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        HttpServletResponse response = EasyMock.createNiceMock(HttpServletResponse.class);
+        response.addHeader("Vary", "Accept-Encoding");
+        response.setHeader("Content-Encoding", "gzip");
+        response.setContentType("application/javascript");
+        EasyMock.expect(response.getOutputStream()).andReturn(new ServletOutputStream() {
+
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+        });
+        EasyMock.replay(response);
+
+        PrecompressedBundleHandler handler = new PrecompressedBundleHandler(bundlingService);
+        assertTrue(handler.handlePrecompressedBundle(bundleRequest(bundleName, "gzip, deflate"), response));
+        EasyMock.verify(response);
+        assertTrue(Arrays.equals(bundle, IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(body.toByteArray())))));
+    }
+
+    public void testPrecompressedBundleIsNotServedToOtherClients() throws Exception {
+        ResourceBundlingServiceImpl bundlingService = createBundlingService();
+        String bundleName = bundlingService.resolveBundleResourceName("lib.js", "/js/", BUNDLE_FILES);
+
+        // Nothing but the Vary header may be written, the bundle is then served uncompressed
+        HttpServletResponse response = EasyMock.createMock(HttpServletResponse.class);
+        response.addHeader("Vary", "Accept-Encoding");
+        EasyMock.replay(response);
+
+        PrecompressedBundleHandler handler = new PrecompressedBundleHandler(bundlingService);
+        assertFalse(handler.handlePrecompressedBundle(bundleRequest(bundleName, null), response));
+        EasyMock.verify(response);
+    }
+
+    public void testMinifiedBundlesAreNotMinifiedAgainWhenServed() throws Exception {
+        ResourceBundlingServiceImpl bundlingService = createBundlingService();
+        String bundleName = bundlingService.resolveBundleResourceName("lib.js", "/js/", BUNDLE_FILES);
+        Resource bundle = bundlingService.resolveBundleResource(bundleName);
+        Resource file = new GeneratedResource("var c = 3;".getBytes(), "c.js");
+        Resource minifiedFile = new GeneratedResource("var c=3;".getBytes(), "c.js");
+
+        HttpServletRequest request = replayedRequest();
+        ResourceTransformerChain transformerChain = EasyMock.createMock(ResourceTransformerChain.class);
+        EasyMock.expect(transformerChain.transform(request, bundle)).andReturn(bundle);
+        EasyMock.expect(transformerChain.transform(request, file)).andReturn(file);
+        ResourceMinificationService transformerMinifyService = EasyMock.createMock(ResourceMinificationService.class);
+        EasyMock.expect(transformerMinifyService.minify(file)).andReturn(minifiedFile);
+        EasyMock.replay(transformerChain, transformerMinifyService);
+
+        MinifyResourceTransformer transformer = new BundleMinifyResourceTransformer(bundlingService, transformerMinifyService);
+        assertSame(bundle, transformer.transform(request, bundle, transformerChain));
+        assertSame(minifiedFile, transformer.transform(request, file, transformerChain));
+        EasyMock.verify(transformerChain, transformerMinifyService);
+    }
+
+    public void testDetachedRequestKeepsRequestState() {
+        HttpServletRequest request = EasyMock.createNiceMock(HttpServletRequest.class);
+        EasyMock.expect(request.getContextPath()).andReturn("/store").anyTimes();
+        EasyMock.expect(request.getServerName()).andReturn("www.example.com").anyTimes();
+        EasyMock.expect(request.getServerPort()).andReturn(443).anyTimes();
+        EasyMock.expect(request.isSecure()).andReturn(true).anyTimes();
+        EasyMock.expect(request.getHeaderNames()).andReturn(Collections.enumeration(Arrays.asList("Accept-Encoding"))).anyTimes();
+        EasyMock.expect(request.getHeaders("accept-encoding")).andReturn(Collections.enumeration(Arrays.asList("gzip"))).anyTimes();
+        EasyMock.expect(request.getAttributeNames()).andReturn(Collections.enumeration(Arrays.asList("theme"))).anyTimes();
+        EasyMock.expect(request.getAttribute("theme")).andReturn("default").anyTimes();
+        EasyMock.replay(request);
+
+        HttpServletRequest copy = ResourceBundlingServiceImpl.DetachedRequest.copyOf(request);
+        // the original may be recycled by the container once its request completes
+        EasyMock.reset(request);
+
+        assertEquals("/store", copy.getContextPath());
+        assertEquals("www.example.com", copy.getServerName());
+        assertEquals(443, copy.getServerPort());
+        assertTrue(copy.isSecure());
+        assertEquals("gzip", copy.getHeader("Accept-Encoding"));
+        assertNull(copy.getHeader("Cookie"));
+        assertEquals(-1, copy.getIntHeader("Content-Length"));
+        assertEquals("default", copy.getAttribute("theme"));
+        assertNull(copy.getSession(false));
+        assertTrue(copy.getParameterMap().isEmpty());
+
+        HttpServletRequest otherCopy = ResourceBundlingServiceImpl.DetachedRequest.copyOf(replayedRequest());
+        copy.setAttribute("theme", "mobile");
+        assertEquals("mobile", copy.getAttribute("theme"));
+        assertNull("Copies should not share attributes", otherCopy.getAttribute("theme"));
+    }
+
+    protected ResourceBundlingServiceImpl createBundlingService() {
+        ResourceHttpRequestHandler jsResourceHandler = new ResourceHttpRequestHandler();
+        jsResourceHandler.setLocations(new ArrayList<Resource>());
+        jsResourceHandler.setResourceResolvers(Collections.<ResourceResolver>singletonList(new InMemoryResourceResolver(files)));
+
+        ResourceBundlingServiceImpl bundlingService = new ResourceBundlingServiceImpl();
+        bundlingService.jsResourceHandler = jsResourceHandler;
+        bundlingService.fileService = fileService;
+        bundlingService.minifyService = minifyService;
+        bundlingService.precompressEnabled = true;
+        return bundlingService;
+    }
+
+    /**
+     * A file service that keeps the saved files in {@link #fileStore} and records their paths
+     */
+    protected BroadleafFileService createFileService() {
+        BroadleafFileService fileService = EasyMock.createNiceMock(BroadleafFileService.class);
+        EasyMock.expect(fileService.initializeWorkArea()).andAnswer(new IAnswer<FileWorkArea>() {
+
+            @Override
+            public FileWorkArea answer() throws Throwable {
+                File directory = File.createTempFile("work", "", fileStore);
+                directory.delete();
+                directory.mkdirs();
+                FileWorkArea workArea = new FileWorkArea();
+                workArea.setFilePathLocation(directory.getAbsolutePath());
+                return workArea;
+            }
+        }).anyTimes();
+        EasyMock.expect(fileService.addOrUpdateResourceForPath(EasyMock.<FileWorkArea>anyObject(),
+                EasyMock.<File>anyObject(), EasyMock.eq(true))).andAnswer(new IAnswer<String>() {
+
+            @Override
+            public String answer() throws Throwable {
+                FileWorkArea workArea = (FileWorkArea) EasyMock.getCurrentArguments()[0];
+                File file = (File) EasyMock.getCurrentArguments()[1];
+                String directory = new File(workArea.getFilePathLocation()).getAbsolutePath();
+                String path = file.getAbsolutePath().substring(directory.length() + 1).replace(File.separatorChar, '/');
+                FileUtils.moveFile(file, new File(fileStore, path));
+                savedFiles.add(path);
+                return path;
+            }
+        }).anyTimes();
+        EasyMock.expect(fileService.getResource(EasyMock.<String>anyObject())).andAnswer(new IAnswer<File>() {
+
+            @Override
+            public File answer() throws Throwable {
+                return new File(fileStore, (String) EasyMock.getCurrentArguments()[0]);
+            }
+        }).anyTimes();
+        EasyMock.replay(fileService);
+        return fileService;
+    }
+
+    /**
+     * A minification service that removes all spaces and counts how often it was used
+     */
+    protected ResourceMinificationService createMinifyService() {
+        ResourceMinificationService minifyService = EasyMock.createNiceMock(ResourceMinificationService.class);
+        EasyMock.expect(minifyService.getEnabled()).andReturn(true).anyTimes();
+        EasyMock.expect(minifyService.minify(EasyMock.<String>anyObject(), EasyMock.<byte[]>anyObject()))
+                .andAnswer(new IAnswer<byte[]>() {
+
+                    @Override
+                    public byte[] answer() throws Throwable {
+                        minifyCount++;
+                        return new String((byte[]) EasyMock.getCurrentArguments()[1]).replace(" ", "").getBytes();
+                    }
+                }).anyTimes();
+        EasyMock.replay(minifyService);
+        return minifyService;
+    }
+
+    protected HttpServletRequest bundleRequest(String bundleName, String acceptEncoding) {
+        HttpServletRequest request = EasyMock.createNiceMock(HttpServletRequest.class);
+        EasyMock.expect(request.getAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE))
+                .andReturn(bundleName.substring("/js/".length())).anyTimes();
+        EasyMock.expect(request.getHeader("Accept-Encoding")).andReturn(acceptEncoding).anyTimes();
+        EasyMock.expect(request.getMethod()).andReturn("GET").anyTimes();
+        EasyMock.expect(request.getDateHeader("If-Modified-Since")).andReturn(-1L).anyTimes();
+        EasyMock.replay(request);
+        return request;
+    }
+
+    protected HttpServletRequest replayedRequest() {
+        HttpServletRequest request = EasyMock.createNiceMock(HttpServletRequest.class);
+        EasyMock.expect(request.getHeaderNames()).andReturn(Collections.enumeration(Collections.emptyList())).anyTimes();
+        EasyMock.expect(request.getAttributeNames()).andReturn(Collections.enumeration(Collections.emptyList())).anyTimes();
+        EasyMock.replay(request);
+        return request;
+    }
+
+    /**
+     * Resolves the paths of {@link #files} to their contents
+     */
+    protected static class InMemoryResourceResolver implements ResourceResolver {
+
+        protected final Map<String, String> files;
+
+        public InMemoryResourceResolver(Map<String, String> files) {
+            this.files = files;
+        }
+
+        @Override
+        public Resource resolveResource(HttpServletRequest request, String requestPath,
+                List<? extends Resource> locations, ResourceResolverChain chain) {
+            String contents = files.get(requestPath);
+            return contents == null ? null : new GeneratedResource(contents.getBytes(), requestPath);
+        }
+
+        @Override
+        public String resolveUrlPath(String resourcePath, List<? extends Resource> locations,
+                ResourceResolverChain chain) {
+            return files.containsKey(resourcePath) ? resourcePath : null;
+        }
+
+    }
+
+    protected static class PrecompressedBundleHandler extends BroadleafResourceHttpRequestHandler {
+
+        public PrecompressedBundleHandler(ResourceBundlingService bundlingService) {
+            this.bundlingService = bundlingService;
+            ServletContext servletContext = EasyMock.createNiceMock(ServletContext.class);
+            EasyMock.replay(servletContext);
+            setServletContext(servletContext);
+        }
+
+        @Override
+        public boolean handlePrecompressedBundle(HttpServletRequest request, HttpServletResponse response)
+                throws IOException, javax.servlet.ServletException {
+            return super.handlePrecompressedBundle(request, response);
+        }
+
+    }
+
+    protected static class BundleMinifyResourceTransformer extends MinifyResourceTransformer {
+
+        public BundleMinifyResourceTransformer(ResourceBundlingService bundlingService,
+                ResourceMinificationService minifyService) {
+            this.bundlingService = bundlingService;
+            this.minifyService = minifyService;
+        }
+
+    }
+
+}
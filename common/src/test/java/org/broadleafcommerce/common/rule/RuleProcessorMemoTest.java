@@ -0,0 +1,196 @@
+/*
+ * #%L
+ * BroadleafCommerce Common Libraries
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.common.rule;
+
+import org.broadleafcommerce.common.TimeDTO;
+import org.broadleafcommerce.common.cache.StatisticsService;
+import org.broadleafcommerce.common.web.BroadleafRequestContext;
+import org.easymock.EasyMock;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+import javax.servlet.http.HttpServletRequest;
+
+import junit.framework.TestCase;
+
+/**
+ * Evaluates rules through a {@link AbstractRuleProcessor} to check what the processors actually remember
+ */
+public class RuleProcessorMemoTest extends TestCase {
+
+    protected RuleResultMemoServiceImpl memoService;
+    protected TestRuleProcessor processor;
+    protected List<Boolean> hits;
+
+    @Override
+    protected void setUp() throws Exception {
+        hits = new ArrayList<Boolean>();
+        memoService = new RuleResultMemoServiceImpl();
+        memoService.statisticsService = new RecordingStatisticsService();
+        processor = new TestRuleProcessor();
+        processor.ruleResultMemoService = memoService;
+
+        HttpServletRequest request = EasyMock.createNiceMock(HttpServletRequest.class);
+        EasyMock.replay(request);
+        BroadleafRequestContext context = new BroadleafRequestContext();
+        context.setRequest(request);
+        BroadleafRequestContext.setBroadleafRequestContext(context);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        BroadleafRequestContext.setBroadleafRequestContext(null);
+    }
+
+    /**
+     * Test that a time rule is remembered even though every evaluation builds its own {@link TimeDTO}
+     */
+    public void testTimeRuleHitsForANewTimeDTO() {
+        Calendar calendar = createCalendar("UTC", 10);
+
+        assertTrue(processor.evaluate("time.hour.type == '10'", createTimeVars(calendar)));
+        assertTrue(processor.evaluate("time.hour.type == '10'", createTimeVars((Calendar) calendar.clone())));
+
+        assertEquals("[false, true]", hits.toString());
+        assertEquals(1, memoService.getMemo(false).size());
+    }
+
+    /**
+     * Test that the same instant seen in another time zone, as offers with their own time zone do, is a miss
+     */
+    public void testTimeRuleMissesForAnotherTimeZone() {
+        Calendar utc = createCalendar("UTC", 10);
+        Calendar other = Calendar.getInstance(TimeZone.getTimeZone("GMT+02:00"));
+        other.setTimeInMillis(utc.getTimeInMillis());
+
+        assertTrue(processor.evaluate("time.hour.type == '10'", createTimeVars(utc)));
+        assertFalse(processor.evaluate("time.hour.type == '10'", createTimeVars(other)));
+
+        assertEquals("[false, false]", hits.toString());
+    }
+
+    /**
+     * Test that a time rule in a later minute is evaluated again
+     */
+    public void testTimeRuleMissesInALaterMinute() {
+        Calendar calendar = createCalendar("UTC", 10);
+        Calendar later = (Calendar) calendar.clone();
+        later.add(Calendar.MINUTE, 1);
+
+        processor.evaluate("time.hour.type == '10'", createTimeVars(calendar));
+        processor.evaluate("time.hour.type == '10'", createTimeVars(later));
+
+        assertEquals("[false, false]", hits.toString());
+        assertEquals(2, memoService.getMemo(false).size());
+    }
+
+    /**
+     * Test that a rule on a variable that changes within the request is neither looked up nor remembered
+     */
+    public void testUnstableRuleIsNotRemembered() {
+        Map<String, Object> vars = new HashMap<String, Object>();
+        vars.put("order", new Object());
+
+        processor.evaluate("order != null", vars);
+        processor.evaluate("order != null", vars);
+
+        assertTrue(hits.isEmpty());
+        assertNull(memoService.getMemo(false));
+    }
+
+    /**
+     * Test that the memo of a request stops growing at its maximum size, and still answers for what it holds
+     */
+    public void testMemoSizeIsBounded() {
+        memoService.setMaxEntries(3);
+        List<Map<String, Object>> customers = new ArrayList<Map<String, Object>>();
+        for (int i = 0; i < 5; i++) {
+            Map<String, Object> vars = new HashMap<String, Object>();
+            vars.put("customer", new Object());
+            customers.add(vars);
+            processor.evaluate("customer != null", vars);
+        }
+        assertEquals(3, memoService.getMemo(false).size());
+
+        hits.clear();
+        processor.evaluate("customer != null", customers.get(0));
+        processor.evaluate("customer != null", customers.get(4));
+        assertEquals("[true, false]", hits.toString());
+        assertEquals(3, memoService.getMemo(false).size());
+    }
+
+    protected Calendar createCalendar(String timeZone, int hour) {
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone(timeZone));
+        calendar.clear();
+        calendar.set(2015, Calendar.MARCH, 2, hour, 30, 15);
+        return calendar;
+    }
+
+    protected Map<String, Object> createTimeVars(Calendar calendar) {
+        Map<String, Object> vars = new HashMap<String, Object>();
+        vars.put("time", new TimeDTO(calendar));
+        return vars;
+    }
+
+    protected class RecordingStatisticsService implements StatisticsService {
+
+        @Override
+        public void addCacheStat(String key, boolean isHit) {
+            hits.add(isHit);
+        }
+
+        @Override
+        public Long getLogResolution() {
+            return null;
+        }
+
+        @Override
+        public void setLogResolution(Long logResolution) {
+        }
+
+        @Override
+        public void activateLogging() {
+        }
+
+        @Override
+        public void disableLogging() {
+        }
+
+    }
+
+    protected static class TestRuleProcessor extends AbstractRuleProcessor<Object> {
+
+        public boolean evaluate(String expression, Map<String, Object> vars) {
+            return executeExpression(expression, vars);
+        }
+
+        @Override
+        public boolean checkForMatch(Object sc, Map<String, Object> valueMap) {
+            return false;
+        }
+
+    }
+
+}
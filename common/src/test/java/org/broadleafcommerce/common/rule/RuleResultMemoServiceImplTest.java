@@ -0,0 +1,65 @@
+/*
+ * #%L
+ * BroadleafCommerce Common Libraries
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.common.rule;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+public class RuleResultMemoServiceImplTest extends TestCase {
+
+    protected RuleResultMemoServiceImpl memoService = new RuleResultMemoServiceImpl();
+
+    /**
+     * Test that only the roots of property chains outside of string literals are taken as variables
+     */
+    public void testRootIdentifiers() {
+        assertEquals("[customer, true, time, MvelHelper]", memoService.getRootIdentifiers(
+                "customer.registered == true && time.hour > 5 && MvelHelper.toUpperCase('order.x') == \"y\"").toString());
+    }
+
+    /**
+     * Test that expressions on request-stable variables share a key for the same variable instances
+     */
+    public void testStableVariablesKey() {
+        Object customer = new Object();
+        Map<String, Object> vars = new HashMap<String, Object>();
+        vars.put("customer", customer);
+        vars.put("MVEL", Object.class);
+        Map<String, Object> otherVars = new HashMap<String, Object>(vars);
+
+        assertEquals(memoService.buildKey("customer.registered", vars), memoService.buildKey("customer.registered", otherVars));
+
+        otherVars.put("customer", new Object());
+        assertFalse(memoService.buildKey("customer.registered", vars).equals(memoService.buildKey("customer.registered", otherVars)));
+    }
+
+    /**
+     * Test that expressions on variables that can change within a request are not remembered
+     */
+    public void testUnstableVariablesKey() {
+        Map<String, Object> vars = new HashMap<String, Object>();
+        vars.put("customer", new Object());
+        vars.put("order", new Object());
+        assertNull(memoService.buildKey("customer.registered && order.subTotal.amount > 100", vars));
+    }
+
+}
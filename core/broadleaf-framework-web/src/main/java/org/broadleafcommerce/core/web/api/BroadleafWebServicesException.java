@@ -55,6 +55,8 @@ public class BroadleafWebServicesException extends RuntimeException {
     public static final String CHECKOUT_PROCESSING_ERROR = "org.broadleafcommerce.core.web.api.BroadleafWebServicesException.checkoutProcessingError";
     public static final String CONTENT_TYPE_NOT_SUPPORTED = "org.broadleafcommerce.core.web.api.BroadleafWebServicesException.contentTypeNotSupported";
     public static final String QUERY_PARAMETER_NOT_PRESENT = "org.broadleafcommerce.core.web.api.BroadleafWebServicesException.queryParameterNotPresent";
+    public static final String UNSUPPORTED_FIELD = "org.broadleafcommerce.core.web.api.BroadleafWebServicesException.unsupportedField";
+    public static final String TOO_MANY_IDS = "org.broadleafcommerce.core.web.api.BroadleafWebServicesException.tooManyIds";
 
     protected int httpStatusCode = 500;
 
@@ -53,15 +53,21 @@ import org.broadleafcommerce.core.web.api.wrapper.SearchResultsWrapper;
 import org.broadleafcommerce.core.web.api.wrapper.SkuAttributeWrapper;
 import org.broadleafcommerce.core.web.api.wrapper.SkuWrapper;
 import org.broadleafcommerce.core.web.service.SearchFacetDTOService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.annotation.Resource;
 import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.StreamingOutput;
 
 /**
  * This class exposes catalog services as RESTful APIs.  It is dependent on
@@ -105,6 +111,12 @@ public abstract class CatalogEndpoint extends BaseEndpoint {
     @Resource(name = "blInventoryService")
     protected InventoryService inventoryService;
 
+    @Resource(name = "blCatalogProjectionWriter")
+    protected CatalogProjectionWriter projectionWriter;
+
+    @Value("${api.catalog.bulk.maxIds:500}")
+    protected int maxBulkIds = 500;
+
     /**
      * Search for {@code Product} by product id
      *
@@ -575,6 +587,86 @@ public abstract class CatalogEndpoint extends BaseEndpoint {
                 .addMessage(BroadleafWebServicesException.PRODUCT_NOT_FOUND, id);
     }
 
+    /**
+     * Streams the products with the given ids as a JSON array, in the order of the ids. Only the requested fields are
+     * written; see {@link CatalogProjectionWriter#PRODUCT_FIELDS} for the supported fields and
+     * {@link CatalogProjectionWriter#DEFAULT_PRODUCT_FIELDS} for those written when none are requested.
+     * 
+     * @param request
+     * @param ids the product ids, at most <b>api.catalog.bulk.maxIds</b>
+     * @param fields an optional comma separated list of fields
+     * @return the response body
+     */
+    public StreamingOutput findProductsByIds(final HttpServletRequest request, final List<Long> ids, String fields) {
+        validateBulkIds(ids);
+        final Set<String> projection = projectionWriter.parseFields(fields, CatalogProjectionWriter.PRODUCT_FIELDS,
+                CatalogProjectionWriter.DEFAULT_PRODUCT_FIELDS);
+        return new StreamingOutput() {
+
+            @Override
+            public void write(OutputStream output) throws IOException, WebApplicationException {
+                projectionWriter.writeProducts(ids, projection, request, output);
+            }
+        };
+    }
+
+    /**
+     * Streams all of the skus for each of the given products as a JSON object keyed by product id. This replaces a
+     * call to {@link #findSkusByProductById(HttpServletRequest, Long)} per product.
+     * 
+     * @param request
+     * @param productIds the product ids, at most <b>api.catalog.bulk.maxIds</b>
+     * @param fields an optional comma separated list of fields from {@link CatalogProjectionWriter#SKU_FIELDS}
+     * @return the response body
+     */
+    public StreamingOutput findSkusByProductIds(final HttpServletRequest request, final List<Long> productIds, String fields) {
+        validateBulkIds(productIds);
+        final Set<String> projection = projectionWriter.parseFields(fields, CatalogProjectionWriter.SKU_FIELDS,
+                CatalogProjectionWriter.DEFAULT_SKU_FIELDS);
+        return new StreamingOutput() {
+
+            @Override
+            public void write(OutputStream output) throws IOException, WebApplicationException {
+                projectionWriter.writeSkusForProducts(productIds, projection, request, output);
+            }
+        };
+    }
+
+    /**
+     * Streams the skus with the given ids as a JSON array, in the order of the ids. Requesting the
+     * "quantityAvailable" field retrieves inventory for each batch of skus in one call, replacing
+     * {@link #findInventoryForSkus(HttpServletRequest, List)}, and the "media" field replaces
+     * {@link #findMediaForSku(HttpServletRequest, Long)}.
+     * 
+     * @param request
+     * @param ids the sku ids, at most <b>api.catalog.bulk.maxIds</b>
+     * @param fields an optional comma separated list of fields from {@link CatalogProjectionWriter#SKU_FIELDS}
+     * @return the response body
+     */
+    public StreamingOutput findSkusByIds(final HttpServletRequest request, final List<Long> ids, String fields) {
+        validateBulkIds(ids);
+        final Set<String> projection = projectionWriter.parseFields(fields, CatalogProjectionWriter.SKU_FIELDS,
+                CatalogProjectionWriter.DEFAULT_SKU_FIELDS);
+        return new StreamingOutput() {
+
+            @Override
+            public void write(OutputStream output) throws IOException, WebApplicationException {
+                projectionWriter.writeSkus(ids, projection, request, output);
+            }
+        };
+    }
+
+    protected void validateBulkIds(List<Long> ids) {
+        if (CollectionUtils.isEmpty(ids)) {
+            throw BroadleafWebServicesException.build(HttpStatus.BAD_REQUEST.value())
+                    .addMessage(BroadleafWebServicesException.QUERY_PARAMETER_NOT_PRESENT, "id");
+        }
+        if (ids.size() > maxBulkIds) {
+            throw BroadleafWebServicesException.build(HttpStatus.BAD_REQUEST.value())
+                    .addMessage(BroadleafWebServicesException.TOO_MANY_IDS, maxBulkIds);
+        }
+    }
+
     protected SearchService getSearchService() {
         return searchService;
     }
@@ -0,0 +1,462 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework Web
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.core.web.api.endpoint.catalog;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.time.FastDateFormat;
+import org.broadleafcommerce.common.file.service.StaticAssetPathService;
+import org.broadleafcommerce.common.media.domain.Media;
+import org.broadleafcommerce.common.money.Money;
+import org.broadleafcommerce.core.catalog.domain.Product;
+import org.broadleafcommerce.core.catalog.domain.ProductAttribute;
+import org.broadleafcommerce.core.catalog.domain.ProductBundle;
+import org.broadleafcommerce.core.catalog.domain.Sku;
+import org.broadleafcommerce.core.catalog.domain.SkuAttribute;
+import org.broadleafcommerce.core.catalog.service.CatalogService;
+import org.broadleafcommerce.core.inventory.service.InventoryService;
+import org.broadleafcommerce.core.web.api.BroadleafWebServicesException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Resource;
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Streams products and skus as JSON for the bulk {@link CatalogEndpoint} methods. Only the requested fields are read
+ * and written, entities are loaded in batches of <b>api.catalog.bulk.batchSize</b> ids, and each batch is flushed to
+ * the response before the next one is read, so no wrapper object graph is ever built for the response.
+ * 
+ * <p>
+ * Field names match the properties of {@link org.broadleafcommerce.core.web.api.wrapper.ProductWrapper} and
+ * {@link org.broadleafcommerce.core.web.api.wrapper.SkuWrapper}, and values use the same representations (for
+ * example, dates are ISO 8601 and prices are objects with an amount and a currency).
+ */
+@Component("blCatalogProjectionWriter")
+public class CatalogProjectionWriter {
+
+    public static final List<String> PRODUCT_FIELDS = Collections.unmodifiableList(Arrays.asList("id", "name",
+            "description", "longDescription", "retailPrice", "salePrice", "active", "activeStartDate", "activeEndDate",
+            "manufacturer", "model", "promoMessage", "defaultCategoryId", "primaryMedia", "media", "productAttributes",
+            "skus"));
+
+    /**
+     * The product fields written when none are requested, which mirror ProductWrapper.wrapSummary()
+     */
+    public static final List<String> DEFAULT_PRODUCT_FIELDS = Collections.unmodifiableList(Arrays.asList("id", "name",
+            "description", "longDescription", "retailPrice", "salePrice", "active", "primaryMedia"));
+
+    public static final List<String> SKU_FIELDS = Collections.unmodifiableList(Arrays.asList("id", "productId", "name",
+            "description", "retailPrice", "salePrice", "active", "activeStartDate", "activeEndDate", "inventoryType",
+            "quantityAvailable", "media", "skuAttributes"));
+
+    /**
+     * The sku fields written when none are requested, and for the skus nested within a product
+     */
+    public static final List<String> DEFAULT_SKU_FIELDS = Collections.unmodifiableList(Arrays.asList("id", "name",
+            "description", "retailPrice", "salePrice", "active", "activeStartDate", "activeEndDate", "inventoryType"));
+
+    protected static final String ISO_8601_FORMAT = "yyyy-MM-dd'T'HH:mm:ss.SSSZ";
+
+    /**
+     * Unlike SimpleDateFormat, FastDateFormat is thread safe, so a single instance serves every request
+     */
+    protected static final FastDateFormat ISO_8601_DATE_FORMAT = FastDateFormat.getInstance(ISO_8601_FORMAT);
+
+    @Resource(name = "blCatalogService")
+    protected CatalogService catalogService;
+
+    @Resource(name = "blInventoryService")
+    protected InventoryService inventoryService;
+
+    @Resource(name = "blStaticAssetPathService")
+    protected StaticAssetPathService staticAssetPathService;
+
+    @Value("${api.catalog.bulk.batchSize:50}")
+    protected int batchSize = 50;
+
+    protected JsonFactory jsonFactory = new JsonFactory();
+
+    /**
+     * Parses a comma separated list of field names
+     * 
+     * @param fields the requested fields, or null to use the defaults
+     * @param supportedFields
+     * @param defaultFields
+     * @return the fields to write
+     * @throws BroadleafWebServicesException with a BAD_REQUEST status if a field is not supported
+     */
+    public Set<String> parseFields(String fields, List<String> supportedFields, List<String> defaultFields) {
+        if (StringUtils.isBlank(fields)) {
+            return new LinkedHashSet<String>(defaultFields);
+        }
+        Set<String> response = new LinkedHashSet<String>();
+        for (String field : StringUtils.split(fields, ',')) {
+            field = field.trim();
+            if (!supportedFields.contains(field)) {
+                throw BroadleafWebServicesException.build(HttpStatus.BAD_REQUEST.value())
+                        .addMessage(BroadleafWebServicesException.UNSUPPORTED_FIELD, field);
+            }
+            response.add(field);
+        }
+        return response;
+    }
+
+    /**
+     * Writes a JSON array of the given products, in the order of the ids. Ids that do not match a product are skipped.
+     */
+    public void writeProducts(List<Long> productIds, Set<String> fields, HttpServletRequest request, OutputStream out)
+            throws IOException {
+        JsonGenerator generator = createGenerator(out);
+        generator.writeStartArray();
+        for (List<Long> batch : partition(productIds)) {
+            List<Product> products = readProducts(batch);
+            initializeProductAssociations(products, fields);
+            for (Product product : products) {
+                writeProduct(generator, product, fields, request);
+            }
+            generator.flush();
+        }
+        generator.writeEndArray();
+        generator.close();
+    }
+
+    /**
+     * Writes a JSON object keyed by product id, whose values are arrays of all of the skus for that product
+     */
+    public void writeSkusForProducts(List<Long> productIds, Set<String> fields, HttpServletRequest request, OutputStream out)
+            throws IOException {
+        JsonGenerator generator = createGenerator(out);
+        generator.writeStartObject();
+        for (List<Long> batch : partition(productIds)) {
+            List<Product> products = readProducts(batch);
+            if (!products.isEmpty()) {
+                catalogService.initializeProductAssociation(products, "additionalSkus");
+            }
+            List<Sku> batchSkus = new ArrayList<Sku>();
+            for (Product product : products) {
+                batchSkus.addAll(product.getAllSkus());
+            }
+            initializeSkuAssociations(batchSkus, fields);
+            Map<Sku, Integer> quantities = readQuantities(batchSkus, fields);
+            for (Product product : products) {
+                generator.writeArrayFieldStart(String.valueOf(product.getId()));
+                for (Sku sku : product.getAllSkus()) {
+                    writeSku(generator, sku, fields, quantities, request);
+                }
+                generator.writeEndArray();
+            }
+            generator.flush();
+        }
+        generator.writeEndObject();
+        generator.close();
+    }
+
+    /**
+     * Writes a JSON array of the given skus, in the order of the ids. Ids that do not match a sku are skipped.
+     */
+    public void writeSkus(List<Long> skuIds, Set<String> fields, HttpServletRequest request, OutputStream out)
+            throws IOException {
+        JsonGenerator generator = createGenerator(out);
+        generator.writeStartArray();
+        for (List<Long> batch : partition(skuIds)) {
+            List<Sku> skus = catalogService.findSkusByIds(batch);
+            if (skus == null) {
+                continue;
+            }
+            Map<Long, Sku> skusById = new HashMap<Long, Sku>();
+            for (Sku sku : skus) {
+                skusById.put(sku.getId(), sku);
+            }
+            initializeSkuAssociations(skus, fields);
+            Map<Sku, Integer> quantities = readQuantities(skus, fields);
+            for (Long id : batch) {
+                Sku sku = skusById.get(id);
+                if (sku != null) {
+                    writeSku(generator, sku, fields, quantities, request);
+                }
+            }
+            generator.flush();
+        }
+        generator.writeEndArray();
+        generator.close();
+    }
+
+    protected void writeProduct(JsonGenerator generator, Product product, Set<String> fields, HttpServletRequest request)
+            throws IOException {
+        generator.writeStartObject();
+        for (String field : fields) {
+            if ("id".equals(field)) {
+                writeNumber(generator, field, product.getId());
+            } else if ("name".equals(field)) {
+                writeString(generator, field, product.getName());
+            } else if ("description".equals(field)) {
+                writeString(generator, field, product.getDescription());
+            } else if ("longDescription".equals(field)) {
+                writeString(generator, field, product.getLongDescription());
+            } else if ("retailPrice".equals(field)) {
+                if (product instanceof ProductBundle) {
+                    writeMoney(generator, field, ((ProductBundle) product).getBundleItemsRetailPrice());
+                } else if (product.getDefaultSku() != null) {
+                    writeMoney(generator, field, product.getDefaultSku().getRetailPrice());
+                }
+            } else if ("salePrice".equals(field)) {
+                if (product instanceof ProductBundle) {
+                    writeMoney(generator, field, ((ProductBundle) product).getBundleItemsSalePrice());
+                } else if (product.getDefaultSku() != null) {
+                    writeMoney(generator, field, product.getDefaultSku().getSalePrice());
+                }
+            } else if ("active".equals(field)) {
+                generator.writeBooleanField(field, product.isActive());
+            } else if ("activeStartDate".equals(field)) {
+                writeDate(generator, field, product.getActiveStartDate());
+            } else if ("activeEndDate".equals(field)) {
+                writeDate(generator, field, product.getActiveEndDate());
+            } else if ("manufacturer".equals(field)) {
+                writeString(generator, field, product.getManufacturer());
+            } else if ("model".equals(field)) {
+                writeString(generator, field, product.getModel());
+            } else if ("promoMessage".equals(field)) {
+                writeString(generator, field, product.getPromoMessage());
+            } else if ("defaultCategoryId".equals(field)) {
+                writeNumber(generator, field, product.getDefaultCategory() == null ? null : product.getDefaultCategory().getId());
+            } else if ("primaryMedia".equals(field)) {
+                Media media = product.getMedia() == null ? null : product.getMedia().get("primary");
+                if (media != null) {
+                    generator.writeFieldName(field);
+                    writeMedia(generator, media, request);
+                }
+            } else if ("media".equals(field)) {
+                generator.writeArrayFieldStart(field);
+                if (product.getMedia() != null) {
+                    for (Media media : product.getMedia().values()) {
+                        writeMedia(generator, media, request);
+                    }
+                }
+                generator.writeEndArray();
+            } else if ("productAttributes".equals(field)) {
+                generator.writeArrayFieldStart(field);
+                if (product.getProductAttributes() != null) {
+                    for (ProductAttribute attribute : product.getProductAttributes().values()) {
+                        generator.writeStartObject();
+                        writeNumber(generator, "id", attribute.getId());
+                        writeNumber(generator, "productId", product.getId());
+                        writeString(generator, "attributeName", attribute.getName());
+                        writeString(generator, "attributeValue", attribute.getValue());
+                        generator.writeEndObject();
+                    }
+                }
+                generator.writeEndArray();
+            } else if ("skus".equals(field)) {
+                Set<String> skuFields = new LinkedHashSet<String>(DEFAULT_SKU_FIELDS);
+                generator.writeArrayFieldStart(field);
+                for (Sku sku : product.getAllSkus()) {
+                    writeSku(generator, sku, skuFields, null, request);
+                }
+                generator.writeEndArray();
+            }
+        }
+        generator.writeEndObject();
+    }
+
+    protected void writeSku(JsonGenerator generator, Sku sku, Set<String> fields, Map<Sku, Integer> quantities,
+            HttpServletRequest request) throws IOException {
+        generator.writeStartObject();
+        for (String field : fields) {
+            if ("id".equals(field)) {
+                writeNumber(generator, field, sku.getId());
+            } else if ("productId".equals(field)) {
+                writeNumber(generator, field, sku.getProduct() == null ? null : sku.getProduct().getId());
+            } else if ("name".equals(field)) {
+                writeString(generator, field, sku.getName());
+            } else if ("description".equals(field)) {
+                writeString(generator, field, sku.getDescription());
+            } else if ("retailPrice".equals(field)) {
+                writeMoney(generator, field, sku.getRetailPrice());
+            } else if ("salePrice".equals(field)) {
+                writeMoney(generator, field, sku.getSalePrice());
+            } else if ("active".equals(field)) {
+                generator.writeBooleanField(field, sku.isActive());
+            } else if ("activeStartDate".equals(field)) {
+                writeDate(generator, field, sku.getActiveStartDate());
+            } else if ("activeEndDate".equals(field)) {
+                writeDate(generator, field, sku.getActiveEndDate());
+            } else if ("inventoryType".equals(field)) {
+                writeString(generator, field, sku.getInventoryType() == null ? null : sku.getInventoryType().getType());
+            } else if ("quantityAvailable".equals(field)) {
+                writeNumber(generator, field, quantities == null || quantities.get(sku) == null ? null : quantities.get(sku).longValue());
+            } else if ("media".equals(field)) {
+                generator.writeArrayFieldStart(field);
+                if (sku.getSkuMedia() != null) {
+                    for (Media media : sku.getSkuMedia().values()) {
+                        writeMedia(generator, media, request);
+                    }
+                }
+                generator.writeEndArray();
+            } else if ("skuAttributes".equals(field)) {
+                generator.writeArrayFieldStart(field);
+                if (sku.getSkuAttributes() != null) {
+                    for (SkuAttribute attribute : sku.getSkuAttributes().values()) {
+                        generator.writeStartObject();
+                        writeNumber(generator, "id", attribute.getId());
+                        writeNumber(generator, "skuId", sku.getId());
+                        writeString(generator, "attributeName", attribute.getName());
+                        writeString(generator, "attributeValue", attribute.getValue());
+                        generator.writeEndObject();
+                    }
+                }
+                generator.writeEndArray();
+            }
+        }
+        generator.writeEndObject();
+    }
+
+    protected void writeMedia(JsonGenerator generator, Media media, HttpServletRequest request) throws IOException {
+        generator.writeStartObject();
+        writeNumber(generator, "id", media.getId());
+        writeString(generator, "title", media.getTitle());
+        writeString(generator, "url", staticAssetPathService.convertAssetPath(media.getUrl(), request.getContextPath(), request.isSecure()));
+        writeString(generator, "altText", media.getAltText());
+        writeString(generator, "tags", media.getTags());
+        generator.writeEndObject();
+    }
+
+    protected void writeString(JsonGenerator generator, String field, String value) throws IOException {
+        if (value != null) {
+            generator.writeStringField(field, value);
+        }
+    }
+
+    protected void writeNumber(JsonGenerator generator, String field, Long value) throws IOException {
+        if (value != null) {
+            generator.writeNumberField(field, value);
+        }
+    }
+
+    protected void writeDate(JsonGenerator generator, String field, Date value) throws IOException {
+        if (value != null) {
+            generator.writeStringField(field, ISO_8601_DATE_FORMAT.format(value));
+        }
+    }
+
+    protected void writeMoney(JsonGenerator generator, String field, Money value) throws IOException {
+        if (value != null) {
+            generator.writeObjectFieldStart(field);
+            generator.writeNumberField("amount", value.getAmount());
+            generator.writeStringField("currency", value.getCurrency().getCurrencyCode());
+            generator.writeEndObject();
+        }
+    }
+
+    /**
+     * Initializes the lazy product collections that the requested fields walk, one query per collection for the whole
+     * batch rather than one per product. The default sku and its media are already fetched with the products.
+     */
+    protected void initializeProductAssociations(List<Product> products, Set<String> fields) {
+        if (products.isEmpty()) {
+            return;
+        }
+        if (fields.contains("productAttributes")) {
+            catalogService.initializeProductAssociation(products, "productAttributes");
+        }
+        if (fields.contains("skus")) {
+            catalogService.initializeProductAssociation(products, "additionalSkus");
+        }
+    }
+
+    /**
+     * Initializes the lazy sku collections that the requested fields walk, one query per collection for the whole
+     * batch rather than one per sku
+     */
+    protected void initializeSkuAssociations(List<Sku> skus, Set<String> fields) {
+        if (skus.isEmpty()) {
+            return;
+        }
+        if (fields.contains("media")) {
+            catalogService.initializeSkuAssociation(skus, "skuMedia");
+        }
+        if (fields.contains("skuAttributes")) {
+            catalogService.initializeSkuAssociation(skus, "skuAttributes");
+        }
+    }
+
+    /**
+     * Reads the quantities available for the given skus in a single call, but only if they were requested
+     */
+    protected Map<Sku, Integer> readQuantities(List<Sku> skus, Set<String> fields) {
+        if (!fields.contains("quantityAvailable") || skus.isEmpty()) {
+            return null;
+        }
+        return inventoryService.retrieveQuantitiesAvailable(skus);
+    }
+
+    /**
+     * Reads the given products in a single query, returning them in the order of the ids
+     */
+    protected List<Product> readProducts(List<Long> ids) {
+        List<Product> products = catalogService.findProductsByIds(ids);
+        List<Product> response = new ArrayList<Product>(ids.size());
+        if (products != null) {
+            Map<Long, Product> productsById = new HashMap<Long, Product>();
+            for (Product product : products) {
+                productsById.put(product.getId(), product);
+            }
+            for (Long id : ids) {
+                Product product = productsById.get(id);
+                if (product != null) {
+                    response.add(product);
+                }
+            }
+        }
+        return response;
+    }
+
+    protected List<List<Long>> partition(List<Long> ids) {
+        List<List<Long>> response = new ArrayList<List<Long>>();
+        for (int i = 0; i < ids.size(); i += batchSize) {
+            response.add(ids.subList(i, Math.min(i + batchSize, ids.size())));
+        }
+        return response;
+    }
+
+    protected JsonGenerator createGenerator(OutputStream out) throws IOException {
+        JsonGenerator generator = jsonFactory.createGenerator(out, JsonEncoding.UTF8);
+        // The container owns the response stream
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        return generator;
+    }
+
+}
@@ -134,6 +134,7 @@ public class BroadleafCategoryController extends BroadleafAbstractController imp
             }
             
             facetService.setActiveFacetResults(result.getFacets(), request);
+            prefetchTranslations(result.getTranslatableEntities());
             
             model.addObject(CATEGORY_ATTRIBUTE_NAME, category);
             model.addObject(PRODUCTS_ATTRIBUTE_NAME, result.getProducts());
@@ -134,6 +134,7 @@ public class BroadleafSearchController extends AbstractCatalogController {
                 SearchResult result = getSearchService().findSearchResultsByQuery(query, searchCriteria);
                 
                 facetService.setActiveFacetResults(result.getFacets(), request);
+                prefetchTranslations(result.getTranslatableEntities());
                 
                 model.addAttribute(PRODUCTS_ATTRIBUTE_NAME, result.getProducts());
                 model.addAttribute(SKUS_ATTRIBUTE_NAME, result.getSkus());
@@ -0,0 +1,51 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework Web
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.core.web.expression;
+
+import org.broadleafcommerce.common.web.expression.BroadleafVariableExpression;
+import org.broadleafcommerce.core.catalog.domain.Product;
+import org.broadleafcommerce.core.catalog.service.CatalogViewService;
+import org.broadleafcommerce.core.catalog.service.view.ProductView;
+
+import javax.annotation.Resource;
+
+/**
+ * This Thymeleaf variable expression class exposes the read-only product views of the {@link CatalogViewService}, for
+ * example <code>${#catalogView.getProduct(product.id).price}</code>
+ */
+public class CatalogViewVariableExpression implements BroadleafVariableExpression {
+
+    @Resource(name = "blCatalogViewService")
+    protected CatalogViewService catalogViewService;
+
+    @Override
+    public String getName() {
+        return "catalogView";
+    }
+
+    public ProductView getProduct(Long productId) {
+        return catalogViewService.getProductView(productId);
+    }
+
+    public ProductView getProduct(Product product) {
+        return catalogViewService.getProductView(product);
+    }
+
+}
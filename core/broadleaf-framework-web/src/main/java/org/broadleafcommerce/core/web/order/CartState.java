@@ -40,7 +40,9 @@ public class CartState {
         }
 
         WebRequest request = BroadleafRequestContext.getBroadleafRequestContext().getWebRequest();
-        return (Order) request.getAttribute(CartStateRequestProcessor.getCartRequestAttributeName(), WebRequest.SCOPE_REQUEST);
+        Object cart = request.getAttribute(CartStateRequestProcessor.getCartRequestAttributeName(), WebRequest.SCOPE_REQUEST);
+        // Hand out the loaded cart rather than a lazy proxy, which cannot be passed to the persistence layer
+        return (Order) LazyCart.unwrap(cart);
     }
     
     /**
@@ -0,0 +1,148 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework Web
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.core.web.order;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.broadleafcommerce.common.util.Wrappable;
+import org.broadleafcommerce.core.order.domain.Order;
+import org.broadleafcommerce.core.web.order.security.CartStateRequestProcessor;
+import org.broadleafcommerce.profile.core.domain.Customer;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.context.request.WebRequest;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Stands in for the cart of the current request until something actually uses it. When
+ * <b>cart.state.lazy.enabled</b> is on, the {@link CartStateRequestProcessor} puts a proxy backed by a LazyCart on the
+ * request and in the rule map, so that requests that never look at the cart do not load or validate it.
+ * 
+ * The proxy implements all of the interfaces of the order entity as well as {@link Wrappable}, and loads the cart on
+ * the first method call other than {@link Object#equals(Object)} with itself. Once loaded, the request attribute and
+ * the rule map hold the loaded order, and {@link CartState#getCart()} never returns the proxy, so that the cart can be
+ * passed to the persistence layer. Equality with the loaded order holds both ways, as the order entity unwraps the
+ * proxy.
+ * 
+ * If the cart cannot be loaded, the failure is logged once and the same exception is thrown again by every later call
+ * on the proxy, rather than the load being retried by each method the page calls.
+ */
+public class LazyCart implements InvocationHandler {
+
+    private static final Log LOG = LogFactory.getLog(LazyCart.class);
+
+    protected final CartStateRequestProcessor cartStateRequestProcessor;
+    protected final WebRequest request;
+    protected final Customer customer;
+    protected Order cart;
+    protected RuntimeException loadFailure;
+
+    public LazyCart(CartStateRequestProcessor cartStateRequestProcessor, WebRequest request, Customer customer) {
+        this.cartStateRequestProcessor = cartStateRequestProcessor;
+        this.request = request;
+        this.customer = customer;
+    }
+
+    /**
+     * @return the cart, loading it on the first call
+     * @throws RuntimeException the exception that the first attempt to load the cart failed with
+     */
+    public synchronized Order getCart() {
+        if (loadFailure != null) {
+            throw loadFailure;
+        }
+        if (cart == null) {
+            try {
+                cart = cartStateRequestProcessor.loadCart(request, customer);
+            } catch (RuntimeException e) {
+                LOG.error("Unable to load the cart for customer " + customer.getId(), e);
+                loadFailure = e;
+                throw e;
+            }
+        }
+        return cart;
+    }
+
+    public synchronized boolean isLoaded() {
+        return cart != null;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if ("equals".equals(method.getName()) && args != null && args.length == 1) {
+            if (args[0] == proxy) {
+                return true;
+            }
+            return getCart().equals(unwrap(args[0]));
+        }
+        if (method.getDeclaringClass() == Wrappable.class) {
+            if ("isUnwrappableAs".equals(method.getName())) {
+                return ((Class<?>) args[0]).isInstance(getCart());
+            }
+            return ((Class<?>) args[0]).cast(getCart());
+        }
+        try {
+            return method.invoke(getCart(), args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    /**
+     * @param orderClass the order entity class, whose interfaces the proxy implements
+     * @return a proxy for the cart that loads it when first used
+     */
+    public Order createProxy(Class<?> orderClass) {
+        List<Class<?>> interfaces = new ArrayList<Class<?>>(Arrays.asList(ClassUtils.getAllInterfacesForClass(orderClass)));
+        if (!interfaces.contains(Wrappable.class)) {
+            interfaces.add(Wrappable.class);
+        }
+        return (Order) Proxy.newProxyInstance(orderClass.getClassLoader(), interfaces.toArray(new Class<?>[interfaces.size()]), this);
+    }
+
+    /**
+     * @param cart a cart as stored on the request
+     * @return the LazyCart behind the given cart if it is a lazy proxy, otherwise null
+     */
+    public static LazyCart getLazyCart(Object cart) {
+        if (cart != null && Proxy.isProxyClass(cart.getClass())) {
+            InvocationHandler handler = Proxy.getInvocationHandler(cart);
+            if (handler instanceof LazyCart) {
+                return (LazyCart) handler;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the loaded order behind the given object if it is a lazy cart proxy, otherwise the object itself
+     */
+    public static Object unwrap(Object cart) {
+        LazyCart lazyCart = getLazyCart(cart);
+        return lazyCart == null ? cart : lazyCart.getCart();
+    }
+
+}
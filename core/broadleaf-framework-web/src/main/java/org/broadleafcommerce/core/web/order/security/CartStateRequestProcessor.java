@@ -19,11 +19,14 @@
  */
 package org.broadleafcommerce.core.web.order.security;
 
+import org.apache.commons.lang.ObjectUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.broadleafcommerce.common.crossapp.service.CrossAppAuthService;
+import org.broadleafcommerce.common.persistence.EntityConfiguration;
 import org.broadleafcommerce.common.util.BLCRequestUtils;
 import org.broadleafcommerce.common.web.AbstractBroadleafWebRequestProcessor;
+import org.broadleafcommerce.common.web.BroadleafRequestContext;
 import org.broadleafcommerce.common.web.BroadleafWebRequestProcessor;
 import org.broadleafcommerce.core.order.domain.Order;
 import org.broadleafcommerce.core.order.service.MergeCartService;
@@ -32,18 +35,24 @@ import org.broadleafcommerce.core.order.service.call.MergeCartResponse;
 import org.broadleafcommerce.core.order.service.exception.RemoveFromCartException;
 import org.broadleafcommerce.core.order.service.type.OrderStatus;
 import org.broadleafcommerce.core.pricing.service.exception.PricingException;
+import org.broadleafcommerce.core.web.order.LazyCart;
 import org.broadleafcommerce.core.web.service.UpdateCartService;
 import org.broadleafcommerce.profile.core.domain.Customer;
 import org.broadleafcommerce.profile.web.core.CustomerState;
 import org.broadleafcommerce.profile.web.core.security.CustomerStateRequestProcessor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.context.request.WebRequest;
 
+import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.Resource;
 
@@ -58,6 +67,10 @@ import javax.annotation.Resource;
  * new ServletWebRequest(httpServletRequest); new PortletWebRequest(portletRequest); <br />
  * For the interceptor pattern, you can simply implement a WebRequestInterceptor to invoke from there.
  * 
+ * When <b>cart.state.lazy.enabled</b> is on, and unless a cart merge or an override cart is involved, the cart is not
+ * loaded here. Instead, the request and the rule map get a {@link LazyCart} proxy that loads and validates the cart
+ * when it is first used.
+ * 
  * @author Phillip Verheyden
  * @see {@link CartStateFilter}
  * @see {@link BroadleafWebRequestProcessor}
@@ -65,6 +78,7 @@ import javax.annotation.Resource;
  * @see {@link org.springframework.web.portlet.context.PortletWebRequest}
  */
 @Component("blCartStateRequestProcessor")
+@ManagedResource(objectName="org.broadleafcommerce:name=CartStateRequestProcessor", description="Cart State Request Processor", currencyTimeLimit=15)
 public class CartStateRequestProcessor extends AbstractBroadleafWebRequestProcessor {
 
     /** Logger for this class and subclasses */
@@ -95,6 +109,30 @@ public class CartStateRequestProcessor extends AbstractBroadleafWebRequestProces
     protected static String anonymousCartSessionAttributeName = "anonymousCart";
 
     public static final String OVERRIDE_CART_ATTR_NAME = "_blc_overrideCartId";
+
+    protected static final String CART_VALIDATION_SESSION_ATTR_NAME = "_blc_cartValidation";
+
+    @Resource(name = "blEntityConfiguration")
+    protected EntityConfiguration entityConfiguration;
+
+    /**
+     * Whether the cart is only loaded once the request uses it. Off by default, since the request then holds a proxy
+     * rather than the order entity until the cart is first used; see {@link LazyCart}.
+     */
+    @Value("${cart.state.lazy.enabled:false}")
+    protected boolean lazyCartEnabled = false;
+
+    /**
+     * The number of seconds for which a validated cart is not validated again, as long as the currency does not change.
+     * 0 validates the cart on every request.
+     */
+    @Value("${cart.state.validation.interval:0}")
+    protected int validationInterval = 0;
+
+    protected final AtomicLong requests = new AtomicLong();
+    protected final AtomicLong lazyCarts = new AtomicLong();
+    protected final AtomicLong loadedLazyCarts = new AtomicLong();
+    protected final AtomicLong skippedValidations = new AtomicLong();
         
     @Override
     public void process(WebRequest request) {
@@ -105,6 +143,7 @@ public class CartStateRequestProcessor extends AbstractBroadleafWebRequestProces
                     + " blCustomerStateFilter occurs prior to the blCartStateFilter");
             return;
         }
+        requests.incrementAndGet();
 
         Order cart = getOverrideCart(request);
 
@@ -113,14 +152,16 @@ public class CartStateRequestProcessor extends AbstractBroadleafWebRequestProces
                 LOG.debug("Merge cart required, calling mergeCart " + customer.getId());
             }
             cart = mergeCart(customer, request);
+        } else if (cart == null && lazyCartEnabled) {
+            lazyCarts.incrementAndGet();
+            LazyCart lazyCart = new LazyCart(this, request, customer);
+            cart = lazyCart.createProxy(entityConfiguration.lookupEntityClass(Order.class.getName()));
         } else if (cart == null) {
             cart = orderService.findCartForCustomer(customer);
         }
 
-        if (cart == null) {
-            cart = orderService.getNullOrder();
-        } else {
-            updateCartService.updateAndValidateCart(cart);
+        if (LazyCart.getLazyCart(cart) == null) {
+            cart = prepareCart(cart, request);
         }
 
         request.setAttribute(cartRequestAttributeName, cart, WebRequest.SCOPE_REQUEST);
@@ -139,6 +180,98 @@ public class CartStateRequestProcessor extends AbstractBroadleafWebRequestProces
         request.setAttribute(BLC_RULE_MAP_PARAM, ruleMap, WebRequest.SCOPE_REQUEST);
 
     }
+
+    /**
+     * Loads and validates the cart of the given customer once a {@link LazyCart} is first used. From then on, the
+     * request attribute and the rule map hold the loaded cart instead of the proxy.
+     * 
+     * @return the cart, or the null order if the customer does not have one
+     */
+    public Order loadCart(WebRequest request, Customer customer) {
+        loadedLazyCarts.incrementAndGet();
+        Order cart = prepareCart(orderService.findCartForCustomer(customer), request);
+
+        if (LazyCart.getLazyCart(request.getAttribute(cartRequestAttributeName, WebRequest.SCOPE_REQUEST)) != null) {
+            request.setAttribute(cartRequestAttributeName, cart, WebRequest.SCOPE_REQUEST);
+        }
+        @SuppressWarnings("unchecked")
+        Map<String, Object> ruleMap = (Map<String, Object>) request.getAttribute(BLC_RULE_MAP_PARAM, WebRequest.SCOPE_REQUEST);
+        if (ruleMap != null) {
+            for (String key : new String[] { "order", "cart" }) {
+                if (LazyCart.getLazyCart(ruleMap.get(key)) != null) {
+                    ruleMap.put(key, cart);
+                }
+            }
+        }
+        return cart;
+    }
+
+    /**
+     * Validates the cart, unless it was already validated within the last <code>cart.state.validation.interval</code>
+     * seconds in the same currency
+     * 
+     * @return the cart, or the null order if there is no cart
+     */
+    protected Order prepareCart(Order cart, WebRequest request) {
+        if (cart == null) {
+            return orderService.getNullOrder();
+        }
+        if (isValidationNeeded(cart, request)) {
+            updateCartService.updateAndValidateCart(cart);
+            if (validationInterval > 0 && BLCRequestUtils.isOKtoUseSession(request)) {
+                request.setAttribute(CART_VALIDATION_SESSION_ATTR_NAME,
+                        new CartValidation(cart.getId(), getCurrencyCode(), System.currentTimeMillis()),
+                        WebRequest.SCOPE_GLOBAL_SESSION);
+            }
+        } else {
+            skippedValidations.incrementAndGet();
+        }
+        return cart;
+    }
+
+    protected boolean isValidationNeeded(Order cart, WebRequest request) {
+        if (validationInterval <= 0 || cart.getId() == null || !BLCRequestUtils.isOKtoUseSession(request)) {
+            return true;
+        }
+        CartValidation validation = (CartValidation) request.getAttribute(CART_VALIDATION_SESSION_ATTR_NAME, WebRequest.SCOPE_GLOBAL_SESSION);
+        return validation == null
+                || !cart.getId().equals(validation.getOrderId())
+                || !ObjectUtils.equals(getCurrencyCode(), validation.getCurrencyCode())
+                || System.currentTimeMillis() - validation.getValidated() > validationInterval * 1000L;
+    }
+
+    protected String getCurrencyCode() {
+        BroadleafRequestContext context = BroadleafRequestContext.getBroadleafRequestContext();
+        if (context == null || context.getBroadleafCurrency() == null) {
+            return null;
+        }
+        return context.getBroadleafCurrency().getCurrencyCode();
+    }
+
+    @ManagedAttribute(description="The number of requests that were given a cart", currencyTimeLimit=15)
+    public long getRequests() {
+        return requests.get();
+    }
+
+    @ManagedAttribute(description="The number of requests that were given a lazily loaded cart", currencyTimeLimit=15)
+    public long getLazyCarts() {
+        return lazyCarts.get();
+    }
+
+    @ManagedAttribute(description="The number of lazily loaded carts that were actually loaded", currencyTimeLimit=15)
+    public long getLoadedLazyCarts() {
+        return loadedLazyCarts.get();
+    }
+
+    @ManagedAttribute(description="The number of requests that never loaded their cart", currencyTimeLimit=15)
+    public long getSkippedCartLoads() {
+        return lazyCarts.get() - loadedLazyCarts.get();
+    }
+
+    @ManagedAttribute(description="The number of cart validations skipped because of the validation interval", currencyTimeLimit=15)
+    public long getSkippedValidations() {
+        return skippedValidations.get();
+    }
     
     public Order getOverrideCart(WebRequest request) {
         Long orderId = null;
@@ -208,4 +341,35 @@ public class CartStateRequestProcessor extends AbstractBroadleafWebRequestProces
     public static void setCartRequestAttributeName(String cartRequestAttributeName) {
         CartStateRequestProcessor.cartRequestAttributeName = cartRequestAttributeName;
     }
+
+    /**
+     * Remembers in session when which cart was last validated, and in which currency
+     */
+    protected static class CartValidation implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        protected final Long orderId;
+        protected final String currencyCode;
+        protected final long validated;
+
+        public CartValidation(Long orderId, String currencyCode, long validated) {
+            this.orderId = orderId;
+            this.currencyCode = currencyCode;
+            this.validated = validated;
+        }
+
+        public Long getOrderId() {
+            return orderId;
+        }
+
+        public String getCurrencyCode() {
+            return currencyCode;
+        }
+
+        public long getValidated() {
+            return validated;
+        }
+
+    }
 }
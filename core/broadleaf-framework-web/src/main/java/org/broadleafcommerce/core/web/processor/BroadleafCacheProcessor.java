@@ -21,13 +21,17 @@
 package org.broadleafcommerce.core.web.processor;
 
 import net.sf.ehcache.Cache;
-import net.sf.ehcache.CacheManager;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.broadleafcommerce.common.cache.CachedTemplateElement;
+import org.broadleafcommerce.common.cache.TemplateElementCacheService;
 import org.broadleafcommerce.common.config.service.SystemPropertiesService;
+import org.broadleafcommerce.common.page.dto.PageDTO;
 import org.broadleafcommerce.common.web.BroadleafRequestContext;
+import org.broadleafcommerce.core.catalog.domain.Category;
+import org.broadleafcommerce.core.catalog.domain.Product;
 import org.broadleafcommerce.core.web.service.SimpleCacheKeyResolver;
 import org.broadleafcommerce.core.web.service.TemplateCacheKeyResolverService;
 import org.springframework.web.context.request.WebRequest;
@@ -40,6 +44,9 @@ import org.thymeleaf.standard.expression.Expression;
 import org.thymeleaf.standard.expression.StandardExpressions;
 import org.thymeleaf.standard.processor.attr.StandardFragmentAttrProcessor;
 
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 import javax.annotation.Resource;
@@ -72,6 +79,9 @@ import javax.annotation.Resource;
  * element. The final key is determined by the {@link TemplateCacheKeyResolverService} but it is not required.
  * Implementations of {@link TemplateCacheKeyResolverService} can rely on variables like the customer, site, theme, etc. to
  * build the final cacheKey.
+ * @param cacheDependencies (optional) Thymeleaf expression resolving to the dependency tags (for example
+ * {@code product:100}) of the entities rendered by the element. Saving any of those entities evicts the element, see
+ * {@link TemplateElementCacheService}. The current product, category, page and sandbox are added automatically.
  *  
  * @author bpolster
  * @see {@link TemplateCacheKeyResolverService}
@@ -91,6 +101,9 @@ public class BroadleafCacheProcessor extends AbstractAttrProcessor {
     @Resource(name = "blTemplateCacheKeyResolver")
     protected TemplateCacheKeyResolverService cacheKeyResolver;
 
+    @Resource(name = "blTemplateElementCacheService")
+    protected TemplateElementCacheService templateElementCacheService;
+
     public BroadleafCacheProcessor() {
         super(ATTR_NAME);
     }
@@ -193,18 +206,30 @@ public class BroadleafCacheProcessor extends AbstractAttrProcessor {
     
             if (!StringUtils.isEmpty(cacheKey)) {
                 element.setNodeProperty("cacheKey", cacheKey);
+                String templateName = resolveTemplateName(element);
     
-                net.sf.ehcache.Element cacheElement = getCache().get(cacheKey);
+                net.sf.ehcache.Element cacheElement = templateElementCacheService.getCacheElement(cacheKey);
                 if (cacheElement != null && !checkExpired(element, cacheElement)) {
                     if (LOG.isTraceEnabled()) {
                         LOG.trace("Template Cache Hit with cacheKey " + cacheKey + " found in cache.");
                     }
-                    element.setNodeProperty("blCacheResponse", cacheElement.getObjectValue());
+                    Object value = cacheElement.getObjectValue();
+                    if (value instanceof CachedTemplateElement) {
+                        templateElementCacheService.recordHit(templateName, (CachedTemplateElement) value);
+                        value = ((CachedTemplateElement) value).getContent();
+                    } else {
+                        templateElementCacheService.recordHit(templateName, null);
+                    }
+                    element.setNodeProperty("blCacheResponse", value);
                     return true;
                 } else {
                     if (LOG.isTraceEnabled()) {
                         LOG.trace("Template Cache Miss with cacheKey " + cacheKey + " not found in cache.");
                     }
+                    templateElementCacheService.recordMiss(templateName);
+                    element.setNodeProperty("blCacheTemplateName", templateName);
+                    element.setNodeProperty("blCacheDependencyTags", resolveDependencyTags(arguments, element));
+                    element.setNodeProperty("blCacheRenderStartTime", System.currentTimeMillis());
                 }
             } else {
                 if (LOG.isTraceEnabled()) {
@@ -219,6 +244,79 @@ public class BroadleafCacheProcessor extends AbstractAttrProcessor {
         return false;
     }
 
+    protected String resolveTemplateName(Element element) {
+        String templateName = (String) element.getNodeProperty("templateName");
+        if (StringUtils.isEmpty(templateName)) {
+            templateName = element.getDocumentName();
+        }
+        return templateName;
+    }
+
+    /**
+     * Determines the entities that the cached element is rendered from so that the element can be evicted when one
+     * of them changes. By default this includes:
+     * 
+     * <ul>
+     *  <li>the tags given by the optional "cacheDependencies" attribute, which may evaluate to a single tag, a comma
+     *  separated list of tags or a collection of tags (see {@link TemplateElementCacheService#buildDependencyTag})</li>
+     *  <li>the "product", "category" and "BLC_PAGE" model variables, if present</li>
+     *  <li>the current sandbox, if present</li>
+     * </ul>
+     * 
+     * @param arguments
+     * @param element
+     * @return the dependency tags for the element
+     */
+    @SuppressWarnings("unchecked")
+    protected Set<String> resolveDependencyTags(Arguments arguments, Element element) {
+        Set<String> tags = new HashSet<String>();
+
+        String dependencies = element.getAttributeValue("cacheDependencies");
+        if (!StringUtils.isEmpty(dependencies)) {
+            element.removeAttribute("cacheDependencies");
+            Expression expression = (Expression) StandardExpressions.getExpressionParser(arguments.getConfiguration())
+                    .parseExpression(arguments.getConfiguration(), arguments, dependencies);
+            Object o = expression.execute(arguments.getConfiguration(), arguments);
+            if (o instanceof Collection) {
+                for (Object tag : (Collection<Object>) o) {
+                    if (tag != null) {
+                        tags.add(tag.toString());
+                    }
+                }
+            } else if (o != null) {
+                for (String tag : StringUtils.split(o.toString(), ',')) {
+                    tags.add(tag.trim());
+                }
+            }
+        }
+
+        Map<String, Object> root = (Map<String, Object>) arguments.getExpressionEvaluationRoot();
+        Object product = root.get("product");
+        if (product instanceof Product) {
+            tags.add(templateElementCacheService.buildDependencyTag(TemplateElementCacheService.PRODUCT,
+                    ((Product) product).getId()));
+        }
+        Object category = root.get("category");
+        if (category instanceof Category) {
+            tags.add(templateElementCacheService.buildDependencyTag(TemplateElementCacheService.CATEGORY,
+                    ((Category) category).getId()));
+        }
+
+        Object page = root.get("BLC_PAGE");
+        if (page instanceof PageDTO && ((PageDTO) page).getId() != null) {
+            tags.add(templateElementCacheService.buildDependencyTag(TemplateElementCacheService.PAGE,
+                    ((PageDTO) page).getId()));
+        }
+
+        BroadleafRequestContext brc = BroadleafRequestContext.getBroadleafRequestContext();
+        if (brc != null && brc.getSandBox() != null) {
+            tags.add(templateElementCacheService.buildDependencyTag(TemplateElementCacheService.SANDBOX,
+                    brc.getSandBox().getId()));
+        }
+
+        return tags;
+    }
+
     /**
      * Returns true if the item has been 
      * @param element
@@ -253,7 +351,7 @@ public class BroadleafCacheProcessor extends AbstractAttrProcessor {
 
     public Cache getCache() {
         if (cache == null) {
-            cache = CacheManager.getInstance().getCache("blTemplateElements");
+            cache = templateElementCacheService.getCache();
         }
         return cache;
     }
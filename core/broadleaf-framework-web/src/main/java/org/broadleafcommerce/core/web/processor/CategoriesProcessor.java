@@ -26,6 +26,8 @@ import org.broadleafcommerce.common.web.dialect.AbstractModelVariableModifierPro
 import org.broadleafcommerce.core.catalog.domain.Category;
 import org.broadleafcommerce.core.catalog.domain.CategoryXref;
 import org.broadleafcommerce.core.catalog.service.CatalogService;
+import org.broadleafcommerce.core.catalog.service.CategoryTreeNode;
+import org.broadleafcommerce.core.catalog.service.CategoryTreeService;
 import org.thymeleaf.Arguments;
 import org.thymeleaf.dom.Element;
 
@@ -40,6 +42,10 @@ import javax.annotation.Resource;
  * searching for the <b>parentCategory</b> by name> and adding up to <b>maxResults</b> subcategories under
  * the model attribute specified by <b>resultVar</b>
  * 
+ * <p>
+ * When <b>category.tree.snapshot.enabled</b> is true, the parent category and the order of its subcategories are read
+ * from the in-memory category tree, and only the subcategories themselves are loaded, from the second-level cache.
+ * 
  * @param parentCategory (required) the name of the parent category to get subcategories from
  * @param resultVar (required) the model variable that the resulting list of categories should be set to
  * @param maxResults (optional) the maximum number of categories to return
@@ -54,6 +60,9 @@ public class CategoriesProcessor extends AbstractModelVariableModifierProcessor
     @Resource(name = "blCategoriesProcessorExtensionManager")
     protected CategoriesProcessorExtensionManager extensionManager;
 
+    @Resource(name = "blCategoryTreeService")
+    protected CategoryTreeService categoryTreeService;
+
     /**
      * Sets the name of this processor to be used in Thymeleaf template
      */
@@ -81,6 +90,29 @@ public class CategoriesProcessor extends AbstractModelVariableModifierProcessor
             }
         }
 
+        if (categoryTreeService != null && categoryTreeService.isEnabled()) {
+            List<CategoryTreeNode> nodes = categoryTreeService.getSnapshot().getNodesByName(parentCategory);
+            if (!nodes.isEmpty()) {
+                List<CategoryTreeNode> children = nodes.get(0).getChildren();
+                if (StringUtils.isNotEmpty(unparsedMaxResults)) {
+                    int maxResults = Integer.parseInt(unparsedMaxResults);
+                    if (children.size() > maxResults) {
+                        children = children.subList(0, maxResults);
+                    }
+                }
+                List<Category> results = new ArrayList<Category>(children.size());
+                for (CategoryTreeNode child : children) {
+                    Category category = catalogService.findCategoryById(child.getId());
+                    // the category may have been removed since the snapshot was built
+                    if (category != null) {
+                        results.add(category);
+                    }
+                }
+                addToModel(arguments, resultVar, results);
+            }
+            return;
+        }
+
         // TODO: Potentially write an algorithm that will pick the minimum depth category
         // instead of the first category in the list
         List<Category> categories = catalogService.findCategoriesByName(parentCategory);
@@ -22,6 +22,8 @@ package org.broadleafcommerce.core.web.processor;
 import org.broadleafcommerce.common.currency.util.BroadleafCurrencyUtils;
 import org.broadleafcommerce.common.money.Money;
 import org.broadleafcommerce.common.web.BroadleafRequestContext;
+import org.broadleafcommerce.core.catalog.service.view.ProductView;
+import org.broadleafcommerce.core.catalog.service.view.SkuView;
 import org.thymeleaf.Arguments;
 import org.thymeleaf.dom.Element;
 import org.thymeleaf.processor.attr.AbstractTextChildModifierAttrProcessor;
@@ -34,6 +36,9 @@ import org.thymeleaf.standard.expression.StandardExpressions;
  * When viewing in France for example, you might see "6,99 (US)$". Alternatively, if currency conversion
  * was enabled, you may see "5,59 (euro-symbol)"
  * 
+ * Besides Money and numbers, the expression may also evaluate to a {@link ProductView} or {@link SkuView}, in which case
+ * its current price is rendered.
+ * 
  * @author apazzolini
  */
 public class PriceTextDisplayProcessor extends AbstractTextChildModifierAttrProcessor {
@@ -60,6 +65,10 @@ public class PriceTextDisplayProcessor extends AbstractTextChildModifierAttrProc
         Object result = expression.execute(arguments.getConfiguration(), arguments);
         if (result instanceof Money) {
             price = (Money) result;
+        } else if (result instanceof ProductView) {
+            price = ((ProductView) result).getPrice();
+        } else if (result instanceof SkuView) {
+            price = ((SkuView) result).getPrice();
         } else if (result instanceof Number) {
             price = new Money(((Number)result).doubleValue());
         }
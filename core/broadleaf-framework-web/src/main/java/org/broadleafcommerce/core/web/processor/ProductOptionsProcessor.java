@@ -19,18 +19,20 @@
  */
 package org.broadleafcommerce.core.web.processor;
 
-import org.apache.commons.collections4.map.LRUMap;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.broadleafcommerce.common.currency.util.BroadleafCurrencyUtils;
-import org.broadleafcommerce.common.money.Money;
 import org.broadleafcommerce.common.web.BroadleafRequestContext;
 import org.broadleafcommerce.common.web.dialect.AbstractModelVariableModifierProcessor;
 import org.broadleafcommerce.core.catalog.domain.Product;
 import org.broadleafcommerce.core.catalog.domain.ProductOption;
 import org.broadleafcommerce.core.catalog.domain.ProductOptionValue;
-import org.broadleafcommerce.core.catalog.domain.Sku;
 import org.broadleafcommerce.core.catalog.service.CatalogService;
+import org.broadleafcommerce.core.catalog.service.CatalogViewService;
+import org.broadleafcommerce.core.catalog.service.ProductOptionMatrix;
+import org.broadleafcommerce.core.catalog.service.ProductOptionMatrixService;
+import org.broadleafcommerce.core.catalog.service.view.ProductOptionValueView;
+import org.broadleafcommerce.core.catalog.service.view.ProductOptionView;
+import org.broadleafcommerce.core.catalog.service.view.ProductView;
 import org.thymeleaf.Arguments;
 import org.thymeleaf.dom.Element;
 import org.thymeleaf.standard.expression.Expression;
@@ -41,8 +43,6 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -62,8 +62,13 @@ public class ProductOptionsProcessor extends AbstractModelVariableModifierProces
     @Resource(name = "blCatalogService")
     protected CatalogService catalogService;
 
+    @Resource(name = "blCatalogViewService")
+    protected CatalogViewService catalogViewService;
+
+    @Resource(name = "blProductOptionMatrixService")
+    protected ProductOptionMatrixService productOptionMatrixService;
+
     private static final Log LOG = LogFactory.getLog(ProductOptionsProcessor.class);
-    protected static final Map<Object, String> JSON_CACHE = Collections.synchronizedMap(new LRUMap<Object, String>(500));
 
     public ProductOptionsProcessor() {
         super("product_options");
@@ -79,89 +84,100 @@ public class ProductOptionsProcessor extends AbstractModelVariableModifierProces
         Expression expression = (Expression) StandardExpressions.getExpressionParser(arguments.getConfiguration())
                 .parseExpression(arguments.getConfiguration(), arguments, element.getAttributeValue("productId"));
         Long productId = (Long) expression.execute(arguments.getConfiguration(), arguments);
+        if (catalogViewService.isEnabled()) {
+            ProductView productView = catalogViewService.getProductView(productId);
+            if (productView != null) {
+                ProductOptionMatrix matrix = productOptionMatrixService.getMatrix(productId);
+                addAllProductOptionsToModel(arguments, productView, matrix);
+                addProductOptionPricingToModel(arguments, matrix);
+            }
+            return;
+        }
         Product product = catalogService.findProductById(productId);
         if (product != null) {
-            addAllProductOptionsToModel(arguments, product);
-            addProductOptionPricingToModel(arguments, product);
+            ProductOptionMatrix matrix = productOptionMatrixService.getMatrix(product);
+            addAllProductOptionsToModel(arguments, product, matrix);
+            addProductOptionPricingToModel(arguments, matrix);
         }
     }
     
-    private void addProductOptionPricingToModel(Arguments arguments, Product product) {
-        List<Sku> skus = product.getSkus();
-        List<ProductOptionPricingDTO> skuPricing = new ArrayList<ProductOptionPricingDTO>();
-        for (Sku sku : skus) {
-            
-            List<Long> productOptionValueIds = new ArrayList<Long>();
-            
-            List<ProductOptionValue> productOptionValues = sku.getProductOptionValues();
-            for (ProductOptionValue productOptionValue : productOptionValues) {
-                productOptionValueIds.add(productOptionValue.getId());
+    private void addProductOptionPricingToModel(Arguments arguments, ProductOptionMatrix matrix) {
+        try {
+            addToModel(arguments, "skuPricing", productOptionMatrixService.getSkuPricingJson(matrix));
+        } catch (Exception ex) {
+            LOG.error("There was a problem writing the product option pricing to JSON", ex);
+        }
+    }
+
+    private void addAllProductOptionsToModel(Arguments arguments, ProductView productView, ProductOptionMatrix matrix) {
+        String key = getProductOptionsKey();
+        String json = matrix.getSerialized(key);
+        if (json == null) {
+            List<ProductOptionDTO> dtos = new ArrayList<ProductOptionDTO>();
+            for (ProductOptionView option : productView.getProductOptions()) {
+                ProductOptionDTO dto = new ProductOptionDTO();
+                dto.setId(option.getId());
+                dto.setType(option.getType());
+                Map<Long, String> values = new HashMap<Long, String>();
+                for (ProductOptionValueView value : option.getAllowedValues()) {
+                    values.put(value.getId(), value.getAttributeValue());
+                }
+                dto.setValues(values);
+                dtos.add(dto);
             }
-            
-            Long[] values = new Long[productOptionValueIds.size()];
-            productOptionValueIds.toArray(values);
-            
-            ProductOptionPricingDTO dto = new ProductOptionPricingDTO();
-            Money currentPrice;
-            if (sku.isOnSale()) {
-                currentPrice = sku.getSalePrice();
-            } else {
-                currentPrice = sku.getRetailPrice();
+            json = writeJSON(dtos);
+            if (json != null) {
+                matrix.putSerialized(key, json);
             }
-            dto.setPrice(formatPrice(currentPrice));
-            dto.setSelectedOptions(values);
-            skuPricing.add(dto);
         }
-        writeJSONToModel(arguments, "skuPricing", skuPricing);
+        addToModel(arguments, "allProductOptions", json);
     }
     
-    private void addAllProductOptionsToModel(Arguments arguments, Product product) {
-        List<ProductOption> productOptions = product.getProductOptions();
-        List<ProductOptionDTO> dtos = new ArrayList<ProductOptionDTO>();
-        for (ProductOption option : productOptions) {
-            ProductOptionDTO dto = new ProductOptionDTO();
-            dto.setId(option.getId());
-            dto.setType(option.getType().getType());
-            Map<Long, String> values = new HashMap<Long, String>();
-            for (ProductOptionValue value : option.getAllowedValues()) {
-                values.put(value.getId(), value.getAttributeValue());
+    private void addAllProductOptionsToModel(Arguments arguments, Product product, ProductOptionMatrix matrix) {
+        String key = getProductOptionsKey();
+        String json = matrix.getSerialized(key);
+        if (json == null) {
+            List<ProductOption> productOptions = product.getProductOptions();
+            List<ProductOptionDTO> dtos = new ArrayList<ProductOptionDTO>();
+            for (ProductOption option : productOptions) {
+                ProductOptionDTO dto = new ProductOptionDTO();
+                dto.setId(option.getId());
+                dto.setType(option.getType().getType());
+                Map<Long, String> values = new HashMap<Long, String>();
+                for (ProductOptionValue value : option.getAllowedValues()) {
+                    values.put(value.getId(), value.getAttributeValue());
+                }
+                dto.setValues(values);
+                dtos.add(dto);
+            }
+            json = writeJSON(dtos);
+            if (json != null) {
+                matrix.putSerialized(key, json);
             }
-            dto.setValues(values);
-            dtos.add(dto);
         }
-        writeJSONToModel(arguments, "allProductOptions", dtos);
+        addToModel(arguments, "allProductOptions", json);
+    }
+
+    /**
+     * The option values are translated, so their JSON is memoized on the matrix per locale
+     */
+    private String getProductOptionsKey() {
+        BroadleafRequestContext brc = BroadleafRequestContext.getBroadleafRequestContext();
+        return "allProductOptions|" + (brc == null || brc.getLocale() == null ? null : brc.getLocale().getLocaleCode());
     }
     
-    private void writeJSONToModel(Arguments arguments, String modelKey, Object o) {
+    private String writeJSON(Object o) {
         try {
-            String jsonValue = JSON_CACHE.get(o);
-            if (jsonValue == null) {
-                ObjectMapper mapper = new ObjectMapper();
-                Writer strWriter = new StringWriter();
-                mapper.writeValue(strWriter, o);
-                jsonValue = strWriter.toString();
-                JSON_CACHE.put(o, jsonValue);
-            }
-            addToModel(arguments, modelKey, jsonValue);
+            ObjectMapper mapper = new ObjectMapper();
+            Writer strWriter = new StringWriter();
+            mapper.writeValue(strWriter, o);
+            return strWriter.toString();
         } catch (Exception ex) {
             LOG.error("There was a problem writing the product option map to JSON", ex);
-        }
-    }
-
-    private String formatPrice(Money price){
-        if (price == null){
             return null;
         }
-        BroadleafRequestContext brc = BroadleafRequestContext.getBroadleafRequestContext();
-        if (brc.getJavaLocale() != null) {
-            return BroadleafCurrencyUtils.getNumberFormatFromCache(brc.getJavaLocale(), price.getCurrency()).format
-                                (price.getAmount());
-        } else {
-            // Setup your BLC_CURRENCY and BLC_LOCALE to display a diff default.
-            return "$ " + price.getAmount().toString();
-        }
     }
-    
+
     private class ProductOptionDTO {
         private Long id;
         private String type;
@@ -223,45 +239,5 @@ public class ProductOptionsProcessor extends AbstractModelVariableModifierProces
             return result;
         }
     }
-    
-    private class ProductOptionPricingDTO {
-        private Long[] skuOptions;
-        private String price;
-        @SuppressWarnings("unused")
-        public Long[] getSelectedOptions() {
-            return skuOptions;
-        }
-        public void setSelectedOptions(Long[] skuOptions) {
-            this.skuOptions = skuOptions;
-        }
-        @SuppressWarnings("unused")
-        public String getPrice() {
-            return price;
-        }
-        public void setPrice(String price) {
-            this.price = price;
-        }
-
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (o == null) return false;
-            if (!getClass().isAssignableFrom(o.getClass())) return false;
-
-            ProductOptionPricingDTO that = (ProductOptionPricingDTO) o;
-
-            if (price != null ? !price.equals(that.price) : that.price != null) return false;
-            if (!Arrays.equals(skuOptions, that.skuOptions)) return false;
-
-            return true;
-        }
-
-        @Override
-        public int hashCode() {
-            int result = skuOptions != null ? Arrays.hashCode(skuOptions) : 0;
-            result = 31 * result + (price != null ? price.hashCode() : 0);
-            return result;
-        }
-    }
 
 }
@@ -0,0 +1,125 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework Web
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.core.web.api.endpoint.catalog;
+
+import junit.framework.TestCase;
+
+import org.broadleafcommerce.common.money.Money;
+import org.broadleafcommerce.core.catalog.domain.Product;
+import org.broadleafcommerce.core.catalog.domain.Sku;
+import org.broadleafcommerce.core.catalog.service.CatalogService;
+import org.easymock.EasyMock;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TimeZone;
+
+public class CatalogProjectionWriterTest extends TestCase {
+
+    protected CatalogProjectionWriter writer;
+    protected CatalogService catalogService;
+
+    @Override
+    protected void setUp() throws Exception {
+        catalogService = EasyMock.createMock(CatalogService.class);
+        writer = new CatalogProjectionWriter();
+        writer.catalogService = catalogService;
+        writer.batchSize = 2;
+    }
+
+    public void testProductWithoutDefaultSkuOmitsPrices() throws Exception {
+        Product product = createProduct(1L, null);
+        EasyMock.expect(catalogService.findProductsByIds(Arrays.asList(1L))).andReturn(Arrays.asList(product));
+        EasyMock.replay(catalogService);
+
+        assertEquals("[{\"id\":1}]", writeProducts(Arrays.asList(1L), fields("id", "retailPrice", "salePrice")));
+    }
+
+    public void testProductPricesComeFromTheDefaultSku() throws Exception {
+        Sku sku = EasyMock.createNiceMock(Sku.class);
+        EasyMock.expect(sku.getRetailPrice()).andReturn(new Money("10.00", "USD")).anyTimes();
+        EasyMock.replay(sku);
+        Product product = createProduct(1L, sku);
+        EasyMock.expect(catalogService.findProductsByIds(Arrays.asList(1L))).andReturn(Arrays.asList(product));
+        EasyMock.replay(catalogService);
+
+        assertEquals("[{\"retailPrice\":{\"amount\":10.00,\"currency\":\"USD\"}}]",
+                writeProducts(Arrays.asList(1L), fields("retailPrice", "salePrice")));
+    }
+
+    public void testAssociationsAreInitializedOncePerBatch() throws Exception {
+        Product first = createProduct(1L, null);
+        Product second = createProduct(2L, null);
+        Product third = createProduct(3L, null);
+        EasyMock.expect(catalogService.findProductsByIds(Arrays.asList(1L, 2L))).andReturn(Arrays.asList(second, first));
+        catalogService.initializeProductAssociation(Arrays.asList(first, second), "productAttributes");
+        EasyMock.expect(catalogService.findProductsByIds(Arrays.asList(3L))).andReturn(Arrays.asList(third));
+        catalogService.initializeProductAssociation(Arrays.asList(third), "productAttributes");
+        EasyMock.replay(catalogService);
+
+        assertEquals("[{\"id\":1,\"productAttributes\":[]},{\"id\":2,\"productAttributes\":[]},"
+                + "{\"id\":3,\"productAttributes\":[]}]",
+                writeProducts(Arrays.asList(1L, 2L, 3L), fields("id", "productAttributes")));
+        EasyMock.verify(catalogService);
+    }
+
+    public void testDatesAreIso8601() throws Exception {
+        TimeZone defaultZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+        try {
+            Sku sku = EasyMock.createNiceMock(Sku.class);
+            EasyMock.expect(sku.getId()).andReturn(5L).anyTimes();
+            EasyMock.expect(sku.getActiveStartDate()).andReturn(new Date(0L)).anyTimes();
+            EasyMock.replay(sku);
+            EasyMock.expect(catalogService.findSkusByIds(Arrays.asList(5L))).andReturn(Arrays.asList(sku));
+            EasyMock.replay(catalogService);
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            writer.writeSkus(Arrays.asList(5L), fields("activeStartDate"), null, out);
+            assertEquals("[{\"activeStartDate\":\"1970-01-01T00:00:00.000+0000\"}]", out.toString("UTF-8"));
+        } finally {
+            TimeZone.setDefault(defaultZone);
+        }
+    }
+
+    protected Product createProduct(Long id, Sku defaultSku) {
+        Product product = EasyMock.createNiceMock(Product.class);
+        EasyMock.expect(product.getId()).andReturn(id).anyTimes();
+        EasyMock.expect(product.getDefaultSku()).andReturn(defaultSku).anyTimes();
+        EasyMock.replay(product);
+        return product;
+    }
+
+    protected String writeProducts(List<Long> ids, Set<String> fields) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.writeProducts(new ArrayList<Long>(ids), fields, null, out);
+        return out.toString("UTF-8");
+    }
+
+    protected Set<String> fields(String... fields) {
+        return new LinkedHashSet<String>(Arrays.asList(fields));
+    }
+
+}
@@ -0,0 +1,138 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework Web
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.core.web.order.security;
+
+import org.broadleafcommerce.core.order.domain.Order;
+import org.broadleafcommerce.core.order.domain.OrderImpl;
+import org.broadleafcommerce.core.order.service.OrderService;
+import org.broadleafcommerce.core.web.order.LazyCart;
+import org.broadleafcommerce.core.web.service.UpdateCartService;
+import org.broadleafcommerce.profile.core.domain.Customer;
+import org.broadleafcommerce.profile.core.domain.CustomerImpl;
+import org.easymock.EasyMock;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+public class CartStateRequestProcessorTest extends TestCase {
+
+    protected Customer customer;
+
+    @Override
+    protected void setUp() throws Exception {
+        customer = new CustomerImpl();
+        customer.setId(1L);
+    }
+
+    public void testLazyCartIsOffByDefault() {
+        assertFalse(new CartStateRequestProcessor().lazyCartEnabled);
+    }
+
+    public void testProxyEqualsLoadedCart() {
+        Order cart = createOrder(5L);
+        Order proxy = new LazyCart(createProcessor(cart), null, customer).createProxy(OrderImpl.class);
+
+        assertTrue(proxy.equals(proxy));
+        assertTrue(proxy.equals(cart));
+        assertTrue("The order entity should unwrap the proxy", cart.equals(proxy));
+        assertEquals(cart.hashCode(), proxy.hashCode());
+        assertFalse(proxy.equals(createOrder(6L)));
+        assertFalse(createOrder(6L).equals(proxy));
+    }
+
+    public void testLoadFailureIsRethrownWithoutReloading() {
+        final IllegalStateException failure = new IllegalStateException("database unavailable");
+        final int[] loads = new int[1];
+        CartStateRequestProcessor processor = new CartStateRequestProcessor() {
+
+            @Override
+            public Order loadCart(WebRequest request, Customer customer) {
+                loads[0]++;
+                throw failure;
+            }
+        };
+        Order proxy = new LazyCart(processor, null, customer).createProxy(OrderImpl.class);
+
+        try {
+            proxy.getId();
+            fail("The load failure should surface from the first call");
+        } catch (IllegalStateException e) {
+            assertSame(failure, e);
+        }
+        try {
+            proxy.getSubTotal();
+            fail("The load failure should surface from later calls as well");
+        } catch (IllegalStateException e) {
+            assertSame(failure, e);
+        }
+        assertEquals("The cart should only be loaded once", 1, loads[0]);
+    }
+
+    public void testLoadedCartIsTheCustomersCurrentCartAndReplacesTheProxy() {
+        Order cart = createOrder(7L);
+        OrderService orderService = EasyMock.createMock(OrderService.class);
+        // The cart is looked up by customer every time, never by a cart id remembered in session
+        EasyMock.expect(orderService.findCartForCustomer(customer)).andReturn(cart);
+        UpdateCartService updateCartService = EasyMock.createMock(UpdateCartService.class);
+        updateCartService.updateAndValidateCart(cart);
+        CartStateRequestProcessor processor = new CartStateRequestProcessor();
+        processor.orderService = orderService;
+        processor.updateCartService = updateCartService;
+
+        WebRequest request = EasyMock.createMock(WebRequest.class);
+        LazyCart lazyCart = new LazyCart(processor, request, customer);
+        Order proxy = lazyCart.createProxy(OrderImpl.class);
+        Map<String, Object> ruleMap = new HashMap<String, Object>();
+        ruleMap.put("order", proxy);
+        ruleMap.put("cart", proxy);
+        EasyMock.expect(request.getAttribute(CartStateRequestProcessor.getCartRequestAttributeName(), WebRequest.SCOPE_REQUEST))
+                .andReturn(proxy);
+        request.setAttribute(CartStateRequestProcessor.getCartRequestAttributeName(), cart, WebRequest.SCOPE_REQUEST);
+        EasyMock.expect(request.getAttribute(CartStateRequestProcessor.BLC_RULE_MAP_PARAM, WebRequest.SCOPE_REQUEST))
+                .andReturn(ruleMap);
+        EasyMock.replay(orderService, updateCartService, request);
+
+        assertFalse(lazyCart.isLoaded());
+        assertEquals(Long.valueOf(7L), proxy.getId());
+        assertSame(cart, ruleMap.get("order"));
+        assertSame(cart, ruleMap.get("cart"));
+        EasyMock.verify(orderService, updateCartService, request);
+    }
+
+    protected CartStateRequestProcessor createProcessor(final Order cart) {
+        return new CartStateRequestProcessor() {
+
+            @Override
+            public Order loadCart(WebRequest request, Customer customer) {
+                return cart;
+            }
+        };
+    }
+
+    protected Order createOrder(Long id) {
+        Order order = new OrderImpl();
+        order.setId(id);
+        return order;
+    }
+
+}
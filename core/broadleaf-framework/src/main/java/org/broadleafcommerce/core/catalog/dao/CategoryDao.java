@@ -200,6 +200,23 @@ public interface CategoryDao {
 
     public Category findCategoryByURI(String uri);
 
+    /**
+     * Retrieves the lightweight fields of every non-archived category needed to build the category tree snapshot.
+     * No category entities are hydrated.
+     *
+     * @return the category rows, ordered by id
+     */
+    @Nonnull
+    public List<CategoryTreeRow> readCategoryTreeRows();
+
+    /**
+     * Retrieves every parent / child category relationship, ordered by parent and then by display order
+     *
+     * @return the category relationship rows
+     */
+    @Nonnull
+    public List<CategoryTreeXrefRow> readCategoryTreeXrefRows();
+
     /**
      * Returns the number of milliseconds that the current date/time will be cached for queries before refreshing.
      * This aids in query caching, otherwise every query that utilized current date would be different and caching
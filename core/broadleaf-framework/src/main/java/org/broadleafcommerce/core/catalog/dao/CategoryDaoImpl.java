@@ -159,6 +159,18 @@ public class CategoryDaoImpl implements CategoryDao {
         return query.getResultList();
     }
 
+    @Override
+    public List<CategoryTreeRow> readCategoryTreeRows() {
+        TypedQuery<CategoryTreeRow> query = em.createNamedQuery("BC_READ_CATEGORY_TREE_ROWS", CategoryTreeRow.class);
+        return query.getResultList();
+    }
+
+    @Override
+    public List<CategoryTreeXrefRow> readCategoryTreeXrefRows() {
+        TypedQuery<CategoryTreeXrefRow> query = em.createNamedQuery("BC_READ_CATEGORY_TREE_XREF_ROWS", CategoryTreeXrefRow.class);
+        return query.getResultList();
+    }
+
     @Override
     public List<Category> readAllCategories(int limit, int offset) {
         TypedQuery<Category> query = em.createNamedQuery("BC_READ_ALL_CATEGORIES", Category.class);
@@ -0,0 +1,85 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.core.catalog.dao;
+
+import java.util.Date;
+
+/**
+ * Container object for the results from a lightweight query that retrieves the fields of a category needed to build
+ * the category tree snapshot, without hydrating the category entity
+ *
+ * @see CategoryDao#readCategoryTreeRows()
+ */
+public class CategoryTreeRow {
+
+    protected Long id;
+    protected String name;
+    protected String url;
+    protected String urlKey;
+    protected Long defaultParentId;
+    protected Date activeStartDate;
+    protected Date activeEndDate;
+    protected Character archived;
+
+    public CategoryTreeRow(Long id, String name, String url, String urlKey, Long defaultParentId, Date activeStartDate,
+            Date activeEndDate, Character archived) {
+        this.id = id;
+        this.name = name;
+        this.url = url;
+        this.urlKey = urlKey;
+        this.defaultParentId = defaultParentId;
+        this.activeStartDate = activeStartDate;
+        this.activeEndDate = activeEndDate;
+        this.archived = archived;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getUrlKey() {
+        return urlKey;
+    }
+
+    public Long getDefaultParentId() {
+        return defaultParentId;
+    }
+
+    public Date getActiveStartDate() {
+        return activeStartDate;
+    }
+
+    public Date getActiveEndDate() {
+        return activeEndDate;
+    }
+
+    public Character getArchived() {
+        return archived;
+    }
+
+}
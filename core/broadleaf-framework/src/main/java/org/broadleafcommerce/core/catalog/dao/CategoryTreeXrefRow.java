@@ -0,0 +1,54 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.core.catalog.dao;
+
+import java.math.BigDecimal;
+
+/**
+ * Container object for the results from a lightweight query that retrieves the parent / child category relationships
+ * needed to build the category tree snapshot
+ *
+ * @see CategoryDao#readCategoryTreeXrefRows()
+ */
+public class CategoryTreeXrefRow {
+
+    protected Long parentId;
+    protected Long childId;
+    protected BigDecimal displayOrder;
+
+    public CategoryTreeXrefRow(Long parentId, Long childId, BigDecimal displayOrder) {
+        this.parentId = parentId;
+        this.childId = childId;
+        this.displayOrder = displayOrder;
+    }
+
+    public Long getParentId() {
+        return parentId;
+    }
+
+    public Long getChildId() {
+        return childId;
+    }
+
+    public BigDecimal getDisplayOrder() {
+        return displayOrder;
+    }
+
+}
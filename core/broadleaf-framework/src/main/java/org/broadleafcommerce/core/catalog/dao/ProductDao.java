@@ -56,6 +56,17 @@ public interface ProductDao {
      */
     public List<Product> readProductsByIds(@Nonnull List<Long> productIds);
 
+    /**
+     * Initializes a lazy association of the given products with a single fetch join query, instead of the query per
+     * product that walking the association would issue. The products must be managed by the current persistence
+     * context.
+     * 
+     * @param products the products whose association should be initialized
+     * @param association the name of a collection or reference property of {@link org.broadleafcommerce.core.catalog.domain.ProductImpl}, such as
+     * "productAttributes" or "additionalSkus"
+     */
+    public void initializeAssociation(@Nonnull List<Product> products, @Nonnull String association);
+
     /**
      * Persist a {@code Product} instance to the datastore
      *
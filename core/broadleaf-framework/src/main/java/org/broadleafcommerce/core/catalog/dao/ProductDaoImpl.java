@@ -154,6 +154,22 @@ public class ProductDaoImpl implements ProductDao {
         return query.getResultList();
     }
 
+    @Override
+    public void initializeAssociation(List<Product> products, String association) {
+        if (products.isEmpty()) {
+            return;
+        }
+        List<Long> productIds = new ArrayList<Long>(products.size());
+        for (Product product : products) {
+            productIds.add(product.getId());
+        }
+        // Fetching into the current persistence context initializes the association on the managed products
+        em.createQuery("SELECT product FROM " + ProductImpl.class.getName() + " product LEFT JOIN FETCH product."
+                + association + " WHERE product.id IN :productIds", Product.class)
+                .setParameter("productIds", productIds)
+                .getResultList();
+    }
+
     @Override
     public List<Product> readProductsByName(String searchName) {
         TypedQuery<Product> query = em.createNamedQuery("BC_READ_PRODUCTS_BY_NAME", Product.class);
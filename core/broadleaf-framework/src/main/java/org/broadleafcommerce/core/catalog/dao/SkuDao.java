@@ -88,6 +88,16 @@ public interface SkuDao {
      */
     public List<Sku> readSkusByIds(List<Long> ids);
 
+    /**
+     * Initializes a lazy association of the given skus with a single fetch join query, instead of the query per sku
+     * that walking the association would issue. The skus must be managed by the current persistence context.
+     *
+     * @param skus the skus whose association should be initialized
+     * @param association the name of a collection or reference property of {@link org.broadleafcommerce.core.catalog.domain.SkuImpl}, such as "skuMedia" or
+     * "skuAttributes"
+     */
+    public void initializeAssociation(List<Sku> skus, String association);
+
     /**
      * Remove the {@code Sku} instance from the datastore
      *
@@ -162,6 +162,22 @@ public class SkuDaoImpl implements SkuDao {
         return query.getResultList();
     }
 
+    @Override
+    public void initializeAssociation(List<Sku> skus, String association) {
+        if (skus.isEmpty()) {
+            return;
+        }
+        List<Long> skuIds = new ArrayList<Long>(skus.size());
+        for (Sku sku : skus) {
+            skuIds.add(sku.getId());
+        }
+        // Fetching into the current persistence context initializes the association on the managed skus
+        em.createQuery("SELECT sku FROM " + SkuImpl.class.getName() + " sku LEFT JOIN FETCH sku." + association
+                + " WHERE sku.id IN :skuIds", Sku.class)
+                .setParameter("skuIds", skuIds)
+                .getResultList();
+    }
+
     @Override
     public void delete(Sku sku){
         if (!em.contains(sku)) {
@@ -0,0 +1,62 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.core.catalog.domain;
+
+import org.broadleafcommerce.common.util.ApplicationContextHolder;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+
+/**
+ * Publishes a Spring event after the transaction that changed a catalog entity commits. This allows in-memory
+ * structures derived from the catalog (like the category tree snapshot or the embedded product search index) to be
+ * updated regardless of whether the change was made through the CatalogService or through the admin.
+ * 
+ * @see {@link ApplicationEventPublisher#publishEvent(org.springframework.context.ApplicationEvent)}
+ * @see {@link CatalogPersistedEvent}
+ */
+public class CatalogPersistedEntityListener {
+
+    /**
+     * Invoked on PostPersist, PostUpdate and PostRemove. Registers a synchronization that publishes a
+     * {@link CatalogPersistedEvent} once the surrounding transaction has committed.
+     * 
+     * @param entity the changed catalog entity
+     */
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void catalogEntityUpdated(final Object entity) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    ApplicationContextHolder.getApplicationContext().publishEvent(new CatalogPersistedEvent(entity));
+                }
+            });
+        }
+    }
+
+}
@@ -0,0 +1,51 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.core.catalog.domain;
+
+import org.broadleafcommerce.common.event.BroadleafApplicationEvent;
+
+
+/**
+ * An event for whenever a catalog entity (for example a {@link Category} or {@link CategoryXref}) has been persisted,
+ * updated or removed
+ * 
+ * @see {@link CatalogPersistedEntityListener}
+ */
+public class CatalogPersistedEvent extends BroadleafApplicationEvent {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * @param entity the catalog entity that was changed
+     */
+    public CatalogPersistedEvent(Object entity) {
+        super(entity);
+    }
+
+    /**
+     * Gets the changed catalog entity set by the {@link CatalogPersistedEntityListener}
+     * 
+     * @return
+     */
+    public Object getEntity() {
+        return source;
+    }
+
+}
@@ -90,6 +90,7 @@ import javax.persistence.Column;
 import javax.persistence.ElementCollection;
 import javax.persistence.Embedded;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
@@ -133,6 +134,7 @@ import javax.persistence.Transient;
  * @see {@link Sku}
  */
 @Entity
+@EntityListeners(value = { CatalogPersistedEntityListener.class })
 @Inheritance(strategy = InheritanceType.JOINED)
 @Table(name = "BLC_SKU")
 //multi-column indexes don't appear to get exported correctly when declared at the field level, so declaring here as a workaround
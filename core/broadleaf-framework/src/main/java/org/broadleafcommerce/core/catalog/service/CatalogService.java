@@ -191,6 +191,34 @@ public interface CatalogService {
 
     public List<Sku> findSkusByIds(List<Long> ids);
 
+    /**
+     * Reads the products with the given ids in a single query. The order of the returned list is not guaranteed to
+     * match the order of the ids.
+     * 
+     * @param ids
+     * @return the products, or null if no ids were given
+     */
+    public List<Product> findProductsByIds(List<Long> ids);
+
+    /**
+     * Initializes a lazy association of the given products, such as "productAttributes" or "additionalSkus", with a
+     * single query
+     * 
+     * @param products
+     * @param association
+     * @see org.broadleafcommerce.core.catalog.dao.ProductDao#initializeAssociation(List, String)
+     */
+    public void initializeProductAssociation(List<Product> products, String association);
+
+    /**
+     * Initializes a lazy association of the given skus, such as "skuMedia" or "skuAttributes", with a single query
+     * 
+     * @param skus
+     * @param association
+     * @see org.broadleafcommerce.core.catalog.dao.SkuDao#initializeAssociation(List, String)
+     */
+    public void initializeSkuAssociation(List<Sku> skus, String association);
+
     public Sku findSkuById(Long skuId);
 
     public Sku findSkuByExternalId(String externalId);
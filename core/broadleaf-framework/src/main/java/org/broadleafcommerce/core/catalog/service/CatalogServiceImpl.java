@@ -19,6 +19,7 @@
  */
 package org.broadleafcommerce.core.catalog.service;
 
+import org.broadleafcommerce.common.cache.TemplateElementCacheService;
 import org.broadleafcommerce.common.extension.ExtensionResultHolder;
 import org.broadleafcommerce.common.extension.ExtensionResultStatusType;
 import org.broadleafcommerce.core.catalog.dao.CategoryDao;
@@ -63,6 +64,9 @@ public class CatalogServiceImpl implements CatalogService {
     @Resource(name = "blCatalogServiceExtensionManager")
     protected CatalogServiceExtensionManager extensionManager;
 
+    @Resource(name = "blTemplateElementCacheService")
+    protected TemplateElementCacheService templateElementCacheService;
+
     @Override
     public Product findProductById(Long productId) {
         return productDao.readProductById(productId);
@@ -137,7 +141,9 @@ public class CatalogServiceImpl implements CatalogService {
     @Override
     @Transactional("blTransactionManager")
     public Product saveProduct(Product product) {
-        return productDao.save(product);
+        Product response = productDao.save(product);
+        invalidateProductTemplateCache(response);
+        return response;
     }
 
     @Override
@@ -169,27 +175,67 @@ public class CatalogServiceImpl implements CatalogService {
     @Override
     @Transactional("blTransactionManager")
     public Category saveCategory(Category category) {
-        return categoryDao.save(category);
+        Category response = categoryDao.save(category);
+        invalidateCategoryTemplateCache(response);
+        return response;
     }
     
     @Override
     @Transactional("blTransactionManager")
     public void removeCategory(Category category){
+        invalidateCategoryTemplateCache(category);
         categoryDao.delete(category);
     }
     
     @Override
     @Transactional("blTransactionManager")
     public void removeSku(Sku sku) {
+        invalidateSkuTemplateCache(sku);
         skuDao.delete(sku);
     }
 
     @Override
     @Transactional("blTransactionManager")
     public void removeProduct(Product product) {
+        invalidateProductTemplateCache(product);
         productDao.delete(product);
     }
 
+    /**
+     * Evicts the cached template fragments that were rendered from the given product once the transaction commits
+     * 
+     * @param product
+     */
+    protected void invalidateProductTemplateCache(Product product) {
+        if (product != null) {
+            templateElementCacheService.invalidateDependencyAfterCommit(TemplateElementCacheService.PRODUCT, product.getId());
+        }
+    }
+
+    /**
+     * Evicts the cached template fragments that were rendered from the given category once the transaction commits
+     * 
+     * @param category
+     */
+    protected void invalidateCategoryTemplateCache(Category category) {
+        if (category != null) {
+            templateElementCacheService.invalidateDependencyAfterCommit(TemplateElementCacheService.CATEGORY, category.getId());
+        }
+    }
+
+    /**
+     * Evicts the cached template fragments that were rendered from the given sku or its product once the transaction
+     * commits
+     * 
+     * @param sku
+     */
+    protected void invalidateSkuTemplateCache(Sku sku) {
+        if (sku != null) {
+            templateElementCacheService.invalidateDependencyAfterCommit(TemplateElementCacheService.SKU, sku.getId());
+            invalidateProductTemplateCache(sku.getProduct());
+        }
+    }
+
     @Override
     public List<Category> findAllCategories() {
         return categoryDao.readAllCategories();
@@ -258,7 +304,9 @@ public class CatalogServiceImpl implements CatalogService {
     @Override
     @Transactional("blTransactionManager")
     public Sku saveSku(Sku sku) {
-        return skuDao.save(sku);
+        Sku response = skuDao.save(sku);
+        invalidateSkuTemplateCache(response);
+        return response;
     }
     
     @Override
@@ -272,6 +320,21 @@ public class CatalogServiceImpl implements CatalogService {
         return skuDao.readSkusByIds(ids);
     }
 
+    @Override
+    public List<Product> findProductsByIds(List<Long> ids) {
+        return productDao.readProductsByIds(ids);
+    }
+
+    @Override
+    public void initializeProductAssociation(List<Product> products, String association) {
+        productDao.initializeAssociation(products, association);
+    }
+
+    @Override
+    public void initializeSkuAssociation(List<Sku> skus, String association) {
+        skuDao.initializeAssociation(skus, association);
+    }
+
     public void setProductDao(ProductDao productDao) {
         this.productDao = productDao;
     }
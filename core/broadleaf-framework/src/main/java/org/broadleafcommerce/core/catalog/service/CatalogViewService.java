@@ -0,0 +1,67 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.core.catalog.service;
+
+import org.broadleafcommerce.core.catalog.domain.Product;
+import org.broadleafcommerce.core.catalog.service.view.ProductView;
+
+/**
+ * Provides read-only {@link ProductView}s of the catalog for storefront rendering. Views are resolved once and, when
+ * enabled, shared across requests until the product is changed, so rendering a page does not trigger lazy loads,
+ * dynamic pricing or translation lookups for every getter call.
+ */
+public interface CatalogViewService {
+
+    /**
+     * @return whether views are cached across requests. When false, views are still available but are built anew on
+     * every call.
+     */
+    public boolean isEnabled();
+
+    /**
+     * Returns the view of the given product for the locale and currency of the current request
+     * 
+     * @param productId
+     * @return the view, or null if there is no such product
+     */
+    public ProductView getProductView(Long productId);
+
+    /**
+     * Same as {@link #getProductView(Long)}, for callers that already hold the product entity. The entity is only read
+     * if there is no cached view.
+     * 
+     * @param product
+     * @return the view, or null if the product is null
+     */
+    public ProductView getProductView(Product product);
+
+    /**
+     * Removes the cached views of the given product for all locales and currencies
+     * 
+     * @param productId
+     */
+    public void evictProductView(Long productId);
+
+    /**
+     * Removes all cached views
+     */
+    public void clear();
+
+}
@@ -0,0 +1,297 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.core.catalog.service;
+
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Element;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.broadleafcommerce.common.event.BroadleafApplicationListener;
+import org.broadleafcommerce.common.web.BroadleafRequestContext;
+import org.broadleafcommerce.core.catalog.domain.CatalogPersistedEvent;
+import org.broadleafcommerce.core.catalog.domain.Product;
+import org.broadleafcommerce.core.catalog.domain.ProductAttribute;
+import org.broadleafcommerce.core.catalog.domain.ProductOption;
+import org.broadleafcommerce.core.catalog.domain.ProductOptionValue;
+import org.broadleafcommerce.core.catalog.domain.Sku;
+import org.broadleafcommerce.core.catalog.domain.SkuAttribute;
+import org.broadleafcommerce.core.catalog.service.dynamic.DefaultDynamicSkuPricingServiceImpl;
+import org.broadleafcommerce.core.catalog.service.dynamic.SkuActiveDateConsiderationContext;
+import org.broadleafcommerce.core.catalog.service.dynamic.SkuPricingConsiderationContext;
+import org.broadleafcommerce.core.catalog.service.view.ProductView;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Resource;
+
+/**
+ * Default {@link CatalogViewService}. Views are kept in the blCatalogViewElements cache, one element per product that
+ * holds the views of that product for each site, locale and currency, so a change to the product evicts all of them
+ * at once. Changes are picked up through {@link CatalogPersistedEvent}s, which only reach the node that made the
+ * change: other nodes keep serving their views until the cache's time to live (60 seconds in bl-ehcache.xml) expires,
+ * just as they keep serving the entities in their second level cache.
+ * 
+ * A view that was being built while an eviction happened is not cached, since it may have been built from the state
+ * before the change.
+ * 
+ * Views are not cached for sandbox (preview) requests, when a custom
+ * {@link org.broadleafcommerce.core.catalog.service.dynamic.DynamicSkuPricingService} is in use, or when sku active
+ * dates are dynamic, since the prices and dates could then differ from request to request. Subclasses can cache such prices by overriding {@link #isCacheable()} and
+ * adding whatever the prices depend on (a price list for example) to {@link #getVariantKey()}.
+ */
+@Service("blCatalogViewService")
+@ManagedResource(objectName="org.broadleafcommerce:name=CatalogViewService", description="Catalog View Service", currencyTimeLimit=15)
+public class CatalogViewServiceImpl implements CatalogViewService, BroadleafApplicationListener<CatalogPersistedEvent> {
+
+    private static final Log LOG = LogFactory.getLog(CatalogViewServiceImpl.class);
+
+    @Resource(name = "blCatalogService")
+    protected CatalogService catalogService;
+
+    @Value("${catalog.view.cache.enabled:false}")
+    protected boolean enabled = false;
+
+    protected Cache viewCache;
+
+    /**
+     * Incremented by every eviction, so that a view built concurrently with an eviction is not cached
+     */
+    protected final AtomicLong evictionGeneration = new AtomicLong();
+
+    protected final AtomicLong hits = new AtomicLong();
+    protected final AtomicLong misses = new AtomicLong();
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public ProductView getProductView(Long productId) {
+        if (productId == null) {
+            return null;
+        }
+        ProductView view = getCachedView(productId);
+        if (view == null) {
+            long generation = evictionGeneration.get();
+            Product product = catalogService.findProductById(productId);
+            if (product == null) {
+                return null;
+            }
+            view = buildAndCacheView(product, generation);
+        }
+        return view;
+    }
+
+    @Override
+    public ProductView getProductView(Product product) {
+        if (product == null) {
+            return null;
+        }
+        ProductView view = getCachedView(product.getId());
+        if (view == null) {
+            view = buildAndCacheView(product, evictionGeneration.get());
+        }
+        return view;
+    }
+
+    protected ProductView getCachedView(Long productId) {
+        if (!isCacheable()) {
+            return null;
+        }
+        Element element = getViewCache().get(productId);
+        ProductView view = null;
+        if (element != null) {
+            view = getVariants(element).get(getVariantKey());
+        }
+        if (view == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return view;
+    }
+
+    /**
+     * @param generation the {@link #evictionGeneration} from before the product was read
+     */
+    protected ProductView buildAndCacheView(Product product, long generation) {
+        long start = System.currentTimeMillis();
+        ProductView view = createProductView(product);
+        if (LOG.isTraceEnabled()) {
+            LOG.trace("Built view of product " + product.getId() + " in " + (System.currentTimeMillis() - start) + "ms");
+        }
+        if (isCacheable()) {
+            Element element = getViewCache().get(product.getId());
+            if (element == null) {
+                Element newElement = new Element(product.getId(), new ConcurrentHashMap<String, ProductView>());
+                element = getViewCache().putIfAbsent(newElement);
+                if (element == null) {
+                    element = newElement;
+                }
+            }
+            String variantKey = getVariantKey();
+            getVariants(element).put(variantKey, view);
+            if (evictionGeneration.get() != generation) {
+                // An eviction may have run between reading the product and caching its view
+                getVariants(element).remove(variantKey, view);
+            }
+        }
+        return view;
+    }
+
+    /**
+     * Hook for subclasses that render additional information from their product extensions
+     */
+    protected ProductView createProductView(Product product) {
+        return new ProductView(product);
+    }
+
+    @SuppressWarnings("unchecked")
+    protected ConcurrentMap<String, ProductView> getVariants(Element element) {
+        return (ConcurrentMap<String, ProductView>) element.getObjectValue();
+    }
+
+    /**
+     * @return whether views built for the current request may be shared with other requests
+     */
+    protected boolean isCacheable() {
+        if (!enabled) {
+            return false;
+        }
+        BroadleafRequestContext brc = BroadleafRequestContext.getBroadleafRequestContext();
+        if (brc != null && brc.getSandBox() != null) {
+            return false;
+        }
+        if (SkuActiveDateConsiderationContext.hasDynamicActiveDates()) {
+            return false;
+        }
+        return !SkuPricingConsiderationContext.hasDynamicPricing()
+                || SkuPricingConsiderationContext.getSkuPricingService() instanceof DefaultDynamicSkuPricingServiceImpl;
+    }
+
+    /**
+     * @return the key that distinguishes the views of the same product built for different requests. By default this
+     * is the site, locale and currency of the current request.
+     */
+    protected String getVariantKey() {
+        BroadleafRequestContext brc = BroadleafRequestContext.getBroadleafRequestContext();
+        if (brc == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder();
+        if (brc.getNonPersistentSite() != null) {
+            sb.append(brc.getNonPersistentSite().getId());
+        }
+        sb.append('|');
+        if (brc.getLocale() != null) {
+            sb.append(brc.getLocale().getLocaleCode());
+        }
+        sb.append('|');
+        if (brc.getBroadleafCurrency() != null) {
+            sb.append(brc.getBroadleafCurrency().getCurrencyCode());
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public void evictProductView(Long productId) {
+        if (productId != null) {
+            evictionGeneration.incrementAndGet();
+            getViewCache().remove(productId);
+        }
+    }
+
+    @Override
+    public void clear() {
+        evictionGeneration.incrementAndGet();
+        getViewCache().removeAll();
+    }
+
+    @Override
+    public void onApplicationEvent(CatalogPersistedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        Object entity = event.getEntity();
+        if (entity instanceof Product) {
+            evictProductView(((Product) entity).getId());
+        } else if (entity instanceof Sku) {
+            evictSku((Sku) entity);
+        } else if (entity instanceof ProductAttribute) {
+            Product product = ((ProductAttribute) entity).getProduct();
+            if (product != null) {
+                evictProductView(product.getId());
+            }
+        } else if (entity instanceof SkuAttribute) {
+            Sku sku = ((SkuAttribute) entity).getSku();
+            if (sku != null) {
+                evictSku(sku);
+            }
+        } else if (entity instanceof ProductOption || entity instanceof ProductOptionValue) {
+            // Options are shared between products, and changes to them are rare enough to start over
+            clear();
+        }
+    }
+
+    protected void evictSku(Sku sku) {
+        if (sku.getProduct() != null) {
+            evictProductView(sku.getProduct().getId());
+        }
+        if (sku.getDefaultProduct() != null) {
+            evictProductView(sku.getDefaultProduct().getId());
+        }
+    }
+
+    @Override
+    public boolean isAsynchronous() {
+        return false;
+    }
+
+    protected synchronized Cache getViewCache() {
+        if (viewCache == null) {
+            viewCache = CacheManager.getInstance().getCache("blCatalogViewElements");
+        }
+        return viewCache;
+    }
+
+    @ManagedAttribute(description="The number of product views served from the cache", currencyTimeLimit=15)
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    @ManagedAttribute(description="The number of product views that had to be built", currencyTimeLimit=15)
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+}
@@ -52,6 +52,9 @@ public class CategorySiteMapGenerator implements SiteMapGenerator {
     @Resource(name = "blCategoryDao")
     protected CategoryDao categoryDao;
 
+    @Resource(name = "blCategoryTreeService")
+    protected CategoryTreeService categoryTreeService;
+
     @Value("${category.site.map.generator.row.limit}")
     protected int rowLimit;
 
@@ -65,11 +68,36 @@ public class CategorySiteMapGenerator implements SiteMapGenerator {
 
         CategorySiteMapGeneratorConfiguration categorySMGC = (CategorySiteMapGeneratorConfiguration) smgc;
 
-        // Recursively construct the category SiteMap URLs
+        // Recursively construct the category SiteMap URLs, walking the in-memory category tree when it is available
+        if (categoryTreeService != null && categoryTreeService.isEnabled()) {
+            CategoryTreeNode rootNode = categoryTreeService.getSnapshot().getNode(categorySMGC.getRootCategory().getId());
+            if (rootNode != null) {
+                addCategorySiteMapEntries(rootNode, 0, categorySMGC, siteMapBuilder);
+                return;
+            }
+        }
         addCategorySiteMapEntries(categorySMGC.getRootCategory(), 0, categorySMGC, siteMapBuilder);
         
     }
 
+    protected void addCategorySiteMapEntries(CategoryTreeNode parentNode, int currentDepth, CategorySiteMapGeneratorConfiguration categorySMGC, SiteMapBuilder siteMapBuilder) {
+        if (currentDepth > categorySMGC.getEndingDepth()) {
+            return;
+        }
+
+        if (currentDepth >= categorySMGC.getStartingDepth()) {
+            constructSiteMapURL(categorySMGC, siteMapBuilder, parentNode.getUrl());
+        }
+
+        for (CategoryTreeNode node : parentNode.getChildren()) {
+            if (StringUtils.isNotEmpty(node.getUrl())) {
+                addCategorySiteMapEntries(node, currentDepth + 1, categorySMGC, siteMapBuilder);
+            } else {
+                LOG.debug("Skipping empty category URL: " + node.getId());
+            }
+        }
+    }
+
     protected void addCategorySiteMapEntries(Category parentCategory, int currentDepth, CategorySiteMapGeneratorConfiguration categorySMGC, SiteMapBuilder siteMapBuilder) {
         // If we've reached beyond the ending depth, don't proceed
         if (currentDepth > categorySMGC.getEndingDepth()) {
@@ -115,6 +143,15 @@ public class CategorySiteMapGenerator implements SiteMapGenerator {
         siteMapBuilder.addUrl(siteMapUrl);
     }
 
+    protected void constructSiteMapURL(CategorySiteMapGeneratorConfiguration categorySMGC, SiteMapBuilder siteMapBuilder, String categoryUrl) {
+        SiteMapURLWrapper siteMapUrl = new SiteMapURLWrapper();
+        siteMapUrl.setLoc(BroadleafFileUtils.appendUnixPaths(siteMapBuilder.getBaseUrl(), categoryUrl));
+        siteMapUrl.setChangeFreqType(categorySMGC.getSiteMapChangeFreq());
+        siteMapUrl.setPriorityType(categorySMGC.getSiteMapPriority());
+        siteMapUrl.setLastModDate(new Date());
+        siteMapBuilder.addUrl(siteMapUrl);
+    }
+
     protected String generateUri(SiteMapBuilder siteMapBuilder, Category category) {
         return BroadleafFileUtils.appendUnixPaths(siteMapBuilder.getBaseUrl(), category.getUrl());
     }
@@ -131,6 +168,14 @@ public class CategorySiteMapGenerator implements SiteMapGenerator {
         this.categoryDao = categoryDao;
     }
 
+    public CategoryTreeService getCategoryTreeService() {
+        return categoryTreeService;
+    }
+
+    public void setCategoryTreeService(CategoryTreeService categoryTreeService) {
+        this.categoryTreeService = categoryTreeService;
+    }
+
     public int getRowLimit() {
         return rowLimit;
     }
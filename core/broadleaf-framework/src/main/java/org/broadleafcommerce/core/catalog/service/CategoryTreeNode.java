@@ -0,0 +1,149 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.core.catalog.service;
+
+import org.broadleafcommerce.common.time.SystemTime;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A lightweight, read-only handle to a single category within a {@link CategoryTreeSnapshot}. Nodes are created on
+ * demand and hold nothing but a reference to the snapshot and the category's index, so every accessor is served from
+ * the snapshot's arrays without any database access.
+ * 
+ * <p>
+ * Nodes expose the properties typically used by navigation templates ({@code id}, {@code name},
+ * {@code url} and {@code urlKey}). Templates that need other category properties should load the
+ * {@link org.broadleafcommerce.core.catalog.domain.Category} itself.
+ */
+public class CategoryTreeNode implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    protected final CategoryTreeSnapshot snapshot;
+    protected final int index;
+
+    public CategoryTreeNode(CategoryTreeSnapshot snapshot, int index) {
+        this.snapshot = snapshot;
+        this.index = index;
+    }
+
+    public Long getId() {
+        return snapshot.ids[index];
+    }
+
+    public String getName() {
+        return snapshot.names[index];
+    }
+
+    public String getUrl() {
+        return snapshot.urls[index];
+    }
+
+    public String getUrlKey() {
+        return snapshot.urlKeys[index];
+    }
+
+    /**
+     * @return whether or not the category is active based on its active dates at the current time
+     */
+    public boolean isActive() {
+        return snapshot.isActive(index, SystemTime.asMillis(true));
+    }
+
+    /**
+     * @return the default parent of this category, or null if there is none
+     */
+    public CategoryTreeNode getDefaultParent() {
+        int parent = snapshot.defaultParents[index];
+        return parent == CategoryTreeSnapshot.NO_PARENT ? null : new CategoryTreeNode(snapshot, parent);
+    }
+
+    /**
+     * @return all parents of this category, starting with the default parent (if any)
+     */
+    public List<CategoryTreeNode> getParents() {
+        return snapshot.toNodes(snapshot.parents[index]);
+    }
+
+    /**
+     * @return the currently active child categories, in display order
+     */
+    public List<CategoryTreeNode> getChildren() {
+        int[] children = snapshot.children[index];
+        long now = SystemTime.asMillis(true);
+        List<CategoryTreeNode> response = new ArrayList<CategoryTreeNode>(children.length);
+        for (int child : children) {
+            if (snapshot.isActive(child, now)) {
+                response.add(new CategoryTreeNode(snapshot, child));
+            }
+        }
+        return response;
+    }
+
+    /**
+     * @return all child categories regardless of their active dates, in display order
+     */
+    public List<CategoryTreeNode> getAllChildren() {
+        return snapshot.toNodes(snapshot.children[index]);
+    }
+
+    public boolean hasChildren() {
+        return !getChildren().isEmpty();
+    }
+
+    /**
+     * @return the ids of every category above this one in the hierarchy, through any parent relationship
+     */
+    public List<Long> getAncestorIds() {
+        List<Long> response = new ArrayList<Long>();
+        for (int i = snapshot.ancestors[index].nextSetBit(0); i >= 0; i = snapshot.ancestors[index].nextSetBit(i + 1)) {
+            response.add(snapshot.ids[i]);
+        }
+        return response;
+    }
+
+    /**
+     * @param ancestor
+     * @return whether or not this category appears anywhere below the given category
+     */
+    public boolean isDescendantOf(CategoryTreeNode ancestor) {
+        return ancestor != null && ancestor.snapshot == snapshot && snapshot.ancestors[index].get(ancestor.index);
+    }
+
+    @Override
+    public int hashCode() {
+        return getId().hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof CategoryTreeNode)) {
+            return false;
+        }
+        return getId().equals(((CategoryTreeNode) obj).getId());
+    }
+
+}
@@ -0,0 +1,59 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.core.catalog.service;
+
+/**
+ * Maintains an in-memory {@link CategoryTreeSnapshot} of the category hierarchy so that navigation and site map
+ * generation can walk the tree without issuing a query per level.
+ * 
+ * <p>
+ * A snapshot is kept for each site and catalog of the {@link org.broadleafcommerce.common.web.BroadleafRequestContext}
+ * it is read in. It is built lazily on first access and rebuilt in the background whenever a category or category
+ * relationship is persisted. Readers always see a complete snapshot; a rebuild swaps in the new snapshot atomically.
+ */
+public interface CategoryTreeService {
+
+    /**
+     * @return whether or not callers should use the snapshot rather than loading categories directly
+     */
+    public boolean isEnabled();
+
+    /**
+     * Returns the current snapshot for the site and catalog of the request context, building it synchronously if one
+     * does not yet exist
+     * 
+     * @return the current snapshot
+     */
+    public CategoryTreeSnapshot getSnapshot();
+
+    /**
+     * Builds a new snapshot for the site and catalog of the request context from the database and makes it current
+     * 
+     * @return the newly built snapshot
+     */
+    public CategoryTreeSnapshot rebuildSnapshot();
+
+    /**
+     * Requests a background rebuild of the snapshot. Requests made while a rebuild is already pending are coalesced
+     * into that rebuild.
+     */
+    public void scheduleRebuild();
+
+}
@@ -0,0 +1,211 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.core.catalog.service;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.broadleafcommerce.common.classloader.release.ThreadLocalManager;
+import org.broadleafcommerce.common.event.BroadleafApplicationListener;
+import org.broadleafcommerce.common.site.domain.Catalog;
+import org.broadleafcommerce.common.site.domain.Site;
+import org.broadleafcommerce.common.web.BroadleafRequestContext;
+import org.broadleafcommerce.core.catalog.dao.CategoryDao;
+import org.broadleafcommerce.core.catalog.domain.CatalogPersistedEvent;
+import org.broadleafcommerce.core.catalog.domain.Category;
+import org.broadleafcommerce.core.catalog.domain.CategoryXref;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+
+/**
+ * Default {@link CategoryTreeService} implementation. A snapshot is kept for each site and catalog it is read for,
+ * along with a copy of the request context it was first built in. Rebuilds are performed on a single daemon thread,
+ * which rebuilds every snapshot within its own request context, and any number of change events received before a
+ * pending rebuild starts result in a single rebuild.
+ */
+@Service("blCategoryTreeService")
+public class CategoryTreeServiceImpl implements CategoryTreeService, BroadleafApplicationListener<CatalogPersistedEvent> {
+
+    private static final Log LOG = LogFactory.getLog(CategoryTreeServiceImpl.class);
+
+    @Resource(name = "blCategoryDao")
+    protected CategoryDao categoryDao;
+
+    @Value("${category.tree.snapshot.enabled:false}")
+    protected boolean enabled = false;
+
+    protected final Map<String, SiteSnapshot> snapshots = new ConcurrentHashMap<String, SiteSnapshot>();
+
+    protected final Object buildLock = new Object();
+
+    protected final AtomicBoolean rebuildPending = new AtomicBoolean(false);
+
+    protected final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "blCategoryTreeRebuild");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public CategoryTreeSnapshot getSnapshot() {
+        String key = getSnapshotKey();
+        SiteSnapshot current = snapshots.get(key);
+        if (current == null) {
+            synchronized (buildLock) {
+                current = snapshots.get(key);
+                if (current == null) {
+                    return rebuildSnapshot();
+                }
+            }
+        }
+        return current.snapshot;
+    }
+
+    @Override
+    public CategoryTreeSnapshot rebuildSnapshot() {
+        synchronized (buildLock) {
+            String key = getSnapshotKey();
+            SiteSnapshot current = snapshots.get(key);
+            BroadleafRequestContext context = BroadleafRequestContext.getBroadleafRequestContext();
+            SiteSnapshot rebuilt = new SiteSnapshot(buildSnapshot(key), current != null ? current.context
+                    : context == null ? null : context.createLightWeightClone());
+            snapshots.put(key, rebuilt);
+            return rebuilt.snapshot;
+        }
+    }
+
+    protected CategoryTreeSnapshot buildSnapshot(String key) {
+        long start = System.currentTimeMillis();
+        CategoryTreeSnapshot newSnapshot = new CategoryTreeSnapshot(categoryDao.readCategoryTreeRows(),
+                categoryDao.readCategoryTreeXrefRows());
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Built category tree snapshot " + key + " of " + newSnapshot.size() + " categories in "
+                    + (System.currentTimeMillis() - start) + "ms");
+        }
+        return newSnapshot;
+    }
+
+    /**
+     * @return the site and catalog of the current request context, which decide the categories a snapshot holds
+     */
+    protected String getSnapshotKey() {
+        BroadleafRequestContext context = BroadleafRequestContext.getBroadleafRequestContext();
+        Site site = context == null ? null : context.getNonPersistentSite();
+        Catalog catalog = context == null ? null : context.getCurrentCatalog();
+        return (site == null ? "-" : String.valueOf(site.getId())) + ":"
+                + (catalog == null ? "-" : String.valueOf(catalog.getId()));
+    }
+
+    @Override
+    public void scheduleRebuild() {
+        if (snapshots.isEmpty()) {
+            // Nothing has been built yet, the next read will build a current snapshot
+            return;
+        }
+        if (rebuildPending.compareAndSet(false, true)) {
+            rebuildExecutor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    rebuildPending.set(false);
+                    rebuildAll();
+                }
+            });
+        }
+    }
+
+    /**
+     * Rebuilds every snapshot within the request context it was first built in
+     */
+    protected void rebuildAll() {
+        for (Map.Entry<String, SiteSnapshot> entry : snapshots.entrySet()) {
+            try {
+                BroadleafRequestContext.setBroadleafRequestContext(entry.getValue().context);
+                rebuildSnapshot();
+            } catch (RuntimeException e) {
+                LOG.error("Unable to rebuild the category tree snapshot " + entry.getKey()
+                        + ", clearing it so the next read rebuilds it", e);
+                snapshots.remove(entry.getKey());
+            } finally {
+                ThreadLocalManager.remove();
+            }
+        }
+    }
+
+    @Override
+    public void onApplicationEvent(CatalogPersistedEvent event) {
+        Object entity = event.getEntity();
+        if (entity instanceof Category || entity instanceof CategoryXref) {
+            scheduleRebuild();
+        }
+    }
+
+    @Override
+    public boolean isAsynchronous() {
+        return false;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    public void setCategoryDao(CategoryDao categoryDao) {
+        this.categoryDao = categoryDao;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * The snapshot of one site and catalog, along with the request context to rebuild it in
+     */
+    protected static class SiteSnapshot {
+
+        protected final CategoryTreeSnapshot snapshot;
+        protected final BroadleafRequestContext context;
+
+        public SiteSnapshot(CategoryTreeSnapshot snapshot, BroadleafRequestContext context) {
+            this.snapshot = snapshot;
+            this.context = context;
+        }
+
+    }
+
+}
@@ -0,0 +1,297 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.core.catalog.service;
+
+import org.apache.commons.lang3.StringUtils;
+import org.broadleafcommerce.common.time.SystemTime;
+import org.broadleafcommerce.common.util.UrlUtil;
+import org.broadleafcommerce.core.catalog.dao.CategoryTreeRow;
+import org.broadleafcommerce.core.catalog.dao.CategoryTreeXrefRow;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable, fully materialized view of the category hierarchy. Categories are addressed by an int index and all
+ * relationships are held in primitive arrays, so navigating the tree never touches Hibernate or the database. The
+ * ancestors of every category are precomputed as a {@link BitSet} of indexes, which makes descendant checks constant
+ * time.
+ * 
+ * <p>
+ * Archived categories are excluded. Categories that are inactive due to their active dates are retained, since their
+ * status changes over time, and are filtered at read time by {@link CategoryTreeNode#isActive()}.
+ * 
+ * @see CategoryTreeService
+ */
+public class CategoryTreeSnapshot {
+
+    protected static final int NO_PARENT = -1;
+
+    protected final long buildTime;
+    protected final long[] ids;
+    protected final String[] names;
+    protected final String[] urls;
+    protected final String[] urlKeys;
+    protected final long[] activeStartDates;
+    protected final long[] activeEndDates;
+    protected final int[] defaultParents;
+    protected final int[][] children;
+    protected final int[][] parents;
+    protected final BitSet[] ancestors;
+    protected final Map<Long, Integer> indexById;
+    protected final Map<String, Integer> indexByUrl;
+    protected final Map<String, int[]> indexByName;
+
+    public CategoryTreeSnapshot(List<CategoryTreeRow> categoryRows, List<CategoryTreeXrefRow> xrefRows) {
+        int size = categoryRows.size();
+        buildTime = SystemTime.asMillis();
+        ids = new long[size];
+        names = new String[size];
+        urls = new String[size];
+        urlKeys = new String[size];
+        activeStartDates = new long[size];
+        activeEndDates = new long[size];
+        defaultParents = new int[size];
+        indexById = new HashMap<Long, Integer>(size * 2);
+
+        for (int i = 0; i < size; i++) {
+            CategoryTreeRow row = categoryRows.get(i);
+            ids[i] = row.getId();
+            names[i] = row.getName();
+            urls[i] = normalizeUrl(row.getUrl());
+            urlKeys[i] = StringUtils.isBlank(row.getUrlKey()) && row.getName() != null ? UrlUtil.generateUrlKey(row.getName()) : row.getUrlKey();
+            // A null start date means the category is never active
+            activeStartDates[i] = row.getActiveStartDate() == null ? Long.MAX_VALUE : row.getActiveStartDate().getTime();
+            activeEndDates[i] = row.getActiveEndDate() == null ? Long.MAX_VALUE : row.getActiveEndDate().getTime();
+            indexById.put(row.getId(), i);
+        }
+
+        List<List<Integer>> childLists = new ArrayList<List<Integer>>(size);
+        List<List<Integer>> parentLists = new ArrayList<List<Integer>>(size);
+        for (int i = 0; i < size; i++) {
+            childLists.add(new ArrayList<Integer>());
+            parentLists.add(new ArrayList<Integer>());
+        }
+        for (int i = 0; i < size; i++) {
+            Integer defaultParent = categoryRows.get(i).getDefaultParentId() == null ? null : indexById.get(categoryRows.get(i).getDefaultParentId());
+            defaultParents[i] = defaultParent == null ? NO_PARENT : defaultParent;
+            if (defaultParent != null) {
+                parentLists.get(i).add(defaultParent);
+            }
+        }
+        // Xref rows are ordered by parent and display order, so child lists come out in display order
+        for (CategoryTreeXrefRow xref : xrefRows) {
+            Integer parent = indexById.get(xref.getParentId());
+            Integer child = indexById.get(xref.getChildId());
+            if (parent == null || child == null || parent.equals(child)) {
+                continue;
+            }
+            if (!childLists.get(parent).contains(child)) {
+                childLists.get(parent).add(child);
+            }
+            if (!parentLists.get(child).contains(parent)) {
+                parentLists.get(child).add(parent);
+            }
+        }
+
+        children = new int[size][];
+        parents = new int[size][];
+        for (int i = 0; i < size; i++) {
+            children[i] = toArray(childLists.get(i));
+            parents[i] = toArray(parentLists.get(i));
+        }
+
+        ancestors = new BitSet[size];
+        for (int i = 0; i < size; i++) {
+            ancestors[i] = computeAncestors(i);
+        }
+
+        Map<String, Integer> urlMap = new HashMap<String, Integer>(size * 2);
+        Map<String, List<Integer>> nameLists = new HashMap<String, List<Integer>>(size * 2);
+        for (int i = 0; i < size; i++) {
+            if (urls[i] != null && !urlMap.containsKey(urls[i])) {
+                urlMap.put(urls[i], i);
+            }
+            if (names[i] != null) {
+                if (!nameLists.containsKey(names[i])) {
+                    nameLists.put(names[i], new ArrayList<Integer>(1));
+                }
+                nameLists.get(names[i]).add(i);
+            }
+        }
+        indexByUrl = Collections.unmodifiableMap(urlMap);
+        Map<String, int[]> nameMap = new HashMap<String, int[]>(nameLists.size() * 2);
+        for (Map.Entry<String, List<Integer>> entry : nameLists.entrySet()) {
+            nameMap.put(entry.getKey(), toArray(entry.getValue()));
+        }
+        indexByName = Collections.unmodifiableMap(nameMap);
+    }
+
+    /**
+     * Computes the ancestors of the category at the given index with a walk up through all of its parents. Circular
+     * category references are tolerated since each ancestor is only visited once.
+     */
+    protected BitSet computeAncestors(int index) {
+        BitSet result = new BitSet(ids.length);
+        int[] queue = new int[ids.length];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = index;
+        while (head < tail) {
+            for (int parent : parents[queue[head++]]) {
+                if (parent != index && !result.get(parent)) {
+                    result.set(parent);
+                    queue[tail++] = parent;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Mirrors the url normalization performed by {@link org.broadleafcommerce.core.catalog.domain.CategoryImpl#getUrl()}
+     */
+    protected String normalizeUrl(String url) {
+        if (url == null || url.equals("") || url.startsWith("/")) {
+            return url;
+        } else if ((url.contains(":") && !url.contains("?")) || url.indexOf('?', url.indexOf(':')) != -1) {
+            return url;
+        } else {
+            return "/" + url;
+        }
+    }
+
+    protected static int[] toArray(List<Integer> list) {
+        int[] response = new int[list.size()];
+        for (int i = 0; i < response.length; i++) {
+            response[i] = list.get(i);
+        }
+        return response;
+    }
+
+    /**
+     * @return the time, in milliseconds, at which this snapshot was built
+     */
+    public long getBuildTime() {
+        return buildTime;
+    }
+
+    /**
+     * @return the number of categories in the snapshot
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * @param categoryId
+     * @return the node for the given category id, or null if the category is not part of the snapshot
+     */
+    public CategoryTreeNode getNode(Long categoryId) {
+        Integer index = categoryId == null ? null : indexById.get(categoryId);
+        return index == null ? null : new CategoryTreeNode(this, index);
+    }
+
+    /**
+     * @param url the category url, as returned by {@link org.broadleafcommerce.core.catalog.domain.Category#getUrl()}
+     * @return the node for the category with the given url, or null if there is none
+     */
+    public CategoryTreeNode getNodeByUrl(String url) {
+        Integer index = url == null ? null : indexByUrl.get(normalizeUrl(url));
+        return index == null ? null : new CategoryTreeNode(this, index);
+    }
+
+    /**
+     * @param name
+     * @return the nodes for all categories with the given name, ordered by id
+     */
+    public List<CategoryTreeNode> getNodesByName(String name) {
+        int[] indexes = name == null ? null : indexByName.get(name);
+        return indexes == null ? Collections.<CategoryTreeNode>emptyList() : toNodes(indexes);
+    }
+
+    /**
+     * @return the nodes for all categories that do not have a parent
+     */
+    public List<CategoryTreeNode> getRootNodes() {
+        List<CategoryTreeNode> roots = new ArrayList<CategoryTreeNode>();
+        for (int i = 0; i < ids.length; i++) {
+            if (parents[i].length == 0) {
+                roots.add(new CategoryTreeNode(this, i));
+            }
+        }
+        return roots;
+    }
+
+    /**
+     * Builds a map of the url path (built from the url keys of the active child hierarchy) to the list of category
+     * ids along that path, equivalent to {@link org.broadleafcommerce.core.catalog.domain.Category#getChildCategoryURLMap()}
+     * 
+     * @param categoryId the category to start from
+     * @return the url map, or null if the category is not part of the snapshot
+     */
+    public Map<String, List<Long>> getChildCategoryURLMap(Long categoryId) {
+        Integer index = categoryId == null ? null : indexById.get(categoryId);
+        if (index == null) {
+            return null;
+        }
+        Map<String, List<Long>> urlMap = new HashMap<String, List<Long>>(50);
+        fillInURLMap(urlMap, index, "", new ArrayList<Long>(10), new BitSet(ids.length), SystemTime.asMillis(true));
+        return urlMap;
+    }
+
+    protected void fillInURLMap(Map<String, List<Long>> urlMap, int index, String startingPath, List<Long> startingIds,
+            BitSet visited, long now) {
+        if (visited.get(index) || urlKeys[index] == null) {
+            return;
+        }
+        visited.set(index);
+        String currentPath = "";
+        if (!"/".equals(urlKeys[index])) {
+            currentPath = startingPath + "/" + urlKeys[index];
+        }
+        List<Long> newIds = new ArrayList<Long>(startingIds);
+        newIds.add(ids[index]);
+        urlMap.put(currentPath, newIds);
+        for (int child : children[index]) {
+            if (isActive(child, now)) {
+                fillInURLMap(urlMap, child, currentPath, newIds, visited, now);
+            }
+        }
+        visited.clear(index);
+    }
+
+    protected List<CategoryTreeNode> toNodes(int[] indexes) {
+        List<CategoryTreeNode> nodes = new ArrayList<CategoryTreeNode>(indexes.length);
+        for (int index : indexes) {
+            nodes.add(new CategoryTreeNode(this, index));
+        }
+        return nodes;
+    }
+
+    protected boolean isActive(int index, long now) {
+        return activeStartDates[index] < now && activeEndDates[index] >= now;
+    }
+
+}
@@ -0,0 +1,279 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.core.catalog.service;
+
+import org.broadleafcommerce.common.money.Money;
+import org.broadleafcommerce.common.util.DateUtil;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An immutable index of the skus of a product by their product option values. Every option value has a bit set of
+ * the skus that carry it, so finding the sku for a selection of options, or the option values that are still available
+ * given a partial selection, is a handful of bit set intersections instead of a walk over the sku entities and their
+ * lazily loaded option values.
+ * 
+ * Skus are indexed in the order of {@link org.broadleafcommerce.core.catalog.domain.Product#getSkus()}, so a lookup
+ * finds the same sku as iterating that list would. Whether a sku is active depends on the time, so the matrix keeps the
+ * active dates of the skus and checks them on every availability lookup.
+ * 
+ * @see {@link ProductOptionMatrixService}
+ */
+public class ProductOptionMatrix {
+
+    protected final Long productId;
+    protected final long created = System.currentTimeMillis();
+    protected final Long[] skuIds;
+    protected final Money[] prices;
+    protected final Long[][] skuOptionValueIds;
+    protected final BitSet sellableSkus;
+    protected final Date[] activeStartDates;
+    protected final Date[] activeEndDates;
+    protected final Long[] optionValueIds;
+    protected final BitSet[] skusByOptionValue;
+    protected final Map<Long, Integer> optionValueIndexes;
+    protected final Map<String, BitSet> skusByAttribute;
+
+    /**
+     * Serialized forms of the matrix (like the sku pricing JSON), which are dropped along with the matrix
+     */
+    protected final ConcurrentMap<String, String> serialized = new ConcurrentHashMap<String, String>();
+
+    /**
+     * @param productId
+     * @param skuIds the ids of the skus of the product
+     * @param prices the current price of each sku
+     * @param sellable whether each sku is marked as available, regardless of its active dates
+     * @param activeStartDates the active start date of each sku
+     * @param activeEndDates the active end date of each sku
+     * @param skuOptionValueIds the ids of the product option values of each sku
+     * @param optionValueAttributes the attribute name and attribute value of each product option value, by id
+     */
+    public ProductOptionMatrix(Long productId, Long[] skuIds, Money[] prices, boolean[] sellable, Date[] activeStartDates,
+            Date[] activeEndDates, Long[][] skuOptionValueIds, Map<Long, String[]> optionValueAttributes) {
+        this.productId = productId;
+        this.skuIds = skuIds.clone();
+        this.prices = prices.clone();
+        this.activeStartDates = activeStartDates.clone();
+        this.activeEndDates = activeEndDates.clone();
+        this.skuOptionValueIds = skuOptionValueIds.clone();
+
+        sellableSkus = new BitSet(skuIds.length);
+        for (int i = 0; i < skuIds.length; i++) {
+            if (sellable[i]) {
+                sellableSkus.set(i);
+            }
+        }
+
+        Map<Long, Integer> indexes = new HashMap<Long, Integer>();
+        Map<Long, BitSet> skusByValue = new HashMap<Long, BitSet>();
+        Map<String, BitSet> byAttribute = new HashMap<String, BitSet>();
+        for (int i = 0; i < skuIds.length; i++) {
+            for (Long valueId : skuOptionValueIds[i]) {
+                BitSet skus = skusByValue.get(valueId);
+                if (skus == null) {
+                    skus = new BitSet(skuIds.length);
+                    skusByValue.put(valueId, skus);
+                    indexes.put(valueId, indexes.size());
+                }
+                skus.set(i);
+
+                String[] attribute = optionValueAttributes.get(valueId);
+                if (attribute != null) {
+                    String key = getAttributeKey(attribute[0], attribute[1]);
+                    BitSet attributeSkus = byAttribute.get(key);
+                    if (attributeSkus == null) {
+                        attributeSkus = new BitSet(skuIds.length);
+                        byAttribute.put(key, attributeSkus);
+                    }
+                    attributeSkus.set(i);
+                }
+            }
+        }
+        optionValueIds = new Long[indexes.size()];
+        skusByOptionValue = new BitSet[indexes.size()];
+        for (Map.Entry<Long, Integer> entry : indexes.entrySet()) {
+            optionValueIds[entry.getValue()] = entry.getKey();
+            skusByOptionValue[entry.getValue()] = skusByValue.get(entry.getKey());
+        }
+        optionValueIndexes = indexes;
+        skusByAttribute = byAttribute;
+    }
+
+    protected static String getAttributeKey(String attributeName, String attributeValue) {
+        return attributeName + '\u0000' + attributeValue;
+    }
+
+    /**
+     * @param optionValueIds
+     * @return the skus that carry all of the given option values. The returned set may be modified.
+     */
+    protected BitSet match(Collection<Long> optionValueIds) {
+        BitSet matches = new BitSet(skuIds.length);
+        matches.set(0, skuIds.length);
+        if (optionValueIds != null) {
+            for (Long valueId : optionValueIds) {
+                Integer index = optionValueIndexes.get(valueId);
+                if (index == null) {
+                    matches.clear();
+                    break;
+                }
+                matches.and(skusByOptionValue[index]);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * @return the skus that are marked as available and active right now. The returned set may be modified.
+     */
+    protected BitSet getAvailableSkus() {
+        BitSet available = (BitSet) sellableSkus.clone();
+        for (int i = available.nextSetBit(0); i >= 0; i = available.nextSetBit(i + 1)) {
+            if (!isActive(i)) {
+                available.clear(i);
+            }
+        }
+        return available;
+    }
+
+    protected boolean isActive(int index) {
+        return DateUtil.isActive(activeStartDates[index], activeEndDates[index], true);
+    }
+
+    protected Long firstSkuId(BitSet matches) {
+        int index = matches.nextSetBit(0);
+        return index < 0 ? null : skuIds[index];
+    }
+
+    /**
+     * Finds the first sku that carries all of the given option values
+     * 
+     * @param optionValueIds
+     * @return the id of the sku, or null if there is none
+     */
+    public Long findSkuId(Collection<Long> optionValueIds) {
+        return firstSkuId(match(optionValueIds));
+    }
+
+    /**
+     * Finds the first sku that has, for each of the given attribute names, an option value with the given attribute
+     * value
+     * 
+     * @param attributeValues attribute values by product option attribute name
+     * @return the id of the sku, or null if there is none
+     */
+    public Long findSkuIdByAttributes(Map<String, String> attributeValues) {
+        BitSet matches = new BitSet(skuIds.length);
+        matches.set(0, skuIds.length);
+        for (Map.Entry<String, String> entry : attributeValues.entrySet()) {
+            BitSet skus = skusByAttribute.get(getAttributeKey(entry.getKey(), entry.getValue()));
+            if (skus == null) {
+                return null;
+            }
+            matches.and(skus);
+        }
+        return firstSkuId(matches);
+    }
+
+    /**
+     * @param optionValueIds
+     * @return whether a sku that carries all of the given option values can be sold
+     */
+    public boolean isAvailable(Collection<Long> optionValueIds) {
+        BitSet matches = match(optionValueIds);
+        return matches.intersects(getAvailableSkus());
+    }
+
+    /**
+     * Determines which option values can still be chosen given a partial selection, that is the option values of the
+     * sellable skus that carry all of the selected values
+     * 
+     * @param selectedOptionValueIds
+     * @return the ids of the option values
+     */
+    public Set<Long> getAvailableOptionValueIds(Collection<Long> selectedOptionValueIds) {
+        BitSet matches = match(selectedOptionValueIds);
+        matches.and(getAvailableSkus());
+        Set<Long> result = new HashSet<Long>();
+        for (int i = 0; i < skusByOptionValue.length; i++) {
+            if (skusByOptionValue[i].intersects(matches)) {
+                result.add(optionValueIds[i]);
+            }
+        }
+        return result;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    /**
+     * @return the time this matrix was built at
+     */
+    public long getCreated() {
+        return created;
+    }
+
+    public int getSkuCount() {
+        return skuIds.length;
+    }
+
+    public Long getSkuId(int index) {
+        return skuIds[index];
+    }
+
+    public Money getPrice(int index) {
+        return prices[index];
+    }
+
+    public boolean isAvailable(int index) {
+        return sellableSkus.get(index) && isActive(index);
+    }
+
+    /**
+     * @param index
+     * @return the option value ids of the sku at the given index. The array must not be modified.
+     */
+    public Long[] getSkuOptionValueIds(int index) {
+        return skuOptionValueIds[index];
+    }
+
+    /**
+     * @param key identifies the serialized form, including anything it depends on (like the locale)
+     * @return the memoized serialized form, or null
+     */
+    public String getSerialized(String key) {
+        return serialized.get(key);
+    }
+
+    public void putSerialized(String key, String value) {
+        serialized.put(key, value);
+    }
+
+}
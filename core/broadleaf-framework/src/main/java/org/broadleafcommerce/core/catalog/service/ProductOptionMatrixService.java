@@ -0,0 +1,66 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.core.catalog.service;
+
+import org.broadleafcommerce.core.catalog.domain.Product;
+
+/**
+ * Provides the {@link ProductOptionMatrix} of products. Matrices are built once and shared across threads until the
+ * product, its skus or its product options change.
+ */
+public interface ProductOptionMatrixService {
+
+    /**
+     * @return whether matrices are cached. When false, matrices are still available but are built on every call.
+     */
+    public boolean isEnabled();
+
+    /**
+     * @param productId
+     * @return the matrix of the given product, or null if there is no such product
+     */
+    public ProductOptionMatrix getMatrix(Long productId);
+
+    /**
+     * Same as {@link #getMatrix(Long)}, for callers that already hold the product entity. The entity is only read if
+     * there is no cached matrix.
+     * 
+     * @param product
+     * @return the matrix of the given product, or null if the product is null
+     */
+    public ProductOptionMatrix getMatrix(Product product);
+
+    /**
+     * Serializes the skus of the matrix as the JSON array of selected option value ids and formatted prices that the
+     * product options scripts of the storefront expect. Prices are formatted for the locale of the current request.
+     * 
+     * @param matrix
+     * @return the JSON
+     */
+    public String getSkuPricingJson(ProductOptionMatrix matrix);
+
+    /**
+     * Removes the cached matrix of the given product
+     * 
+     * @param productId
+     */
+    public void evictMatrix(Long productId);
+
+}
@@ -0,0 +1,335 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.core.catalog.service;
+
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Element;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.broadleafcommerce.common.currency.util.BroadleafCurrencyUtils;
+import org.broadleafcommerce.common.event.BroadleafApplicationListener;
+import org.broadleafcommerce.common.money.Money;
+import org.broadleafcommerce.common.util.TransactionUtils;
+import org.broadleafcommerce.common.web.BroadleafRequestContext;
+import org.broadleafcommerce.core.catalog.domain.CatalogPersistedEvent;
+import org.broadleafcommerce.core.catalog.domain.Product;
+import org.broadleafcommerce.core.catalog.domain.ProductOption;
+import org.broadleafcommerce.core.catalog.domain.ProductOptionValue;
+import org.broadleafcommerce.core.catalog.domain.Sku;
+import org.broadleafcommerce.core.catalog.service.dynamic.DefaultDynamicSkuPricingServiceImpl;
+import org.broadleafcommerce.core.catalog.service.dynamic.SkuActiveDateConsiderationContext;
+import org.broadleafcommerce.core.catalog.service.dynamic.SkuPricingConsiderationContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+
+/**
+ * Default {@link ProductOptionMatrixService}. Matrices are kept in the blProductOptionMatrixElements cache. When a
+ * product or one of its skus changes and its matrix is cached, the matrix is rebuilt right away on a background thread,
+ * so the next product page does not pay for it. Changes to product options, which can be shared between products,
+ * clear all matrices.
+ * 
+ * Matrices are not cached for sandbox (preview) requests, when a custom
+ * {@link org.broadleafcommerce.core.catalog.service.dynamic.DynamicSkuPricingService} is in use, or when sku active
+ * dates are dynamic, since their prices or dates could then differ from request to request.
+ * 
+ * The cache and the rebuild on change are local to this node. Other nodes pick a change up when their cached matrix
+ * expires, so callers that must not act on a stale matrix (like matching the sku to add to the cart) verify what they
+ * find against the entities.
+ */
+@Service("blProductOptionMatrixService")
+public class ProductOptionMatrixServiceImpl implements ProductOptionMatrixService, BroadleafApplicationListener<CatalogPersistedEvent> {
+
+    private static final Log LOG = LogFactory.getLog(ProductOptionMatrixServiceImpl.class);
+
+    protected static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Resource(name = "blCatalogService")
+    protected CatalogService catalogService;
+
+    @Resource(name = "blTransactionManager")
+    protected PlatformTransactionManager transactionManager;
+
+    @Value("${product.option.matrix.cache.enabled:true}")
+    protected boolean enabled = true;
+
+    protected volatile Cache matrixCache;
+
+    protected final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "blProductOptionMatrixRebuild");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public ProductOptionMatrix getMatrix(Long productId) {
+        if (productId == null) {
+            return null;
+        }
+        ProductOptionMatrix matrix = getCachedMatrix(productId);
+        if (matrix == null) {
+            Product product = catalogService.findProductById(productId);
+            if (product == null) {
+                return null;
+            }
+            matrix = buildAndCacheMatrix(product);
+        }
+        return matrix;
+    }
+
+    @Override
+    public ProductOptionMatrix getMatrix(Product product) {
+        if (product == null) {
+            return null;
+        }
+        ProductOptionMatrix matrix = getCachedMatrix(product.getId());
+        if (matrix == null) {
+            matrix = buildAndCacheMatrix(product);
+        }
+        return matrix;
+    }
+
+    protected ProductOptionMatrix getCachedMatrix(Long productId) {
+        if (!isCacheable()) {
+            return null;
+        }
+        Element element = getMatrixCache().get(productId);
+        return element == null ? null : (ProductOptionMatrix) element.getObjectValue();
+    }
+
+    protected ProductOptionMatrix buildAndCacheMatrix(Product product) {
+        ProductOptionMatrix matrix = buildMatrix(product);
+        if (isCacheable()) {
+            getMatrixCache().put(new Element(product.getId(), matrix));
+        }
+        return matrix;
+    }
+
+    /**
+     * Reads the skus of the product, their prices and their option values into a new matrix
+     */
+    protected ProductOptionMatrix buildMatrix(Product product) {
+        long start = System.currentTimeMillis();
+        List<Sku> skus = product.getSkus();
+        int size = skus == null ? 0 : skus.size();
+        Long[] skuIds = new Long[size];
+        Money[] prices = new Money[size];
+        boolean[] sellable = new boolean[size];
+        Date[] activeStartDates = new Date[size];
+        Date[] activeEndDates = new Date[size];
+        Long[][] skuOptionValueIds = new Long[size][];
+        Map<Long, String[]> optionValueAttributes = new HashMap<Long, String[]>();
+        for (int i = 0; i < size; i++) {
+            Sku sku = skus.get(i);
+            skuIds[i] = sku.getId();
+            prices[i] = getPrice(sku);
+            sellable[i] = !Boolean.FALSE.equals(sku.getAvailable());
+            activeStartDates[i] = sku.getActiveStartDate();
+            activeEndDates[i] = sku.getActiveEndDate();
+            List<ProductOptionValue> values = sku.getProductOptionValues();
+            skuOptionValueIds[i] = new Long[values.size()];
+            for (int j = 0; j < values.size(); j++) {
+                ProductOptionValue value = values.get(j);
+                skuOptionValueIds[i][j] = value.getId();
+                if (!optionValueAttributes.containsKey(value.getId()) && value.getProductOption() != null) {
+                    optionValueAttributes.put(value.getId(), new String[] {
+                            value.getProductOption().getAttributeName(), value.getAttributeValue() });
+                }
+            }
+        }
+        ProductOptionMatrix matrix = new ProductOptionMatrix(product.getId(), skuIds, prices, sellable, activeStartDates,
+                activeEndDates, skuOptionValueIds, optionValueAttributes);
+        if (LOG.isTraceEnabled()) {
+            LOG.trace("Built option matrix of product " + product.getId() + " with " + size + " skus in "
+                    + (System.currentTimeMillis() - start) + "ms");
+        }
+        return matrix;
+    }
+
+    protected Money getPrice(Sku sku) {
+        if (sku.isOnSale()) {
+            return sku.getSalePrice();
+        }
+        return sku.hasRetailPrice() ? sku.getRetailPrice() : null;
+    }
+
+    /**
+     * @return whether matrices built for the current request may be shared with other requests
+     */
+    protected boolean isCacheable() {
+        if (!enabled) {
+            return false;
+        }
+        BroadleafRequestContext brc = BroadleafRequestContext.getBroadleafRequestContext();
+        if (brc != null && brc.getSandBox() != null) {
+            return false;
+        }
+        if (SkuActiveDateConsiderationContext.hasDynamicActiveDates()) {
+            return false;
+        }
+        return !SkuPricingConsiderationContext.hasDynamicPricing()
+                || SkuPricingConsiderationContext.getSkuPricingService() instanceof DefaultDynamicSkuPricingServiceImpl;
+    }
+
+    @Override
+    public String getSkuPricingJson(ProductOptionMatrix matrix) {
+        BroadleafRequestContext brc = BroadleafRequestContext.getBroadleafRequestContext();
+        Locale locale = brc == null ? null : brc.getJavaLocale();
+        String key = "skuPricing|" + locale;
+        String json = matrix.getSerialized(key);
+        if (json == null) {
+            List<Map<String, Object>> skuPricing = new ArrayList<Map<String, Object>>(matrix.getSkuCount());
+            for (int i = 0; i < matrix.getSkuCount(); i++) {
+                Map<String, Object> dto = new LinkedHashMap<String, Object>();
+                dto.put("selectedOptions", matrix.getSkuOptionValueIds(i));
+                dto.put("price", formatPrice(matrix.getPrice(i), locale));
+                skuPricing.add(dto);
+            }
+            try {
+                json = MAPPER.writeValueAsString(skuPricing);
+            } catch (IOException e) {
+                throw new RuntimeException("Unable to write the sku pricing of product " + matrix.getProductId(), e);
+            }
+            matrix.putSerialized(key, json);
+        }
+        return json;
+    }
+
+    protected String formatPrice(Money price, Locale locale) {
+        if (price == null) {
+            return null;
+        }
+        if (locale != null) {
+            return BroadleafCurrencyUtils.getNumberFormatFromCache(locale, price.getCurrency()).format(price.getAmount());
+        }
+        // Setup your BLC_CURRENCY and BLC_LOCALE to display a diff default.
+        return "$ " + price.getAmount().toString();
+    }
+
+    @Override
+    public void evictMatrix(Long productId) {
+        if (productId != null) {
+            getMatrixCache().remove(productId);
+        }
+    }
+
+    @Override
+    public void onApplicationEvent(CatalogPersistedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        Object entity = event.getEntity();
+        if (entity instanceof Product) {
+            refreshMatrix(((Product) entity).getId());
+        } else if (entity instanceof Sku) {
+            Sku sku = (Sku) entity;
+            if (sku.getProduct() != null) {
+                refreshMatrix(sku.getProduct().getId());
+            }
+            if (sku.getDefaultProduct() != null) {
+                refreshMatrix(sku.getDefaultProduct().getId());
+            }
+        } else if (entity instanceof ProductOption || entity instanceof ProductOptionValue) {
+            getMatrixCache().removeAll();
+        }
+    }
+
+    /**
+     * Evicts the matrix of the given product and, if there was one, rebuilds it in the background
+     */
+    protected void refreshMatrix(final Long productId) {
+        if (productId == null || !getMatrixCache().remove(productId)) {
+            return;
+        }
+        rebuildExecutor.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                TransactionStatus status = TransactionUtils.createTransaction("rebuildProductOptionMatrix",
+                        TransactionDefinition.PROPAGATION_REQUIRED, transactionManager, true);
+                try {
+                    Product product = catalogService.findProductById(productId);
+                    if (product != null) {
+                        getMatrixCache().put(new Element(productId, buildMatrix(product)));
+                    }
+                    TransactionUtils.finalizeTransaction(status, transactionManager, false);
+                } catch (RuntimeException e) {
+                    TransactionUtils.finalizeTransaction(status, transactionManager, true);
+                    LOG.error("Unable to rebuild the option matrix of product " + productId, e);
+                }
+            }
+        });
+    }
+
+    @Override
+    public boolean isAsynchronous() {
+        return false;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    protected Cache getMatrixCache() {
+        // Not synchronized, as this is on the path of every product page. Looking the cache up twice is harmless.
+        Cache cache = matrixCache;
+        if (cache == null) {
+            cache = CacheManager.getInstance().getCache("blProductOptionMatrixElements");
+            matrixCache = cache;
+        }
+        return cache;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+}
@@ -0,0 +1,62 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.core.catalog.service.view;
+
+import org.broadleafcommerce.common.money.Money;
+import org.broadleafcommerce.core.catalog.domain.ProductOptionValue;
+
+import java.io.Serializable;
+
+/**
+ * Read-only copy of a {@link ProductOptionValue}
+ */
+public class ProductOptionValueView implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    protected final Long id;
+    protected final String attributeValue;
+    protected final Long displayOrder;
+    protected final Money priceAdjustment;
+
+    public ProductOptionValueView(ProductOptionValue value) {
+        this.id = value.getId();
+        this.attributeValue = value.getAttributeValue();
+        this.displayOrder = value.getDisplayOrder();
+        this.priceAdjustment = value.getPriceAdjustment();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getAttributeValue() {
+        return attributeValue;
+    }
+
+    public Long getDisplayOrder() {
+        return displayOrder;
+    }
+
+    public Money getPriceAdjustment() {
+        return priceAdjustment;
+    }
+
+}
@@ -0,0 +1,81 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.core.catalog.service.view;
+
+import org.broadleafcommerce.core.catalog.domain.ProductOption;
+import org.broadleafcommerce.core.catalog.domain.ProductOptionValue;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Read-only copy of a {@link ProductOption} and its allowed values
+ */
+public class ProductOptionView implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    protected final Long id;
+    protected final String type;
+    protected final String attributeName;
+    protected final String label;
+    protected final boolean required;
+    protected final List<ProductOptionValueView> allowedValues;
+
+    public ProductOptionView(ProductOption option) {
+        this.id = option.getId();
+        this.type = option.getType() == null ? null : option.getType().getType();
+        this.attributeName = option.getAttributeName();
+        this.label = option.getLabel();
+        this.required = Boolean.TRUE.equals(option.getRequired());
+        List<ProductOptionValueView> values = new ArrayList<ProductOptionValueView>();
+        for (ProductOptionValue value : option.getAllowedValues()) {
+            values.add(new ProductOptionValueView(value));
+        }
+        this.allowedValues = Collections.unmodifiableList(values);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getAttributeName() {
+        return attributeName;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public boolean isRequired() {
+        return required;
+    }
+
+    public List<ProductOptionValueView> getAllowedValues() {
+        return allowedValues;
+    }
+
+}
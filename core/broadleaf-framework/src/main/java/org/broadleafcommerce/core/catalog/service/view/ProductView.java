@@ -0,0 +1,199 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.core.catalog.service.view;
+
+import org.broadleafcommerce.common.media.domain.Media;
+import org.broadleafcommerce.common.money.Money;
+import org.broadleafcommerce.common.persistence.Status;
+import org.broadleafcommerce.common.util.DateUtil;
+import org.broadleafcommerce.core.catalog.domain.Product;
+import org.broadleafcommerce.core.catalog.domain.ProductAttribute;
+import org.broadleafcommerce.core.catalog.domain.ProductOption;
+import org.broadleafcommerce.core.catalog.domain.Sku;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only copy of a {@link Product} for rendering, with its default sku, its additional skus and its product
+ * options. Everything a storefront page typically reads from the product is resolved once, when the view is created,
+ * except whether the product and its skus are active: the active dates are copied and compared with the current time
+ * whenever the view is read, so a cached view does not outlive the product's active window.
+ * 
+ * @see {@link CatalogViewService}
+ */
+public class ProductView implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    protected final Long id;
+    protected final String url;
+    protected final String manufacturer;
+    protected final String model;
+    protected final String promoMessage;
+    protected final Date activeStartDate;
+    protected final Date activeEndDate;
+    protected final boolean archived;
+    protected final SkuView defaultSku;
+    protected final List<SkuView> skus;
+    protected final List<ProductOptionView> productOptions;
+    protected final Map<String, String> attributes;
+
+    public ProductView(Product product) {
+        this.id = product.getId();
+        this.url = product.getUrl();
+        this.manufacturer = product.getManufacturer();
+        this.model = product.getModel();
+        this.promoMessage = product.getPromoMessage();
+        this.activeStartDate = product.getActiveStartDate();
+        this.activeEndDate = product.getActiveEndDate();
+        this.archived = product instanceof Status && Character.valueOf('Y').equals(((Status) product).getArchived());
+        this.defaultSku = product.getDefaultSku() == null ? null : createSkuView(product.getDefaultSku());
+
+        List<SkuView> skus = new ArrayList<SkuView>();
+        for (Sku sku : product.getAdditionalSkus()) {
+            skus.add(createSkuView(sku));
+        }
+        this.skus = Collections.unmodifiableList(skus);
+
+        List<ProductOptionView> options = new ArrayList<ProductOptionView>();
+        for (ProductOption option : product.getProductOptions()) {
+            options.add(new ProductOptionView(option));
+        }
+        this.productOptions = Collections.unmodifiableList(options);
+
+        Map<String, String> attributes = new HashMap<String, String>();
+        for (Map.Entry<String, ProductAttribute> entry : product.getProductAttributes().entrySet()) {
+            attributes.put(entry.getKey(), entry.getValue().getValue());
+        }
+        this.attributes = Collections.unmodifiableMap(attributes);
+    }
+
+    /**
+     * Hook for subclasses that need additional information on the sku views
+     */
+    protected SkuView createSkuView(Sku sku) {
+        return new SkuView(sku);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getName() {
+        return defaultSku == null ? null : defaultSku.getName();
+    }
+
+    public String getDescription() {
+        return defaultSku == null ? null : defaultSku.getDescription();
+    }
+
+    public String getLongDescription() {
+        return defaultSku == null ? null : defaultSku.getLongDescription();
+    }
+
+    public String getManufacturer() {
+        return manufacturer;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public String getPromoMessage() {
+        return promoMessage;
+    }
+
+    /**
+     * @return whether the product is active right now, as {@link Product#isActive()} would answer
+     */
+    public boolean isActive() {
+        return DateUtil.isActive(activeStartDate, activeEndDate, true) && !archived;
+    }
+
+    public Date getActiveStartDate() {
+        return activeStartDate;
+    }
+
+    public Date getActiveEndDate() {
+        return activeEndDate;
+    }
+
+    public Money getRetailPrice() {
+        return defaultSku == null ? null : defaultSku.getRetailPrice();
+    }
+
+    public Money getSalePrice() {
+        return defaultSku == null ? null : defaultSku.getSalePrice();
+    }
+
+    public Money getPrice() {
+        return defaultSku == null ? null : defaultSku.getPrice();
+    }
+
+    public boolean isOnSale() {
+        return defaultSku != null && defaultSku.isOnSale();
+    }
+
+    /**
+     * @return the media of the default sku by key
+     */
+    public Map<String, Media> getMedia() {
+        return defaultSku == null ? Collections.<String, Media>emptyMap() : defaultSku.getMedia();
+    }
+
+    public SkuView getDefaultSku() {
+        return defaultSku;
+    }
+
+    /**
+     * @return the views of the additional skus that are active right now, like {@link Product#getSkus()}
+     */
+    public List<SkuView> getSkus() {
+        List<SkuView> activeSkus = new ArrayList<SkuView>(skus.size());
+        for (SkuView sku : skus) {
+            if (sku.isActive()) {
+                activeSkus.add(sku);
+            }
+        }
+        return Collections.unmodifiableList(activeSkus);
+    }
+
+    public List<ProductOptionView> getProductOptions() {
+        return productOptions;
+    }
+
+    /**
+     * @return the values of the product attributes by attribute name
+     */
+    public Map<String, String> getAttributes() {
+        return attributes;
+    }
+
+}
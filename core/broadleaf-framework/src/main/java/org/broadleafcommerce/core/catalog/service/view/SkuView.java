@@ -0,0 +1,189 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.core.catalog.service.view;
+
+import org.broadleafcommerce.common.media.domain.Media;
+import org.broadleafcommerce.common.media.domain.MediaDto;
+import org.broadleafcommerce.common.money.Money;
+import org.broadleafcommerce.common.util.DateUtil;
+import org.broadleafcommerce.core.catalog.domain.ProductOptionValue;
+import org.broadleafcommerce.core.catalog.domain.Sku;
+import org.broadleafcommerce.core.catalog.domain.SkuAttribute;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Read-only copy of a {@link Sku} for rendering. Prices, translations, media and attributes are resolved once, when
+ * the view is created, so reading them never touches the persistence layer or the dynamic pricing service. Whether
+ * the sku is active is computed from its active dates whenever it is read.
+ * 
+ * @see {@link CatalogViewService}
+ */
+public class SkuView implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    protected final Long id;
+    protected final String name;
+    protected final String description;
+    protected final String longDescription;
+    protected final Money retailPrice;
+    protected final Money salePrice;
+    protected final boolean onSale;
+    protected final Date activeStartDate;
+    protected final Date activeEndDate;
+    protected final boolean available;
+    protected final Map<String, Media> media;
+    protected final Map<String, String> attributes;
+    protected final Long[] productOptionValueIds;
+
+    public SkuView(Sku sku) {
+        this.id = sku.getId();
+        this.name = sku.getName();
+        this.description = sku.getDescription();
+        this.longDescription = sku.getLongDescription();
+        this.retailPrice = sku.hasRetailPrice() ? sku.getRetailPrice() : null;
+        this.salePrice = sku.getSalePrice();
+        this.onSale = sku.isOnSale();
+        // The sku falls back to the dates of its product's default sku when it has none of its own
+        this.activeStartDate = sku.getActiveStartDate();
+        this.activeEndDate = sku.getActiveEndDate();
+        this.available = !Boolean.FALSE.equals(sku.getAvailable());
+        this.media = copyMedia(sku.getSkuMedia());
+
+        Map<String, String> attributes = new HashMap<String, String>();
+        for (Map.Entry<String, SkuAttribute> entry : sku.getSkuAttributes().entrySet()) {
+            attributes.put(entry.getKey(), entry.getValue().getValue());
+        }
+        this.attributes = Collections.unmodifiableMap(attributes);
+
+        Set<ProductOptionValue> values = sku.getProductOptionValuesCollection();
+        Long[] valueIds = new Long[values == null ? 0 : values.size()];
+        int i = 0;
+        if (values != null) {
+            for (ProductOptionValue value : values) {
+                valueIds[i++] = value.getId();
+            }
+        }
+        this.productOptionValueIds = valueIds;
+    }
+
+    /**
+     * Copies the given media so that the view does not hold on to the media entities
+     */
+    protected static Map<String, Media> copyMedia(Map<String, Media> source) {
+        if (source == null || source.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, Media> copy = new HashMap<String, Media>();
+        for (Map.Entry<String, Media> entry : source.entrySet()) {
+            Media media = entry.getValue();
+            MediaDto dto = new MediaDto();
+            dto.setId(media.getId());
+            dto.setUrl(media.getUrl());
+            dto.setTitle(media.getTitle());
+            dto.setAltText(media.getAltText());
+            dto.setTags(media.getTags());
+            copy.put(entry.getKey(), dto);
+        }
+        return Collections.unmodifiableMap(copy);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public String getLongDescription() {
+        return longDescription;
+    }
+
+    public Money getRetailPrice() {
+        return retailPrice;
+    }
+
+    public Money getSalePrice() {
+        return salePrice;
+    }
+
+    /**
+     * @return the sale price if the sku was on sale, otherwise the retail price
+     */
+    public Money getPrice() {
+        return onSale ? salePrice : retailPrice;
+    }
+
+    public boolean isOnSale() {
+        return onSale;
+    }
+
+    /**
+     * @return whether the sku is active right now, as {@link Sku#isActive()} would answer
+     */
+    public boolean isActive() {
+        return DateUtil.isActive(activeStartDate, activeEndDate, true);
+    }
+
+    public Date getActiveStartDate() {
+        return activeStartDate;
+    }
+
+    public Date getActiveEndDate() {
+        return activeEndDate;
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    /**
+     * @return the media of the sku by key. The media objects must not be modified.
+     */
+    public Map<String, Media> getMedia() {
+        return media;
+    }
+
+    /**
+     * @return the values of the sku attributes by attribute name
+     */
+    public Map<String, String> getAttributes() {
+        return attributes;
+    }
+
+    /**
+     * @return the ids of the product option values of this sku. The array must not be modified.
+     */
+    public Long[] getProductOptionValueIds() {
+        return productOptionValueIds;
+    }
+
+}
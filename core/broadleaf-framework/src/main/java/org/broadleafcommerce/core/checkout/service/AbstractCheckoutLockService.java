@@ -0,0 +1,174 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.core.checkout.service;
+
+import org.broadleafcommerce.common.util.EfficientLRUMap;
+import org.broadleafcommerce.core.checkout.service.workflow.CheckoutResponse;
+import org.broadleafcommerce.core.order.domain.Order;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the contention metrics and the recently completed checkouts for {@link CheckoutLockService} implementations,
+ * which only need to provide the actual locking
+ */
+public abstract class AbstractCheckoutLockService implements CheckoutLockService {
+
+    /**
+     * The number of completed checkouts that are remembered
+     */
+    @Value("${checkout.lock.completed.size:1000}")
+    protected int completedCheckoutsSize = 1000;
+
+    protected Map<Long, CompletedCheckout> completedCheckouts;
+
+    /**
+     * Incremented for every completed checkout, so that a waiter can tell whether a checkout completed while it waited
+     */
+    protected final AtomicLong completedSequence = new AtomicLong();
+
+    protected final AtomicLong acquired = new AtomicLong();
+    protected final AtomicLong contended = new AtomicLong();
+    protected final AtomicLong timedOut = new AtomicLong();
+    protected final AtomicLong totalWaitMillis = new AtomicLong();
+
+    @Override
+    public Object acquireLock(Order order, long timeoutMillis) {
+        long start = System.currentTimeMillis();
+        CheckoutLock lock = new CheckoutLock(order.getId(), completedSequence.get());
+        lock.delegate = doAcquireLock(order, Math.max(0L, timeoutMillis), lock);
+        totalWaitMillis.addAndGet(System.currentTimeMillis() - start);
+        if (lock.delegate == null) {
+            timedOut.incrementAndGet();
+            return null;
+        }
+        acquired.incrementAndGet();
+        return lock;
+    }
+
+    @Override
+    public void releaseLock(Object lock, CheckoutResponse response) {
+        if (lock == null) {
+            return;
+        }
+        CheckoutLock checkoutLock = (CheckoutLock) lock;
+        if (response != null && response.getOrder() != null) {
+            Order order = response.getOrder();
+            CompletedCheckout completed = new CompletedCheckout(order.getId(), order.getOrderNumber(),
+                    order.getStatus(), completedSequence.incrementAndGet());
+            getCompletedCheckouts().put(order.getId(), completed);
+        }
+        doReleaseLock(checkoutLock.delegate);
+    }
+
+    @Override
+    public CompletedCheckout getCompletedCheckout(Object lock) {
+        CheckoutLock checkoutLock = (CheckoutLock) lock;
+        if (checkoutLock == null || !checkoutLock.contended) {
+            return null;
+        }
+        CompletedCheckout completed = getCompletedCheckouts().get(checkoutLock.orderId);
+        if (completed == null || completed.getSequence() <= checkoutLock.startSequence) {
+            return null;
+        }
+        return completed;
+    }
+
+    @Override
+    public boolean isContended(Object lock) {
+        return lock != null && ((CheckoutLock) lock).contended;
+    }
+
+    /**
+     * Acquires the lock, calling {@link #recordContention(CheckoutLock)} if it has to wait for another holder
+     * 
+     * @param lock the lock being acquired
+     * @return the implementation specific lock to pass to {@link #doReleaseLock(Object)}, or null if it could not be
+     * acquired within the timeout
+     */
+    protected abstract Object doAcquireLock(Order order, long timeoutMillis, CheckoutLock lock);
+
+    protected abstract void doReleaseLock(Object lock);
+
+    protected void recordContention(CheckoutLock lock) {
+        lock.contended = true;
+        contended.incrementAndGet();
+    }
+
+    protected synchronized Map<Long, CompletedCheckout> getCompletedCheckouts() {
+        if (completedCheckouts == null) {
+            completedCheckouts = new EfficientLRUMap<Long, CompletedCheckout>(completedCheckoutsSize);
+        }
+        return completedCheckouts;
+    }
+
+    @Override
+    @ManagedAttribute(description="The number of checkout locks acquired", currencyTimeLimit=15)
+    public long getAcquiredCount() {
+        return acquired.get();
+    }
+
+    @Override
+    @ManagedAttribute(description="The number of checkout lock acquisitions that had to wait", currencyTimeLimit=15)
+    public long getContendedCount() {
+        return contended.get();
+    }
+
+    @Override
+    @ManagedAttribute(description="The number of checkout lock acquisitions that timed out", currencyTimeLimit=15)
+    public long getTimedOutCount() {
+        return timedOut.get();
+    }
+
+    @Override
+    @ManagedAttribute(description="The total milliseconds spent waiting for checkout locks", currencyTimeLimit=15)
+    public long getTotalWaitMillis() {
+        return totalWaitMillis.get();
+    }
+
+    /**
+     * The lock handed to callers of {@link #acquireLock(Order, long)}
+     */
+    protected static class CheckoutLock {
+
+        protected final Long orderId;
+        protected final long startSequence;
+        protected volatile boolean contended;
+        protected Object delegate;
+
+        public CheckoutLock(Long orderId, long startSequence) {
+            this.orderId = orderId;
+            this.startSequence = startSequence;
+        }
+
+        public Long getOrderId() {
+            return orderId;
+        }
+
+        public boolean isContended() {
+            return contended;
+        }
+
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.core.checkout.service;
+
+import org.broadleafcommerce.core.checkout.service.workflow.CheckoutResponse;
+import org.broadleafcommerce.core.order.domain.Order;
+
+/**
+ * Ensures that only a single request at a time goes through the checkout workflow for a given order. Besides holding
+ * the lock, implementations remember which checkouts recently completed, so that a request that waited for an
+ * in-flight checkout of the same order (for example a double-clicked submit button) can be given its outcome instead
+ * of failing.
+ * 
+ * @see {@link StripedCheckoutLockServiceImpl}
+ * @see {@link DatabaseCheckoutLockServiceImpl}
+ */
+public interface CheckoutLockService {
+
+    /**
+     * Acquires the checkout lock for the given order, waiting up to the given number of milliseconds for another
+     * checkout of the same order to complete. Checkouts of different orders never wait for each other.
+     * 
+     * <b>NOTE</b>: Callers MUST pass the returned lock to {@link #releaseLock(Object, CheckoutResponse)} once the checkout
+     * has completed, in a finally block.
+     * 
+     * @param order
+     * @param timeoutMillis the maximum time to wait; 0 fails immediately if the lock is held
+     * @return the lock, or null if it could not be acquired within the timeout
+     */
+    public Object acquireLock(Order order, long timeoutMillis);
+
+    /**
+     * Releases a lock returned by {@link #acquireLock(Order, long)}. A lock whose lease expired and was taken over by
+     * another caller is left to that caller.
+     * 
+     * @param lock
+     * @param response the outcome of a successful checkout, or null if the checkout failed
+     */
+    public void releaseLock(Object lock, CheckoutResponse response);
+
+    /**
+     * @param lock a lock returned by {@link #acquireLock(Order, long)}
+     * @return the checkout of the same order that completed successfully while the holder of the given lock was
+     * waiting for it, or null if the holder did not wait or the checkout it waited for failed
+     */
+    public CompletedCheckout getCompletedCheckout(Object lock);
+
+    /**
+     * @param lock a lock returned by {@link #acquireLock(Order, long)}
+     * @return whether the holder of the given lock had to wait for another holder of the same order, which may have
+     * checked the order out in the meantime
+     */
+    public boolean isContended(Object lock);
+
+    /**
+     * @return the number of locks that were acquired
+     */
+    public long getAcquiredCount();
+
+    /**
+     * @return the number of acquisitions that had to wait for another holder
+     */
+    public long getContendedCount();
+
+    /**
+     * @return the number of acquisitions that gave up after their timeout
+     */
+    public long getTimedOutCount();
+
+    /**
+     * @return the total number of milliseconds spent waiting for locks
+     */
+    public long getTotalWaitMillis();
+
+}
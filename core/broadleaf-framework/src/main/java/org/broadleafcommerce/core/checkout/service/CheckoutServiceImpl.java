@@ -31,6 +31,7 @@ import org.broadleafcommerce.core.workflow.ActivityMessages;
 import org.broadleafcommerce.core.workflow.ProcessContext;
 import org.broadleafcommerce.core.workflow.Processor;
 import org.broadleafcommerce.core.workflow.WorkflowException;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.HashMap;
@@ -47,28 +48,57 @@ public class CheckoutServiceImpl implements CheckoutService {
 
     @Resource(name="blOrderService")
     protected OrderService orderService;
+
+    @Resource(name="blCheckoutLockService")
+    protected CheckoutLockService checkoutLockService;
+
+    /**
+     * How long, in milliseconds, a request waits for another request that is checking out the same order. With the
+     * default of 0 the request fails immediately, as it always has.
+     */
+    @Value("${checkout.lock.wait.timeout:0}")
+    protected long lockWaitTimeout = 0;
     
     /**
      * Map of locks for given order ids. This lock map ensures that only a single request can handle a particular order
      * at a time
+     * 
+     * @deprecated no longer used, order locks are held by the {@link CheckoutLockService}
      */
+    @Deprecated
     protected static ConcurrentMap<Long, Object> lockMap = new ConcurrentHashMap<Long, Object>();
 
     @Override
     public CheckoutResponse performCheckout(Order order) throws CheckoutException {
-        //Immediately fail if another thread is currently attempting to check out the order
-        Object lockObject = putLock(order.getId());
-        if (lockObject != null) {
+        //Fail if another thread is still checking out the order once the wait timeout has passed
+        Object lock = checkoutLockService.acquireLock(order, lockWaitTimeout);
+        if (lock == null) {
             throw new CheckoutException("This order is already in the process of being submitted, unable to checkout order -- id: " + order.getId(), new CheckoutSeed(order, new HashMap<String, Object>()));
         }
 
-        // Immediately fail if this order has already been checked out previously
-        if (hasOrderBeenCompleted(order)) {
-            throw new CheckoutException("This order has already been submitted or cancelled, unable to checkout order -- id: " + order.getId(), new CheckoutSeed(order, new HashMap<String, Object>()));
-        }
-        
+        CheckoutResponse response = null;
         CheckoutSeed seed = null;
         try {
+            // If we waited for another request that checked out this order, hand back its outcome
+            CompletedCheckout completed = checkoutLockService.getCompletedCheckout(lock);
+            if (completed != null) {
+                Order completedOrder = orderService.findOrderById(completed.getOrderId(), true);
+                return new CheckoutSeed(completedOrder, new HashMap<String, Object>());
+            }
+
+            // A checkout we waited for on another node is only visible in the database, not in the order we loaded
+            if (checkoutLockService.isContended(lock)) {
+                Order currentOrder = orderService.findOrderById(order.getId(), true);
+                if (currentOrder != null && hasOrderBeenCompleted(currentOrder)) {
+                    throw new CheckoutException("This order has already been submitted or cancelled, unable to checkout order -- id: " + order.getId(), new CheckoutSeed(currentOrder, new HashMap<String, Object>()));
+                }
+            }
+
+            // Immediately fail if this order has already been checked out previously
+            if (hasOrderBeenCompleted(order)) {
+                throw new CheckoutException("This order has already been submitted or cancelled, unable to checkout order -- id: " + order.getId(), new CheckoutSeed(order, new HashMap<String, Object>()));
+            }
+
             // Do a final save of the order before going through with the checkout workflow
             order = orderService.save(order, false);
             seed = new CheckoutSeed(order, new HashMap<String, Object>());
@@ -80,6 +110,7 @@ public class CheckoutServiceImpl implements CheckoutService {
             order.getOrderMessages().addAll(((ActivityMessages) context).getActivityMessages());
             seed.setOrder(order);
 
+            response = seed;
             return seed;
         } catch (PricingException e) {
             throw new CheckoutException("Unable to checkout order -- id: " + order.getId(), e, seed);
@@ -88,8 +119,8 @@ public class CheckoutServiceImpl implements CheckoutService {
         } catch (RequiredAttributeNotProvidedException e) {
             throw new CheckoutException("Unable to checkout order -- id: " + order.getId(), e.getCause(), seed);
         } finally {
-            // The order has completed processing, remove the order from the processing map
-            removeLock(order.getId());
+            // The order has completed processing, release it to any request waiting on it
+            checkoutLockService.releaseLock(lock, response);
         }
     }
     
@@ -109,7 +140,9 @@ public class CheckoutServiceImpl implements CheckoutService {
     * @param orderId
     * @return null if there was not already a lock object available. If an object was already in the map, this will return
     * that object, which means that there is already a thread attempting to go through the checkout workflow
+    * @deprecated no longer used, see {@link CheckoutLockService#acquireLock(Order, long)}
     */
+    @Deprecated
     protected Object putLock(Long orderId) {
         return lockMap.putIfAbsent(orderId, new Object());
     }
@@ -118,7 +151,9 @@ public class CheckoutServiceImpl implements CheckoutService {
      * Done with processing the given orderId, remove the lock from the map
      * 
      * @param orderId
+     * @deprecated no longer used, see {@link CheckoutLockService#releaseLock(Object, CheckoutResponse)}
      */
+    @Deprecated
     protected void removeLock(Long orderId) {
         lockMap.remove(orderId);
     }
@@ -0,0 +1,65 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.core.checkout.service;
+
+import org.broadleafcommerce.core.order.service.type.OrderStatus;
+
+import java.io.Serializable;
+
+/**
+ * The outcome of a checkout that completed successfully, as remembered by a {@link CheckoutLockService}. Only the
+ * identifiers are kept so that remembering many checkouts does not keep their order graphs in memory.
+ */
+public class CompletedCheckout implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    protected final Long orderId;
+    protected final String orderNumber;
+    protected final String orderStatus;
+    protected final long sequence;
+
+    public CompletedCheckout(Long orderId, String orderNumber, OrderStatus orderStatus, long sequence) {
+        this.orderId = orderId;
+        this.orderNumber = orderNumber;
+        this.orderStatus = orderStatus == null ? null : orderStatus.getType();
+        this.sequence = sequence;
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public String getOrderNumber() {
+        return orderNumber;
+    }
+
+    public OrderStatus getOrderStatus() {
+        return OrderStatus.getInstance(orderStatus);
+    }
+
+    /**
+     * @return the position of this checkout in the order in which checkouts completed on this node
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+}
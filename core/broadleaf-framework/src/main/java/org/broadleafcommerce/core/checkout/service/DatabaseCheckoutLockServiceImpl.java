@@ -0,0 +1,159 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.core.checkout.service;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.broadleafcommerce.common.util.TransactionUtils;
+import org.broadleafcommerce.core.order.dao.OrderDao;
+import org.broadleafcommerce.core.order.domain.Order;
+import org.broadleafcommerce.core.order.domain.OrderLock;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Resource;
+
+/**
+ * A {@link CheckoutLockService} for clusters that leases an {@link OrderLock} record of the order, polling until it
+ * is free or the timeout passes. The record uses its own key, so it is independent of the lock held by the cart
+ * request filter for the same order. Leases left behind by a node that died are taken over once they are older than
+ * <code>checkout.lock.lease.seconds</code>.
+ * 
+ * The outcomes of completed checkouts are only remembered on the node that performed them. A request that waited for a
+ * checkout on another node is not given that outcome, so {@link CheckoutServiceImpl} reads the order again after
+ * waiting and rejects the checkout if the other node already submitted it.
+ * 
+ * To use it, register it as blCheckoutLockService:
+ * 
+ * <pre>
+ * &lt;bean id="blCheckoutLockService" class="org.broadleafcommerce.core.checkout.service.DatabaseCheckoutLockServiceImpl"/&gt;
+ * </pre>
+ */
+@ManagedResource(objectName="org.broadleafcommerce:name=CheckoutLockService", description="Checkout Lock Service", currencyTimeLimit=15)
+public class DatabaseCheckoutLockServiceImpl extends AbstractCheckoutLockService {
+
+    protected static final Log LOG = LogFactory.getLog(DatabaseCheckoutLockServiceImpl.class);
+
+    public static final String CHECKOUT_LOCK_KEY = "CHECKOUT";
+
+    @Resource(name = "blOrderDao")
+    protected OrderDao orderDao;
+
+    @Resource(name = "blTransactionManager")
+    protected PlatformTransactionManager transactionManager;
+
+    @Value("${checkout.lock.database.pollingIntervalMs:250}")
+    protected long pollingIntervalMs = 250;
+
+    @Value("${checkout.lock.lease.seconds:300}")
+    protected long leaseSeconds = 300;
+
+    /**
+     * The timestamp of the last lease taken on this node, used to keep lease timestamps unique
+     */
+    protected final AtomicLong lastLeaseTimestamp = new AtomicLong();
+
+    @Override
+    protected Object doAcquireLock(Order order, long timeoutMillis, CheckoutLock checkoutLock) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (true) {
+            try {
+                long leaseTimestamp = nextLeaseTimestamp();
+                if (tryAcquireLock(order, leaseTimestamp)) {
+                    return new DatabaseLease(order, leaseTimestamp);
+                }
+            } catch (RuntimeException e) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Couldn't acquire the checkout lock for order " + order.getId() + ", retrying", e);
+                }
+            }
+            if (!checkoutLock.isContended()) {
+                recordContention(checkoutLock);
+            }
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return null;
+            }
+            try {
+                Thread.sleep(Math.min(remaining, pollingIntervalMs));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Attempts the lease in its own transaction so that other nodes see it right away, even when the checkout
+     * itself runs inside a larger transaction
+     */
+    protected boolean tryAcquireLock(Order order, long leaseTimestamp) {
+        TransactionStatus status = TransactionUtils.createTransaction("acquireCheckoutLock",
+                TransactionDefinition.PROPAGATION_REQUIRES_NEW, transactionManager, false);
+        boolean acquired;
+        try {
+            acquired = orderDao.acquireLock(order, CHECKOUT_LOCK_KEY, leaseSeconds * 1000L, leaseTimestamp);
+        } catch (RuntimeException e) {
+            TransactionUtils.finalizeTransaction(status, transactionManager, true);
+            throw e;
+        }
+        TransactionUtils.finalizeTransaction(status, transactionManager, false);
+        return acquired;
+    }
+
+    /**
+     * Releases the lease only if it is still ours, since it may have expired and been taken over by another node
+     */
+    @Override
+    protected void doReleaseLock(Object lock) {
+        DatabaseLease lease = (DatabaseLease) lock;
+        if (!orderDao.releaseLock(lease.order, CHECKOUT_LOCK_KEY, lease.leaseTimestamp)) {
+            LOG.warn("The checkout lock lease of order " + lease.order.getId() + " expired before the checkout completed");
+        }
+    }
+
+    protected long nextLeaseTimestamp() {
+        while (true) {
+            long last = lastLeaseTimestamp.get();
+            long next = Math.max(System.currentTimeMillis(), last + 1);
+            if (lastLeaseTimestamp.compareAndSet(last, next)) {
+                return next;
+            }
+        }
+    }
+
+    protected static class DatabaseLease {
+
+        protected final Order order;
+        protected final long leaseTimestamp;
+
+        public DatabaseLease(Order order, long leaseTimestamp) {
+            this.order = order;
+            this.leaseTimestamp = leaseTimestamp;
+        }
+
+    }
+
+}
@@ -0,0 +1,129 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.core.checkout.service;
+
+import org.broadleafcommerce.core.order.domain.Order;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * A {@link CheckoutLockService} for a single node. Every order being checked out has its own lease, so checkouts of
+ * different orders never wait for each other. The leases are kept in maps guarded by a fixed number of stripes, which
+ * only limits how many checkouts contend for the same monitor, and a lease is removed again when it is released. A
+ * holder that does not release its lease within <code>checkout.lock.lease.seconds</code> (for example because its
+ * thread died) loses it to the next waiter.
+ */
+@Service("blCheckoutLockService")
+@ManagedResource(objectName="org.broadleafcommerce:name=CheckoutLockService", description="Checkout Lock Service", currencyTimeLimit=15)
+public class StripedCheckoutLockServiceImpl extends AbstractCheckoutLockService {
+
+    @Value("${checkout.lock.stripes:256}")
+    protected int stripeCount = 256;
+
+    @Value("${checkout.lock.lease.seconds:300}")
+    protected int leaseSeconds = 300;
+
+    protected Stripe[] stripes;
+
+    @PostConstruct
+    public void init() {
+        stripes = new Stripe[Math.max(1, stripeCount)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    @Override
+    protected Object doAcquireLock(Order order, long timeoutMillis, CheckoutLock checkoutLock) {
+        Long orderId = order.getId();
+        Stripe stripe = getStripe(orderId);
+        synchronized (stripe) {
+            long now = System.currentTimeMillis();
+            long deadline = now + timeoutMillis;
+            OrderLease lease = stripe.leases.get(orderId);
+            while (lease != null && lease.expires > now) {
+                if (!checkoutLock.isContended()) {
+                    recordContention(checkoutLock);
+                }
+                if (now >= deadline) {
+                    return null;
+                }
+                try {
+                    // releases of other orders of the stripe wake us up as well, so the lease is checked again
+                    stripe.wait(Math.min(deadline, lease.expires) - now);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return null;
+                }
+                now = System.currentTimeMillis();
+                lease = stripe.leases.get(orderId);
+            }
+            OrderLease acquired = new OrderLease(stripe, orderId, now + leaseSeconds * 1000L);
+            stripe.leases.put(orderId, acquired);
+            return acquired;
+        }
+    }
+
+    @Override
+    protected void doReleaseLock(Object lock) {
+        OrderLease lease = (OrderLease) lock;
+        Stripe stripe = lease.stripe;
+        synchronized (stripe) {
+            // A holder whose lease expired may have been replaced already
+            if (stripe.leases.get(lease.orderId) == lease) {
+                stripe.leases.remove(lease.orderId);
+                stripe.notifyAll();
+            }
+        }
+    }
+
+    protected Stripe getStripe(Long orderId) {
+        int hash = orderId == null ? 0 : orderId.hashCode();
+        hash ^= (hash >>> 16);
+        return stripes[(hash & Integer.MAX_VALUE) % stripes.length];
+    }
+
+    protected static class Stripe {
+
+        protected final Map<Long, OrderLease> leases = new HashMap<Long, OrderLease>();
+
+    }
+
+    protected static class OrderLease {
+
+        protected final Stripe stripe;
+        protected final Long orderId;
+        protected final long expires;
+
+        public OrderLease(Stripe stripe, Long orderId, long expires) {
+            this.stripe = stripe;
+            this.orderId = orderId;
+            this.expires = expires;
+        }
+
+    }
+
+}
@@ -24,6 +24,9 @@ import org.broadleafcommerce.core.offer.service.OfferService;
 import org.broadleafcommerce.core.offer.service.workflow.RecordOfferUsageActivity;
 import org.broadleafcommerce.core.offer.service.workflow.VerifyCustomerMaxOfferUsesActivity;
 
+import java.util.Collection;
+import java.util.Map;
+
 /**
  * DAO for auditing what went on with offers being added to an order
  *
@@ -64,4 +67,13 @@ public interface OfferAuditDao {
      */
     public Long countOfferCodeUses(Long offerCodeId);
 
+    /**
+     * Counts how many times each of the given offers has been used by a customer, in a single query
+     * 
+     * @param customerId
+     * @param offerIds
+     * @return the number of uses keyed by offer id; offers that were never used by the customer are not included
+     */
+    public Map<Long, Long> countUsesByCustomer(Long customerId, Collection<Long> offerIds);
+
 }
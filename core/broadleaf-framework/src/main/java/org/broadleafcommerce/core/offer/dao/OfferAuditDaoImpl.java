@@ -27,9 +27,15 @@ import org.broadleafcommerce.core.offer.domain.OfferAudit;
 import org.broadleafcommerce.core.offer.domain.OfferAuditImpl;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import javax.annotation.Resource;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
 import javax.persistence.TypedQuery;
 
 @Repository("blOfferAuditDao")
@@ -88,4 +94,25 @@ public class OfferAuditDaoImpl implements OfferAuditDao {
         return result;
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<Long, Long> countUsesByCustomer(Long customerId, Collection<Long> offerIds) {
+        if (offerIds.isEmpty()) {
+            return new HashMap<Long, Long>();
+        }
+        Query query = em.createNamedQuery("BC_COUNT_OFFER_USES_BY_CUSTOMER");
+        query.setParameter("customerId", customerId);
+        query.setParameter("offerIds", offerIds);
+
+        return toCountMap(query.getResultList());
+    }
+
+    protected Map<Long, Long> toCountMap(List<Object[]> rows) {
+        Map<Long, Long> counts = new HashMap<Long, Long>(rows.size());
+        for (Object[] row : rows) {
+            counts.put((Long) row[0], ((Number) row[1]).longValue());
+        }
+        return counts;
+    }
+
 }
@@ -23,6 +23,9 @@ import org.broadleafcommerce.core.offer.domain.Offer;
 import org.broadleafcommerce.core.offer.domain.OfferAudit;
 import org.broadleafcommerce.profile.core.domain.Customer;
 
+import java.util.Collection;
+import java.util.Map;
+
 
 /**
  * Service for managing {@link OfferAudit}s. An {@link OfferAudit} is used to track usage of an offer and offer code
@@ -63,5 +66,17 @@ public interface OfferAuditService {
      * @return
      */
     public Long countOfferCodeUses(Long offerCodeId);
+
+    /**
+     * Reads how many times each of the given offers has been used by a customer from the offer usage ledger. Counts
+     * that are not in the ledger yet are loaded together in a single query. Since the ledger is a cache, the result
+     * may briefly lag behind audits written by other nodes; use {@link #countUsesByCustomer(Long, Long)} where an exact
+     * count is required, such as during checkout.
+     * 
+     * @param customerId
+     * @param offerIds
+     * @return the number of uses keyed by offer id, including offers that were never used
+     */
+    public Map<Long, Long> readUsesByCustomer(Long customerId, Collection<Long> offerIds);
     
 }
@@ -19,16 +19,35 @@
  */
 package org.broadleafcommerce.core.offer.service;
 
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Element;
+
 import org.broadleafcommerce.common.util.TransactionUtils;
 import org.broadleafcommerce.core.offer.dao.OfferAuditDao;
 import org.broadleafcommerce.core.offer.domain.OfferAudit;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.Resource;
 
 
 /**
+ * Besides the audit records themselves, this keeps a ledger of how often customers used offers in the
+ * <code>blOfferUsageElements</code> cache, so that building the offer list for an order does not need a count query
+ * per limited-use offer. Counts are loaded in batches on demand and evicted once a transaction that saves or deletes
+ * an audit for them commits. The audit table remains the source of truth: the exact count methods never consult the
+ * ledger, and entries written on other nodes are only picked up once the local entry expires.
  *
  * @author Phillip Verheyden (phillipuniverse)
  */
@@ -37,6 +56,17 @@ public class OfferAuditServiceImpl implements OfferAuditService {
     
     @Resource(name = "blOfferAuditDao")
     protected OfferAuditDao offerAuditDao;
+
+    @Value("${offer.usage.ledger.enabled:true}")
+    protected boolean ledgerEnabled = true;
+
+    protected Cache ledgerCache;
+
+    /**
+     * Incremented whenever committed audits evict ledger entries, so that a count loaded concurrently with the commit
+     * is not left behind in the ledger
+     */
+    protected final AtomicLong ledgerGeneration = new AtomicLong();
     
     @Override
     public OfferAudit readAuditById(Long offerAuditId) {
@@ -46,13 +76,19 @@ public class OfferAuditServiceImpl implements OfferAuditService {
     @Override
     @Transactional(TransactionUtils.DEFAULT_TRANSACTION_MANAGER)
     public OfferAudit save(OfferAudit offerAudit) {
-        return offerAuditDao.save(offerAudit);
+        boolean newAudit = offerAudit.getId() == null;
+        OfferAudit saved = offerAuditDao.save(offerAudit);
+        if (newAudit) {
+            evictLedgerAfterCommit(saved);
+        }
+        return saved;
     }
     
     @Override
     @Transactional(TransactionUtils.DEFAULT_TRANSACTION_MANAGER)
     public void delete(OfferAudit offerAudit) {
         offerAuditDao.delete(offerAudit);
+        evictLedgerAfterCommit(offerAudit);
     }
 
     @Override
@@ -70,5 +106,101 @@ public class OfferAuditServiceImpl implements OfferAuditService {
         return offerAuditDao.countOfferCodeUses(offerCodeId);
     }
 
+    @Override
+    public Map<Long, Long> readUsesByCustomer(Long customerId, Collection<Long> offerIds) {
+        if (!ledgerEnabled) {
+            Map<Long, Long> uses = offerAuditDao.countUsesByCustomer(customerId, offerIds);
+            fillMissingCounts(uses, offerIds);
+            return uses;
+        }
+        Map<Long, Long> uses = new HashMap<Long, Long>(offerIds.size());
+        List<Long> missingOfferIds = new ArrayList<Long>();
+        for (Long offerId : offerIds) {
+            Long count = readLedgerCount(getCustomerOfferKey(customerId, offerId));
+            if (count == null) {
+                missingOfferIds.add(offerId);
+            } else {
+                uses.put(offerId, count);
+            }
+        }
+        if (!missingOfferIds.isEmpty()) {
+            long generation = ledgerGeneration.get();
+            Map<Long, Long> loaded = offerAuditDao.countUsesByCustomer(customerId, missingOfferIds);
+            fillMissingCounts(loaded, missingOfferIds);
+            for (Map.Entry<Long, Long> entry : loaded.entrySet()) {
+                putLedgerCount(getCustomerOfferKey(customerId, entry.getKey()), entry.getValue(), generation);
+            }
+            uses.putAll(loaded);
+        }
+        return uses;
+    }
+
+    /**
+     * Evicts the ledger counts affected by the given audit once the current transaction commits, so that neither a
+     * rolled back audit nor a count read before the commit is kept in the ledger. Without a transaction the counts are
+     * evicted immediately.
+     */
+    protected void evictLedgerAfterCommit(final OfferAudit offerAudit) {
+        if (!ledgerEnabled) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    evictLedger(offerAudit);
+                }
+            });
+        } else {
+            evictLedger(offerAudit);
+        }
+    }
+
+    protected void evictLedger(OfferAudit offerAudit) {
+        // Bump the generation before removing, so a count loaded before this audit was visible is either dropped by
+        // its loader or put in time to be removed here
+        ledgerGeneration.incrementAndGet();
+        if (offerAudit.getCustomerId() != null && offerAudit.getOfferId() != null) {
+            getLedgerCache().remove(getCustomerOfferKey(offerAudit.getCustomerId(), offerAudit.getOfferId()));
+        }
+    }
+
+    /**
+     * Caches a count loaded from the audit table, unless an audit was committed since the count was loaded, in which
+     * case the count may already be stale
+     * 
+     * @param generation the value of {@link #ledgerGeneration} from before the count was loaded
+     */
+    protected void putLedgerCount(String key, Long count, long generation) {
+        Element element = new Element(key, count);
+        getLedgerCache().putIfAbsent(element);
+        if (ledgerGeneration.get() != generation) {
+            getLedgerCache().removeElement(element);
+        }
+    }
+
+    protected Long readLedgerCount(String key) {
+        Element element = getLedgerCache().get(key);
+        return element == null ? null : (Long) element.getObjectValue();
+    }
+
+    protected void fillMissingCounts(Map<Long, Long> counts, Collection<Long> ids) {
+        for (Long id : ids) {
+            if (!counts.containsKey(id)) {
+                counts.put(id, 0L);
+            }
+        }
+    }
+
+    protected String getCustomerOfferKey(Long customerId, Long offerId) {
+        return "customer:" + customerId + ":offer:" + offerId;
+    }
+
+    protected Cache getLedgerCache() {
+        if (ledgerCache == null) {
+            ledgerCache = CacheManager.getInstance().getCache("blOfferUsageElements");
+        }
+        return ledgerCache;
+    }
 
 }
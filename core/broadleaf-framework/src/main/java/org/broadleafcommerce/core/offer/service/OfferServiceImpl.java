@@ -59,6 +59,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -180,8 +181,9 @@ public class OfferServiceImpl implements OfferService {
             }
         }
         List<Offer> globalOffers = lookupAutomaticDeliveryOffers();
+        Map<Long, Long> customerUses = readLimitedOfferUses(order.getCustomer(), globalOffers);
         for (Offer globalOffer : globalOffers) {
-            if (!offers.contains(globalOffer) && verifyMaxCustomerUsageThreshold(order.getCustomer(), globalOffer)) {
+            if (!offers.contains(globalOffer) && isUnderMaxCustomerUses(globalOffer, customerUses)) {
                 offers.add(globalOffer);
             }
         }
@@ -487,6 +489,37 @@ public class OfferServiceImpl implements OfferService {
         }
         return underCodeMaxUses && verifyMaxCustomerUsageThreshold(customer, code.getOffer());
     }
+
+    /**
+     * Reads the number of times the customer used each of the given offers that are limited per customer, with a single
+     * lookup in the offer usage ledger. The ledger may lag behind audits written on other nodes, so this only narrows
+     * the automatic offers considered while pricing; {@link #verifyMaxCustomerUsageThreshold(Customer, Offer)} and
+     * checkout still use exact counts.
+     * 
+     * @return the number of uses keyed by offer id
+     */
+    protected Map<Long, Long> readLimitedOfferUses(Customer customer, List<Offer> offers) {
+        List<Long> limitedOfferIds = new ArrayList<Long>();
+        for (Offer offer : offers) {
+            if (offer.isLimitedUsePerCustomer()) {
+                limitedOfferIds.add(offer.getId());
+            }
+        }
+        if (limitedOfferIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return offerAuditService.readUsesByCustomer(customer.getId(), limitedOfferIds);
+    }
+
+    protected boolean isUnderMaxCustomerUses(Offer offer, Map<Long, Long> customerUses) {
+        if (offer.isLimitedUsePerCustomer()) {
+            Long currentUses = customerUses.get(offer.getId());
+            if (currentUses != null && currentUses >= offer.getMaxUsesPerCustomer()) {
+                return false;
+            }
+        }
+        return true;
+    }
     
     @Override
     @SuppressWarnings("unchecked")
@@ -22,6 +22,7 @@ package org.broadleafcommerce.core.offer.service.discount.domain;
 import org.broadleafcommerce.common.currency.domain.BroadleafCurrency;
 import org.broadleafcommerce.common.currency.util.BroadleafCurrencyUtils;
 import org.broadleafcommerce.common.money.Money;
+import org.broadleafcommerce.common.money.MoneyAccumulator;
 import org.broadleafcommerce.core.offer.domain.OrderAdjustment;
 import org.broadleafcommerce.core.offer.service.discount.OrderItemPriceComparator;
 import org.broadleafcommerce.core.order.domain.FulfillmentGroup;
@@ -270,12 +271,12 @@ public class PromotableOrderImpl implements PromotableOrder {
 
     @Override
     public Money calculateItemAdjustmentTotal() {
-        Money itemAdjustmentTotal = BroadleafCurrencyUtils.getMoney(order.getCurrency());
+        MoneyAccumulator itemAdjustmentTotal = new MoneyAccumulator(BroadleafCurrencyUtils.getMoney(order.getCurrency()));
 
         for (PromotableOrderItem item : getDiscountableOrderItems()) {
-            itemAdjustmentTotal = itemAdjustmentTotal.add(item.calculateTotalAdjustmentValue());
+            itemAdjustmentTotal.add(item.calculateTotalAdjustmentValue());
         }
-        return itemAdjustmentTotal;
+        return itemAdjustmentTotal.toMoney();
     }
 
     public List<PromotableOrderItemPriceDetail> getAllPromotableOrderItemPriceDetails() {
@@ -319,20 +320,20 @@ public class PromotableOrderImpl implements PromotableOrder {
     
     @Override
     public Money calculateSubtotalWithoutAdjustments() {
-        Money calculatedSubTotal = BroadleafCurrencyUtils.getMoney(order.getCurrency());
+        MoneyAccumulator calculatedSubTotal = new MoneyAccumulator(BroadleafCurrencyUtils.getMoney(order.getCurrency()));
         for (PromotableOrderItem orderItem : getAllOrderItems()) {
-            calculatedSubTotal = calculatedSubTotal.add(orderItem.calculateTotalWithoutAdjustments());
+            calculatedSubTotal.add(orderItem.calculateTotalWithoutAdjustments());
         }
-        return calculatedSubTotal;
+        return calculatedSubTotal.toMoney();
     }
 
     @Override
     public Money calculateSubtotalWithAdjustments() {
-        Money calculatedSubTotal = BroadleafCurrencyUtils.getMoney(order.getCurrency());
+        MoneyAccumulator calculatedSubTotal = new MoneyAccumulator(BroadleafCurrencyUtils.getMoney(order.getCurrency()));
         for (PromotableOrderItem orderItem : getAllOrderItems()) {
-            calculatedSubTotal = calculatedSubTotal.add(orderItem.calculateTotalWithAdjustments());
+            calculatedSubTotal.add(orderItem.calculateTotalWithAdjustments());
         }
-        return calculatedSubTotal;
+        return calculatedSubTotal.toMoney();
     }
 
     @Override
@@ -347,12 +348,12 @@ public class PromotableOrderImpl implements PromotableOrder {
 
 	@Override
 	public Money calculateSubtotalForOffer() {
-		Money calculatedSubTotal = BroadleafCurrencyUtils.getMoney(order.getCurrency());
+		MoneyAccumulator calculatedSubTotal = new MoneyAccumulator(BroadleafCurrencyUtils.getMoney(order.getCurrency()));
         for (PromotableOrderItem orderItem : getAllOrderItems()) {
         	if (orderItem.getOrderItem().appliesToOrderOffer()) {
-        		calculatedSubTotal = calculatedSubTotal.add(orderItem.calculateTotalWithAdjustments());
+        		calculatedSubTotal.add(orderItem.calculateTotalWithAdjustments());
         	}
         }
-        return calculatedSubTotal;
+        return calculatedSubTotal.toMoney();
 	}
 }
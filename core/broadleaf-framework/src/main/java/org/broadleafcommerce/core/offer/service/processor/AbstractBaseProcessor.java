@@ -27,6 +27,7 @@ import org.broadleafcommerce.common.RequestDTO;
 import org.broadleafcommerce.common.TimeDTO;
 import org.broadleafcommerce.common.money.Money;
 import org.broadleafcommerce.common.rule.MvelHelper;
+import org.broadleafcommerce.common.rule.RuleResultMemoService;
 import org.broadleafcommerce.common.time.SystemTime;
 import org.broadleafcommerce.common.web.BroadleafRequestContext;
 import org.broadleafcommerce.core.offer.domain.Offer;
@@ -76,6 +77,9 @@ public abstract class AbstractBaseProcessor implements BaseProcessor {
     @Resource(name = "blOfferServiceExtensionManager")
     protected OfferServiceExtensionManager extensionManager;
 
+    @Resource(name = "blRuleResultMemoService")
+    protected RuleResultMemoService ruleResultMemoService;
+
     protected CandidatePromotionItems couldOfferApplyToOrderItems(Offer offer, List<PromotableOrderItem> promotableOrderItems) {
         CandidatePromotionItems candidates = new CandidatePromotionItems();
         if (offer.getQualifyingItemCriteriaXref() == null || offer.getQualifyingItemCriteriaXref().size() == 0) {
@@ -235,6 +239,10 @@ public abstract class AbstractBaseProcessor implements BaseProcessor {
      * @return a Boolean object containing the result of executing the MVEL expression
      */
     public Boolean executeExpression(String expression, Map<String, Object> vars) {
+        Boolean memoized = ruleResultMemoService == null ? null : ruleResultMemoService.getResult(expression, vars);
+        if (memoized != null) {
+            return memoized;
+        }
         try {
             Serializable exp;
             synchronized (EXPRESSION_CACHE) {
@@ -255,6 +263,10 @@ public abstract class AbstractBaseProcessor implements BaseProcessor {
 
             Object test = MVEL.executeExpression(exp, vars);
             
+            // Only boolean outcomes are remembered, anything else still fails the cast below as it always has
+            if (ruleResultMemoService != null && test instanceof Boolean) {
+                ruleResultMemoService.putResult(expression, vars, (Boolean) test);
+            }
             return (Boolean) test;
         } catch (Exception e) {
             //Unable to execute the MVEL expression for some reason
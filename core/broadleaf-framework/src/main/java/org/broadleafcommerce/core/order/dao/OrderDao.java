@@ -76,6 +76,19 @@ public interface OrderDao {
      */
     public boolean acquireLock(Order order);
 
+    /**
+     * Same as {@link #acquireLock(Order)}, but for a lock record with the given key. Different keys give independent
+     * locks on the same order.
+     * 
+     * @param order
+     * @param orderLockKey
+     * @param orderLockTimeToLive milliseconds after which a held lock may be taken over, or -1 to never take it over
+     * @param leaseTimestamp the time to record as the last update of the lock, which identifies this lease to
+     * {@link #releaseLock(Order, String, Long)}
+     * @return true if the lock was acquired, false otherwise
+     */
+    public boolean acquireLock(Order order, String orderLockKey, Long orderLockTimeToLive, Long leaseTimestamp);
+
     /**
      * Releases the lock for the given order. Note that this method will release the lock for the order whether or not
      * the caller was the current owner of the lock. As such, callers of this method should take care to ensure they
@@ -86,4 +99,25 @@ public interface OrderDao {
      */
     public boolean releaseLock(Order order);
 
+    /**
+     * Releases the lock record with the given key for the given order
+     * 
+     * @param order
+     * @param orderLockKey
+     * @return true if the lock was successfully released, false otherwise
+     * @see #acquireLock(Order, String, Long, Long)
+     */
+    public boolean releaseLock(Order order, String orderLockKey);
+
+    /**
+     * Releases the lock record with the given key for the given order, but only if it is still held by the lease that
+     * was acquired with the given timestamp. A lease that expired and was taken over by another caller is left alone.
+     * 
+     * @param order
+     * @param orderLockKey
+     * @param leaseTimestamp the timestamp passed to {@link #acquireLock(Order, String, Long, Long)}
+     * @return true if the lock was successfully released, false otherwise
+     */
+    public boolean releaseLock(Order order, String orderLockKey, Long leaseTimestamp);
+
 }
@@ -306,7 +306,11 @@ public class OrderDaoImpl implements OrderDao {
 
     @Override
     public boolean acquireLock(Order order) {
-        String orderLockKey = getOrderLockKey();
+        return acquireLock(order, getOrderLockKey(), getDatabaseOrderLockTimeToLive(), System.currentTimeMillis());
+    }
+
+    @Override
+    public boolean acquireLock(Order order, String orderLockKey, Long orderLockTimeToLive, Long leaseTimestamp) {
         // First, we'll see if there's a record of a lock for this order
         Query q = em.createNamedQuery("BC_ORDER_LOCK_READ");
         q.setParameter("orderId", order.getId());
@@ -323,7 +327,7 @@ public class OrderDaoImpl implements OrderDao {
                 ol.setOrderId(order.getId());
                 ol.setLocked(true);
                 ol.setKey(orderLockKey);
-                ol.setLastUpdated(System.currentTimeMillis());
+                ol.setLastUpdated(leaseTimestamp);
                 em.persist(ol);
                 return true;
             } catch (EntityExistsException e) {
@@ -336,9 +340,8 @@ public class OrderDaoImpl implements OrderDao {
         // we acquired the lock. 
         q = em.createNamedQuery("BC_ORDER_LOCK_ACQUIRE");
         q.setParameter("orderId", order.getId());
-        q.setParameter("currentTime", System.currentTimeMillis());
+        q.setParameter("currentTime", leaseTimestamp);
         q.setParameter("key", orderLockKey);
-        Long orderLockTimeToLive = getDatabaseOrderLockTimeToLive();
         q.setParameter("timeout", orderLockTimeToLive==-1L?orderLockTimeToLive:System.currentTimeMillis() - orderLockTimeToLive);
         q.setHint(QueryHints.HINT_CACHEABLE, false);
         int rowsAffected = q.executeUpdate();
@@ -348,14 +351,30 @@ public class OrderDaoImpl implements OrderDao {
 
     @Override
     public boolean releaseLock(final Order order) {
+        return releaseLock(order, getOrderLockKey());
+    }
+
+    @Override
+    public boolean releaseLock(final Order order, final String orderLockKey) {
+        return releaseLock(order, orderLockKey, null);
+    }
+
+    @Override
+    public boolean releaseLock(final Order order, final String orderLockKey, final Long leaseTimestamp) {
         final boolean[] response = {false};
         try {
             transUtil.runTransactionalOperation(new StreamCapableTransactionalOperationAdapter() {
                 @Override
                 public void execute() throws Throwable {
-                    Query q = em.createNamedQuery("BC_ORDER_LOCK_RELEASE");
+                    Query q;
+                    if (leaseTimestamp == null) {
+                        q = em.createNamedQuery("BC_ORDER_LOCK_RELEASE");
+                    } else {
+                        q = em.createNamedQuery("BC_ORDER_LOCK_RELEASE_LEASE");
+                        q.setParameter("lastUpdated", leaseTimestamp);
+                    }
                     q.setParameter("orderId", order.getId());
-                    q.setParameter("key", getOrderLockKey());
+                    q.setParameter("key", orderLockKey);
                     q.setHint(QueryHints.HINT_CACHEABLE, false);
                     int rowsAffected = q.executeUpdate();
                     response[0] = rowsAffected == 1;
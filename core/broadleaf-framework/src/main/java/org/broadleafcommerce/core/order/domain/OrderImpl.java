@@ -43,6 +43,7 @@ import org.broadleafcommerce.common.presentation.override.AdminPresentationMerge
 import org.broadleafcommerce.common.presentation.override.AdminPresentationMergeOverride;
 import org.broadleafcommerce.common.presentation.override.AdminPresentationMergeOverrides;
 import org.broadleafcommerce.common.presentation.override.PropertyType;
+import org.broadleafcommerce.common.util.Wrappable;
 import org.broadleafcommerce.core.catalog.domain.Sku;
 import org.broadleafcommerce.core.offer.domain.*;
 import org.broadleafcommerce.core.order.service.call.ActivityMessageDTO;
@@ -705,6 +706,10 @@ public class OrderImpl implements Order, AdminMainEntity, CurrencyCodeIdentifiab
         if (obj == null) {
             return false;
         }
+        if (obj instanceof Wrappable && ((Wrappable) obj).isUnwrappableAs(OrderImpl.class)) {
+            // Compare against the order behind a proxy, such as the lazily loaded cart
+            obj = ((Wrappable) obj).unwrap(OrderImpl.class);
+        }
         if (!getClass().isAssignableFrom(obj.getClass())) {
             return false;
         }
@@ -26,6 +26,8 @@ import org.broadleafcommerce.core.catalog.domain.ProductOptionValue;
 import org.broadleafcommerce.core.catalog.domain.Sku;
 import org.broadleafcommerce.core.catalog.domain.SkuProductOptionValueXref;
 import org.broadleafcommerce.core.catalog.service.CatalogService;
+import org.broadleafcommerce.core.catalog.service.ProductOptionMatrix;
+import org.broadleafcommerce.core.catalog.service.ProductOptionMatrixService;
 import org.broadleafcommerce.core.catalog.service.type.ProductOptionValidationStrategyType;
 import org.broadleafcommerce.core.order.domain.OrderItem;
 import org.broadleafcommerce.core.order.service.OrderItemService;
@@ -66,6 +68,9 @@ public class ValidateAddRequestActivity extends BaseActivity<ProcessContext<Cart
     @Resource(name = "blOrderItemService")
     protected OrderItemService orderItemService;
 
+    @Resource(name = "blProductOptionMatrixService")
+    protected ProductOptionMatrixService productOptionMatrixService;
+
     @Override
     public ProcessContext<CartOperationRequest> execute(ProcessContext<CartOperationRequest> context) throws Exception {
         CartOperationRequest request = context.getSeedData();
@@ -211,6 +216,31 @@ public class ValidateAddRequestActivity extends BaseActivity<ProcessContext<Cart
         Map<String, String> attributeValuesForSku = getAttributeValuesForSku(product, attributeValues, messages);
         // Verify that required product-option values were set.
 
+        if (product != null && productOptionMatrixService.isEnabled()) {
+            // Look the sku up in the option matrix rather than loading the option values of every sku. The matrix can
+            // predate a catalog change made on another node, so its sku is only used once it checks out against the
+            // entities, and otherwise the skus are scanned after all.
+            ProductOptionMatrix matrix = productOptionMatrixService.getMatrix(product);
+            Long skuId = matrix.findSkuIdByAttributes(attributeValuesForSku);
+            if (skuId != null) {
+                Sku sku = catalogService.findSkuById(skuId);
+                if (sku != null && isSkuOfProduct(sku, product) && sku.isActive()
+                        && checkSkuForMatch(sku, attributeValuesForSku)) {
+                    return sku;
+                }
+            }
+            Sku sku = scanForMatchingSku(product, attributeValuesForSku);
+            if (sku != null || skuId != null) {
+                // The matrix disagrees with the entities, so build it again on its next use
+                productOptionMatrixService.evictMatrix(product.getId());
+            }
+            return sku;
+        }
+
+        return scanForMatchingSku(product, attributeValuesForSku);
+    }
+
+    protected Sku scanForMatchingSku(Product product, Map<String, String> attributeValuesForSku) {
 		if (product != null && product.getSkus() != null) {
 			for (Sku sku : product.getSkus()) {
 				if (checkSkuForMatch(sku, attributeValuesForSku)) {
@@ -221,6 +251,10 @@ public class ValidateAddRequestActivity extends BaseActivity<ProcessContext<Cart
 
         return null;
     }
+
+    protected boolean isSkuOfProduct(Sku sku, Product product) {
+        return sku.getProduct() != null && product.getId().equals(sku.getProduct().getId());
+    }
     
     protected void checkSkuForMatch(Sku sku, Product product, Map<String, String> attributeValues, ActivityMessages messages) {
     	for (SkuProductOptionValueXref productOptionValue : sku.getProductOptionValueXrefs()) {
@@ -44,5 +44,27 @@ public interface RatingSummaryDao {
     void deleteRatingSummary(RatingSummary summary);
 
     RatingDetail readRating(Customer customer, Long ratingSummaryId);
+    RatingDetail saveRatingDetail(RatingDetail detail);
+
+    /**
+     * Applies the change caused by a single rating to the aggregate count, sum, histogram and average columns of the
+     * given summary using delta update statements, so neither the summary nor its rating details need to be loaded.
+     * Summaries whose aggregates have never been computed (they predate the aggregate columns) are recalculated from
+     * their rating details instead. The given summary is detached afterwards if it is managed, so that it is read again
+     * with the new aggregates the next time it is needed.
+     * 
+     * @param summary the summary to update
+     * @param previousRating the rating being replaced, or null if this is a new rating
+     * @param newRating the new rating value
+     */
+    void updateRatingAggregates(RatingSummary summary, Double previousRating, Double newRating);
+
+    /**
+     * Recomputes the aggregate columns of the given summary from its rating details
+     * 
+     * @param ratingSummaryId the id of the summary to recalculate
+     */
+    void recalculateRatingAggregates(Long ratingSummaryId);
+
     ReviewDetail readReview(Customer customer, Long ratingSummaryId);
 }
@@ -42,6 +42,8 @@ import javax.persistence.Query;
 @Repository("blRatingSummaryDao")
 public class RatingSummaryDaoImpl extends BatchRetrieveDao implements RatingSummaryDao {
 
+    protected static final int HISTOGRAM_SIZE = 5;
+
     @PersistenceContext(unitName = "blPU")
     protected EntityManager em;
 
@@ -91,6 +93,108 @@ public class RatingSummaryDaoImpl extends BatchRetrieveDao implements RatingSumm
         return em.merge(summary);
     }
 
+    @Override
+    public RatingDetail saveRatingDetail(final RatingDetail detail) {
+        return em.merge(detail);
+    }
+
+    @Override
+    public void updateRatingAggregates(RatingSummary summary, Double previousRating, Double newRating) {
+        Long ratingSummaryId = summary.getId();
+        int[] histogramDelta = new int[HISTOGRAM_SIZE];
+        int countDelta = 0;
+        double sumDelta = 0;
+        if (previousRating != null) {
+            histogramDelta[getHistogramBucket(previousRating)]--;
+            countDelta--;
+            sumDelta -= previousRating;
+        }
+        if (newRating != null) {
+            histogramDelta[getHistogramBucket(newRating)]++;
+            countDelta++;
+            sumDelta += newRating;
+        }
+
+        // the rating detail must be written before the summary is detached below
+        em.flush();
+
+        Query query = em.createNamedQuery("BC_UPDATE_RATING_SUMMARY_AGGREGATES");
+        query.setParameter("ratingSummaryId", ratingSummaryId);
+        query.setParameter("countDelta", countDelta);
+        query.setParameter("sumDelta", sumDelta);
+        setHistogramParameters(query, histogramDelta);
+        if (query.executeUpdate() == 0) {
+            // the aggregates of this summary were never computed, so a delta would only cover the ratings from now on
+            recalculateRatingAggregates(ratingSummaryId);
+        } else {
+            updateAverageRating(ratingSummaryId);
+        }
+
+        // the bulk updates bypass the persistence context, so the next read of the summary has to load it again. A
+        // refresh would do that too, but it cascades to the rating details and loads all of them.
+        if (em.contains(summary)) {
+            em.detach(summary);
+        }
+    }
+
+    @Override
+    public void recalculateRatingAggregates(Long ratingSummaryId) {
+        Query readQuery = em.createNamedQuery("BC_READ_RATING_DETAIL_AGGREGATES_BY_RATING_SUMMARY_ID");
+        readQuery.setParameter("ratingSummaryId", ratingSummaryId);
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = readQuery.getResultList();
+
+        int[] histogram = new int[HISTOGRAM_SIZE];
+        int count = 0;
+        double sum = 0;
+        for (Object[] row : rows) {
+            Double rating = (Double) row[0];
+            int ratingCount = ((Number) row[1]).intValue();
+            if (rating != null) {
+                histogram[getHistogramBucket(rating)] += ratingCount;
+                count += ratingCount;
+                sum += rating * ratingCount;
+            }
+        }
+
+        Query updateQuery = em.createNamedQuery("BC_SET_RATING_SUMMARY_AGGREGATES");
+        updateQuery.setParameter("ratingSummaryId", ratingSummaryId);
+        updateQuery.setParameter("ratingCount", count);
+        updateQuery.setParameter("ratingSum", sum);
+        updateQuery.setParameter("averageRating", count == 0 ? 0D : sum / count);
+        setHistogramParameters(updateQuery, histogram);
+        updateQuery.executeUpdate();
+    }
+
+    protected void updateAverageRating(Long ratingSummaryId) {
+        Query query = em.createNamedQuery("BC_UPDATE_RATING_SUMMARY_AVERAGE");
+        query.setParameter("ratingSummaryId", ratingSummaryId);
+        query.executeUpdate();
+    }
+
+    protected void setHistogramParameters(Query query, int[] histogram) {
+        for (int i = 0; i < histogram.length; i++) {
+            query.setParameter("ratingCount" + (i + 1), histogram[i]);
+        }
+    }
+
+    /**
+     * Determines the zero-based histogram bucket for the given rating by rounding to the nearest whole star and
+     * clamping the result to the supported 1 - 5 range.
+     * 
+     * @param rating the rating value
+     * @return the bucket index
+     */
+    protected int getHistogramBucket(Double rating) {
+        long stars = Math.round(rating);
+        if (stars < 1) {
+            stars = 1;
+        } else if (stars > HISTOGRAM_SIZE) {
+            stars = HISTOGRAM_SIZE;
+        }
+        return (int) stars - 1;
+    }
+
     @Override
     public List<RatingSummary> readRatingSummaries(final List<String> itemIds, final RatingType type) {
         final Query query = em.createNamedQuery("BC_READ_RATING_SUMMARIES_BY_ITEM_ID_AND_TYPE");
@@ -22,6 +22,7 @@ package org.broadleafcommerce.core.rating.domain;
 import org.broadleafcommerce.core.rating.service.type.RatingType;
 
 import java.util.List;
+import java.util.Map;
 
 public interface RatingSummary {
     
@@ -37,12 +38,36 @@ public interface RatingSummary {
     
     public void setItemId(String itemId);
     
+    /**
+     * Returns the number of ratings recorded against this summary. This value is maintained as an aggregate column
+     * and does not require the {@link #getRatings()} collection to be loaded.
+     * 
+     * @return the number of ratings
+     */
     public Integer getNumberOfRatings();
+
+    /**
+     * Returns the sum of all of the ratings recorded against this summary
+     * 
+     * @return the sum of all ratings
+     */
+    public Double getRatingSum();
+
+    /**
+     * Returns the number of ratings per star value (1 through 5), keyed by the star value. Ratings are bucketed by
+     * rounding to the nearest whole star.
+     * 
+     * @return the rating histogram for this summary
+     */
+    public Map<Integer, Integer> getRatingDistribution();
     
     public Integer getNumberOfReviews();
     
     public Double getAverageRating();
     
+    /**
+     * Recomputes the in-memory average rating from the aggregate rating count and sum
+     */
     public void resetAverageRating();
 
     public List<ReviewDetail> getReviews();
@@ -25,7 +25,9 @@ import org.hibernate.annotations.Index;
 import org.hibernate.annotations.Parameter;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
@@ -66,6 +68,33 @@ public class RatingSummaryImpl implements RatingSummary {
     @Column(name = "AVERAGE_RATING", nullable = false)
     protected Double averageRating = new Double(0);
 
+    /*
+     * The aggregate columns below are maintained exclusively through delta updates issued by
+     * RatingSummaryDao#updateRatingAggregates, so they are never written back on a merge of a (potentially stale)
+     * summary instance. They are null for summaries that predate them until their next rating recalculates them, in
+     * which case the values are computed from the rating details instead.
+     */
+    @Column(name = "RATING_COUNT", updatable = false)
+    protected Integer ratingCount = 0;
+
+    @Column(name = "RATING_SUM", updatable = false)
+    protected Double ratingSum = new Double(0);
+
+    @Column(name = "RATING_COUNT_1", updatable = false)
+    protected Integer ratingCount1 = 0;
+
+    @Column(name = "RATING_COUNT_2", updatable = false)
+    protected Integer ratingCount2 = 0;
+
+    @Column(name = "RATING_COUNT_3", updatable = false)
+    protected Integer ratingCount3 = 0;
+
+    @Column(name = "RATING_COUNT_4", updatable = false)
+    protected Integer ratingCount4 = 0;
+
+    @Column(name = "RATING_COUNT_5", updatable = false)
+    protected Integer ratingCount5 = 0;
+
     @OneToMany(mappedBy = "ratingSummary", targetEntity = RatingDetailImpl.class, cascade = {CascadeType.ALL})
     protected List<RatingDetail> ratings = new ArrayList<RatingDetail>();
 
@@ -92,16 +121,45 @@ public class RatingSummaryImpl implements RatingSummary {
     
     @Override
     public void resetAverageRating() {
-        if (ratings == null || ratings.isEmpty()) {
+        int count = getNumberOfRatings();
+        if (count == 0) {
             this.averageRating = new Double(0);
         } else {
+            this.averageRating = new Double(getRatingSum() / count);
+        }
+    }
+
+    @Override
+    public Double getRatingSum() {
+        if (ratingCount == null) {
             double sum = 0;
-            for (RatingDetail detail : ratings) {
+            for (RatingDetail detail : getRatings()) {
                 sum += detail.getRating();
             }
+            return new Double(sum);
+        }
+        return ratingSum == null ? new Double(0) : ratingSum;
+    }
 
-            this.averageRating = new Double(sum / ratings.size());
+    @Override
+    public Map<Integer, Integer> getRatingDistribution() {
+        Map<Integer, Integer> distribution = new LinkedHashMap<Integer, Integer>();
+        if (ratingCount == null) {
+            for (int stars = 1; stars <= 5; stars++) {
+                distribution.put(stars, 0);
+            }
+            for (RatingDetail detail : getRatings()) {
+                int stars = (int) Math.min(5, Math.max(1, Math.round(detail.getRating())));
+                distribution.put(stars, distribution.get(stars) + 1);
+            }
+            return distribution;
         }
+        distribution.put(1, ratingCount1 == null ? 0 : ratingCount1);
+        distribution.put(2, ratingCount2 == null ? 0 : ratingCount2);
+        distribution.put(3, ratingCount3 == null ? 0 : ratingCount3);
+        distribution.put(4, ratingCount4 == null ? 0 : ratingCount4);
+        distribution.put(5, ratingCount5 == null ? 0 : ratingCount5);
+        return distribution;
     }
 
     @Override
@@ -116,7 +174,7 @@ public class RatingSummaryImpl implements RatingSummary {
 
     @Override
     public Integer getNumberOfRatings() {
-        return getRatings().size();
+        return ratingCount == null ? getRatings().size() : ratingCount;
     }
 
     @Override
@@ -33,6 +33,15 @@ public interface RatingService {
     public RatingSummary saveRatingSummary(RatingSummary rating);
     public void deleteRatingSummary(RatingSummary rating);
     public RatingSummary readRatingSummary(String itemId, RatingType type);
+    /**
+     * Reads the summaries for many items in batched queries. The returned summaries expose their rating count,
+     * average and histogram from aggregate columns, so they are suitable for rendering star widgets without loading
+     * any rating details.
+     * 
+     * @param itemIds the ids of the items to read summaries for
+     * @param type the rating type
+     * @return the summaries keyed by item id. Items without a summary are not present in the map.
+     */
     public Map<String, RatingSummary> readRatingSummaries(List<String> itemIds, RatingType type);
     public void rateItem(String itemId, RatingType type, Customer customer, Double rating);
 
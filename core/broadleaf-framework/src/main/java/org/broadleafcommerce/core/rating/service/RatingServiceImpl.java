@@ -76,22 +76,44 @@ public class RatingServiceImpl implements RatingService {
     @Override
     @Transactional("blTransactionManager")
     public void rateItem(String itemId, RatingType type, Customer customer, Double rating) {
+        RatingSummary ratingSummary = readOrCreateRatingSummary(itemId, type);
+        saveRating(ratingSummary, customer, rating);
+    }
+
+    /**
+     * Reads the summary for the given item, creating and persisting a new one if none exists yet. The summary must be
+     * persisted so that the aggregate delta updates have a row to operate on.
+     */
+    protected RatingSummary readOrCreateRatingSummary(String itemId, RatingType type) {
         RatingSummary ratingSummary = this.readRatingSummary(itemId, type);
 
         if (ratingSummary == null) {
             ratingSummary = ratingSummaryDao.createSummary(itemId, type);
+            ratingSummary = ratingSummaryDao.saveRatingSummary(ratingSummary);
         }
 
+        return ratingSummary;
+    }
+
+    /**
+     * Creates or updates the given customer's rating for the summary and applies the change to the summary aggregates.
+     * The summary's ratings collection is intentionally never touched so that it is not loaded.
+     */
+    protected RatingDetail saveRating(RatingSummary ratingSummary, Customer customer, Double rating) {
         RatingDetail ratingDetail = ratingSummaryDao.readRating(customer, ratingSummary.getId());
+        Double previousRating = null;
 
         if (ratingDetail == null) {
             ratingDetail = ratingSummaryDao.createDetail(ratingSummary, rating, SystemTime.asDate(), customer);
+        } else {
+            previousRating = ratingDetail.getRating();
+            ratingDetail.setRating(rating);
         }
 
-        ratingDetail.setRating(rating);
+        ratingDetail = ratingSummaryDao.saveRatingDetail(ratingDetail);
+        ratingSummaryDao.updateRatingAggregates(ratingSummary, previousRating, rating);
 
-        ratingSummary.getRatings().add(ratingDetail);
-        ratingSummaryDao.saveRatingSummary(ratingSummary);
+        return ratingDetail;
     }
 
     @Override
@@ -101,6 +123,9 @@ public class RatingServiceImpl implements RatingService {
 
     @Override
     public Map<String, RatingSummary> readRatingSummaries(List<String> itemIds, RatingType type) {
+        if (itemIds == null || itemIds.isEmpty()) {
+            return new HashMap<String, RatingSummary>();
+        }
         List<RatingSummary> ratings = ratingSummaryDao.readRatingSummaries(itemIds, type);
         Map<String, RatingSummary> ratingsMap = new HashMap<String, RatingSummary>();
 
@@ -153,21 +178,8 @@ public class RatingServiceImpl implements RatingService {
     @Override
     @Transactional("blTransactionManager")
     public void reviewItem(String itemId, RatingType type, Customer customer, Double rating, String reviewText) {
-        RatingSummary ratingSummary = this.readRatingSummary(itemId, type);
-
-        if (ratingSummary == null) {
-            ratingSummary = ratingSummaryDao.createSummary(itemId, type);
-        }
-
-        RatingDetail ratingDetail = ratingSummaryDao.readRating(customer, ratingSummary.getId());
-
-        if (ratingDetail == null) {
-            ratingDetail = ratingSummaryDao.createDetail(ratingSummary, rating, SystemTime.asDate(), customer);
-        } else {
-            ratingDetail.setRating(rating);         
-        }
-
-        ratingSummary.getRatings().add(ratingDetail);
+        RatingSummary ratingSummary = readOrCreateRatingSummary(itemId, type);
+        RatingDetail ratingDetail = saveRating(ratingSummary, customer, rating);
 
         ReviewDetail reviewDetail = ratingSummaryDao.readReview(customer, ratingSummary.getId());
 
@@ -177,10 +189,7 @@ public class RatingServiceImpl implements RatingService {
             reviewDetail.setReviewText(reviewText);         
         }
 
-        ratingSummary.getReviews().add(reviewDetail);
-        // load reviews
-        ratingSummary.getReviews().size();
-        ratingSummaryDao.saveRatingSummary(ratingSummary);
+        reviewDetailDao.saveReviewDetail(reviewDetail);
     }
     
     @Override
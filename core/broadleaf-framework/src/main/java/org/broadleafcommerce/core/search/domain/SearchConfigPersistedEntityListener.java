@@ -0,0 +1,61 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.core.search.domain;
+
+import org.broadleafcommerce.common.util.ApplicationContextHolder;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+
+/**
+ * Publishes a Spring event after the transaction that changed a search {@link Field}, {@link SearchFacet},
+ * {@link SearchFacetRange} or {@link RequiredFacet} commits, so that the compiled search schema can be rebuilt
+ * 
+ * @see {@link ApplicationEventPublisher#publishEvent(org.springframework.context.ApplicationEvent)}
+ * @see {@link SearchConfigPersistedEvent}
+ */
+public class SearchConfigPersistedEntityListener {
+
+    /**
+     * Invoked on PostPersist, PostUpdate and PostRemove. Registers a synchronization that publishes a
+     * {@link SearchConfigPersistedEvent} once the surrounding transaction has committed.
+     * 
+     * @param entity the changed search configuration entity
+     */
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void searchConfigUpdated(final Object entity) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    ApplicationContextHolder.getApplicationContext().publishEvent(new SearchConfigPersistedEvent(entity));
+                }
+            });
+        }
+    }
+
+}
@@ -0,0 +1,51 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.core.search.domain;
+
+import org.broadleafcommerce.common.event.BroadleafApplicationEvent;
+
+
+/**
+ * An event for whenever a search configuration entity (a {@link Field}, {@link SearchFacet}, {@link SearchFacetRange}
+ * or {@link RequiredFacet}) has been persisted, updated or removed
+ * 
+ * @see {@link SearchConfigPersistedEntityListener}
+ */
+public class SearchConfigPersistedEvent extends BroadleafApplicationEvent {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * @param entity the search configuration entity that was changed
+     */
+    public SearchConfigPersistedEvent(Object entity) {
+        super(entity);
+    }
+
+    /**
+     * Gets the changed entity set by the {@link SearchConfigPersistedEntityListener}
+     * 
+     * @return
+     */
+    public Object getEntity() {
+        return source;
+    }
+
+}
@@ -22,6 +22,7 @@ package org.broadleafcommerce.core.search.domain;
 import org.broadleafcommerce.core.catalog.domain.Product;
 import org.broadleafcommerce.core.catalog.domain.Sku;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -99,4 +100,24 @@ public class SearchResult {
         return ((products == null || products.size() == 0) && (skus == null || skus.size() == 0)) ? 1 : (int) Math.ceil(totalResults * 1.0 / pageSize);
     }
 
+    /**
+     * @return the products, their default skus and the skus of this result, which are the entities whose translated
+     * fields are rendered when displaying it
+     */
+    public List<Object> getTranslatableEntities() {
+        List<Object> entities = new ArrayList<Object>();
+        if (products != null) {
+            for (Product product : products) {
+                entities.add(product);
+                if (product.getDefaultSku() != null) {
+                    entities.add(product.getDefaultSku());
+                }
+            }
+        }
+        if (skus != null) {
+            entities.addAll(skus);
+        }
+        return entities;
+    }
+
 }
@@ -0,0 +1,594 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.core.search.service.index;
+
+import org.apache.commons.beanutils.PropertyUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.broadleafcommerce.common.event.BroadleafApplicationListener;
+import org.broadleafcommerce.common.exception.ServiceException;
+import org.broadleafcommerce.common.money.Money;
+import org.broadleafcommerce.common.persistence.Status;
+import org.broadleafcommerce.common.time.SystemTime;
+import org.broadleafcommerce.common.util.TransactionUtils;
+import org.broadleafcommerce.core.catalog.dao.ProductDao;
+import org.broadleafcommerce.core.catalog.domain.CatalogPersistedEvent;
+import org.broadleafcommerce.core.catalog.domain.Category;
+import org.broadleafcommerce.core.catalog.domain.CategoryProductXref;
+import org.broadleafcommerce.core.catalog.domain.Product;
+import org.broadleafcommerce.core.catalog.domain.ProductAttribute;
+import org.broadleafcommerce.core.catalog.domain.Sku;
+import org.broadleafcommerce.core.search.domain.Field;
+import org.broadleafcommerce.core.search.domain.SearchCriteria;
+import org.broadleafcommerce.core.search.domain.SearchFacetDTO;
+import org.broadleafcommerce.core.search.domain.SearchFacetResultDTO;
+import org.broadleafcommerce.core.search.domain.SearchResult;
+import org.broadleafcommerce.core.search.service.DatabaseSearchServiceImpl;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+
+/**
+ * A {@link org.broadleafcommerce.core.search.service.SearchService} backed by an in-memory {@link ProductSearchIndex},
+ * intended for mid-size catalogs that do not warrant running Solr. Unlike {@link DatabaseSearchServiceImpl}, results
+ * are paginated and sorted, facet values are counted, and free text and category searches never issue LIKE queries;
+ * only the products on the requested page are loaded from the database.
+ * 
+ * <p>
+ * The index is built from the {@link ProductDao} on a background thread once the bean is initialized (or by calling
+ * {@link #rebuildIndex()}) and is then kept up to date incrementally as products, skus and their category assignments
+ * are saved. Searches made before the first build completes are answered by {@link DatabaseSearchServiceImpl}. Once the
+ * share of deleted documents left behind by updates exceeds <b>search.index.inMemory.rebuildRatio</b>, the next update
+ * rebuilds the index from scratch.
+ * 
+ * <p>
+ * To use this implementation, override the search service bean in your application context:
+ * 
+ * <pre>
+ * &lt;bean id="blSearchService" class="org.broadleafcommerce.core.search.service.index.InvertedIndexSearchServiceImpl" /&gt;
+ * </pre>
+ * 
+ * Products whose active start date is in the future when they are indexed are not included until the next rebuild.
+ */
+@SuppressWarnings("deprecation")
+public class InvertedIndexSearchServiceImpl extends DatabaseSearchServiceImpl implements BroadleafApplicationListener<CatalogPersistedEvent> {
+
+    private static final Log LOG = LogFactory.getLog(InvertedIndexSearchServiceImpl.class);
+
+    protected static final String PRODUCT_ATTRIBUTES_PREFIX = "productAttributes.";
+
+    @Resource(name = "blProductDao")
+    protected ProductDao productDao;
+
+    @Resource(name = "blTransactionManager")
+    protected PlatformTransactionManager transactionManager;
+
+    @Value("${search.index.inMemory.pageSize:100}")
+    protected int pageSize = 100;
+
+    @Value("${search.index.inMemory.rebuildRatio:0.25}")
+    protected double rebuildRatio = 0.25D;
+
+    protected volatile ProductSearchIndex index;
+
+    protected final Object buildLock = new Object();
+
+    /**
+     * Guarded by {@link #changedDuringRebuild}, so that a product change is either queued or applied to the index that
+     * the rebuild has just published
+     */
+    protected boolean rebuilding = false;
+
+    /**
+     * Products changed while a rebuild is reading the catalog; they are reindexed once the rebuild completes
+     */
+    protected final Set<Long> changedDuringRebuild = new HashSet<Long>();
+
+    protected final AtomicBoolean buildRequested = new AtomicBoolean();
+
+    protected ExecutorService buildExecutor;
+
+    @PostConstruct
+    public void init() {
+        buildExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "blProductSearchIndex");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        requestBuild();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (buildExecutor != null) {
+            buildExecutor.shutdownNow();
+        }
+    }
+
+    @Override
+    public SearchResult findSearchResultsByQuery(String query, SearchCriteria searchCriteria) {
+        ProductSearchIndex current = getIndex();
+        if (current == null) {
+            return super.findSearchResultsByQuery(query, searchCriteria);
+        }
+        setQualifiedKeys(searchCriteria);
+        return buildSearchResult(current, current.matchQuery(query), getSearchFacets(), searchCriteria);
+    }
+
+    @Override
+    public SearchResult findSearchResultsByCategory(Category category, SearchCriteria searchCriteria) {
+        ProductSearchIndex current = getIndex();
+        if (current == null) {
+            return super.findSearchResultsByCategory(category, searchCriteria);
+        }
+        setQualifiedKeys(searchCriteria);
+        return buildSearchResult(current, current.matchCategory(category.getId()), getCategoryFacets(category), searchCriteria);
+    }
+
+    @Override
+    public SearchResult findExplicitSearchResultsByCategory(Category category, SearchCriteria searchCriteria) throws ServiceException {
+        // Category membership is only indexed for explicit category assignments
+        return findSearchResultsByCategory(category, searchCriteria);
+    }
+
+    @Override
+    public SearchResult findSearchResultsByCategoryAndQuery(Category category, String query, SearchCriteria searchCriteria) throws ServiceException {
+        ProductSearchIndex current = getIndex();
+        if (current == null) {
+            return findUnindexedSearchResultsByCategoryAndQuery(category, query, searchCriteria);
+        }
+        setQualifiedKeys(searchCriteria);
+        BitSet matches = current.matchQuery(query);
+        matches.and(current.matchCategory(category.getId()));
+        return buildSearchResult(current, matches, getCategoryFacets(category), searchCriteria);
+    }
+
+    /**
+     * Answers a category and query search while the index is not yet built, by restricting the database query results
+     * to the products explicitly assigned to the category
+     */
+    protected SearchResult findUnindexedSearchResultsByCategoryAndQuery(Category category, String query, SearchCriteria searchCriteria) {
+        SearchResult result = super.findSearchResultsByQuery(query, searchCriteria);
+        List<Product> products = new ArrayList<Product>();
+        for (Product product : result.getProducts()) {
+            for (CategoryProductXref xref : product.getAllParentCategoryXrefs()) {
+                if (xref.getCategory() != null && category.getId().equals(xref.getCategory().getId())) {
+                    products.add(product);
+                    break;
+                }
+            }
+        }
+        result.setProducts(products);
+        result.setTotalResults(products.size());
+        result.setPageSize(products.size());
+        return result;
+    }
+
+    /**
+     * Applies the active date restriction and the filter criteria to the matching documents, counts the facet values
+     * and loads the products for the requested page
+     * 
+     * @param current the index being searched
+     * @param matches the documents matching the query and/or category
+     * @param facetDefinitions the facets available to this search
+     * @param searchCriteria the search criteria, with qualified keys
+     * @return the search result
+     */
+    protected SearchResult buildSearchResult(ProductSearchIndex current, BitSet matches, List<SearchFacetDTO> facetDefinitions,
+            SearchCriteria searchCriteria) {
+        matches.and(current.getActiveDocuments(SystemTime.asMillis()));
+
+        Map<String, BitSet> filters = new HashMap<String, BitSet>();
+        for (Entry<String, String[]> entry : searchCriteria.getFilterCriteria().entrySet()) {
+            filters.put(entry.getKey(), current.matchFilter(entry.getKey(), entry.getValue()));
+        }
+        BitSet results = (BitSet) matches.clone();
+        for (BitSet filter : filters.values()) {
+            results.and(filter);
+        }
+
+        int totalResults = results.cardinality();
+        int page = searchCriteria.getPage() == null || searchCriteria.getPage() < 1 ? 1 : searchCriteria.getPage();
+        int resultPageSize = searchCriteria.getPageSize() == null ? Math.max(totalResults, 1) : searchCriteria.getPageSize();
+        List<Long> productIds = current.getProductIds(results, searchCriteria.getSortQuery(), (page - 1) * resultPageSize, resultPageSize);
+
+        SearchResult result = new SearchResult();
+        result.setProducts(readProducts(productIds));
+        result.setFacets(buildFacets(current, matches, filters, facetDefinitions, searchCriteria));
+        result.setTotalResults(totalResults);
+        result.setPage(page);
+        result.setPageSize(resultPageSize);
+        return result;
+    }
+
+    /**
+     * Builds request specific copies of the (shared, cached) facet definitions with counts. The count for each facet
+     * value is computed against the results filtered by every other facet, so selecting a value does not hide the
+     * alternatives for that same facet.
+     */
+    protected List<SearchFacetDTO> buildFacets(ProductSearchIndex current, BitSet matches, Map<String, BitSet> filters,
+            List<SearchFacetDTO> facetDefinitions, SearchCriteria searchCriteria) {
+        List<SearchFacetDTO> facets = new ArrayList<SearchFacetDTO>(facetDefinitions.size());
+        for (SearchFacetDTO definition : facetDefinitions) {
+            String fieldName = getDatabaseQualifiedFieldName(definition.getFacet().getField().getQualifiedFieldName());
+            BitSet facetDocuments = (BitSet) matches.clone();
+            for (Entry<String, BitSet> filter : filters.entrySet()) {
+                if (!filter.getKey().equals(fieldName)) {
+                    facetDocuments.and(filter.getValue());
+                }
+            }
+            String[] activeValues = searchCriteria.getFilterCriteria().get(fieldName);
+
+            List<SearchFacetResultDTO> values = new ArrayList<SearchFacetResultDTO>();
+            for (SearchFacetResultDTO definitionValue : definition.getFacetValues()) {
+                int quantity;
+                if (definitionValue.getValue() == null) {
+                    quantity = current.countRange(facetDocuments, fieldName, definitionValue.getMinValue(), definitionValue.getMaxValue());
+                } else {
+                    quantity = current.countValue(facetDocuments, fieldName, definitionValue.getValue());
+                }
+                boolean active = activeValues != null && contains(activeValues, definitionValue.getValueKey());
+                if (quantity > 0 || active) {
+                    SearchFacetResultDTO value = new SearchFacetResultDTO();
+                    value.setFacet(definitionValue.getFacet());
+                    value.setValue(definitionValue.getValue());
+                    value.setMinValue(definitionValue.getMinValue());
+                    value.setMaxValue(definitionValue.getMaxValue());
+                    value.setQuantity(quantity);
+                    value.setActive(active);
+                    values.add(value);
+                }
+            }
+
+            SearchFacetDTO facet = new SearchFacetDTO();
+            facet.setFacet(definition.getFacet());
+            facet.setShowQuantity(true);
+            facet.setActive(activeValues != null);
+            facet.setFacetValues(values);
+            facets.add(facet);
+        }
+        return facets;
+    }
+
+    protected boolean contains(String[] values, String value) {
+        for (String item : values) {
+            if (item.equals(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Loads the given products, preserving the order of the ids
+     */
+    protected List<Product> readProducts(final List<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return new ArrayList<Product>();
+        }
+        List<Product> products = productDao.readProductsByIds(productIds);
+        if (products == null) {
+            return new ArrayList<Product>();
+        }
+        final Map<Long, Integer> positions = new HashMap<Long, Integer>(productIds.size() * 2);
+        for (int i = 0; i < productIds.size(); i++) {
+            positions.put(productIds.get(i), i);
+        }
+        Collections.sort(products, new Comparator<Product>() {
+
+            @Override
+            public int compare(Product o1, Product o2) {
+                Integer p1 = positions.get(o1.getId());
+                Integer p2 = positions.get(o2.getId());
+                return Integer.valueOf(p1 == null ? Integer.MAX_VALUE : p1).compareTo(p2 == null ? Integer.MAX_VALUE : p2);
+            }
+        });
+        return products;
+    }
+
+    /**
+     * @return the current index, or null if it is still being built. Searches never wait for the build; when this bean
+     * is not initialized by Spring there is no background thread and the index is built on the calling thread instead.
+     */
+    protected ProductSearchIndex getIndex() {
+        ProductSearchIndex current = index;
+        if (current == null) {
+            if (buildExecutor == null) {
+                synchronized (buildLock) {
+                    if (index == null) {
+                        rebuildIndex();
+                    }
+                }
+                current = index;
+            } else {
+                requestBuild();
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Builds the index on the background thread, unless a build is already waiting to run
+     */
+    protected void requestBuild() {
+        if (buildRequested.compareAndSet(false, true)) {
+            buildExecutor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    buildRequested.set(false);
+                    try {
+                        rebuildIndex();
+                    } catch (Exception e) {
+                        LOG.error("Unable to build the in-memory product search index", e);
+                    }
+                }
+            });
+        }
+    }
+
+    @Override
+    public void rebuildIndex() {
+        synchronized (buildLock) {
+            long start = System.currentTimeMillis();
+            synchronized (changedDuringRebuild) {
+                rebuilding = true;
+                changedDuringRebuild.clear();
+            }
+            ProductSearchIndex newIndex = new ProductSearchIndex();
+            List<Long> changed;
+            try {
+                List<Field> fields = fieldDao.readAllProductFields();
+                Date currentDate = SystemTime.asDate();
+                int page = 0;
+                List<Product> products;
+                do {
+                    products = readProductPage(page++, currentDate, fields, newIndex);
+                } while (products.size() == pageSize);
+                newIndex.trim();
+                index = newIndex;
+            } finally {
+                synchronized (changedDuringRebuild) {
+                    rebuilding = false;
+                    changed = new ArrayList<Long>(changedDuringRebuild);
+                    changedDuringRebuild.clear();
+                }
+            }
+
+            // Pick up anything that was saved while the catalog was being read
+            for (Long productId : changed) {
+                reindexProduct(productId);
+            }
+
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Built in-memory product search index of " + newIndex.size() + " products and "
+                        + newIndex.getTermCount() + " terms in " + (System.currentTimeMillis() - start) + "ms");
+            }
+        }
+    }
+
+    protected List<Product> readProductPage(int page, Date currentDate, List<Field> fields, ProductSearchIndex target) {
+        TransactionStatus status = TransactionUtils.createTransaction("readProductsToIndex",
+                TransactionDefinition.PROPAGATION_REQUIRED, transactionManager, true);
+        try {
+            List<Product> products = productDao.readAllActiveProducts(page, pageSize, currentDate);
+            for (Product product : products) {
+                ProductSearchDocument document = buildDocument(product, fields);
+                if (document != null) {
+                    target.addDocument(document);
+                }
+            }
+            TransactionUtils.finalizeTransaction(status, transactionManager, false);
+            return products;
+        } catch (RuntimeException e) {
+            TransactionUtils.finalizeTransaction(status, transactionManager, true);
+            throw e;
+        }
+    }
+
+    /**
+     * Reloads the given product and replaces its document in the index, removing it if the product no longer exists
+     * or is archived
+     * 
+     * @param productId
+     */
+    public void reindexProduct(Long productId) {
+        ProductSearchIndex current;
+        synchronized (changedDuringRebuild) {
+            if (rebuilding) {
+                changedDuringRebuild.add(productId);
+                return;
+            }
+            current = index;
+        }
+        if (current == null) {
+            return;
+        }
+        if (current.getDeletedRatio() > rebuildRatio) {
+            rebuildIndex();
+            return;
+        }
+        TransactionStatus status = TransactionUtils.createTransaction("reindexProduct",
+                TransactionDefinition.PROPAGATION_REQUIRED, transactionManager, true);
+        try {
+            Product product = productDao.readProductById(productId);
+            ProductSearchDocument document = product == null ? null : buildDocument(product, fieldDao.readAllProductFields());
+            if (document == null) {
+                current.removeDocument(productId);
+            } else {
+                current.addDocument(document);
+            }
+            TransactionUtils.finalizeTransaction(status, transactionManager, false);
+        } catch (RuntimeException e) {
+            TransactionUtils.finalizeTransaction(status, transactionManager, true);
+            throw e;
+        }
+    }
+
+    /**
+     * Builds the indexed representation of a product. Text terms are taken from the name, descriptions and
+     * manufacturer along with every searchable {@link Field}, and every product {@link Field} is stored so that it can
+     * be used for filtering, faceting and sorting.
+     * 
+     * @param product
+     * @param fields the product fields
+     * @return the document, or null if the product should not be indexed
+     */
+    protected ProductSearchDocument buildDocument(Product product, List<Field> fields) {
+        if (product instanceof Status && 'Y' == ((Status) product).getArchived()) {
+            return null;
+        }
+        ProductSearchDocument document = new ProductSearchDocument(product.getId());
+        if (product.getActiveStartDate() != null) {
+            document.setActiveStartDate(product.getActiveStartDate().getTime());
+        }
+        if (product.getActiveEndDate() != null) {
+            document.setActiveEndDate(product.getActiveEndDate().getTime());
+        }
+
+        document.addText(product.getName());
+        document.addText(product.getDescription());
+        document.addText(product.getLongDescription());
+        document.addText(product.getManufacturer());
+
+        for (CategoryProductXref xref : product.getAllParentCategoryXrefs()) {
+            if (xref.getCategory() != null) {
+                document.addCategoryId(xref.getCategory().getId());
+            }
+        }
+
+        for (Field field : fields) {
+            String fieldName = getDatabaseQualifiedFieldName(field.getQualifiedFieldName());
+            Object value = getPropertyValue(product, field.getPropertyName());
+            addFieldValue(document, fieldName, value, Boolean.TRUE.equals(field.getSearchable()));
+        }
+        return document;
+    }
+
+    protected void addFieldValue(ProductSearchDocument document, String fieldName, Object value, boolean searchable) {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof Collection) {
+            for (Object item : (Collection<?>) value) {
+                addFieldValue(document, fieldName, item, searchable);
+            }
+            return;
+        }
+        if (value instanceof Money) {
+            value = ((Money) value).getAmount();
+        }
+        if (value instanceof BigDecimal) {
+            document.setNumericValue(fieldName, (BigDecimal) value);
+        } else if (value instanceof Number) {
+            document.setNumericValue(fieldName, new BigDecimal(value.toString()));
+        }
+        String stringValue = value.toString();
+        document.addFieldValue(fieldName, stringValue);
+        if (searchable) {
+            document.addText(stringValue);
+        }
+    }
+
+    /**
+     * Resolves the value of a product {@link Field}. Product attributes are looked up by name; any other property is
+     * resolved as a nested bean property (for example "defaultSku.price").
+     * 
+     * @param product
+     * @param propertyName
+     * @return the value, or null if it could not be resolved
+     */
+    protected Object getPropertyValue(Product product, String propertyName) {
+        if (propertyName.startsWith(PRODUCT_ATTRIBUTES_PREFIX)) {
+            ProductAttribute attribute = product.getProductAttributes().get(propertyName.substring(PRODUCT_ATTRIBUTES_PREFIX.length()));
+            return attribute == null ? null : attribute.getValue();
+        }
+        try {
+            return PropertyUtils.getProperty(product, propertyName);
+        } catch (Exception e) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Unable to resolve property " + propertyName + " for product " + product.getId(), e);
+            }
+            return null;
+        }
+    }
+
+    @Override
+    public void onApplicationEvent(CatalogPersistedEvent event) {
+        Object entity = event.getEntity();
+        Long productId = null;
+        if (entity instanceof Product) {
+            productId = ((Product) entity).getId();
+        } else if (entity instanceof Sku && ((Sku) entity).getProduct() != null) {
+            productId = ((Sku) entity).getProduct().getId();
+        } else if (entity instanceof CategoryProductXref && ((CategoryProductXref) entity).getProduct() != null) {
+            productId = ((CategoryProductXref) entity).getProduct().getId();
+        }
+        if (productId != null) {
+            try {
+                reindexProduct(productId);
+            } catch (RuntimeException e) {
+                LOG.error("Unable to update the in-memory search index for product " + productId, e);
+            }
+        }
+    }
+
+    @Override
+    public boolean isAsynchronous() {
+        return true;
+    }
+
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    public void setRebuildRatio(double rebuildRatio) {
+        this.rebuildRatio = rebuildRatio;
+    }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.core.search.service.index;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * A compressed, append-only list of document ids. Document ids must be added in increasing order; each id is stored
+ * as the delta from the previous id using a variable length byte encoding, so dense postings for common terms
+ * typically cost a single byte per document.
+ */
+public class PostingList implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    protected byte[] data = new byte[4];
+    protected int length = 0;
+    protected int size = 0;
+    protected int lastDocId = -1;
+
+    /**
+     * @param docId the document id, which must be greater than any id previously added
+     */
+    public void add(int docId) {
+        if (docId <= lastDocId) {
+            throw new IllegalArgumentException("Document ids must be added in increasing order (" + docId
+                    + " <= " + lastDocId + ")");
+        }
+        if (length + 5 > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, length + 5));
+        }
+        int delta = docId - lastDocId;
+        while ((delta & ~0x7F) != 0) {
+            data[length++] = (byte) ((delta & 0x7F) | 0x80);
+            delta >>>= 7;
+        }
+        data[length++] = (byte) delta;
+        lastDocId = docId;
+        size++;
+    }
+
+    /**
+     * Sets the bit for every document id in this list on the given {@link BitSet}
+     * 
+     * @param bits
+     */
+    public void addTo(BitSet bits) {
+        int docId = -1;
+        int position = 0;
+        while (position < length) {
+            int delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position++];
+                delta |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            docId += delta;
+            bits.set(docId);
+        }
+    }
+
+    /**
+     * @return a new {@link BitSet} with the bit set for every document id in this list
+     */
+    public BitSet toBitSet() {
+        BitSet bits = new BitSet(lastDocId + 1);
+        addTo(bits);
+        return bits;
+    }
+
+    /**
+     * Releases any unused capacity in the underlying buffer
+     */
+    public void trim() {
+        if (data.length > length) {
+            data = Arrays.copyOf(data, length);
+        }
+    }
+
+    /**
+     * @return the number of document ids in this list
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of bytes used to encode this list
+     */
+    public int getByteSize() {
+        return length;
+    }
+
+}
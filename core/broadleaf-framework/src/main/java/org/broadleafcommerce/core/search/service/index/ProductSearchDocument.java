@@ -0,0 +1,137 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.core.search.service.index;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The indexed representation of a single {@link org.broadleafcommerce.core.catalog.domain.Product} within a
+ * {@link ProductSearchIndex}. Field values are keyed by the database qualified field name used in
+ * {@link org.broadleafcommerce.core.search.domain.SearchCriteria} filter and sort criteria (for example
+ * "defaultSku.price" or "productAttributes.heatRange").
+ */
+public class ProductSearchDocument {
+
+    protected Long productId;
+    protected long activeStartDate = Long.MAX_VALUE;
+    protected long activeEndDate = Long.MAX_VALUE;
+    protected Set<String> terms = new HashSet<String>();
+    protected List<Long> categoryIds = new ArrayList<Long>();
+    protected Map<String, List<String>> fieldValues = new HashMap<String, List<String>>();
+    protected Map<String, BigDecimal> numericValues = new HashMap<String, BigDecimal>();
+
+    public ProductSearchDocument(Long productId) {
+        this.productId = productId;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    /**
+     * @return the time in milliseconds at which the product becomes active, or {@link Long#MAX_VALUE} if it never does
+     */
+    public long getActiveStartDate() {
+        return activeStartDate;
+    }
+
+    public void setActiveStartDate(long activeStartDate) {
+        this.activeStartDate = activeStartDate;
+    }
+
+    /**
+     * @return the time in milliseconds at which the product stops being active, or {@link Long#MAX_VALUE} if it does not expire
+     */
+    public long getActiveEndDate() {
+        return activeEndDate;
+    }
+
+    public void setActiveEndDate(long activeEndDate) {
+        this.activeEndDate = activeEndDate;
+    }
+
+    public boolean isActive(long now) {
+        return activeStartDate < now && activeEndDate > now;
+    }
+
+    /**
+     * Tokenizes the given text and adds the resulting terms to this document
+     * 
+     * @param text
+     */
+    public void addText(String text) {
+        terms.addAll(ProductSearchIndex.tokenize(text));
+    }
+
+    public Set<String> getTerms() {
+        return terms;
+    }
+
+    public void addCategoryId(Long categoryId) {
+        if (!categoryIds.contains(categoryId)) {
+            categoryIds.add(categoryId);
+        }
+    }
+
+    public List<Long> getCategoryIds() {
+        return categoryIds;
+    }
+
+    public void addFieldValue(String field, String value) {
+        List<String> values = fieldValues.get(field);
+        if (values == null) {
+            values = new ArrayList<String>(1);
+            fieldValues.put(field, values);
+        }
+        values.add(value);
+    }
+
+    public Map<String, List<String>> getFieldValues() {
+        return fieldValues;
+    }
+
+    public void setNumericValue(String field, BigDecimal value) {
+        numericValues.put(field, value);
+    }
+
+    /**
+     * @param field
+     * @return the numeric value of the given field, or null if the field is not numeric for this document
+     */
+    public BigDecimal getNumericValue(String field) {
+        return numericValues.get(field);
+    }
+
+    /**
+     * @param field
+     * @return the first string value of the given field, or null if there is none
+     */
+    public String getFieldValue(String field) {
+        List<String> values = fieldValues.get(field);
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+
+}
@@ -0,0 +1,489 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.core.search.service.index;
+
+import org.apache.commons.lang.StringUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * An in-memory inverted index of {@link ProductSearchDocument}s. Text terms and category memberships are held in
+ * compressed {@link PostingList}s, while facetable field values are held as {@link BitSet}s so that filtering and
+ * facet counting are simple bitwise operations against a result set.
+ * 
+ * <p>
+ * Documents are only ever appended. Updating a product marks its previous document as deleted and appends a new one,
+ * which keeps the posting lists in increasing document id order. {@link #getDeletedRatio()} can be used to decide
+ * when the index should be rebuilt to reclaim the space held by deleted documents.
+ * 
+ * <p>
+ * This class is thread-safe. Reads share a lock and only wait on a write that is in progress.
+ */
+public class ProductSearchIndex {
+
+    protected static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    protected static final String RANGE_PREFIX = "range[";
+
+    protected final ReadWriteLock lock = new ReentrantReadWriteLock();
+    protected final List<ProductSearchDocument> documents = new ArrayList<ProductSearchDocument>();
+    protected final BitSet liveDocuments = new BitSet();
+    protected final Map<Long, Integer> docIdByProductId = new HashMap<Long, Integer>();
+    protected final TreeMap<String, PostingList> terms = new TreeMap<String, PostingList>();
+    protected final Map<Long, PostingList> categories = new HashMap<Long, PostingList>();
+    protected final Map<String, Map<String, BitSet>> fieldValueDocuments = new HashMap<String, Map<String, BitSet>>();
+    protected final Map<String, BitSet> rangeCache = new ConcurrentHashMap<String, BitSet>();
+
+    /**
+     * Splits text into lower case terms on any character that is not a letter or a digit
+     * 
+     * @param text
+     * @return the distinct terms, in the order they first appear
+     */
+    public static Set<String> tokenize(String text) {
+        Set<String> response = new LinkedHashSet<String>();
+        if (StringUtils.isNotBlank(text)) {
+            for (String token : TOKEN_SEPARATOR.split(text.toLowerCase(Locale.ENGLISH))) {
+                if (token.length() > 0) {
+                    response.add(token);
+                }
+            }
+        }
+        return response;
+    }
+
+    /**
+     * Adds the given document, replacing any existing document for the same product
+     * 
+     * @param document
+     */
+    public void addDocument(ProductSearchDocument document) {
+        lock.writeLock().lock();
+        try {
+            removeDocumentInternal(document.getProductId());
+            int docId = documents.size();
+            documents.add(document);
+            liveDocuments.set(docId);
+            docIdByProductId.put(document.getProductId(), docId);
+            for (String term : document.getTerms()) {
+                PostingList postings = terms.get(term);
+                if (postings == null) {
+                    postings = new PostingList();
+                    terms.put(term, postings);
+                }
+                postings.add(docId);
+            }
+            for (Long categoryId : document.getCategoryIds()) {
+                PostingList postings = categories.get(categoryId);
+                if (postings == null) {
+                    postings = new PostingList();
+                    categories.put(categoryId, postings);
+                }
+                postings.add(docId);
+            }
+            for (Entry<String, List<String>> entry : document.getFieldValues().entrySet()) {
+                Map<String, BitSet> valueDocuments = fieldValueDocuments.get(entry.getKey());
+                if (valueDocuments == null) {
+                    valueDocuments = new HashMap<String, BitSet>();
+                    fieldValueDocuments.put(entry.getKey(), valueDocuments);
+                }
+                for (String value : entry.getValue()) {
+                    BitSet bits = valueDocuments.get(value);
+                    if (bits == null) {
+                        bits = new BitSet();
+                        valueDocuments.put(value, bits);
+                    }
+                    bits.set(docId);
+                }
+            }
+            rangeCache.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param productId
+     * @return whether or not a document existed for the product
+     */
+    public boolean removeDocument(Long productId) {
+        lock.writeLock().lock();
+        try {
+            return removeDocumentInternal(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    protected boolean removeDocumentInternal(Long productId) {
+        Integer docId = docIdByProductId.remove(productId);
+        if (docId == null) {
+            return false;
+        }
+        liveDocuments.clear(docId);
+        return true;
+    }
+
+    /**
+     * Releases unused capacity held by the posting lists. Intended to be called once after a bulk build.
+     */
+    public void trim() {
+        lock.writeLock().lock();
+        try {
+            for (PostingList postings : terms.values()) {
+                postings.trim();
+            }
+            for (PostingList postings : categories.values()) {
+                postings.trim();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of live (not deleted) documents
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docIdByProductId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the fraction of stored documents that have been deleted by updates
+     */
+    public double getDeletedRatio() {
+        lock.readLock().lock();
+        try {
+            return documents.isEmpty() ? 0D : 1D - ((double) docIdByProductId.size() / documents.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of distinct text terms in the index
+     */
+    public int getTermCount() {
+        lock.readLock().lock();
+        try {
+            return terms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param now the current time in milliseconds
+     * @return the documents that are live and active at the given time
+     */
+    public BitSet getActiveDocuments(long now) {
+        lock.readLock().lock();
+        try {
+            BitSet response = (BitSet) liveDocuments.clone();
+            for (int i = response.nextSetBit(0); i >= 0; i = response.nextSetBit(i + 1)) {
+                if (!documents.get(i).isActive(now)) {
+                    response.clear(i);
+                }
+            }
+            return response;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the documents matching every term in the query. Each query term matches any indexed term it is a prefix
+     * of, so "sau" matches both "sauce" and "sauces". A blank query matches every document.
+     * 
+     * @param query
+     * @return the matching documents, which may include deleted or inactive documents
+     */
+    public BitSet matchQuery(String query) {
+        Set<String> queryTerms = tokenize(query);
+        lock.readLock().lock();
+        try {
+            if (queryTerms.isEmpty()) {
+                BitSet all = new BitSet(documents.size());
+                all.set(0, documents.size());
+                return all;
+            }
+            BitSet response = null;
+            for (String queryTerm : queryTerms) {
+                BitSet termDocuments = new BitSet(documents.size());
+                SortedMap<String, PostingList> matches = terms.subMap(queryTerm, queryTerm + Character.MAX_VALUE);
+                for (PostingList postings : matches.values()) {
+                    postings.addTo(termDocuments);
+                }
+                if (response == null) {
+                    response = termDocuments;
+                } else {
+                    response.and(termDocuments);
+                }
+                if (response.isEmpty()) {
+                    break;
+                }
+            }
+            return response;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param categoryId
+     * @return the documents for products explicitly assigned to the given category
+     */
+    public BitSet matchCategory(Long categoryId) {
+        lock.readLock().lock();
+        try {
+            PostingList postings = categories.get(categoryId);
+            return postings == null ? new BitSet() : postings.toBitSet();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the documents matching any of the given filter values for a field. Values are either exact matches or
+     * ranges in the form <code>range[min:max]</code>, using the same semantics as
+     * {@link org.broadleafcommerce.core.catalog.dao.ProductDaoImpl}: both bounds are exclusive and a max of "null"
+     * is unbounded.
+     * 
+     * @param field the database qualified field name
+     * @param values
+     * @return the matching documents
+     */
+    public BitSet matchFilter(String field, String[] values) {
+        BitSet response = new BitSet();
+        for (String value : values) {
+            if (value.contains(RANGE_PREFIX)) {
+                String min = value.substring(value.indexOf("[") + 1, value.indexOf(":"));
+                String max = value.substring(value.indexOf(":") + 1, value.indexOf("]"));
+                response.or(matchRange(field, new BigDecimal(min),
+                        max.equals("null") || max.length() == 0 ? null : new BigDecimal(max)));
+            } else {
+                response.or(matchValue(field, value));
+            }
+        }
+        return response;
+    }
+
+    /**
+     * @param field
+     * @param value
+     * @return the documents whose given field has the given value
+     */
+    public BitSet matchValue(String field, String value) {
+        lock.readLock().lock();
+        try {
+            Map<String, BitSet> valueDocuments = fieldValueDocuments.get(field);
+            BitSet bits = valueDocuments == null ? null : valueDocuments.get(value);
+            return bits == null ? new BitSet() : (BitSet) bits.clone();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param field
+     * @param min the exclusive lower bound, or null for none
+     * @param max the exclusive upper bound, or null for none
+     * @return the documents whose numeric value for the field is within the range. The result is cached until the
+     * index is next modified.
+     */
+    public BitSet matchRange(String field, BigDecimal min, BigDecimal max) {
+        String cacheKey = field + "[" + min + ":" + max + "]";
+        BitSet cached = rangeCache.get(cacheKey);
+        if (cached != null) {
+            return (BitSet) cached.clone();
+        }
+        lock.readLock().lock();
+        try {
+            BitSet response = new BitSet(documents.size());
+            for (int i = 0; i < documents.size(); i++) {
+                BigDecimal value = documents.get(i).getNumericValue(field);
+                if (value != null && (min == null || value.compareTo(min) > 0) && (max == null || value.compareTo(max) < 0)) {
+                    response.set(i);
+                }
+            }
+            rangeCache.put(cacheKey, response);
+            return (BitSet) response.clone();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param field
+     * @return the distinct values indexed for the given field
+     */
+    public Set<String> getFieldValues(String field) {
+        lock.readLock().lock();
+        try {
+            Map<String, BitSet> valueDocuments = fieldValueDocuments.get(field);
+            return valueDocuments == null ? Collections.<String>emptySet() : new LinkedHashSet<String>(valueDocuments.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Counts the documents in the given set that have the given field value
+     * 
+     * @param documentSet
+     * @param field
+     * @param value
+     * @return the count
+     */
+    public int countValue(BitSet documentSet, String field, String value) {
+        lock.readLock().lock();
+        try {
+            Map<String, BitSet> valueDocuments = fieldValueDocuments.get(field);
+            BitSet bits = valueDocuments == null ? null : valueDocuments.get(value);
+            if (bits == null) {
+                return 0;
+            }
+            return intersectionCount(documentSet, bits);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param documentSet
+     * @param field
+     * @param min the exclusive lower bound, or null for none
+     * @param max the exclusive upper bound, or null for none
+     * @return the number of documents in the given set within the range
+     */
+    public int countRange(BitSet documentSet, String field, BigDecimal min, BigDecimal max) {
+        return intersectionCount(documentSet, matchRange(field, min, max));
+    }
+
+    /**
+     * Intersects a copy of the shorter of the two sets, so that the count is a word at a time AND and popcount
+     */
+    protected int intersectionCount(BitSet a, BitSet b) {
+        BitSet shorter = a.length() <= b.length() ? a : b;
+        BitSet intersection = (BitSet) shorter.clone();
+        intersection.and(shorter == a ? b : a);
+        return intersection.cardinality();
+    }
+
+    /**
+     * Sorts the given documents and returns the product ids for the requested page
+     * 
+     * @param documentSet the documents to sort
+     * @param sortQuery a comma separated list of "field asc|desc" pairs, or null to sort by document order
+     * @param offset the index of the first result to return
+     * @param limit the maximum number of results to return
+     * @return the product ids
+     */
+    public List<Long> getProductIds(BitSet documentSet, String sortQuery, int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            List<ProductSearchDocument> matches = new ArrayList<ProductSearchDocument>(documentSet.cardinality());
+            for (int i = documentSet.nextSetBit(0); i >= 0; i = documentSet.nextSetBit(i + 1)) {
+                matches.add(documents.get(i));
+            }
+            if (StringUtils.isNotBlank(sortQuery)) {
+                Collections.sort(matches, buildComparator(sortQuery));
+            }
+            List<Long> response = new ArrayList<Long>(Math.max(0, Math.min(limit, matches.size() - offset)));
+            for (int i = offset; i < matches.size() && response.size() < limit; i++) {
+                response.add(matches.get(i).getProductId());
+            }
+            return response;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    protected Comparator<ProductSearchDocument> buildComparator(String sortQuery) {
+        final List<String> fields = new ArrayList<String>();
+        final List<Boolean> ascending = new ArrayList<Boolean>();
+        for (String sort : sortQuery.split(",")) {
+            String[] parts = sort.trim().split(" ");
+            if (parts.length == 2) {
+                fields.add(parts[0]);
+                ascending.add(parts[1].toLowerCase().contains("asc"));
+            }
+        }
+        return new Comparator<ProductSearchDocument>() {
+
+            @Override
+            public int compare(ProductSearchDocument o1, ProductSearchDocument o2) {
+                for (int i = 0; i < fields.size(); i++) {
+                    boolean has1 = o1.getNumericValue(fields.get(i)) != null || o1.getFieldValue(fields.get(i)) != null;
+                    boolean has2 = o2.getNumericValue(fields.get(i)) != null || o2.getFieldValue(fields.get(i)) != null;
+                    if (has1 != has2) {
+                        // Documents without a value always sort last
+                        return has1 ? -1 : 1;
+                    }
+                    int result = compareField(o1, o2, fields.get(i));
+                    if (result != 0) {
+                        return ascending.get(i) ? result : -result;
+                    }
+                }
+                return 0;
+            }
+        };
+    }
+
+    /**
+     * Compares numerically when both documents have a numeric value for the field, otherwise case insensitively by
+     * string value
+     */
+    protected int compareField(ProductSearchDocument o1, ProductSearchDocument o2, String field) {
+        BigDecimal n1 = o1.getNumericValue(field);
+        BigDecimal n2 = o2.getNumericValue(field);
+        if (n1 != null && n2 != null) {
+            return n1.compareTo(n2);
+        }
+        String s1 = o1.getFieldValue(field);
+        String s2 = o2.getFieldValue(field);
+        if (s1 == null || s2 == null) {
+            return 0;
+        }
+        return s1.compareToIgnoreCase(s2);
+    }
+
+}
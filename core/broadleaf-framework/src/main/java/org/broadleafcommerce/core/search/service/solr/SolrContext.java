@@ -23,6 +23,8 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.solr.client.solrj.SolrServer;
 import org.apache.solr.client.solrj.impl.CloudSolrServer;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * <p>
  * Provides a class that will statically hold the Solr server.
@@ -41,6 +43,8 @@ public class SolrContext {
     protected static SolrServer primaryServer = null;
     protected static SolrServer reindexServer = null;
 
+    protected static final AtomicLong indexGeneration = new AtomicLong();
+
     /**
      * Sets the primary SolrServer instance to communicate with Solr.  This is typically one of the following: 
      * <code>org.apache.solr.client.solrj.embedded.EmbeddedSolrServer</code>, 
@@ -188,4 +192,22 @@ public class SolrContext {
     public static boolean isSolrCloudMode() {
         return CloudSolrServer.class.isAssignableFrom(getServer().getClass());
     }
+
+    /**
+     * @return a number that changes whenever this JVM commits to or swaps the Solr index, used to invalidate locally
+     * cached search results
+     */
+    public static long getIndexGeneration() {
+        return indexGeneration.get();
+    }
+
+    /**
+     * Marks the index as changed. This is invoked by {@link SolrIndexServiceImpl} after a commit and by
+     * {@link SolrHelperServiceImpl} after swapping the cores.
+     * 
+     * @return the new index generation
+     */
+    public static long incrementIndexGeneration() {
+        return indexGeneration.incrementAndGet();
+    }
 }
@@ -157,6 +157,7 @@ public class SolrHelperServiceImpl implements SolrHelperService {
                 }
             }
         }
+        SolrContext.incrementIndexGeneration();
     }
 
     @Override
@@ -0,0 +1,72 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.core.search.service.solr;
+
+import org.broadleafcommerce.common.exception.ServiceException;
+
+/**
+ * Keeps the Solr index up to date as the catalog changes, without waiting for a full {@link SolrIndexService#rebuildIndex()}.
+ * Changed products, skus and categories are queued, changes to the same entity within the coalescing window are merged,
+ * and the affected documents are reindexed in batches.
+ * 
+ * @see {@link org.broadleafcommerce.core.catalog.domain.CatalogPersistedEvent}
+ */
+public interface SolrIndexQueueService {
+
+    /**
+     * @return whether catalog changes are being queued for indexing
+     */
+    public boolean isEnabled();
+
+    /**
+     * Queues the product to be reindexed
+     * 
+     * @param productId
+     */
+    public void enqueueProduct(Long productId);
+
+    /**
+     * Queues the product of the sku (or the sku itself when indexing by sku) to be reindexed
+     * 
+     * @param skuId
+     */
+    public void enqueueSku(Long skuId);
+
+    /**
+     * Queues every product in the category and its child categories to be reindexed
+     * 
+     * @param categoryId
+     */
+    public void enqueueCategory(Long categoryId);
+
+    /**
+     * Reindexes all queued changes, regardless of how long ago they were queued
+     * 
+     * @return the number of queued changes that were processed
+     * @throws ServiceException
+     */
+    public int flush() throws ServiceException;
+
+    /**
+     * @return the number of changes waiting to be indexed
+     */
+    public int getPendingCount();
+
+}
@@ -0,0 +1,536 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.core.search.service.solr;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.broadleafcommerce.common.event.BroadleafApplicationListener;
+import org.broadleafcommerce.common.exception.ServiceException;
+import org.broadleafcommerce.common.util.TransactionUtils;
+import org.broadleafcommerce.core.catalog.dao.CategoryDao;
+import org.broadleafcommerce.core.catalog.dao.ProductDao;
+import org.broadleafcommerce.core.catalog.dao.SkuDao;
+import org.broadleafcommerce.core.catalog.domain.CatalogPersistedEvent;
+import org.broadleafcommerce.core.catalog.domain.Category;
+import org.broadleafcommerce.core.catalog.domain.CategoryProductXref;
+import org.broadleafcommerce.core.catalog.domain.CategoryXref;
+import org.broadleafcommerce.core.catalog.domain.Product;
+import org.broadleafcommerce.core.catalog.domain.ProductAttribute;
+import org.broadleafcommerce.core.catalog.domain.Sku;
+import org.broadleafcommerce.core.catalog.domain.SkuAttribute;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+
+/**
+ * Default {@link SolrIndexQueueService} implementation. It is fed by the {@link CatalogPersistedEvent}s published for
+ * products, skus, categories, their attributes and their cross references, which covers changes made through the {@link
+ * org.broadleafcommerce.core.catalog.service.CatalogService}, the inventory service and the admin alike.
+ * 
+ * Every change is kept as a key (for example <code>product:12</code>) along with the time it was first queued, so any
+ * number of changes to the same entity result in a single reindex. A daemon thread flushes the keys that are older than
+ * <code>solr.index.queue.coalesceWindow</code>: categories are expanded into the products they contain, products that
+ * are no longer active are removed from the index, and the rest are indexed in batches followed by one soft commit.
+ * 
+ * When <code>solr.index.queue.journal.file</code> is set, queued keys are also written to that file and queued again
+ * on startup, so that pending changes survive a restart. The keys are appended by a background thread every
+ * <code>solr.index.queue.journal.interval</code> milliseconds rather than by the thread that saved the entity.
+ */
+@Service("blSolrIndexQueueService")
+public class SolrIndexQueueServiceImpl implements SolrIndexQueueService, BroadleafApplicationListener<CatalogPersistedEvent> {
+
+    private static final Log LOG = LogFactory.getLog(SolrIndexQueueServiceImpl.class);
+
+    protected static final String PRODUCT_KEY = "product:";
+    protected static final String SKU_KEY = "sku:";
+    protected static final String CATEGORY_KEY = "category:";
+
+    @Value("${solr.index.queue.enabled:false}")
+    protected boolean enabled = false;
+
+    /**
+     * Milliseconds a change waits in the queue, so that further changes to the same entity are indexed along with it
+     */
+    @Value("${solr.index.queue.coalesceWindow:5000}")
+    protected long coalesceWindow = 5000;
+
+    @Value("${solr.index.queue.batchSize:100}")
+    protected int batchSize = 100;
+
+    @Value("${solr.index.queue.journal.file:}")
+    protected String journalFile;
+
+    /**
+     * Milliseconds between appending the newly queued keys to the journal
+     */
+    @Value("${solr.index.queue.journal.interval:1000}")
+    protected long journalInterval = 1000;
+
+    @Value("${solr.index.use.sku}")
+    protected boolean useSku;
+
+    @Resource(name = "blSolrIndexService")
+    protected SolrIndexService solrIndexService;
+
+    @Resource(name = "blSolrHelperService")
+    protected SolrHelperService shs;
+
+    @Resource(name = "blProductDao")
+    protected ProductDao productDao;
+
+    @Resource(name = "blSkuDao")
+    protected SkuDao skuDao;
+
+    @Resource(name = "blCategoryDao")
+    protected CategoryDao categoryDao;
+
+    @Resource(name = "blTransactionManager")
+    protected PlatformTransactionManager transactionManager;
+
+    protected final ConcurrentMap<String, Long> pending = new ConcurrentHashMap<String, Long>();
+
+    protected final Object flushLock = new Object();
+
+    protected final Object journalLock = new Object();
+
+    /**
+     * Keys that were queued but not yet appended to the journal
+     */
+    protected final Queue<String> unjournaledKeys = new ConcurrentLinkedQueue<String>();
+
+    protected ScheduledExecutorService flushExecutor;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        replayJournal();
+        // A second thread keeps the journal current while a flush is indexing
+        flushExecutor = Executors.newScheduledThreadPool(2, new ThreadFactory() {
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "blSolrIndexQueue");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        flushExecutor.scheduleWithFixedDelay(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    flush(System.currentTimeMillis() - coalesceWindow);
+                } catch (Exception e) {
+                    LOG.error("Unable to index the queued catalog changes, they will be retried", e);
+                }
+            }
+        }, coalesceWindow, coalesceWindow, TimeUnit.MILLISECONDS);
+        if (StringUtils.isNotBlank(journalFile)) {
+            flushExecutor.scheduleWithFixedDelay(new Runnable() {
+
+                @Override
+                public void run() {
+                    appendJournal();
+                }
+            }, journalInterval, journalInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (flushExecutor != null) {
+            flushExecutor.shutdownNow();
+        }
+        appendJournal();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void enqueueProduct(Long productId) {
+        enqueue(PRODUCT_KEY + productId);
+    }
+
+    @Override
+    public void enqueueSku(Long skuId) {
+        enqueue(SKU_KEY + skuId);
+    }
+
+    @Override
+    public void enqueueCategory(Long categoryId) {
+        enqueue(CATEGORY_KEY + categoryId);
+    }
+
+    @Override
+    public int flush() throws ServiceException {
+        return flush(Long.MAX_VALUE);
+    }
+
+    @Override
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    @Override
+    public void onApplicationEvent(CatalogPersistedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        Object entity = event.getEntity();
+        if (entity instanceof Product) {
+            enqueueProduct(((Product) entity).getId());
+        } else if (entity instanceof Sku) {
+            enqueueSku(((Sku) entity).getId());
+        } else if (entity instanceof Category) {
+            enqueueCategory(((Category) entity).getId());
+        } else if (entity instanceof ProductAttribute) {
+            // Attributes are indexed as fields of their product
+            Product product = ((ProductAttribute) entity).getProduct();
+            if (product != null) {
+                enqueueProduct(product.getId());
+            }
+        } else if (entity instanceof SkuAttribute) {
+            Sku sku = ((SkuAttribute) entity).getSku();
+            if (sku != null) {
+                enqueueSku(sku.getId());
+            }
+        } else if (entity instanceof CategoryXref) {
+            // The parent categories of everything in the sub category changed
+            Category subCategory = ((CategoryXref) entity).getSubCategory();
+            if (subCategory != null) {
+                enqueueCategory(subCategory.getId());
+            }
+        } else if (entity instanceof CategoryProductXref) {
+            Product product = ((CategoryProductXref) entity).getProduct();
+            if (product != null) {
+                enqueueProduct(product.getId());
+            }
+        }
+    }
+
+    @Override
+    public boolean isAsynchronous() {
+        return false;
+    }
+
+    protected void enqueue(String key) {
+        if (!enabled || key.endsWith("null")) {
+            return;
+        }
+        if (pending.putIfAbsent(key, System.currentTimeMillis()) == null && StringUtils.isNotBlank(journalFile)) {
+            unjournaledKeys.add(key);
+        }
+    }
+
+    /**
+     * Indexes the changes that were queued before the given time
+     * 
+     * @param queuedBefore
+     * @return the number of queued changes that were processed
+     * @throws ServiceException
+     */
+    protected int flush(long queuedBefore) throws ServiceException {
+        synchronized (flushLock) {
+            if (solrIndexService.isReindexInProcess()) {
+                LOG.debug("A full reindex is in process, the queued catalog changes will be indexed afterwards");
+                return 0;
+            }
+            Map<String, Long> batch = new HashMap<String, Long>();
+            for (Map.Entry<String, Long> entry : pending.entrySet()) {
+                // Changes queued again while this batch is indexed get a new entry and are indexed by the next flush
+                if (entry.getValue() <= queuedBefore && pending.remove(entry.getKey(), entry.getValue())) {
+                    batch.put(entry.getKey(), entry.getValue());
+                }
+            }
+            if (batch.isEmpty()) {
+                return 0;
+            }
+
+            long start = System.currentTimeMillis();
+            try {
+                index(batch.keySet());
+            } catch (ServiceException e) {
+                requeue(batch);
+                throw e;
+            } catch (RuntimeException e) {
+                requeue(batch);
+                throw e;
+            }
+            rewriteJournal();
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Indexed " + batch.size() + " queued catalog changes in " + (System.currentTimeMillis() - start) + "ms");
+            }
+            return batch.size();
+        }
+    }
+
+    protected void requeue(Map<String, Long> batch) {
+        for (Map.Entry<String, Long> entry : batch.entrySet()) {
+            pending.putIfAbsent(entry.getKey(), entry.getValue());
+        }
+    }
+
+    protected void index(Set<String> keys) throws ServiceException {
+        TransactionStatus status = TransactionUtils.createTransaction("indexQueuedCatalogChanges",
+                TransactionDefinition.PROPAGATION_REQUIRED, transactionManager, true);
+        try {
+            Set<Long> productIds = new LinkedHashSet<Long>();
+            Set<Long> skuIds = new LinkedHashSet<Long>();
+            Set<Long> visitedCategoryIds = new HashSet<Long>();
+            for (String key : keys) {
+                Long id = Long.valueOf(key.substring(key.indexOf(':') + 1));
+                if (key.startsWith(PRODUCT_KEY)) {
+                    productIds.add(id);
+                } else if (key.startsWith(SKU_KEY)) {
+                    addSku(id, productIds, skuIds);
+                } else if (key.startsWith(CATEGORY_KEY)) {
+                    addCategoryProducts(id, productIds, visitedCategoryIds);
+                }
+            }
+
+            if (useSku) {
+                for (Product product : readProducts(new ArrayList<Long>(productIds))) {
+                    for (Sku sku : product.getAllSkus()) {
+                        skuIds.add(sku.getId());
+                    }
+                }
+                indexSkus(new ArrayList<Long>(skuIds));
+            } else {
+                indexProducts(new ArrayList<Long>(productIds));
+            }
+            solrIndexService.commit(SolrContext.getServer(), true, false, false);
+            TransactionUtils.finalizeTransaction(status, transactionManager, false);
+        } catch (IOException e) {
+            TransactionUtils.finalizeTransaction(status, transactionManager, true);
+            throw new ServiceException("Could not index the queued catalog changes", e);
+        } catch (ServiceException e) {
+            TransactionUtils.finalizeTransaction(status, transactionManager, true);
+            throw e;
+        } catch (RuntimeException e) {
+            TransactionUtils.finalizeTransaction(status, transactionManager, true);
+            throw e;
+        }
+    }
+
+    protected void addSku(Long skuId, Set<Long> productIds, Set<Long> skuIds) {
+        if (useSku) {
+            skuIds.add(skuId);
+            return;
+        }
+        Sku sku = skuDao.readSkuById(skuId);
+        if (sku != null && sku.getProduct() != null) {
+            productIds.add(sku.getProduct().getId());
+        }
+    }
+
+    /**
+     * Adds the products of the category and of all of its child categories
+     */
+    protected void addCategoryProducts(Long categoryId, Set<Long> productIds, Set<Long> visitedCategoryIds) {
+        if (!visitedCategoryIds.add(categoryId)) {
+            return;
+        }
+        Category category = categoryDao.readCategoryById(categoryId);
+        if (category == null) {
+            return;
+        }
+        int offset = 0;
+        List<Product> products;
+        do {
+            products = productDao.readProductsByCategory(categoryId, batchSize, offset);
+            offset += products.size();
+            for (Product product : products) {
+                productIds.add(product.getId());
+            }
+        } while (products.size() == batchSize);
+
+        for (CategoryXref childXref : category.getChildCategoryXrefs()) {
+            if (childXref.getSubCategory() != null) {
+                addCategoryProducts(childXref.getSubCategory().getId(), productIds, visitedCategoryIds);
+            }
+        }
+    }
+
+    protected List<Product> readProducts(List<Long> productIds) {
+        List<Product> products = new ArrayList<Product>(productIds.size());
+        for (int i = 0; i < productIds.size(); i += batchSize) {
+            products.addAll(productDao.readProductsByIds(productIds.subList(i, Math.min(i + batchSize, productIds.size()))));
+        }
+        return products;
+    }
+
+    protected void indexProducts(List<Long> productIds) throws ServiceException, IOException {
+        for (int i = 0; i < productIds.size(); i += batchSize) {
+            List<Long> batchIds = productIds.subList(i, Math.min(i + batchSize, productIds.size()));
+            List<Product> active = new ArrayList<Product>();
+            Set<Long> removed = new HashSet<Long>(batchIds);
+            for (Product product : productDao.readProductsByIds(batchIds)) {
+                if (product.isActive()) {
+                    active.add(product);
+                    removed.remove(product.getId());
+                }
+            }
+            if (!active.isEmpty()) {
+                solrIndexService.buildIncrementalProductIndex(active, false, false);
+            }
+            deleteDocuments(shs.getProductIdFieldName(), removed);
+        }
+    }
+
+    protected void indexSkus(List<Long> skuIds) throws ServiceException, IOException {
+        for (int i = 0; i < skuIds.size(); i += batchSize) {
+            List<Long> batchIds = skuIds.subList(i, Math.min(i + batchSize, skuIds.size()));
+            List<Sku> active = new ArrayList<Sku>();
+            Set<Long> removed = new HashSet<Long>(batchIds);
+            for (Sku sku : skuDao.readSkusByIds(batchIds)) {
+                if (sku.isActive()) {
+                    active.add(sku);
+                    removed.remove(sku.getId());
+                }
+            }
+            if (!active.isEmpty()) {
+                solrIndexService.buildIncrementalSkuIndex(active, false, false);
+            }
+            deleteDocuments(shs.getSkuIdFieldName(), removed);
+        }
+    }
+
+    /**
+     * Removes the documents of products or skus that were deleted, archived or deactivated
+     */
+    protected void deleteDocuments(String idFieldName, Set<Long> ids) throws ServiceException, IOException {
+        if (ids.isEmpty()) {
+            return;
+        }
+        String deleteQuery = shs.getNamespaceFieldName() + ":(\"" + shs.getCurrentNamespace() + "\") AND "
+                + idFieldName + ":(" + StringUtils.join(ids, " OR ") + ")";
+        try {
+            SolrContext.getServer().deleteByQuery(deleteQuery);
+        } catch (SolrServerException e) {
+            throw new ServiceException("Could not remove documents from the index", e);
+        }
+    }
+
+    /**
+     * Appends the keys queued since the last call to the journal, with a single write
+     */
+    protected void appendJournal() {
+        if (StringUtils.isBlank(journalFile) || unjournaledKeys.isEmpty()) {
+            return;
+        }
+        synchronized (journalLock) {
+            StringBuilder keys = new StringBuilder();
+            String key;
+            while ((key = unjournaledKeys.poll()) != null) {
+                keys.append(key).append('\n');
+            }
+            if (keys.length() == 0) {
+                return;
+            }
+            Writer writer = null;
+            try {
+                writer = new FileWriter(journalFile, true);
+                writer.write(keys.toString());
+            } catch (IOException e) {
+                LOG.warn("Unable to journal the queued catalog changes " + keys.toString().replace('\n', ' '), e);
+            } finally {
+                IOUtils.closeQuietly(writer);
+            }
+        }
+    }
+
+    /**
+     * Replaces the journal with the keys that are still pending
+     */
+    protected void rewriteJournal() {
+        if (StringUtils.isBlank(journalFile)) {
+            return;
+        }
+        synchronized (journalLock) {
+            // Every key still waiting to be appended was queued before the snapshot below, which includes it
+            unjournaledKeys.clear();
+            File file = new File(journalFile);
+            File temp = new File(journalFile + ".tmp");
+            try {
+                FileUtils.writeLines(temp, "UTF-8", new ArrayList<String>(pending.keySet()));
+                if (!temp.renameTo(file)) {
+                    FileUtils.copyFile(temp, file);
+                    FileUtils.deleteQuietly(temp);
+                }
+            } catch (IOException e) {
+                LOG.warn("Unable to rewrite the index queue journal " + journalFile, e);
+            }
+        }
+    }
+
+    protected void replayJournal() {
+        if (StringUtils.isBlank(journalFile) || !new File(journalFile).exists()) {
+            return;
+        }
+        try {
+            List<String> keys = FileUtils.readLines(new File(journalFile), "UTF-8");
+            long now = System.currentTimeMillis();
+            for (String key : keys) {
+                if (StringUtils.isNotBlank(key)) {
+                    pending.putIfAbsent(key.trim(), now);
+                }
+            }
+            LOG.info("Queued " + pending.size() + " catalog changes from the index queue journal " + journalFile);
+        } catch (IOException e) {
+            LOG.error("Unable to read the index queue journal " + journalFile, e);
+        }
+    }
+
+}
@@ -79,6 +79,17 @@ public interface SolrIndexService {
      */
     public void buildIncrementalSkuIndex(List<Sku> skus, boolean useReindexServer) throws ServiceException;
 
+    /**
+     * Same as {@link #buildIncrementalSkuIndex(List, boolean)}, but allows the caller to commit once after indexing
+     * several batches
+     * 
+     * @param skus
+     * @param useReindexServer
+     * @param commit whether to commit the documents according to the solr.index.commit settings
+     * @throws ServiceException
+     */
+    public void buildIncrementalSkuIndex(List<Sku> skus, boolean useReindexServer, boolean commit) throws ServiceException;
+
     /**
      * This can be used in lieu of passing in page sizes,  The reason is that one might want to apply filters or only 
      * index certain products.
@@ -88,6 +99,17 @@ public interface SolrIndexService {
      */
     public void buildIncrementalProductIndex(List<Product> products, boolean useReindexServer) throws ServiceException;
 
+    /**
+     * Same as {@link #buildIncrementalProductIndex(List, boolean)}, but allows the caller to commit once after indexing
+     * several batches
+     * 
+     * @param products
+     * @param useReindexServer
+     * @param commit whether to commit the documents according to the solr.index.commit settings
+     * @throws ServiceException
+     */
+    public void buildIncrementalProductIndex(List<Product> products, boolean useReindexServer, boolean commit) throws ServiceException;
+
     /**
      * Saves some global context that might be altered during indexing.
      * 
@@ -266,6 +266,7 @@ public class SolrIndexServiceImpl implements SolrIndexService {
 
             //Explicitly do a hard commit here since we just deleted the entire index
             SolrContext.getReindexServer().commit();
+            SolrContext.incrementIndexGeneration();
         } catch (Exception e) {
             if (ServiceException.class.isAssignableFrom(e.getClass())) {
                 throw (ServiceException) e;
@@ -280,6 +281,11 @@ public class SolrIndexServiceImpl implements SolrIndexService {
     
     @Override
     public void buildIncrementalProductIndex(List<Product> products, boolean useReindexServer) throws ServiceException {
+        buildIncrementalProductIndex(products, useReindexServer, true);
+    }
+
+    @Override
+    public void buildIncrementalProductIndex(List<Product> products, boolean useReindexServer, boolean commit) throws ServiceException {
         TransactionStatus status = TransactionUtils.createTransaction("executeIncrementalProductIndex",
                 TransactionDefinition.PROPAGATION_REQUIRED, transactionManager, true);
         if (SolrIndexCachedOperation.getCache() == null) {
@@ -334,7 +340,9 @@ public class SolrIndexServiceImpl implements SolrIndexService {
             if (!CollectionUtils.isEmpty(documents)) {
                 SolrServer server = useReindexServer ? SolrContext.getReindexServer() : SolrContext.getServer();
                 server.add(documents);
-                commit(server);
+                if (commit) {
+                    commit(server);
+                }
             }
             TransactionUtils.finalizeTransaction(status, transactionManager, false);
         } catch (SolrServerException e) {
@@ -360,6 +368,11 @@ public class SolrIndexServiceImpl implements SolrIndexService {
 
     @Override
     public void buildIncrementalSkuIndex(List<Sku> skus, boolean useReindexServer) throws ServiceException {
+        buildIncrementalSkuIndex(skus, useReindexServer, true);
+    }
+
+    @Override
+    public void buildIncrementalSkuIndex(List<Sku> skus, boolean useReindexServer, boolean commit) throws ServiceException {
         TransactionStatus status = TransactionUtils.createTransaction("executeIncrementalSkuIndex",
                 TransactionDefinition.PROPAGATION_REQUIRED, transactionManager, true);
         if (SolrIndexCachedOperation.getCache() == null) {
@@ -404,7 +417,9 @@ public class SolrIndexServiceImpl implements SolrIndexService {
             if (!CollectionUtils.isEmpty(documents)) {
                 SolrServer server = useReindexServer ? SolrContext.getReindexServer() : SolrContext.getServer();
                 server.add(documents);
-                commit(server);
+                if (commit) {
+                    commit(server);
+                }
             }
             TransactionUtils.finalizeTransaction(status, transactionManager, false);
         } catch (SolrServerException e) {
@@ -907,6 +922,7 @@ public class SolrIndexServiceImpl implements SolrIndexService {
             }
 
             server.commit(waitFlush, waitSearcher, softCommit);
+            SolrContext.incrementIndexGeneration();
         } catch (SolrServerException e) {
             throw new ServiceException("Could not commit changes to Solr index", e);
         }
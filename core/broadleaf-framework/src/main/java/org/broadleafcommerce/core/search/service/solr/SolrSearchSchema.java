@@ -0,0 +1,186 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.core.search.service.solr;
+
+import org.broadleafcommerce.core.search.domain.Field;
+import org.broadleafcommerce.core.search.domain.FieldImpl;
+import org.broadleafcommerce.core.search.domain.RequiredFacet;
+import org.broadleafcommerce.core.search.domain.RequiredFacetImpl;
+import org.broadleafcommerce.core.search.domain.SearchFacet;
+import org.broadleafcommerce.core.search.domain.SearchFacetImpl;
+import org.broadleafcommerce.core.search.domain.SearchFacetRange;
+import org.broadleafcommerce.core.search.domain.SearchFacetRangeImpl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable snapshot of everything a Solr search needs from the search configuration tables for a single site,
+ * catalog and locale: the searchable and sortable fields, the qf string, the abbreviation to index field map used for
+ * sorting and the global search facets. It is built by {@link SolrSearchServiceImpl} and replaced as a whole once
+ * fields or facets change.
+ * 
+ * The fields and facets are kept as plain copies that are not attached to any Hibernate session, and every call to
+ * {@link #getFields()} or {@link #getSearchFacets()} hands out new copies of those, so that a request that modifies
+ * what it was given cannot affect the requests running at the same time.
+ * 
+ * @see {@link SolrSearchServiceImpl#getSearchSchema()}
+ */
+public class SolrSearchSchema {
+
+    protected final long version;
+    protected final long created;
+    protected final List<Field> fields;
+    protected final String queryFields;
+    protected final Map<String, String> solrFieldKeyMap;
+    protected final List<SearchFacet> searchFacets;
+
+    public SolrSearchSchema(long version, List<Field> fields, String queryFields, Map<String, String> solrFieldKeyMap,
+            List<SearchFacet> searchFacets) {
+        this.version = version;
+        this.created = System.currentTimeMillis();
+        this.fields = Collections.unmodifiableList(copyFields(fields));
+        this.queryFields = queryFields;
+        this.solrFieldKeyMap = Collections.unmodifiableMap(solrFieldKeyMap);
+        this.searchFacets = Collections.unmodifiableList(copySearchFacets(searchFacets));
+    }
+
+    /**
+     * @return the version of the search configuration this schema was built from
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public long getCreated() {
+        return created;
+    }
+
+    /**
+     * @return a copy of the product or sku fields, depending on which is indexed
+     */
+    public List<Field> getFields() {
+        return copyFields(fields);
+    }
+
+    /**
+     * @return the value of the edismax qf parameter
+     */
+    public String getQueryFields() {
+        return queryFields;
+    }
+
+    /**
+     * @return a map of abbreviated key to fully qualified solr index field key for all fields
+     */
+    public Map<String, String> getSolrFieldKeyMap() {
+        return solrFieldKeyMap;
+    }
+
+    /**
+     * @return a copy of the facets shown on search result pages
+     */
+    public List<SearchFacet> getSearchFacets() {
+        return copySearchFacets(searchFacets);
+    }
+
+    protected static List<Field> copyFields(List<Field> fields) {
+        List<Field> copies = new ArrayList<Field>(fields.size());
+        for (Field field : fields) {
+            copies.add(copyField(field));
+        }
+        return copies;
+    }
+
+    protected static List<SearchFacet> copySearchFacets(List<SearchFacet> searchFacets) {
+        List<SearchFacet> copies = new ArrayList<SearchFacet>(searchFacets.size());
+        for (SearchFacet searchFacet : searchFacets) {
+            copies.add(copySearchFacet(searchFacet, true));
+        }
+        return copies;
+    }
+
+    /**
+     * Copies the values of the field that are used when searching. Search configs are not supported by the default
+     * field implementation and are not copied.
+     */
+    protected static Field copyField(Field field) {
+        if (field == null) {
+            return null;
+        }
+        Field copy = new FieldImpl();
+        copy.setId(field.getId());
+        copy.setEntityType(field.getEntityType());
+        copy.setFriendlyName(field.getFriendlyName());
+        copy.setPropertyName(field.getPropertyName());
+        copy.setAbbreviation(field.getAbbreviation());
+        copy.setSearchable(field.getSearchable());
+        copy.setFacetFieldType(field.getFacetFieldType());
+        copy.setSearchableFieldTypes(field.getSearchableFieldTypes());
+        copy.setTranslatable(field.getTranslatable());
+        return copy;
+    }
+
+    /**
+     * Copies the facet together with its field and ranges. The facets a facet requires only need their field to decide
+     * whether the facet is available, so their own ranges and required facets are not copied.
+     */
+    protected static SearchFacet copySearchFacet(SearchFacet searchFacet, boolean deep) {
+        if (searchFacet == null) {
+            return null;
+        }
+        SearchFacet copy = new SearchFacetImpl();
+        copy.setId(searchFacet.getId());
+        copy.setLabel(searchFacet.getLabel());
+        copy.setField(copyField(searchFacet.getField()));
+        copy.setShowOnSearch(searchFacet.getShowOnSearch());
+        copy.setSearchDisplayPriority(searchFacet.getSearchDisplayPriority());
+        copy.setCanMultiselect(searchFacet.getCanMultiselect());
+        copy.setRequiresAllDependentFacets(searchFacet.getRequiresAllDependentFacets());
+        if (!deep) {
+            return copy;
+        }
+
+        List<SearchFacetRange> ranges = new ArrayList<SearchFacetRange>();
+        for (SearchFacetRange range : searchFacet.getSearchFacetRanges()) {
+            SearchFacetRange rangeCopy = new SearchFacetRangeImpl();
+            rangeCopy.setId(range.getId());
+            rangeCopy.setMinValue(range.getMinValue());
+            rangeCopy.setMaxValue(range.getMaxValue());
+            rangeCopy.setSearchFacet(copy);
+            ranges.add(rangeCopy);
+        }
+        copy.setSearchFacetRanges(ranges);
+
+        List<RequiredFacet> requiredFacets = new ArrayList<RequiredFacet>();
+        for (RequiredFacet requiredFacet : searchFacet.getRequiredFacets()) {
+            RequiredFacet requiredFacetCopy = new RequiredFacetImpl();
+            requiredFacetCopy.setId(requiredFacet.getId());
+            requiredFacetCopy.setSearchFacet(copy);
+            requiredFacetCopy.setRequiredFacet(copySearchFacet(requiredFacet.getRequiredFacet(), false));
+            requiredFacets.add(requiredFacetCopy);
+        }
+        copy.setRequiredFacets(requiredFacets);
+        return copy;
+    }
+
+}
@@ -19,6 +19,10 @@
  */
 package org.broadleafcommerce.core.search.service.solr;
 
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Element;
+
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
@@ -32,8 +36,12 @@ import org.apache.solr.client.solrj.impl.CloudSolrServer;
 import org.apache.solr.client.solrj.request.CollectionAdminRequest;
 import org.apache.solr.client.solrj.response.QueryResponse;
 import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
 import org.apache.solr.common.cloud.Aliases;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.SimpleOrderedMap;
 import org.apache.solr.core.CoreContainer;
+import org.broadleafcommerce.common.event.BroadleafApplicationListener;
 import org.broadleafcommerce.common.exception.ServiceException;
 import org.broadleafcommerce.common.locale.domain.Locale;
 import org.broadleafcommerce.common.web.BroadleafRequestContext;
@@ -47,6 +55,7 @@ import org.broadleafcommerce.core.search.dao.SearchFacetDao;
 import org.broadleafcommerce.core.search.domain.CategorySearchFacet;
 import org.broadleafcommerce.core.search.domain.Field;
 import org.broadleafcommerce.core.search.domain.FieldEntity;
+import org.broadleafcommerce.core.search.domain.SearchConfigPersistedEvent;
 import org.broadleafcommerce.core.search.domain.SearchCriteria;
 import org.broadleafcommerce.core.search.domain.SearchFacet;
 import org.broadleafcommerce.core.search.domain.SearchFacetDTO;
@@ -70,13 +79,20 @@ import java.io.InputStream;
 import java.math.BigDecimal;
 import java.net.URLDecoder;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.Resource;
 import javax.xml.parsers.ParserConfigurationException;
@@ -89,7 +105,8 @@ import javax.xml.parsers.ParserConfigurationException;
  * 
  * @author Andre Azzolini (apazzolini)
  */
-public class SolrSearchServiceImpl implements SearchService, InitializingBean, DisposableBean {
+public class SolrSearchServiceImpl implements SearchService, InitializingBean, DisposableBean,
+        BroadleafApplicationListener<SearchConfigPersistedEvent> {
     private static final Log LOG = LogFactory.getLog(SolrSearchServiceImpl.class);
 
     @Value("${solr.index.use.sku}")
@@ -124,6 +141,42 @@ public class SolrSearchServiceImpl implements SearchService, InitializingBean, D
     @Resource(name = "blSolrSearchServiceExtensionManager")
     protected SolrSearchServiceExtensionManager extensionManager;
 
+    /**
+     * Whether the search fields and facets are read from a compiled {@link SolrSearchSchema} instead of from the
+     * database on every search
+     */
+    @Value("${solr.search.schema.cache.enabled:true}")
+    protected boolean searchSchemaCacheEnabled = true;
+
+    /**
+     * Number of seconds after which a search schema is rebuilt even if no change was seen by this node, to pick up
+     * changes made through the admin of another node. A negative value keeps it until the next change.
+     */
+    @Value("${solr.search.schema.cache.ttl:300}")
+    protected int searchSchemaCacheTtl = 300;
+
+    /**
+     * Whether Solr responses are kept in the local blSolrQueryResponseElements cache until the index is committed to
+     * or swapped. Products and skus are still read from the database for every search. The index generation only
+     * tracks the commits and swaps of this JVM, so on a cluster where another node indexes, a cached response is only
+     * dropped when it expires after the timeToLiveSeconds of the cache (60 seconds by default).
+     */
+    @Value("${solr.query.response.cache.enabled:false}")
+    protected boolean queryResponseCacheEnabled = false;
+
+    /**
+     * Whether a cached response of an older index generation may still be served while a single thread queries Solr
+     * for the current one
+     */
+    @Value("${solr.query.response.cache.staleWhileRevalidate:false}")
+    protected boolean queryResponseStaleWhileRevalidate = false;
+
+    protected Cache queryResponseCache;
+
+    protected final AtomicLong searchSchemaVersion = new AtomicLong();
+
+    protected final ConcurrentMap<String, SolrSearchSchema> searchSchemas = new ConcurrentHashMap<String, SolrSearchSchema>();
+
     protected String solrHomePath;
 
     public SolrSearchServiceImpl(String solrServer) throws IOException, ParserConfigurationException, SAXException {
@@ -515,14 +568,14 @@ public class SolrSearchServiceImpl implements SearchService, InitializingBean, D
     }
 
     protected String buildQueryFieldsString() {
-        StringBuilder queryBuilder = new StringBuilder();
-        List<Field> fields = null;
-        if (useSku) {
-            fields = fieldDao.readAllSkuFields();
-        } else {
-            fields = fieldDao.readAllProductFields();
+        if (searchSchemaCacheEnabled) {
+            return getSearchSchema().getQueryFields();
         }
+        return buildQueryFieldsString(readAllFields());
+    }
 
+    protected String buildQueryFieldsString(List<Field> fields) {
+        StringBuilder queryBuilder = new StringBuilder();
         for (Field currentField : fields) {
             if (currentField.getSearchable()) {
                 appendFieldToQuery(queryBuilder, currentField);
@@ -558,6 +611,7 @@ public class SolrSearchServiceImpl implements SearchService, InitializingBean, D
      * @throws ServiceException
      */
     protected SearchResult findSearchResults(String qualifiedSolrQuery, List<SearchFacetDTO> facets, SearchCriteria searchCriteria, String defaultSort, String... filterQueries) throws ServiceException {
+        long startTime = System.currentTimeMillis();
         Map<String, SearchFacetDTO> namedFacetMap = getNamedFacetMap(facets, searchCriteria);
 
         // Build the basic query
@@ -606,7 +660,7 @@ public class SolrSearchServiceImpl implements SearchService, InitializingBean, D
         List<SolrDocument> responseDocuments;
         int numResults = 0;
         try {
-            response = SolrContext.getServer().query(solrQuery, getSolrQueryMethod());
+            response = query(solrQuery);
             responseDocuments = getResponseDocuments(response);
             numResults = (int) response.getResults().getNumFound();
 
@@ -638,9 +692,188 @@ public class SolrSearchServiceImpl implements SearchService, InitializingBean, D
             result.setProducts(products);
         }
 
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Solr search for " + qualifiedSolrQuery + " took " + (System.currentTimeMillis() - startTime) + "ms");
+        }
         return result;
     }
 
+    /**
+     * Executes the query against the primary server, or serves the response from the local cache if the same query was
+     * executed since the index generation last changed. The cache holds its own copy of the response, and every hit
+     * gets a fresh copy, so callers may modify the response they get back.
+     * 
+     * @param solrQuery the fully built query
+     * @return the Solr response
+     * @throws SolrServerException
+     */
+    protected QueryResponse query(SolrQuery solrQuery) throws SolrServerException {
+        if (!queryResponseCacheEnabled) {
+            return SolrContext.getServer().query(solrQuery, getSolrQueryMethod());
+        }
+        String key = buildQueryResponseCacheKey(solrQuery);
+        long generation = SolrContext.getIndexGeneration();
+        Element element = getQueryResponseCache().get(key);
+        CachedQueryResponse cached = element == null ? null : (CachedQueryResponse) element.getObjectValue();
+        if (cached != null) {
+            if (cached.getGeneration() == generation) {
+                return cached.copyResponse();
+            }
+            if (queryResponseStaleWhileRevalidate && !cached.startRevalidation()) {
+                // Another thread is already querying the current index generation
+                return cached.copyResponse();
+            }
+        }
+
+        QueryResponse response;
+        try {
+            response = SolrContext.getServer().query(solrQuery, getSolrQueryMethod());
+        } catch (SolrServerException e) {
+            if (cached != null) {
+                cached.endRevalidation();
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            if (cached != null) {
+                cached.endRevalidation();
+            }
+            throw e;
+        }
+        getQueryResponseCache().put(new Element(key, new CachedQueryResponse(response, generation)));
+        return response;
+    }
+
+    /**
+     * Builds the cache key for the query out of all of its parameters. Parameter names are sorted, as are the values of
+     * every parameter other than the sort, so that queries that only differ in the order their filters were added share
+     * the same key.
+     * 
+     * @param solrQuery
+     * @return the normalized cache key
+     */
+    protected String buildQueryResponseCacheKey(SolrQuery solrQuery) {
+        List<String> names = new ArrayList<String>(solrQuery.getParameterNames());
+        Collections.sort(names);
+        StringBuilder key = new StringBuilder();
+        for (String name : names) {
+            String[] values = solrQuery.getParams(name);
+            if (values == null) {
+                continue;
+            }
+            if (!"sort".equals(name)) {
+                values = values.clone();
+                Arrays.sort(values);
+            }
+            for (String value : values) {
+                key.append(name).append('=').append(value).append('&');
+            }
+        }
+        return key.toString();
+    }
+
+    protected Cache getQueryResponseCache() {
+        if (queryResponseCache == null) {
+            queryResponseCache = CacheManager.getInstance().getCache("blSolrQueryResponseElements");
+        }
+        return queryResponseCache;
+    }
+
+    /**
+     * The raw contents of a Solr response together with the index generation it was read from. The contents are copied
+     * when the response is cached and again for every caller, so that no two requests share the same documents or
+     * facet lists.
+     */
+    protected static class CachedQueryResponse {
+
+        protected final NamedList<Object> response;
+        protected final long generation;
+        protected final AtomicBoolean revalidating = new AtomicBoolean();
+
+        public CachedQueryResponse(QueryResponse response, long generation) {
+            this.response = copy(response.getResponse());
+            this.generation = generation;
+        }
+
+        /**
+         * @return a new response built from a copy of the cached contents
+         */
+        public QueryResponse copyResponse() {
+            return new QueryResponse(copy(response), null);
+        }
+
+        public long getGeneration() {
+            return generation;
+        }
+
+        /**
+         * @return whether the calling thread should query Solr for the current generation
+         */
+        public boolean startRevalidation() {
+            return revalidating.compareAndSet(false, true);
+        }
+
+        public void endRevalidation() {
+            revalidating.set(false);
+        }
+
+        /**
+         * Copies the containers a Solr response is made of. Strings, numbers, dates and other values that are not
+         * modified in place are shared.
+         */
+        @SuppressWarnings("unchecked")
+        protected static <T> T copy(T value) {
+            if (value instanceof SolrDocumentList) {
+                SolrDocumentList documents = (SolrDocumentList) value;
+                SolrDocumentList copy = new SolrDocumentList();
+                copy.setNumFound(documents.getNumFound());
+                copy.setStart(documents.getStart());
+                copy.setMaxScore(documents.getMaxScore());
+                for (SolrDocument document : documents) {
+                    copy.add(copy(document));
+                }
+                return (T) copy;
+            }
+            if (value instanceof SolrDocument) {
+                SolrDocument document = (SolrDocument) value;
+                SolrDocument copy = new SolrDocument();
+                for (Map.Entry<String, Object> field : document.entrySet()) {
+                    copy.setField(field.getKey(), copy(field.getValue()));
+                }
+                if (document.hasChildDocuments()) {
+                    for (SolrDocument child : document.getChildDocuments()) {
+                        copy.addChildDocument(copy(child));
+                    }
+                }
+                return (T) copy;
+            }
+            if (value instanceof NamedList) {
+                NamedList<Object> list = (NamedList<Object>) value;
+                NamedList<Object> copy = list instanceof SimpleOrderedMap ? new SimpleOrderedMap<Object>()
+                        : new NamedList<Object>();
+                for (int i = 0; i < list.size(); i++) {
+                    copy.add(list.getName(i), copy(list.getVal(i)));
+                }
+                return (T) copy;
+            }
+            if (value instanceof List) {
+                List<Object> copy = new ArrayList<Object>();
+                for (Object item : (List<Object>) value) {
+                    copy.add(copy(item));
+                }
+                return (T) copy;
+            }
+            if (value instanceof Map) {
+                Map<Object, Object> copy = new LinkedHashMap<Object, Object>();
+                for (Map.Entry<Object, Object> entry : ((Map<Object, Object>) value).entrySet()) {
+                    copy.put(entry.getKey(), copy(entry.getValue()));
+                }
+                return (T) copy;
+            }
+            return value;
+        }
+
+    }
+
     /**
      * Provides a hook point for implementations to modify all SolrQueries before they're executed.
      * Modules should leverage the extension manager method of the same name,
@@ -660,8 +893,18 @@ public class SolrSearchServiceImpl implements SearchService, InitializingBean, D
         return shs.getResponseDocuments(response);
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * The facets come from the {@link SolrSearchSchema} when it is enabled, but the DTOs are still built for every
+     * request and are not kept in the schema: which facets are available depends on the parameters of the request, and
+     * the search marks the DTOs active and fills in their values and counts from the Solr response.
+     */
     @Override
     public List<SearchFacetDTO> getSearchFacets() {
+        if (searchSchemaCacheEnabled) {
+            return buildSearchFacetDTOs(getSearchSchema().getSearchFacets());
+        }
         if (useSku) {
             return buildSearchFacetDTOs(searchFacetDao.readAllSearchFacets(FieldEntity.SKU));
         }
@@ -687,12 +930,7 @@ public class SolrSearchServiceImpl implements SearchService, InitializingBean, D
      * @param searchCriteria
      */
     protected void attachSortClause(SolrQuery query, SearchCriteria searchCriteria, String defaultSort) {
-        List<Field> fields = null;
-        if (useSku) {
-            fields = fieldDao.readAllSkuFields();
-        } else {
-            fields = fieldDao.readAllProductFields();
-        }
+        List<Field> fields = searchSchemaCacheEnabled ? getSearchSchema().getFields() : readAllFields();
         shs.attachSortClause(query, searchCriteria, defaultSort, fields);
     }
 
@@ -901,13 +1139,78 @@ public class SolrSearchServiceImpl implements SearchService, InitializingBean, D
      * @return a map of abbreviated key to fully qualified solr index field key for all product fields
      */
     protected Map<String, String> getSolrFieldKeyMap(SearchCriteria searchCriteria) {
-        List<Field> fields = null;
+        if (searchSchemaCacheEnabled) {
+            return new HashMap<String, String>(getSearchSchema().getSolrFieldKeyMap());
+        }
+        return shs.getSolrFieldKeyMap(searchCriteria, readAllFields());
+    }
+
+    protected List<Field> readAllFields() {
         if (useSku) {
-            fields = fieldDao.readAllSkuFields();
-        } else {
-            fields = fieldDao.readAllProductFields();
+            return fieldDao.readAllSkuFields();
+        }
+        return fieldDao.readAllProductFields();
+    }
+
+    /**
+     * Returns the compiled search schema for the current site, catalog and locale, building it if the search
+     * configuration changed since it was last built or if it has outlived <code>solr.search.schema.cache.ttl</code>
+     * 
+     * @return the search schema
+     */
+    protected SolrSearchSchema getSearchSchema() {
+        String key = getSearchSchemaKey();
+        long version = searchSchemaVersion.get();
+        SolrSearchSchema schema = searchSchemas.get(key);
+        if (schema == null || schema.getVersion() != version
+                || (searchSchemaCacheTtl >= 0 && System.currentTimeMillis() - schema.getCreated() > searchSchemaCacheTtl * 1000L)) {
+            schema = buildSearchSchema(version);
+            searchSchemas.put(key, schema);
+        }
+        return schema;
+    }
+
+    /**
+     * The fields and facets can be overridden for each site and catalog, and the field names in the schema depend on the
+     * prefixes contributed by the extension handlers, which by default vary by locale. Implementations whose prefixes
+     * depend on more than that should include it in the key.
+     * 
+     * @return the key the search schema of the current request is kept under
+     */
+    protected String getSearchSchemaKey() {
+        StringBuilder sb = new StringBuilder();
+        BroadleafRequestContext brc = BroadleafRequestContext.getBroadleafRequestContext();
+        if (brc != null) {
+            if (brc.getNonPersistentSite() != null) {
+                sb.append(brc.getNonPersistentSite().getId());
+            }
+            sb.append('|');
+            if (brc.getCurrentCatalog() != null) {
+                sb.append(brc.getCurrentCatalog().getId());
+            }
+            sb.append('|');
         }
-        return shs.getSolrFieldKeyMap(searchCriteria, fields);
+        sb.append(shs.getLocalePrefix());
+        return sb.toString();
+    }
+
+    protected SolrSearchSchema buildSearchSchema(long version) {
+        List<Field> fields = readAllFields();
+        String queryFields = buildQueryFieldsString(fields);
+        Map<String, String> solrFieldKeyMap = shs.getSolrFieldKeyMap(null, fields);
+        List<SearchFacet> searchFacets = searchFacetDao.readAllSearchFacets(useSku ? FieldEntity.SKU : FieldEntity.PRODUCT);
+        return new SolrSearchSchema(version, fields, queryFields, solrFieldKeyMap, searchFacets);
+    }
+
+    @Override
+    public void onApplicationEvent(SearchConfigPersistedEvent event) {
+        searchSchemaVersion.incrementAndGet();
+        searchSchemas.clear();
+    }
+
+    @Override
+    public boolean isAsynchronous() {
+        return false;
     }
 
     /**
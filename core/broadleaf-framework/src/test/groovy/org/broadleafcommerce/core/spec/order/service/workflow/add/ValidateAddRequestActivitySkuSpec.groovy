@@ -19,12 +19,15 @@
  */
 package org.broadleafcommerce.core.spec.order.service.workflow.add
 
+import org.broadleafcommerce.common.money.Money
 import org.broadleafcommerce.core.catalog.domain.ProductImpl
 import org.broadleafcommerce.core.catalog.domain.ProductOption
 import org.broadleafcommerce.core.catalog.domain.ProductOptionValue
 import org.broadleafcommerce.core.catalog.domain.ProductOptionXref
 import org.broadleafcommerce.core.catalog.domain.Sku
 import org.broadleafcommerce.core.catalog.service.CatalogService
+import org.broadleafcommerce.core.catalog.service.ProductOptionMatrix
+import org.broadleafcommerce.core.catalog.service.ProductOptionMatrixService
 import org.broadleafcommerce.core.catalog.service.type.ProductOptionValidationStrategyType
 import org.broadleafcommerce.core.catalog.service.type.ProductOptionValidationType
 import org.broadleafcommerce.core.order.service.OrderItemService
@@ -72,6 +75,7 @@ class ValidateAddRequestActivitySkuSpec extends BaseAddItemActivitySpec{
     OrderItemService mockOrderItemService = Mock()
     CatalogService mockCatalogService = Mock()
     ProductOptionValidationService mockProductOptionValidationService = Mock()
+    ProductOptionMatrixService mockProductOptionMatrixService = Mock()
     
     def setup() {
         activity = Spy(ValidateAddRequestActivity).with {
@@ -79,6 +83,7 @@ class ValidateAddRequestActivitySkuSpec extends BaseAddItemActivitySpec{
             orderItemService = mockOrderItemService
             catalogService = mockCatalogService
             productOptionValidationService = mockProductOptionValidationService
+            productOptionMatrixService = mockProductOptionMatrixService
             it
         }
     }
@@ -217,4 +222,94 @@ class ValidateAddRequestActivitySkuSpec extends BaseAddItemActivitySpec{
         then: "Then validate is called on the product option"
         1 * mockProductOptionValidationService.validate(*_)
     }
+
+    def "When the option matrix is enabled, the sku it finds is used once it checks out against the entities"() {
+        setup: "Create a product whose matrix finds the large sku"
+        ProductImpl testProduct = createSizedProduct()
+        Sku testSku = createSku(10L, testProduct, "L", true)
+        mockProductOptionMatrixService.isEnabled() >> true
+        mockProductOptionMatrixService.getMatrix(testProduct) >> createMatrix(10L, "L")
+
+        when: "The activity tries to find a sku for the given product and attributes"
+        Sku resultSku = activity.findMatchingSku(testProduct, ["size" : "L"], (ActivityMessages)context)
+
+        then: "The sku of the matrix is returned and the matrix is kept"
+        1 * mockCatalogService.findSkuById(10L) >> testSku
+        0 * mockProductOptionMatrixService.evictMatrix(_)
+        resultSku == testSku
+    }
+
+    def "When the option matrix misses a sku, the skus are scanned and the matrix is evicted"() {
+        setup: "Create a product with a large sku that its matrix predates"
+        ProductImpl testProduct = createSizedProduct()
+        Sku testSku = createSku(11L, testProduct, "L", true)
+        testProduct.getSkus() >> [testSku]
+        mockProductOptionMatrixService.isEnabled() >> true
+        mockProductOptionMatrixService.getMatrix(testProduct) >> createMatrix(10L, "S")
+
+        when: "The activity tries to find a sku for the given product and attributes"
+        Sku resultSku = activity.findMatchingSku(testProduct, ["size" : "L"], (ActivityMessages)context)
+
+        then: "The sku found by the scan is returned and the stale matrix is evicted"
+        0 * mockCatalogService.findSkuById(_)
+        1 * mockProductOptionMatrixService.evictMatrix(1L)
+        resultSku == testSku
+    }
+
+    def "When the sku of the option matrix is no longer active, the skus are scanned and the matrix is evicted"() {
+        setup: "Create a product whose matrix finds a sku that has since become inactive"
+        ProductImpl testProduct = createSizedProduct()
+        Sku inactiveSku = createSku(10L, testProduct, "L", false)
+        Sku activeSku = createSku(11L, testProduct, "L", true)
+        testProduct.getSkus() >> [activeSku]
+        mockProductOptionMatrixService.isEnabled() >> true
+        mockProductOptionMatrixService.getMatrix(testProduct) >> createMatrix(10L, "L")
+
+        when: "The activity tries to find a sku for the given product and attributes"
+        Sku resultSku = activity.findMatchingSku(testProduct, ["size" : "L"], (ActivityMessages)context)
+
+        then: "The active sku is returned and the stale matrix is evicted"
+        1 * mockCatalogService.findSkuById(10L) >> inactiveSku
+        1 * mockProductOptionMatrixService.evictMatrix(1L)
+        resultSku == activeSku
+    }
+
+    ProductOption sizeOption
+
+    protected ProductImpl createSizedProduct() {
+        sizeOption = Mock(ProductOption)
+        sizeOption.getRequired() >> true
+        sizeOption.getAttributeName() >> "size"
+        sizeOption.getUseInSkuGeneration() >> true
+        ProductOptionValidationStrategyType testStrategyType = Mock(ProductOptionValidationStrategyType)
+        testStrategyType.getRank() >> ProductOptionValidationStrategyType.ADD_ITEM.getRank()
+        sizeOption.getProductOptionValidationStrategyType() >> testStrategyType
+
+        ArrayList<ProductOptionXref> testProductOptions = new ArrayList<ProductOptionXref>()
+        testProductOptions.add(sizeOption)
+
+        ProductImpl testProduct = Spy(ProductImpl)
+        testProduct.getId() >> 1L
+        testProduct.getProductOptions() >> testProductOptions
+        return testProduct
+    }
+
+    protected Sku createSku(Long id, ProductImpl product, String size, boolean active) {
+        ProductOptionValue sizeValue = Mock(ProductOptionValue)
+        sizeValue.getProductOption() >> sizeOption
+        sizeValue.getAttributeValue() >> size
+
+        Sku sku = Mock(Sku)
+        sku.getId() >> id
+        sku.getProduct() >> product
+        sku.isActive() >> active
+        sku.getProductOptionValues() >> [sizeValue]
+        return sku
+    }
+
+    protected ProductOptionMatrix createMatrix(Long skuId, String size) {
+        Map<Long, String[]> attributes = [(5L) : ["size", size] as String[]]
+        return new ProductOptionMatrix(1L, [skuId] as Long[], [new Money("10.00")] as Money[], [true] as boolean[],
+                [null] as Date[], [null] as Date[], [[5L] as Long[]] as Long[][], attributes)
+    }
 }
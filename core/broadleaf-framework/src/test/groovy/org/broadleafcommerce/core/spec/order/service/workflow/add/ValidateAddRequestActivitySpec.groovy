@@ -22,6 +22,7 @@ package org.broadleafcommerce.core.spec.order.service.workflow.add
 import org.broadleafcommerce.common.currency.domain.BroadleafCurrencyImpl
 import org.broadleafcommerce.core.catalog.domain.SkuImpl
 import org.broadleafcommerce.core.catalog.service.CatalogService
+import org.broadleafcommerce.core.catalog.service.ProductOptionMatrixService
 import org.broadleafcommerce.core.order.service.OrderItemService
 import org.broadleafcommerce.core.order.service.OrderService
 import org.broadleafcommerce.core.order.service.ProductOptionValidationService
@@ -57,6 +58,7 @@ class ValidateAddRequestActivitySpec extends BaseAddItemActivitySpec {
     OrderItemService mockOrderItemService = Mock()
     CatalogService mockCatalogService = Mock()
     ProductOptionValidationService mockProductOptionValidationService = Mock()
+    ProductOptionMatrixService mockProductOptionMatrixService = Mock()
 
     def setup() {
         activity = Spy(ValidateAddRequestActivity).with {
@@ -64,6 +66,7 @@ class ValidateAddRequestActivitySpec extends BaseAddItemActivitySpec {
             orderItemService = mockOrderItemService
             catalogService = mockCatalogService
             productOptionValidationService = mockProductOptionValidationService
+            productOptionMatrixService = mockProductOptionMatrixService
             it
         }
     }
@@ -0,0 +1,133 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.core.catalog.service;
+
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+
+import org.broadleafcommerce.common.classloader.release.ThreadLocalManager;
+import org.broadleafcommerce.common.time.FixedTimeSource;
+import org.broadleafcommerce.common.time.SystemTime;
+import org.broadleafcommerce.core.catalog.domain.Product;
+import org.broadleafcommerce.core.catalog.domain.ProductAttribute;
+import org.broadleafcommerce.core.catalog.domain.ProductOption;
+import org.broadleafcommerce.core.catalog.domain.Sku;
+import org.broadleafcommerce.core.catalog.service.view.ProductView;
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+
+/**
+ * Catalog view cache tests
+ */
+public class CatalogViewServiceImplTest {
+
+    protected static final long NOW = 1000000000000L;
+
+    protected CacheManager cacheManager;
+    protected CatalogService catalogService;
+    protected CatalogViewServiceImpl viewService;
+
+    @Before
+    public void setUp() {
+        cacheManager = CacheManager.create();
+        Cache cache = new Cache("testCatalogViewElements", 100, false, false, 0, 0);
+        cacheManager.addCache(cache);
+        catalogService = EasyMock.createMock(CatalogService.class);
+        viewService = new CatalogViewServiceImpl();
+        viewService.catalogService = catalogService;
+        viewService.viewCache = cache;
+        viewService.setEnabled(true);
+        SystemTime.setGlobalTimeSource(new FixedTimeSource(NOW));
+    }
+
+    @After
+    public void tearDown() {
+        cacheManager.removeCache("testCatalogViewElements");
+        SystemTime.reset();
+        ThreadLocalManager.remove();
+    }
+
+    @Test
+    public void testCachedViewIsServed() {
+        Product product = createProduct(1L, new Date(NOW - 1000L), null);
+        EasyMock.expect(catalogService.findProductById(1L)).andReturn(product).once();
+        EasyMock.replay(catalogService);
+
+        ProductView view = viewService.getProductView(1L);
+        Assert.assertSame(view, viewService.getProductView(1L));
+        Assert.assertEquals(1L, viewService.getHitCount());
+        EasyMock.verify(catalogService);
+    }
+
+    @Test
+    public void testActiveIsComputedWhenRead() {
+        Product product = createProduct(1L, new Date(NOW - 1000L), new Date(NOW + 1000L));
+        EasyMock.expect(catalogService.findProductById(1L)).andReturn(product).once();
+        EasyMock.replay(catalogService);
+
+        Assert.assertTrue(viewService.getProductView(1L).isActive());
+        SystemTime.setGlobalTimeSource(new FixedTimeSource(NOW + 2000L));
+        Assert.assertFalse("The cached view should expire with the product's end date",
+                viewService.getProductView(1L).isActive());
+    }
+
+    @Test
+    public void testViewBuiltDuringEvictionIsNotCached() {
+        final Product product = createProduct(1L, new Date(NOW - 1000L), null);
+        // The product changes after it was read, but before its view is cached
+        EasyMock.expect(catalogService.findProductById(1L)).andAnswer(new IAnswer<Product>() {
+
+            @Override
+            public Product answer() {
+                viewService.evictProductView(1L);
+                return product;
+            }
+        });
+        EasyMock.expect(catalogService.findProductById(1L)).andReturn(product);
+        EasyMock.replay(catalogService);
+
+        Assert.assertNotNull(viewService.getProductView(1L));
+        Assert.assertNull(viewService.getCachedView(1L));
+        Assert.assertNotNull(viewService.getProductView(1L));
+        Assert.assertNotNull("A view built without a concurrent eviction should be cached", viewService.getCachedView(1L));
+        EasyMock.verify(catalogService);
+    }
+
+    protected Product createProduct(Long id, Date activeStartDate, Date activeEndDate) {
+        Product product = EasyMock.createNiceMock(Product.class);
+        EasyMock.expect(product.getId()).andReturn(id).anyTimes();
+        EasyMock.expect(product.getActiveStartDate()).andReturn(activeStartDate).anyTimes();
+        EasyMock.expect(product.getActiveEndDate()).andReturn(activeEndDate).anyTimes();
+        EasyMock.expect(product.getAdditionalSkus()).andReturn(new ArrayList<Sku>()).anyTimes();
+        EasyMock.expect(product.getProductOptions()).andReturn(new ArrayList<ProductOption>()).anyTimes();
+        EasyMock.expect(product.getProductAttributes()).andReturn(new HashMap<String, ProductAttribute>()).anyTimes();
+        EasyMock.replay(product);
+        return product;
+    }
+
+}
@@ -0,0 +1,116 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.core.catalog.service;
+
+import org.broadleafcommerce.common.classloader.release.ThreadLocalManager;
+import org.broadleafcommerce.common.site.domain.Site;
+import org.broadleafcommerce.common.site.domain.SiteImpl;
+import org.broadleafcommerce.common.web.BroadleafRequestContext;
+import org.broadleafcommerce.core.catalog.dao.CategoryDao;
+import org.broadleafcommerce.core.catalog.dao.CategoryTreeRow;
+import org.broadleafcommerce.core.catalog.dao.CategoryTreeXrefRow;
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Category tree service tests
+ */
+public class CategoryTreeServiceImplTest {
+
+    protected CategoryTreeServiceImpl service;
+
+    @Before
+    public void setUp() {
+        CategoryDao categoryDao = EasyMock.createMock(CategoryDao.class);
+        // Every site gets a single category named after the site the snapshot is built for
+        EasyMock.expect(categoryDao.readCategoryTreeRows()).andAnswer(new IAnswer<List<CategoryTreeRow>>() {
+
+            @Override
+            public List<CategoryTreeRow> answer() {
+                Long siteId = BroadleafRequestContext.getBroadleafRequestContext().getNonPersistentSite().getId();
+                List<CategoryTreeRow> rows = new ArrayList<CategoryTreeRow>();
+                rows.add(new CategoryTreeRow(siteId, "Site " + siteId, "/", "/", null, new Date(0), null, 'N'));
+                return rows;
+            }
+        }).anyTimes();
+        EasyMock.expect(categoryDao.readCategoryTreeXrefRows()).andReturn(new ArrayList<CategoryTreeXrefRow>()).anyTimes();
+        EasyMock.replay(categoryDao);
+
+        service = new CategoryTreeServiceImpl();
+        service.setCategoryDao(categoryDao);
+        service.setEnabled(true);
+    }
+
+    @After
+    public void tearDown() {
+        service.shutdown();
+        ThreadLocalManager.remove();
+    }
+
+    protected void setSite(Long siteId) {
+        Site site = new SiteImpl();
+        site.setId(siteId);
+        BroadleafRequestContext context = new BroadleafRequestContext();
+        context.setNonPersistentSite(site);
+        BroadleafRequestContext.setBroadleafRequestContext(context);
+    }
+
+    @Test
+    public void testSnapshotPerSite() {
+        setSite(1L);
+        CategoryTreeSnapshot site1 = service.getSnapshot();
+        Assert.assertSame(site1, service.getSnapshot());
+        Assert.assertEquals(1, site1.getNodesByName("Site 1").size());
+
+        setSite(2L);
+        CategoryTreeSnapshot site2 = service.getSnapshot();
+        Assert.assertNotSame(site1, site2);
+        Assert.assertEquals(1, site2.getNodesByName("Site 2").size());
+        Assert.assertTrue(site2.getNodesByName("Site 1").isEmpty());
+    }
+
+    @Test
+    public void testRebuildUsesTheContextOfEachSnapshot() {
+        setSite(1L);
+        CategoryTreeSnapshot site1 = service.getSnapshot();
+        setSite(2L);
+        service.getSnapshot();
+
+        // A rebuild runs on a thread without a request context of its own
+        ThreadLocalManager.remove();
+        service.rebuildAll();
+
+        setSite(1L);
+        CategoryTreeSnapshot rebuilt = service.getSnapshot();
+        Assert.assertNotSame(site1, rebuilt);
+        Assert.assertEquals(1, rebuilt.getNodesByName("Site 1").size());
+        setSite(2L);
+        Assert.assertEquals(1, service.getSnapshot().getNodesByName("Site 2").size());
+    }
+
+}
@@ -0,0 +1,84 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.core.catalog.service;
+
+import org.broadleafcommerce.core.catalog.dao.CategoryTreeRow;
+import org.broadleafcommerce.core.catalog.dao.CategoryTreeXrefRow;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Category tree snapshot tests
+ */
+public class CategoryTreeSnapshotTest {
+
+    protected static final Date ACTIVE_START = new Date(0);
+    protected static final Date FUTURE = new Date(Long.MAX_VALUE / 2);
+
+    @Test
+    public void testCategoryTreeSnapshot() {
+        List<CategoryTreeRow> rows = new ArrayList<CategoryTreeRow>();
+        rows.add(new CategoryTreeRow(1L, "Root", "/", "/", null, ACTIVE_START, null, 'N'));
+        rows.add(new CategoryTreeRow(2L, "Primary Nav", "primary-nav", "primary-nav", 1L, ACTIVE_START, null, 'N'));
+        rows.add(new CategoryTreeRow(3L, "Hot Sauces", "/hot-sauces", null, 2L, ACTIVE_START, null, 'N'));
+        rows.add(new CategoryTreeRow(4L, "Merchandise", "/merchandise", null, 2L, ACTIVE_START, null, 'N'));
+        rows.add(new CategoryTreeRow(5L, "Coming Soon", "/coming-soon", null, 2L, FUTURE, null, 'N'));
+
+        List<CategoryTreeXrefRow> xrefs = new ArrayList<CategoryTreeXrefRow>();
+        xrefs.add(new CategoryTreeXrefRow(1L, 2L, BigDecimal.ONE));
+        xrefs.add(new CategoryTreeXrefRow(2L, 4L, BigDecimal.ONE));
+        xrefs.add(new CategoryTreeXrefRow(2L, 3L, new BigDecimal(2)));
+        xrefs.add(new CategoryTreeXrefRow(2L, 5L, new BigDecimal(3)));
+        // circular reference back to the root must not break ancestor computation
+        xrefs.add(new CategoryTreeXrefRow(3L, 1L, BigDecimal.ONE));
+
+        CategoryTreeSnapshot snapshot = new CategoryTreeSnapshot(rows, xrefs);
+        Assert.assertEquals(5, snapshot.size());
+
+        CategoryTreeNode primaryNav = snapshot.getNodesByName("Primary Nav").get(0);
+        Assert.assertEquals("/primary-nav", primaryNav.getUrl());
+        Assert.assertEquals("primary-nav", primaryNav.getUrlKey());
+
+        List<CategoryTreeNode> children = primaryNav.getChildren();
+        Assert.assertEquals(2, children.size());
+        Assert.assertEquals(Long.valueOf(4L), children.get(0).getId());
+        Assert.assertEquals(Long.valueOf(3L), children.get(1).getId());
+        Assert.assertEquals(3, primaryNav.getAllChildren().size());
+
+        CategoryTreeNode hotSauces = snapshot.getNodeByUrl("hot-sauces");
+        Assert.assertTrue(hotSauces.isDescendantOf(snapshot.getNode(1L)));
+        Assert.assertTrue(hotSauces.isDescendantOf(primaryNav));
+        Assert.assertFalse(primaryNav.isDescendantOf(snapshot.getNode(4L)));
+
+        Assert.assertEquals(Long.valueOf(1L), hotSauces.getDefaultParent().getDefaultParent().getId());
+
+        Map<String, List<Long>> urlMap = snapshot.getChildCategoryURLMap(2L);
+        Assert.assertTrue(urlMap.containsKey("/primary-nav/merchandise"));
+        Assert.assertFalse(urlMap.containsKey("/primary-nav/coming-soon"));
+        Assert.assertNull(snapshot.getNode(99L));
+    }
+
+}
@@ -0,0 +1,128 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.core.catalog.service;
+
+import org.broadleafcommerce.common.money.Money;
+import org.broadleafcommerce.common.time.FixedTimeSource;
+import org.broadleafcommerce.common.time.SystemTime;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Product option matrix tests
+ */
+public class ProductOptionMatrixTest {
+
+    protected static final Long RED = 1L;
+    protected static final Long BLUE = 2L;
+    protected static final Long SMALL = 3L;
+    protected static final Long LARGE = 4L;
+
+    protected ProductOptionMatrix buildMatrix() {
+        Map<Long, String[]> attributes = new HashMap<Long, String[]>();
+        attributes.put(RED, new String[] { "color", "Red" });
+        attributes.put(BLUE, new String[] { "color", "Blue" });
+        attributes.put(SMALL, new String[] { "size", "S" });
+        attributes.put(LARGE, new String[] { "size", "L" });
+
+        Long[] skuIds = { 10L, 11L, 12L, 13L };
+        Money[] prices = { new Money("10.00"), new Money("11.00"), new Money("12.00"), new Money("13.00") };
+        // the large blue shirt is sold out
+        boolean[] available = { true, true, true, false };
+        Date yesterday = new Date(System.currentTimeMillis() - 86400000L);
+        Date[] activeStartDates = { yesterday, yesterday, yesterday, yesterday };
+        Date[] activeEndDates = new Date[4];
+        Long[][] optionValueIds = {
+                { RED, SMALL },
+                { RED, LARGE },
+                { BLUE, SMALL },
+                { BLUE, LARGE } };
+        return new ProductOptionMatrix(100L, skuIds, prices, available, activeStartDates, activeEndDates, optionValueIds,
+                attributes);
+    }
+
+    @Test
+    public void testFindSku() {
+        ProductOptionMatrix matrix = buildMatrix();
+        Assert.assertEquals(4, matrix.getSkuCount());
+        Assert.assertEquals(Long.valueOf(11L), matrix.findSkuId(Arrays.asList(RED, LARGE)));
+        Assert.assertEquals(Long.valueOf(12L), matrix.findSkuId(Arrays.asList(SMALL, BLUE)));
+        Assert.assertEquals(Long.valueOf(10L), matrix.findSkuId(Collections.<Long>emptyList()));
+        Assert.assertNull(matrix.findSkuId(Arrays.asList(RED, 99L)));
+
+        Map<String, String> attributeValues = new HashMap<String, String>();
+        attributeValues.put("color", "Blue");
+        attributeValues.put("size", "L");
+        Assert.assertEquals(Long.valueOf(13L), matrix.findSkuIdByAttributes(attributeValues));
+        attributeValues.put("size", "XL");
+        Assert.assertNull(matrix.findSkuIdByAttributes(attributeValues));
+        Assert.assertEquals(new Money("12.00"), matrix.getPrice(2));
+    }
+
+    @Test
+    public void testAvailability() {
+        ProductOptionMatrix matrix = buildMatrix();
+        Assert.assertTrue(matrix.isAvailable(Arrays.asList(BLUE, SMALL)));
+        Assert.assertFalse(matrix.isAvailable(Arrays.asList(BLUE, LARGE)));
+        Assert.assertTrue(matrix.isAvailable(Arrays.asList(BLUE)));
+        Assert.assertFalse(matrix.isAvailable(3));
+
+        Set<Long> afterBlue = matrix.getAvailableOptionValueIds(Arrays.asList(BLUE));
+        Assert.assertEquals(2, afterBlue.size());
+        Assert.assertTrue(afterBlue.contains(SMALL));
+        Assert.assertFalse(afterBlue.contains(LARGE));
+
+        Set<Long> afterLarge = matrix.getAvailableOptionValueIds(Arrays.asList(LARGE));
+        Assert.assertTrue(afterLarge.contains(RED));
+        Assert.assertFalse(afterLarge.contains(BLUE));
+    }
+
+    @Test
+    public void testActiveDatesAreCheckedOnLookup() {
+        long built = 1000000000000L;
+        Date[] activeStartDates = { new Date(built - 1000L), new Date(built + 1000L) };
+        Date[] activeEndDates = { new Date(built + 1000L), null };
+        ProductOptionMatrix matrix = new ProductOptionMatrix(100L, new Long[] { 10L, 11L },
+                new Money[] { new Money("10.00"), new Money("11.00") }, new boolean[] { true, true }, activeStartDates,
+                activeEndDates, new Long[][] { { RED }, { BLUE } }, new HashMap<Long, String[]>());
+        try {
+            SystemTime.setLocalTimeSource(new FixedTimeSource(built));
+            Assert.assertTrue(matrix.isAvailable(Arrays.asList(RED)));
+            Assert.assertFalse(matrix.isAvailable(Arrays.asList(BLUE)));
+
+            // the red shirt expired and the blue one became active after the matrix was built
+            SystemTime.setLocalTimeSource(new FixedTimeSource(built + 2000L));
+            Assert.assertFalse(matrix.isAvailable(Arrays.asList(RED)));
+            Assert.assertTrue(matrix.isAvailable(Arrays.asList(BLUE)));
+            Assert.assertFalse(matrix.isAvailable(0));
+            Assert.assertTrue(matrix.isAvailable(1));
+        } finally {
+            SystemTime.resetLocalTimeSource();
+        }
+    }
+
+}
@@ -0,0 +1,246 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.core.checkout.service;
+
+import org.broadleafcommerce.core.checkout.service.exception.CheckoutException;
+import org.broadleafcommerce.core.checkout.service.workflow.CheckoutSeed;
+import org.broadleafcommerce.core.order.dao.OrderDao;
+import org.broadleafcommerce.core.order.domain.Order;
+import org.broadleafcommerce.core.order.domain.OrderImpl;
+import org.broadleafcommerce.core.order.service.OrderService;
+import org.broadleafcommerce.core.order.service.type.OrderStatus;
+import org.broadleafcommerce.core.workflow.Processor;
+import org.easymock.Capture;
+import org.easymock.EasyMock;
+
+import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+
+public class CheckoutLockServiceTest extends TestCase {
+
+    protected StripedCheckoutLockServiceImpl createStripedService(int stripeCount, int leaseSeconds) {
+        StripedCheckoutLockServiceImpl service = new StripedCheckoutLockServiceImpl();
+        service.stripeCount = stripeCount;
+        service.leaseSeconds = leaseSeconds;
+        service.init();
+        return service;
+    }
+
+    protected Order createOrder(Long id) {
+        Order order = new OrderImpl();
+        order.setId(id);
+        order.setStatus(OrderStatus.IN_PROCESS);
+        return order;
+    }
+
+    public void testDifferentOrdersDoNotBlockEachOther() {
+        // a single stripe puts both orders on the same monitor
+        StripedCheckoutLockServiceImpl service = createStripedService(1, 300);
+        Object first = service.acquireLock(createOrder(1L), 0);
+        Object second = service.acquireLock(createOrder(2L), 0);
+
+        assertNotNull(first);
+        assertNotNull("A checkout of another order should not have to wait", second);
+        assertEquals(0, service.getContendedCount());
+
+        service.releaseLock(first, null);
+        service.releaseLock(second, null);
+        assertTrue("Released leases should be removed", service.getStripe(1L).leases.isEmpty());
+    }
+
+    public void testSameOrderTimesOut() {
+        StripedCheckoutLockServiceImpl service = createStripedService(256, 300);
+        Order order = createOrder(1L);
+        Object lock = service.acquireLock(order, 0);
+
+        assertNull(service.acquireLock(order, 0));
+        long start = System.currentTimeMillis();
+        assertNull(service.acquireLock(order, 100));
+        assertTrue("The second attempt should have waited for its timeout", System.currentTimeMillis() - start >= 100);
+        assertEquals(2, service.getTimedOutCount());
+        assertEquals(2, service.getContendedCount());
+
+        service.releaseLock(lock, null);
+        assertNotNull(service.acquireLock(order, 0));
+    }
+
+    public void testOnlyWaitersAreGivenTheCompletedCheckout() throws Exception {
+        final StripedCheckoutLockServiceImpl service = createStripedService(256, 300);
+        final Order order = createOrder(1L);
+        Object lock = service.acquireLock(order, 0);
+
+        final AtomicReference<Object> waiterLock = new AtomicReference<Object>();
+        final CountDownLatch done = new CountDownLatch(1);
+        Thread waiter = new Thread() {
+
+            @Override
+            public void run() {
+                waiterLock.set(service.acquireLock(order, 10000));
+                done.countDown();
+            }
+        };
+        waiter.start();
+        while (service.getContendedCount() == 0) {
+            Thread.sleep(5);
+        }
+
+        order.setStatus(OrderStatus.SUBMITTED);
+        service.releaseLock(lock, new CheckoutSeed(order, new HashMap<String, Object>()));
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        CompletedCheckout completed = service.getCompletedCheckout(waiterLock.get());
+        assertNotNull("The waiter should be given the checkout it waited for", completed);
+        assertEquals(order.getId(), completed.getOrderId());
+        assertEquals(OrderStatus.SUBMITTED, completed.getOrderStatus());
+        service.releaseLock(waiterLock.get(), null);
+
+        Object later = service.acquireLock(order, 0);
+        assertNull("A later checkout that did not wait should not be given the outcome",
+                service.getCompletedCheckout(later));
+        service.releaseLock(later, null);
+    }
+
+    public void testExpiredLeaseIsNotReleasedByItsFormerHolder() {
+        // leases expire right away, so the second acquisition takes over the first one
+        StripedCheckoutLockServiceImpl service = createStripedService(256, 0);
+        Order order = createOrder(1L);
+        Object expired = service.acquireLock(order, 0);
+        Object current = service.acquireLock(order, 0);
+        assertNotNull(current);
+
+        service.releaseLock(expired, null);
+        assertSame("The former holder should not release the lease that replaced it",
+                ((AbstractCheckoutLockService.CheckoutLock) current).delegate, service.getStripe(1L).leases.get(1L));
+
+        service.releaseLock(current, null);
+        assertTrue(service.getStripe(1L).leases.isEmpty());
+    }
+
+    public void testDatabaseLeaseIsReleasedByItsTimestamp() {
+        final OrderDao orderDao = EasyMock.createMock(OrderDao.class);
+        Order order = createOrder(1L);
+        Capture<Long> acquiredTimestamp = new Capture<Long>();
+        EasyMock.expect(orderDao.acquireLock(EasyMock.same(order), EasyMock.eq(DatabaseCheckoutLockServiceImpl.CHECKOUT_LOCK_KEY),
+                EasyMock.eq(300000L), EasyMock.capture(acquiredTimestamp))).andReturn(true);
+        Capture<Long> releasedTimestamp = new Capture<Long>();
+        EasyMock.expect(orderDao.releaseLock(EasyMock.same(order), EasyMock.eq(DatabaseCheckoutLockServiceImpl.CHECKOUT_LOCK_KEY),
+                EasyMock.capture(releasedTimestamp))).andReturn(true);
+        EasyMock.replay(orderDao);
+
+        DatabaseCheckoutLockServiceImpl service = new DatabaseCheckoutLockServiceImpl() {
+
+            @Override
+            protected boolean tryAcquireLock(Order order, long leaseTimestamp) {
+                return orderDao.acquireLock(order, CHECKOUT_LOCK_KEY, leaseSeconds * 1000L, leaseTimestamp);
+            }
+        };
+        service.orderDao = orderDao;
+
+        Object lock = service.acquireLock(order, 0);
+        assertNotNull(lock);
+        service.releaseLock(lock, null);
+
+        EasyMock.verify(orderDao);
+        assertEquals("The release should only match the lease it acquired", acquiredTimestamp.getValue(),
+                releasedTimestamp.getValue());
+    }
+
+    /**
+     * Two nodes leasing the same database record, the second of which checks out a copy of the order it loaded
+     * before the first node submitted it
+     */
+    public void testWaiterOnAnotherNodeDoesNotCheckOutASubmittedOrderAgain() throws Exception {
+        AtomicLong leaseRecord = new AtomicLong();
+        DatabaseCheckoutLockServiceImpl firstNode = createDatabaseService(leaseRecord);
+        DatabaseCheckoutLockServiceImpl secondNode = createDatabaseService(leaseRecord);
+
+        Order submittedOrder = createOrder(1L);
+        submittedOrder.setStatus(OrderStatus.SUBMITTED);
+        OrderService orderService = EasyMock.createMock(OrderService.class);
+        EasyMock.expect(orderService.findOrderById(1L, true)).andReturn(submittedOrder);
+        // any call to the workflow fails the test
+        Processor checkoutWorkflow = EasyMock.createMock(Processor.class);
+        EasyMock.replay(orderService, checkoutWorkflow);
+
+        final CheckoutServiceImpl checkoutService = new CheckoutServiceImpl();
+        checkoutService.checkoutLockService = secondNode;
+        checkoutService.orderService = orderService;
+        checkoutService.checkoutWorkflow = checkoutWorkflow;
+        checkoutService.lockWaitTimeout = 10000;
+
+        Object firstLock = firstNode.acquireLock(createOrder(1L), 0);
+        assertNotNull(firstLock);
+
+        final Order staleOrder = createOrder(1L);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final CountDownLatch done = new CountDownLatch(1);
+        Thread waiter = new Thread() {
+
+            @Override
+            public void run() {
+                try {
+                    checkoutService.performCheckout(staleOrder);
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+                done.countDown();
+            }
+        };
+        waiter.start();
+        while (secondNode.getContendedCount() == 0) {
+            Thread.sleep(5);
+        }
+
+        firstNode.releaseLock(firstLock, new CheckoutSeed(submittedOrder, new HashMap<String, Object>()));
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        assertTrue("The second checkout should be rejected, not run again: " + failure.get(),
+                failure.get() instanceof CheckoutException);
+        assertEquals(OrderStatus.IN_PROCESS, staleOrder.getStatus());
+        assertEquals("The second node should have released its lease", 0L, leaseRecord.get());
+        EasyMock.verify(orderService, checkoutWorkflow);
+    }
+
+    /**
+     * A database lock service whose lease record is the given value, 0 while the lease is free
+     */
+    protected DatabaseCheckoutLockServiceImpl createDatabaseService(final AtomicLong leaseRecord) {
+        DatabaseCheckoutLockServiceImpl service = new DatabaseCheckoutLockServiceImpl() {
+
+            @Override
+            protected boolean tryAcquireLock(Order order, long leaseTimestamp) {
+                return leaseRecord.compareAndSet(0L, leaseTimestamp);
+            }
+
+            @Override
+            protected void doReleaseLock(Object lock) {
+                leaseRecord.compareAndSet(((DatabaseLease) lock).leaseTimestamp, 0L);
+            }
+        };
+        service.pollingIntervalMs = 10;
+        return service;
+    }
+
+}
@@ -0,0 +1,172 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.core.offer.service;
+
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+
+import org.broadleafcommerce.core.offer.dao.OfferAuditDao;
+import org.broadleafcommerce.core.offer.domain.OfferAudit;
+import org.broadleafcommerce.core.offer.domain.OfferAuditImpl;
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Offer usage ledger tests
+ */
+public class OfferAuditServiceImplTest {
+
+    protected static final Long CUSTOMER_ID = 1L;
+    protected static final Long OFFER_ID = 10L;
+
+    protected CacheManager cacheManager;
+    protected OfferAuditDao offerAuditDao;
+    protected OfferAuditServiceImpl service;
+
+    @Before
+    public void setUp() {
+        cacheManager = CacheManager.create();
+        Cache cache = new Cache("testOfferUsageElements", 100, false, false, 0, 0);
+        cacheManager.addCache(cache);
+        offerAuditDao = EasyMock.createMock(OfferAuditDao.class);
+        service = new OfferAuditServiceImpl();
+        service.offerAuditDao = offerAuditDao;
+        service.ledgerCache = cache;
+    }
+
+    @After
+    public void tearDown() {
+        cacheManager.removeCache("testOfferUsageElements");
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void testLedgerIsEvictedOnlyAfterCommit() {
+        final OfferAudit audit = createAudit();
+        EasyMock.expect(offerAuditDao.countUsesByCustomer(CUSTOMER_ID, Arrays.asList(OFFER_ID))).andReturn(uses(1L));
+        EasyMock.expect(offerAuditDao.save(audit)).andAnswer(new IAnswer<OfferAudit>() {
+
+            @Override
+            public OfferAudit answer() {
+                audit.setId(100L);
+                return audit;
+            }
+        });
+        EasyMock.expect(offerAuditDao.countUsesByCustomer(CUSTOMER_ID, Arrays.asList(OFFER_ID))).andReturn(uses(2L));
+        EasyMock.replay(offerAuditDao);
+
+        Assert.assertEquals(Long.valueOf(1L), readUses());
+
+        TransactionSynchronizationManager.initSynchronization();
+        service.save(audit);
+        Assert.assertEquals("The count must not change before the audit commits", Long.valueOf(1L), readUses());
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCommit();
+        }
+        TransactionSynchronizationManager.clearSynchronization();
+
+        Assert.assertEquals("The count should be reloaded once the audit commits", Long.valueOf(2L), readUses());
+        EasyMock.verify(offerAuditDao);
+    }
+
+    @Test
+    public void testRolledBackAuditKeepsLedger() {
+        final OfferAudit audit = createAudit();
+        audit.setId(100L);
+        EasyMock.expect(offerAuditDao.countUsesByCustomer(CUSTOMER_ID, Arrays.asList(OFFER_ID))).andReturn(uses(1L));
+        offerAuditDao.delete(audit);
+        EasyMock.replay(offerAuditDao);
+
+        Assert.assertEquals(Long.valueOf(1L), readUses());
+        TransactionSynchronizationManager.initSynchronization();
+        service.delete(audit);
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        }
+        TransactionSynchronizationManager.clearSynchronization();
+
+        Assert.assertEquals(Long.valueOf(1L), readUses());
+        EasyMock.verify(offerAuditDao);
+    }
+
+    @Test
+    public void testCountLoadedDuringCommitIsNotCached() {
+        final OfferAudit audit = createAudit();
+        // The audit commits while the count, which does not include it yet, is being loaded
+        EasyMock.expect(offerAuditDao.countUsesByCustomer(CUSTOMER_ID, Arrays.asList(OFFER_ID))).andAnswer(new IAnswer<Map<Long, Long>>() {
+
+            @Override
+            public Map<Long, Long> answer() {
+                service.evictLedger(audit);
+                return uses(1L);
+            }
+        });
+        EasyMock.expect(offerAuditDao.countUsesByCustomer(CUSTOMER_ID, Arrays.asList(OFFER_ID))).andReturn(uses(2L));
+        EasyMock.replay(offerAuditDao);
+
+        Assert.assertEquals(Long.valueOf(1L), readUses());
+        Assert.assertNull("The stale count must not be kept in the ledger",
+                service.readLedgerCount(service.getCustomerOfferKey(CUSTOMER_ID, OFFER_ID)));
+        Assert.assertEquals(Long.valueOf(2L), readUses());
+        EasyMock.verify(offerAuditDao);
+    }
+
+    @Test
+    public void testExactCountsBypassLedger() {
+        EasyMock.expect(offerAuditDao.countUsesByCustomer(CUSTOMER_ID, Arrays.asList(OFFER_ID))).andReturn(uses(1L));
+        EasyMock.expect(offerAuditDao.countUsesByCustomer(CUSTOMER_ID, OFFER_ID)).andReturn(2L);
+        EasyMock.replay(offerAuditDao);
+
+        Assert.assertEquals(Long.valueOf(1L), readUses());
+        Assert.assertEquals(Long.valueOf(2L), service.countUsesByCustomer(CUSTOMER_ID, OFFER_ID));
+        EasyMock.verify(offerAuditDao);
+    }
+
+    protected Long readUses() {
+        return service.readUsesByCustomer(CUSTOMER_ID, Collections.singletonList(OFFER_ID)).get(OFFER_ID);
+    }
+
+    protected Map<Long, Long> uses(Long count) {
+        Map<Long, Long> uses = new HashMap<Long, Long>();
+        uses.put(OFFER_ID, count);
+        return uses;
+    }
+
+    protected OfferAudit createAudit() {
+        OfferAudit audit = new OfferAuditImpl();
+        audit.setCustomerId(CUSTOMER_ID);
+        audit.setOfferId(OFFER_ID);
+        return audit;
+    }
+
+}
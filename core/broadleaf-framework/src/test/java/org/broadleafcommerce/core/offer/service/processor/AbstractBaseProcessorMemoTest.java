@@ -0,0 +1,96 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.core.offer.service.processor;
+
+import org.broadleafcommerce.common.TimeDTO;
+import org.broadleafcommerce.common.cache.StatisticsService;
+import org.broadleafcommerce.common.rule.RuleResultMemoServiceImpl;
+import org.broadleafcommerce.common.web.BroadleafRequestContext;
+import org.easymock.EasyMock;
+
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+
+import junit.framework.TestCase;
+
+/**
+ * Checks which offer rule outcomes {@link AbstractBaseProcessor} hands to the rule result memo
+ */
+public class AbstractBaseProcessorMemoTest extends TestCase {
+
+    protected TestMemoService memoService;
+    protected AbstractBaseProcessor processor;
+
+    @Override
+    protected void setUp() throws Exception {
+        memoService = new TestMemoService();
+        StatisticsService statisticsService = EasyMock.createNiceMock(StatisticsService.class);
+        EasyMock.replay(statisticsService);
+        memoService.setStatisticsService(statisticsService);
+        processor = new AbstractBaseProcessor() {};
+        processor.ruleResultMemoService = memoService;
+
+        HttpServletRequest request = EasyMock.createNiceMock(HttpServletRequest.class);
+        EasyMock.replay(request);
+        BroadleafRequestContext context = new BroadleafRequestContext();
+        context.setRequest(request);
+        BroadleafRequestContext.setBroadleafRequestContext(context);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        BroadleafRequestContext.setBroadleafRequestContext(null);
+    }
+
+    public void testTimeRuleIsRememberedAcrossTimeDTOs() {
+        Calendar calendar = Calendar.getInstance();
+        for (int i = 0; i < 3; i++) {
+            Map<String, Object> vars = new HashMap<String, Object>();
+            vars.put("time", new TimeDTO((Calendar) calendar.clone()));
+            assertTrue(processor.executeExpression("time.date != null", vars));
+        }
+        assertEquals(1, memoService.getMemoSize());
+    }
+
+    public void testNonBooleanOutcomeIsNotRemembered() {
+        Map<String, Object> vars = new HashMap<String, Object>();
+        vars.put("time", new TimeDTO());
+
+        assertFalse(processor.executeExpression("'not a boolean'", vars));
+        assertEquals(0, memoService.getMemoSize());
+    }
+
+    protected static class TestMemoService extends RuleResultMemoServiceImpl {
+
+        public void setStatisticsService(StatisticsService statisticsService) {
+            this.statisticsService = statisticsService;
+        }
+
+        public int getMemoSize() {
+            Map<?, ?> memo = getMemo(false);
+            return memo == null ? 0 : memo.size();
+        }
+
+    }
+
+}
@@ -0,0 +1,130 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.core.search.service.index;
+
+import org.broadleafcommerce.core.catalog.domain.CatalogPersistedEvent;
+import org.broadleafcommerce.core.catalog.domain.CategoryProductXref;
+import org.broadleafcommerce.core.catalog.domain.CategoryProductXrefImpl;
+import org.broadleafcommerce.core.catalog.domain.Product;
+import org.broadleafcommerce.core.catalog.domain.ProductImpl;
+import org.broadleafcommerce.core.catalog.service.CatalogService;
+import org.broadleafcommerce.core.search.domain.SearchCriteria;
+import org.broadleafcommerce.core.search.domain.SearchFacetDTO;
+import org.broadleafcommerce.core.search.domain.SearchResult;
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+/**
+ * In-memory search service tests that do not need a database
+ */
+@SuppressWarnings("deprecation")
+public class InvertedIndexSearchServiceImplTest {
+
+    protected List<Long> reindexed;
+    protected int buildRequests;
+    protected CatalogService catalogServiceMock;
+    protected InvertedIndexSearchServiceImpl searchService;
+
+    @Before
+    public void setUp() {
+        reindexed = new ArrayList<Long>();
+        buildRequests = 0;
+        catalogServiceMock = EasyMock.createMock(CatalogService.class);
+        searchService = new InvertedIndexSearchServiceImpl() {
+
+            {
+                catalogService = catalogServiceMock;
+            }
+
+            @Override
+            protected void requestBuild() {
+                buildRequests++;
+            }
+
+            @Override
+            public List<SearchFacetDTO> getSearchFacets() {
+                return new ArrayList<SearchFacetDTO>();
+            }
+        };
+        searchService.buildExecutor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        searchService.shutdown();
+    }
+
+    @Test
+    public void testSearchesFallBackToTheDatabaseWhileTheIndexIsBuilt() {
+        Product product = new ProductImpl();
+        product.setId(1L);
+        SearchCriteria criteria = new SearchCriteria();
+        criteria.setFilterCriteria(new HashMap<String, String[]>());
+        EasyMock.expect(catalogServiceMock.findFilteredActiveProductsByQuery("ghost", criteria)).andReturn(Arrays.asList(product));
+        EasyMock.replay(catalogServiceMock);
+
+        SearchResult result = searchService.findSearchResultsByQuery("ghost", criteria);
+
+        Assert.assertEquals(Arrays.asList(product), result.getProducts());
+        Assert.assertEquals(1, buildRequests);
+        EasyMock.verify(catalogServiceMock);
+    }
+
+    @Test
+    public void testCategoryAssignmentChangesReindexTheProduct() {
+        InvertedIndexSearchServiceImpl recordingService = new InvertedIndexSearchServiceImpl() {
+
+            @Override
+            public void reindexProduct(Long productId) {
+                reindexed.add(productId);
+            }
+        };
+        Product product = new ProductImpl();
+        product.setId(7L);
+        CategoryProductXref xref = new CategoryProductXrefImpl();
+        xref.setProduct(product);
+
+        recordingService.onApplicationEvent(new CatalogPersistedEvent(xref));
+
+        Assert.assertEquals(Arrays.asList(7L), reindexed);
+    }
+
+    @Test
+    public void testChangesDuringARebuildAreQueued() {
+        searchService.index = new ProductSearchIndex();
+        synchronized (searchService.changedDuringRebuild) {
+            searchService.rebuilding = true;
+        }
+
+        searchService.reindexProduct(3L);
+
+        Assert.assertTrue(searchService.changedDuringRebuild.contains(3L));
+    }
+
+}
@@ -0,0 +1,153 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.core.search.service.index;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * In-memory product search index tests
+ */
+public class ProductSearchIndexTest {
+
+    protected static final String PRICE = "defaultSku.price";
+    protected static final String MANUFACTURER = "product.manufacturer";
+
+    @Test
+    public void testPostingListCompression() {
+        PostingList postings = new PostingList();
+        int[] docIds = new int[] { 0, 1, 2, 130, 20000, 20001 };
+        for (int docId : docIds) {
+            postings.add(docId);
+        }
+        postings.trim();
+        Assert.assertEquals(docIds.length, postings.size());
+        // Deltas below 128 take a single byte, larger deltas take one byte per 7 bits
+        Assert.assertEquals(1 + 1 + 1 + 2 + 3 + 1, postings.getByteSize());
+
+        BitSet bits = postings.toBitSet();
+        Assert.assertEquals(docIds.length, bits.cardinality());
+        for (int docId : docIds) {
+            Assert.assertTrue(bits.get(docId));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPostingListOrder() {
+        PostingList postings = new PostingList();
+        postings.add(5);
+        postings.add(5);
+    }
+
+    @Test
+    public void testSearchFilterAndSort() {
+        ProductSearchIndex index = new ProductSearchIndex();
+        index.addDocument(buildDocument(1L, "Day of the Dead Scotch Bonnet Hot Sauce", "Spice Exchange", "6.99", 10L));
+        index.addDocument(buildDocument(2L, "Green Ghost Hot Sauce", "Garden Row", "11.99", 10L));
+        index.addDocument(buildDocument(3L, "Hawaiian Shirt", "Broadleaf", "24.99", 20L));
+
+        BitSet all = index.getActiveDocuments(System.currentTimeMillis());
+        Assert.assertEquals(3, all.cardinality());
+
+        BitSet matches = index.matchQuery("hot sau");
+        matches.and(all);
+        Assert.assertEquals(2, matches.cardinality());
+        Assert.assertEquals(1, index.matchQuery("ghost").cardinality());
+        Assert.assertEquals(0, index.matchQuery("ghost shirt").cardinality());
+        Assert.assertEquals(2, index.matchCategory(10L).cardinality());
+
+        Assert.assertEquals(1, index.countValue(matches, MANUFACTURER, "Garden Row"));
+        Assert.assertEquals(1, index.countRange(matches, PRICE, new BigDecimal("5"), new BigDecimal("10")));
+        Assert.assertEquals(2, index.countRange(all, PRICE, new BigDecimal("10"), null));
+
+        BitSet filtered = index.matchFilter(PRICE, new String[] { "range[5:10]", "range[20:null]" });
+        Assert.assertEquals(2, filtered.cardinality());
+
+        List<Long> ids = index.getProductIds(all, PRICE + " desc", 0, 2);
+        Assert.assertEquals(Arrays.asList(3L, 2L), ids);
+        ids = index.getProductIds(all, PRICE + " desc", 2, 2);
+        Assert.assertEquals(Arrays.asList(1L), ids);
+    }
+
+    @Test
+    public void testIncrementalUpdate() {
+        ProductSearchIndex index = new ProductSearchIndex();
+        index.addDocument(buildDocument(1L, "Green Ghost", "Garden Row", "11.99", 10L));
+        index.addDocument(buildDocument(1L, "Blue Ghost", "Garden Row", "9.99", 10L));
+
+        BitSet active = index.getActiveDocuments(System.currentTimeMillis());
+        Assert.assertEquals(1, index.size());
+        Assert.assertEquals(0.5D, index.getDeletedRatio(), 0.0001D);
+
+        BitSet green = index.matchQuery("green");
+        green.and(active);
+        Assert.assertTrue(green.isEmpty());
+        Assert.assertEquals(1, index.countRange(active, PRICE, null, new BigDecimal("10")));
+
+        index.removeDocument(1L);
+        Assert.assertTrue(index.getActiveDocuments(System.currentTimeMillis()).isEmpty());
+    }
+
+    @Test
+    public void testIntersectionCount() {
+        ProductSearchIndex index = new ProductSearchIndex();
+        Random random = new Random(1L);
+        for (int i = 0; i < 50; i++) {
+            BitSet a = randomBits(random, random.nextInt(5000));
+            BitSet b = randomBits(random, random.nextInt(5000));
+            int expected = 0;
+            for (int j = a.nextSetBit(0); j >= 0; j = a.nextSetBit(j + 1)) {
+                if (b.get(j)) {
+                    expected++;
+                }
+            }
+            Assert.assertEquals(expected, index.intersectionCount(a, b));
+            Assert.assertEquals(expected, index.intersectionCount(b, a));
+        }
+    }
+
+    protected BitSet randomBits(Random random, int size) {
+        BitSet bits = new BitSet(size);
+        for (int i = 0; i < size; i++) {
+            if (random.nextBoolean()) {
+                bits.set(i);
+            }
+        }
+        return bits;
+    }
+
+    protected ProductSearchDocument buildDocument(Long productId, String name, String manufacturer, String price, Long categoryId) {
+        ProductSearchDocument document = new ProductSearchDocument(productId);
+        document.setActiveStartDate(0L);
+        document.addText(name);
+        document.addCategoryId(categoryId);
+        document.addFieldValue(MANUFACTURER, manufacturer);
+        document.addFieldValue(PRICE, price);
+        document.setNumericValue(PRICE, new BigDecimal(price));
+        return document;
+    }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.core.search.service.solr;
+
+import org.apache.commons.io.FileUtils;
+import org.broadleafcommerce.core.catalog.domain.CatalogPersistedEvent;
+import org.broadleafcommerce.core.catalog.domain.Product;
+import org.broadleafcommerce.core.catalog.domain.ProductAttribute;
+import org.broadleafcommerce.core.catalog.domain.ProductAttributeImpl;
+import org.broadleafcommerce.core.catalog.domain.Sku;
+import org.broadleafcommerce.core.catalog.domain.SkuAttribute;
+import org.broadleafcommerce.core.catalog.domain.SkuAttributeImpl;
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashSet;
+
+/**
+ * Index queue tests that do not need a Solr server
+ */
+public class SolrIndexQueueServiceImplTest {
+
+    protected SolrIndexQueueServiceImpl queueService;
+    protected File journal;
+
+    @Before
+    public void setUp() throws Exception {
+        journal = File.createTempFile("solrIndexQueue", ".journal");
+        FileUtils.deleteQuietly(journal);
+        queueService = new SolrIndexQueueServiceImpl();
+        queueService.enabled = true;
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.deleteQuietly(journal);
+    }
+
+    @Test
+    public void testAttributeChangesQueueTheirOwner() {
+        Product product = EasyMock.createNiceMock(Product.class);
+        EasyMock.expect(product.getId()).andReturn(3L).anyTimes();
+        Sku sku = EasyMock.createNiceMock(Sku.class);
+        EasyMock.expect(sku.getId()).andReturn(4L).anyTimes();
+        EasyMock.replay(product, sku);
+
+        ProductAttribute productAttribute = new ProductAttributeImpl();
+        productAttribute.setProduct(product);
+        SkuAttribute skuAttribute = new SkuAttributeImpl();
+        skuAttribute.setSku(sku);
+        queueService.onApplicationEvent(new CatalogPersistedEvent(productAttribute));
+        queueService.onApplicationEvent(new CatalogPersistedEvent(skuAttribute));
+        queueService.onApplicationEvent(new CatalogPersistedEvent(new ProductAttributeImpl()));
+
+        Assert.assertEquals(new HashSet<String>(Arrays.asList("product:3", "sku:4")), queueService.pending.keySet());
+    }
+
+    @Test
+    public void testJournalIsAppendedInOneWriteByTheJournalTask() throws Exception {
+        queueService.journalFile = journal.getAbsolutePath();
+        queueService.enqueueProduct(1L);
+        queueService.enqueueProduct(1L);
+        queueService.enqueueSku(2L);
+        queueService.enqueueCategory(3L);
+        Assert.assertFalse("Queuing should not write the journal", journal.exists());
+
+        queueService.appendJournal();
+        Assert.assertEquals(Arrays.asList("product:1", "sku:2", "category:3"), FileUtils.readLines(journal, "UTF-8"));
+        Assert.assertTrue(queueService.unjournaledKeys.isEmpty());
+
+        SolrIndexQueueServiceImpl restarted = new SolrIndexQueueServiceImpl();
+        restarted.journalFile = journal.getAbsolutePath();
+        restarted.replayJournal();
+        Assert.assertEquals(queueService.pending.keySet(), restarted.pending.keySet());
+    }
+
+    @Test
+    public void testRewriteDropsKeysWaitingToBeAppended() throws Exception {
+        queueService.journalFile = journal.getAbsolutePath();
+        queueService.enqueueProduct(1L);
+        queueService.rewriteJournal();
+        queueService.appendJournal();
+
+        Assert.assertEquals(Arrays.asList("product:1"), FileUtils.readLines(journal, "UTF-8"));
+    }
+
+}
@@ -0,0 +1,169 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.core.search.service.solr;
+
+import org.apache.solr.client.solrj.SolrServer;
+import org.broadleafcommerce.common.site.domain.Catalog;
+import org.broadleafcommerce.common.site.domain.CatalogImpl;
+import org.broadleafcommerce.common.site.domain.Site;
+import org.broadleafcommerce.common.site.domain.SiteImpl;
+import org.broadleafcommerce.common.web.BroadleafRequestContext;
+import org.broadleafcommerce.core.search.domain.Field;
+import org.broadleafcommerce.core.search.domain.FieldEntity;
+import org.broadleafcommerce.core.search.domain.FieldImpl;
+import org.broadleafcommerce.core.search.domain.RequiredFacet;
+import org.broadleafcommerce.core.search.domain.RequiredFacetImpl;
+import org.broadleafcommerce.core.search.domain.SearchFacet;
+import org.broadleafcommerce.core.search.domain.SearchFacetImpl;
+import org.broadleafcommerce.core.search.domain.SearchFacetRange;
+import org.broadleafcommerce.core.search.domain.SearchFacetRangeImpl;
+import org.broadleafcommerce.core.search.domain.solr.FieldType;
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Search schema tests
+ */
+public class SolrSearchSchemaTest {
+
+    @After
+    public void tearDown() {
+        BroadleafRequestContext.setBroadleafRequestContext(null);
+    }
+
+    @Test
+    public void testSchemaKeepsDetachedCopies() {
+        Field field = buildField(1L, "price", "p");
+        SearchFacet facet = buildFacet(2L, field);
+        SearchFacetRange range = new SearchFacetRangeImpl();
+        range.setId(3L);
+        range.setMinValue(BigDecimal.ZERO);
+        range.setMaxValue(BigDecimal.TEN);
+        range.setSearchFacet(facet);
+        facet.getSearchFacetRanges().add(range);
+        RequiredFacet requiredFacet = new RequiredFacetImpl();
+        requiredFacet.setId(4L);
+        requiredFacet.setSearchFacet(facet);
+        requiredFacet.setRequiredFacet(buildFacet(5L, buildField(6L, "manufacturer", "mfg")));
+        facet.getRequiredFacets().add(requiredFacet);
+
+        SolrSearchSchema schema = new SolrSearchSchema(1L, new ArrayList<Field>(Arrays.asList(field)), "qf",
+                new HashMap<String, String>(), new ArrayList<SearchFacet>(Arrays.asList(facet)));
+
+        // Changes to the loaded entities after the schema was built must not show up in it
+        field.setAbbreviation("changed");
+        range.setMaxValue(BigDecimal.ONE);
+
+        Field fieldCopy = schema.getFields().get(0);
+        Assert.assertNotSame(field, fieldCopy);
+        Assert.assertEquals(Long.valueOf(1L), fieldCopy.getId());
+        Assert.assertEquals("p", fieldCopy.getAbbreviation());
+        Assert.assertEquals(Arrays.asList(FieldType.PRICE), fieldCopy.getSearchableFieldTypes());
+
+        SearchFacet facetCopy = schema.getSearchFacets().get(0);
+        Assert.assertNotSame(facet, facetCopy);
+        Assert.assertEquals("p", facetCopy.getField().getAbbreviation());
+        SearchFacetRange rangeCopy = facetCopy.getSearchFacetRanges().get(0);
+        Assert.assertEquals(Long.valueOf(3L), rangeCopy.getId());
+        Assert.assertEquals(BigDecimal.TEN, rangeCopy.getMaxValue());
+        Assert.assertSame(facetCopy, rangeCopy.getSearchFacet());
+        RequiredFacet requiredFacetCopy = facetCopy.getRequiredFacets().get(0);
+        Assert.assertSame(facetCopy, requiredFacetCopy.getSearchFacet());
+        Assert.assertEquals("mfg", requiredFacetCopy.getRequiredFacet().getField().getAbbreviation());
+    }
+
+    @Test
+    public void testEveryCallHandsOutNewCopies() {
+        SearchFacet facet = buildFacet(2L, buildField(1L, "price", "p"));
+        SolrSearchSchema schema = new SolrSearchSchema(1L, new ArrayList<Field>(), "qf",
+                new HashMap<String, String>(), new ArrayList<SearchFacet>(Arrays.asList(facet)));
+
+        SearchFacet first = schema.getSearchFacets().get(0);
+        first.setLabel("changed");
+        first.getSearchFacetRanges().add(new SearchFacetRangeImpl());
+
+        SearchFacet second = schema.getSearchFacets().get(0);
+        Assert.assertNotSame(first, second);
+        Assert.assertEquals("Price", second.getLabel());
+        Assert.assertTrue(second.getSearchFacetRanges().isEmpty());
+    }
+
+    @Test
+    public void testSchemaKeyIncludesSiteAndCatalog() {
+        SolrHelperService shs = EasyMock.createMock(SolrHelperService.class);
+        EasyMock.expect(shs.getLocalePrefix()).andReturn("en_US_").anyTimes();
+        EasyMock.replay(shs);
+        SolrSearchServiceImpl searchService = new SolrSearchServiceImpl((SolrServer) null);
+        searchService.shs = shs;
+
+        BroadleafRequestContext brc = new BroadleafRequestContext();
+        BroadleafRequestContext.setBroadleafRequestContext(brc);
+        String noSiteKey = searchService.getSearchSchemaKey();
+
+        Site site = new SiteImpl();
+        site.setId(1L);
+        brc.setNonPersistentSite(site);
+        String siteKey = searchService.getSearchSchemaKey();
+
+        Catalog catalog = new CatalogImpl();
+        catalog.setId(2L);
+        brc.setCurrentCatalog(catalog);
+        String catalogKey = searchService.getSearchSchemaKey();
+
+        Site otherSite = new SiteImpl();
+        otherSite.setId(3L);
+        brc.setNonPersistentSite(otherSite);
+        String otherSiteKey = searchService.getSearchSchemaKey();
+
+        Assert.assertEquals(4, new HashSet<String>(Arrays.asList(noSiteKey, siteKey, catalogKey, otherSiteKey)).size());
+        Assert.assertTrue(catalogKey.endsWith("en_US_"));
+    }
+
+    protected Field buildField(Long id, String propertyName, String abbreviation) {
+        Field field = new FieldImpl();
+        field.setId(id);
+        field.setEntityType(FieldEntity.PRODUCT);
+        field.setPropertyName(propertyName);
+        field.setAbbreviation(abbreviation);
+        field.setSearchable(true);
+        field.setFacetFieldType(FieldType.PRICE);
+        field.setSearchableFieldTypes(Collections.singletonList(FieldType.PRICE));
+        return field;
+    }
+
+    protected SearchFacet buildFacet(Long id, Field field) {
+        SearchFacet facet = new SearchFacetImpl();
+        facet.setId(id);
+        facet.setLabel("Price");
+        facet.setField(field);
+        return facet;
+    }
+
+}
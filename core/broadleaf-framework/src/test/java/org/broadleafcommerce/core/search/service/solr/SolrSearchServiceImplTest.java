@@ -0,0 +1,165 @@
+/*
+ * #%L
+ * BroadleafCommerce Framework
+ * %%
+ * Copyright (C) 2009 - 2015 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.core.search.service.solr;
+
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.SolrRequest;
+import org.apache.solr.client.solrj.SolrServer;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.util.NamedList;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Response cache tests that do not need a Solr server
+ */
+public class SolrSearchServiceImplTest {
+
+    protected CacheManager cacheManager;
+    protected CountingSolrServer server;
+    protected SolrSearchServiceImpl searchService;
+
+    @Before
+    public void setUp() {
+        cacheManager = CacheManager.create();
+        Cache cache = new Cache("testSolrQueryResponseElements", 100, false, false, 0, 0);
+        cacheManager.addCache(cache);
+        server = new CountingSolrServer();
+        searchService = new SolrSearchServiceImpl(server);
+        searchService.queryResponseCacheEnabled = true;
+        searchService.queryResponseCache = cache;
+    }
+
+    @After
+    public void tearDown() {
+        cacheManager.removeCache("testSolrQueryResponseElements");
+        SolrContext.setPrimaryServer(null);
+    }
+
+    @Test
+    public void testKeyIgnoresParameterAndFilterOrder() {
+        SolrQuery query = new SolrQuery("shirt");
+        query.addFilterQuery("category:1");
+        query.addFilterQuery("color:red");
+        query.setRows(15);
+
+        SolrQuery reordered = new SolrQuery();
+        reordered.setRows(15);
+        reordered.addFilterQuery("color:red");
+        reordered.addFilterQuery("category:1");
+        reordered.setQuery("shirt");
+
+        Assert.assertEquals(searchService.buildQueryResponseCacheKey(query),
+                searchService.buildQueryResponseCacheKey(reordered));
+    }
+
+    @Test
+    public void testKeyCoversFiltersPagingAndSortOrder() {
+        SolrQuery query = new SolrQuery("shirt");
+        query.addFilterQuery("category:1");
+        query.addSort("price", SolrQuery.ORDER.asc);
+        query.addSort("name", SolrQuery.ORDER.asc);
+        String key = searchService.buildQueryResponseCacheKey(query);
+
+        SolrQuery otherFilter = query.getCopy();
+        otherFilter.setFilterQueries("category:2");
+        Assert.assertNotEquals(key, searchService.buildQueryResponseCacheKey(otherFilter));
+
+        SolrQuery otherPage = query.getCopy();
+        otherPage.setStart(15);
+        Assert.assertNotEquals(key, searchService.buildQueryResponseCacheKey(otherPage));
+
+        // the order of the sort clauses matters, unlike the order of the filters
+        SolrQuery otherSort = new SolrQuery("shirt");
+        otherSort.addFilterQuery("category:1");
+        otherSort.addSort("name", SolrQuery.ORDER.asc);
+        otherSort.addSort("price", SolrQuery.ORDER.asc);
+        Assert.assertNotEquals(key, searchService.buildQueryResponseCacheKey(otherSort));
+    }
+
+    @Test
+    public void testResponseIsCachedUntilTheIndexGenerationChanges() throws Exception {
+        SolrQuery query = new SolrQuery("shirt");
+
+        searchService.query(query);
+        searchService.query(query);
+        Assert.assertEquals(1, server.requests);
+
+        SolrContext.incrementIndexGeneration();
+        searchService.query(query);
+        Assert.assertEquals(2, server.requests);
+
+        searchService.query(query);
+        Assert.assertEquals(2, server.requests);
+    }
+
+    @Test
+    public void testCachedResponsesAreNotShared() throws Exception {
+        SolrQuery query = new SolrQuery("shirt");
+
+        QueryResponse first = searchService.query(query);
+        first.getResults().get(0).setField("id", "changed");
+        first.getResults().clear();
+
+        QueryResponse second = searchService.query(query);
+        QueryResponse third = searchService.query(query);
+        Assert.assertEquals(1, server.requests);
+        Assert.assertNotSame(second.getResults(), third.getResults());
+        Assert.assertEquals(1, second.getResults().size());
+        Assert.assertEquals("product-1", second.getResults().get(0).getFieldValue("id"));
+        Assert.assertEquals(7L, second.getResults().getNumFound());
+    }
+
+    /**
+     * Answers every request with a single document and counts the requests
+     */
+    protected static class CountingSolrServer extends SolrServer {
+
+        private static final long serialVersionUID = 1L;
+
+        protected int requests;
+
+        @Override
+        public NamedList<Object> request(SolrRequest request) {
+            requests++;
+            SolrDocument document = new SolrDocument();
+            document.setField("id", "product-1");
+            SolrDocumentList documents = new SolrDocumentList();
+            documents.setNumFound(7);
+            documents.add(document);
+            NamedList<Object> response = new NamedList<Object>();
+            response.add("response", documents);
+            return response;
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+    }
+
+}
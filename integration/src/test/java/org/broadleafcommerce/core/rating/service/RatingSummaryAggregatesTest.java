@@ -0,0 +1,200 @@
+/*
+ * #%L
+ * BroadleafCommerce Integration
+ * %%
+ * Copyright (C) 2009 - 2013 Broadleaf Commerce
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.broadleafcommerce.core.rating.service;
+
+import org.broadleafcommerce.core.rating.dao.RatingSummaryDao;
+import org.broadleafcommerce.core.rating.domain.RatingDetail;
+import org.broadleafcommerce.core.rating.domain.RatingSummary;
+import org.broadleafcommerce.core.rating.service.type.RatingType;
+import org.broadleafcommerce.profile.core.domain.Customer;
+import org.broadleafcommerce.profile.core.domain.CustomerImpl;
+import org.broadleafcommerce.test.BaseTest;
+import org.hibernate.Hibernate;
+import org.springframework.transaction.annotation.Transactional;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.annotation.Resource;
+
+/**
+ * Checks that the rating summary aggregates maintained with delta updates are the same as the aggregates recalculated
+ * from the rating details.
+ */
+public class RatingSummaryAggregatesTest extends BaseTest {
+
+    @Resource(name = "blRatingService")
+    protected RatingService ratingService;
+
+    @Resource(name = "blRatingSummaryDao")
+    protected RatingSummaryDao ratingSummaryDao;
+
+    @Test
+    @Transactional
+    public void testAddingRatings() {
+        Customer first = createCustomer(9101L);
+        Customer second = createCustomer(9102L);
+
+        ratingService.rateItem("aggregates-add", RatingType.PRODUCT, first, 4D);
+        assertAggregates("aggregates-add", 1, 4D, distribution(0, 0, 0, 1, 0));
+
+        ratingService.reviewItem("aggregates-add", RatingType.PRODUCT, second, 2D, "Not for me");
+        assertAggregates("aggregates-add", 2, 6D, distribution(0, 1, 0, 1, 0));
+        Assert.assertEquals(ratingService.readReviewByCustomerAndItem(second, "aggregates-add").getReviewText(), "Not for me");
+    }
+
+    @Test
+    @Transactional
+    public void testUpdatingRating() {
+        Customer first = createCustomer(9201L);
+        Customer second = createCustomer(9202L);
+        ratingService.rateItem("aggregates-update", RatingType.PRODUCT, first, 1D);
+        ratingService.rateItem("aggregates-update", RatingType.PRODUCT, second, 3D);
+
+        ratingService.rateItem("aggregates-update", RatingType.PRODUCT, first, 5D);
+        assertAggregates("aggregates-update", 2, 8D, distribution(0, 0, 1, 0, 1));
+
+        // rating the same value again leaves the aggregates as they are
+        ratingService.rateItem("aggregates-update", RatingType.PRODUCT, first, 5D);
+        assertAggregates("aggregates-update", 2, 8D, distribution(0, 0, 1, 0, 1));
+    }
+
+    @Test
+    @Transactional
+    public void testRemovingRatings() {
+        Customer first = createCustomer(9301L);
+        Customer second = createCustomer(9302L);
+        ratingService.rateItem("aggregates-remove", RatingType.PRODUCT, first, 2D);
+        ratingService.rateItem("aggregates-remove", RatingType.PRODUCT, second, 5D);
+
+        removeRating("aggregates-remove", second);
+        assertAggregates("aggregates-remove", 1, 2D, distribution(0, 1, 0, 0, 0));
+
+        removeRating("aggregates-remove", first);
+        assertAggregates("aggregates-remove", 0, 0D, distribution(0, 0, 0, 0, 0));
+    }
+
+    /**
+     * Summaries that predate the aggregate columns are computed from their details until their next rating, which
+     * recalculates their aggregates instead of applying a delta to them
+     */
+    @Test
+    @Transactional
+    public void testRatingLegacySummary() {
+        Customer first = createCustomer(9401L);
+        Customer second = createCustomer(9402L);
+        Customer third = createCustomer(9403L);
+        ratingService.rateItem("aggregates-legacy", RatingType.PRODUCT, first, 3D);
+        ratingService.rateItem("aggregates-legacy", RatingType.PRODUCT, second, 4D);
+        RatingSummary summary = ratingService.readRatingSummary("aggregates-legacy", RatingType.PRODUCT);
+        em.createQuery("UPDATE org.broadleafcommerce.core.rating.domain.RatingSummaryImpl ratingSummary "
+                + "SET ratingSummary.ratingCount = NULL, ratingSummary.ratingSum = NULL, "
+                + "ratingSummary.ratingCount1 = NULL, ratingSummary.ratingCount2 = NULL, ratingSummary.ratingCount3 = NULL, "
+                + "ratingSummary.ratingCount4 = NULL, ratingSummary.ratingCount5 = NULL "
+                + "WHERE ratingSummary.id = :ratingSummaryId")
+                .setParameter("ratingSummaryId", summary.getId())
+                .executeUpdate();
+        em.clear();
+        summary = ratingService.readRatingSummary("aggregates-legacy", RatingType.PRODUCT);
+
+        Assert.assertEquals(summary.getNumberOfRatings(), Integer.valueOf(2));
+        Assert.assertEquals(summary.getRatingSum(), 7D);
+        Assert.assertEquals(summary.getRatingDistribution(), distribution(0, 0, 1, 1, 0));
+
+        ratingService.rateItem("aggregates-legacy", RatingType.PRODUCT, third, 5D);
+        assertAggregates("aggregates-legacy", 3, 12D, distribution(0, 0, 1, 1, 1));
+    }
+
+    /**
+     * The aggregates are updated without loading the rating details of the summary
+     */
+    @Test
+    @Transactional
+    public void testRatingDoesNotLoadRatingDetails() {
+        Customer first = createCustomer(9501L);
+        Customer second = createCustomer(9502L);
+        ratingService.rateItem("aggregates-lazy", RatingType.PRODUCT, first, 4D);
+        em.flush();
+        em.clear();
+
+        RatingSummary summary = ratingService.readRatingSummary("aggregates-lazy", RatingType.PRODUCT);
+        ratingService.rateItem("aggregates-lazy", RatingType.PRODUCT, second, 2D);
+
+        Assert.assertFalse(Hibernate.isInitialized(summary.getRatings()));
+        assertAggregates("aggregates-lazy", 2, 6D, distribution(0, 1, 0, 1, 0));
+    }
+
+    protected Customer createCustomer(Long id) {
+        Customer customer = new CustomerImpl();
+        customer.setId(id);
+        customer.setUsername("ratingAggregates" + id);
+        customer.setEmailAddress("ratingAggregates" + id + "@example.com");
+        em.persist(customer);
+        return customer;
+    }
+
+    /**
+     * Deletes the customer's rating and takes it out of the aggregates, the same way a rating change is applied
+     */
+    protected void removeRating(String itemId, Customer customer) {
+        RatingSummary summary = ratingService.readRatingSummary(itemId, RatingType.PRODUCT);
+        RatingDetail detail = ratingSummaryDao.readRating(customer, summary.getId());
+        Double rating = detail.getRating();
+        em.remove(detail);
+        em.flush();
+        ratingSummaryDao.updateRatingAggregates(summary, rating, null);
+    }
+
+    /**
+     * Checks the aggregates of the summary, then recalculates them from the rating details and checks that nothing
+     * changed
+     */
+    protected void assertAggregates(String itemId, int count, Double sum, Map<Integer, Integer> distribution) {
+        em.flush();
+        em.clear();
+        RatingSummary summary = ratingService.readRatingSummary(itemId, RatingType.PRODUCT);
+        Double average = count == 0 ? 0D : sum / count;
+        assertAggregates(summary, count, sum, average, distribution);
+
+        ratingSummaryDao.recalculateRatingAggregates(summary.getId());
+        em.clear();
+        summary = ratingService.readRatingSummary(itemId, RatingType.PRODUCT);
+        assertAggregates(summary, count, sum, average, distribution);
+    }
+
+    protected void assertAggregates(RatingSummary summary, int count, Double sum, Double average,
+            Map<Integer, Integer> distribution) {
+        Assert.assertEquals(summary.getNumberOfRatings(), Integer.valueOf(count));
+        Assert.assertEquals(summary.getRatingSum(), sum);
+        Assert.assertEquals(summary.getAverageRating(), average, 0.0001D);
+        Assert.assertEquals(summary.getRatingDistribution(), distribution);
+    }
+
+    protected Map<Integer, Integer> distribution(int... counts) {
+        Map<Integer, Integer> distribution = new LinkedHashMap<Integer, Integer>();
+        for (int i = 0; i < counts.length; i++) {
+            distribution.put(i + 1, counts[i]);
+        }
+        return distribution;
+    }
+
+}